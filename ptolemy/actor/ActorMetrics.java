@@ -0,0 +1,568 @@
+/* Execution metrics of an actor.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ptolemy.actor.util.LatencyHistogram;
+import ptolemy.kernel.Entity;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.NamedObj;
+
+///////////////////////////////////////////////////////////////////
+//// ActorMetrics
+
+/**
+ The execution metrics of an actor: the number of firings, histograms
+ of the time spent in prefire(), fire(), postfire() and iterate(), the
+ number of tokens sent and received through each port, and on request,
+ the number of tokens queued in the receivers of each input port.
+ Instances are created by {@link ExecutionMetrics}.
+ <p>
+ Directors record the phases of a firing as follows, where
+ <i>metrics</i> is null unless the manager is collecting metrics:
+ <pre>
+    long time = metrics == null ? 0L : metrics.startFiring();
+    if (actor.prefire()) {
+        if (metrics != null) {
+            time = metrics.recordPrefire(time);
+        }
+        actor.fire();
+        if (metrics != null) {
+            time = metrics.recordFire(time);
+        }
+        ...
+ </pre>
+ Every firing is counted, but to keep the overhead low, only one in
+ every {@link ExecutionMetrics#getSamplingInterval()} firings is timed,
+ so the counts of the histograms are the numbers of sampled firings.
+ <p>
+ The counters are partitioned by actor and by port, and are not
+ synchronized. An actor is never fired by two threads at once, and
+ only the thread firing an actor sends and gets tokens through its
+ ports, so each counter has a single writer at any time and threads
+ firing different actors never contend. The methods that read the
+ metrics can be called from any thread, and may return values that
+ lag the execution slightly. Tokens are counted by the send(), broadcast()
+ and get() methods of {@link IOPort}, so tokens transferred by
+ accessing receivers directly are not counted.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class ActorMetrics implements ActorMetricsMBean {
+
+    /** Construct metrics for the specified actor, attach them to the
+     *  actor, and start counting the tokens sent and received through
+     *  its ports.
+     *  @param actor The actor.
+     *  @param owner The execution metrics that contain these metrics.
+     */
+    ActorMetrics(Actor actor, ExecutionMetrics owner) {
+        _actor = actor;
+        _owner = owner;
+        _samplingInterval = owner.getSamplingInterval();
+        if (actor instanceof AtomicActor) {
+            ((AtomicActor) actor)._actorMetrics = this;
+        } else if (actor instanceof CompositeActor) {
+            ((CompositeActor) actor)._actorMetrics = this;
+        }
+        List<?> ports = ((Entity) actor).portList();
+        _ports = new PortMetrics[ports.size()];
+        int i = 0;
+        for (Object port : ports) {
+            _ports[i] = new PortMetrics((IOPort) port);
+            i++;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the actor.
+     *  @return The actor.
+     */
+    public Actor getActor() {
+        return _actor;
+    }
+
+    /** Return the number of times the actor has been fired, which is
+     *  the number of invocations of fire() plus the number of
+     *  iterations requested through iterate().
+     *  @return The number of firings.
+     */
+    public long getFirings() {
+        return _firings;
+    }
+
+    /** Return the histogram of the latencies of fire().
+     *  @return The histogram.
+     */
+    public LatencyHistogram getFireHistogram() {
+        return _fire;
+    }
+
+    /** Return a summary of the latencies of fire().
+     *  @return A description of the latency histogram.
+     */
+    public String getFireLatency() {
+        return _fire.toString();
+    }
+
+    /** Return the histogram of the latencies of iterate().
+     *  @return The histogram.
+     */
+    public LatencyHistogram getIterateHistogram() {
+        return _iterate;
+    }
+
+    /** Return a summary of the latencies of iterate().
+     *  @return A description of the latency histogram.
+     */
+    public String getIterateLatency() {
+        return _iterate.toString();
+    }
+
+    /** Return the full name of the actor.
+     *  @return The full name of the actor.
+     */
+    public String getName() {
+        return ((NamedObj) _actor).getFullName();
+    }
+
+    /** Return the metrics of the ports of the actor.
+     *  @return An array with one element for each port that the actor
+     *   had when these metrics were created.
+     */
+    public PortMetrics[] getPortMetrics() {
+        return _ports.clone();
+    }
+
+    /** Return the histogram of the latencies of postfire().
+     *  @return The histogram.
+     */
+    public LatencyHistogram getPostfireHistogram() {
+        return _postfire;
+    }
+
+    /** Return a summary of the latencies of postfire().
+     *  @return A description of the latency histogram.
+     */
+    public String getPostfireLatency() {
+        return _postfire.toString();
+    }
+
+    /** Return the histogram of the latencies of prefire().
+     *  @return The histogram.
+     */
+    public LatencyHistogram getPrefireHistogram() {
+        return _prefire;
+    }
+
+    /** Return a summary of the latencies of prefire().
+     *  @return A description of the latency histogram.
+     */
+    public String getPrefireLatency() {
+        return _prefire.toString();
+    }
+
+    /** Return the number of tokens queued in the receivers of each
+     *  input port of the actor. Ports whose receivers do not support
+     *  elementList() are omitted. If the model is executing, the
+     *  result is a snapshot that may be out of date when it is returned.
+     *  @return A map from port names to queue depths.
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < _ports.length; i++) {
+            IOPort port = _ports[i].getPort();
+            if (!port.isInput()) {
+                continue;
+            }
+            try {
+                int depth = 0;
+                Receiver[][] receivers = port.getReceivers();
+                for (int j = 0; j < receivers.length; j++) {
+                    if (receivers[j] == null) {
+                        continue;
+                    }
+                    for (int k = 0; k < receivers[j].length; k++) {
+                        depth += receivers[j][k].elementList().size();
+                    }
+                }
+                result.put(port.getName(), Integer.valueOf(depth));
+            } catch (IllegalActionException ex) {
+                // The receivers do not support elementList().
+            } catch (RuntimeException ex) {
+                // A receiver was modified by the executing model while
+                // its elements were being listed. Omit the port rather
+                // than interfere with the execution.
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of tokens received through each port of the
+     *  actor.
+     *  @return A map from port names to token counts.
+     */
+    public Map<String, Long> getTokensReceived() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < _ports.length; i++) {
+            if (_ports[i].getPort().isInput()) {
+                result.put(_ports[i].getPort().getName(),
+                        Long.valueOf(_ports[i].getTokensReceived()));
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of tokens sent through each port of the actor.
+     *  @return A map from port names to token counts.
+     */
+    public Map<String, Long> getTokensSent() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < _ports.length; i++) {
+            if (_ports[i].getPort().isOutput()) {
+                result.put(_ports[i].getPort().getName(),
+                        Long.valueOf(_ports[i].getTokensSent()));
+            }
+        }
+        return result;
+    }
+
+    /** Record an invocation of fire().
+     *  @param startTime The time returned by the previous call to
+     *   startFiring(), resumeTiming() or a record method for this firing.
+     *  @return The time at which the next phase of the firing starts.
+     */
+    public long recordFire(long startTime) {
+        _firings++;
+        if (startTime == _UNTIMED) {
+            return _UNTIMED;
+        }
+        long now = System.nanoTime();
+        _fire.record(now - startTime);
+        return now;
+    }
+
+    /** Record firings that were not timed. A director that fires the
+     *  actors according to a static schedule can use this to count the
+     *  firings of many iterations at once, and time the firings of only
+     *  some iterations.
+     *  @param count The number of firings.
+     */
+    public void recordFirings(long count) {
+        _firings += count;
+    }
+
+    /** Record an invocation of iterate().
+     *  @param startTime The time returned by startFiring(), or
+     *   the value of System.nanoTime() when iterate() was invoked
+     *   if the director decides itself which firings to time.
+     *  @param count The number of iterations requested.
+     *  @return The time at which the next phase of the firing starts.
+     */
+    public long recordIterate(long startTime, int count) {
+        _firings += count;
+        if (startTime == _UNTIMED) {
+            return _UNTIMED;
+        }
+        long now = System.nanoTime();
+        _iterate.record(now - startTime);
+        return now;
+    }
+
+    /** Record an invocation of postfire().
+     *  @param startTime The time returned by the previous call to
+     *   startFiring(), resumeTiming() or a record method for this firing.
+     *  @return The time at which the next phase of the firing starts.
+     */
+    public long recordPostfire(long startTime) {
+        if (startTime == _UNTIMED) {
+            return _UNTIMED;
+        }
+        long now = System.nanoTime();
+        _postfire.record(now - startTime);
+        return now;
+    }
+
+    /** Record an invocation of prefire().
+     *  @param startTime The time returned by startFiring().
+     *  @return The time at which the next phase of the firing starts.
+     */
+    public long recordPrefire(long startTime) {
+        if (startTime == _UNTIMED) {
+            return _UNTIMED;
+        }
+        long now = System.nanoTime();
+        _prefire.record(now - startTime);
+        return now;
+    }
+
+    /** Restart the timing of a firing, so that the time spent by the
+     *  director since the last phase is not attributed to the next phase.
+     *  @param startTime The time returned by the previous call to
+     *   startFiring() or a record method for this firing.
+     *  @return The time at which the next phase of the firing starts.
+     */
+    public long resumeTiming(long startTime) {
+        if (startTime == _UNTIMED) {
+            return _UNTIMED;
+        }
+        return System.nanoTime();
+    }
+
+    /** Set all counts to zero and remove all recorded latencies.
+     */
+    public void reset() {
+        _firings = 0L;
+        _prefire.reset();
+        _fire.reset();
+        _postfire.reset();
+        _iterate.reset();
+        for (int i = 0; i < _ports.length; i++) {
+            _ports[i].reset();
+        }
+    }
+
+    /** Start a firing, and return the time to pass to the method that
+     *  records the first phase of the firing. If the firing is not
+     *  sampled, then the returned value causes the record methods to
+     *  count the firing without timing it. A director that invokes
+     *  postfire() in a separate phase from prefire() and fire() calls
+     *  this method again before postfire().
+     *  @return The time at which the firing starts.
+     */
+    public long startFiring() {
+        // The countdown is not synchronized. If the actor is fired in
+        // several threads at once, a firing may occasionally be sampled
+        // twice or not at all, which does not bias the histograms.
+        if (--_countdown > 0) {
+            return _UNTIMED;
+        }
+        _countdown = _samplingInterval;
+        return System.nanoTime();
+    }
+
+    /** Return a one line description of the metrics.
+     *  @return A description of the metrics.
+     */
+    public String toString() {
+        StringBuffer result = new StringBuffer(getName());
+        result.append(": firings=");
+        result.append(getFirings());
+        _appendHistogram(result, "prefire", _prefire);
+        _appendHistogram(result, "fire", _fire);
+        _appendHistogram(result, "postfire", _postfire);
+        _appendHistogram(result, "iterate", _iterate);
+        Iterator<Map.Entry<String, Long>> received = getTokensReceived()
+                .entrySet().iterator();
+        while (received.hasNext()) {
+            Map.Entry<String, Long> entry = received.next();
+            result.append(", " + entry.getKey() + " received "
+                    + entry.getValue());
+        }
+        Iterator<Map.Entry<String, Long>> sent = getTokensSent().entrySet()
+                .iterator();
+        while (sent.hasNext()) {
+            Map.Entry<String, Long> entry = sent.next();
+            result.append(", " + entry.getKey() + " sent " + entry.getValue());
+        }
+        return result.toString();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         package friendly methods          ////
+
+    /** Detach these metrics from the actor, and stop counting the
+     *  tokens sent and received through the ports of the actor.
+     */
+    void dispose() {
+        if (_actor instanceof AtomicActor) {
+            AtomicActor actor = (AtomicActor) _actor;
+            if (actor._actorMetrics == this) {
+                actor._actorMetrics = null;
+            }
+        } else if (_actor instanceof CompositeActor) {
+            CompositeActor actor = (CompositeActor) _actor;
+            if (actor._actorMetrics == this) {
+                actor._actorMetrics = null;
+            }
+        }
+        for (int i = 0; i < _ports.length; i++) {
+            _ports[i].dispose();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         friendly variables                ////
+
+    /** The execution metrics that contain these metrics. */
+    final ExecutionMetrics _owner;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Append a summary of the specified histogram, if it is not empty.
+     */
+    private static void _appendHistogram(StringBuffer buffer, String name,
+            LatencyHistogram histogram) {
+        if (histogram.getCount() > 0L) {
+            buffer.append(", " + name + " {" + histogram + "}");
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The actor. */
+    private Actor _actor;
+
+    /** The number of firings until the next sampled firing. */
+    private int _countdown;
+
+    /** The latencies of fire(). */
+    private LatencyHistogram _fire = new LatencyHistogram();
+
+    /** The number of firings. */
+    private long _firings;
+
+    /** The latencies of iterate(). */
+    private LatencyHistogram _iterate = new LatencyHistogram();
+
+    /** The metrics of the ports. */
+    private PortMetrics[] _ports;
+
+    /** The latencies of postfire(). */
+    private LatencyHistogram _postfire = new LatencyHistogram();
+
+    /** The latencies of prefire(). */
+    private LatencyHistogram _prefire = new LatencyHistogram();
+
+    /** One in this many firings is timed. */
+    private int _samplingInterval;
+
+    /** The start time of a firing that is not timed. */
+    private static final long _UNTIMED = Long.MIN_VALUE;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** The token counts of a port. An instance is attached to the port
+     *  while metrics are being collected. The send(), broadcast() and
+     *  get() methods of the port update counters in the port, and this
+     *  object reports the counts since it was attached or reset.
+     */
+    public static class PortMetrics {
+
+        /** Construct metrics for the specified port, and start counting
+         *  the tokens sent and received through it.
+         *  @param port The port.
+         */
+        PortMetrics(IOPort port) {
+            _port = port;
+            _receivedBase = port._tokensReceived;
+            _sentBase = port._tokensSent;
+            port._portMetrics = this;
+            port._countTokens = true;
+        }
+
+        /** Return the port.
+         *  @return The port.
+         */
+        public IOPort getPort() {
+            return _port;
+        }
+
+        /** Return the number of tokens received through the port.
+         *  @return The number of tokens received.
+         */
+        public long getTokensReceived() {
+            if (_port._portMetrics != this) {
+                return _received;
+            }
+            return _port._tokensReceived - _receivedBase;
+        }
+
+        /** Return the number of tokens sent through the port, counting
+         *  a token broadcast to several channels once for each channel.
+         *  @return The number of tokens sent.
+         */
+        public long getTokensSent() {
+            if (_port._portMetrics != this) {
+                return _sent;
+            }
+            return _port._tokensSent - _sentBase;
+        }
+
+        /** Stop counting the tokens sent and received through the port,
+         *  and keep the counts so far.
+         */
+        void dispose() {
+            if (_port._portMetrics == this) {
+                _received = getTokensReceived();
+                _sent = getTokensSent();
+                _port._countTokens = false;
+                _port._portMetrics = null;
+            }
+        }
+
+        /** Set the counts to zero.
+         */
+        void reset() {
+            _receivedBase = _port._tokensReceived;
+            _sentBase = _port._tokensSent;
+            _received = 0L;
+            _sent = 0L;
+        }
+
+        // The port.
+        private IOPort _port;
+
+        // The number of tokens received when counting stopped.
+        private long _received;
+
+        // The count of tokens received by the port when the count of
+        // this object was zero.
+        private long _receivedBase;
+
+        // The number of tokens sent when counting stopped.
+        private long _sent;
+
+        // The count of tokens sent by the port when the count of this
+        // object was zero.
+        private long _sentBase;
+    }
+}
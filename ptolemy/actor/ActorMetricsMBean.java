@@ -0,0 +1,97 @@
+/* Management interface for the execution metrics of an actor.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor;
+
+import java.util.Map;
+
+///////////////////////////////////////////////////////////////////
+//// ActorMetricsMBean
+
+/**
+ The management interface through which {@link ActorMetrics} is
+ exposed as a JMX standard MBean. Durations are given in nanoseconds.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public interface ActorMetricsMBean {
+
+    /** Return the number of times the actor has been fired.
+     *  @return The number of firings.
+     */
+    public long getFirings();
+
+    /** Return a summary of the latencies of fire().
+     *  @return A description of the latency histogram.
+     */
+    public String getFireLatency();
+
+    /** Return a summary of the latencies of iterate().
+     *  @return A description of the latency histogram.
+     */
+    public String getIterateLatency();
+
+    /** Return the full name of the actor.
+     *  @return The full name of the actor.
+     */
+    public String getName();
+
+    /** Return a summary of the latencies of postfire().
+     *  @return A description of the latency histogram.
+     */
+    public String getPostfireLatency();
+
+    /** Return a summary of the latencies of prefire().
+     *  @return A description of the latency histogram.
+     */
+    public String getPrefireLatency();
+
+    /** Return the number of tokens queued in the receivers of each
+     *  input port of the actor.
+     *  @return A map from port names to queue depths.
+     */
+    public Map<String, Integer> getQueueDepths();
+
+    /** Return the number of tokens received through each port of the
+     *  actor.
+     *  @return A map from port names to token counts.
+     */
+    public Map<String, Long> getTokensReceived();
+
+    /** Return the number of tokens sent through each port of the actor.
+     *  @return A map from port names to token counts.
+     */
+    public Map<String, Long> getTokensSent();
+
+    /** Set all counts to zero and remove all recorded latencies.
+     */
+    public void reset();
+}
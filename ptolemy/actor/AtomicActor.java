@@ -172,6 +172,7 @@ public class AtomicActor extends ComponentEntity implements Actor,
         newObject._causalityInterface = null;
         newObject._causalityInterfaceDirector = null;
         newObject._receiversVersion = -1L;
+        newObject._actorMetrics = null;
         return newObject;
     }
 
@@ -944,6 +945,17 @@ public class AtomicActor extends ComponentEntity implements Actor,
     /** Indicator that a stop has been requested by a call to stop(). */
     protected boolean _stopRequested = false;
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         friendly variables                ////
+    // The following is package friendly so ExecutionMetrics can access it.
+
+    /** The execution metrics of this actor, or null if execution
+     *  metrics are not being collected. This is not volatile, so that
+     *  reading it costs no more than reading any other field. It is set
+     *  when the directors are preinitialized, before the actor is fired.
+     */
+    transient ActorMetrics _actorMetrics;
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
     // Cached lists of input and output ports.
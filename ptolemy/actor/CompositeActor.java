@@ -283,6 +283,7 @@ public class CompositeActor extends CompositeEntity implements Actor,
         _piggybacks = oldPiggybacks;
 
         newObject._actorFiringListeners = null;
+        newObject._actorMetrics = null;
         newObject._notifyingActorFiring = false;
         newObject._causalityInterface = null;
         newObject._derivedPiggybacks = null;
@@ -2793,6 +2794,17 @@ public class CompositeActor extends CompositeEntity implements Actor,
     /** Indicator that a stop has been requested by a call to stop(). */
     protected boolean _stopRequested = false;
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         friendly variables                ////
+    // The following is package friendly so ExecutionMetrics can access it.
+
+    /** The execution metrics of this actor, or null if execution
+     *  metrics are not being collected. This is not volatile, so that
+     *  reading it costs no more than reading any other field. It is set
+     *  when the directors are preinitialized, before the actor is fired.
+     */
+    transient ActorMetrics _actorMetrics;
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
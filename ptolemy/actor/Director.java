@@ -245,6 +245,22 @@ public class Director extends Attribute implements Executable {
         super.attributeChanged(attribute);
     }
 
+    /** Clone the object into the specified workspace. The new object is
+     *  <i>not</i> added to the directory of that workspace (you must do this
+     *  yourself if you want it there).
+     *  @param workspace The workspace for the cloned object.
+     *  @exception CloneNotSupportedException Not thrown in this base class
+     *  @return The new Attribute.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        Director newObject = (Director) super.clone(workspace);
+        // The cached zero time refers to the director that
+        // provides its time resolution.
+        newObject._zeroTime = new Time(newObject);
+        newObject._metrics = null;
+        return newObject;
+    }
+
     /** Create the schedule for this director, if necessary.
      *  In this base class nothing is done.
      *  @exception IllegalActionException If the schedule can't be created.
@@ -313,6 +329,7 @@ public class Director extends Attribute implements Executable {
             Iterator<?> actors = ((CompositeActor) container).deepEntityList()
                     .iterator();
             int iterationCount = 1;
+            ExecutionMetrics executionMetrics = _getExecutionMetrics();
 
             while (actors.hasNext() && !_stopRequested) {
                 Actor actor = (Actor) actors.next();
@@ -322,7 +339,14 @@ public class Director extends Attribute implements Executable {
                             FiringEvent.BEFORE_ITERATE, iterationCount));
                 }
 
-                if (actor.iterate(1) == Executable.STOP_ITERATING) {
+                int returnValue;
+                if (executionMetrics == null) {
+                    returnValue = actor.iterate(1);
+                } else {
+                    returnValue = _iterate(executionMetrics, actor, 1);
+                }
+
+                if (returnValue == Executable.STOP_ITERATING) {
                     if (_debugging) {
                         _debug("Actor requests halt: "
                                 + ((Nameable) actor).getFullName());
@@ -446,7 +470,7 @@ public class Director extends Attribute implements Executable {
         // then no problem.
         // All derived classes of Director for which the fireAt() method is
         // useful, should override this behavior.
-        return new Time(this, Double.NEGATIVE_INFINITY);
+        return Time.NEGATIVE_INFINITY;
     }
 
     /** Request a firing of the given actor at the current model time.
@@ -580,7 +604,7 @@ public class Director extends Attribute implements Executable {
                         .getDirector().getModelTime();
             }
         }
-        return new Time(this);
+        return _zeroTime;
     }
 
     /** Get the stop time of the model. This base class returns
@@ -595,7 +619,7 @@ public class Director extends Attribute implements Executable {
      *   is invalid.
      */
     public Time getModelStopTime() throws IllegalActionException {
-        return new Time(this, Double.POSITIVE_INFINITY);
+        return Time.POSITIVE_INFINITY;
     }
 
     /** Return the current time object of the model being executed by this
@@ -1003,10 +1027,17 @@ public class Director extends Attribute implements Executable {
         setModelTimeToStartTime();
         _stopRequested = false;
         _finishRequested = false;
+        _metrics = null;
 
         Nameable container = getContainer();
         // Preinitialize all the contained actors.
         if (container instanceof CompositeActor) {
+            // Collect execution metrics if the manager has them enabled.
+            Manager manager = ((CompositeActor) container).getManager();
+            if (manager != null) {
+                _metrics = manager.getExecutionMetrics();
+            }
+
             // Populate any LazyTypedComposites.
             // Needed by $PTII/ptolemy/cg/lib/test/auto/ModularCodeGen4.xml
             Iterator entities = ((CompositeActor) toplevel()).entityList(
@@ -1027,6 +1058,9 @@ public class Director extends Attribute implements Executable {
                             ((NamedObj) actor).getFullName());
                 }
                 preinitialize(actor);
+                if (_metrics != null) {
+                    _metrics.getActorMetrics(actor);
+                }
             }
         }
 
@@ -1520,7 +1554,41 @@ public class Director extends Attribute implements Executable {
                 return result;
             }
         }
-        return new Time(this, Double.NEGATIVE_INFINITY);
+        return Time.NEGATIVE_INFINITY;
+    }
+
+    /** Return the execution metrics of the specified actor, or null
+     *  if the manager was not collecting execution metrics when this
+     *  director was preinitialized. Directors that fire actors
+     *  should record the firings in the returned metrics, if any.
+     *  @param actor The actor.
+     *  @return The metrics of the actor, or null.
+     *  @see ActorMetrics
+     */
+    protected ActorMetrics _getActorMetrics(Actor actor) {
+        ExecutionMetrics metrics = _metrics;
+        if (metrics == null) {
+            return null;
+        }
+        return metrics.getActorMetrics(actor);
+    }
+
+    /** Return the execution metrics of the manager, or null if the
+     *  manager was not collecting execution metrics when this director
+     *  was preinitialized, or has stopped collecting them. Directors
+     *  that fire many actors in an iteration should call this once per
+     *  iteration, and fire the actors without instrumentation if it
+     *  returns null, so that firings cost nothing extra when metrics
+     *  are disabled.
+     *  @return The execution metrics, or null.
+     *  @see #_iterate(ExecutionMetrics, Actor, int)
+     */
+    protected ExecutionMetrics _getExecutionMetrics() {
+        ExecutionMetrics metrics = _metrics;
+        if (metrics == null || metrics.isDisposed()) {
+            return null;
+        }
+        return metrics;
     }
 
     /** Return true if this director is embedded inside an opaque composite
@@ -1554,6 +1622,28 @@ public class Director extends Attribute implements Executable {
         return true;
     }
 
+    /** Invoke iterate() on the specified actor and record the
+     *  iterations in its execution metrics, if metrics have not been
+     *  disabled since this director was preinitialized.
+     *  @param metrics The execution metrics returned by
+     *   _getExecutionMetrics(), which must not be null.
+     *  @param actor The actor.
+     *  @param count The number of iterations.
+     *  @return The value returned by iterate().
+     *  @exception IllegalActionException If iterate() throws it.
+     */
+    protected int _iterate(ExecutionMetrics metrics, Actor actor, int count)
+            throws IllegalActionException {
+        ActorMetrics actorMetrics = metrics.getActorMetrics(actor);
+        if (actorMetrics == null) {
+            return actor.iterate(count);
+        }
+        long time = actorMetrics.startFiring();
+        int result = actor.iterate(count);
+        actorMetrics.recordIterate(time, count);
+        return result;
+    }
+
     /** Transfer at most one data token from the given input port of
      *  the container to the ports it is connected to on the inside.
      *  This method delegates the operation to the IOPort, so that the
@@ -1680,6 +1770,12 @@ public class Director extends Attribute implements Executable {
     /** Indicator that a stop has been requested by a call to stop(). */
     protected boolean _stopRequested = false;
 
+    /** A time object with value zero. Since time objects are immutable,
+     *  this can be used wherever zero time is needed instead of
+     *  creating a new time object.
+     */
+    protected Time _zeroTime;
+
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
     // Add an XML graphic as a hint to UIs for rendering the director.
@@ -1716,6 +1812,8 @@ public class Director extends Attribute implements Executable {
 
             // Make sure getCurrentTime() never returns null.
             _currentTime = Time.NEGATIVE_INFINITY;
+
+            _zeroTime = new Time(this);
         } catch (Throwable throwable) {
             // This is the only place to create
             // the timeResolution parameter, no exception should ever
@@ -1734,6 +1832,11 @@ public class Director extends Attribute implements Executable {
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
+    /** The execution metrics of the manager, or null if the manager
+     *  is not collecting metrics.
+     */
+    private ExecutionMetrics _metrics;
+
     /** Time resolution cache, with a reasonable default value. */
     private double _timeResolution = 1E-10;
 
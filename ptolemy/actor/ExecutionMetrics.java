@@ -0,0 +1,340 @@
+/* Execution metrics of a model.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import ptolemy.kernel.util.NamedObj;
+
+///////////////////////////////////////////////////////////////////
+//// ExecutionMetrics
+
+/**
+ The execution metrics of the actors of a model. An instance of this
+ class is created by {@link Manager#enableExecutionMetrics(boolean)},
+ and is returned by {@link Manager#getExecutionMetrics()} until metrics
+ are disabled again. Directors obtain the instance when they are
+ preinitialized and record each firing of each actor in the
+ {@link ActorMetrics} of that actor, so enabling metrics takes effect
+ at the next execution of the model.
+ <p>
+ The metrics can be read while the model executes, either by calling
+ the methods of this class and of {@link ActorMetrics}, or through JMX.
+ When enabled, the manager registers this object and the metrics of
+ each actor with the platform MBean server under the domain
+ <code>ptolemy.actor</code>, with keys <i>type</i> (ExecutionMetrics
+ or ActorMetrics), <i>model</i>, <i>id</i> (which distinguishes
+ models with the same name), and, for an actor, <i>name</i>, the
+ full name of the actor. Disabling metrics unregisters them.
+ <p>
+ The overhead budget is less than 2% of the execution time of the
+ SDF and DE benchmark models in
+ <code>ptolemy.actor.test.ExecutionMetricsBenchmark</code>.
+ When metrics are disabled, directors that fire a schedule, such as
+ SDF, test for metrics once per iteration and then fire the actors
+ exactly as they would without instrumentation. Other directors, such
+ as DE, and the send(), broadcast() and get() methods of a port, read
+ a field that is not volatile and test it for null.
+ When enabled, each call to send(), broadcast() or get() adds an
+ unsynchronized addition to a counter that belongs to the port, so
+ threads firing different actors never contend. Reading the clock is
+ the most expensive part of the instrumentation, so only a sample of
+ the firings is timed. Directors that fire a schedule time the firings
+ of one in every {@link #getSamplingInterval()} iterations, and count
+ the firings of the other iterations once per iteration, so their
+ counts may lag the execution until the next timed iteration or until
+ the director is wrapped up. Other directors add to a counter of the
+ actor on each firing, and time one in every
+ {@link #getSamplingInterval()} firings of the actor.
+ This is much less than the cost of the {@link ActorFiringListener}
+ mechanism, which constructs an event for each phase of each firing.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class ExecutionMetrics implements ExecutionMetricsMBean {
+
+    /** Construct metrics for the model managed by the specified manager.
+     *  @param manager The manager.
+     */
+    ExecutionMetrics(Manager manager) {
+        _manager = manager;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public variables                  ////
+
+    /** The default sampling interval. */
+    public static final int DEFAULT_SAMPLING_INTERVAL = 256;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the metrics of the specified actor, creating them if
+     *  necessary, or null if metrics have been disabled.
+     *  @param actor The actor.
+     *  @return The metrics of the actor, or null.
+     */
+    public ActorMetrics getActorMetrics(Actor actor) {
+        // Look first in the actor, to avoid a hash table lookup on
+        // each firing. dispose() detaches the metrics from the actor,
+        // so this need not read _disposed.
+        ActorMetrics result = null;
+        if (actor instanceof AtomicActor) {
+            result = ((AtomicActor) actor)._actorMetrics;
+        } else if (actor instanceof CompositeActor) {
+            result = ((CompositeActor) actor)._actorMetrics;
+        }
+        if (result != null && result._owner == this) {
+            return result;
+        }
+        synchronized (this) {
+            if (_disposed) {
+                return null;
+            }
+            result = _actors.get(actor);
+            if (result == null) {
+                result = new ActorMetrics(actor, this);
+                _actors.put(actor, result);
+                _register(result, _actorObjectName(result));
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of actors for which metrics are recorded.
+     *  @return The number of actors.
+     */
+    public int getActorCount() {
+        return _actors.size();
+    }
+
+    /** Return the metrics of all actors that have been fired, sorted by
+     *  the full names of the actors.
+     *  @return A list of instances of ActorMetrics.
+     */
+    public List<ActorMetrics> getActorMetricsList() {
+        List<ActorMetrics> result = new ArrayList<ActorMetrics>(_actors
+                .values());
+        Collections.sort(result, new Comparator<ActorMetrics>() {
+            public int compare(ActorMetrics metrics1, ActorMetrics metrics2) {
+                return metrics1.getName().compareTo(metrics2.getName());
+            }
+        });
+        return result;
+    }
+
+    /** Return a report of the metrics of all actors, one line per actor,
+     *  sorted by the full names of the actors.
+     *  @return The report.
+     */
+    public String getReport() {
+        StringBuffer result = new StringBuffer();
+        Iterator<ActorMetrics> metrics = getActorMetricsList().iterator();
+        while (metrics.hasNext()) {
+            result.append(metrics.next().toString());
+            result.append("\n");
+        }
+        return result.toString();
+    }
+
+    /** Return the sampling interval, the number of firings of an actor
+     *  per firing whose latencies are recorded.
+     *  @return The sampling interval.
+     *  @see #setSamplingInterval(int)
+     */
+    public int getSamplingInterval() {
+        return _samplingInterval;
+    }
+
+    /** Return the total number of firings of all actors.
+     *  @return The total number of firings.
+     */
+    public long getTotalFirings() {
+        long result = 0L;
+        for (ActorMetrics metrics : _actors.values()) {
+            result += metrics.getFirings();
+        }
+        return result;
+    }
+
+    /** Set all counts to zero and remove all recorded latencies.
+     */
+    public void reset() {
+        for (ActorMetrics metrics : _actors.values()) {
+            metrics.reset();
+        }
+    }
+
+    /** Set the sampling interval, the number of firings of an actor
+     *  per firing whose latencies are recorded, or for directors that
+     *  fire a schedule, the number of iterations per iteration whose
+     *  firings are timed. All firings are counted regardless of the
+     *  sampling interval. Timing a firing takes two calls to
+     *  System.nanoTime() or more, which for fine-grained actors can be
+     *  a significant fraction of the cost of the firing, so the
+     *  default is {@link #DEFAULT_SAMPLING_INTERVAL}. The interval
+     *  applies to actors whose metrics are created after this method
+     *  is called, so it should be set before the model is executed.
+     *  @param interval The sampling interval, where 1 times every firing.
+     *  @see #getSamplingInterval()
+     */
+    public void setSamplingInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException(
+                    "The sampling interval must be at least one: " + interval);
+        }
+        _samplingInterval = interval;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         package friendly methods          ////
+
+    /** Stop recording metrics, and unregister the MBeans.
+     */
+    synchronized void dispose() {
+        _disposed = true;
+        for (ActorMetrics metrics : _actors.values()) {
+            metrics.dispose();
+        }
+        if (_server != null) {
+            for (ObjectName name : _registered) {
+                try {
+                    _server.unregisterMBean(name);
+                } catch (JMException ex) {
+                    // Already unregistered by someone else.
+                }
+            }
+            _registered.clear();
+        }
+    }
+
+    /** Return true if dispose() has been called.
+     *  @return True if metrics are no longer being recorded.
+     */
+    boolean isDisposed() {
+        return _disposed;
+    }
+
+    /** Register this object with the platform MBean server. If the
+     *  server is not available, then metrics are still recorded but
+     *  are not visible through JMX.
+     */
+    synchronized void register() {
+        try {
+            _server = ManagementFactory.getPlatformMBeanServer();
+        } catch (SecurityException ex) {
+            // Probably running in an applet or sandbox.
+            return;
+        }
+        _register(this, _objectName("ExecutionMetrics", null));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return the object name of the specified actor metrics.
+     */
+    private ObjectName _actorObjectName(ActorMetrics metrics) {
+        return _objectName("ActorMetrics", metrics.getName());
+    }
+
+    /** Return an object name with the specified type and actor name,
+     *  or null if the name is malformed.
+     */
+    private ObjectName _objectName(String type, String name) {
+        NamedObj container = _manager.getContainer();
+        String model = container == null ? "" : container.getName();
+        StringBuffer result = new StringBuffer("ptolemy.actor:type=");
+        result.append(type);
+        result.append(",model=");
+        result.append(ObjectName.quote(model));
+        result.append(",id=");
+        result.append(Integer.toHexString(System.identityHashCode(_manager)));
+        if (name != null) {
+            result.append(",name=");
+            result.append(ObjectName.quote(name));
+        }
+        try {
+            return new ObjectName(result.toString());
+        } catch (JMException ex) {
+            return null;
+        }
+    }
+
+    /** Register the specified MBean under the specified name, if there
+     *  is a server and the name is not null. A failure to register is
+     *  ignored, since it affects only the visibility of the metrics.
+     */
+    private void _register(Object mbean, ObjectName name) {
+        if (_server == null || name == null) {
+            return;
+        }
+        try {
+            _server.registerMBean(mbean, name);
+            _registered.add(name);
+        } catch (JMException ex) {
+            // Ignore. The metrics are still available through
+            // the methods of this class.
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The metrics of the actors. */
+    private ConcurrentHashMap<Actor, ActorMetrics> _actors = new ConcurrentHashMap<Actor, ActorMetrics>();
+
+    /** True if metrics have been disabled. */
+    private volatile boolean _disposed;
+
+    /** The manager. */
+    private Manager _manager;
+
+    /** The names under which MBeans have been registered. */
+    private List<ObjectName> _registered = new ArrayList<ObjectName>();
+
+    /** The sampling interval. */
+    private volatile int _samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+
+    /** The MBean server, or null if the MBeans are not registered. */
+    private MBeanServer _server;
+}
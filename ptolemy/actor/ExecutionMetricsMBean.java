@@ -0,0 +1,63 @@
+/* Management interface for the execution metrics of a model.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor;
+
+///////////////////////////////////////////////////////////////////
+//// ExecutionMetricsMBean
+
+/**
+ The management interface through which {@link ExecutionMetrics} is
+ exposed as a JMX standard MBean.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public interface ExecutionMetricsMBean {
+
+    /** Return the number of actors for which metrics are recorded.
+     *  @return The number of actors.
+     */
+    public int getActorCount();
+
+    /** Return a report of the metrics of all actors, one line per actor.
+     *  @return The report.
+     */
+    public String getReport();
+
+    /** Return the total number of firings of all actors.
+     *  @return The total number of firings.
+     */
+    public long getTotalFirings();
+
+    /** Set all counts to zero and remove all recorded latencies.
+     */
+    public void reset();
+}
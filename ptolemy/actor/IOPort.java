@@ -304,15 +304,12 @@ public class IOPort extends ComponentPort {
         }
 
         try {
-            try {
-                _workspace.getReadAccess();
-                farReceivers = getRemoteReceivers();
+            // NOTE: getRemoteReceivers() gets read access on the workspace
+            // only if it cannot read its cached receivers optimistically.
+            farReceivers = getRemoteReceivers();
 
-                if (farReceivers == null) {
-                    return;
-                }
-            } finally {
-                _workspace.doneReading();
+            if (farReceivers == null) {
+                return;
             }
 
             // NOTE: This does not call send() here, because send()
@@ -328,6 +325,10 @@ public class IOPort extends ComponentPort {
                     farReceivers[i][0].putToAll(token, farReceivers[i]);
                 }
             }
+
+            if (_countTokens) {
+                _tokensSent += farReceivers.length;
+            }
         } finally {
             if (_hasPortEventListeners) {
                 _notifyPortEventListeners(new IOPortEvent(this,
@@ -380,15 +381,12 @@ public class IOPort extends ComponentPort {
         }
 
         try {
-            try {
-                _workspace.getReadAccess();
-                farReceivers = getRemoteReceivers();
+            // NOTE: getRemoteReceivers() gets read access on the workspace
+            // only if it cannot read its cached receivers optimistically.
+            farReceivers = getRemoteReceivers();
 
-                if (farReceivers == null) {
-                    return;
-                }
-            } finally {
-                _workspace.doneReading();
+            if (farReceivers == null) {
+                return;
             }
 
             // NOTE: This does not call send() here, because send()
@@ -405,6 +403,10 @@ public class IOPort extends ComponentPort {
                             farReceivers[i]);
                 }
             }
+
+            if (_countTokens) {
+                _tokensSent += farReceivers.length * vectorLength;
+            }
         } finally {
             if (_hasPortEventListeners) {
                 _notifyPortEventListeners(new IOPortEvent(this,
@@ -509,6 +511,10 @@ public class IOPort extends ComponentPort {
     public Object clone(Workspace workspace) throws CloneNotSupportedException {
         IOPort newObject = (IOPort) super.clone(workspace);
         newObject._localReceiversTable = null;
+        newObject._countTokens = false;
+        newObject._portMetrics = null;
+        newObject._tokensReceived = 0L;
+        newObject._tokensSent = 0L;
         newObject._insideInputVersion = -1;
         newObject._insideOutputVersion = -1;
         newObject._width = 0;
@@ -880,31 +886,25 @@ public class IOPort extends ComponentPort {
                     IOPortEvent.GET_BEGIN, channelIndex, true, null));
         }
 
-        try {
-            _workspace.getReadAccess();
+        // NOTE: getReceivers() gets read access on the workspace
+        // only if it cannot read its cached receivers optimistically.
+        localReceivers = getReceivers();
 
-            // Note that the getReceivers() method might throw an
-            // IllegalActionException if there's no director.
-            localReceivers = getReceivers();
-
-            if (channelIndex >= localReceivers.length) {
-                if (!isInput()) {
-                    throw new IllegalActionException(this,
-                            "Port is not an input port!");
-                } else {
-                    throw new IllegalActionException(this, "Channel index "
-                            + channelIndex
-                            + " is out of range, because width is only "
-                            + getWidth() + ".");
-                }
+        if (channelIndex >= localReceivers.length) {
+            if (!isInput()) {
+                throw new IllegalActionException(this,
+                        "Port is not an input port!");
+            } else {
+                throw new IllegalActionException(this, "Channel index "
+                        + channelIndex
+                        + " is out of range, because width is only "
+                        + getWidth() + ".");
             }
+        }
 
-            if (localReceivers[channelIndex] == null) {
-                throw new NoTokenException(this, "No receiver at index: "
-                        + channelIndex + ".");
-            }
-        } finally {
-            _workspace.doneReading();
+        if (localReceivers[channelIndex] == null) {
+            throw new NoTokenException(this, "No receiver at index: "
+                    + channelIndex + ".");
         }
 
         Token token = null;
@@ -925,6 +925,10 @@ public class IOPort extends ComponentPort {
             throw new NoTokenException(this, "No token to return.");
         }
 
+        if (_countTokens) {
+            _tokensReceived++;
+        }
+
         if (_debugging) {
             _debug("get from channel " + channelIndex + ": " + token);
         }
@@ -972,15 +976,9 @@ public class IOPort extends ComponentPort {
                     vectorLength));
         }
 
-        try {
-            _workspace.getReadAccess();
-
-            // Note that the getReceivers() method might throw an
-            // IllegalActionException if there's no director.
-            localReceivers = getReceivers();
-        } finally {
-            _workspace.doneReading();
-        }
+        // NOTE: getReceivers() gets read access on the workspace
+        // only if it cannot read its cached receivers optimistically.
+        localReceivers = getReceivers();
 
         if (channelIndex >= localReceivers.length) {
             // NOTE: This may be thrown if the port is not an input port.
@@ -1015,6 +1013,10 @@ public class IOPort extends ComponentPort {
             index++;
         }
 
+        if (_countTokens) {
+            _tokensReceived += vectorLength;
+        }
+
         if (_debugging) {
             _debug("get vector from channel " + channelIndex + " of length "
                     + vectorLength);
@@ -1415,6 +1417,10 @@ public class IOPort extends ComponentPort {
      *  @return The local receivers, or an empty array if there are none.
      */
     public Receiver[][] getReceivers() {
+        Receiver[][] result = _optimisticReceivers();
+        if (result != null) {
+            return result;
+        }
         try {
             _workspace.getReadAccess();
 
@@ -1435,7 +1441,10 @@ public class IOPort extends ComponentPort {
                     return _EMPTY_RECEIVER_ARRAY;
                 }
 
-                _localReceivers = new Receiver[width][0];
+                // NOTE: Fill in a new array and set the cache afterwards,
+                // since the cache is read without read access by
+                // _optimisticReceivers().
+                Receiver[][] localReceivers = new Receiver[width][0];
 
                 int index = 0;
                 Iterator<?> relations = linkedRelationList().iterator();
@@ -1467,14 +1476,15 @@ public class IOPort extends ComponentPort {
 
                         if (receiverRelation != null) {
                             for (int i = 0; i < receiverRelation.length; i++) {
-                                _localReceivers[index++] = receiverRelation[i];
+                                localReceivers[index++] = receiverRelation[i];
                             }
                         }
                     }
                 }
 
+                _localReceivers = localReceivers;
                 _localReceiversVersion = _workspace.getVersion();
-                return _localReceivers;
+                return localReceivers;
             } else {
                 // Transparent port.
                 return deepGetReceivers();
@@ -1575,6 +1585,10 @@ public class IOPort extends ComponentPort {
      * @exception IllegalActionException
      */
     public Receiver[][] getRemoteReceivers() throws IllegalActionException {
+        Receiver[][] result = _optimisticRemoteReceivers();
+        if (result != null) {
+            return result;
+        }
         try {
             _workspace.getReadAccess();
 
@@ -1638,9 +1652,11 @@ public class IOPort extends ComponentPort {
             }
 
             // For an opaque port, cache the result.
+            // NOTE: Set the version after the receivers, which are read
+            // without read access by _optimisticRemoteReceivers().
             if (isOpaque()) {
-                _farReceiversVersion = _workspace.getVersion();
                 _farReceivers = farReceivers;
+                _farReceiversVersion = _workspace.getVersion();
             }
 
             return farReceivers;
@@ -1762,6 +1778,13 @@ public class IOPort extends ComponentPort {
      */
     private int _getWidth(boolean createReceivers)
             throws IllegalActionException {
+        long stamp = _workspace.tryOptimisticRead();
+        if ((stamp != 0L) && (_widthVersion == _workspace.getVersion())) {
+            int width = _width;
+            if (_workspace.validate(stamp)) {
+                return width;
+            }
+        }
         try {
             _workspace.getReadAccess();
 
@@ -2798,20 +2821,14 @@ public class IOPort extends ComponentPort {
         }
 
         try {
-            try {
-                _workspace.getReadAccess();
-
-                // Note that the getRemoteReceivers() method doesn't throw
-                // any non-runtime exception.
-                farReceivers = getRemoteReceivers();
+            // NOTE: getRemoteReceivers() gets read access on the workspace
+            // only if it cannot read its cached receivers optimistically.
+            farReceivers = getRemoteReceivers();
 
-                if ((farReceivers == null)
-                        || (farReceivers.length <= channelIndex)
-                        || (farReceivers[channelIndex] == null)) {
-                    return;
-                }
-            } finally {
-                _workspace.doneReading();
+            if ((farReceivers == null)
+                    || (farReceivers.length <= channelIndex)
+                    || (farReceivers[channelIndex] == null)) {
+                return;
             }
 
             if (farReceivers[channelIndex].length > 0) {
@@ -2820,6 +2837,10 @@ public class IOPort extends ComponentPort {
                 farReceivers[channelIndex][0].putToAll(token,
                         farReceivers[channelIndex]);
             }
+
+            if (_countTokens) {
+                _tokensSent++;
+            }
         } finally {
             if (_hasPortEventListeners) {
                 _notifyPortEventListeners(new IOPortEvent(this,
@@ -2873,20 +2894,14 @@ public class IOPort extends ComponentPort {
         }
 
         try {
-            try {
-                _workspace.getReadAccess();
-
-                // Note that the getRemoteReceivers() method doesn't throw
-                // any non-runtime exception.
-                farReceivers = getRemoteReceivers();
+            // NOTE: getRemoteReceivers() gets read access on the workspace
+            // only if it cannot read its cached receivers optimistically.
+            farReceivers = getRemoteReceivers();
 
-                if ((farReceivers == null)
-                        || (farReceivers.length <= channelIndex)
-                        || (farReceivers[channelIndex] == null)) {
-                    return;
-                }
-            } finally {
-                _workspace.doneReading();
+            if ((farReceivers == null)
+                    || (farReceivers.length <= channelIndex)
+                    || (farReceivers[channelIndex] == null)) {
+                return;
             }
 
             if (farReceivers[channelIndex].length > 0) {
@@ -2895,6 +2910,10 @@ public class IOPort extends ComponentPort {
                 farReceivers[channelIndex][0].putArrayToAll(tokenArray,
                         vectorLength, farReceivers[channelIndex]);
             }
+
+            if (_countTokens) {
+                _tokensSent += vectorLength;
+            }
         } finally {
             if (_hasPortEventListeners) {
                 _notifyPortEventListeners(new IOPortEvent(this,
@@ -4659,6 +4678,76 @@ public class IOPort extends ComponentPort {
         }
     }
 
+    /** Return the cached local receivers if they are valid for the
+     *  current version of the workspace and no thread has write access,
+     *  and otherwise return null. This method does not get read access
+     *  on the workspace, so it does not contend with other threads that
+     *  send and get tokens.
+     *  @return The local receivers, or null if they have to be read with
+     *   read access.
+     */
+    private Receiver[][] _optimisticReceivers() {
+        long stamp = _workspace.tryOptimisticRead();
+        if ((stamp == 0L)
+                || (_localReceiversVersion != _workspace.getVersion())) {
+            return null;
+        }
+        Receiver[][] result = _localReceivers;
+        if (!_workspace.validate(stamp)) {
+            return null;
+        }
+        return result;
+    }
+
+    /** Return the cached remote receivers if they are valid for the
+     *  current version of the workspace and no thread has write access,
+     *  and otherwise return null. This method does not get read access
+     *  on the workspace, so it does not contend with other threads that
+     *  send and get tokens.
+     *  @return The remote receivers, or null if they have to be read with
+     *   read access.
+     */
+    private Receiver[][] _optimisticRemoteReceivers() {
+        long stamp = _workspace.tryOptimisticRead();
+        if ((stamp == 0L)
+                || (_farReceiversVersion != _workspace.getVersion())) {
+            return null;
+        }
+        Receiver[][] result = _farReceivers;
+        if (!_workspace.validate(stamp)) {
+            return null;
+        }
+        return result;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         friendly variables                ////
+    // The following is package friendly so ActorMetrics can access it.
+
+    /** True if the tokens sent and received through this port are
+     *  being counted. This is not volatile, so that testing it costs
+     *  no more than testing any other field. It is set when the
+     *  directors are preinitialized, before tokens are sent.
+     */
+    transient boolean _countTokens;
+
+    /** The metrics that read the token counts of this port, or null
+     *  if execution metrics are not being collected.
+     */
+    transient ActorMetrics.PortMetrics _portMetrics;
+
+    /** The number of tokens received through this port while tokens
+     *  were being counted. The counts are kept in the port rather than
+     *  in the metrics, so that counting a token does not have to
+     *  dereference another object.
+     */
+    transient long _tokensReceived;
+
+    /** The number of tokens sent through this port while tokens were
+     *  being counted.
+     */
+    transient long _tokensSent;
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
@@ -4713,7 +4802,7 @@ public class IOPort extends ComponentPort {
 
     // The workspace version number on the last update of the _width.
     // 'transient' means that the variable will not be serialized.
-    private transient long _widthVersion = -1;
+    private transient volatile long _widthVersion = -1;
 
     // The cached inside width of the port, which is the sum of the
     // widths of the inside relations.  The default 0 because
@@ -4730,7 +4819,7 @@ public class IOPort extends ComponentPort {
     // 'transient' means that the variable will not be serialized.
     private transient Receiver[][] _farReceivers;
 
-    private transient long _farReceiversVersion = -1;
+    private transient volatile long _farReceiversVersion = -1;
 
     // A cache of the local Receivers, and the version.
     // 'transient' means that the variable will not be serialized.
@@ -4739,7 +4828,7 @@ public class IOPort extends ComponentPort {
     // Lists of local receivers, indexed by relation. 
     private HashMap<IORelation, List<Receiver[][]>> _localReceiversTable;
 
-    private transient long _localReceiversVersion = -1;
+    private transient volatile long _localReceiversVersion = -1;
 
     // A cache of the local Receivers, and the version.
     // 'transient' means that the variable will not be serialized.
@@ -276,6 +276,28 @@ public class Manager extends NamedObj implements Runnable {
         _executionListeners.add(new WeakReference<ExecutionListener>(listener));
     }
 
+    /** Enable or disable the collection of execution metrics. When
+     *  enabled, directors record the firings of each actor and the
+     *  tokens sent and received by its ports, starting with the next
+     *  execution of the model, and the metrics are exposed through JMX.
+     *  When disabled, the metrics are discarded and unregistered.
+     *  Metrics are disabled by default.
+     *
+     *  @param enabled Whether execution metrics are collected.
+     *  @see #getExecutionMetrics()
+     */
+    public synchronized void enableExecutionMetrics(boolean enabled) {
+        if (enabled) {
+            if (_executionMetrics == null) {
+                _executionMetrics = new ExecutionMetrics(this);
+                _executionMetrics.register();
+            }
+        } else if (_executionMetrics != null) {
+            _executionMetrics.dispose();
+            _executionMetrics = null;
+        }
+    }
+
     /** Enable or disable printing time and memory usage at the end of model
      *  execution.
      *
@@ -566,6 +588,15 @@ public class Manager extends NamedObj implements Runnable {
         return _container;
     }
 
+    /** Return the execution metrics, or null if execution metrics
+     *  are not enabled.
+     *  @return The execution metrics, or null.
+     *  @see #enableExecutionMetrics(boolean)
+     */
+    public ExecutionMetrics getExecutionMetrics() {
+        return _executionMetrics;
+    }
+
     /** Return the iteration count, which is the number of iterations
      *  that have been started (but not necessarily completed).
      *  @return The number of iterations started.
@@ -581,6 +612,18 @@ public class Manager extends NamedObj implements Runnable {
         return _state;
     }
 
+    /** Return the number of times that resolveTypes() has been called.
+     *  Directors that record the resolved types of ports can compare
+     *  this number with its value when they recorded them to find out
+     *  whether the types may have changed, since a change of types,
+     *  for example because a parameter has a new type, does not
+     *  increment the version of the workspace.
+     *  @return The number of type resolutions.
+     */
+    public long getTypeResolutionCount() {
+        return _typeResolutionCount;
+    }
+
     /** Get the execution identifier object for a throwable.
      *
      * <p> An execution identifier is an object given to the Manager
@@ -657,6 +700,7 @@ public class Manager extends NamedObj implements Runnable {
      */
     public void invalidateResolvedTypes() {
         _typesResolved = false;
+        _resolvedTypesVersion = -1;
     }
 
     /** Return true if exitAfterWrapup() was called.
@@ -888,6 +932,8 @@ public class Manager extends NamedObj implements Runnable {
 
             _setState(PREINITIALIZING);
 
+            boolean reuseResolvedTypes = _reuseResolvedTypes;
+            _reuseResolvedTypes = false;
             _exitAfterWrapup = false;
             _pauseRequested = false;
             _typesResolved = false;
@@ -939,9 +985,15 @@ public class Manager extends NamedObj implements Runnable {
                 _inferWidths();
             }
 
-            resolveTypes();
+            // Resolve types unless reuseResolvedTypes() was called and
+            // the model has not changed since they were last resolved.
+            if (!reuseResolvedTypes
+                    || _resolvedTypesVersion != _workspace.getVersion()) {
+                resolveTypes();
+            }
             _typesResolved = true;
             _preinitializeVersion = _workspace.getVersion();
+            _resolvedTypesVersion = _preinitializeVersion;
         } finally {
             // Clear the preinitialization analyses.
             if (_nameToAnalysis != null) {
@@ -1059,6 +1111,8 @@ public class Manager extends NamedObj implements Runnable {
 
             TypedCompositeActor.resolveTypes((TypedCompositeActor) _container);
         } finally {
+            // Even a failed resolution may have changed some types.
+            _typeResolutionCount++;
             _workspace.doneReading();
         }
     }
@@ -1099,6 +1153,22 @@ public class Manager extends NamedObj implements Runnable {
         }
     }
 
+    /** Indicate that the types resolved during the previous execution
+     *  remain valid for the next execution.  This is intended for
+     *  applications that run a model many times changing only the
+     *  values of parameters, and that know that the types of the
+     *  parameters did not change.  On the next call to
+     *  preinitializeAndResolveTypes(), type resolution is skipped if
+     *  the workspace version is the same as when the types were last
+     *  resolved, so any change to the structure of the model,
+     *  including one made during preinitialization, still causes the
+     *  types to be resolved.  This only applies to the next execution.
+     *  @see #invalidateResolvedTypes()
+     */
+    public void reuseResolvedTypes() {
+        _reuseResolvedTypes = true;
+    }
+
     /** Execute the model, catching all exceptions. Use this method to
      *  execute the model within the calling thread, but to not throw
      *  exceptions.  Instead, the exception is handled using the
@@ -1489,6 +1559,9 @@ public class Manager extends NamedObj implements Runnable {
     // Listeners for execution events. This list has weak references.
     private List<WeakReference<ExecutionListener>> _executionListeners;
 
+    // The execution metrics, or null if they are not enabled.
+    private volatile ExecutionMetrics _executionMetrics;
+
     // Set to true if we should exit after wrapup().
     private boolean _exitAfterWrapup = false;
 
@@ -1510,9 +1583,16 @@ public class Manager extends NamedObj implements Runnable {
     // Whether time and memory usage are printed at the end of model execution.
     private boolean _printTimeAndMemory = true;
 
+    // Version at which types were last resolved, or -1 if they have
+    // been invalidated.
+    private long _resolvedTypesVersion = -1;
+
     // Flag for waiting on resume();
     private boolean _resumeNotifyWaiting = false;
 
+    // Flag indicating that reuseResolvedTypes() has been called.
+    private boolean _reuseResolvedTypes = false;
+
     // The state of the execution.
     private volatile State _state = IDLE;
 
@@ -1524,6 +1604,9 @@ public class Manager extends NamedObj implements Runnable {
     // a WeakHashMap so that execution identifiers can be garbage collected.
     private Map<Throwable, Object> _throwableToExecutionIdentifier = new WeakHashMap<Throwable, Object>();
 
+    // The number of times that resolveTypes() has been called.
+    private volatile long _typeResolutionCount;
+
     // An indicator of whether type resolution needs to be done.
     private boolean _typesResolved = false;
 
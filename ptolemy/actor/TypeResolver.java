@@ -0,0 +1,625 @@
+/* Solve the type constraints of a model incrementally and in parallel.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import ptolemy.data.type.StructuredType;
+import ptolemy.data.type.TypeLattice;
+import ptolemy.graph.Inequality;
+import ptolemy.graph.InequalitySolver;
+import ptolemy.graph.InequalityTerm;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.InternalErrorException;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// TypeResolver
+
+/**
+ Solve the type constraints of a model for the least solution,
+ reusing the solution of constraints that have not changed since
+ the last time the constraints were solved, and solving independent
+ constraints in parallel. An instance of this class is kept by the
+ top level of a model and is used by
+ {@link TypedCompositeActor#resolveTypes(TypedCompositeActor)}.
+ <p>
+ The constraints are partitioned into components, where two inequalities
+ are in the same component if they share a variable, and each component
+ is solved by its own {@link InequalitySolver}. Since components share
+ no variables, the least solution of each component is the same as
+ the least solution of all the constraints. The components and their
+ solutions are remembered. When the constraints are solved again,
+ for example after a change request has been executed, a component is
+ solved again only if it has changed, so the cost of type resolution
+ after a mutation is proportional to the part of the model that the
+ mutation affects. A component has not changed if it has the same
+ variables with the same values as in its last solution, and its
+ inequalities relate the same variables and constants with the same
+ values. A component that has a term that is neither a variable
+ nor a constant, such as a function term of an actor, is always solved
+ again, because the function may depend on parameters of the actor.
+ <p>
+ If the components that need to be solved have at least
+ {@link #getParallelThreshold()} inequalities, then the components whose
+ variables are the types of ports of atomic actors and whose terms
+ are not structured types are solved by {@link #getThreads()} threads,
+ one of which is the calling thread. Other components are solved by
+ the calling thread only, since their terms may evaluate expressions
+ or modify types that are shared with other components.
+ Components are only given to a helper thread after it has obtained
+ read access to the workspace, so the calling thread, which holds read
+ access, never waits for a thread that is waiting for read access.
+ <p>
+ The type of a port may be a structured type whose element types are
+ variables of other inequalities. This dependence is not reported by
+ {@link InequalityTerm#getVariables()}, so the inequalities may be placed
+ in different components. If, after the components have been solved,
+ an inequality whose greater term is a variable is not satisfied, or
+ a variable of a component that was not solved has a different value,
+ then all the constraints are solved together, as was done before
+ this class was added.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see InequalitySolver
+ */
+public class TypeResolver {
+    /** Construct a type resolver for the specified top level.
+     *  @param topLevel The top level of the model.
+     */
+    public TypeResolver(TypedCompositeActor topLevel) {
+        if (topLevel == null) {
+            throw new IllegalArgumentException(
+                    "The toplevel should not be a null pointer.");
+        }
+        _topLevel = topLevel;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the number of components of the constraints that were
+     *  last solved.
+     *  @return The number of components.
+     */
+    public int getComponentCount() {
+        return _componentCount;
+    }
+
+    /** Return the minimum number of inequalities in the components that
+     *  need to be solved for the components to be solved in parallel.
+     *  @return The minimum number of inequalities.
+     *  @see #setParallelThreshold(int)
+     */
+    public int getParallelThreshold() {
+        return _parallelThreshold;
+    }
+
+    /** Return the number of components that were solved the last time
+     *  the constraints were solved. The other components had not changed.
+     *  @return The number of components that were solved.
+     */
+    public int getSolvedComponentCount() {
+        return _solvedComponentCount;
+    }
+
+    /** Return the number of threads, including the calling thread,
+     *  used to solve components in parallel. The default is the number
+     *  of available processors.
+     *  @return The number of threads.
+     *  @see #setThreads(int)
+     */
+    public int getThreads() {
+        return _threads;
+    }
+
+    /** Forget the solutions of the components, so that all
+     *  the constraints are solved the next time.
+     */
+    public void reset() {
+        _componentOfVariable = new HashMap<InequalityTerm, ConstraintComponent>();
+        _valueOfVariable = new HashMap<InequalityTerm, Object>();
+    }
+
+    /** Set the minimum number of inequalities in the components that
+     *  need to be solved for the components to be solved in parallel.
+     *  @param threshold The minimum number of inequalities.
+     *  @see #getParallelThreshold()
+     */
+    public void setParallelThreshold(int threshold) {
+        _parallelThreshold = threshold;
+    }
+
+    /** Set the number of threads, including the calling thread, used
+     *  to solve components in parallel. A value of one solves all the
+     *  components in the calling thread.
+     *  @param threads The number of threads, which is at least one.
+     *  @see #getThreads()
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be at least one: " + threads);
+        }
+        _threads = threads;
+    }
+
+    /** Solve the specified type constraints for the least solution.
+     *  The inequalities that are not satisfied by the solution are not
+     *  reported; the caller should check them.
+     *  The caller should hold read access to the workspace.
+     *  @param constraints The type constraints.
+     *  @exception IllegalActionException If testing an inequality
+     *   or getting the value of a term throws it.
+     */
+    public void solve(Collection<Inequality> constraints)
+            throws IllegalActionException {
+        Map<InequalityTerm, ConstraintComponent> previousComponents = _componentOfVariable;
+        Map<InequalityTerm, Object> previousValues = _valueOfVariable;
+        // If solving fails, then nothing is reused the next time.
+        reset();
+        _componentCount = 0;
+        _solvedComponentCount = 0;
+
+        List<ConstraintComponent> components = _partition(constraints);
+        _componentCount = components.size();
+
+        List<ConstraintComponent> parallel = new ArrayList<ConstraintComponent>();
+        int parallelSize = 0;
+        for (ConstraintComponent component : components) {
+            if (component.isUnchanged(previousComponents, previousValues)) {
+                continue;
+            }
+            component.solved = true;
+            _solvedComponentCount++;
+            if (component.isParallelSafe()) {
+                parallel.add(component);
+                parallelSize += component.inequalities.size();
+            } else {
+                // Solve the components that cannot be solved in
+                // parallel before starting any other thread.
+                component.solve();
+            }
+        }
+
+        if (_threads > 1 && parallel.size() > 1
+                && parallelSize >= _parallelThreshold) {
+            _solveInParallel(parallel);
+        } else {
+            for (ConstraintComponent component : parallel) {
+                component.solve();
+            }
+        }
+
+        // Record the solution. The variables of the components that
+        // were not solved still have the values of the last solution.
+        Map<InequalityTerm, ConstraintComponent> componentOfVariable = new HashMap<InequalityTerm, ConstraintComponent>();
+        Map<InequalityTerm, Object> valueOfVariable = new HashMap<InequalityTerm, Object>();
+        boolean structured = false;
+        for (ConstraintComponent component : components) {
+            structured |= component.hasStructuredType;
+            for (InequalityTerm variable : component.variables) {
+                componentOfVariable.put(variable, component);
+                Object value;
+                if (component.solved) {
+                    value = _copy(variable.getValue());
+                } else {
+                    value = previousValues.get(variable);
+                }
+                structured |= value instanceof StructuredType;
+                valueOfVariable.put(variable, value);
+            }
+        }
+
+        if (structured && !_isConsistent(components, valueOfVariable)) {
+            // Some inequalities depend on each other through structured
+            // types, so solve them all together.
+            InequalitySolver solver = new InequalitySolver(TypeLattice
+                    .lattice());
+            solver.addInequalities(constraints.iterator());
+            solver.solveLeast();
+            _solvedComponentCount = components.size();
+            for (InequalityTerm variable : valueOfVariable.keySet()) {
+                valueOfVariable.put(variable, _copy(variable.getValue()));
+            }
+        }
+
+        _componentOfVariable = componentOfVariable;
+        _valueOfVariable = valueOfVariable;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Return the root of the specified variable in the union-find forest,
+    // compressing the path to the root.
+    private static int _find(int[] parents, int variable) {
+        int root = variable;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[variable] != root) {
+            int next = parents[variable];
+            parents[variable] = root;
+            variable = next;
+        }
+        return root;
+    }
+
+    // Return a copy of the specified value that does not change
+    // when the value is updated, or null if it cannot be copied.
+    private static Object _copy(Object value) {
+        if (value instanceof StructuredType) {
+            try {
+                return ((StructuredType) value).clone();
+            } catch (CloneNotSupportedException ex) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    // Return true if the variables of the components that were not
+    // solved have the specified values and all the inequalities whose
+    // greater terms are variables are satisfied.
+    private boolean _isConsistent(List<ConstraintComponent> components,
+            Map<InequalityTerm, Object> values) throws IllegalActionException {
+        for (ConstraintComponent component : components) {
+            if (!component.solved && !component.hasValues(values)) {
+                return false;
+            }
+            for (Inequality inequality : component.inequalities) {
+                if (inequality.getGreaterTerm().isSettable()
+                        && !inequality.isSatisfied(TypeLattice.lattice())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Partition the constraints into components that share no variables,
+    // in the order in which the constraints are given. Inequalities
+    // without variables are not in any component.
+    private List<ConstraintComponent> _partition(
+            Collection<Inequality> constraints) throws IllegalActionException {
+        Map<InequalityTerm, Integer> indices = new HashMap<InequalityTerm, Integer>();
+        List<InequalityTerm> variables = new ArrayList<InequalityTerm>();
+        List<InequalityTerm[]> lesserVariables = new ArrayList<InequalityTerm[]>(
+                constraints.size());
+        List<InequalityTerm[]> greaterVariables = new ArrayList<InequalityTerm[]>(
+                constraints.size());
+        int[] parents = new int[16];
+
+        for (Inequality inequality : constraints) {
+            InequalityTerm[] lesser = inequality.getLesserTerm()
+                    .getVariables();
+            InequalityTerm[] greater = inequality.getGreaterTerm()
+                    .getVariables();
+            lesserVariables.add(lesser);
+            greaterVariables.add(greater);
+
+            int first = -1;
+            for (int i = 0; i < lesser.length + greater.length; i++) {
+                InequalityTerm variable = i < lesser.length ? lesser[i]
+                        : greater[i - lesser.length];
+                Integer index = indices.get(variable);
+                if (index == null) {
+                    index = Integer.valueOf(variables.size());
+                    indices.put(variable, index);
+                    variables.add(variable);
+                    if (parents.length <= index.intValue()) {
+                        int[] newParents = new int[2 * parents.length];
+                        System.arraycopy(parents, 0, newParents, 0,
+                                parents.length);
+                        parents = newParents;
+                    }
+                    parents[index.intValue()] = index.intValue();
+                }
+                int root = _find(parents, index.intValue());
+                if (first < 0) {
+                    first = root;
+                } else if (root != first) {
+                    parents[root] = first;
+                }
+            }
+        }
+
+        Map<Integer, ConstraintComponent> components = new LinkedHashMap<Integer, ConstraintComponent>();
+        int i = 0;
+        for (Inequality inequality : constraints) {
+            InequalityTerm[] lesser = lesserVariables.get(i);
+            InequalityTerm[] greater = greaterVariables.get(i);
+            i++;
+            InequalityTerm variable = null;
+            if (lesser.length > 0) {
+                variable = lesser[0];
+            } else if (greater.length > 0) {
+                variable = greater[0];
+            } else {
+                continue;
+            }
+            Integer root = Integer.valueOf(_find(parents, indices.get(
+                    variable).intValue()));
+            ConstraintComponent component = components.get(root);
+            if (component == null) {
+                component = new ConstraintComponent();
+                components.put(root, component);
+            }
+            component.add(inequality, lesser, greater);
+        }
+        for (int j = 0; j < variables.size(); j++) {
+            components.get(Integer.valueOf(_find(parents, j))).variables
+                    .add(variables.get(j));
+        }
+        return new ArrayList<ConstraintComponent>(components.values());
+    }
+
+    // Solve the specified components using the calling thread and
+    // helper threads. A helper thread takes components only after
+    // it has obtained read access to the workspace, so that it does
+    // not block while the calling thread waits for it.
+    private void _solveInParallel(List<ConstraintComponent> components)
+            throws IllegalActionException {
+        final ConcurrentLinkedQueue<ConstraintComponent> queue = new ConcurrentLinkedQueue<ConstraintComponent>(
+                components);
+        final Workspace workspace = _topLevel.workspace();
+        final Object lock = new Object();
+        final int[] remaining = new int[] { components.size() };
+        final Throwable[] failure = new Throwable[1];
+
+        Runnable solver = new Runnable() {
+            public void run() {
+                ConstraintComponent component = queue.poll();
+                while (component != null) {
+                    try {
+                        component.solve();
+                    } catch (Throwable throwable) {
+                        synchronized (lock) {
+                            if (failure[0] == null) {
+                                failure[0] = throwable;
+                            }
+                        }
+                    }
+                    synchronized (lock) {
+                        remaining[0]--;
+                        if (remaining[0] == 0) {
+                            lock.notifyAll();
+                        }
+                    }
+                    component = queue.poll();
+                }
+            }
+        };
+
+        int helpers = Math.min(_threads, components.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            final Runnable helperSolver = solver;
+            Thread helper = new Thread(_topLevel.getName() + " type resolver "
+                    + i) {
+                public void run() {
+                    workspace.getReadAccess();
+                    try {
+                        helperSolver.run();
+                    } finally {
+                        workspace.doneReading();
+                    }
+                }
+            };
+            helper.setDaemon(true);
+            helper.start();
+        }
+
+        solver.run();
+
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (remaining[0] > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    // The helper threads are using the model, so
+                    // wait for them anyway.
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure[0] instanceof IllegalActionException) {
+            throw (IllegalActionException) failure[0];
+        } else if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException) failure[0];
+        } else if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        } else if (failure[0] != null) {
+            throw new InternalErrorException(_topLevel, failure[0],
+                    "Type resolution failed.");
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // The number of components of the constraints last solved.
+    private int _componentCount;
+
+    // The components of the last solution, indexed by their variables.
+    private Map<InequalityTerm, ConstraintComponent> _componentOfVariable = new HashMap<InequalityTerm, ConstraintComponent>();
+
+    // The minimum number of inequalities to solve in parallel.
+    private int _parallelThreshold = 1000;
+
+    // The number of components solved the last time.
+    private int _solvedComponentCount;
+
+    // The number of threads used to solve components in parallel.
+    private int _threads = Runtime.getRuntime().availableProcessors();
+
+    // The top level of the model.
+    private TypedCompositeActor _topLevel;
+
+    // The values of the variables in the last solution.
+    private Map<InequalityTerm, Object> _valueOfVariable = new HashMap<InequalityTerm, Object>();
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    // A set of inequalities that share variables with each other
+    // but not with any other inequality.
+    private static class ConstraintComponent {
+
+        // Add an inequality with the specified variables of its terms.
+        public void add(Inequality inequality, InequalityTerm[] lesser,
+                InequalityTerm[] greater) throws IllegalActionException {
+            inequalities.add(inequality);
+            Object lesserKey = _key(inequality.getLesserTerm(), lesser);
+            Object greaterKey = _key(inequality.getGreaterTerm(), greater);
+            if (_keys != null) {
+                if (lesserKey == null || greaterKey == null) {
+                    _keys = null;
+                } else {
+                    _keys.add(Arrays.asList(new Object[] { lesserKey,
+                            greaterKey }));
+                }
+            }
+        }
+
+        // Return true if the variables have the specified values.
+        public boolean hasValues(Map<InequalityTerm, Object> values)
+                throws IllegalActionException {
+            for (InequalityTerm variable : variables) {
+                Object value = values.get(variable);
+                if (value == null || !value.equals(variable.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Return true if this component can be solved in parallel with
+        // other components. Variables must be types of ports of atomic
+        // actors, which are not evaluated like the types of parameters,
+        // and no term can be a structured type, whose element types may
+        // be variables of other components.
+        public boolean isParallelSafe() throws IllegalActionException {
+            if (_keys == null || hasStructuredType) {
+                return false;
+            }
+            for (InequalityTerm variable : variables) {
+                Object port = variable.getAssociatedObject();
+                if (!(port instanceof TypedIOPort)
+                        || !(((TypedIOPort) port).getContainer() instanceof AtomicActor)
+                        || variable.getValue() instanceof StructuredType) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Return true if this component is the same as a component of
+        // the last solution and its variables have the values of that
+        // solution, which is then still the least solution.
+        public boolean isUnchanged(
+                Map<InequalityTerm, ConstraintComponent> components,
+                Map<InequalityTerm, Object> values)
+                throws IllegalActionException {
+            if (_keys == null) {
+                return false;
+            }
+            ConstraintComponent component = components.get(variables.get(0));
+            if (component == null || component._keys == null
+                    || component.variables.size() != variables.size()
+                    || !component._keys.equals(_keys)) {
+                return false;
+            }
+            for (InequalityTerm variable : variables) {
+                if (components.get(variable) != component) {
+                    return false;
+                }
+            }
+            return hasValues(values);
+        }
+
+        // Solve the inequalities for the least solution.
+        public void solve() throws IllegalActionException {
+            InequalitySolver solver = new InequalitySolver(TypeLattice
+                    .lattice());
+            solver.addInequalities(inequalities.iterator());
+            solver.solveLeast();
+        }
+
+        // True if a constant term is a structured type.
+        public boolean hasStructuredType;
+
+        // The inequalities.
+        public List<Inequality> inequalities = new ArrayList<Inequality>();
+
+        // True if this component was solved, false if it is unchanged.
+        public boolean solved;
+
+        // The variables.
+        public List<InequalityTerm> variables = new ArrayList<InequalityTerm>();
+
+        // Return the object that identifies the specified term when
+        // comparing components, which is the term if it is a variable
+        // and its value if it is a constant, or null if it is neither.
+        private Object _key(InequalityTerm term, InequalityTerm[] variables)
+                throws IllegalActionException {
+            if (variables.length == 0) {
+                Object value = term.getValue();
+                if (value instanceof StructuredType) {
+                    hasStructuredType = true;
+                }
+                return _copy(value);
+            } else if (variables.length == 1 && variables[0] == term) {
+                return term;
+            }
+            return null;
+        }
+
+        // The identities of the inequalities, or null if a term is
+        // neither a variable nor a constant.
+        private Set<List<Object>> _keys = new HashSet<List<Object>>();
+    }
+}
@@ -41,7 +41,6 @@ import ptolemy.data.type.TypeLattice;
 import ptolemy.data.type.Typeable;
 import ptolemy.graph.CPO;
 import ptolemy.graph.Inequality;
-import ptolemy.graph.InequalitySolver;
 import ptolemy.graph.InequalityTerm;
 import ptolemy.kernel.ComponentEntity;
 import ptolemy.kernel.ComponentRelation;
@@ -170,6 +169,35 @@ public class TypedCompositeActor extends CompositeActor implements TypedActor {
     ///////////////////////////////////////////////////////////////////
     ////                         public methods                    ////
 
+    /** Clone the actor into the specified workspace. This calls the
+     *  base class and then sets the type resolver of the clone to null,
+     *  so that the clone does not share the solutions of this actor.
+     *  @param workspace The workspace for the new object.
+     *  @return A new TypedCompositeActor.
+     *  @exception CloneNotSupportedException If a derived class has an
+     *   attribute that cannot be cloned.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        TypedCompositeActor newObject = (TypedCompositeActor) super
+                .clone(workspace);
+        newObject._typeResolver = null;
+        return newObject;
+    }
+
+    /** Return the type resolver that is used by
+     *  {@link #resolveTypes(TypedCompositeActor)} when this actor is
+     *  the top level of a model. The type resolver remembers the
+     *  solution of the type constraints, so that only the constraints
+     *  that change are solved again.
+     *  @return The type resolver.
+     */
+    public TypeResolver getTypeResolver() {
+        if (_typeResolver == null) {
+            _typeResolver = new TypeResolver(this);
+        }
+        return _typeResolver;
+    }
+
     /** Create a new TypedIOPort with the specified name.
      *  The container of the port is set to this actor.
      *  This method is write-synchronized on the workspace.
@@ -256,15 +284,11 @@ public class TypedCompositeActor extends CompositeActor implements TypedActor {
              */
 
             if (constraintList.size() > 0) {
-                CPO cpo = TypeLattice.lattice();
-                InequalitySolver solver = new InequalitySolver(cpo);
-                Iterator constraints = constraintList.iterator();
-
-                solver.addInequalities(constraints);
-
                 try {
-                    // Find the least solution (most specific types)
-                    solver.solveLeast();
+                    // Find the least solution (most specific types),
+                    // solving only the constraints that have changed
+                    // since the last time.
+                    topLevel.getTypeResolver().solve(constraintList);
                 } catch (InvalidStateException ex) {
                     throw new InvalidStateException(topLevel, ex,
                             "The basic type lattic was: "
@@ -701,4 +725,10 @@ public class TypedCompositeActor extends CompositeActor implements TypedActor {
 
         return result;
     }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // The type resolver used when this actor is the top level.
+    private TypeResolver _typeResolver;
 }
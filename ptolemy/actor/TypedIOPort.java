@@ -785,7 +785,15 @@ public class TypedIOPort extends IOPort implements Typeable {
      *   type lattice.
      */
     protected void _checkType(Token token) throws IllegalActionException {
-        int compare = TypeLattice.compare(token.getType(), _resolvedType);
+        Type type = token.getType();
+
+        // Most tokens have the resolved type of the port, so avoid the
+        // synchronized comparison in the type lattice.
+        if (type == _resolvedType) {
+            return;
+        }
+
+        int compare = TypeLattice.compare(type, _resolvedType);
 
         if ((compare == CPO.HIGHER) || (compare == CPO.INCOMPARABLE)) {
             throw new IllegalActionException(this,
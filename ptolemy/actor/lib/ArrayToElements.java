@@ -30,7 +30,6 @@ package ptolemy.actor.lib;
 import java.util.Set;
 
 import ptolemy.data.ArrayToken;
-import ptolemy.data.Token;
 import ptolemy.data.type.ArrayType;
 import ptolemy.graph.Inequality;
 import ptolemy.kernel.CompositeEntity;
@@ -124,10 +123,8 @@ public class ArrayToElements extends Transformer {
 
             int min = Math.min(size, output.getWidth());
 
-            Token[] elements = token.arrayValue();
-
             for (int i = 0; i < min; i++) {
-                output.send(i, elements[i]);
+                output.send(i, token.getElement(i));
             }
         }
     }
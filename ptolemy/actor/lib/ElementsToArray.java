@@ -115,7 +115,7 @@ public class ElementsToArray extends Transformer {
             valueArray[i] = input.get(i);
         }
 
-        output.send(0, new ArrayToken(input.getType(), valueArray));
+        output.send(0, ArrayToken.create(input.getType(), valueArray));
     }
 
     /** Return true if all channels of the <i>input</i> port have
@@ -41,9 +41,11 @@ import ptolemy.data.DoubleToken;
 import ptolemy.data.IntToken;
 import ptolemy.data.Token;
 import ptolemy.data.expr.ASTPtRootNode;
+import ptolemy.data.expr.CompiledExpression;
 import ptolemy.data.expr.ModelScope;
 import ptolemy.data.expr.Parameter;
-import ptolemy.data.expr.ParseTreeEvaluator;
+import ptolemy.data.expr.ParseTreeCompiler;
+import ptolemy.data.expr.ParserScope;
 import ptolemy.data.expr.ParseTreeFreeVariableCollector;
 import ptolemy.data.expr.ParseTreeTypeInference;
 import ptolemy.data.expr.PtParser;
@@ -156,6 +158,7 @@ public class Expression extends TypedAtomicActor {
             throws IllegalActionException {
         if (attribute == expression) {
             _parseTree = null;
+            _compiledExpression = null;
         }
     }
 
@@ -168,9 +171,9 @@ public class Expression extends TypedAtomicActor {
      */
     public Object clone(Workspace workspace) throws CloneNotSupportedException {
         Expression newObject = (Expression) super.clone(workspace);
+        newObject._compiledExpression = null;
         newObject._iterationCount = 1;
         newObject._parseTree = null;
-        newObject._parseTreeEvaluator = null;
         newObject._scope = null;
         newObject._setOutputTypeConstraint();
         newObject._tokenMap = null;
@@ -216,15 +219,21 @@ public class Expression extends TypedAtomicActor {
                         .getExpression());
             }
 
-            if (_parseTreeEvaluator == null) {
-                _parseTreeEvaluator = new ParseTreeEvaluator();
-            }
-
             if (_scope == null) {
                 _scope = new VariableScope();
             }
 
-            result = _parseTreeEvaluator.evaluateParseTree(_parseTree, _scope);
+            // The compiled expression refers to the ports and variables
+            // that the identifiers resolve to, so compile it again
+            // if the model has changed.
+            if (_compiledExpression == null
+                    || _compiledExpressionVersion != workspace().getVersion()) {
+                _compiledExpression = new ExpressionCompiler()
+                        .compileParseTree(_parseTree);
+                _compiledExpressionVersion = workspace().getVersion();
+            }
+
+            result = _compiledExpression.evaluate(_scope);
         } catch (Throwable throwable) {
             // Chain exceptions to get the actor that threw the exception.
             // Note that if evaluateParseTree does a divide by zero, we
@@ -311,6 +320,51 @@ public class Expression extends TypedAtomicActor {
         output.setTypeAtLeast(new OutputTypeFunction());
     }
 
+    // A compiler that resolves the identifiers of the expression to the
+    // current time, the iteration count, the input ports and the
+    // variables in scope when the expression is compiled, in the same
+    // order as VariableScope.get().
+    private class ExpressionCompiler extends ParseTreeCompiler {
+        protected CompiledExpression _compileIdentifier(final String name) {
+            if (name.equals("time")) {
+                return new CompiledExpression() {
+                    public Token evaluate(ParserScope scope)
+                            throws IllegalActionException {
+                        return new DoubleToken(getDirector().getModelTime()
+                                .getDoubleValue());
+                    }
+                };
+            } else if (name.equals("iteration")) {
+                return new CompiledExpression() {
+                    public Token evaluate(ParserScope scope) {
+                        return new IntToken(_iterationCount);
+                    }
+                };
+            }
+
+            final Variable variable = ModelScope.getScopedVariable(null,
+                    Expression.this, name);
+            if (getPort(name) != null) {
+                return new CompiledExpression() {
+                    public Token evaluate(ParserScope scope)
+                            throws IllegalActionException {
+                        Token token = (Token) _tokenMap.get(name);
+                        if (token != null) {
+                            return token;
+                        }
+                        return variable == null ? null : variable.getToken();
+                    }
+                };
+            }
+            return new CompiledExpression() {
+                public Token evaluate(ParserScope scope)
+                        throws IllegalActionException {
+                    return variable == null ? null : variable.getToken();
+                }
+            };
+        }
+    }
+
     private class VariableScope extends ModelScope {
         /** Look up and return the attribute with the specified name in the
          *  scope. Return null if such an attribute does not exist.
@@ -519,12 +573,14 @@ public class Expression extends TypedAtomicActor {
 
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
+    private CompiledExpression _compiledExpression = null;
+
+    private long _compiledExpressionVersion = -1;
+
     private int _iterationCount = 1;
 
     private ASTPtRootNode _parseTree = null;
 
-    private ParseTreeEvaluator _parseTreeEvaluator = null;
-
     private VariableScope _scope = null;
 
     private Map _tokenMap;
@@ -29,10 +29,13 @@ package ptolemy.actor.lib.hoc;
 
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import ptolemy.actor.Actor;
 import ptolemy.actor.CompositeActor;
@@ -41,15 +44,21 @@ import ptolemy.actor.Executable;
 import ptolemy.actor.FiringEvent;
 import ptolemy.actor.IOPort;
 import ptolemy.actor.IOPortEvent;
+import ptolemy.actor.Manager;
 import ptolemy.actor.NoRoomException;
 import ptolemy.actor.NoTokenException;
 import ptolemy.actor.QueueReceiver;
 import ptolemy.actor.Receiver;
 import ptolemy.actor.TypedCompositeActor;
 import ptolemy.actor.TypedIOPort;
+import ptolemy.actor.util.DFUtilities;
+import ptolemy.actor.util.ExplicitChangeContext;
 import ptolemy.data.ArrayToken;
 import ptolemy.data.IntToken;
 import ptolemy.data.Token;
+import ptolemy.data.expr.ModelScope;
+import ptolemy.data.expr.Parameter;
+import ptolemy.data.expr.ScopeExtendingAttribute;
 import ptolemy.data.expr.Variable;
 import ptolemy.data.type.ArrayType;
 import ptolemy.data.type.BaseType;
@@ -59,10 +68,13 @@ import ptolemy.graph.CPO;
 import ptolemy.graph.Inequality;
 import ptolemy.kernel.ComponentEntity;
 import ptolemy.kernel.CompositeEntity;
+import ptolemy.kernel.Entity;
 import ptolemy.kernel.Port;
 import ptolemy.kernel.util.IllegalActionException;
 import ptolemy.kernel.util.InternalErrorException;
+import ptolemy.kernel.util.KernelException;
 import ptolemy.kernel.util.NameDuplicationException;
+import ptolemy.kernel.util.NamedObj;
 import ptolemy.kernel.util.Nameable;
 import ptolemy.kernel.util.Workspace;
 
@@ -116,6 +128,23 @@ import ptolemy.kernel.util.Workspace;
  actor. There should be no need to because class instances
  inside it can be instances of classes defined outside of it.
  <p>
+ If the <i>numberOfThreads</i> parameter is not 1, then the
+ iterations over the elements of the input arrays may be performed
+ concurrently. The elements are divided into contiguous blocks, one
+ per thread, and each block is processed by a copy of the contained
+ actor in a thread of the pool shared by the higher-order components
+ (see {@link ParallelFiring}). The outputs of the blocks are
+ concatenated in order, so the output arrays are the same as those
+ of serial iteration. This is done only if the contained actor is
+ stateless (see {@link ParallelFiring#isStateless(Actor)}), it
+ consumes one token from each input on each iteration, all the
+ inputs provide the same number of elements, and no other actor in
+ the model changes its parameters. Otherwise, or if any block stops
+ before consuming all its elements, the iterations are performed
+ serially. Parameters of the contained actor may refer to parameters
+ outside this actor. Their values are given to the copies before
+ each firing.
+ <p>
  This actor (and many of the other higher-order components)
  has its intellectual roots in the higher-order functions
  of functional languages, which have been in use since
@@ -218,6 +247,16 @@ public class IterateOverArray extends MirrorComposite {
         _init();
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         parameters                        ////
+
+    /** The number of threads used to iterate the contained actor.
+     *  This parameter must contain a non-negative IntToken. The value
+     *  1, which is the default, means to iterate serially, and the
+     *  value 0 means to use the number of available processors.
+     */
+    public Parameter numberOfThreads;
+
     ///////////////////////////////////////////////////////////////////
     ////                         public methods                    ////
 
@@ -233,6 +272,12 @@ public class IterateOverArray extends MirrorComposite {
         IterateOverArray result = (IterateOverArray) super.clone(workspace);
         result._iterationCount = (Variable) result
                 .getAttribute("iterationCount");
+        result._isWorker = false;
+        result._outerScope = null;
+        result._outerTokens = null;
+        result._outerVariables = null;
+        result._parallelizableVersion = -1L;
+        result._workers = null;
         return result;
     }
 
@@ -279,6 +324,19 @@ public class IterateOverArray extends MirrorComposite {
         return super.typeConstraints();
     }
 
+    /** Invoke the wrapup() method of the base class and discard the
+     *  copies of the contained actor that iterate it in parallel.
+     *  @exception IllegalActionException If the base class throws it,
+     *   or if wrapping up a copy fails.
+     */
+    public void wrapup() throws IllegalActionException {
+        try {
+            super.wrapup();
+        } finally {
+            _discardWorkers();
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         protected methods                 ////
 
@@ -435,13 +493,209 @@ public class IterateOverArray extends MirrorComposite {
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
+    // True if this is a copy that iterates the contained actor
+    // over a block of the elements for another instance.
+    private boolean _isWorker = false;
+
     // Variable that reflects the current iteration count on the
     // inside.
     private Variable _iterationCount;
 
+    // In a copy, the attribute that holds the values of the variables
+    // outside of the original that the contained actor refers to.
+    private ScopeExtendingAttribute _outerScope;
+
+    // The values of the outside variables given to the copies.
+    private Map<String, Token> _outerTokens;
+
+    // The variables outside of this actor that the contained actor
+    // refers to, indexed by the name by which they are referred to.
+    private Map<String, Variable> _outerVariables;
+
+    // True if the contained actor can be iterated in parallel.
+    private boolean _parallelizable;
+
+    // The workspace version for which _parallelizable was determined.
+    private long _parallelizableVersion = -1L;
+
+    // The copies that iterate the contained actor in parallel.
+    private List<IterateOverArray> _workers;
+
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
 
+    /** Collect the variables that are deeply contained by the
+     *  specified object.
+     */
+    private static void _collectVariables(NamedObj object,
+            List<Variable> variables) {
+        Iterator objects = object.containedObjectsIterator();
+        while (objects.hasNext()) {
+            NamedObj contained = (NamedObj) objects.next();
+            if (contained instanceof Variable) {
+                variables.add((Variable) contained);
+            }
+            _collectVariables(contained, variables);
+        }
+    }
+
+    /** Declare the type of each typed port of the copy and of the
+     *  entities it deeply contains to be the resolved type of the
+     *  corresponding port of the original, so that the types of the
+     *  copy need not be inferred from the connections of the original.
+     */
+    private static void _copyTypes(Entity original, Entity copy) {
+        Iterator ports = original.portList().iterator();
+        while (ports.hasNext()) {
+            Object port = ports.next();
+            if (port instanceof TypedIOPort) {
+                Type type = ((TypedIOPort) port).getType();
+                Port copyPort = copy.getPort(((Port) port).getName());
+                if (copyPort instanceof TypedIOPort
+                        && !type.equals(BaseType.UNKNOWN)) {
+                    ((TypedIOPort) copyPort).setTypeEquals(type);
+                }
+            }
+        }
+        if (original instanceof CompositeEntity) {
+            Iterator entities = ((CompositeEntity) original).entityList()
+                    .iterator();
+            while (entities.hasNext()) {
+                Entity entity = (Entity) entities.next();
+                Entity copyEntity = ((CompositeEntity) copy).getEntity(entity
+                        .getName());
+                if (copyEntity != null) {
+                    _copyTypes(entity, copyEntity);
+                }
+            }
+        }
+    }
+
+    /** Create a copy of this actor in a new workspace that iterates
+     *  the contained actor over a block of the elements, and
+     *  initialize it.
+     */
+    private IterateOverArray _createWorker() throws IllegalActionException {
+        try {
+            IterateOverArray worker = (IterateOverArray) clone(new Workspace());
+            worker._isWorker = true;
+            _copyTypes(this, worker);
+            worker._outerScope = new ScopeExtendingAttribute(worker,
+                    worker.uniqueName("_outerScope"));
+            for (Map.Entry<String, Variable> entry : _outerVariables
+                    .entrySet()) {
+                Variable variable = new Variable(worker._outerScope,
+                        entry.getKey());
+                variable.setToken(entry.getValue().getToken());
+            }
+            worker.validateSettables();
+            Manager manager = new Manager(worker.workspace(), "manager");
+            worker.setManager(manager);
+            manager.initialize();
+            return worker;
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalActionException(this, ex,
+                    "Failed to copy the actor to iterate it in parallel.");
+        } catch (KernelException ex) {
+            throw new IllegalActionException(this, ex,
+                    "Failed to initialize a copy of the actor "
+                            + "to iterate it in parallel.");
+        }
+    }
+
+    /** Wrap up and discard the copies that iterate the contained
+     *  actor in parallel.
+     */
+    private void _discardWorkers() throws IllegalActionException {
+        if (_workers == null) {
+            return;
+        }
+        List<IterateOverArray> workers = _workers;
+        _workers = null;
+        _outerTokens = null;
+        for (IterateOverArray worker : workers) {
+            try {
+                worker.getManager().wrapup();
+            } catch (KernelException ex) {
+                throw new IllegalActionException(this, ex,
+                        "Failed to wrap up a copy of the actor.");
+            }
+        }
+    }
+
+    /** Iterate the specified actor, which is the contained actor, over
+     *  the tokens in its input receivers in parallel, and put its
+     *  outputs in the inside receivers of the output ports of this
+     *  actor. If this cannot be done, then leave the input receivers
+     *  as they were and return false.
+     */
+    private boolean _fireInParallel(Actor actor) throws IllegalActionException {
+        if (!_isParallelizable(actor)) {
+            return false;
+        }
+        // Take the tokens from the input receivers of the actor.
+        List<Receiver> inputs = _inputReceivers(actor);
+        List<List<Token>> tokens = new ArrayList<List<Token>>(inputs.size());
+        int length = -1;
+        boolean uniform = true;
+        for (Receiver receiver : inputs) {
+            List<Token> list = new ArrayList<Token>();
+            while (receiver.hasToken()) {
+                list.add(receiver.get());
+            }
+            tokens.add(list);
+            if (length < 0) {
+                length = list.size();
+            } else if (length != list.size()) {
+                uniform = false;
+            }
+        }
+        int threads = Math.min(_numberOfThreads(), length);
+        List<IterateOverArray> workers = null;
+        if (uniform && threads > 1) {
+            workers = _workers(threads);
+        }
+        if (workers == null) {
+            _putTokens(inputs, tokens);
+            return false;
+        }
+
+        // Give the current values of the outside variables that the
+        // actor refers to to the copies.
+        for (Map.Entry<String, Variable> entry : _outerVariables.entrySet()) {
+            Token token = entry.getValue().getToken();
+            if (token != _outerTokens.get(entry.getKey())) {
+                for (IterateOverArray worker : workers) {
+                    ((Variable) worker._outerScope.getAttribute(entry
+                            .getKey())).setToken(token);
+                }
+                _outerTokens.put(entry.getKey(), token);
+            }
+        }
+
+        List<Callable<List<List<Token>>>> blocks = new ArrayList<Callable<List<List<Token>>>>(
+                threads);
+        for (int i = 0; i < threads; i++) {
+            blocks.add(new IterationBlock(workers.get(i), tokens, i * length
+                    / threads, (i + 1) * length / threads));
+        }
+        List<List<List<Token>>> results = ParallelFiring.invokeAll(this,
+                blocks, null);
+        for (List<List<Token>> result : results) {
+            if (result == null) {
+                // A block stopped early, so iterate serially.
+                _putTokens(inputs, tokens);
+                return false;
+            }
+        }
+        List<Receiver> outputs = _outputReceivers(this);
+        for (List<List<Token>> result : results) {
+            _putTokens(outputs, result);
+        }
+        _iterationCount.setToken(new IntToken(length));
+        return true;
+    }
+
     /** Initialize the class. */
     private void _init() throws IllegalActionException,
             NameDuplicationException {
@@ -450,6 +704,171 @@ public class IterateOverArray extends MirrorComposite {
 
         _iterationCount = new Variable(this, "iterationCount", new IntToken(0));
         _iterationCount.setTypeEquals(BaseType.INT);
+
+        numberOfThreads = new Parameter(this, "numberOfThreads");
+        numberOfThreads.setExpression("1");
+        numberOfThreads.setTypeEquals(BaseType.INT);
+    }
+
+    /** Return the receivers of the input ports of the specified actor. */
+    private static List<Receiver> _inputReceivers(Actor actor)
+            throws IllegalActionException {
+        List<Receiver> result = new ArrayList<Receiver>();
+        Iterator ports = actor.inputPortList().iterator();
+        while (ports.hasNext()) {
+            Receiver[][] receivers = ((IOPort) ports.next()).getReceivers();
+            for (int i = 0; i < receivers.length; i++) {
+                if (receivers[i] != null) {
+                    for (int j = 0; j < receivers[i].length; j++) {
+                        result.add(receivers[i][j]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return true if the specified actor, which is the contained
+     *  actor, can be iterated in parallel irrespective of its inputs.
+     *  The result is cached until the model changes.
+     */
+    private boolean _isParallelizable(Actor actor)
+            throws IllegalActionException {
+        if (_isWorker || _numberOfThreads() < 2) {
+            return false;
+        }
+        long version = workspace().getVersion();
+        if (_parallelizableVersion == version) {
+            return _parallelizable;
+        }
+        _discardWorkers();
+        _parallelizableVersion = version;
+        _parallelizable = false;
+        if (entityList().size() != 1 || !ParallelFiring.isStateless(actor)) {
+            return false;
+        }
+        Iterator ports = actor.inputPortList().iterator();
+        while (ports.hasNext()) {
+            if (DFUtilities.getTokenConsumptionRate((IOPort) ports.next()) != 1) {
+                return false;
+            }
+        }
+        // Parameters that other actors change cannot be copied.
+        Iterator entities = ((CompositeEntity) toplevel()).deepEntityList()
+                .iterator();
+        while (entities.hasNext()) {
+            Object entity = entities.next();
+            if (entity instanceof ExplicitChangeContext) {
+                Iterator variables = ((ExplicitChangeContext) entity)
+                        .getModifiedVariables().iterator();
+                while (variables.hasNext()) {
+                    if (deepContains((NamedObj) variables.next())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        // Find the variables outside of this actor that the
+        // contained actor refers to.
+        _outerVariables = new HashMap<String, Variable>();
+        NamedObj container = getContainer();
+        if (container != null) {
+            List<Variable> variables = new LinkedList<Variable>();
+            _collectVariables((NamedObj) actor, variables);
+            for (Variable variable : variables) {
+                Iterator names = variable.getFreeIdentifiers().iterator();
+                while (names.hasNext()) {
+                    String name = (String) names.next();
+                    Variable outer = ModelScope.getScopedVariable(null,
+                            container, name);
+                    if (outer != null) {
+                        if (name.indexOf('.') >= 0 || name.indexOf(':') >= 0) {
+                            return false;
+                        }
+                        _outerVariables.put(name, outer);
+                    }
+                }
+            }
+        }
+        _parallelizable = true;
+        return true;
+    }
+
+    /** Return the value of the numberOfThreads parameter, or the
+     *  number of available processors if it is 0.
+     */
+    private int _numberOfThreads() throws IllegalActionException {
+        int threads = ((IntToken) numberOfThreads.getToken()).intValue();
+        if (threads < 0) {
+            throw new IllegalActionException(this,
+                    "numberOfThreads is required to be non-negative. Got "
+                            + threads);
+        }
+        if (threads == 0) {
+            threads = ParallelFiring.getParallelism();
+        }
+        return threads;
+    }
+
+    /** Return the inside receivers of the output ports of the specified
+     *  actor.
+     */
+    private static List<Receiver> _outputReceivers(IterateOverArray actor)
+            throws IllegalActionException {
+        List<Receiver> result = new ArrayList<Receiver>();
+        Iterator ports = actor.outputPortList().iterator();
+        while (ports.hasNext()) {
+            Receiver[][] receivers = ((IOPort) ports.next())
+                    .getInsideReceivers();
+            for (int i = 0; i < receivers.length; i++) {
+                if (receivers[i] != null) {
+                    for (int j = 0; j < receivers[i].length; j++) {
+                        result.add(receivers[i][j]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Put the tokens of each list into the corresponding receiver. */
+    private static void _putTokens(List<Receiver> receivers,
+            List<List<Token>> tokens) throws IllegalActionException {
+        for (int i = 0; i < receivers.size(); i++) {
+            Receiver receiver = receivers.get(i);
+            for (Token token : tokens.get(i)) {
+                receiver.put(token);
+            }
+        }
+    }
+
+    /** Return at least the specified number of copies that iterate
+     *  the contained actor in parallel, creating them if necessary,
+     *  or null if they cannot be created.
+     */
+    private List<IterateOverArray> _workers(int count) {
+        if (_workers == null) {
+            _workers = new ArrayList<IterateOverArray>(count);
+            _outerTokens = new HashMap<String, Token>();
+        }
+        try {
+            while (_workers.size() < count) {
+                _workers.add(_createWorker());
+            }
+        } catch (IllegalActionException ex) {
+            // Iterate serially from now on.
+            if (_debugging) {
+                _debug("Cannot iterate in parallel: " + ex.getMessage());
+            }
+            _parallelizable = false;
+            try {
+                _discardWorkers();
+            } catch (IllegalActionException ex2) {
+                // Ignore, the copies are not used any more.
+            }
+            return null;
+        }
+        return _workers;
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -526,7 +945,8 @@ public class IterateOverArray extends MirrorComposite {
          *  container of this director repeatedly until either it runs out
          *  of input data or prefire() returns false. If postfire() of the
          *  actor returns false, then set a flag indicating to postfire() of
-         *  this director to return false.
+         *  this director to return false. If the contained actor can be
+         *  iterated in parallel, then do that instead.
          *  @exception IllegalActionException If any called method of
          *   of the contained actor throws it, or if the contained
          *   actor is not opaque.
@@ -547,61 +967,15 @@ public class IterateOverArray extends MirrorComposite {
                                     + "(perhaps it needs a director).");
                 }
 
-                int result = Executable.COMPLETED;
-                int iterationCount = 0;
-
-                while (result != Executable.NOT_READY) {
-                    iterationCount++;
-                    _iterationCount.setToken(new IntToken(iterationCount));
-
-                    if (_debugging) {
-                        _debug(new FiringEvent(this, actor,
-                                FiringEvent.BEFORE_ITERATE, iterationCount));
-                    }
-
-                    result = actor.iterate(1);
-
-                    if (_debugging) {
-                        _debug(new FiringEvent(this, actor,
-                                FiringEvent.AFTER_ITERATE, iterationCount));
-                    }
-
-                    // Should return if there is no more input data,
-                    // irrespective of return value of prefire() of
-                    // the actor, which is not reliable.
-                    boolean outOfData = true;
-                    Iterator inPorts = actor.inputPortList().iterator();
-
-                    while (inPorts.hasNext()) {
-                        IOPort port = (IOPort) inPorts.next();
-
-                        for (int i = 0; i < port.getWidth(); i++) {
-                            if (port.hasToken(i)) {
-                                outOfData = false;
-                                break;
-                            }
-                        }
-                    }
-
-                    if (outOfData) {
-                        if (_debugging) {
-                            _debug("No more input data for: "
-                                    + ((Nameable) actor).getFullName());
-                        }
-
-                        break;
-                    }
-
-                    if (result == Executable.STOP_ITERATING) {
-                        if (_debugging) {
-                            _debug("Actor requests halt: "
-                                    + ((Nameable) actor).getFullName());
-                        }
-
-                        _postfireReturns = false;
-                        break;
-                    }
+                // Use the container rather than the enclosing instance,
+                // which is the original of a clone.
+                if (!_debugging
+                        && ((IterateOverArray) container)
+                                ._fireInParallel(actor)) {
+                    continue;
                 }
+
+                _iterate(actor, 0);
             }
         }
 
@@ -687,7 +1061,7 @@ public class IterateOverArray extends MirrorComposite {
 
             for (int i = 0; i < port.getWidthInside(); i++) {
                 try {
-                    ArrayList list = new ArrayList();
+                    ArrayList<Token> list = new ArrayList<Token>();
 
                     while (port.isKnownInside(i) && port.hasTokenInside(i)) {
                         Token t = port.getInside(i);
@@ -695,8 +1069,7 @@ public class IterateOverArray extends MirrorComposite {
                     }
 
                     if (list.size() != 0) {
-                        Token[] tokens = (Token[]) list.toArray(new Token[list
-                                .size()]);
+                        Token[] tokens = list.toArray(new Token[list.size()]);
 
                         if (_debugging) {
                             _debug(getName(),
@@ -718,6 +1091,78 @@ public class IterateOverArray extends MirrorComposite {
             return result;
         }
 
+        //////////////////////////////////////////////////////////////
+        ////                   private methods                    ////
+
+        /** Iterate the specified actor until either it runs out of
+         *  input data or prefire() returns false, counting the
+         *  iterations from the specified number. If postfire()
+         *  returns false, set _postfireReturns to false.
+         *  @return True if the actor ran out of input data.
+         */
+        private boolean _iterate(Actor actor, int iterationCount)
+                throws IllegalActionException {
+            // Use the container rather than the enclosing instance,
+            // which is the original of a clone.
+            Variable iterationCountVariable = ((IterateOverArray) getContainer())
+                    ._iterationCount;
+            int result = Executable.COMPLETED;
+
+            while (result != Executable.NOT_READY) {
+                iterationCount++;
+                iterationCountVariable.setToken(new IntToken(iterationCount));
+
+                if (_debugging) {
+                    _debug(new FiringEvent(this, actor,
+                            FiringEvent.BEFORE_ITERATE, iterationCount));
+                }
+
+                result = actor.iterate(1);
+
+                if (_debugging) {
+                    _debug(new FiringEvent(this, actor,
+                            FiringEvent.AFTER_ITERATE, iterationCount));
+                }
+
+                // Should return if there is no more input data,
+                // irrespective of return value of prefire() of
+                // the actor, which is not reliable.
+                boolean outOfData = true;
+                Iterator inPorts = actor.inputPortList().iterator();
+
+                while (inPorts.hasNext()) {
+                    IOPort port = (IOPort) inPorts.next();
+
+                    for (int i = 0; i < port.getWidth(); i++) {
+                        if (port.hasToken(i)) {
+                            outOfData = false;
+                            break;
+                        }
+                    }
+                }
+
+                if (outOfData) {
+                    if (_debugging) {
+                        _debug("No more input data for: "
+                                + ((Nameable) actor).getFullName());
+                    }
+
+                    return true;
+                }
+
+                if (result == Executable.STOP_ITERATING) {
+                    if (_debugging) {
+                        _debug("Actor requests halt: "
+                                + ((Nameable) actor).getFullName());
+                    }
+
+                    _postfireReturns = false;
+                    break;
+                }
+            }
+            return false;
+        }
+
         //////////////////////////////////////////////////////////////
         ////                   private variables                  ////
         // Indicator that at least one actor returned false in postfire.
@@ -871,4 +1316,84 @@ public class IterateOverArray extends MirrorComposite {
             }
         }
     }
+
+    ///////////////////////////////////////////////////////////////////
+    //// IterationBlock
+
+    /** A task that iterates the actor contained by a copy of an
+     *  IterateOverArray actor over a block of the input elements, and
+     *  returns the tokens produced on the inside of each output
+     *  port of the copy, or null if the actor did not consume all the
+     *  elements of the block or requested a halt.
+     */
+    private static class IterationBlock implements
+            Callable<List<List<Token>>> {
+        /** Create a task.
+         *  @param worker The copy of the IterateOverArray actor.
+         *  @param tokens The tokens for each input receiver of the
+         *   contained actor.
+         *  @param start The index of the first token of the block.
+         *  @param end The index after the last token of the block.
+         */
+        public IterationBlock(IterateOverArray worker,
+                List<List<Token>> tokens, int start, int end) {
+            _worker = worker;
+            _tokens = tokens;
+            _start = start;
+            _end = end;
+        }
+
+        /** Iterate the contained actor over the block.
+         *  @return The tokens produced on each output, or null.
+         *  @exception IllegalActionException If the actor throws it.
+         */
+        public List<List<Token>> call() throws IllegalActionException {
+            Actor actor = (Actor) _worker.entityList().get(0);
+            List<Receiver> inputs = _inputReceivers(actor);
+            for (int i = 0; i < inputs.size(); i++) {
+                Receiver receiver = inputs.get(i);
+                List<Token> tokens = _tokens.get(i);
+                for (int j = _start; j < _end; j++) {
+                    receiver.put(tokens.get(j));
+                }
+            }
+            IterateDirector director = (IterateDirector) _worker
+                    .getDirector();
+            director._postfireReturns = true;
+            boolean outOfData = director._iterate(actor, _start);
+
+            List<Receiver> outputs = _outputReceivers(_worker);
+            List<List<Token>> result = new ArrayList<List<Token>>(outputs
+                    .size());
+            for (Receiver receiver : outputs) {
+                List<Token> tokens = new ArrayList<Token>();
+                while (receiver.hasToken()) {
+                    tokens.add(receiver.get());
+                }
+                result.add(tokens);
+            }
+            if (!outOfData || !director._postfireReturns) {
+                for (Receiver receiver : inputs) {
+                    receiver.clear();
+                }
+                return null;
+            }
+            return result;
+        }
+
+        //////////////////////////////////////////////////////////////
+        ////                   private variables                  ////
+
+        // The index after the last token of the block.
+        private int _end;
+
+        // The index of the first token of the block.
+        private int _start;
+
+        // The tokens for each input receiver of the contained actor.
+        private List<List<Token>> _tokens;
+
+        // The copy of the IterateOverArray actor.
+        private IterateOverArray _worker;
+    }
 }
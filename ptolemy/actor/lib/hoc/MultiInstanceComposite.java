@@ -31,13 +31,23 @@
  */
 package ptolemy.actor.lib.hoc;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
+import ptolemy.actor.Actor;
+import ptolemy.actor.Director;
+import ptolemy.actor.IOPort;
 import ptolemy.actor.TypedCompositeActor;
 import ptolemy.actor.TypedIOPort;
 import ptolemy.actor.TypedIORelation;
+import ptolemy.actor.sched.Firing;
+import ptolemy.actor.sched.Schedule;
+import ptolemy.actor.sched.StaticSchedulingDirector;
 import ptolemy.data.BooleanToken;
 import ptolemy.data.IntToken;
 import ptolemy.data.expr.Parameter;
@@ -107,6 +117,23 @@ import ptolemy.kernel.util.Workspace;
  ScopeExtendingAttribute for the cloning() and wrapup() phases of the
  clones.<p>
 
+ If the {@link #numberOfThreads} parameter of the master is not 1, then
+ the instances may be fired concurrently in the pool of threads shared
+ by the higher-order components (see {@link ParallelFiring}). This is
+ done only if the instances are isolated (see
+ {@link ParallelFiring#isIsolated(Actor)}), no instance is connected to
+ another, both the director of the container and the director inside
+ are instances of StaticSchedulingDirector that fire the actors in the
+ order of the schedule, and in the schedule, the instances are fired
+ one after the other with the same iteration count. In that case, the
+ instance that is fired first fires all the instances, and each of the
+ other instances keeps the results of its iterations and returns them
+ when it is iterated by the director. The tokens that
+ the instances consume and produce are the same as with serial
+ execution. Otherwise, for example under a DE director, whose
+ receivers share the event queue of the director, the instances are
+ fired serially.<p>
+
  @author Zoltan Kemenczy, Sean Simmons, Research In Motion Limited
  @version $Id$
  @since Ptolemy II 4.0
@@ -149,6 +176,14 @@ public class MultiInstanceComposite extends TypedCompositeActor {
     /** The index of this instance. */
     public Parameter instance;
 
+    /** The number of threads used to fire the instances. This
+     *  parameter must contain a non-negative IntToken. The value 1,
+     *  which is the default, means to fire the instances serially,
+     *  and the value 0 means to use the number of available processors.
+     *  Only the value of the master copy is used.
+     */
+    public Parameter numberOfThreads;
+
     /** If true, show the clones. */
     public Parameter showClones;
 
@@ -164,9 +199,100 @@ public class MultiInstanceComposite extends TypedCompositeActor {
         MultiInstanceComposite newObject = (MultiInstanceComposite) super
                 .clone(workspace);
         newObject._isMasterCopy = _isMasterCopy;
+        newObject._clones = new LinkedList<MultiInstanceComposite>();
+        newObject._leader = null;
+        newObject._master = null;
+        newObject._parallelSchedule = null;
+        newObject._results = null;
         return newObject;
     }
 
+    /** If the instances can be fired in parallel and this is the
+     *  instance that is fired first in the schedule, fire all the
+     *  instances. The other instances perform an iteration and keep
+     *  the result until they are iterated. If this instance has
+     *  already been iterated in this way, do nothing. Otherwise,
+     *  invoke the fire() method of the base class.
+     *  @exception IllegalActionException If an instance throws it.
+     */
+    public void fire() throws IllegalActionException {
+        if (_hasResults()) {
+            return;
+        }
+        MultiInstanceComposite master = _isMasterCopy ? this : _master;
+        if (master == null || !master._isParallelizable()
+                || master._leader != this) {
+            super.fire();
+            return;
+        }
+        List<MultiInstanceComposite> instances = new ArrayList<MultiInstanceComposite>(
+                master._clones.size() + 1);
+        instances.add(master);
+        instances.addAll(master._clones);
+        int threads = Math.min(master._numberOfThreads(), instances.size());
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(threads);
+        for (int i = 0; i < threads; i++) {
+            final List<MultiInstanceComposite> group = instances.subList(i
+                    * instances.size() / threads, (i + 1) * instances.size()
+                    / threads);
+            tasks.add(new Callable<Object>() {
+                public Object call() throws IllegalActionException {
+                    for (MultiInstanceComposite instance : group) {
+                        if (instance == MultiInstanceComposite.this) {
+                            instance._fireInstance();
+                        } else {
+                            instance._iterateAhead();
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        ParallelFiring.invokeAll(this, tasks, _workspace);
+    }
+
+    /** Discard the results of the iterations that were performed
+     *  when another instance was fired, and invoke the initialize()
+     *  method of the base class.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    public void initialize() throws IllegalActionException {
+        _results = null;
+        super.initialize();
+    }
+
+    /** If this instance has already been iterated when another instance
+     *  was fired, return false if that iteration returned
+     *  STOP_ITERATING, and true otherwise. Otherwise, invoke the postfire()
+     *  method of the base class.
+     *  @return True if execution can continue into the next iteration.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    public boolean postfire() throws IllegalActionException {
+        if (_hasResults()) {
+            return _results.removeFirst().intValue() != STOP_ITERATING;
+        }
+        return super.postfire();
+    }
+
+    /** If this instance has already been iterated when another instance
+     *  was fired, return false if that iteration returned
+     *  NOT_READY, and true otherwise. Otherwise, invoke the prefire()
+     *  method of the base class.
+     *  @return True if the instance is ready to fire.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    public boolean prefire() throws IllegalActionException {
+        if (_hasResults()) {
+            if (_results.getFirst().intValue() == NOT_READY) {
+                _results.removeFirst();
+                return false;
+            }
+            return true;
+        }
+        return super.prefire();
+    }
+
     /** Call the base class to perform standard preinitialize(), and, if
      * this is the master copy, proceed to create {@link #nInstances}-1
      * additional copies, and link them to the same input/output ports
@@ -418,6 +544,7 @@ public class MultiInstanceComposite extends TypedCompositeActor {
         MultiInstanceComposite newObject = (MultiInstanceComposite) super
                 .clone(workspace);
         newObject._isMasterCopy = false;
+        newObject._master = this;
         // The following is necessary in case an exception occurs
         // during execution because then wrapup might not properly complete.
         newObject.setPersistent(false);
@@ -436,6 +563,9 @@ public class MultiInstanceComposite extends TypedCompositeActor {
             showClones = new Parameter(this, "showClones", new BooleanToken(
                     false));
             showClones.setTypeEquals(BaseType.BOOLEAN);
+            numberOfThreads = new Parameter(this, "numberOfThreads",
+                    new IntToken(1));
+            numberOfThreads.setTypeEquals(BaseType.INT);
         } catch (Exception ex) {
             throw new InternalErrorException(this, ex,
                     "Problem setting up instances or nInstances parameter");
@@ -467,6 +597,145 @@ public class MultiInstanceComposite extends TypedCompositeActor {
                 + "<line x1=\"0\" y1=\"0\" x2=\"5\" y2=\"0\"/>" + "</svg>\n");
     }
 
+    /** Return true if the specified director fires actors as
+     *  StaticSchedulingDirector does, rather than overriding fire().
+     */
+    private static boolean _firesInScheduleOrder(Director director) {
+        try {
+            return director.getClass().getMethod("fire", new Class[0])
+                    .getDeclaringClass() == StaticSchedulingDirector.class;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /** Invoke the fire() method of the base class. */
+    private void _fireInstance() throws IllegalActionException {
+        super.fire();
+    }
+
+    /** Return true if this instance has been iterated when another
+     *  instance was fired and the results have not been returned yet.
+     */
+    private boolean _hasResults() {
+        return _results != null && !_results.isEmpty();
+    }
+
+    /** Return true if the instances can be fired in parallel.
+     *  The result is cached until the model or the schedule changes.
+     */
+    private boolean _isParallelizable() throws IllegalActionException {
+        if (_debugging || _clones.isEmpty() || _numberOfThreads() < 2) {
+            return false;
+        }
+        Director executive = getExecutiveDirector();
+        if (!(executive instanceof StaticSchedulingDirector)
+                || !_firesInScheduleOrder(executive)) {
+            return false;
+        }
+        Schedule schedule = ((StaticSchedulingDirector) executive)
+                .getScheduler().getSchedule();
+        long version = _workspace.getVersion();
+        if (schedule == _parallelSchedule && version == _parallelVersion) {
+            return _parallelizable;
+        }
+        _parallelSchedule = schedule;
+        _parallelVersion = version;
+        _parallelizable = false;
+
+        Set<Actor> instances = new HashSet<Actor>(_clones);
+        instances.add(this);
+        for (Actor instance : instances) {
+            if (!ParallelFiring.isIsolated(instance)) {
+                return false;
+            }
+            Iterator ports = instance.outputPortList().iterator();
+            while (ports.hasNext()) {
+                Iterator sinks = ((IOPort) ports.next()).sinkPortList()
+                        .iterator();
+                while (sinks.hasNext()) {
+                    if (instances.contains(((IOPort) sinks.next())
+                            .getContainer())) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        // The instances have to be fired one after the other with the
+        // same iteration count, so that the instance that is fired
+        // first can fire the others.
+        List<Firing> firings = new ArrayList<Firing>();
+        Iterator firingIterator = schedule.firingIterator();
+        while (firingIterator.hasNext()) {
+            firings.add((Firing) firingIterator.next());
+        }
+        _leader = null;
+        int i = 0;
+        while (i < firings.size()) {
+            Firing firing = firings.get(i);
+            if (!instances.contains(firing.getActor())) {
+                i++;
+                continue;
+            }
+            if (i + instances.size() > firings.size()
+                    || (_leader != null && _leader != firing.getActor())) {
+                return false;
+            }
+            Set<Actor> fired = new HashSet<Actor>();
+            for (int j = 0; j < instances.size(); j++) {
+                Firing next = firings.get(i + j);
+                if (!instances.contains(next.getActor())
+                        || next.getIterationCount() != firing
+                                .getIterationCount()) {
+                    return false;
+                }
+                fired.add(next.getActor());
+            }
+            if (fired.size() != instances.size()) {
+                return false;
+            }
+            _leader = (MultiInstanceComposite) firing.getActor();
+            i += instances.size();
+        }
+        if (_leader == null) {
+            return false;
+        }
+        _parallelizable = true;
+        return true;
+    }
+
+    /** Perform one iteration of this instance, and keep the result so
+     *  that it is returned when the instance is iterated by the director.
+     */
+    private void _iterateAhead() throws IllegalActionException {
+        int result = NOT_READY;
+        if (super.prefire()) {
+            super.fire();
+            result = super.postfire() ? COMPLETED : STOP_ITERATING;
+        }
+        if (_results == null) {
+            _results = new LinkedList<Integer>();
+        }
+        _results.add(Integer.valueOf(result));
+    }
+
+    /** Return the value of the numberOfThreads parameter, or the
+     *  number of available processors if it is 0.
+     */
+    private int _numberOfThreads() throws IllegalActionException {
+        int threads = ((IntToken) numberOfThreads.getToken()).intValue();
+        if (threads < 0) {
+            throw new IllegalActionException(this,
+                    "numberOfThreads is required to be non-negative. Got "
+                            + threads);
+        }
+        if (threads == 0) {
+            threads = ParallelFiring.getParallelism();
+        }
+        return threads;
+    }
+
     private void _preinitClone() throws IllegalActionException {
         super.preinitialize();
     }
@@ -477,5 +746,24 @@ public class MultiInstanceComposite extends TypedCompositeActor {
 
     private boolean _isMasterCopy = false;
 
+    // In the master, the instance that fires all the instances.
+    private MultiInstanceComposite _leader;
+
+    // In a clone, the master copy.
+    private MultiInstanceComposite _master;
+
+    // True if the instances can be fired in parallel.
+    private boolean _parallelizable;
+
+    // The schedule for which _parallelizable was determined.
+    private Schedule _parallelSchedule;
+
+    // The workspace version for which _parallelizable was determined.
+    private long _parallelVersion = -1L;
+
+    // The results of the iterations that were performed when
+    // another instance was fired.
+    private LinkedList<Integer> _results;
+
     //private String _scopeExtendingAttributeName = "_micScopeExtender";
 }
@@ -0,0 +1,366 @@
+/* A pool of threads for firing independent actors in parallel.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor.lib.hoc;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import ptolemy.actor.Actor;
+import ptolemy.actor.AtomicActor;
+import ptolemy.actor.CompositeActor;
+import ptolemy.actor.Director;
+import ptolemy.actor.TypedAtomicActor;
+import ptolemy.actor.lib.SetVariable;
+import ptolemy.actor.parameters.SharedParameter;
+import ptolemy.actor.sched.StaticSchedulingDirector;
+import ptolemy.actor.util.ExplicitChangeContext;
+import ptolemy.data.DoubleToken;
+import ptolemy.data.IntToken;
+import ptolemy.data.Token;
+import ptolemy.data.expr.Variable;
+import ptolemy.kernel.util.Attribute;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.Nameable;
+import ptolemy.kernel.util.NamedObj;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// ParallelFiring
+
+/**
+ A pool of threads shared by the higher-order components that fire
+ independent instances or iterations of an actor concurrently, such as
+ {@link MultiInstanceComposite} and {@link IterateOverArray}, together
+ with the tests that those components use to decide whether it is safe
+ to do so.
+ <p>
+ The pool has one daemon thread per available processor. The
+ {@link #invokeAll(Nameable, List, Workspace)} method hands a list of
+ tasks to the pool and then runs, in the calling thread, each of the
+ tasks that no thread of the pool has started yet. A thread that waits
+ for its tasks therefore always has work to do until the last task has
+ started, so a task may itself call invokeAll() without risk of
+ deadlock, and the pool may be shared by nested components.
+ The results are returned in the order of the tasks, irrespective of
+ the order in which the tasks complete, so the outputs that are built
+ from them are deterministic.
+ <p>
+ An actor can be fired concurrently with other actors only if
+ firing it affects nothing but its own state and the tokens it
+ produces. {@link #isIsolated(Actor)} returns false for actors that
+ are known to share state, and {@link #isStateless(Actor)} further
+ returns false for actors whose firings may depend on earlier
+ firings. Both tests are conservative. The components that use
+ them fire the actors serially if the tests fail.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class ParallelFiring {
+
+    /** Instances of this class cannot be created.
+     */
+    private ParallelFiring() {
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the number of tasks that can run at the same time,
+     *  which is the number of available processors.
+     *  @return The number of tasks that can run at the same time.
+     */
+    public static int getParallelism() {
+        return _PARALLELISM;
+    }
+
+    /** Run the specified tasks, using the threads of the pool as well
+     *  as the calling thread, and return their results in the order
+     *  of the tasks. The first task is run in the calling thread.
+     *  While waiting for tasks that are run by other threads, the
+     *  calling thread releases the read access that it holds on the
+     *  specified workspace, if any, because those tasks may need read
+     *  access, which they do not get if another thread is waiting for
+     *  write access.
+     *  @param context The object in which a failure is reported.
+     *  @param tasks The tasks.
+     *  @param workspace The workspace to release while waiting, or
+     *   null to not release any workspace.
+     *  @param <T> The type of the results of the tasks.
+     *  @return The results of the tasks.
+     *  @exception IllegalActionException If any task throws it, or if
+     *   a task fails with an exception that is not a runtime exception.
+     *   If several tasks fail, the failure of the first of them in the
+     *   order of the list is reported.
+     */
+    public static <T> List<T> invokeAll(Nameable context,
+            List<Callable<T>> tasks, Workspace workspace)
+            throws IllegalActionException {
+        List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>(
+                tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new FutureTask<T>(task));
+        }
+        for (int i = 1; i < futures.size(); i++) {
+            _executor().execute(futures.get(i));
+        }
+        // Run the tasks that no thread of the pool has started.
+        // Running a task that has already started has no effect.
+        for (FutureTask<T> future : futures) {
+            future.run();
+        }
+
+        int depth = 0;
+        if (workspace != null) {
+            depth = workspace.releaseReadPermission();
+        }
+        List<T> results = new ArrayList<T>(futures.size());
+        Throwable failure = null;
+        try {
+            for (FutureTask<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                } catch (InterruptedException ex) {
+                    if (failure == null) {
+                        failure = ex;
+                    }
+                }
+            }
+        } finally {
+            if (depth > 0) {
+                workspace.reacquireReadPermission(depth);
+            }
+        }
+        if (failure instanceof IllegalActionException) {
+            throw (IllegalActionException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalActionException(context, failure,
+                    "Failed to fire in parallel.");
+        }
+        return results;
+    }
+
+    /** Return true if firing the specified actor can affect nothing
+     *  but the state of the actor and the tokens that it produces.
+     *  This returns false if the actor is or deeply contains
+     *  <ul>
+     *  <li> a SharedParameter, which shares its value with other
+     *  instances, other than a parameter of a director, such as
+     *  <i>timeResolution</i>, which is not changed during execution;
+     *  <li> an atomic actor that is an ExplicitChangeContext or a
+     *  SetVariable, which change parameters of other objects;
+     *  <li> an atomic actor with no output ports, which is a sink
+     *  such as a display or a file writer;
+     *  <li> a director that is not a StaticSchedulingDirector, or one
+     *  with a nonzero <i>period</i> parameter, which may request
+     *  firings from the enclosing director.
+     *  </ul>
+     *  @param actor The actor.
+     *  @return True if the actor can be fired concurrently with
+     *   other actors.
+     *  @exception IllegalActionException If a parameter of a director
+     *   cannot be evaluated.
+     */
+    public static boolean isIsolated(Actor actor)
+            throws IllegalActionException {
+        if (_containsSharedParameter((NamedObj) actor)) {
+            return false;
+        }
+        if (actor instanceof AtomicActor) {
+            return !(actor instanceof ExplicitChangeContext)
+                    && !(actor instanceof SetVariable)
+                    && !actor.outputPortList().isEmpty();
+        }
+        if (!(actor instanceof CompositeActor)) {
+            return false;
+        }
+        CompositeActor composite = (CompositeActor) actor;
+        if (composite.isOpaque()) {
+            Director director = composite.getDirector();
+            if (!(director instanceof StaticSchedulingDirector)
+                    || _intValue(director, "period") != 0) {
+                return false;
+            }
+        }
+        Iterator entities = composite.entityList().iterator();
+        while (entities.hasNext()) {
+            Object entity = entities.next();
+            if (!(entity instanceof Actor) || !isIsolated((Actor) entity)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return true if the specified actor is isolated, as defined by
+     *  {@link #isIsolated(Actor)}, and the tokens that it produces
+     *  when it is fired depend only on the tokens it consumes and on
+     *  its parameters, but not on earlier firings. Such an actor can
+     *  be fired on any subset of its inputs in any order. This is the
+     *  case if every atomic actor that it deeply contains is fire
+     *  functional and does not override the initialize() or
+     *  postfire() methods of AtomicActor, where such actors typically
+     *  reset or update their state, and if no director that it deeply
+     *  contains limits the number of iterations.
+     *  @param actor The actor.
+     *  @return True if the actor is isolated and stateless.
+     *  @exception IllegalActionException If a parameter of a director
+     *   cannot be evaluated.
+     */
+    public static boolean isStateless(Actor actor)
+            throws IllegalActionException {
+        return isIsolated(actor) && _isStateless(actor);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return true if the specified object deeply contains a
+     *  SharedParameter that is not contained by a director.
+     */
+    private static boolean _containsSharedParameter(NamedObj object) {
+        Iterator objects = object.containedObjectsIterator();
+        while (objects.hasNext()) {
+            NamedObj contained = (NamedObj) objects.next();
+            if (contained instanceof Director) {
+                continue;
+            }
+            if (contained instanceof SharedParameter
+                    || _containsSharedParameter(contained)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the pool of threads, creating it if necessary. */
+    private static synchronized ExecutorService _executor() {
+        if (_executor == null) {
+            _executor = Executors.newFixedThreadPool(_PARALLELISM,
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable,
+                                    "ParallelFiring-" + (++_threadCount));
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return _executor;
+    }
+
+    /** Return true if the specified method of the class of the
+     *  specified actor is declared in AtomicActor or TypedAtomicActor.
+     */
+    private static boolean _inherited(Actor actor, String name) {
+        try {
+            Method method = actor.getClass().getMethod(name, new Class[0]);
+            Class declaringClass = method.getDeclaringClass();
+            return declaringClass == AtomicActor.class
+                    || declaringClass == TypedAtomicActor.class;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /** Return the value of the specified numeric parameter of the
+     *  specified object, truncated to an int, or 0 if there is no
+     *  such parameter.
+     */
+    private static int _intValue(NamedObj object, String name)
+            throws IllegalActionException {
+        Attribute attribute = object.getAttribute(name);
+        if (!(attribute instanceof Variable)) {
+            return 0;
+        }
+        Token token = ((Variable) attribute).getToken();
+        if (token instanceof IntToken) {
+            return ((IntToken) token).intValue();
+        } else if (token instanceof DoubleToken) {
+            double value = ((DoubleToken) token).doubleValue();
+            return value == 0.0 ? 0 : 1;
+        }
+        return 0;
+    }
+
+    /** Return true if the specified actor, which is isolated, is
+     *  stateless.
+     */
+    private static boolean _isStateless(Actor actor)
+            throws IllegalActionException {
+        if (actor instanceof AtomicActor) {
+            return ((AtomicActor) actor).isFireFunctional()
+                    && _inherited(actor, "initialize")
+                    && _inherited(actor, "postfire");
+        }
+        CompositeActor composite = (CompositeActor) actor;
+        if (composite.isOpaque()
+                && _intValue(composite.getDirector(), "iterations") > 0) {
+            return false;
+        }
+        Iterator entities = composite.entityList().iterator();
+        while (entities.hasNext()) {
+            if (!_isStateless((Actor) entities.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The pool of threads. */
+    private static ExecutorService _executor;
+
+    /** The number of tasks that can run at the same time. */
+    private static final int _PARALLELISM = Runtime.getRuntime()
+            .availableProcessors();
+
+    /** The number of threads created by the pool. */
+    private static int _threadCount;
+}
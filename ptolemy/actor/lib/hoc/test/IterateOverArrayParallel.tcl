@@ -0,0 +1,121 @@
+# Test iterating over arrays in parallel in IterateOverArray
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+if {[info procs getParameter] == "" } then {
+    source [file join $PTII util testsuite models.tcl]
+}
+
+# Execute the model and return the number of tokens that the
+# contained actors of the IterateOverArray actors received.  When the
+# contained actor is iterated in parallel, copies of it are fired, so
+# the contained actor itself receives no tokens.
+proc tokensReceived {toplevel manager} {
+    set names {ScaleByGain.Scale ScaleByIteration.Scale \
+		   Differentiate.Differential}
+    $manager enableExecutionMetrics true
+    $manager initialize
+    set metrics [$manager getExecutionMetrics]
+    foreach name $names {
+	set actorMetrics($name) [$metrics getActorMetrics \
+		[java::cast ptolemy.actor.Actor [$toplevel getEntity $name]]]
+    }
+    for {set i 0} {$i < 5} {incr i} {
+	$manager iterate
+    }
+    $manager wrapup
+    set result {}
+    foreach name $names {
+	lappend result [[$actorMetrics($name) getTokensReceived] get input]
+    }
+    $manager enableExecutionMetrics false
+    return $result
+}
+
+######################################################################
+####
+#
+test IterateOverArrayParallel-1.1 {isStateless} {
+    set w [java::new ptolemy.kernel.util.Workspace w]
+    set e0 [java::new ptolemy.actor.TypedCompositeActor $w]
+    set scale [java::new ptolemy.actor.lib.Scale $e0 scale]
+    set differential [java::new ptolemy.actor.lib.Differential \
+	    $e0 differential]
+    list [java::call ptolemy.actor.lib.hoc.ParallelFiring isStateless \
+	    $scale] \
+	[java::call ptolemy.actor.lib.hoc.ParallelFiring isStateless \
+	    $differential]
+} {1 0}
+
+######################################################################
+####
+#
+test IterateOverArrayParallel-2.1 {Stateless actors are iterated in parallel, the Differential serially} {
+    set parser [java::new ptolemy.moml.MoMLParser]
+    $parser reset
+    set toplevel [java::cast ptolemy.actor.TypedCompositeActor \
+	    [$parser parseFile auto/IterateOverArrayParallel.xml]]
+    set manager [java::new ptolemy.actor.Manager \
+            [$toplevel workspace] "manager"]
+    $toplevel setManager $manager
+    # The NonStrictTest actors of the model check the outputs.
+    tokensReceived $toplevel $manager
+} {0 0 50}
+
+######################################################################
+####
+#
+test IterateOverArrayParallel-2.2 {Change a variable outside of the actor between runs} {
+    set gain [java::cast ptolemy.data.expr.Parameter \
+	    [$toplevel getAttribute gain]]
+    $gain setExpression 3
+    set correctValues [getParameter \
+	    [$toplevel getEntity TestScaleByGain] correctValues]
+    $correctValues setExpression {{{0, 3, 6, 9, 12, 15, 18, 21, 24, 27}, {30, 33, 36, 39, 42, 45, 48, 51, 54, 57}, {60, 63, 66, 69, 72, 75, 78, 81, 84, 87}, {90, 93, 96, 99, 102, 105, 108, 111, 114, 117}, {120, 123, 126, 129, 132, 135, 138, 141, 144, 147}}}
+    tokensReceived $toplevel $manager
+} {0 0 50}
+
+######################################################################
+####
+#
+test IterateOverArrayParallel-2.3 {With numberOfThreads set to 1, iterate serially} {
+    set numberOfThreads [getParameter \
+	    [$toplevel getEntity ScaleByGain] numberOfThreads]
+    $numberOfThreads setExpression 1
+    tokensReceived $toplevel $manager
+} {50 0 50}
@@ -28,17 +28,31 @@
 package ptolemy.actor.lib.io;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.StringTokenizer;
 
+import ptolemy.actor.TypeAttribute;
+import ptolemy.data.ArrayToken;
+import ptolemy.data.BooleanArrayToken;
 import ptolemy.data.BooleanToken;
+import ptolemy.data.DoubleArrayToken;
+import ptolemy.data.DoubleToken;
+import ptolemy.data.IntArrayToken;
+import ptolemy.data.IntToken;
+import ptolemy.data.LongArrayToken;
+import ptolemy.data.LongToken;
+import ptolemy.data.MatrixToken;
 import ptolemy.data.OrderedRecordToken;
 import ptolemy.data.RecordToken;
 import ptolemy.data.StringToken;
+import ptolemy.data.Token;
 import ptolemy.data.expr.FileParameter;
 import ptolemy.data.expr.Parameter;
 import ptolemy.data.expr.SingletonParameter;
 import ptolemy.data.expr.StringParameter;
+import ptolemy.data.type.ArrayType;
 import ptolemy.data.type.BaseType;
 import ptolemy.data.type.RecordType;
 import ptolemy.data.type.Type;
@@ -47,6 +61,7 @@ import ptolemy.kernel.util.Attribute;
 import ptolemy.kernel.util.IllegalActionException;
 import ptolemy.kernel.util.NameDuplicationException;
 import ptolemy.kernel.util.Settable;
+import ptolemy.kernel.util.Workspace;
 
 ///////////////////////////////////////////////////////////////////
 //// CSVReader
@@ -57,7 +72,7 @@ import ptolemy.kernel.util.Settable;
  except the first as a record. The first line of the file gives
  the names of the fields of the output records.
  The remaining lines give the values of the fields,
- which all have type String. The output is an ordered
+ which by default all have type String. The output is an ordered
  record token, which means that the order defined in the
  first line is preserved.
  </p><p>
@@ -66,6 +81,24 @@ import ptolemy.kernel.util.Settable;
  If any line has fewer values than the first line, then the
  field values will be an empty string.
  </p><p>
+ The values of fields can be converted to other types by declaring
+ the type of the <i>output</i> port to be a record type, for example
+ <code>{x = double, y = int}</code>. Each field that is present in the
+ declared type and has type double, int, long or boolean is parsed
+ directly from the line into a token of that type. Fields that
+ are not present in the declared type are strings. A missing value
+ of a field of type double is NaN. A missing value of a field of any
+ other non-string type is an error.
+ </p><p>
+ If the <i>rowsPerOutput</i> parameter is greater than one, then
+ each output is a record of arrays, where each array holds the values
+ of one field in up to <i>rowsPerOutput</i> consecutive lines.
+ The last output may have fewer rows. Arrays of doubles, ints, longs
+ and booleans are represented by arrays of primitive values, so this is
+ considerably more efficient than producing one record per line.
+ In this case, the declared type of a field may also be an array type,
+ such as <code>{x = {double}}</code>.
+ </p><p>
  By default, the separator between field names and values is a comma,
  so the file format is the standard CSV (comma-separated value) format.
  The <i>separator</i> parameter enables changing the separator to
@@ -130,6 +163,10 @@ public class CSVReader extends LineReader {
         trimSpaces.setTypeEquals(BaseType.BOOLEAN);
         trimSpaces.setExpression("true");
 
+        rowsPerOutput = new Parameter(this, "rowsPerOutput");
+        rowsPerOutput.setTypeEquals(BaseType.INT);
+        rowsPerOutput.setExpression("1");
+
         new SingletonParameter(endOfFile, "_showName")
                 .setToken(BooleanToken.TRUE);
 
@@ -146,6 +183,13 @@ public class CSVReader extends LineReader {
     ///////////////////////////////////////////////////////////////////
     ////                     ports and parameters                  ////
 
+    /** The number of lines that are combined into one output.
+     *  This is an int that defaults to 1, which results in one
+     *  record per line. If it is greater than 1, then each output
+     *  is a record of arrays.
+     */
+    public Parameter rowsPerOutput;
+
     /** A specification of the separator between items in the table.
      *  The default is "comma", which results in assuming that fields
      *  are separated by commas. If the value is changed to "tab", then
@@ -175,7 +219,9 @@ public class CSVReader extends LineReader {
      *  @exception IllegalActionException If the specified attribute
      *   is <i>fileOrURL</i> and the file cannot be opened, or the previously
      *   opened file cannot be closed; or if the attribute is
-     *   <i>numberOfLinesToSkip</i> and its value is negative.
+     *   <i>numberOfLinesToSkip</i> and its value is negative; or if
+     *   the attribute is <i>rowsPerOutput</i> and its value is not
+     *   positive.
      */
     public void attributeChanged(Attribute attribute)
             throws IllegalActionException {
@@ -188,14 +234,36 @@ public class CSVReader extends LineReader {
             } else if (_delimiter.equals("semicolon")) {
                 _delimiter = ";";
             }
+        } else if (attribute == rowsPerOutput) {
+            if (((IntToken) rowsPerOutput.getToken()).intValue() < 1) {
+                throw new IllegalActionException(this,
+                        "The number of rows per output must be positive.");
+            }
         } else {
             super.attributeChanged(attribute);
         }
     }
 
+    /** Clone the actor into the specified workspace.
+     *  @param workspace The workspace for the new object.
+     *  @return A new actor.
+     *  @exception CloneNotSupportedException If a derived class contains
+     *   an attribute that cannot be cloned.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        CSVReader newObject = (CSVReader) super.clone(workspace);
+        newObject._batch = null;
+        newObject._fieldKinds = null;
+        newObject._fieldNames = null;
+        newObject._fieldEnds = null;
+        newObject._fieldStarts = null;
+        return newObject;
+    }
+
     /** Output the data read in the preinitialize() or in the previous
      *  invocation of postfire(), if there is any.
-     *  @exception IllegalActionException If there's no director.
+     *  @exception IllegalActionException If there's no director,
+     *   or if a field cannot be converted to its declared type.
      */
     public void fire() throws IllegalActionException {
         // Cannot invoke super.fire() because it produces the wrong
@@ -213,26 +281,13 @@ public class CSVReader extends LineReader {
                 trigger.get(i);
             }
         }
-        if (_currentLine != null) {
-            StringTokenizer tokenizer = new StringTokenizer(_currentLine,
-                    _delimiter);
-            int i = 0;
-            StringToken[] fieldValues = new StringToken[_fieldNames.length];
-            while (tokenizer.hasMoreTokens()) {
-                if (i >= _fieldNames.length) {
-                    // Ignore additional fields.
-                    break;
-                }
-                String nextToken = tokenizer.nextToken();
-                if (((BooleanToken) trimSpaces.getToken()).booleanValue()) {
-                    nextToken = nextToken.trim();
-                }
-                fieldValues[i] = new StringToken(nextToken);
-                i++;
-            }
-            while (i < _fieldNames.length) {
-                fieldValues[i] = new StringToken("");
-                i++;
+        if (_batch != null) {
+            output.broadcast(_batch);
+        } else if (_currentLine != null) {
+            int count = _split(_currentLine);
+            Token[] fieldValues = new Token[_fieldNames.length];
+            for (int i = 0; i < _fieldNames.length; i++) {
+                fieldValues[i] = _parseField(_currentLine, i, count);
             }
             RecordToken outputValue = new OrderedRecordToken(_fieldNames,
                     fieldValues);
@@ -250,6 +305,8 @@ public class CSVReader extends LineReader {
      *  wrapup() has been called, then first close any
      *  open file re-open it, and read and discard the first line.
      *  This occurs if this actor is re-initialized during a run of the model.
+     *  If <i>rowsPerOutput</i> is greater than one, then also read the
+     *  lines of the first output.
      *  @exception IllegalActionException If the file or URL cannot be
      *   opened, or if the lines to be skipped and the first line to be
      *   sent out in the fire() method cannot be read.
@@ -269,6 +326,26 @@ public class CSVReader extends LineReader {
         } catch (IOException ex) {
             throw new IllegalActionException(this, ex, "initialize() failed");
         }
+        _batch = null;
+        if (_currentLine != null && _rowsPerOutput > 1) {
+            _readBatch();
+        }
+    }
+
+    /** Read the next line from the file, or, if <i>rowsPerOutput</i>
+     *  is greater than one, the lines of the next output.
+     *  If the current line is the last line in the file,
+     *  then return false.
+     *  @exception IllegalActionException If there is a problem reading
+     *   the file.
+     */
+    public boolean postfire() throws IllegalActionException {
+        boolean returnValue = super.postfire();
+        _batch = null;
+        if (_currentLine != null && _rowsPerOutput > 1) {
+            _readBatch();
+        }
+        return returnValue;
     }
 
     /** Open the file or URL, skip the number of lines specified by the
@@ -277,9 +354,13 @@ public class CSVReader extends LineReader {
      *  This is done in preinitialize() so
      *  that derived classes can extract information from the file
      *  that affects information used in type resolution or scheduling.
+     *  The type of the output is set to a record with the fields
+     *  given by the first line and the types given by the declared
+     *  type of the output port, if any.
      *  @exception IllegalActionException If the file or URL cannot be
      *   opened, or if the lines to be skipped and the first line to be
-     *   sent out in the fire() method cannot be read.
+     *   sent out in the fire() method cannot be read, or if a
+     *   declared field type is not supported.
      */
     public void preinitialize() throws IllegalActionException {
         super.preinitialize();
@@ -306,21 +387,393 @@ public class CSVReader extends LineReader {
         }
         _fieldNames = new String[1];
         _fieldNames = fieldNames.toArray(_fieldNames);
+        _fieldStarts = new int[_fieldNames.length];
+        _fieldEnds = new int[_fieldNames.length];
+        _fieldKinds = new int[_fieldNames.length];
+        _rowsPerOutput = ((IntToken) rowsPerOutput.getToken()).intValue();
+        _trimSpaces = ((BooleanToken) trimSpaces.getToken()).booleanValue();
+
+        // Find the declared type of the output, if any. The type of the
+        // output port cannot be used, because it is set below.
+        RecordType declaredType = null;
+        Iterator<?> typeAttributes = output.attributeList(TypeAttribute.class)
+                .iterator();
+        if (typeAttributes.hasNext()) {
+            Token prototype = ((TypeAttribute) typeAttributes.next())
+                    .getToken();
+            if (prototype != null && prototype.getType() instanceof RecordType) {
+                declaredType = (RecordType) prototype.getType();
+            }
+        }
 
         Type[] fieldTypes = new Type[_fieldNames.length];
         for (int i = 0; i < _fieldNames.length; i++) {
-            fieldTypes[i] = BaseType.STRING;
+            Type fieldType = BaseType.STRING;
+            if (declaredType != null && declaredType.get(_fieldNames[i]) != null) {
+                fieldType = declaredType.get(_fieldNames[i]);
+                if (fieldType instanceof ArrayType) {
+                    fieldType = ((ArrayType) fieldType).getElementType();
+                }
+            }
+            if (fieldType == BaseType.DOUBLE) {
+                _fieldKinds[i] = _DOUBLE;
+            } else if (fieldType == BaseType.INT) {
+                _fieldKinds[i] = _INT;
+            } else if (fieldType == BaseType.LONG) {
+                _fieldKinds[i] = _LONG;
+            } else if (fieldType == BaseType.BOOLEAN) {
+                _fieldKinds[i] = _BOOLEAN;
+            } else if (fieldType == BaseType.STRING) {
+                _fieldKinds[i] = _STRING;
+            } else {
+                throw new IllegalActionException(this, "Unsupported type "
+                        + fieldType + " for field " + _fieldNames[i]
+                        + ". The supported types are string, double, int, "
+                        + "long and boolean.");
+            }
+            if (_rowsPerOutput > 1) {
+                fieldTypes[i] = new ArrayType(fieldType);
+            } else {
+                fieldTypes[i] = fieldType;
+            }
         }
         RecordType outputType = new RecordType(_fieldNames, fieldTypes);
         output.setTypeEquals(outputType);
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Return an exception reporting that the specified field of the
+    // line cannot be parsed.
+    private IllegalActionException _fieldException(String line, int field,
+            Throwable cause) {
+        return new IllegalActionException(this, cause, "Cannot convert field "
+                + _fieldNames[field] + " of line \"" + line + "\" to "
+                + _KIND_NAMES[_fieldKinds[field]] + ".");
+    }
+
+    // Parse a boolean from the specified field of the line.
+    private boolean _parseBoolean(String line, int field, int count)
+            throws IllegalActionException {
+        if (field < count) {
+            int start = _fieldStarts[field];
+            int length = _fieldEnds[field] - start;
+            if (length == 4 && line.regionMatches(true, start, "true", 0, 4)) {
+                return true;
+            }
+            if (length == 5 && line.regionMatches(true, start, "false", 0, 5)) {
+                return false;
+            }
+        }
+        throw _fieldException(line, field, null);
+    }
+
+    // Parse a double from the specified field of the line.
+    // Numbers with at most 15 significant digits and no exponent are
+    // parsed without creating a string. Since both the digits and the
+    // power of ten are then exactly representable, a single division
+    // gives the correctly rounded result.
+    private double _parseDouble(String line, int field, int count)
+            throws IllegalActionException {
+        if (field >= count || _fieldStarts[field] == _fieldEnds[field]) {
+            return Double.NaN;
+        }
+        int start = _fieldStarts[field];
+        int end = _fieldEnds[field];
+        int i = start;
+        boolean negative = false;
+        char next = line.charAt(i);
+        if (next == '-' || next == '+') {
+            negative = next == '-';
+            i++;
+        }
+        long mantissa = 0L;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean hasDigits = false;
+        while (i < end) {
+            next = line.charAt(i);
+            if (next >= '0' && next <= '9') {
+                hasDigits = true;
+                mantissa = mantissa * 10L + (next - '0');
+                if (mantissa != 0L) {
+                    digits++;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (next == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+            i++;
+        }
+        int scale = fractionDigits < 0 ? 0 : fractionDigits;
+        if (i == end && hasDigits && digits <= 15
+                && scale < _POWERS_OF_TEN.length) {
+            double result = mantissa / _POWERS_OF_TEN[scale];
+            return negative ? -result : result;
+        }
+        try {
+            return Double.parseDouble(line.substring(start, end));
+        } catch (NumberFormatException ex) {
+            throw _fieldException(line, field, ex);
+        }
+    }
+
+    // Return the token for the specified field of the line.
+    private Token _parseField(String line, int field, int count)
+            throws IllegalActionException {
+        switch (_fieldKinds[field]) {
+        case _DOUBLE:
+            return new DoubleToken(_parseDouble(line, field, count));
+        case _INT:
+            return new IntToken((int) _parseLong(line, field, count, true));
+        case _LONG:
+            return new LongToken(_parseLong(line, field, count, false));
+        case _BOOLEAN:
+            return BooleanToken.getInstance(_parseBoolean(line, field, count));
+        default:
+            return new StringToken(_parseString(line, field, count));
+        }
+    }
+
+    // Parse an int or a long from the specified field of the line.
+    private long _parseLong(String line, int field, int count, boolean isInt)
+            throws IllegalActionException {
+        if (field >= count) {
+            throw _fieldException(line, field, null);
+        }
+        int start = _fieldStarts[field];
+        int end = _fieldEnds[field];
+        int i = start;
+        boolean negative = false;
+        if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+        // Up to 18 digits cannot overflow a long.
+        if (i < end && end - i <= 18) {
+            long result = 0L;
+            while (i < end) {
+                char next = line.charAt(i);
+                if (next < '0' || next > '9') {
+                    break;
+                }
+                result = result * 10L + (next - '0');
+                i++;
+            }
+            if (i == end) {
+                result = negative ? -result : result;
+                if (!isInt || (result >= Integer.MIN_VALUE
+                        && result <= Integer.MAX_VALUE)) {
+                    return result;
+                }
+            }
+        }
+        try {
+            String value = line.substring(start, end);
+            if (isInt) {
+                return Integer.parseInt(value);
+            }
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw _fieldException(line, field, ex);
+        }
+    }
+
+    // Return the specified field of the line as a string.
+    private String _parseString(String line, int field, int count) {
+        if (field >= count) {
+            return "";
+        }
+        return line.substring(_fieldStarts[field], _fieldEnds[field]);
+    }
+
+    // Read the lines of one output, starting with _currentLine, into
+    // arrays and create the output record in _batch. On return,
+    // _currentLine is the last line of the output and _nextLine is
+    // the line after it.
+    private void _readBatch() throws IllegalActionException {
+        int numberOfFields = _fieldNames.length;
+        Object[] columns = new Object[numberOfFields];
+        for (int i = 0; i < numberOfFields; i++) {
+            switch (_fieldKinds[i]) {
+            case _DOUBLE:
+                columns[i] = new double[_rowsPerOutput];
+                break;
+            case _INT:
+                columns[i] = new int[_rowsPerOutput];
+                break;
+            case _LONG:
+                columns[i] = new long[_rowsPerOutput];
+                break;
+            case _BOOLEAN:
+                columns[i] = new boolean[_rowsPerOutput];
+                break;
+            default:
+                columns[i] = new Token[_rowsPerOutput];
+            }
+        }
+        int rows = 0;
+        while (true) {
+            int count = _split(_currentLine);
+            for (int i = 0; i < numberOfFields; i++) {
+                switch (_fieldKinds[i]) {
+                case _DOUBLE:
+                    ((double[]) columns[i])[rows] = _parseDouble(_currentLine,
+                            i, count);
+                    break;
+                case _INT:
+                    ((int[]) columns[i])[rows] = (int) _parseLong(
+                            _currentLine, i, count, true);
+                    break;
+                case _LONG:
+                    ((long[]) columns[i])[rows] = _parseLong(_currentLine, i,
+                            count, false);
+                    break;
+                case _BOOLEAN:
+                    ((boolean[]) columns[i])[rows] = _parseBoolean(
+                            _currentLine, i, count);
+                    break;
+                default:
+                    ((Token[]) columns[i])[rows] = new StringToken(
+                            _parseString(_currentLine, i, count));
+                }
+            }
+            rows++;
+            if (rows == _rowsPerOutput || _nextLine == null) {
+                break;
+            }
+            _currentLine = _nextLine;
+            try {
+                _nextLine = _reader.readLine();
+            } catch (IOException ex) {
+                throw new IllegalActionException(this, ex,
+                        "Failed to read file.");
+            }
+        }
+        Token[] fieldValues = new Token[numberOfFields];
+        for (int i = 0; i < numberOfFields; i++) {
+            Object column = columns[i];
+            if (rows < _rowsPerOutput) {
+                Object shorter = Array.newInstance(column
+                        .getClass().getComponentType(), rows);
+                System.arraycopy(column, 0, shorter, 0, rows);
+                column = shorter;
+            }
+            switch (_fieldKinds[i]) {
+            case _DOUBLE:
+                fieldValues[i] = new DoubleArrayToken((double[]) column,
+                        MatrixToken.DO_NOT_COPY);
+                break;
+            case _INT:
+                fieldValues[i] = new IntArrayToken((int[]) column,
+                        MatrixToken.DO_NOT_COPY);
+                break;
+            case _LONG:
+                fieldValues[i] = new LongArrayToken((long[]) column,
+                        MatrixToken.DO_NOT_COPY);
+                break;
+            case _BOOLEAN:
+                fieldValues[i] = new BooleanArrayToken((boolean[]) column,
+                        MatrixToken.DO_NOT_COPY);
+                break;
+            default:
+                fieldValues[i] = new ArrayToken(BaseType.STRING,
+                        (Token[]) column);
+            }
+        }
+        _batch = new OrderedRecordToken(_fieldNames, fieldValues);
+    }
+
+    // Find the fields of the line, up to the number of field names,
+    // and record their start and end indexes in _fieldStarts and
+    // _fieldEnds without creating substrings. As with StringTokenizer,
+    // every character of _delimiter is a separator and empty fields
+    // are skipped. Return the number of fields found.
+    private int _split(String line) {
+        String delimiter = _delimiter;
+        int length = line.length();
+        int count = 0;
+        int i = 0;
+        while (count < _fieldNames.length) {
+            while (i < length && delimiter.indexOf(line.charAt(i)) >= 0) {
+                i++;
+            }
+            if (i >= length) {
+                break;
+            }
+            int start = i;
+            while (i < length && delimiter.indexOf(line.charAt(i)) < 0) {
+                i++;
+            }
+            int end = i;
+            if (_trimSpaces) {
+                while (start < end && line.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (end > start && line.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+            }
+            _fieldStarts[count] = start;
+            _fieldEnds[count] = end;
+            count++;
+        }
+        return count;
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private members                   ////
 
+    /** Code for fields of type boolean. */
+    private static final int _BOOLEAN = 1;
+
+    /** Code for fields of type double. */
+    private static final int _DOUBLE = 2;
+
+    /** Code for fields of type int. */
+    private static final int _INT = 3;
+
+    /** Names of the types of fields, indexed by code. */
+    private static final String[] _KIND_NAMES = { "string", "boolean",
+            "double", "int", "long" };
+
+    /** Code for fields of type long. */
+    private static final int _LONG = 4;
+
+    /** Powers of ten that are exactly representable as doubles. */
+    private static final double[] _POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+            1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /** Code for fields of type string. */
+    private static final int _STRING = 0;
+
+    /** The output produced when rowsPerOutput is greater than one. */
+    private RecordToken _batch;
+
     /** The string delimiter. */
     private String _delimiter = ",";
 
+    /** The end indexes of the fields of the most recently split line. */
+    private int[] _fieldEnds;
+
+    /** The type codes of the fields. */
+    private int[] _fieldKinds;
+
     /** Field names for the output record. */
     private String[] _fieldNames;
+
+    /** The start indexes of the fields of the most recently split line. */
+    private int[] _fieldStarts;
+
+    /** The value of rowsPerOutput during the current run. */
+    private int _rowsPerOutput = 1;
+
+    /** The value of trimSpaces during the current run. */
+    private boolean _trimSpaces = true;
 }
@@ -28,6 +28,7 @@
 package ptolemy.actor.lib.io;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 
 import ptolemy.actor.TypedIOPort;
@@ -42,6 +43,7 @@ import ptolemy.kernel.CompositeEntity;
 import ptolemy.kernel.util.Attribute;
 import ptolemy.kernel.util.IllegalActionException;
 import ptolemy.kernel.util.NameDuplicationException;
+import ptolemy.kernel.util.Settable;
 import ptolemy.kernel.util.Workspace;
 
 ///////////////////////////////////////////////////////////////////
@@ -76,6 +78,13 @@ import ptolemy.kernel.util.Workspace;
  the number specified by the <i>numberOfLinesToSkip</i> parameter. The
  default value of this parameter is 0.</p>
  <p>
+ If the <i>memoryMapped</i> parameter is true and <i>fileOrURL</i>
+ refers to a local file, then the file is read through a
+ {@link MappedFileReader}, which maps the file into memory rather than
+ reading it through a stream. This is considerably faster for large
+ files. URLs, resources in the classpath, and standard input are
+ always read through a stream.</p>
+ <p>
  If you need to reset this line reader to start again at the beginning
  of the file, the way to do this is to call initialize() during the run
  of the model.  This can be done, for example, using a modal model
@@ -112,6 +121,11 @@ public class LineReader extends Source {
         numberOfLinesToSkip.setExpression("0");
         numberOfLinesToSkip.setTypeEquals(BaseType.INT);
 
+        memoryMapped = new Parameter(this, "memoryMapped");
+        memoryMapped.setTypeEquals(BaseType.BOOLEAN);
+        memoryMapped.setExpression("false");
+        memoryMapped.setVisibility(Settable.EXPERT);
+
         _attachText("_iconDescription", "<svg>\n"
                 + "<rect x=\"-25\" y=\"-20\" " + "width=\"50\" height=\"40\" "
                 + "style=\"fill:white\"/>\n"
@@ -135,6 +149,12 @@ public class LineReader extends Source {
      */
     public FileParameter fileOrURL;
 
+    /** If true, then read a local file by mapping it into memory.
+     *  This is a boolean that defaults to false.
+     *  @see MappedFileReader
+     */
+    public Parameter memoryMapped;
+
     /** The number of lines to skip at the beginning of the file or URL.
      *  This parameter contains an IntToken, initially with value 0.
      *  The value of this parameter must be non-negative.
@@ -171,7 +191,7 @@ public class LineReader extends Source {
                     _debug("Closing file: " + _previousFileOrURL);
                 }
                 _previousFileOrURL = newFileOrURL;
-                fileOrURL.close();
+                _closeReader();
 
                 // Ignore if the fileOrUL is blank.
                 if (newFileOrURL.trim().equals("")) {
@@ -180,7 +200,7 @@ public class LineReader extends Source {
                     if (_debugging) {
                         _debug("Opening file: " + newFileOrURL);
                     }
-                    _reader = fileOrURL.openForReading();
+                    _reader = _openReader();
                 }
             }
         } else if (attribute == numberOfLinesToSkip) {
@@ -240,8 +260,7 @@ public class LineReader extends Source {
         super.initialize();
         // In case the file has been previously opened, close
         // it and the reopen it.
-        fileOrURL.close();
-        _reader = null;
+        _closeReader();
         _openAndReadFirstTwoLines();
     }
 
@@ -290,8 +309,7 @@ public class LineReader extends Source {
      *  @exception IllegalActionException If an IO error occurs.
      */
     public void wrapup() throws IllegalActionException {
-        fileOrURL.close();
-        _reader = null;
+        _closeReader();
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -319,7 +337,7 @@ public class LineReader extends Source {
             _debug("Opening file: "
                     + ((StringToken) fileOrURL.getToken()).stringValue());
         }
-        _reader = fileOrURL.openForReading();
+        _reader = _openReader();
 
         if (_reader == null) {
             throw new IllegalActionException(this, "Failed to read file: "
@@ -355,6 +373,46 @@ public class LineReader extends Source {
         }
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Close the reader, if there is one, and set it to null.
+    private void _closeReader() throws IllegalActionException {
+        if (_reader instanceof MappedFileReader) {
+            try {
+                _reader.close();
+            } catch (IOException ex) {
+                throw new IllegalActionException(this, ex,
+                        "Failed to close " + fileOrURL.getDisplayName());
+            }
+        }
+        fileOrURL.close();
+        _reader = null;
+    }
+
+    // Open a reader for fileOrURL. If memoryMapped is true and the
+    // file is a local file, return a MappedFileReader.
+    private BufferedReader _openReader() throws IllegalActionException {
+        if (((BooleanToken) memoryMapped.getToken()).booleanValue()) {
+            File file = null;
+            try {
+                file = fileOrURL.asFile();
+            } catch (IllegalActionException ex) {
+                // Not a local file, so read it as a stream.
+            }
+            if (file != null && file.isFile()) {
+                fileOrURL.close();
+                try {
+                    return new MappedFileReader(file);
+                } catch (IOException ex) {
+                    throw new IllegalActionException(this, ex,
+                            "Cannot map file " + file);
+                }
+            }
+        }
+        return fileOrURL.openForReading();
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private members                   ////
 
@@ -0,0 +1,400 @@
+/* A reader that reads lines from a memory-mapped file.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor.lib.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+///////////////////////////////////////////////////////////////////
+//// MappedFileReader
+
+/**
+ A reader that reads a local file through a memory-mapped window
+ of a FileChannel rather than through a stream. This is faster than
+ a BufferedReader wrapped around an InputStreamReader for large files
+ because the bytes of a line are located directly in the mapped
+ buffer and are decoded into a string in one operation, without
+ first being copied into a stream buffer and then into a character
+ buffer.
+ <p>
+ The file is mapped in windows of a fixed size (64 megabytes by
+ default), so files larger than the address space available to a
+ single mapping can be read. When a line crosses the end of a window,
+ the window is moved to start at the beginning of that line.
+ If a single line is longer than the window, then the window is
+ enlarged.
+ <p>
+ Lines are terminated by a line feed, a carriage return, or a carriage
+ return followed by a line feed, just as in {@link BufferedReader#readLine()}.
+ The terminators are recognized in the encoded bytes, so the file must
+ use an encoding in which these characters are encoded as single bytes
+ that do not occur in the encoding of any other character, such as
+ ASCII, UTF-8 or the ISO-8859 encodings. The bytes are decoded using
+ the default charset, as is done by
+ {@link ptolemy.data.expr.FileParameter#openForReading()}.
+ <p>
+ This class extends BufferedReader so that it can be used wherever
+ a BufferedReader is expected. Marking the stream is not supported.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class MappedFileReader extends BufferedReader {
+    /** Construct a reader for the specified file, mapping it in
+     *  windows of the default size.
+     *  @param file The file.
+     *  @exception IOException If the file cannot be opened or mapped.
+     */
+    public MappedFileReader(File file) throws IOException {
+        this(file, _DEFAULT_WINDOW_SIZE);
+    }
+
+    /** Construct a reader for the specified file, mapping it in
+     *  windows of the specified size.
+     *  @param file The file.
+     *  @param windowSize The number of bytes mapped at a time, which
+     *   must be positive.
+     *  @exception IOException If the file cannot be opened or mapped.
+     */
+    public MappedFileReader(File file, int windowSize) throws IOException {
+        // The base class buffer is not used.
+        super(new StringReader(""), 1);
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: "
+                    + windowSize);
+        }
+        _windowSize = windowSize;
+        _input = new FileInputStream(file);
+        try {
+            _channel = _input.getChannel();
+            _size = _channel.size();
+            _map(0L);
+        } catch (IOException ex) {
+            _input.close();
+            throw ex;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Close the file. The mapped buffer is released when it is
+     *  garbage collected.
+     *  @exception IOException If the file cannot be closed.
+     */
+    public void close() throws IOException {
+        if (_channel != null) {
+            _buffer = null;
+            _pending = null;
+            try {
+                _channel.close();
+            } finally {
+                _channel = null;
+                _input.close();
+            }
+        }
+        super.close();
+    }
+
+    /** Throw an exception, because marking is not supported.
+     *  @param readAheadLimit Ignored.
+     *  @exception IOException Always thrown.
+     */
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() is not supported.");
+    }
+
+    /** Return false, because marking is not supported.
+     *  @return False.
+     */
+    public boolean markSupported() {
+        return false;
+    }
+
+    /** Read a single character.
+     *  @return The character, or -1 if the end of the file has been
+     *   reached.
+     *  @exception IOException If the reader has been closed or the
+     *   file cannot be read.
+     */
+    public int read() throws IOException {
+        if (!_fillPending()) {
+            return -1;
+        }
+        return _pending.charAt(_pendingPosition++);
+    }
+
+    /** Read characters into a portion of an array.
+     *  @param buffer The destination buffer.
+     *  @param offset The offset at which to start storing characters.
+     *  @param length The maximum number of characters to read.
+     *  @return The number of characters read, or -1 if the end of the
+     *   file has been reached.
+     *  @exception IOException If the reader has been closed or the
+     *   file cannot be read.
+     */
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!_fillPending()) {
+            return -1;
+        }
+        int count = Math.min(length, _pending.length() - _pendingPosition);
+        _pending.getChars(_pendingPosition, _pendingPosition + count, buffer,
+                offset);
+        _pendingPosition += count;
+        return count;
+    }
+
+    /** Read a line of text.
+     *  @return The contents of the line, not including any line
+     *   termination characters, or null if the end of the file has
+     *   been reached.
+     *  @exception IOException If the reader has been closed or the
+     *   file cannot be read.
+     */
+    public String readLine() throws IOException {
+        if (_pending != null && _pendingPosition < _pending.length()) {
+            // Return the rest of a line that has been partially read
+            // by read().
+            String rest = _pending.substring(_pendingPosition);
+            _pending = null;
+            int end = rest.length();
+            if (end > 0 && rest.charAt(end - 1) == '\n') {
+                end--;
+            }
+            if (end > 0 && rest.charAt(end - 1) == '\r') {
+                end--;
+            }
+            return rest.substring(0, end);
+        }
+        _pending = null;
+        _ensureOpen();
+        if (!_findLine()) {
+            return null;
+        }
+        String result = _decode(_position, _lineEnd);
+        _position = _nextPosition;
+        return result;
+    }
+
+    /** Return true if there are characters that have not been read.
+     *  @return True if a read will not block and will not return -1.
+     *  @exception IOException If the reader has been closed.
+     */
+    public boolean ready() throws IOException {
+        if (_pending != null && _pendingPosition < _pending.length()) {
+            return true;
+        }
+        _ensureOpen();
+        return _windowStart + _position < _size;
+    }
+
+    /** Throw an exception, because marking is not supported.
+     *  @exception IOException Always thrown.
+     */
+    public void reset() throws IOException {
+        throw new IOException("reset() is not supported.");
+    }
+
+    /** Skip characters.
+     *  @param count The number of characters to skip.
+     *  @return The number of characters actually skipped.
+     *  @exception IOException If the reader has been closed or the
+     *   file cannot be read.
+     */
+    public long skip(long count) throws IOException {
+        if (count < 0L) {
+            throw new IllegalArgumentException("Skip value is negative.");
+        }
+        long skipped = 0L;
+        while (skipped < count && _fillPending()) {
+            int step = (int) Math.min(count - skipped, _pending.length()
+                    - _pendingPosition);
+            _pendingPosition += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Decode the bytes of the current window from start to end into
+    // a string.
+    private String _decode(int start, int end) {
+        int length = end - start;
+        if (_bytes.length < length) {
+            _bytes = new byte[Math.max(length, 2 * _bytes.length)];
+        }
+        _buffer.position(start);
+        _buffer.get(_bytes, 0, length);
+        return new String(_bytes, 0, length, _CHARSET);
+    }
+
+    // Throw an exception if the reader has been closed.
+    private void _ensureOpen() throws IOException {
+        if (_channel == null) {
+            throw new IOException("Reader has been closed.");
+        }
+    }
+
+    // Make sure that there are characters in the pending string,
+    // which holds a line together with its terminator. Return false
+    // if the end of the file has been reached.
+    private boolean _fillPending() throws IOException {
+        if (_pending != null && _pendingPosition < _pending.length()) {
+            return true;
+        }
+        _pending = null;
+        _ensureOpen();
+        if (!_findLine()) {
+            return false;
+        }
+        _pending = _decode(_position, _nextPosition);
+        _pendingPosition = 0;
+        _position = _nextPosition;
+        return true;
+    }
+
+    // Find the end of the line that starts at _position, moving the
+    // window if necessary, and set _lineEnd to the index of its
+    // terminator and _nextPosition to the index of the next line.
+    // Return false if the end of the file has been reached.
+    private boolean _findLine() throws IOException {
+        if (_windowStart + _position >= _size) {
+            return false;
+        }
+        while (true) {
+            int limit = _buffer.limit();
+            boolean atEndOfFile = _windowStart + limit >= _size;
+            int i = _position;
+            while (i < limit) {
+                byte next = _buffer.get(i);
+                if (next == '\n' || next == '\r') {
+                    break;
+                }
+                i++;
+            }
+            if (i < limit) {
+                _lineEnd = i;
+                if (_buffer.get(i) == '\n') {
+                    _nextPosition = i + 1;
+                    return true;
+                }
+                // A carriage return may be followed by a line feed.
+                if (i + 1 < limit) {
+                    _nextPosition = _buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+                    return true;
+                }
+                if (atEndOfFile) {
+                    _nextPosition = i + 1;
+                    return true;
+                }
+            } else if (atEndOfFile) {
+                _lineEnd = limit;
+                _nextPosition = limit;
+                return true;
+            }
+            // The line, or its terminator, crosses the end of the window.
+            if (_position == 0) {
+                if (_windowSize == Integer.MAX_VALUE) {
+                    throw new IOException("Line is too long at position "
+                            + _windowStart);
+                }
+                _windowSize = (int) Math.min(2L * _windowSize,
+                        Integer.MAX_VALUE);
+            }
+            _map(_windowStart + _position);
+        }
+    }
+
+    // Map the window that starts at the specified position of the file.
+    private void _map(long start) throws IOException {
+        long length = Math.min(_windowSize, _size - start);
+        _buffer = _channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        _windowStart = start;
+        _position = 0;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // The mapped window of the file.
+    private MappedByteBuffer _buffer;
+
+    // Buffer used to decode lines.
+    private byte[] _bytes = new byte[256];
+
+    // The channel of the file.
+    private FileChannel _channel;
+
+    // The charset used to decode lines.
+    private static final Charset _CHARSET = Charset.defaultCharset();
+
+    // The default size of the mapped window.
+    private static final int _DEFAULT_WINDOW_SIZE = 1 << 26;
+
+    // The stream of the file.
+    private FileInputStream _input;
+
+    // The index in the window of the terminator of the current line.
+    private int _lineEnd;
+
+    // The index in the window of the line after the current line.
+    private int _nextPosition;
+
+    // A line, including its terminator, that has been partially read
+    // by read(), or null if there is none.
+    private String _pending;
+
+    // The position of the next character of _pending to be read.
+    private int _pendingPosition;
+
+    // The index in the window of the next byte to be read.
+    private int _position;
+
+    // The size of the file.
+    private long _size;
+
+    // The position in the file of the start of the window.
+    private long _windowStart;
+
+    // The size of the mapped window.
+    private int _windowSize;
+}
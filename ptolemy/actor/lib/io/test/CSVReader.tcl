@@ -0,0 +1,144 @@
+# Tests for the CSVReader and MappedFileReader classes
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Write the specified contents to a file and return the file name.
+proc writeFile {name contents} {
+    # Use Java so that line terminators are not translated.
+    set stream [java::new java.io.FileOutputStream $name]
+    $stream {write byte[]} [[java::new String $contents] getBytes]
+    $stream close
+    return $name
+}
+
+# Read all the lines of a file with a MappedFileReader that uses
+# the specified window size.
+proc readMapped {name windowSize} {
+    set reader [java::new ptolemy.actor.lib.io.MappedFileReader \
+	    [java::new java.io.File $name] $windowSize]
+    set result {}
+    while {[$reader ready]} {
+	lappend result [$reader readLine]
+    }
+    $reader close
+    return $result
+}
+
+# Run a model with a CSVReader that reads the specified file and
+# return the recorded outputs.
+proc runCSVReader {name memoryMapped rowsPerOutput outputType} {
+    set e0 [sdfModel 0]
+    set reader [java::new ptolemy.actor.lib.io.CSVReader $e0 reader]
+    set lineReader [java::cast ptolemy.actor.lib.io.LineReader $reader]
+    [java::field $lineReader fileOrURL] setExpression \
+	    [[java::new java.io.File $name] getAbsolutePath]
+    [java::field $lineReader memoryMapped] setExpression $memoryMapped
+    [java::field $reader rowsPerOutput] setExpression $rowsPerOutput
+    if {$outputType != ""} {
+	set typeAttribute [java::new ptolemy.actor.TypeAttribute \
+		[java::field [java::cast ptolemy.actor.lib.Source $reader] \
+		output] _type]
+	$typeAttribute setExpression $outputType
+    }
+    set recorder [java::new ptolemy.actor.lib.Recorder $e0 recorder]
+    $e0 connect \
+	    [java::field [java::cast ptolemy.actor.lib.Source $reader] output] \
+	    [java::field [java::cast ptolemy.actor.lib.Sink $recorder] input]
+    [$e0 getManager] execute
+    return [enumToTokenValues [$recorder getRecord 0]]
+}
+
+writeFile csvReaderTest.csv "x, y, z, w\n1, 2, 3.5, true\n-4,5,-0.25,false\r\n7,80000000000,1e3,TRUE"
+
+######################################################################
+####
+#
+test CSVReader-1.1 {Read strings with and without memory mapping} {
+    list [runCSVReader csvReaderTest.csv false 1 ""] \
+	    [runCSVReader csvReaderTest.csv true 1 ""]
+} {{{[x = "1", y = "2", z = "3.5", w = "true"]} {[x = "-4", y = "5", z = "-0.25", w = "false"]} {[x = "7", y = "80000000000", z = "1e3", w = "TRUE"]}} {{[x = "1", y = "2", z = "3.5", w = "true"]} {[x = "-4", y = "5", z = "-0.25", w = "false"]} {[x = "7", y = "80000000000", z = "1e3", w = "TRUE"]}}}
+
+######################################################################
+####
+#
+test CSVReader-1.2 {Read typed fields} {
+    runCSVReader csvReaderTest.csv true 1 "{x = int, y = long, z = double, w = boolean}"
+} {{[x = 1, y = 2L, z = 3.5, w = true]} {[x = -4, y = 5L, z = -0.25, w = false]} {[x = 7, y = 80000000000L, z = 1000.0, w = true]}}
+
+######################################################################
+####
+#
+test CSVReader-1.3 {Read typed fields in batches} {
+    runCSVReader csvReaderTest.csv false 2 "{x = int, z = {double}}"
+} {{[x = {1, -4}, y = {"2", "5"}, z = {3.5, -0.25}, w = {"true", "false"}]} {[x = {7}, y = {"80000000000"}, z = {1000.0}, w = {"TRUE"}]}}
+
+######################################################################
+####
+#
+test CSVReader-1.4 {Report a field that cannot be converted} {
+    catch {runCSVReader csvReaderTest.csv false 1 "{y = int}"} msg
+    string range $msg 0 59
+} {ptolemy.kernel.util.IllegalActionException: Cannot convert f}
+
+######################################################################
+####
+#
+test MappedFileReader-1.1 {Read lines with different terminators} {
+    writeFile mappedFileReaderTest.txt "a\nbc\r\ndef\r\rg"
+    list [readMapped mappedFileReaderTest.txt 65536] \
+	    [readMapped mappedFileReaderTest.txt 2] \
+	    [readMapped mappedFileReaderTest.txt 1]
+} {{a bc def {} g} {a bc def {} g} {a bc def {} g}}
+
+######################################################################
+####
+#
+test MappedFileReader-1.2 {Read characters and lines} {
+    set reader [java::new ptolemy.actor.lib.io.MappedFileReader \
+	    [java::new java.io.File mappedFileReaderTest.txt] 3]
+    set c1 [$reader read]
+    set c2 [$reader read]
+    set line [$reader readLine]
+    set c3 [$reader read]
+    $reader skip 3
+    set rest [list [$reader readLine] [$reader readLine] [$reader ready]]
+    $reader close
+    list $c1 $c2 $line $c3 $rest
+} {97 10 bc 100 {{} g 0}}
+
+file delete -force csvReaderTest.csv mappedFileReaderTest.txt
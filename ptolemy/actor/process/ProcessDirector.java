@@ -39,10 +39,16 @@ import ptolemy.actor.IOPort;
 import ptolemy.actor.Mailbox;
 import ptolemy.actor.Manager;
 import ptolemy.actor.Receiver;
+import ptolemy.data.IntToken;
+import ptolemy.data.expr.Parameter;
+import ptolemy.data.type.BaseType;
 import ptolemy.kernel.CompositeEntity;
 import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.InternalErrorException;
+import ptolemy.kernel.util.KernelException;
 import ptolemy.kernel.util.NameDuplicationException;
 import ptolemy.kernel.util.NamedObj;
+import ptolemy.kernel.util.Settable;
 import ptolemy.kernel.util.Workspace;
 
 ///////////////////////////////////////////////////////////////////
@@ -71,6 +77,10 @@ import ptolemy.kernel.util.Workspace;
  models. In order to accommodate hierarchical, heterogeneity the subclass
  CompositeProcessDirector must be used.
  <P>
+ Each actor runs in its own thread, and each thread reserves memory for
+ its stack. For models with many actors, the <i>threadStackSize</i>
+ parameter can be used to request smaller stacks, which reduces the
+ memory used by the model and the time it takes to start the threads.
  <P>
  @author Mudit Goel, Neil Smyth, John S. Davis II
  @version $Id$
@@ -86,6 +96,7 @@ public class ProcessDirector extends Director {
      */
     public ProcessDirector() {
         super();
+        _initParameters();
     }
 
     /** Construct a director in the workspace with an empty name.
@@ -95,6 +106,7 @@ public class ProcessDirector extends Director {
      */
     public ProcessDirector(Workspace workspace) {
         super(workspace);
+        _initParameters();
     }
 
     /** Construct a director in the given container with the given name.
@@ -113,8 +125,22 @@ public class ProcessDirector extends Director {
     public ProcessDirector(CompositeEntity container, String name)
             throws IllegalActionException, NameDuplicationException {
         super(container, name);
+        _initParameters();
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         parameters                        ////
+
+    /** The stack size, in bytes, requested for each of the threads
+     *  that execute the actors. This is an integer that defaults to 0,
+     *  which means that the threads have the default stack size of the
+     *  Java virtual machine. A smaller size reduces the memory reserved
+     *  for models with many actors, but an actor that needs a deeper
+     *  stack may then throw StackOverflowError. Some platforms
+     *  ignore this value.
+     */
+    public Parameter threadStackSize;
+
     ///////////////////////////////////////////////////////////////////
     ////                         public methods                    ////
 
@@ -736,6 +762,23 @@ public class ProcessDirector extends Director {
         return _pausedThreads.size();
     }
 
+    /** Return the stack size requested for the threads that execute
+     *  the actors, which is the value of the <i>threadStackSize</i>
+     *  parameter.
+     *  @return The stack size in bytes, or 0 to use the default.
+     *  @exception IllegalActionException If the parameter cannot be
+     *   evaluated or is negative.
+     */
+    protected long _getThreadStackSize() throws IllegalActionException {
+        int stackSize = ((IntToken) threadStackSize.getToken()).intValue();
+        if (stackSize < 0) {
+            throw new IllegalActionException(this,
+                    "threadStackSize is required to be non-negative. Got "
+                            + stackSize);
+        }
+        return stackSize;
+    }
+
     /** Create a new ProcessThread for controlling the actor that
      *  is passed as a parameter of this method. Subclasses are
      *  encouraged to override this method as necessary for domain
@@ -751,7 +794,7 @@ public class ProcessDirector extends Director {
      */
     protected ProcessThread _newProcessThread(Actor actor,
             ProcessDirector director) throws IllegalActionException {
-        return new ProcessThread(actor, director);
+        return new ProcessThread(actor, director, _getThreadStackSize());
     }
 
     /** Return false indicating that deadlock has not been resolved
@@ -783,6 +826,20 @@ public class ProcessDirector extends Director {
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
 
+    /** Create the parameters of this director.
+     */
+    private void _initParameters() {
+        try {
+            threadStackSize = new Parameter(this, "threadStackSize");
+            threadStackSize.setTypeEquals(BaseType.INT);
+            threadStackSize.setExpression("0");
+            threadStackSize.setVisibility(Settable.EXPERT);
+        } catch (KernelException e) {
+            throw new InternalErrorException("Cannot set parameter:\n"
+                    + e.getMessage());
+        }
+    }
+
     /** Call requestFinish() on all receivers.
      */
     private void _requestFinishOnReceivers() {
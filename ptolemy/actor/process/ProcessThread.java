@@ -30,6 +30,8 @@ package ptolemy.actor.process;
 import java.io.InterruptedIOException;
 
 import ptolemy.actor.Actor;
+import ptolemy.actor.ActorMetrics;
+import ptolemy.actor.ExecutionMetrics;
 import ptolemy.actor.FiringEvent;
 import ptolemy.actor.FiringsRecordable;
 import ptolemy.actor.Manager;
@@ -84,7 +86,22 @@ public class ProcessThread extends PtolemyThread {
      *  actor.
      */
     public ProcessThread(Actor actor, ProcessDirector director) {
-        super();
+        this(actor, director, 0L);
+    }
+
+    /** Construct a thread to be used for the execution of the
+     *  iteration methods of the actor with the specified stack size.
+     *  This increases the count of active actors in the director.
+     *  @param actor The actor that needs to be executed.
+     *  @param director The director responsible for the execution of this
+     *  actor.
+     *  @param stackSize The requested stack size in bytes, or 0 to use
+     *   the default stack size.
+     *  @see ProcessDirector#threadStackSize
+     */
+    public ProcessThread(Actor actor, ProcessDirector director,
+            long stackSize) {
+        super(null, null, "ProcessThread", stackSize);
         _actor = actor;
         _director = director;
         _manager = actor.getManager();
@@ -132,6 +149,15 @@ public class ProcessThread extends PtolemyThread {
         Throwable thrownWhenIterate = null;
         Throwable thrownWhenWrapup = null;
 
+        // Record the firings if the manager is collecting metrics.
+        ActorMetrics metrics = null;
+        if (_manager != null) {
+            ExecutionMetrics executionMetrics = _manager.getExecutionMetrics();
+            if (executionMetrics != null) {
+                metrics = executionMetrics.getActorMetrics(_actor);
+            }
+        }
+
         try {
             // Initialize the actor.
             _actor.initialize();
@@ -217,7 +243,13 @@ public class ProcessThread extends PtolemyThread {
                                 .recordFiring(FiringEvent.BEFORE_PREFIRE);
                     }
 
-                    if (_actor.prefire()) {
+                    long time = metrics == null ? 0L : metrics.startFiring();
+                    boolean prefireReturns = _actor.prefire();
+                    if (metrics != null) {
+                        metrics.recordPrefire(time);
+                    }
+
+                    if (prefireReturns) {
 
                         if (firingsRecordable != null) {
                             firingsRecordable
@@ -226,7 +258,13 @@ public class ProcessThread extends PtolemyThread {
                                     .recordFiring(FiringEvent.BEFORE_FIRE);
                         }
 
+                        if (metrics != null) {
+                            time = metrics.resumeTiming(time);
+                        }
                         _actor.fire();
+                        if (metrics != null) {
+                            metrics.recordFire(time);
+                        }
 
                         if (firingsRecordable != null) {
                             firingsRecordable
@@ -235,7 +273,13 @@ public class ProcessThread extends PtolemyThread {
                                     .recordFiring(FiringEvent.BEFORE_POSTFIRE);
                         }
 
+                        if (metrics != null) {
+                            time = metrics.resumeTiming(time);
+                        }
                         iterate = _actor.postfire();
+                        if (metrics != null) {
+                            metrics.recordPostfire(time);
+                        }
 
                         if (firingsRecordable != null) {
                             firingsRecordable
@@ -94,3 +94,28 @@ test TestProcessDirector-5.1 {Test action methods} {
 
 } {.E0.A1.fire .E0.A1.initialize .E0.A1.postfire .E0.A1.prefire .E0.A1.wrapup .E0.A2.fire .E0.A2.initialize .E0.A2.postfire .E0.A2.prefire .E0.A2.wrapup}
 
+
+######################################################################
+####
+#
+test TestProcessDirector-6.1 {Run with a smaller thread stack size} {
+    set e1 [java::new ptolemy.actor.CompositeActor]
+    $e1 setName E1
+    set manager1 [java::new ptolemy.actor.Manager [$e1 workspace] M1]
+    $e1 setManager $manager1
+    set d5 [java::new ptolemy.actor.process.ProcessDirector $e1 D5]
+    [java::field $d5 threadStackSize] setExpression 262144
+    set a3 [java::new ptolemy.actor.process.test.TestProcessActor $e1 A3]
+    $a3 clear
+    $manager1 run
+    list [lsort [$a3 getRecord]] [[java::field $d5 threadStackSize] getExpression]
+} {{.E1.A3.fire .E1.A3.initialize .E1.A3.postfire .E1.A3.prefire .E1.A3.wrapup} 262144}
+
+######################################################################
+####
+#
+test TestProcessDirector-6.2 {A negative thread stack size is an error} {
+    [java::field $d5 threadStackSize] setExpression -1
+    catch {$manager1 execute} errMsg
+    list [lindex [split $errMsg "\n"] 0]
+} {{ptolemy.kernel.util.IllegalActionException: threadStackSize is required to be non-negative. Got -1}}
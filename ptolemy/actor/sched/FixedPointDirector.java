@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Set;
 
 import ptolemy.actor.Actor;
+import ptolemy.actor.ActorMetrics;
 import ptolemy.actor.CompositeActor;
 import ptolemy.actor.IOPort;
 import ptolemy.actor.Receiver;
@@ -748,7 +749,12 @@ public class FixedPointDirector extends StaticSchedulingDirector implements
      */
     private void _fireActor(Actor actor) throws IllegalActionException {
         // Prefire the actor.
+        ActorMetrics metrics = _getActorMetrics(actor);
+        long time = metrics == null ? 0L : metrics.startFiring();
         boolean prefireReturns = actor.prefire();
+        if (metrics != null) {
+            metrics.recordPrefire(time);
+        }
         if (_debugging) {
             _debug("FixedPointDirector: Prefiring: "
                     + ((Nameable) actor).getFullName() + ", which returns "
@@ -780,7 +786,13 @@ public class FixedPointDirector extends StaticSchedulingDirector implements
                 }
             }
 
+            if (metrics != null) {
+                time = metrics.resumeTiming(time);
+            }
             actor.fire();
+            if (metrics != null) {
+                metrics.recordFire(time);
+            }
             // If all of the inputs of this actor were known before firing, firing
             // the actor again in the current iteration is not necessary.
             if (allInputsKnownBeforeFiring) {
@@ -870,7 +882,14 @@ public class FixedPointDirector extends StaticSchedulingDirector implements
         if (_actorsAllowedToFire.contains(actor)) {
             _debug(getFullName() + " is postfiring "
                     + ((Nameable) actor).getFullName());
-            return actor.postfire();
+            ActorMetrics metrics = _getActorMetrics(actor);
+            if (metrics == null) {
+                return actor.postfire();
+            }
+            long time = metrics.startFiring();
+            boolean result = actor.postfire();
+            metrics.recordPostfire(time);
+            return result;
         }
         return true;
     }
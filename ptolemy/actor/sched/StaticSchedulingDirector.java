@@ -27,10 +27,14 @@
  */
 package ptolemy.actor.sched;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import ptolemy.actor.Actor;
+import ptolemy.actor.ActorMetrics;
 import ptolemy.actor.Director;
+import ptolemy.actor.ExecutionMetrics;
 import ptolemy.actor.FiringEvent;
 import ptolemy.kernel.CompositeEntity;
 import ptolemy.kernel.util.DebugListener;
@@ -138,6 +142,11 @@ public class StaticSchedulingDirector extends Director {
             newObject._setScheduler((Scheduler) newObject
                     .getAttribute(getScheduler().getName()));
         }
+        newObject._firingCounts = null;
+        newObject._firingMetrics = null;
+        newObject._firingMetricsOwner = null;
+        newObject._firingMetricsSchedule = null;
+        newObject._uncountedIterations = 0;
         return newObject;
     }
 
@@ -174,6 +183,14 @@ public class StaticSchedulingDirector extends Director {
         // does not have a container.
         Schedule schedule = scheduler.getSchedule();
         Iterator firings = schedule.firingIterator();
+        // If execution metrics are being collected, then time the
+        // firings of one in every samplingInterval iterations. The
+        // firings of the other iterations are counted once per iteration.
+        ActorMetrics[] firingMetrics = _getFiringMetrics(schedule);
+        boolean timed = firingMetrics != null
+                && _uncountedIterations + 1 >= _firingMetricsOwner
+                        .getSamplingInterval();
+        int firingIndex = 0;
 
         while (firings.hasNext() && !_stopRequested) {
             Firing firing = (Firing) firings.next();
@@ -185,7 +202,15 @@ public class StaticSchedulingDirector extends Director {
                         iterationCount));
             }
 
-            int returnValue = actor.iterate(iterationCount);
+            int returnValue;
+            if (timed) {
+                long time = System.nanoTime();
+                returnValue = actor.iterate(iterationCount);
+                firingMetrics[firingIndex].recordIterate(time, iterationCount);
+            } else {
+                returnValue = actor.iterate(iterationCount);
+            }
+            firingIndex++;
 
             if (returnValue == STOP_ITERATING) {
                 _postfireReturns = false;
@@ -204,6 +229,19 @@ public class StaticSchedulingDirector extends Director {
                         iterationCount));
             }
         }
+
+        if (timed) {
+            _recordUncountedIterations();
+        } else if (firingMetrics != null) {
+            if (!firings.hasNext()) {
+                _uncountedIterations++;
+            } else {
+                // A stop was requested during the iteration.
+                for (int i = 0; i < firingIndex; i++) {
+                    firingMetrics[i].recordFirings(_firingCounts[i]);
+                }
+            }
+        }
     }
 
     /** Return the scheduler that is responsible for scheduling the
@@ -327,6 +365,17 @@ public class StaticSchedulingDirector extends Director {
         _setScheduler(scheduler);
     }
 
+    /** Record in the execution metrics of the actors, if any, the
+     *  firings that have not been recorded yet, and then invoke the
+     *  wrapup() method of the base class.
+     *  @exception IllegalActionException If the wrapup() method of
+     *   one of the associated actors throws it.
+     */
+    public void wrapup() throws IllegalActionException {
+        _recordUncountedIterations();
+        super.wrapup();
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         protected methods                 ////
 
@@ -356,9 +405,93 @@ public class StaticSchedulingDirector extends Director {
     /** The value that the postfire method will return. */
     protected boolean _postfireReturns;
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return the execution metrics of the actor of each firing of the
+     *  specified schedule, in the order of the firings, or null if
+     *  metrics are not being collected. The result is cached until the
+     *  schedule or the execution metrics change.
+     *  @param schedule The schedule.
+     *  @return An array of execution metrics, or null.
+     */
+    private ActorMetrics[] _getFiringMetrics(Schedule schedule) {
+        ExecutionMetrics metrics = _getExecutionMetrics();
+        if (metrics == null) {
+            if (_firingMetrics != null) {
+                _recordUncountedIterations();
+                _firingMetrics = null;
+                _firingMetricsOwner = null;
+                _firingMetricsSchedule = null;
+            }
+            return null;
+        }
+        if (metrics != _firingMetricsOwner
+                || schedule != _firingMetricsSchedule) {
+            _recordUncountedIterations();
+            _firingMetrics = null;
+            _firingMetricsOwner = null;
+            _firingMetricsSchedule = null;
+            List<ActorMetrics> result = new ArrayList<ActorMetrics>();
+            List<Integer> counts = new ArrayList<Integer>();
+            Iterator firings = schedule.firingIterator();
+            while (firings.hasNext()) {
+                Firing firing = (Firing) firings.next();
+                ActorMetrics actorMetrics = metrics.getActorMetrics(firing
+                        .getActor());
+                if (actorMetrics == null) {
+                    // Metrics were disabled during the execution.
+                    return null;
+                }
+                result.add(actorMetrics);
+                counts.add(Integer.valueOf(firing.getIterationCount()));
+            }
+            _firingMetrics = result.toArray(new ActorMetrics[result.size()]);
+            _firingCounts = new int[counts.size()];
+            for (int i = 0; i < _firingCounts.length; i++) {
+                _firingCounts[i] = counts.get(i).intValue();
+            }
+            _firingMetricsOwner = metrics;
+            _firingMetricsSchedule = schedule;
+        }
+        return _firingMetrics;
+    }
+
+    /** Record the firings of the iterations that have not been counted
+     *  in the execution metrics of the actors.
+     */
+    private void _recordUncountedIterations() {
+        if (_firingMetrics != null && _uncountedIterations > 0) {
+            for (int i = 0; i < _firingMetrics.length; i++) {
+                _firingMetrics[i].recordFirings((long) _uncountedIterations
+                        * _firingCounts[i]);
+            }
+        }
+        _uncountedIterations = 0;
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
+    /** The iteration counts of the firings of _firingMetricsSchedule. */
+    private int[] _firingCounts;
+
+    /** The execution metrics of the actors of the firings of
+     *  _firingMetricsSchedule, or null.
+     */
+    private ActorMetrics[] _firingMetrics;
+
+    /** The execution metrics that contain _firingMetrics. */
+    private ExecutionMetrics _firingMetricsOwner;
+
+    /** The schedule for which _firingMetrics was computed. */
+    private Schedule _firingMetricsSchedule;
+
     /** The scheduler. */
     private Scheduler _scheduler;
+
+    /** The number of iterations since the last timed iteration, whose
+     *  firings have not been recorded in _firingMetrics.
+     */
+    private int _uncountedIterations;
 }
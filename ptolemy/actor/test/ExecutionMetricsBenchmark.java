@@ -0,0 +1,187 @@
+/* Measure the overhead of collecting execution metrics.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import ptolemy.actor.Manager;
+import ptolemy.actor.TypedCompositeActor;
+import ptolemy.actor.TypedIOPort;
+import ptolemy.actor.lib.Discard;
+import ptolemy.actor.lib.DiscreteClock;
+import ptolemy.actor.lib.Ramp;
+import ptolemy.actor.lib.Scale;
+import ptolemy.domains.de.kernel.DEDirector;
+import ptolemy.domains.sdf.kernel.SDFDirector;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// ExecutionMetricsBenchmark
+
+/**
+ Measure the overhead of collecting execution metrics on a chain of
+ Scale actors between a source and a Discard actor, under an SDF
+ director and under a DE director. Each model is executed alternately
+ with execution metrics disabled and enabled, in alternating order,
+ and the overhead is
+ reported as the median over the pairs of consecutive runs, so that
+ slow drifts in the load of the machine affect both runs of a pair.
+ The CPU time of the executing thread is measured rather than the
+ elapsed time.
+ <p>
+ To run:
+ <pre>
+ java -classpath $PTII ptolemy.actor.test.ExecutionMetricsBenchmark [iterations [actors [runs]]]
+ </pre>
+ The defaults are 100000 iterations, a chain of 10 Scale actors,
+ and 41 runs of each configuration. The first run of each model is
+ discarded to allow the JIT compiler to warm up.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class ExecutionMetricsBenchmark {
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Run the benchmark and print the results to standard out.
+     *  @param args The number of iterations, the number of Scale
+     *   actors and the number of runs, all optional.
+     *  @exception Exception If a model cannot be built or executed.
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = 100000;
+        int actors = 10;
+        int runs = 41;
+        if (args.length > 0) {
+            iterations = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            actors = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            runs = Integer.parseInt(args[2]);
+        }
+        for (int domain = 0; domain < 2; domain++) {
+            boolean de = domain == 1;
+            Manager manager = _buildModel(iterations, actors, de);
+            _time(manager, false);
+            long[] off = new long[runs];
+            long[] on = new long[runs];
+            double[] overhead = new double[runs];
+            for (int run = 0; run < runs; run++) {
+                // Alternate the order, so that neither configuration
+                // always follows the other.
+                if (run % 2 == 0) {
+                    off[run] = _time(manager, false);
+                    on[run] = _time(manager, true);
+                } else {
+                    on[run] = _time(manager, true);
+                    off[run] = _time(manager, false);
+                }
+                overhead[run] = 100.0 * (on[run] - off[run]) / off[run];
+            }
+            Arrays.sort(off);
+            Arrays.sort(on);
+            Arrays.sort(overhead);
+            System.out.println((de ? "DE" : "SDF") + ": median "
+                    + off[runs / 2] / 1000000L + " ms disabled, "
+                    + on[runs / 2] / 1000000L
+                    + " ms enabled, median overhead of a pair of runs "
+                    + (Math.round(10.0 * overhead[runs / 2]) / 10.0) + "%");
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Build a model with a chain of Scale actors.
+     *  @param iterations The number of iterations.
+     *  @param actors The number of Scale actors.
+     *  @param de True to use a DE director, false to use an SDF director.
+     *  @return The manager of the model.
+     *  @exception Exception If the model cannot be built.
+     */
+    private static Manager _buildModel(int iterations, int actors, boolean de)
+            throws Exception {
+        TypedCompositeActor model = new TypedCompositeActor(new Workspace());
+        model.setName("ExecutionMetricsBenchmark");
+        TypedIOPort previous;
+        if (de) {
+            DEDirector director = new DEDirector(model, "director");
+            director.stopTime.setExpression("" + (iterations - 1));
+            DiscreteClock clock = new DiscreteClock(model, "clock");
+            previous = clock.output;
+        } else {
+            SDFDirector director = new SDFDirector(model, "director");
+            director.iterations.setExpression("" + iterations);
+            Ramp ramp = new Ramp(model, "ramp");
+            previous = ramp.output;
+        }
+        for (int i = 0; i < actors; i++) {
+            Scale scale = new Scale(model, "scale" + i);
+            model.connect(previous, scale.input);
+            previous = scale.output;
+        }
+        Discard discard = new Discard(model, "discard");
+        model.connect(previous, discard.input);
+        Manager manager = new Manager(model.workspace(), "manager");
+        manager.enablePrintTimeAndMemory(false);
+        model.setManager(manager);
+        return manager;
+    }
+
+    /** Execute the model once.
+     *  @param manager The manager of the model.
+     *  @param metrics True to collect execution metrics.
+     *  @return The CPU time of the executing thread in nanoseconds.
+     *  @exception Exception If the model cannot be executed.
+     */
+    private static long _time(Manager manager, boolean metrics)
+            throws Exception {
+        manager.enableExecutionMetrics(metrics);
+        long start = _THREADS.getCurrentThreadCpuTime();
+        manager.execute();
+        return _THREADS.getCurrentThreadCpuTime() - start;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The bean that measures the CPU time of a thread, which is less
+     *  sensitive than the elapsed time to other load on the machine.
+     */
+    private static final ThreadMXBean _THREADS = ManagementFactory
+            .getThreadMXBean();
+}
@@ -394,3 +394,91 @@ test Manager-13.0 {Test execution by in another thread} {
 } {0 1}
 
 # FIXME: I have no idea how to test pause() and finish().
+
+# Return the string representation of a java.util.Map.
+proc mapToString {map} {
+    return [[java::cast java.lang.Object $map] toString]
+}
+
+######################################################################
+####
+#
+test Manager-14.1 {Execution metrics are disabled by default} {
+    set e0 [sdfModel 3]
+    set manager [$e0 getManager]
+    set ramp [java::new ptolemy.actor.lib.Ramp $e0 ramp]
+    set rec [java::new ptolemy.actor.lib.Recorder $e0 rec]
+    $e0 connect \
+            [java::field [java::cast ptolemy.actor.lib.Source $ramp] output] \
+            [java::field [java::cast ptolemy.actor.lib.Sink $rec] input]
+    $manager execute
+    java::isnull [$manager getExecutionMetrics]
+} {1}
+
+######################################################################
+####
+#
+test Manager-14.2 {Collect execution metrics} {
+    # Uses 14.1 above
+    $manager enableExecutionMetrics true
+    set metrics [$manager getExecutionMetrics]
+    # Time every firing.
+    $metrics setSamplingInterval 1
+    $manager execute
+    set rampMetrics [$metrics getActorMetrics $ramp]
+    set recMetrics [$metrics getActorMetrics $rec]
+    list [enumToTokenValues [$rec getRecord 0]] \
+	[$metrics getActorCount] [$metrics getTotalFirings] \
+	[$rampMetrics getFirings] \
+	[[$rampMetrics getIterateHistogram] getCount] \
+	[mapToString [$rampMetrics getTokensSent]] \
+	[mapToString [$recMetrics getTokensReceived]] \
+	[mapToString [$recMetrics getQueueDepths]]
+} {{0 1 2} 2 6 3 3 {{output=3}} {{input=3}} {{input=0}}}
+
+######################################################################
+####
+#
+test Manager-14.3 {Execution metrics are exposed through JMX} {
+    # Uses 14.2 above
+    set server [java::call java.lang.management.ManagementFactory \
+		    getPlatformMBeanServer]
+    set pattern [java::new javax.management.ObjectName \
+		     "ptolemy.actor:type=ActorMetrics,name=\".top.ramp\",*"]
+    set names [$server queryNames $pattern [java::null]]
+    set name [java::cast javax.management.ObjectName \
+		  [[$names iterator] next]]
+    list [$names size] [$server getAttribute $name Firings]
+} {1 3}
+
+######################################################################
+####
+#
+test Manager-14.4 {Disabling execution metrics unregisters them} {
+    # Uses 14.3 above
+    $manager enableExecutionMetrics false
+    set names [$server queryNames $pattern [java::null]]
+    list [java::isnull [$manager getExecutionMetrics]] [$names size] \
+	[mapToString [$rampMetrics getTokensSent]]
+} {1 0 {{output=3}}}
+
+######################################################################
+####
+#
+test Manager-14.5 {Firings that are not timed are counted at wrapup} {
+    # Uses 14.4 above
+    $manager enableExecutionMetrics true
+    set metrics [$manager getExecutionMetrics]
+    # With the default sampling interval, no iteration of this
+    # execution is timed.
+    $manager execute
+    set rampMetrics [$metrics getActorMetrics $ramp]
+    set recMetrics [$metrics getActorMetrics $rec]
+    set result [list [$metrics getTotalFirings] \
+	[$rampMetrics getFirings] \
+	[[$rampMetrics getIterateHistogram] getCount] \
+	[mapToString [$rampMetrics getTokensSent]] \
+	[mapToString [$recMetrics getTokensReceived]]]
+    $manager enableExecutionMetrics false
+    set result
+} {6 3 0 {{output=3}} {{input=3}}}
@@ -0,0 +1,171 @@
+# Tests for the TypeResolver class
+#
+# @Author: agent
+#
+# $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+set tInt [java::field ptolemy.data.type.BaseType INT]
+set tDouble [java::field ptolemy.data.type.BaseType DOUBLE]
+
+# Create a chain from a source with the specified output type
+# through a forwarding actor to a sink, and return the ports.
+proc typeChain {e0 name type} {
+    set source [java::new ptolemy.actor.TypedAtomicActor $e0 ${name}Source]
+    set output [java::new ptolemy.actor.TypedIOPort $source output false true]
+    $output setTypeEquals $type
+
+    set forward [java::new ptolemy.actor.TypedAtomicActor $e0 ${name}Forward]
+    set in [java::new ptolemy.actor.TypedIOPort $forward input true false]
+    set out [java::new ptolemy.actor.TypedIOPort $forward output false true]
+
+    set sink [java::new ptolemy.actor.TypedAtomicActor $e0 ${name}Sink]
+    set input [java::new ptolemy.actor.TypedIOPort $sink input true false]
+
+    $e0 connect $output $in
+    $e0 connect $out $input
+    return [list $output $in $out $input]
+}
+
+proc portTypes {ports} {
+    set result {}
+    foreach port $ports {
+        lappend result [[$port getType] toString]
+    }
+    return $result
+}
+
+######################################################################
+####
+#
+test TypeResolver-1.1 {Resolve the types of independent chains} {
+    set e0 [java::new ptolemy.actor.TypedCompositeActor]
+    $e0 setName E0
+    set director [java::new ptolemy.actor.Director $e0 director]
+    set chain1 [typeChain $e0 A $tInt]
+    set chain2 [typeChain $e0 B $tDouble]
+    java::call ptolemy.actor.TypedCompositeActor resolveTypes $e0
+    set resolver [$e0 getTypeResolver]
+    list [portTypes $chain1] [portTypes $chain2] \
+	[$resolver getComponentCount] [$resolver getSolvedComponentCount]
+} {{int int int int} {double double double double} 2 2}
+
+######################################################################
+####
+#
+test TypeResolver-1.2 {Resolving again does not solve unchanged components} {
+    # Uses 1.1 above
+    java::call ptolemy.actor.TypedCompositeActor resolveTypes $e0
+    list [portTypes $chain1] [portTypes $chain2] \
+	[$resolver getComponentCount] [$resolver getSolvedComponentCount]
+} {{int int int int} {double double double double} 2 0}
+
+######################################################################
+####
+#
+test TypeResolver-1.3 {Only the changed component is solved} {
+    # Uses 1.1 above
+    [lindex $chain2 0] setTypeEquals $tInt
+    java::call ptolemy.actor.TypedCompositeActor resolveTypes $e0
+    set r1 [list [portTypes $chain1] [portTypes $chain2] \
+	[$resolver getSolvedComponentCount]]
+    [lindex $chain1 0] setTypeEquals $tDouble
+    java::call ptolemy.actor.TypedCompositeActor resolveTypes $e0
+    list $r1 [portTypes $chain1] [portTypes $chain2] \
+	[$resolver getSolvedComponentCount]
+} {{{int int int int} {int int int int} 1} {double double double double} {int int int int} 1}
+
+######################################################################
+####
+#
+test TypeResolver-1.4 {A type set outside of type resolution is detected} {
+    # Uses 1.1 above
+    [lindex $chain1 2] setTypeEquals $tInt
+    [lindex $chain1 2] setTypeEquals [java::field ptolemy.data.type.BaseType UNKNOWN]
+    java::call ptolemy.actor.TypedCompositeActor resolveTypes $e0
+    list [portTypes $chain1] [$resolver getSolvedComponentCount]
+} {{double double double double} 1}
+
+######################################################################
+####
+#
+test TypeResolver-2.1 {Solve components in parallel} {
+    set e0 [java::new ptolemy.actor.TypedCompositeActor]
+    $e0 setName E0
+    set director [java::new ptolemy.actor.Director $e0 director]
+    set chains {}
+    for {set i 0} {$i < 20} {incr i} {
+	if {$i % 2 == 0} {
+	    lappend chains [typeChain $e0 C$i $tInt]
+	} else {
+	    lappend chains [typeChain $e0 C$i $tDouble]
+	}
+    }
+    set resolver [$e0 getTypeResolver]
+    $resolver setThreads 4
+    $resolver setParallelThreshold 0
+    java::call ptolemy.actor.TypedCompositeActor resolveTypes $e0
+    set result {}
+    foreach chain $chains {
+	# The type of the input of the sink.
+	lappend result [lindex [portTypes $chain] 3]
+    }
+    list $result [$resolver getComponentCount] \
+	[$resolver getSolvedComponentCount]
+} {{int double int double int double int double int double int double int double int double int double int double} 20 20}
+
+######################################################################
+####
+#
+test TypeResolver-2.2 {Type conflicts are reported after parallel resolution} {
+    # Uses 2.1 above
+    [lindex [lindex $chains 0] 3] setTypeEquals \
+	[java::field ptolemy.data.type.BaseType BOOLEAN]
+    catch {java::call ptolemy.actor.TypedCompositeActor resolveTypes $e0} msg
+    list $msg [$resolver getSolvedComponentCount]
+} {{ptolemy.actor.TypeConflictException: Type conflicts occurred in .E0 on the following inequalities:
+  (ptolemy.actor.TypedIOPort {.E0.C0Forward.output}, int) <= (ptolemy.actor.TypedIOPort {.E0.C0Sink.input}, boolean)
+} 1}
+
+######################################################################
+####
+#
+test TypeResolver-3.1 {setThreads} {
+    catch {$resolver setThreads 0} msg
+    list $msg
+} {{java.lang.IllegalArgumentException: The number of threads must be at least one: 0}}
@@ -0,0 +1,193 @@
+/* A histogram of durations with logarithmically spaced bins.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.actor.util;
+
+///////////////////////////////////////////////////////////////////
+//// LatencyHistogram
+
+/**
+ A histogram of durations, in nanoseconds. Bin <i>k</i> counts the
+ durations <i>d</i> with 2<sup><i>k</i>-1</sup> &lt;= <i>d</i> &lt;
+ 2<sup><i>k</i></sup>, and bin 0 counts durations of zero (or less,
+ which can occur if the system clock is adjusted). Recording a duration
+ is a few additions, so the histogram is cheap enough to update on
+ every firing of an actor.
+ <p>
+ The histogram is not synchronized. It is meant to be updated by one
+ thread at a time, such as the thread that fires an actor, and read
+ by any thread, in which case the values read may lag the updates.
+ <p>
+ Percentiles are estimated from the bins, and so are accurate to within
+ a factor of two. The mean and the maximum are exact.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class LatencyHistogram {
+
+    /** Construct an empty histogram.
+     */
+    public LatencyHistogram() {
+        _bins = new long[BINS];
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public variables                  ////
+
+    /** The number of bins. */
+    public static final int BINS = 64;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the number of durations recorded in the specified bin.
+     *  @param bin The bin, between 0 and {@link #BINS} - 1.
+     *  @return The number of durations in the bin.
+     */
+    public long getBinCount(int bin) {
+        return _bins[bin];
+    }
+
+    /** Return the number of durations recorded.
+     *  @return The number of durations recorded.
+     */
+    public long getCount() {
+        long result = 0L;
+        for (int i = 0; i < BINS; i++) {
+            result += _bins[i];
+        }
+        return result;
+    }
+
+    /** Return the longest duration recorded, or zero if none has been
+     *  recorded.
+     *  @return The longest duration in nanoseconds.
+     */
+    public long getMaximum() {
+        return _maximum;
+    }
+
+    /** Return the mean of the recorded durations, or zero if none
+     *  has been recorded.
+     *  @return The mean duration in nanoseconds.
+     */
+    public double getMean() {
+        long count = getCount();
+        if (count == 0L) {
+            return 0.0;
+        }
+        return (double) _total / count;
+    }
+
+    /** Return an upper bound on the specified percentile of the
+     *  recorded durations. This is the upper limit of the first bin
+     *  at which the cumulative count reaches the percentile, but no
+     *  more than the maximum recorded duration.
+     *  @param percentile The percentile, between 0.0 and 100.0.
+     *  @return The percentile in nanoseconds, or zero if no duration
+     *   has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0L) {
+            return 0L;
+        }
+        long target = (long) Math.ceil(count * percentile / 100.0);
+        if (target < 1L) {
+            target = 1L;
+        }
+        long cumulative = 0L;
+        for (int i = 0; i < BINS; i++) {
+            cumulative += _bins[i];
+            if (cumulative >= target) {
+                if (i == 0) {
+                    return 0L;
+                }
+                return Math.min((1L << i) - 1L, _maximum);
+            }
+        }
+        return _maximum;
+    }
+
+    /** Return the total of the recorded durations.
+     *  @return The total duration in nanoseconds.
+     */
+    public long getTotal() {
+        return _total;
+    }
+
+    /** Record a duration.
+     *  @param nanoseconds The duration in nanoseconds.
+     */
+    public void record(long nanoseconds) {
+        if (nanoseconds <= 0L) {
+            _bins[0]++;
+            return;
+        }
+        _bins[64 - Long.numberOfLeadingZeros(nanoseconds)]++;
+        _total += nanoseconds;
+        if (nanoseconds > _maximum) {
+            _maximum = nanoseconds;
+        }
+    }
+
+    /** Remove all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BINS; i++) {
+            _bins[i] = 0L;
+        }
+        _total = 0L;
+        _maximum = 0L;
+    }
+
+    /** Return a description of the histogram giving the count, the
+     *  mean, the median, the 99th percentile and the maximum.
+     *  @return A description of the histogram.
+     */
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + (long) getMean()
+                + "ns, median=" + getPercentile(50.0) + "ns, p99="
+                + getPercentile(99.0) + "ns, max=" + _maximum + "ns";
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The bins. */
+    private final long[] _bins;
+
+    /** The longest duration recorded. */
+    private long _maximum;
+
+    /** The sum of the durations. */
+    private long _total;
+}
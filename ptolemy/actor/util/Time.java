@@ -57,6 +57,15 @@ import ptolemy.math.ExtendedMath;
  * the time increases (unlike floating point numbers). This is because
  * Time is represented internally as a multiple of the resolution, and
  * the multiple is not constrained to any limited magnitude.
+ * The multiple is stored in a long as long as it fits, in which case
+ * arithmetic and comparison are done on the long without allocating
+ * any intermediate objects. Only when a result overflows a long is
+ * the multiple stored in a BigInteger. The two representations
+ * have the same semantics.
+ * <p>
+ * Since a time object is immutable, operations whose result is equal
+ * to one of their operands, such as adding zero, return that operand
+ * rather than a new time object.
  * <p>
  * The time value can be retrieved in three ways, the {@link #toString()}method
  * and the {@link #getDoubleValue()}method and the {@link #getLongValue()}
@@ -115,7 +124,6 @@ public class Time implements Comparable {
      */
     public Time(Director director) {
         _director = director;
-        _timeValue = BigInteger.ZERO;
     }
 
     /** Construct a Time object with the specified double value as its
@@ -145,7 +153,7 @@ public class Time implements Comparable {
                 _isPositiveInfinite = true;
             }
         } else {
-            _timeValue = _doubleToMultiple(timeValue);
+            _longValue = _doubleToMultiple(timeValue);
         }
     }
 
@@ -156,7 +164,7 @@ public class Time implements Comparable {
      */
     public Time(Director director, long timeValue) {
         _director = director;
-        _timeValue = new BigInteger(Long.toString(timeValue));
+        _longValue = timeValue;
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -167,13 +175,18 @@ public class Time implements Comparable {
      *  is associated with the given director,
      *  which provides the necessary information for quantization.
      *  This constructor is private and can only be accessed by the methods
-     *  defined inside this class.
+     *  defined inside this class. If the value fits in a long, then
+     *  it is stored as a long.
      *  @param director The director with which this time object is associated.
      *  @param timeValue The multiple of the precision that is the time value.
      */
     private Time(Director director, BigInteger timeValue) {
         _director = director;
-        _timeValue = timeValue;
+        if (timeValue.bitLength() < 64) {
+            _longValue = timeValue.longValue();
+        } else {
+            _timeValue = timeValue;
+        }
     }
 
     /** Construct a Time object with value that is one of _POSITIVE_INFINITY
@@ -182,10 +195,8 @@ public class Time implements Comparable {
      */
     private Time(int value) {
         if (value == _POSITIVE_INFINITY) {
-            _timeValue = null;
             _isPositiveInfinite = true;
         } else if (value == _NEGATIVE_INFINITY) {
-            _timeValue = null;
             _isNegativeInfinite = true;
         }
     }
@@ -253,7 +264,7 @@ public class Time implements Comparable {
         } else if (isInfinite()) {
             return this;
         } else {
-            BigInteger quantizedValue;
+            long quantizedValue;
 
             try {
                 quantizedValue = _doubleToMultiple(timeValue);
@@ -268,7 +279,19 @@ public class Time implements Comparable {
                         + "parameter caused this exception.");
             }
 
-            return new Time(_director, _timeValue.add(quantizedValue));
+            if (quantizedValue == 0L) {
+                return this;
+            }
+            if (_timeValue == null) {
+                long result = _longValue + quantizedValue;
+                // The sum overflows if both operands have a sign
+                // different from that of the result.
+                if (((_longValue ^ result) & (quantizedValue ^ result)) >= 0) {
+                    return new Time(_director, result);
+                }
+            }
+            return new Time(_director, _bigValue().add(
+                    BigInteger.valueOf(quantizedValue)));
         }
     }
 
@@ -309,21 +332,38 @@ public class Time implements Comparable {
         }
 
         // Ensure the resolutions are the same.
-        try {
-            double resolution = _timeResolution();
+        if (_director != time._director) {
+            try {
+                double resolution = _timeResolution();
 
-            if (resolution != time._timeResolution()) {
-                double thisValue = getDoubleValue();
-                double thatValue = time.getDoubleValue();
-                return new Time(_director, thisValue + thatValue);
+                if (resolution != time._timeResolution()) {
+                    double thisValue = getDoubleValue();
+                    double thatValue = time.getDoubleValue();
+                    return new Time(_director, thisValue + thatValue);
+                }
+            } catch (IllegalActionException e) {
+                // If the time resolution values are malformed this
+                // should have been caught before this.
+                throw new InternalErrorException(e);
             }
-        } catch (IllegalActionException e) {
-            // If the time resolution values are malformed this
-            // should have been caught before this.
-            throw new InternalErrorException(e);
         }
 
-        return new Time(_director, _timeValue.add(time._timeValue));
+        if (time._timeValue == null && time._longValue == 0L) {
+            return this;
+        }
+        if (_timeValue == null && _longValue == 0L
+                && _director == time._director) {
+            return time;
+        }
+        if (_timeValue == null && time._timeValue == null) {
+            long result = _longValue + time._longValue;
+            // The sum overflows if both operands have a sign
+            // different from that of the result.
+            if (((_longValue ^ result) & (time._longValue ^ result)) >= 0) {
+                return new Time(_director, result);
+            }
+        }
+        return new Time(_director, _bigValue().add(time._bigValue()));
     }
 
     /** Return -1, 0, or 1 if this time object is less than, equal to, or
@@ -368,10 +408,18 @@ public class Time implements Comparable {
             }
         }
 
-        double resolution = _timeResolution();
-
-        if (resolution == castTime._timeResolution()) {
-            return _timeValue.compareTo(castTime._timeValue);
+        if (_director == castTime._director
+                || _timeResolution() == castTime._timeResolution()) {
+            if (_timeValue == null && castTime._timeValue == null) {
+                if (_longValue < castTime._longValue) {
+                    return -1;
+                } else if (_longValue > castTime._longValue) {
+                    return 1;
+                } else {
+                    return 0;
+                }
+            }
+            return _bigValue().compareTo(castTime._bigValue());
         } else {
             double thisValue = getDoubleValue();
             double thatValue = castTime.getDoubleValue();
@@ -414,9 +462,13 @@ public class Time implements Comparable {
         } else if (_isNegativeInfinite) {
             return Double.NEGATIVE_INFINITY;
         } else {
-            // NOTE: Using doubleValue() here hugely increases the
-            // execution time... Could instead use longValue(), but the
-            // result would not necessarily be accurate.
+            // NOTE: Using BigInteger.doubleValue() here hugely increases
+            // the execution time, so it is only used if the multiple
+            // does not fit in a long. The conversion of a long to a
+            // double rounds in the same way.
+            if (_timeValue == null) {
+                return _longValue * _timeResolution();
+            }
             return _timeValue.doubleValue() * _timeResolution();
         }
     }
@@ -426,13 +478,18 @@ public class Time implements Comparable {
      *  resolution of the associated director.  Note that a Time value
      *  of positive infinity will return Long.MAX_VALUE and a Time
      *  value of negative infinity will return Long.MIN_VALUE.
+     *  If the multiple is too large to be represented by a long,
+     *  then the low-order 64 bits are returned.
      *  @return The long representation of the time value.
+     *  @see #isLongValueExact()
      */
     public long getLongValue() {
         if (_isPositiveInfinite) {
             return Long.MAX_VALUE;
         } else if (_isNegativeInfinite) {
             return Long.MIN_VALUE;
+        } else if (_timeValue == null) {
+            return _longValue;
         } else {
             return _timeValue.longValue();
         }
@@ -449,6 +506,19 @@ public class Time implements Comparable {
             return Integer.MIN_VALUE;
         } else if (_isPositiveInfinite) {
             return Integer.MAX_VALUE;
+        } else if (_timeValue == null) {
+            // Return the same value as BigInteger.hashCode() without
+            // creating a BigInteger. The hash of a BigInteger is
+            // computed over the 32-bit words of its magnitude, most
+            // significant first, and multiplied by its sign.
+            if (_longValue == 0L) {
+                return 0;
+            }
+            long magnitude = _longValue < 0 ? -_longValue : _longValue;
+            int high = (int) (magnitude >>> 32);
+            int low = (int) magnitude;
+            int hash = high == 0 ? low : 31 * high + low;
+            return _longValue < 0 ? -hash : hash;
         } else {
             return _timeValue.hashCode();
         }
@@ -474,7 +544,7 @@ public class Time implements Comparable {
         if (_timeValue != null) {
             return (_timeValue.signum() == -1);
         }
-        return _isNegativeInfinite;
+        return _isNegativeInfinite || _longValue < 0L;
     }
 
     /** Return true if the current time value is a negative infinity.
@@ -493,7 +563,7 @@ public class Time implements Comparable {
         if (_timeValue != null) {
             return (_timeValue.signum() == 1);
         }
-        return _isPositiveInfinite;
+        return _isPositiveInfinite || _longValue > 0L;
     }
 
     /** Return true if the current time value is a positive infinity.
@@ -507,10 +577,18 @@ public class Time implements Comparable {
      *  @return true if the current time value is a zero.
      */
     public final boolean isZero() {
-        if (_timeValue != null) {
-            return (_timeValue.signum() == 0);
-        }
-        return false;
+        return _timeValue == null && !isInfinite() && _longValue == 0L;
+    }
+
+    /** Return true if this time value is finite and the value returned by
+     *  {@link #getLongValue()}, the multiple of the time resolution,
+     *  is exact. Otherwise, the multiple is too large to be represented
+     *  by a long.
+     *  @return True if the time value is finite and its multiple of the
+     *   time resolution fits in a long.
+     */
+    public final boolean isLongValueExact() {
+        return _timeValue == null && !isInfinite();
     }
 
     /** Return the maximum value of time whose representation as a double
@@ -581,8 +659,22 @@ public class Time implements Comparable {
             return add(POSITIVE_INFINITY);
         } else if (time.isPositiveInfinite()) {
             return add(NEGATIVE_INFINITY);
+        } else if (time._timeValue == null && time._longValue != Long.MIN_VALUE) {
+            if (time._longValue == 0L) {
+                return this;
+            }
+            if (_timeValue == null && _director == time._director
+                    && !isInfinite()) {
+                long result = _longValue - time._longValue;
+                // The difference overflows if the operands have different
+                // signs and the sign of the result differs from this one.
+                if (((_longValue ^ time._longValue) & (_longValue ^ result)) >= 0) {
+                    return new Time(_director, result);
+                }
+            }
+            return add(new Time(time._director, -time._longValue));
         } else {
-            return add(new Time(time._director, time._timeValue.negate()));
+            return add(new Time(time._director, time._bigValue().negate()));
         }
     }
 
@@ -628,16 +720,27 @@ public class Time implements Comparable {
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
 
-    /** Given a double, return the BigInteger that represents its
-     *  quantized value. The BigInteger is the rounded result of dividing
+    /** Return the multiple of the resolution as a BigInteger.
+     *  This method must not be called on an infinite time value.
+     *  @return The multiple of the resolution.
+     */
+    private BigInteger _bigValue() {
+        if (_timeValue != null) {
+            return _timeValue;
+        }
+        return BigInteger.valueOf(_longValue);
+    }
+
+    /** Given a double, return the long that represents its
+     *  quantized value. The long is the rounded result of dividing
      *  the double by the time resolution.
      *  @param value The value as a double.
-     *  @return A BigInteger that specifies this double value as a multiple
+     *  @return A long that specifies this double value as a multiple
      *  of the resolution given by the associated director.
      *  @exception IllegalActionException If the given double time value does
      *  not match the time resolution.
      */
-    private BigInteger _doubleToMultiple(double value)
+    private long _doubleToMultiple(double value)
             throws IllegalActionException {
         // NOTE: when the value is too big a multiple of the resolution,
         // the division fails to deliver adequate precision. If this happens,
@@ -677,7 +780,7 @@ public class Time implements Comparable {
                             + (multiple * precision));
         }
 
-        return BigInteger.valueOf(multiple);
+        return multiple;
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -696,6 +799,13 @@ public class Time implements Comparable {
      */
     private boolean _isNegativeInfinite = false;
 
-    /** The time value, as a multiple of the resolution. */
+    /** The time value, as a multiple of the resolution, if it fits
+     *  in a long and is finite. This is not used if _timeValue is not null.
+     */
+    private long _longValue = 0L;
+
+    /** The time value, as a multiple of the resolution, if it does not
+     *  fit in a long, or null otherwise.
+     */
     private BigInteger _timeValue = null;
 }
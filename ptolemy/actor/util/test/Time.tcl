@@ -155,3 +155,75 @@ test Time-3.2 {equals a non-time} {
      # e.equals(null) returns false."
      list [$t1 equals [java::new java.util.Date]]
 } {0}
+
+######################################################################
+####
+# Return a time object whose value is 2^power times the resolution.
+# Jacl converts long arguments to 32-bit integers, so larger values
+# are created by repeated addition.
+proc powerOfTwo {director power} {
+    set result [java::new {ptolemy.actor.util.Time ptolemy.actor.Director long} $director 1]
+    for {set i 0} {$i < $power} {incr i} {
+	set result [$result add $result]
+    }
+    return $result
+}
+
+######################################################################
+####
+#
+test Time-4.1 {add and subtract: results that overflow a long} {
+    set d4 [java::new ptolemy.actor.Director]
+    set zero4 [java::new ptolemy.actor.util.Time $d4]
+    set tOne [java::new {ptolemy.actor.util.Time ptolemy.actor.Director long} $d4 1]
+    set t62 [powerOfTwo $d4 62]
+    # 2^63 does not fit in a long.
+    set t63 [$t62 add $t62]
+    # -2^63 is Long.MIN_VALUE.
+    set tMin [$zero4 subtract $t63]
+    set tSmall [$tMin subtract $tOne]
+    list [$t62 isLongValueExact] [$t63 isLongValueExact] \
+	[$tMin isLongValueExact] [$tSmall isLongValueExact] \
+	[$t63 compareTo $t62] [$tSmall compareTo $tMin] \
+	[[$t63 subtract $t62] equals $t62] \
+	[[$t63 subtract $t62] isLongValueExact] \
+	[[$tSmall add $tOne] equals $tMin] \
+	[[$tSmall add $tOne] isLongValueExact] \
+	[[$t63 add $tSmall] getLongValue] \
+	[$t63 isPositive] [$tSmall isNegative] [[$t63 add $tSmall] isNegative]
+} {1 0 1 0 1 -1 1 1 1 1 -1 1 1 1}
+
+######################################################################
+####
+#
+test Time-4.2 {hashCode is the same as that of the multiple as a BigInteger} {
+    set d5 [java::new ptolemy.actor.Director]
+    set zero5 [java::new ptolemy.actor.util.Time $d5]
+    set one [java::field java.math.BigInteger ONE]
+    set result {}
+    foreach power {0 31 32 62 63 64} {
+	set t [powerOfTwo $d5 $power]
+	set b [$one shiftLeft $power]
+	lappend result [expr {[$t hashCode] == [$b hashCode]}] \
+	    [expr {[[$zero5 subtract $t] hashCode] == [[$b negate] hashCode]}]
+    }
+    list $result [$zero5 hashCode]
+} {{1 1 1 1 1 1 1 1 1 1 1 1} 0}
+
+######################################################################
+####
+#
+test Time-4.3 {Adding or subtracting zero returns the same object} {
+    set d6 [java::new ptolemy.actor.Director]
+    set t6 [java::new {ptolemy.actor.util.Time ptolemy.actor.Director double} $d6 2.5]
+    set zero [java::new ptolemy.actor.util.Time $d6]
+    set id [java::call java.lang.System identityHashCode $t6]
+    set result {}
+    foreach same [list [$t6 add $zero] [$t6 {add double} 0.0] \
+		      [$t6 subtract $zero] [$t6 {subtract double} 0.0] \
+		      [$zero add $t6]] {
+	lappend result [expr {[java::call java.lang.System identityHashCode $same] == $id}]
+    }
+    list $result [[$t6 add $t6] toString] [[$t6 {subtract double} 0.5] toString] \
+	[$zero isZero] [$t6 isPositive] [[$zero subtract $t6] isNegative]
+} {{1 1 1 1 1} 5.0 2.0 1 1 1}
@@ -1041,7 +1041,10 @@ public class JavaCodeGenerator extends ProceduralCodeGenerator {
             // This seems expensive.
             // Could be Actors or States.  For States, see:
             // $PTII/bin/ptcg -language java  -inline false $PTII/ptolemy/cg/adapter/generic/program/procedural/java/adapters/ptolemy/domains/modal/test/auto/FSMActor.xml
-            Iterator<?> namedObjs = ((CompositeActor) getComponent().toplevel())
+            // Only consider the actors in the component for which code is
+            // generated, not those inside other composites in the same model
+            // that have code generators of their own.
+            Iterator<?> namedObjs = ((CompositeActor) getComponent())
                     .allAtomicEntityList().iterator();
             while (namedObjs.hasNext()) {
                 NamedObj namedObj = (NamedObj) namedObjs.next();
@@ -321,50 +321,7 @@ public class CompiledCompositeActor extends TypedCompositeActor {
                     //                            + _loadedCodeVersion + " "
                     //                            + _workspace.getVersion());
                     //                     System.err.flush();
-                    String className = _sanitizedActorName;
-                    Class<?> classInstance = null;
-                    URL url = null;
-                    try {
-                        url = codeDirectory.asFile().toURI().toURL();
-                        URL[] urls = new URL[] { url };
-
-                        ClassLoader classLoader = new URLClassLoader(urls);
-                        classInstance = classLoader.loadClass(className);
-
-                    } catch (MalformedURLException ex) {
-                        throw new IllegalActionException(this, ex,
-                                "The class URL \"" + url + "\" for \""
-                                        + className + "\" is malformed");
-                    } catch (UnsupportedClassVersionError ex) {
-                        // This can occur if we have two different
-                        // machines sharing ~/cg
-                        throw new IllegalActionException(
-                                this,
-                                ex,
-                                "Unsupported class version in the class \""
-                                        + className
-                                        + "\" from \""
-                                        + url
-                                        + "\".  Try deleting the \""
-                                        + className
-                                        + "\" class in \""
-                                        + url
-                                        + "\".\nThis problem can also occur "
-                                        + "if the version of java that is "
-                                        + "running Ptolemy and the version "
-                                        + "of javac used to compile the file "
-                                        + "to load into Ptolemy are different "
-                                        + "and java is of a later version."
-                                        + "\nTo see information about the "
-                                        + "version of Java used to run "
-                                        + "Ptolemy, use View -> JVM Properties."
-                                        + "  To see what version of javac "
-                                        + "was used, run \"java -version\".");
-                    } catch (Throwable ex) {
-                        throw new IllegalActionException(this, ex,
-                                "Cannot load the class \"" + className
-                                        + "\" from \"" + url + "\"");
-                    }
+                    Class<?> classInstance = _loadWrapperClass(_sanitizedActorName);
 
                     try {
                         _objectWrapper = classInstance.newInstance();
@@ -452,6 +409,79 @@ public class CompiledCompositeActor extends TypedCompositeActor {
     ///////////////////////////////////////////////////////////////////
     ////                         protected methods                 ////
 
+    /** Return true if the shared object file should be built.  The
+     *  shared object file must be built if shared object file does
+     *  not exist or if the model has been modified and not saved or
+     *  if the modification time of the shared object file is earlier
+     *  than the modification time of the model file.
+     *  This method always copies files listed in the fileDependency
+     *  block.  Derived classes that keep the compiled code somewhere
+     *  other than the <i>codeDirectory</i> may override this.
+     *  @return true if the shared object file should be built.
+     *  @exception IllegalActionException If there is a problem
+     *  generating the path to the shared object.
+     */
+    protected boolean _buildSharedObjectFile() throws IllegalActionException {
+        String message = "CompiledCompositeActor: Building shared object: ";
+
+        // Look for the fileDependencies code block and copy files if
+        // necessary.  If we copy files, then we should rebuild.
+        // FIXME: this is a side effect, and we should be sure to do
+        // it before returning from this method.
+        _invokeAdapterMethod("copyFilesToCodeDirectory");
+
+        File sharedObjectFile = new File(_sharedObjectPath(_sanitizedActorName));
+
+        Effigy effigy = Configuration.findEffigy(this.toplevel());
+
+        // FIXME
+        // effigy.isModified() is not the optimal way to deal with changes.
+        // It might be the case that we already compiled after the change.
+        if (effigy != null && effigy.isModified()) {
+            System.out
+                    .println(message
+                            + "The effigy "
+                            + effigy
+                            + "(model : "
+                            + ((PtolemyEffigy) effigy).getModel()
+                            + ") says the model was modified and thus it does not matter "
+                            + "if the shared object file is newer than the model file "
+                            + "because the model file is out of date.");
+            return true;
+        }
+
+        URI modelURI = URIAttribute.getModelURI(this);
+        if (modelURI == null) {
+            System.out.println(message
+                    + "This model does not have a _uri parameter.");
+            return true;
+        }
+        String modelPath = modelURI.getPath();
+        File modelFile = null;
+        try {
+            modelFile = new File(modelPath);
+        } catch (Exception ex) {
+            // Ignore, perhaps modelURI points to a remote model.
+        }
+        if (modelFile == null
+                || sharedObjectFile.lastModified() < modelFile.lastModified()) {
+            System.out.println(message
+                    + "The sharedObjectFile has a modification time "
+                    + "that is earlier than the modelFile modification time.");
+            return true;
+        }
+
+        if (effigy == null) {
+            System.out.println(message + "No effigy.  This can happen when "
+                    + "CodeGenerator.generateCode() is called from within "
+                    + "the test suite.  The code will be recompiled.");
+            _version = ++_noEffigyVersion;
+            _updateSanitizedActorName();
+            return true;
+        }
+        return false;
+    }
+
     /** Compile the Java code.
      *  The <code>javac</code> and <code>javah</code> commands are
      *  executed on the the java file.
@@ -576,81 +606,66 @@ public class CompiledCompositeActor extends TypedCompositeActor {
         _compileJNICode();
     }
 
-    ///////////////////////////////////////////////////////////////////
-    ////                         private methods                   ////
-
-    /** Return true if the shared object file should be built.  The
-     *  shared object file must be built if shared object file does
-     *  not exist or if the model has been modified and not saved or
-     *  if the modification time of the shared object file is earlier
-     *  than the modification time of the model file.
-     *  This method always copies files listed in the fileDependency
-     *  block.
-     *  @return true if the shared object file should be built.
-     *  @exception IllegalActionException If there is a problem
-     *  generating the path to the shared object.
+    /** Load the wrapper class that was generated for this actor.
+     *  In this base class, the class is loaded from the
+     *  <i>codeDirectory</i> with a URLClassLoader.  Derived classes
+     *  that compile the generated code elsewhere may override this.
+     *  @param className The name of the wrapper class.
+     *  @return The wrapper class.
+     *  @exception IllegalActionException If the class cannot be loaded.
      */
-    private boolean _buildSharedObjectFile() throws IllegalActionException {
-        String message = "CompiledCompositeActor: Building shared object: ";
-
-        // Look for the fileDependencies code block and copy files if
-        // necessary.  If we copy files, then we should rebuild.
-        // FIXME: this is a side effect, and we should be sure to do
-        // it before returning from this method.
-        _invokeAdapterMethod("copyFilesToCodeDirectory");
-
-        File sharedObjectFile = new File(_sharedObjectPath(_sanitizedActorName));
-
-        Effigy effigy = Configuration.findEffigy(this.toplevel());
+    protected Class<?> _loadWrapperClass(String className)
+            throws IllegalActionException {
+        Class<?> classInstance = null;
+        URL url = null;
+        try {
+            url = codeDirectory.asFile().toURI().toURL();
+            URL[] urls = new URL[] { url };
 
-        // FIXME
-        // effigy.isModified() is not the optimal way to deal with changes.
-        // It might be the case that we already compiled after the change.
-        if (effigy != null && effigy.isModified()) {
-            System.out
-                    .println(message
-                            + "The effigy "
-                            + effigy
-                            + "(model : "
-                            + ((PtolemyEffigy) effigy).getModel()
-                            + ") says the model was modified and thus it does not matter "
-                            + "if the shared object file is newer than the model file "
-                            + "because the model file is out of date.");
-            return true;
-        }
+            ClassLoader classLoader = new URLClassLoader(urls);
+            classInstance = classLoader.loadClass(className);
 
-        URI modelURI = URIAttribute.getModelURI(this);
-        if (modelURI == null) {
-            System.out.println(message
-                    + "This model does not have a _uri parameter.");
-            return true;
-        }
-        String modelPath = modelURI.getPath();
-        File modelFile = null;
-        try {
-            modelFile = new File(modelPath);
-        } catch (Exception ex) {
-            // Ignore, perhaps modelURI points to a remote model.
-        }
-        if (modelFile == null
-                || sharedObjectFile.lastModified() < modelFile.lastModified()) {
-            System.out.println(message
-                    + "The sharedObjectFile has a modification time "
-                    + "that is earlier than the modelFile modification time.");
-            return true;
+        } catch (MalformedURLException ex) {
+            throw new IllegalActionException(this, ex,
+                    "The class URL \"" + url + "\" for \""
+                            + className + "\" is malformed");
+        } catch (UnsupportedClassVersionError ex) {
+            // This can occur if we have two different
+            // machines sharing ~/cg
+            throw new IllegalActionException(
+                    this,
+                    ex,
+                    "Unsupported class version in the class \""
+                            + className
+                            + "\" from \""
+                            + url
+                            + "\".  Try deleting the \""
+                            + className
+                            + "\" class in \""
+                            + url
+                            + "\".\nThis problem can also occur "
+                            + "if the version of java that is "
+                            + "running Ptolemy and the version "
+                            + "of javac used to compile the file "
+                            + "to load into Ptolemy are different "
+                            + "and java is of a later version."
+                            + "\nTo see information about the "
+                            + "version of Java used to run "
+                            + "Ptolemy, use View -> JVM Properties."
+                            + "  To see what version of javac "
+                            + "was used, run \"java -version\".");
+        } catch (Throwable ex) {
+            throw new IllegalActionException(this, ex,
+                    "Cannot load the class \"" + className
+                            + "\" from \"" + url + "\"");
         }
 
-        if (effigy == null) {
-            System.out.println(message + "No effigy.  This can happen when "
-                    + "CodeGenerator.generateCode() is called from within "
-                    + "the test suite.  The code will be recompiled.");
-            _version = ++_noEffigyVersion;
-            _updateSanitizedActorName();
-            return true;
-        }
-        return false;
+        return classInstance;
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
     /** Send a debug message to all debug listeners that have registered.
      * Then print the message to System.out.
      * @param message The given debug message.
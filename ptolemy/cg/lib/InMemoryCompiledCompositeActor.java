@@ -0,0 +1,715 @@
+/* A composite actor whose contents are compiled to Java in memory and run in-process.
+
+ Copyright (c) 2010 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.cg.lib;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import ptolemy.actor.IOPort;
+import ptolemy.actor.TypedIOPort;
+import ptolemy.actor.util.DFUtilities;
+import ptolemy.cg.kernel.generic.program.procedural.java.JavaCodeGenerator;
+import ptolemy.data.BooleanToken;
+import ptolemy.data.expr.Parameter;
+import ptolemy.data.expr.ScopeExtender;
+import ptolemy.data.expr.Variable;
+import ptolemy.kernel.CompositeEntity;
+import ptolemy.kernel.util.Attribute;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.KernelException;
+import ptolemy.kernel.util.Locatable;
+import ptolemy.kernel.util.NameDuplicationException;
+import ptolemy.kernel.util.NamedObj;
+import ptolemy.kernel.util.Settable;
+import ptolemy.kernel.util.Workspace;
+import ptolemy.util.StringBufferExec;
+
+///////////////////////////////////////////////////////////////////
+//// InMemoryCompiledCompositeActor
+
+/**
+ A composite actor that generates Java code for its contents, compiles
+ that code inside the running JVM and executes it in place of the
+ interpreted contents.
+ <p>
+ Code is generated with a {@link JavaCodeGenerator}, exactly as for a
+ {@link CompiledCompositeActor} whose <i>generatorPackage</i> is Java.
+ Instead of running <code>javac</code> in a separate process and loading
+ the resulting class files from the <i>codeDirectory</i>, the generated
+ sources are handed to the compiler returned by
+ javax.tools.ToolProvider.getSystemJavaCompiler(), the class files are
+ kept in memory, and the wrapper class is loaded with a class loader
+ of its own whose parent is the class loader of this actor.  Each
+ instance thus gets its own copy of any static state in the generated
+ code, while the generated code can still refer to Ptolemy classes.
+ The sources are still written to the <i>codeDirectory</i> so that
+ they can be inspected.
+ <p>
+ The compiled classes are cached under a digest of the MoML of the
+ contents of this actor, together with the resolved types, widths and
+ rates of its ports and the values of the variables in the scope of
+ this actor, which the contents may refer to and whose values are
+ inlined in the generated code.  Reinitializing the model, or
+ initializing another instance with the same contents in the same
+ scope, reuses the cached classes without generating or compiling any
+ code.  The cache holds the classes of at most 64 versions of the
+ contents, and discards the least recently used classes first.
+ <p>
+ Inputs and outputs are transferred between the ports of this actor
+ and the generated code by the base class, so the enclosing director
+ sees an ordinary opaque actor.  The same restrictions on port types
+ apply as in the base class.  A compiler is only available when Ptolemy
+ runs in a JDK; in a JRE, initialize() throws an exception and the
+ <i>executeEmbeddedCode</i> parameter should be set to false, which
+ executes the contents as an ordinary composite actor.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class InMemoryCompiledCompositeActor extends CompiledCompositeActor {
+
+    /** Construct an actor in the default workspace with no container
+     *  and an empty string as its name. Add the actor to the workspace
+     *  directory.  Increment the version number of the workspace.
+     */
+    public InMemoryCompiledCompositeActor() {
+        super();
+        _init();
+    }
+
+    /** Construct an actor with the given container and name.
+     *  @param container The container.
+     *  @param name The name of this actor.
+     *  @exception IllegalActionException If the entity cannot be contained
+     *   by the proposed container.
+     *  @exception NameDuplicationException If the container already has an
+     *   actor with this name.
+     */
+    public InMemoryCompiledCompositeActor(CompositeEntity container,
+            String name) throws IllegalActionException,
+            NameDuplicationException {
+        super(container, name);
+        _init();
+    }
+
+    /** Construct an actor in the specified workspace with no
+     *  container and an empty string as a name. If the workspace
+     *  argument is null, then use the default workspace.  Add the
+     *  actor to the workspace directory.  Increment the version
+     *  number of the workspace.
+     *  @param workspace The workspace that will list the actor.
+     */
+    public InMemoryCompiledCompositeActor(Workspace workspace) {
+        super(workspace);
+        _init();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Clone the actor into the specified workspace.
+     *  @param workspace The workspace for the new object.
+     *  @return A new actor.
+     *  @exception CloneNotSupportedException If a derived class contains
+     *   an attribute that cannot be cloned.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        InMemoryCompiledCompositeActor newObject = (InMemoryCompiledCompositeActor) super
+                .clone(workspace);
+        newObject._codeGenerator = null;
+        newObject._compiledCode = null;
+        newObject._loadedCode = null;
+        return newObject;
+    }
+
+    /** Remove all compiled classes from the cache shared by
+     *  the instances of this class.  Instances that have already
+     *  loaded their classes keep using them.
+     */
+    public static void clearCache() {
+        synchronized (_cache) {
+            _cache.clear();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Return true if code has to be generated and compiled for
+     *  the contents of this actor, which is the case if the
+     *  cache has no classes for the current contents, or if the
+     *  classes in the cache are not the ones that were last loaded,
+     *  as happens when a variable in scope is set back to an earlier
+     *  value, so that the classes get loaded again.
+     *  @return True if the code should be generated and compiled,
+     *   or the classes in the cache should be loaded.
+     *  @exception IllegalActionException If the description of the
+     *   contents cannot be computed.
+     */
+    protected boolean _buildSharedObjectFile() throws IllegalActionException {
+        _modelDigest = _digest();
+        synchronized (_cache) {
+            _compiledCode = _cache.get(_modelDigest);
+        }
+        if (_compiledCode != null && _debugging) {
+            _debug("Reusing the classes compiled for " + _modelDigest);
+        }
+        return _compiledCode == null || _compiledCode != _loadedCode;
+    }
+
+    /** Generate Java code for the contents of this actor, compile it
+     *  in memory and add the resulting classes to the cache, unless
+     *  the cache already has classes for the current contents.
+     *  @exception IllegalActionException If there is no Java compiler
+     *   in this JVM, or if the code cannot be generated or compiled.
+     */
+    protected void _generateAndCompileEmbeddedCode()
+            throws IllegalActionException {
+        if (_compiledCode != null) {
+            return;
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalActionException(this,
+                    "No Java compiler is available in this JVM, "
+                            + "which probably means that Ptolemy is running "
+                            + "in a JRE instead of a JDK.  Set the "
+                            + "executeEmbeddedCode parameter to false "
+                            + "to execute the contents of this actor "
+                            + "without compiling them.");
+        }
+
+        CapturingJavaCodeGenerator codeGenerator = _getCodeGenerator();
+        codeGenerator.sources.clear();
+        StringBufferExec executeCommands = new StringBufferExec();
+        codeGenerator.setExecuteCommands(executeCommands);
+        try {
+            codeGenerator.generateCode();
+        } catch (KernelException ex) {
+            throw new IllegalActionException(this, ex,
+                    "Failed to generate code.");
+        }
+
+        CompiledCode compiledCode = _compile(compiler, codeGenerator.sources,
+                getSanitizedName());
+        codeGenerator.sources.clear();
+        synchronized (_cache) {
+            _cache.put(_modelDigest, compiledCode);
+        }
+        _compiledCode = compiledCode;
+    }
+
+    /** Load the wrapper class from the classes that were compiled
+     *  in memory.  The classes that are found in the cache may have
+     *  been compiled for another instance, so the name of the class
+     *  that is loaded is the one recorded when the classes were
+     *  compiled rather than the given name.
+     *  @param className The name of the wrapper class for this actor.
+     *  @return The wrapper class.
+     *  @exception IllegalActionException If the class cannot be loaded.
+     */
+    protected Class<?> _loadWrapperClass(String className)
+            throws IllegalActionException {
+        if (_compiledCode == null) {
+            throw new IllegalActionException(this, "No compiled classes for \""
+                    + className + "\".");
+        }
+        ClassLoader classLoader = new MemoryClassLoader(_compiledCode.classes,
+                getClass().getClassLoader());
+        try {
+            Class<?> wrapperClass = classLoader
+                    .loadClass(_compiledCode.className);
+            _loadedCode = _compiledCode;
+            return wrapperClass;
+        } catch (Throwable throwable) {
+            throw new IllegalActionException(this, throwable,
+                    "Cannot load the class \"" + _compiledCode.className
+                            + "\" that was compiled in memory.");
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Compile the given sources in memory.
+     *  @param compiler The compiler.
+     *  @param sources A map from file names to source code.
+     *  @param className The name of the wrapper class.
+     *  @return The compiled classes.
+     *  @exception IllegalActionException If the sources do not compile.
+     */
+    private CompiledCode _compile(JavaCompiler compiler,
+            Map<String, String> sources, String className)
+            throws IllegalActionException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        MemoryFileManager fileManager = new MemoryFileManager(compiler
+                .getStandardFileManager(diagnostics, null, null));
+
+        List<JavaFileObject> compilationUnits = new LinkedList<JavaFileObject>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            compilationUnits.add(new SourceFile(source.getKey(), source
+                    .getValue()));
+        }
+        List<String> options = new LinkedList<String>();
+        options.add("-nowarn");
+
+        boolean succeeded = false;
+        try {
+            succeeded = compiler.getTask(null, fileManager, diagnostics,
+                    options, null, compilationUnits).call().booleanValue();
+        } finally {
+            try {
+                fileManager.close();
+            } catch (IOException ex) {
+                // Nothing was written to disk, so there is nothing to
+                // clean up.
+            }
+        }
+
+        if (!succeeded) {
+            StringBuffer message = new StringBuffer();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics
+                    .getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    message.append("\n");
+                    if (diagnostic.getSource() != null) {
+                        message.append(diagnostic.getSource().getName() + ":"
+                                + diagnostic.getLineNumber() + ": ");
+                    }
+                    message.append(diagnostic.getMessage(null));
+                }
+            }
+            throw new IllegalActionException(this,
+                    "Failed to compile the generated code:" + message);
+        }
+
+        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+        for (Map.Entry<String, ByteArrayOutputStream> classFile : fileManager.classFiles
+                .entrySet()) {
+            classes.put(classFile.getKey(), classFile.getValue().toByteArray());
+        }
+        return new CompiledCode(className, classes);
+    }
+
+    /** Return a digest of the contents of this actor.  The digest
+     *  covers the MoML of the attributes, ports, entities, relations and
+     *  links of this actor, leaving out its location so that instances
+     *  with the same contents share their classes, and the resolved
+     *  types, widths and rates of the ports and the values of the
+     *  variables in the scope of this actor, which the generated code
+     *  depends on but which are not part of the MoML.
+     *  @return A hexadecimal digest.
+     *  @exception IllegalActionException If the width of a port cannot
+     *   be determined or the digest cannot be computed.
+     */
+    private String _digest() throws IllegalActionException {
+        StringBuffer description = new StringBuffer();
+        Iterator<?> attributes = attributeList().iterator();
+        while (attributes.hasNext()) {
+            Attribute attribute = (Attribute) attributes.next();
+            if (!(attribute instanceof Locatable)) {
+                description.append(attribute.exportMoML());
+            }
+        }
+        Iterator<?> entities = entityList().iterator();
+        while (entities.hasNext()) {
+            description.append(((NamedObj) entities.next()).exportMoML());
+        }
+        Iterator<?> relations = relationList().iterator();
+        while (relations.hasNext()) {
+            description.append(((NamedObj) relations.next()).exportMoML());
+        }
+        try {
+            description.append(exportLinks(0, null));
+        } catch (IOException ex) {
+            throw new IllegalActionException(this, ex,
+                    "Failed to export the links.");
+        }
+
+        Iterator<?> ports = portList().iterator();
+        while (ports.hasNext()) {
+            IOPort port = (IOPort) ports.next();
+            description.append(port.exportMoML() + port.getWidth() + " "
+                    + port.getWidthInside());
+            if (port instanceof TypedIOPort) {
+                description.append(" " + ((TypedIOPort) port).getType());
+            }
+            if (port.isInput()) {
+                description.append(" "
+                        + DFUtilities.getTokenConsumptionRate(port));
+            }
+            if (port.isOutput()) {
+                description.append(" "
+                        + DFUtilities.getTokenProductionRate(port));
+            }
+            description.append("\n");
+        }
+
+        // The contents may refer to variables of the containers of
+        // this actor, such as a Scale whose factor is a parameter of
+        // the enclosing model, and the generated code contains their
+        // values.
+        NamedObj container = getContainer();
+        while (container != null) {
+            _describeVariables(container.attributeList(), description);
+            Iterator<?> extenders = container.attributeList(
+                    ScopeExtender.class).iterator();
+            while (extenders.hasNext()) {
+                _describeVariables(((ScopeExtender) extenders.next())
+                        .attributeList(), description);
+            }
+            container = container.getContainer();
+        }
+
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            byte[] digest = messageDigest.digest(description.toString()
+                    .getBytes("UTF-8"));
+            StringBuffer result = new StringBuffer();
+            for (int i = 0; i < digest.length; i++) {
+                result.append(Integer.toHexString((digest[i] & 0xff) | 0x100)
+                        .substring(1));
+            }
+            return result.toString();
+        } catch (Exception ex) {
+            throw new IllegalActionException(this, ex,
+                    "Failed to compute the digest of the contents.");
+        }
+    }
+
+    /** Append the full names and the values of the variables in the
+     *  given list to the given description, except for variables that
+     *  are not visible, such as the size and location of windows, which
+     *  change without any effect on the generated code.
+     *  @param attributes A list of attributes.
+     *  @param description The description.
+     */
+    private static void _describeVariables(List<?> attributes,
+            StringBuffer description) {
+        Iterator<?> variables = attributes.iterator();
+        while (variables.hasNext()) {
+            Object attribute = variables.next();
+            if (attribute instanceof Variable
+                    && ((Variable) attribute).getVisibility() != Settable.NONE) {
+                Variable variable = (Variable) attribute;
+                description.append(variable.getFullName() + "=");
+                try {
+                    description.append(variable.getToken());
+                } catch (IllegalActionException ex) {
+                    // A variable that cannot be evaluated cannot be
+                    // used by the generated code either, so its
+                    // expression describes it well enough.
+                    description.append(variable.getExpression());
+                }
+                description.append("\n");
+            }
+        }
+    }
+
+    /** Return the code generator, creating it if necessary.  The
+     *  parameters of the code generator are set from the parameters
+     *  of this actor.
+     *  @return The code generator.
+     *  @exception IllegalActionException If the code generator cannot
+     *   be created or its parameters cannot be set.
+     */
+    private CapturingJavaCodeGenerator _getCodeGenerator()
+            throws IllegalActionException {
+        if (_codeGenerator == null) {
+            // A clone of this actor contains a clone of the code generator.
+            _codeGenerator = (CapturingJavaCodeGenerator) getAttribute(
+                    "InMemoryJavaCodeGenerator",
+                    CapturingJavaCodeGenerator.class);
+        }
+        if (_codeGenerator == null) {
+            try {
+                _codeGenerator = new CapturingJavaCodeGenerator(this,
+                        "InMemoryJavaCodeGenerator");
+                _codeGenerator.setPersistent(false);
+                new Parameter(_codeGenerator, "_hide", BooleanToken.TRUE);
+            } catch (NameDuplicationException ex) {
+                throw new IllegalActionException(this, ex,
+                        "Failed to create the code generator.");
+            }
+        }
+        _codeGenerator.codeDirectory.setExpression(codeDirectory
+                .getExpression());
+        // FIXME: This should not be necessary, but if we don't
+        // do it, then getBaseDirectory() thinks we are in the current dir.
+        _codeGenerator.codeDirectory.setBaseDirectory(_codeGenerator.codeDirectory
+                .asFile().toURI());
+        _codeGenerator.generatorPackageList.setExpression(generatorPackage
+                .getExpression());
+        _codeGenerator.inline.setExpression(inline.getExpression());
+        _codeGenerator.overwriteFiles.setExpression(overwriteFiles
+                .getExpression());
+        _codeGenerator.compile.setToken(BooleanToken.FALSE);
+        return _codeGenerator;
+    }
+
+    /** Set the class name and fix the generator package to Java.
+     */
+    private void _init() {
+        // The base class sets the class name to CompiledCompositeActor.
+        setClassName("ptolemy.cg.lib.InMemoryCompiledCompositeActor");
+        // Only Java code can be compiled in memory.
+        generatorPackage.setExpression("generic.program.procedural.java");
+        generatorPackage.setVisibility(Settable.NOT_EDITABLE);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The compiled classes, keyed by the digest of the contents
+     *  of the actor for which they were compiled, in the order in
+     *  which they were last used.  The least recently used classes
+     *  are discarded when there are more than _MAXIMUM_CACHE_SIZE
+     *  entries.
+     */
+    private static Map<String, CompiledCode> _cache = new LinkedHashMap<String, CompiledCode>(
+            16, 0.75f, true) {
+        protected boolean removeEldestEntry(
+                Map.Entry<String, CompiledCode> eldest) {
+            return size() > _MAXIMUM_CACHE_SIZE;
+        }
+    };
+
+    /** The code generator. */
+    private CapturingJavaCodeGenerator _codeGenerator;
+
+    /** The classes compiled for the current contents of this actor. */
+    private CompiledCode _compiledCode;
+
+    /** The classes that were last loaded. */
+    private CompiledCode _loadedCode;
+
+    /** The maximum number of entries in the cache. */
+    private static final int _MAXIMUM_CACHE_SIZE = 64;
+
+    /** The digest of the current contents of this actor. */
+    private String _modelDigest;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** A Java code generator that records the sources it writes. */
+    private static class CapturingJavaCodeGenerator extends JavaCodeGenerator {
+
+        /** Create a code generator with the given container and name.
+         *  @param container The container.
+         *  @param name The name of the code generator.
+         *  @exception IllegalActionException If the super class throws it.
+         *  @exception NameDuplicationException If the super class throws it.
+         */
+        public CapturingJavaCodeGenerator(NamedObj container, String name)
+                throws IllegalActionException, NameDuplicationException {
+            super(container, name);
+        }
+
+        /** Record the code if it is Java source and write it.
+         *  @param code The code.
+         *  @param codeFileName The name of the file.
+         *  @param overwriteFile The overwrite flag.
+         *  @param dontShowDialog When true the confirmation dialog
+         *   won't be shown.
+         *  @return The name of the file that was written.
+         *  @exception IllegalActionException If the super class throws it.
+         */
+        protected String _writeCodeFileName(StringBuffer code,
+                String codeFileName, boolean overwriteFile,
+                boolean dontShowDialog) throws IllegalActionException {
+            if (codeFileName.endsWith(".java")) {
+                sources.put(codeFileName, code.toString());
+            }
+            return super._writeCodeFileName(code, codeFileName, overwriteFile,
+                    dontShowDialog);
+        }
+
+        /** The sources written since this map was last cleared, from
+         *  file names to source code.
+         */
+        public Map<String, String> sources = new LinkedHashMap<String, String>();
+    }
+
+    /** A class file that is written to memory. */
+    private static class ClassFile extends SimpleJavaFileObject {
+
+        /** Create a class file for the given class.
+         *  @param className The binary name of the class.
+         *  @param bytes The stream to which the class is written.
+         */
+        public ClassFile(String className, ByteArrayOutputStream bytes) {
+            super(URI.create("bytes:///" + className.replace('.', '/')
+                    + Kind.CLASS.extension), Kind.CLASS);
+            _bytes = bytes;
+        }
+
+        /** Return the stream to which the class is written.
+         *  @return The stream.
+         */
+        public OutputStream openOutputStream() {
+            return _bytes;
+        }
+
+        private ByteArrayOutputStream _bytes;
+    }
+
+    /** The classes compiled for one version of the contents. */
+    private static class CompiledCode {
+
+        /** Create a record of compiled classes.
+         *  @param className The name of the wrapper class.
+         *  @param classes A map from binary class names to class files.
+         */
+        public CompiledCode(String className, Map<String, byte[]> classes) {
+            this.className = className;
+            this.classes = classes;
+        }
+
+        /** A map from binary class names to class files. */
+        public final Map<String, byte[]> classes;
+
+        /** The name of the wrapper class. */
+        public final String className;
+    }
+
+    /** A class loader that defines classes from class files in memory. */
+    private static class MemoryClassLoader extends ClassLoader {
+
+        /** Create a class loader for the given classes.
+         *  @param classes A map from binary class names to class files.
+         *  @param parent The parent class loader.
+         */
+        public MemoryClassLoader(Map<String, byte[]> classes,
+                ClassLoader parent) {
+            super(parent);
+            _classes = classes;
+        }
+
+        /** Define the class with the given name from its class file.
+         *  @param name The binary name of the class.
+         *  @return The class.
+         *  @exception ClassNotFoundException If there is no class file
+         *   for the class.
+         */
+        protected Class<?> findClass(String name)
+                throws ClassNotFoundException {
+            byte[] bytes = _classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        private Map<String, byte[]> _classes;
+    }
+
+    /** A file manager that writes class files to memory. */
+    private static class MemoryFileManager extends
+            ForwardingJavaFileManager<JavaFileManager> {
+
+        /** Create a file manager that delegates everything but
+         *  the output of class files to the given file manager.
+         *  @param fileManager The file manager to delegate to.
+         */
+        public MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        /** Return a class file in memory for the given class.
+         *  @param location The location, which is ignored.
+         *  @param className The binary name of the class.
+         *  @param kind The kind of the file.
+         *  @param sibling The sibling, which is ignored.
+         *  @return A class file in memory.
+         *  @exception IOException If the kind is not a class.
+         */
+        public JavaFileObject getJavaFileForOutput(Location location,
+                String className, JavaFileObject.Kind kind, FileObject sibling)
+                throws IOException {
+            if (kind != JavaFileObject.Kind.CLASS) {
+                throw new IOException("Cannot write " + className + kind.extension
+                        + " to memory.");
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            classFiles.put(className, bytes);
+            return new ClassFile(className, bytes);
+        }
+
+        /** A map from binary class names to the class files written. */
+        public Map<String, ByteArrayOutputStream> classFiles = new HashMap<String, ByteArrayOutputStream>();
+    }
+
+    /** A source file in memory. */
+    private static class SourceFile extends SimpleJavaFileObject {
+
+        /** Create a source file.
+         *  @param fileName The name of the file, whose last component
+         *   has to match the name of the public class in the file.
+         *  @param code The source code.
+         */
+        public SourceFile(String fileName, String code) {
+            super(URI.create("string:///" + new File(fileName).getName()),
+                    Kind.SOURCE);
+            _code = code;
+        }
+
+        /** Return the source code.
+         *  @param ignoreEncodingErrors Ignored.
+         *  @return The source code.
+         */
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return _code;
+        }
+
+        private String _code;
+    }
+}
@@ -0,0 +1,145 @@
+# Test InMemoryCompiledCompositeActor
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+if {[info procs enumToTokenValues] == "" } then {
+    source [file join $PTII util testsuite enums.tcl]
+}
+
+set moml {<?xml version="1.0" standalone="no"?>
+<!DOCTYPE entity PUBLIC "-//UC Berkeley//DTD MoML 1//EN"
+    "http://ptolemy.eecs.berkeley.edu/xml/dtd/MoML_1.dtd">
+<entity name="InMemoryScope" class="ptolemy.actor.TypedCompositeActor">
+    <property name="SDF Director" class="ptolemy.domains.sdf.kernel.SDFDirector">
+        <property name="iterations" class="ptolemy.data.expr.Parameter" value="3">
+        </property>
+    </property>
+    <property name="gain" class="ptolemy.data.expr.Parameter" value="2">
+    </property>
+    <entity name="Const" class="ptolemy.actor.lib.Const">
+        <property name="value" class="ptolemy.data.expr.Parameter" value="1">
+        </property>
+    </entity>
+    <entity name="A" class="ptolemy.cg.lib.InMemoryCompiledCompositeActor">
+        <property name="SDF Director" class="ptolemy.domains.sdf.kernel.SDFDirector">
+        </property>
+        <port name="in" class="ptolemy.actor.TypedIOPort">
+            <property name="input"/>
+        </port>
+        <port name="out" class="ptolemy.actor.TypedIOPort">
+            <property name="output"/>
+            <property name="_type" class="ptolemy.actor.TypeAttribute" value="int">
+            </property>
+        </port>
+        <entity name="Scale" class="ptolemy.actor.lib.Scale">
+            <property name="factor" class="ptolemy.data.expr.Parameter" value="gain">
+            </property>
+        </entity>
+        <relation name="r1" class="ptolemy.actor.TypedIORelation">
+        </relation>
+        <relation name="r2" class="ptolemy.actor.TypedIORelation">
+        </relation>
+        <link port="in" relation="r1"/>
+        <link port="Scale.input" relation="r1"/>
+        <link port="Scale.output" relation="r2"/>
+        <link port="out" relation="r2"/>
+    </entity>
+    <entity name="Recorder" class="ptolemy.actor.lib.Recorder">
+    </entity>
+    <relation name="r1" class="ptolemy.actor.TypedIORelation">
+    </relation>
+    <relation name="r2" class="ptolemy.actor.TypedIORelation">
+    </relation>
+    <link port="Const.output" relation="r1"/>
+    <link port="A.in" relation="r1"/>
+    <link port="A.out" relation="r2"/>
+    <link port="Recorder.input" relation="r2"/>
+</entity>
+}
+
+######################################################################
+####
+#
+test InMemoryCompiledCompositeActor-1.1 {Run a model whose compiled contents refer to a parameter of the enclosing model} {
+    java::call ptolemy.cg.lib.InMemoryCompiledCompositeActor clearCache
+    set parser [java::new ptolemy.moml.MoMLParser]
+    $parser reset
+    set toplevel [java::cast ptolemy.actor.TypedCompositeActor \
+		      [$parser parse $moml]]
+    set manager [java::new ptolemy.actor.Manager \
+            [$toplevel workspace] "manager"]
+    $toplevel setManager $manager
+    $manager execute
+    set recorder [java::cast ptolemy.actor.lib.Recorder \
+            [$toplevel getEntity "Recorder"]]
+    enumToTokenValues [$recorder getRecord 0]
+} {2 2 2}
+
+######################################################################
+####
+#
+test InMemoryCompiledCompositeActor-1.2 {Change the parameter of the enclosing model and rerun} {
+    set gain [java::cast ptolemy.data.expr.Parameter \
+            [$toplevel getAttribute gain]]
+    $gain setExpression 3
+    $manager execute
+    set r1 [enumToTokenValues [$recorder getRecord 0]]
+    $gain setExpression 2
+    $manager execute
+    list $r1 [enumToTokenValues [$recorder getRecord 0]]
+} {{3 3 3} {2 2 2}}
+
+######################################################################
+####
+#
+test InMemoryCompiledCompositeActor-1.3 {The same contents in the same scope reuse the cached classes} {
+    $parser reset
+    set toplevel2 [java::cast ptolemy.actor.TypedCompositeActor \
+		      [$parser parse $moml]]
+    set manager2 [java::new ptolemy.actor.Manager \
+            [$toplevel2 workspace] "manager"]
+    $toplevel2 setManager $manager2
+    set a2 [java::cast ptolemy.actor.CompositeActor [$toplevel2 getEntity A]]
+    set listener [java::new ptolemy.kernel.util.RecorderListener]
+    $a2 addDebugListener $listener
+    $manager2 execute
+    set recorder2 [java::cast ptolemy.actor.lib.Recorder \
+            [$toplevel2 getEntity "Recorder"]]
+    list [enumToTokenValues [$recorder2 getRecord 0]] \
+	[regexp {Reusing the classes compiled} [$listener getMessages]]
+} {{2 2 2} 1}
@@ -0,0 +1,172 @@
+/* Compare interpreted and in-memory compiled execution of a submodel.
+
+ Copyright (c) 2010 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.cg.lib.test;
+
+import ptolemy.actor.Manager;
+import ptolemy.actor.TypedCompositeActor;
+import ptolemy.actor.TypedIOPort;
+import ptolemy.actor.lib.Ramp;
+import ptolemy.actor.lib.Recorder;
+import ptolemy.actor.lib.Scale;
+import ptolemy.cg.lib.InMemoryCompiledCompositeActor;
+import ptolemy.data.BooleanToken;
+import ptolemy.data.type.BaseType;
+import ptolemy.domains.sdf.kernel.SDFDirector;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// InMemoryCompiledCompositeBenchmark
+
+/**
+ Compare the interpreted execution of a submodel with its execution as
+ code that is generated and compiled in memory by an
+ {@link InMemoryCompiledCompositeActor}. The submodel is a chain of
+ Scale actors under an SDF director, fed by a Ramp and read by a
+ Recorder in the enclosing model.
+ <p>
+ To run:
+ <pre>
+ java -classpath $PTII ptolemy.cg.lib.test.InMemoryCompiledCompositeBenchmark [iterations [actors]]
+ </pre>
+ The benchmark reports the average time to execute the model
+ interpreted, after one execution to warm up, the time of the first
+ compiled execution, which includes generating and
+ compiling the code, and the average time of later compiled executions
+ of fresh copies of the model, which find the compiled classes in the
+ cache. The last output of each execution is printed so that the
+ results can be compared.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class InMemoryCompiledCompositeBenchmark {
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Run the benchmark and print the results to standard out.
+     *  @param args The number of iterations and the number of
+     *   actors in the submodel, both optional.
+     *  @exception Exception If a model cannot be built or executed.
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = 100000;
+        int actors = 20;
+        if (args.length > 0) {
+            iterations = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            actors = Integer.parseInt(args[1]);
+        }
+
+        // The first execution warms up the interpreter.
+        String interpreted = run(iterations, actors, false);
+        long interpretedTime = 0L;
+        for (int run = 0; run < _RUNS; run++) {
+            long start = System.nanoTime();
+            interpreted = run(iterations, actors, false);
+            interpretedTime += System.nanoTime() - start;
+        }
+        System.out.println("interpreted: "
+                + (interpretedTime / _RUNS / 1000000L) + " ms, last output "
+                + interpreted);
+
+        long start = System.nanoTime();
+        String compiled = run(iterations, actors, true);
+        long firstTime = System.nanoTime() - start;
+        System.out.println("compiled, first run: " + (firstTime / 1000000L)
+                + " ms, last output " + compiled);
+
+        long cachedTime = 0L;
+        for (int run = 0; run < _RUNS; run++) {
+            start = System.nanoTime();
+            compiled = run(iterations, actors, true);
+            cachedTime += System.nanoTime() - start;
+        }
+        System.out.println("compiled, cached: "
+                + (cachedTime / _RUNS / 1000000L) + " ms, last output "
+                + compiled);
+    }
+
+    /** Build and execute the model once.
+     *  @param iterations The number of iterations.
+     *  @param actors The number of Scale actors in the submodel.
+     *  @param compile True to execute the generated code, false to
+     *   interpret the submodel.
+     *  @return The last output of the submodel.
+     *  @exception Exception If the model cannot be built or executed.
+     */
+    public static String run(int iterations, int actors, boolean compile)
+            throws Exception {
+        TypedCompositeActor model = new TypedCompositeActor(new Workspace());
+        model.setName("InMemoryCompiledCompositeBenchmark");
+        SDFDirector director = new SDFDirector(model, "director");
+        director.iterations.setExpression("" + iterations);
+        Ramp ramp = new Ramp(model, "ramp");
+        ramp.init.setExpression("0.0");
+        ramp.step.setExpression("0.001");
+        Recorder recorder = new Recorder(model, "recorder");
+        recorder.capacity.setExpression("1");
+
+        InMemoryCompiledCompositeActor composite = new InMemoryCompiledCompositeActor(
+                model, "composite");
+        composite.executeEmbeddedCode.setToken(new BooleanToken(compile));
+        new SDFDirector(composite, "director");
+        TypedIOPort input = new TypedIOPort(composite, "input", true, false);
+        input.setTypeEquals(BaseType.DOUBLE);
+        TypedIOPort output = new TypedIOPort(composite, "output", false, true);
+        output.setTypeEquals(BaseType.DOUBLE);
+        TypedIOPort previous = input;
+        for (int i = 0; i < actors; i++) {
+            Scale scale = new Scale(composite, "scale" + i);
+            scale.factor.setExpression(i % 2 == 0 ? "1.5" : "0.5");
+            composite.connect(previous, scale.input);
+            previous = scale.output;
+        }
+        composite.connect(previous, output);
+
+        model.connect(ramp.output, input);
+        model.connect(output, recorder.input);
+
+        Manager manager = new Manager(model.workspace(), "manager");
+        model.setManager(manager);
+        manager.execute();
+        return recorder.getLatest(0).toString();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The number of timed interpreted executions and of compiled
+     *  executions that find the classes in the cache.
+     */
+    private static final int _RUNS = 5;
+}
@@ -49,6 +49,15 @@ import ptolemy.kernel.util.IllegalActionException;
  converted to the least upper bound of their input types.  Zero length
  array tokens are supported, given a prototype element to determine
  the type of the array.
+ <p>
+ Arrays of booleans, ints, longs and doubles can be represented more
+ compactly by the subclasses {@link BooleanArrayToken}, {@link IntArrayToken},
+ {@link LongArrayToken} and {@link DoubleArrayToken}, which store their
+ elements in arrays of primitives and perform elementwise arithmetic without
+ creating a token for each element.  These subclasses have the same type as
+ an ArrayToken with the same elements and are equal to it.  Use
+ {@link #create(Type, Token[])} to create the most compact representation
+ of an array.
 
  @author Yuhong Xiong, Steve Neuendorffer, Contributor: Christopher Brooks
  @version $Id$
@@ -221,12 +230,16 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  @since Ptolemy II 7.1
      */
     public ArrayToken append(ArrayToken token) throws IllegalActionException {
-        int newLength = _value.length + token._value.length;
+        int length = length();
+        int newLength = length + token.length();
         if (newLength > 0) {
             Token[] result = new Token[newLength];
-            System.arraycopy(_value, 0, result, 0, _value.length);
-            System.arraycopy(token._value, 0, result, _value.length,
-                    token._value.length);
+            for (int i = 0; i < length; i++) {
+                result[i] = getElement(i);
+            }
+            for (int i = length; i < newLength; i++) {
+                result[i] = token.getElement(i - length);
+            }
             return new ArrayToken(result);
         } else {
             return new ArrayToken(getElementType());
@@ -281,14 +294,77 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *   otherwise.
      */
     public BooleanToken contains(Token element) {
-        for (int i = 0; i < _value.length; i++) {
-            if (_value[i].equals(element)) {
+        for (int i = 0; i < length(); i++) {
+            if (getElement(i).equals(element)) {
                 return BooleanToken.TRUE;
             }
         }
         return BooleanToken.FALSE;
     }
 
+    /** Return an array token with the specified element type and
+     *  elements.  If the element type is boolean, int, long or double,
+     *  and all the elements, after conversion to the element type, are
+     *  neither nil nor have units, then return a
+     *  {@link BooleanArrayToken}, {@link IntArrayToken},
+     *  {@link LongArrayToken} or {@link DoubleArrayToken}, respectively.
+     *  Otherwise, return an ArrayToken.  The passed array may be reused.
+     *  @param elementType The type of the array.
+     *  @param value An array of tokens.
+     *  @return An array token.
+     *  @exception IllegalActionException If the tokens in the array
+     *   cannot be converted to the specified type.
+     */
+    public static ArrayToken create(Type elementType, Token[] value)
+            throws IllegalActionException {
+        int length = value.length;
+        if (length > 0) {
+            if (elementType.equals(BaseType.DOUBLE)) {
+                double[] result = new double[length];
+                for (int i = 0; i < length; i++) {
+                    Token element = elementType.convert(value[i]);
+                    if (!_isPlainScalar(element, DoubleToken.class)) {
+                        return new ArrayToken(elementType, value);
+                    }
+                    result[i] = ((DoubleToken) element).doubleValue();
+                }
+                return new DoubleArrayToken(result, MatrixToken.DO_NOT_COPY);
+            } else if (elementType.equals(BaseType.INT)) {
+                int[] result = new int[length];
+                for (int i = 0; i < length; i++) {
+                    Token element = elementType.convert(value[i]);
+                    if (!_isPlainScalar(element, IntToken.class)) {
+                        return new ArrayToken(elementType, value);
+                    }
+                    result[i] = ((IntToken) element).intValue();
+                }
+                return new IntArrayToken(result, MatrixToken.DO_NOT_COPY);
+            } else if (elementType.equals(BaseType.LONG)) {
+                long[] result = new long[length];
+                for (int i = 0; i < length; i++) {
+                    Token element = elementType.convert(value[i]);
+                    if (!_isPlainScalar(element, LongToken.class)) {
+                        return new ArrayToken(elementType, value);
+                    }
+                    result[i] = ((LongToken) element).longValue();
+                }
+                return new LongArrayToken(result, MatrixToken.DO_NOT_COPY);
+            } else if (elementType.equals(BaseType.BOOLEAN)) {
+                boolean[] result = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    Token element = elementType.convert(value[i]);
+                    if (element.getClass() != BooleanToken.class
+                            || element.isNil()) {
+                        return new ArrayToken(elementType, value);
+                    }
+                    result[i] = ((BooleanToken) element).booleanValue();
+                }
+                return new BooleanArrayToken(result, MatrixToken.DO_NOT_COPY);
+            }
+        }
+        return new ArrayToken(elementType, value);
+    }
+
     /** Divide this array token by the specified argument.
      *  If the argument is an array token and it has
      *  the same length as this array token, and the division is elementwise.
@@ -345,11 +421,11 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  of a type that can be added to an element of this token.
      */
     public ArrayToken elementAdd(Token token) throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
 
         try {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].add(token);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).add(token);
             }
         } catch (IllegalActionException ex) {
             // If the type-specific operation fails, then create a
@@ -369,11 +445,11 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  of a type that can be divided into an element of this token.
      */
     public ArrayToken elementDivide(Token token) throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
 
         try {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].divide(token);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).divide(token);
             }
         } catch (IllegalActionException ex) {
             // If the type-specific operation fails, then create a
@@ -393,11 +469,11 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  of a type that can be used with modulo.
      */
     public ArrayToken elementModulo(Token token) throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
 
         try {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].modulo(token);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).modulo(token);
             }
         } catch (IllegalActionException ex) {
             // If the type-specific operation fails, then create a
@@ -418,11 +494,11 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      */
     public ArrayToken elementMultiply(Token token)
             throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
 
         try {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].multiply(token);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).multiply(token);
             }
         } catch (IllegalActionException ex) {
             // If the type-specific operation fails, then create a
@@ -463,11 +539,11 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      */
     public ArrayToken elementSubtract(Token token)
             throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
 
         try {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].subtract(token);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).subtract(token);
             }
         } catch (IllegalActionException ex) {
             // If the type-specific operation fails, then create a
@@ -480,10 +556,12 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         return new ArrayToken(result);
     }
 
-    /** Return true if the class of the argument is ArrayToken and of
+    /** Return true if the argument is an array token of
      *  the same length and the elements are equal to that of this
      *  token.  Equality of the contained elements is tested by their
-     *  equals() method.
+     *  equals() method, so an array token that stores its elements
+     *  as primitives, such as a DoubleArrayToken, is equal to an
+     *  ArrayToken that contains the same elements.
      *  @param object the object to compare with.
      *  @return True if the argument is an array token of the same length
      *   and the elements are equal to that of this token.
@@ -492,8 +570,13 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         if (object == null) {
             return false;
         }
-        // This test rules out instances of a subclass.
-        if (object.getClass() != getClass()) {
+        // This test rules out objects that are not array tokens and
+        // instances of UnsizedArrayToken, but not the subclasses that
+        // store their elements in arrays of primitives, such as
+        // DoubleArrayToken.
+        if (!(object instanceof ArrayToken)
+                || (object instanceof UnsizedArrayToken) != (this
+                        instanceof UnsizedArrayToken)) {
             return false;
         }
 
@@ -504,14 +587,14 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         ArrayToken arrayArgument = (ArrayToken) object;
         int length = arrayArgument.length();
 
-        if (_value.length != length) {
+        if (length() != length) {
             return false;
         }
 
-        Token[] array = arrayArgument._value;
-
         for (int i = 0; i < length; i++) {
-            if (!_value[i].equals(array[i]) || _value[i].isNil()) {
+            Token element = getElement(i);
+            if (!element.equals(arrayArgument.getElement(i))
+                    || element.isNil()) {
                 return false;
             }
         }
@@ -608,8 +691,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  @return A hash code value for this token.
      */
     public int hashCode() {
-        if (_value != null && _value.length > 0) {
-            return _value[0].hashCode();
+        if (length() > 0) {
+            return getElement(0).hashCode();
         } else if (_elementType != null) {
             return _elementType.hashCode();
         } else {
@@ -617,6 +700,55 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         }
     }
 
+    /** Test whether the value of this token is close to the argument,
+     *  where "close" means that the distance between the elements is less
+     *  than or equal to the second argument.  This overrides the base class
+     *  so that array tokens that store their elements as primitives can be
+     *  compared with other array tokens.
+     *  @param token The token to compare to this token.
+     *  @param epsilon The value that we use to determine whether two
+     *   tokens are close.
+     *  @return A boolean token that contains the value true if the
+     *   value of this token is close to that of the argument token.
+     *  @exception IllegalActionException If the argument is not an array
+     *   token, or the elements do not support this comparison.
+     */
+    public BooleanToken isCloseTo(Token token, double epsilon)
+            throws IllegalActionException {
+        if (!(token instanceof ArrayToken)) {
+            return super.isCloseTo(token, epsilon);
+        }
+
+        try {
+            return _isCloseTo(token, epsilon);
+        } catch (IllegalActionException ex) {
+            // If the type-specific operation fails, then create a
+            // better error message that has the types of the
+            // arguments that were passed in.
+            throw new IllegalActionException(null, ex, notSupportedMessage(
+                    "isCloseTo", this, token));
+        }
+    }
+
+    /** Test for equality of the values of this token and the argument.
+     *  This overrides the base class so that array tokens that store
+     *  their elements as primitives can be compared with other array
+     *  tokens.
+     *  @param rightArgument The token with which to test equality.
+     *  @return A boolean token that contains the value true if the
+     *   values of this token and the argument are equal.
+     *  @exception IllegalActionException If the argument is not an array
+     *   token, or the elements do not support this comparison.
+     */
+    public BooleanToken isEqualTo(Token rightArgument)
+            throws IllegalActionException {
+        if (!(rightArgument instanceof ArrayToken)) {
+            return super.isEqualTo(rightArgument);
+        }
+
+        return _isEqualTo(rightArgument);
+    }
+
     /** Return true if the token is nil, (aka null or missing).
      *  Nil or missing tokens occur when a data source is sparsely populated.
      *  @return True if the token is the {@link #NIL} token.
@@ -737,10 +869,10 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *   supported by the element token.
      */
     public Token one() throws IllegalActionException {
-        Token[] oneValueArray = new Token[_value.length];
+        Token[] oneValueArray = new Token[length()];
 
-        for (int i = 0; i < _value.length; i++) {
-            oneValueArray[i] = _value[i].one();
+        for (int i = 0; i < length(); i++) {
+            oneValueArray[i] = getElement(i).one();
         }
 
         return new ArrayToken(oneValueArray);
@@ -753,9 +885,9 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  ArrayToken.
      */
     public ArrayToken reverse() throws IllegalActionException {
-        Token[] result = new Token[_value.length];
-        for (int i = 0; i < _value.length; i++) {
-            result[i] = _value[_value.length - i - 1];
+        Token[] result = new Token[length()];
+        for (int i = 0; i < length(); i++) {
+            result[i] = getElement(length() - i - 1);
         }
         return new ArrayToken(result);
     }
@@ -770,7 +902,7 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  @since Ptolemy II 7.1
      */
     public ArrayToken subarray(int index) throws IllegalActionException {
-        return subarray(index, _value.length - index);
+        return subarray(index, length() - index);
     }
 
     /** Return the contiguous subarray starting at the specified index and
@@ -791,13 +923,16 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                     "index argument of subarray() must be non-negative.");
         }
 
-        if ((count > 0) && (index < _value.length) && (index >= 0)) {
-            if ((count + index) > _value.length) {
-                count = _value.length - index;
+        int length = length();
+        if ((count > 0) && (index < length) && (index >= 0)) {
+            if ((count + index) > length) {
+                count = length - index;
             }
 
             Token[] result = new Token[count];
-            System.arraycopy(_value, index, result, 0, count);
+            for (int i = 0; i < count; i++) {
+                result[i] = getElement(index + i);
+            }
             return new ArrayToken(result);
         } else {
             return new ArrayToken(getElementType());
@@ -861,10 +996,10 @@ public class ArrayToken extends AbstractNotConvertibleToken {
     public String toString() {
         StringBuffer buffer = new StringBuffer("{");
 
-        for (int i = 0; i < _value.length; i++) {
-            buffer.append(_value[i].toString());
+        for (int i = 0; i < length(); i++) {
+            buffer.append(getElement(i).toString());
 
-            if (i < (_value.length - 1)) {
+            if (i < (length() - 1)) {
                 buffer.append(", ");
             }
         }
@@ -901,14 +1036,14 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  supported by an element token.
      */
     public Token zero() throws IllegalActionException {
-        if (_value.length == 0) {
+        if (length() == 0) {
             return this;
         }
 
-        Token[] zeroValueArray = new Token[_value.length];
+        Token[] zeroValueArray = new Token[length()];
 
-        for (int i = 0; i < _value.length; i++) {
-            zeroValueArray[i] = _value[i].zero();
+        for (int i = 0; i < length(); i++) {
+            zeroValueArray[i] = getElement(i).zero();
         }
 
         return new ArrayToken(zeroValueArray);
@@ -939,12 +1074,12 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  an element token throws it.
      */
     protected Token _add(Token rightArgument) throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
         if (rightArgument instanceof ArrayToken) {
             ArrayToken rightArray = (ArrayToken) rightArgument;
             if (rightArray.length() == length()) {
-                for (int i = 0; i < _value.length; i++) {
-                    result[i] = _value[i].add(rightArray.getElement(i));
+                for (int i = 0; i < length(); i++) {
+                    result[i] = getElement(i).add(rightArray.getElement(i));
                 }
             } else {
                 // Maybe one argument or the other is an array
@@ -952,8 +1087,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 // a scalar.
                 if (rightArray.length() == 1) {
                     Token scalar = rightArray.getElement(0);
-                    for (int i = 0; i < _value.length; i++) {
-                        result[i] = _value[i].add(scalar);
+                    for (int i = 0; i < length(); i++) {
+                        result[i] = getElement(i).add(scalar);
                     }
                 } else if (length() == 1) {
                     result = new Token[rightArray.length()];
@@ -968,8 +1103,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 }
             }
         } else {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].add(rightArgument);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).add(rightArgument);
             }
         }
         return new ArrayToken(result);
@@ -988,12 +1123,12 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *   of the element token throws it.
      */
     protected Token _divide(Token rightArgument) throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
         if (rightArgument instanceof ArrayToken) {
             ArrayToken rightArray = (ArrayToken) rightArgument;
             if (rightArray.length() == length()) {
-                for (int i = 0; i < _value.length; i++) {
-                    result[i] = _value[i].divide(rightArray.getElement(i));
+                for (int i = 0; i < length(); i++) {
+                    result[i] = getElement(i).divide(rightArray.getElement(i));
                 }
             } else {
                 // Maybe one argument or the other is an array
@@ -1001,8 +1136,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 // a scalar.
                 if (rightArray.length() == 1) {
                     Token scalar = rightArray.getElement(0);
-                    for (int i = 0; i < _value.length; i++) {
-                        result[i] = _value[i].divide(scalar);
+                    for (int i = 0; i < length(); i++) {
+                        result[i] = getElement(i).divide(scalar);
                     }
                 } else if (length() == 1) {
                     result = new Token[rightArray.length()];
@@ -1017,8 +1152,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 }
             }
         } else {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].divide(rightArgument);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).divide(rightArgument);
             }
         }
         return new ArrayToken(result);
@@ -1041,9 +1176,9 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         if (rightArgument instanceof ArrayToken) {
             return ((ArrayToken) rightArgument).divide(this);
         } else {
-            Token[] result = new Token[_value.length];
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = rightArgument.divide(_value[i]);
+            Token[] result = new Token[length()];
+            for (int i = 0; i < length(); i++) {
+                result[i] = rightArgument.divide(getElement(i));
             }
             return new ArrayToken(result);
         }
@@ -1072,11 +1207,11 @@ public class ArrayToken extends AbstractNotConvertibleToken {
             return BooleanToken.FALSE;
         }
 
-        for (int i = 0; i < _value.length; i++) {
+        for (int i = 0; i < length(); i++) {
             // Here is where isCloseTo() differs from isEqualTo().
             // Note that we return false the first time we hit an
             // element token that is not close to our current element token.
-            BooleanToken result = _value[i].isCloseTo(rightArray.getElement(i),
+            BooleanToken result = getElement(i).isCloseTo(rightArray.getElement(i),
                     epsilon);
 
             if (result.booleanValue() == false) {
@@ -1105,8 +1240,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
 
         ArrayToken rightArray = (ArrayToken) token;
 
-        for (int i = 0; i < _value.length; i++) {
-            BooleanToken result = _value[i].isEqualTo(rightArray.getElement(i));
+        for (int i = 0; i < length(); i++) {
+            BooleanToken result = getElement(i).isEqualTo(rightArray.getElement(i));
 
             if (result.booleanValue() == false) {
                 return BooleanToken.FALSE;
@@ -1116,6 +1251,19 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         return BooleanToken.TRUE;
     }
 
+    /** Return true if the argument is an instance of exactly the given
+     *  scalar token class, is not nil and has no units.  Subclasses that
+     *  store their elements as primitives use this to determine whether
+     *  an operation can be performed directly on the primitives.
+     *  @param token The token to check.
+     *  @param tokenClass A subclass of ScalarToken.
+     *  @return True if the token can be represented by a primitive.
+     */
+    protected static boolean _isPlainScalar(Token token, Class tokenClass) {
+        return token.getClass() == tokenClass && !token.isNil()
+                && ((ScalarToken) token)._isUnitless();
+    }
+
     /** Return a new token whose value is the value of this token
      *  modulo the value of the argument token.  It is assumed that
      *  this class is the class of the argument.
@@ -1126,12 +1274,12 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      *  of the element token throws it.
      */
     protected Token _modulo(Token rightArgument) throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
         if (rightArgument instanceof ArrayToken) {
             ArrayToken rightArray = (ArrayToken) rightArgument;
             if (rightArray.length() == length()) {
-                for (int i = 0; i < _value.length; i++) {
-                    result[i] = _value[i].modulo(rightArray.getElement(i));
+                for (int i = 0; i < length(); i++) {
+                    result[i] = getElement(i).modulo(rightArray.getElement(i));
                 }
             } else {
                 // Maybe one argument or the other is an array
@@ -1139,8 +1287,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 // a scalar.
                 if (rightArray.length() == 1) {
                     Token scalar = rightArray.getElement(0);
-                    for (int i = 0; i < _value.length; i++) {
-                        result[i] = _value[i].modulo(scalar);
+                    for (int i = 0; i < length(); i++) {
+                        result[i] = getElement(i).modulo(scalar);
                     }
                 } else if (length() == 1) {
                     result = new Token[rightArray.length()];
@@ -1155,8 +1303,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 }
             }
         } else {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].modulo(rightArgument);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).modulo(rightArgument);
             }
         }
         return new ArrayToken(result);
@@ -1179,9 +1327,9 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         if (rightArgument instanceof ArrayToken) {
             return ((ArrayToken) rightArgument).modulo(this);
         } else {
-            Token[] result = new Token[_value.length];
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = rightArgument.modulo(_value[i]);
+            Token[] result = new Token[length()];
+            for (int i = 0; i < length(); i++) {
+                result[i] = rightArgument.modulo(getElement(i));
             }
             return new ArrayToken(result);
         }
@@ -1201,12 +1349,12 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      */
     protected Token _multiply(Token rightArgument)
             throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
         if (rightArgument instanceof ArrayToken) {
             ArrayToken rightArray = (ArrayToken) rightArgument;
             if (rightArray.length() == length()) {
-                for (int i = 0; i < _value.length; i++) {
-                    result[i] = _value[i].multiply(rightArray.getElement(i));
+                for (int i = 0; i < length(); i++) {
+                    result[i] = getElement(i).multiply(rightArray.getElement(i));
                 }
             } else {
                 // Maybe one argument or the other is an array
@@ -1214,8 +1362,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 // a scalar.
                 if (rightArray.length() == 1) {
                     Token scalar = rightArray.getElement(0);
-                    for (int i = 0; i < _value.length; i++) {
-                        result[i] = _value[i].multiply(scalar);
+                    for (int i = 0; i < length(); i++) {
+                        result[i] = getElement(i).multiply(scalar);
                     }
                 } else if (length() == 1) {
                     result = new Token[rightArray.length()];
@@ -1230,8 +1378,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 }
             }
         } else {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].multiply(rightArgument);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).multiply(rightArgument);
             }
         }
         return new ArrayToken(result);
@@ -1248,12 +1396,12 @@ public class ArrayToken extends AbstractNotConvertibleToken {
      */
     protected Token _subtract(Token rightArgument)
             throws IllegalActionException {
-        Token[] result = new Token[_value.length];
+        Token[] result = new Token[length()];
         if (rightArgument instanceof ArrayToken) {
             ArrayToken rightArray = (ArrayToken) rightArgument;
             if (rightArray.length() == length()) {
-                for (int i = 0; i < _value.length; i++) {
-                    result[i] = _value[i].subtract(rightArray.getElement(i));
+                for (int i = 0; i < length(); i++) {
+                    result[i] = getElement(i).subtract(rightArray.getElement(i));
                 }
             } else {
                 // Maybe one argument or the other is an array
@@ -1261,8 +1409,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 // a scalar.
                 if (rightArray.length() == 1) {
                     Token scalar = rightArray.getElement(0);
-                    for (int i = 0; i < _value.length; i++) {
-                        result[i] = _value[i].subtract(scalar);
+                    for (int i = 0; i < length(); i++) {
+                        result[i] = getElement(i).subtract(scalar);
                     }
                 } else if (length() == 1) {
                     result = new Token[rightArray.length()];
@@ -1277,8 +1425,8 @@ public class ArrayToken extends AbstractNotConvertibleToken {
                 }
             }
         } else {
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = _value[i].subtract(rightArgument);
+            for (int i = 0; i < length(); i++) {
+                result[i] = getElement(i).subtract(rightArgument);
             }
         }
         return new ArrayToken(result);
@@ -1301,9 +1449,9 @@ public class ArrayToken extends AbstractNotConvertibleToken {
         if (rightArgument instanceof ArrayToken) {
             return ((ArrayToken) rightArgument).subtract(this);
         } else {
-            Token[] result = new Token[_value.length];
-            for (int i = 0; i < _value.length; i++) {
-                result[i] = rightArgument.subtract(_value[i]);
+            Token[] result = new Token[length()];
+            for (int i = 0; i < length(); i++) {
+                result[i] = rightArgument.subtract(getElement(i));
             }
             return new ArrayToken(result);
         }
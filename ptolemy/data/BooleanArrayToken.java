@@ -0,0 +1,308 @@
+/* A token that contains an array of booleans.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.data;
+
+import ptolemy.data.type.BaseType;
+import ptolemy.kernel.util.IllegalActionException;
+
+///////////////////////////////////////////////////////////////////
+//// BooleanArrayToken
+
+/**
+ An array token that stores its elements in an array of booleans rather
+ than an array of BooleanTokens.  It has the same type as an ArrayToken
+ of booleans with the same length, and is equal to an ArrayToken with the
+ same elements.  Use {@link #getElementAt(int)} or
+ {@link #booleanArrayValue()} to access the elements as booleans.
+ <p>
+ Elementwise addition (logical or) and multiplication (logical and) with
+ another BooleanArrayToken of the same length or with a BooleanToken
+ operate directly on the arrays of booleans and return a
+ BooleanArrayToken.  Other operations are performed by the base class
+ one element at a time.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class BooleanArrayToken extends ArrayToken {
+    /** Construct a BooleanArrayToken with the specified array of booleans.
+     *  This class makes a copy of the given array, so the passed array
+     *  may be reused.
+     *  @param value An array of booleans.
+     *  @exception IllegalActionException If the specified array is null.
+     */
+    public BooleanArrayToken(boolean[] value) throws IllegalActionException {
+        this(value, MatrixToken.DO_COPY);
+    }
+
+    /** Construct a BooleanArrayToken with the specified array of booleans.
+     *  If copy is {@link ptolemy.data.MatrixToken#DO_COPY}, then the
+     *  array is copied.  If copy is
+     *  {@link ptolemy.data.MatrixToken#DO_NOT_COPY}, then the array is
+     *  NOT copied and should not be modified after construction of this
+     *  object, to preserve immutability.
+     *  @param value An array of booleans.
+     *  @param copy Either DO_COPY or DO_NOT_COPY.
+     *  @exception IllegalActionException If the specified array is null.
+     */
+    public BooleanArrayToken(boolean[] value, int copy)
+            throws IllegalActionException {
+        super(BaseType.BOOLEAN);
+        if (value == null) {
+            throw new IllegalActionException("BooleanArrayToken: The "
+                    + "specified array is null.");
+        }
+        if (copy == MatrixToken.DO_NOT_COPY) {
+            _value = value;
+        } else {
+            _value = new boolean[value.length];
+            System.arraycopy(value, 0, _value, 0, value.length);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Append the given array to the end of this array, and return the
+     *  resulting array.  If the given array is a BooleanArrayToken, then
+     *  the result is a BooleanArrayToken.
+     *  @param token The array to be appended to the end of this array.
+     *  @return The result array.
+     *  @exception IllegalActionException If an array token cannot be created.
+     */
+    public ArrayToken append(ArrayToken token) throws IllegalActionException {
+        if (!(token instanceof BooleanArrayToken)) {
+            return super.append(token);
+        }
+        boolean[] value = ((BooleanArrayToken) token)._value;
+        boolean[] result = new boolean[_value.length + value.length];
+        System.arraycopy(_value, 0, result, 0, _value.length);
+        System.arraycopy(value, 0, result, _value.length, value.length);
+        return new BooleanArrayToken(result, MatrixToken.DO_NOT_COPY);
+    }
+
+    /** Return an array of BooleanTokens populated with the contents of
+     *  this array token.
+     *  @return An array of tokens.
+     */
+    public Token[] arrayValue() {
+        Token[] result = new Token[_value.length];
+        for (int i = 0; i < _value.length; i++) {
+            result[i] = BooleanToken.getInstance(_value[i]);
+        }
+        return result;
+    }
+
+    /** Return a copy of the contained array of booleans.
+     *  @return An array of booleans.
+     */
+    public boolean[] booleanArrayValue() {
+        boolean[] result = new boolean[_value.length];
+        System.arraycopy(_value, 0, result, 0, _value.length);
+        return result;
+    }
+
+    /** Add the given token to each element of this array.
+     *  @param token The token to be added to this token.
+     *  @return A new array token.
+     *  @exception IllegalActionException If the argument token is not
+     *  of a type that can be added to an element of this token.
+     */
+    public ArrayToken elementAdd(Token token) throws IllegalActionException {
+        ArrayToken result = _operate(true, token, false);
+        if (result == null) {
+            result = super.elementAdd(token);
+        }
+        return result;
+    }
+
+    /** Multiply each element of this array by the given token.
+     *  @param token The token with which to multiply this token.
+     *  @return An array token.
+     *  @exception IllegalActionException If the argument token is
+     *  not of a type that can be multiplied to an element of this token.
+     */
+    public ArrayToken elementMultiply(Token token)
+            throws IllegalActionException {
+        ArrayToken result = _operate(false, token, false);
+        if (result == null) {
+            result = super.elementMultiply(token);
+        }
+        return result;
+    }
+
+    /** Return the element at the specified index as a BooleanToken.
+     *  @param index The index of the desired element.
+     *  @return A BooleanToken.
+     *  @exception ArrayIndexOutOfBoundsException If the specified index is
+     *   outside the range of the array.
+     */
+    public Token getElement(int index) {
+        return BooleanToken.getInstance(_value[index]);
+    }
+
+    /** Return the element at the specified index.
+     *  @param index The index of the desired element.
+     *  @return The boolean at the specified index.
+     *  @exception ArrayIndexOutOfBoundsException If the specified index is
+     *   outside the range of the array.
+     */
+    public boolean getElementAt(int index) {
+        return _value[index];
+    }
+
+    /** Return the length of the contained array.
+     *  @return The length of the contained array.
+     */
+    public int length() {
+        return _value.length;
+    }
+
+    /** Return a new BooleanArrayToken whose elements are in reverse order
+     *  of this array.
+     *  @return A BooleanArrayToken.
+     *  @exception IllegalActionException Not thrown in this class.
+     */
+    public ArrayToken reverse() throws IllegalActionException {
+        boolean[] result = new boolean[_value.length];
+        for (int i = 0; i < _value.length; i++) {
+            result[i] = _value[_value.length - i - 1];
+        }
+        return new BooleanArrayToken(result, MatrixToken.DO_NOT_COPY);
+    }
+
+    /** Return the contiguous subarray starting at the specified index and
+     *  of the specified length. If the specified index is out of range,
+     *  or if the specified length extends beyond the end of the array,
+     *  then return an empty array with the same type as this array.
+     *  @param index The index of the beginning of the subarray.
+     *  @param count The length of the subarray.
+     *  @return The extracted subarray.
+     *  @exception IllegalActionException If the index argument is
+     *   less than zero.
+     */
+    public ArrayToken subarray(int index, int count)
+            throws IllegalActionException {
+        if ((count > 0) && (index < _value.length) && (index >= 0)) {
+            if ((count + index) > _value.length) {
+                count = _value.length - index;
+            }
+            boolean[] result = new boolean[count];
+            System.arraycopy(_value, index, result, 0, count);
+            return new BooleanArrayToken(result, MatrixToken.DO_NOT_COPY);
+        }
+        return super.subarray(index, count);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Return a new token whose value is the value of the argument
+     *  token added to the value of this token.
+     *  @param rightArgument The token whose value we add to the value
+     *  of this token.
+     *  @return A new array token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *  ArrayToken of different length, or calling the add method of
+     *  an element token throws it.
+     */
+    protected Token _add(Token rightArgument) throws IllegalActionException {
+        ArrayToken result = _operate(true, rightArgument, true);
+        if (result == null) {
+            return super._add(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a new token whose value is the value of this token
+     *  multiplied by the value of the argument token.
+     *  @param rightArgument The token to multiply this token by.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *  ArrayToken of different length, or calling the multiply method
+     *  of the element token throws it.
+     */
+    protected Token _multiply(Token rightArgument)
+            throws IllegalActionException {
+        ArrayToken result = _operate(false, rightArgument, true);
+        if (result == null) {
+            return super._multiply(rightArgument);
+        }
+        return result;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Return the logical or, if add is true, or the logical and of each
+    // element of this array and the argument, or null if the operation
+    // cannot be performed on booleans.  If allowArrays is true, then the
+    // argument may be a BooleanArrayToken of the same length as this
+    // array, in which case the operation is applied to corresponding
+    // elements.  Otherwise, the argument has to be a BooleanToken.
+    private BooleanArrayToken _operate(boolean add, Token argument,
+            boolean allowArrays) throws IllegalActionException {
+        int length = _value.length;
+        boolean[] result = new boolean[length];
+        if (argument instanceof BooleanArrayToken) {
+            boolean[] right = ((BooleanArrayToken) argument)._value;
+            if (!allowArrays || right.length != length) {
+                return null;
+            }
+            for (int i = 0; i < length; i++) {
+                if (add) {
+                    result[i] = _value[i] || right[i];
+                } else {
+                    result[i] = _value[i] && right[i];
+                }
+            }
+        } else if (argument.getClass() == BooleanToken.class
+                && !argument.isNil()) {
+            boolean scalar = ((BooleanToken) argument).booleanValue();
+            for (int i = 0; i < length; i++) {
+                if (add) {
+                    result[i] = _value[i] || scalar;
+                } else {
+                    result[i] = _value[i] && scalar;
+                }
+            }
+        } else {
+            return null;
+        }
+        return new BooleanArrayToken(result, MatrixToken.DO_NOT_COPY);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The array of values of this array token. */
+    private boolean[] _value;
+}
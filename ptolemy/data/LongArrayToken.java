@@ -0,0 +1,566 @@
+/* A token that contains an array of longs.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.data;
+
+import ptolemy.data.type.BaseType;
+import ptolemy.kernel.util.IllegalActionException;
+
+///////////////////////////////////////////////////////////////////
+//// LongArrayToken
+
+/**
+ An array token that stores its elements in an array of longs rather
+ than an array of LongTokens.  It has the same type as an ArrayToken
+ of longs with the same length, and is equal to an ArrayToken with the
+ same elements.  The elements are created as LongTokens only when they
+ are accessed with {@link #getElement(int)} or {@link #arrayValue()};
+ use {@link #getElementAt(int)} or {@link #longArrayValue()} to access
+ them without creating tokens.
+ <p>
+ Elementwise arithmetic with another LongArrayToken or an IntArrayToken
+ of the same length, or with a LongToken or IntToken that has no units,
+ operates directly on the arrays of longs and returns a LongArrayToken,
+ except for division and modulo by zero.  Other operations, including
+ those whose result is a double, are performed by the base class one
+ element at a time.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class LongArrayToken extends ArrayToken {
+    /** Construct a LongArrayToken with the specified array of longs.
+     *  This class makes a copy of the given array, so the passed array
+     *  may be reused.
+     *  @param value An array of longs.
+     *  @exception IllegalActionException If the specified array is null.
+     */
+    public LongArrayToken(long[] value) throws IllegalActionException {
+        this(value, MatrixToken.DO_COPY);
+    }
+
+    /** Construct a LongArrayToken with the specified array of longs.
+     *  If copy is {@link ptolemy.data.MatrixToken#DO_COPY}, then the
+     *  array is copied.  If copy is
+     *  {@link ptolemy.data.MatrixToken#DO_NOT_COPY}, then the array is
+     *  NOT copied and should not be modified after construction of this
+     *  object, to preserve immutability.
+     *  @param value An array of longs.
+     *  @param copy Either DO_COPY or DO_NOT_COPY.
+     *  @exception IllegalActionException If the specified array is null.
+     */
+    public LongArrayToken(long[] value, int copy)
+            throws IllegalActionException {
+        super(BaseType.LONG);
+        if (value == null) {
+            throw new IllegalActionException("LongArrayToken: The "
+                    + "specified array is null.");
+        }
+        if (copy == MatrixToken.DO_NOT_COPY) {
+            _value = value;
+        } else {
+            _value = new long[value.length];
+            System.arraycopy(value, 0, _value, 0, value.length);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Append the given array to the end of this array, and return the
+     *  resulting array.  If the given array is a LongArrayToken, then
+     *  the result is a LongArrayToken.
+     *  @param token The array to be appended to the end of this array.
+     *  @return The result array.
+     *  @exception IllegalActionException If an array token cannot be created.
+     */
+    public ArrayToken append(ArrayToken token) throws IllegalActionException {
+        if (!(token instanceof LongArrayToken)) {
+            return super.append(token);
+        }
+        long[] value = ((LongArrayToken) token)._value;
+        long[] result = new long[_value.length + value.length];
+        System.arraycopy(_value, 0, result, 0, _value.length);
+        System.arraycopy(value, 0, result, _value.length, value.length);
+        return new LongArrayToken(result, MatrixToken.DO_NOT_COPY);
+    }
+
+    /** Return an array of LongTokens populated with the contents of
+     *  this array token.
+     *  @return An array of tokens.
+     */
+    public Token[] arrayValue() {
+        Token[] result = new Token[_value.length];
+        for (int i = 0; i < _value.length; i++) {
+            result[i] = new LongToken(_value[i]);
+        }
+        return result;
+    }
+
+    /** Return a copy of the contained array of longs.
+     *  @return An array of longs.
+     */
+    public long[] longArrayValue() {
+        long[] result = new long[_value.length];
+        System.arraycopy(_value, 0, result, 0, _value.length);
+        return result;
+    }
+
+    /** Add the given token to each element of this array.
+     *  @param token The token to be added to this token.
+     *  @return A new array token.
+     *  @exception IllegalActionException If the argument token is not
+     *  of a type that can be added to an element of this token.
+     */
+    public ArrayToken elementAdd(Token token) throws IllegalActionException {
+        ArrayToken result = _operate(_ADD, token, false, false);
+        if (result == null) {
+            result = super.elementAdd(token);
+        }
+        return result;
+    }
+
+    /** Divide each element of this array by the given token.
+     *  @param token The token which which to divide this token
+     *  @return An array token.
+     *  @exception IllegalActionException If the argument token is not
+     *  of a type that can be divided into an element of this token.
+     */
+    public ArrayToken elementDivide(Token token) throws IllegalActionException {
+        ArrayToken result = _operate(_DIVIDE, token, false, false);
+        if (result == null) {
+            result = super.elementDivide(token);
+        }
+        return result;
+    }
+
+    /** Modulo each element of this array by the given token.
+     *  @param token The token with which to modulo this token.
+     *  @return An array token.
+     *  @exception IllegalActionException If the argument token is not
+     *  of a type that can be used with modulo.
+     */
+    public ArrayToken elementModulo(Token token) throws IllegalActionException {
+        ArrayToken result = _operate(_MODULO, token, false, false);
+        if (result == null) {
+            result = super.elementModulo(token);
+        }
+        return result;
+    }
+
+    /** Multiply each element of this array by the given token.
+     *  @param token The token with which to multiply this token.
+     *  @return An array token.
+     *  @exception IllegalActionException If the argument token is
+     *  not of a type that can be multiplied to an element of this token.
+     */
+    public ArrayToken elementMultiply(Token token)
+            throws IllegalActionException {
+        ArrayToken result = _operate(_MULTIPLY, token, false, false);
+        if (result == null) {
+            result = super.elementMultiply(token);
+        }
+        return result;
+    }
+
+    /** Subtract the given token from each element of this array.
+     *  @param token The token to subtract from this token.
+     *  @return An array token.
+     *  @exception IllegalActionException If the argument token is not
+     *  of a type that can be subtracted from an element of this token.
+     */
+    public ArrayToken elementSubtract(Token token)
+            throws IllegalActionException {
+        ArrayToken result = _operate(_SUBTRACT, token, false, false);
+        if (result == null) {
+            result = super.elementSubtract(token);
+        }
+        return result;
+    }
+
+    /** Return the element at the specified index as a new LongToken.
+     *  @param index The index of the desired element.
+     *  @return A LongToken.
+     *  @exception ArrayIndexOutOfBoundsException If the specified index is
+     *   outside the range of the array.
+     */
+    public Token getElement(int index) {
+        return new LongToken(_value[index]);
+    }
+
+    /** Return the element at the specified index.
+     *  @param index The index of the desired element.
+     *  @return The long at the specified index.
+     *  @exception ArrayIndexOutOfBoundsException If the specified index is
+     *   outside the range of the array.
+     */
+    public long getElementAt(int index) {
+        return _value[index];
+    }
+
+    /** Return the length of the contained array.
+     *  @return The length of the contained array.
+     */
+    public int length() {
+        return _value.length;
+    }
+
+    /** Return a new LongArrayToken of the same length as this token
+     *  in which every element is 1.
+     *  @return A LongArrayToken.
+     *  @exception IllegalActionException Not thrown in this class.
+     */
+    public Token one() throws IllegalActionException {
+        long[] result = new long[_value.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = 1L;
+        }
+        return new LongArrayToken(result, MatrixToken.DO_NOT_COPY);
+    }
+
+    /** Return a new LongArrayToken whose elements are in reverse order
+     *  of this array.
+     *  @return A LongArrayToken.
+     *  @exception IllegalActionException Not thrown in this class.
+     */
+    public ArrayToken reverse() throws IllegalActionException {
+        long[] result = new long[_value.length];
+        for (int i = 0; i < _value.length; i++) {
+            result[i] = _value[_value.length - i - 1];
+        }
+        return new LongArrayToken(result, MatrixToken.DO_NOT_COPY);
+    }
+
+    /** Return the contiguous subarray starting at the specified index and
+     *  of the specified length. If the specified index is out of range,
+     *  or if the specified length extends beyond the end of the array,
+     *  then return an empty array with the same type as this array.
+     *  @param index The index of the beginning of the subarray.
+     *  @param count The length of the subarray.
+     *  @return The extracted subarray.
+     *  @exception IllegalActionException If the index argument is
+     *   less than zero.
+     */
+    public ArrayToken subarray(int index, int count)
+            throws IllegalActionException {
+        if ((count > 0) && (index < _value.length) && (index >= 0)) {
+            if ((count + index) > _value.length) {
+                count = _value.length - index;
+            }
+            long[] result = new long[count];
+            System.arraycopy(_value, index, result, 0, count);
+            return new LongArrayToken(result, MatrixToken.DO_NOT_COPY);
+        }
+        return super.subarray(index, count);
+    }
+
+    /** Return a new LongArrayToken of the same length as this token
+     *  in which every element is 0.
+     *  @return A LongArrayToken.
+     *  @exception IllegalActionException Not thrown in this class.
+     */
+    public Token zero() throws IllegalActionException {
+        if (_value.length == 0) {
+            return this;
+        }
+        return new LongArrayToken(new long[_value.length],
+                MatrixToken.DO_NOT_COPY);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Return a new token whose value is the value of the argument
+     *  token added to the value of this token.
+     *  @param rightArgument The token whose value we add to the value
+     *  of this token.
+     *  @return A new array token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *  ArrayToken of different length, or calling the add method of
+     *  an element token throws it.
+     */
+    protected Token _add(Token rightArgument) throws IllegalActionException {
+        ArrayToken result = _operate(_ADD, rightArgument, true, false);
+        if (result == null) {
+            return super._add(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a new token whose value is the value of this token
+     *  divided by the value of the argument token.
+     *  @param rightArgument The token to divide this token by.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *   ArrayToken of different length, or calling the divide method
+     *   of the element token throws it.
+     */
+    protected Token _divide(Token rightArgument) throws IllegalActionException {
+        ArrayToken result = _operate(_DIVIDE, rightArgument, true, false);
+        if (result == null) {
+            return super._divide(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a new token whose value is the value of the argument
+     *  token divided by the value of this token.
+     *  @param rightArgument The token into which to divide this token.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *   ArrayToken of different length, or calling the divide method
+     *   of the element token throws it.
+     */
+    protected Token _divideReverse(Token rightArgument)
+            throws IllegalActionException {
+        ArrayToken result = _operate(_DIVIDE, rightArgument, false, true);
+        if (result == null) {
+            return super._divideReverse(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a true-valued token if the argument is equal to this one.
+     *  If the argument is a LongArrayToken, then the arrays of longs
+     *  are compared directly.
+     *  @param token The token to compare to this token.
+     *  @exception IllegalActionException If the element types do not
+     *   support this comparison.
+     *  @return A true-valued token if the argument is equal.
+     */
+    protected BooleanToken _isEqualTo(Token token)
+            throws IllegalActionException {
+        if (!(token instanceof LongArrayToken)) {
+            return super._isEqualTo(token);
+        }
+        long[] value = ((LongArrayToken) token)._value;
+        if (value.length != _value.length) {
+            // Use the base class to get a consistent error message.
+            return super._isEqualTo(token);
+        }
+        for (int i = 0; i < _value.length; i++) {
+            if (_value[i] != value[i]) {
+                return BooleanToken.FALSE;
+            }
+        }
+        return BooleanToken.TRUE;
+    }
+
+    /** Return a new token whose value is the value of this token
+     *  modulo the value of the argument token.
+     *  @param rightArgument The token to modulo this token by.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *  ArrayToken of different length, or calling the modulo method
+     *  of the element token throws it.
+     */
+    protected Token _modulo(Token rightArgument) throws IllegalActionException {
+        ArrayToken result = _operate(_MODULO, rightArgument, true, false);
+        if (result == null) {
+            return super._modulo(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a new token whose value is the value of the argument
+     *  token modulo the value of this token.
+     *  @param rightArgument The token to be moduloed by this token.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *   ArrayToken of different length, or calling the modulo method
+     *   of the element token throws it.
+     */
+    protected Token _moduloReverse(Token rightArgument)
+            throws IllegalActionException {
+        ArrayToken result = _operate(_MODULO, rightArgument, false, true);
+        if (result == null) {
+            return super._moduloReverse(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a new token whose value is the value of this token
+     *  multiplied by the value of the argument token.
+     *  @param rightArgument The token to multiply this token by.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *  ArrayToken of different length, or calling the multiply method
+     *  of the element token throws it.
+     */
+    protected Token _multiply(Token rightArgument)
+            throws IllegalActionException {
+        ArrayToken result = _operate(_MULTIPLY, rightArgument, true, false);
+        if (result == null) {
+            return super._multiply(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a new token whose value is the value of the argument
+     *  token subtracted from the value of this token.
+     *  @param rightArgument The token to subtract from this token.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *  ArrayToken of different length, or calling the subtract method
+     *  of the element token throws it.
+     */
+    protected Token _subtract(Token rightArgument)
+            throws IllegalActionException {
+        ArrayToken result = _operate(_SUBTRACT, rightArgument, true, false);
+        if (result == null) {
+            return super._subtract(rightArgument);
+        }
+        return result;
+    }
+
+    /** Return a new token whose value is the value of this token
+     *  subtracted from the value of the argument token.
+     *  @param rightArgument The token from which to subtract this token.
+     *  @return A new token containing the result.
+     *  @exception IllegalActionException If the argument is an
+     *   ArrayToken of different length, or calling the subtract method
+     *   of the element token throws it.
+     */
+    protected Token _subtractReverse(Token rightArgument)
+            throws IllegalActionException {
+        ArrayToken result = _operate(_SUBTRACT, rightArgument, false, true);
+        if (result == null) {
+            return super._subtractReverse(rightArgument);
+        }
+        return result;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Return the result of applying the operation to the two arguments.
+    private static long _apply(int operation, long left, long right) {
+        switch (operation) {
+        case _ADD:
+            return left + right;
+        case _DIVIDE:
+            return left / right;
+        case _MODULO:
+            return left % right;
+        case _MULTIPLY:
+            return left * right;
+        default:
+            return left - right;
+        }
+    }
+
+    // Return true if any element of the argument is zero.
+    private static boolean _containsZero(long[] value) {
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] == 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Return the result of applying the operation to each element of
+    // this array and the argument, or null if the operation cannot be
+    // performed on longs.  If allowArrays is true, then the argument
+    // may be a LongArrayToken or IntArrayToken of the same length as
+    // this array, in which case the operation is applied to
+    // corresponding elements.  Otherwise, the argument has to be a
+    // LongToken or IntToken without units, in which case it is the
+    // left operand if reverse is true and the right operand otherwise.
+    // Return null for division or modulo by zero, so that the base class
+    // reports the error.
+    private LongArrayToken _operate(int operation, Token argument,
+            boolean allowArrays, boolean reverse)
+            throws IllegalActionException {
+        boolean divides = operation == _DIVIDE || operation == _MODULO;
+        int length = _value.length;
+        long[] result;
+        if (argument instanceof LongArrayToken) {
+            long[] right = ((LongArrayToken) argument)._value;
+            if (!allowArrays || right.length != length
+                    || (divides && _containsZero(right))) {
+                return null;
+            }
+            result = new long[length];
+            for (int i = 0; i < length; i++) {
+                result[i] = _apply(operation, _value[i], right[i]);
+            }
+        } else if (argument instanceof IntArrayToken) {
+            IntArrayToken right = (IntArrayToken) argument;
+            if (!allowArrays || right.length() != length) {
+                return null;
+            }
+            result = new long[length];
+            for (int i = 0; i < length; i++) {
+                long element = right.getElementAt(i);
+                if (divides && element == 0L) {
+                    return null;
+                }
+                result[i] = _apply(operation, _value[i], element);
+            }
+        } else if (_isPlainScalar(argument, LongToken.class)
+                || _isPlainScalar(argument, IntToken.class)) {
+            long scalar = ((ScalarToken) argument).longValue();
+            if (divides && (reverse ? _containsZero(_value) : scalar == 0L)) {
+                return null;
+            }
+            result = new long[length];
+            if (reverse) {
+                for (int i = 0; i < length; i++) {
+                    result[i] = _apply(operation, scalar, _value[i]);
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    result[i] = _apply(operation, _value[i], scalar);
+                }
+            }
+        } else {
+            return null;
+        }
+        return new LongArrayToken(result, MatrixToken.DO_NOT_COPY);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // Operation codes used by _operate().
+    private static final int _ADD = 0;
+
+    private static final int _DIVIDE = 1;
+
+    private static final int _MODULO = 2;
+
+    private static final int _MULTIPLY = 3;
+
+    private static final int _SUBTRACT = 4;
+
+    /** The array of values of this array token. */
+    private long[] _value;
+}
@@ -116,9 +116,13 @@ public abstract class ScalarToken extends Token implements
      *  or the operation does not make sense for the given types.
      */
     public final Token add(Token rightArgument) throws IllegalActionException {
-        int typeInfo = TypeLattice.compare(getType(), rightArgument);
+        // Operands of the same class need no comparison of their types.
+        int typeInfo = CPO.SAME;
+        if (getClass() != rightArgument.getClass()) {
+            typeInfo = TypeLattice.compare(getType(), rightArgument);
+        }
 
-        if (typeInfo == CPO.SAME || getClass() == (rightArgument.getClass())) {
+        if (typeInfo == CPO.SAME) {
             return _doAdd(rightArgument);
         } else if (typeInfo == CPO.HIGHER) {
             ScalarToken convertedArgument = (ScalarToken) getType().convert(
@@ -402,9 +406,13 @@ public abstract class ScalarToken extends Token implements
      */
     public final Token divide(Token rightArgument)
             throws IllegalActionException {
-        int typeInfo = TypeLattice.compare(getType(), rightArgument);
+        // Operands of the same class need no comparison of their types.
+        int typeInfo = CPO.SAME;
+        if (getClass() != rightArgument.getClass()) {
+            typeInfo = TypeLattice.compare(getType(), rightArgument);
+        }
 
-        if (typeInfo == CPO.SAME || getClass() == (rightArgument.getClass())) {
+        if (typeInfo == CPO.SAME) {
             return _doDivide(rightArgument);
         } else if (typeInfo == CPO.HIGHER) {
             ScalarToken convertedArgument = (ScalarToken) getType().convert(
@@ -584,9 +592,14 @@ public abstract class ScalarToken extends Token implements
         // subtraction(), and isLessThan() method calls and should go
         // straight to isEqualTo().  Also, these methods might introduce
         // exceptions because of type conversion issues.
-        int typeInfo = TypeLattice.compare(getType(), rightArgument);
 
-        if (typeInfo == CPO.SAME || getClass() == (rightArgument.getClass())) {
+        // Operands of the same class need no comparison of their types.
+        int typeInfo = CPO.SAME;
+        if (getClass() != rightArgument.getClass()) {
+            typeInfo = TypeLattice.compare(getType(), rightArgument);
+        }
+
+        if (typeInfo == CPO.SAME) {
             return _doIsCloseTo(rightArgument, epsilon);
         } else if (typeInfo == CPO.HIGHER) {
             ScalarToken convertedArgument = (ScalarToken) getType().convert(
@@ -627,9 +640,13 @@ public abstract class ScalarToken extends Token implements
      */
     public final BooleanToken isEqualTo(Token rightArgument)
             throws IllegalActionException {
-        int typeInfo = TypeLattice.compare(getType(), rightArgument);
+        // Operands of the same class need no comparison of their types.
+        int typeInfo = CPO.SAME;
+        if (getClass() != rightArgument.getClass()) {
+            typeInfo = TypeLattice.compare(getType(), rightArgument);
+        }
 
-        if (typeInfo == CPO.SAME || getClass() == (rightArgument.getClass())) {
+        if (typeInfo == CPO.SAME) {
             return _doIsEqualTo(rightArgument);
         } else if (typeInfo == CPO.HIGHER) {
             ScalarToken convertedArgument = (ScalarToken) getType().convert(
@@ -820,9 +837,13 @@ public abstract class ScalarToken extends Token implements
      */
     public final Token modulo(Token rightArgument)
             throws IllegalActionException {
-        int typeInfo = TypeLattice.compare(getType(), rightArgument);
+        // Operands of the same class need no comparison of their types.
+        int typeInfo = CPO.SAME;
+        if (getClass() != rightArgument.getClass()) {
+            typeInfo = TypeLattice.compare(getType(), rightArgument);
+        }
 
-        if (typeInfo == CPO.SAME || getClass() == (rightArgument.getClass())) {
+        if (typeInfo == CPO.SAME) {
             return _doModulo(rightArgument);
         } else if (typeInfo == CPO.HIGHER) {
             ScalarToken convertedArgument = (ScalarToken) getType().convert(
@@ -928,9 +949,13 @@ public abstract class ScalarToken extends Token implements
      */
     public final Token multiply(Token rightArgument)
             throws IllegalActionException {
-        int typeInfo = TypeLattice.compare(getType(), rightArgument);
+        // Operands of the same class need no comparison of their types.
+        int typeInfo = CPO.SAME;
+        if (getClass() != rightArgument.getClass()) {
+            typeInfo = TypeLattice.compare(getType(), rightArgument);
+        }
 
-        if (typeInfo == CPO.SAME || getClass() == (rightArgument.getClass())) {
+        if (typeInfo == CPO.SAME) {
             return _doMultiply(rightArgument);
         } else if (typeInfo == CPO.HIGHER) {
             ScalarToken convertedArgument = (ScalarToken) getType().convert(
@@ -1102,9 +1127,13 @@ public abstract class ScalarToken extends Token implements
      */
     public final Token subtract(Token rightArgument)
             throws IllegalActionException {
-        int typeInfo = TypeLattice.compare(getType(), rightArgument);
+        // Operands of the same class need no comparison of their types.
+        int typeInfo = CPO.SAME;
+        if (getClass() != rightArgument.getClass()) {
+            typeInfo = TypeLattice.compare(getType(), rightArgument);
+        }
 
-        if (typeInfo == CPO.SAME || getClass() == (rightArgument.getClass())) {
+        if (typeInfo == CPO.SAME) {
             return _doSubtract(rightArgument);
         } else if (typeInfo == CPO.HIGHER) {
             ScalarToken convertedArgument = (ScalarToken) getType().convert(
@@ -0,0 +1,1256 @@
+/* A visitor that compiles parse trees of the expression language.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.data.expr;
+
+import java.util.List;
+
+import ptolemy.data.ArrayToken;
+import ptolemy.data.BitwiseOperationToken;
+import ptolemy.data.BooleanToken;
+import ptolemy.data.FunctionToken;
+import ptolemy.data.IntToken;
+import ptolemy.data.MatrixToken;
+import ptolemy.data.ObjectToken;
+import ptolemy.data.OrderedRecordToken;
+import ptolemy.data.PartiallyOrderedToken;
+import ptolemy.data.RecordToken;
+import ptolemy.data.ScalarToken;
+import ptolemy.data.UnionToken;
+import ptolemy.data.type.Type;
+import ptolemy.data.type.TypeLattice;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.InternalErrorException;
+
+///////////////////////////////////////////////////////////////////
+//// ParseTreeCompiler
+
+/**
+ This class compiles a parse tree into a {@link CompiledExpression}, which
+ can then be evaluated repeatedly without visiting the parse tree again.
+ The compiled expression is a tree of small objects, one for each node
+ of the parse tree, in which the operators, the lexical tokens and the
+ shape of the tree have been resolved once at compile time, so that an
+ evaluation does no more than apply the operators of the token classes
+ to the values of the children.
+ <p>
+ The result of evaluating a compiled expression is the same as the result
+ of evaluating the parse tree with a {@link ParseTreeEvaluator} in the
+ same scope. Subtrees that the parser has marked as constant are
+ evaluated once at compile time. Identifiers are looked up in the scope
+ on each evaluation, unless a derived class overrides
+ {@link #_compileIdentifier(String)} to resolve them in advance.
+ Function applications and method calls are compiled, but the function
+ or method that they invoke is found on each evaluation, as in
+ ParseTreeEvaluator. Constructs that are rarely evaluated repeatedly,
+ such as function definitions, calls to eval(), fold(), matlab() and
+ object(), and matrices given as ranges, are delegated to a
+ ParseTreeEvaluator.
+ <p>
+ Compilation removes the cost of visiting the parse tree, so the gain
+ is largest for expressions such as conditionals and guards, whose
+ evaluation is dominated by that cost. The arithmetic operators still
+ apply the operations of the token classes, which create a new token
+ for each result and check types and units, so arithmetic on scalars
+ is faster by a smaller factor.
+ <p>
+ A compiled expression refers to the parse tree it was compiled from,
+ and becomes invalid if that parse tree is modified.  Like the parse
+ tree evaluator, a compiled expression should not be evaluated by more
+ than one thread at a time.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see ptolemy.data.expr.ParseTreeEvaluator
+ */
+public class ParseTreeCompiler extends AbstractParseTreeVisitor {
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Compile the parse tree with the specified root node.
+     *  @param node The root of the parse tree.
+     *  @return The compiled expression.
+     *  @exception IllegalActionException If the parse tree cannot be
+     *   compiled.
+     */
+    public CompiledExpression compileParseTree(ASTPtRootNode node)
+            throws IllegalActionException {
+        return _compile(node);
+    }
+
+    /** Compile the construction of an array from the children of the
+     *  specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitArrayConstructNode(ASTPtArrayConstructNode node)
+            throws IllegalActionException {
+        _compiled = new ArrayConstructExpression(_compileAllChildren(node));
+    }
+
+    /** Delegate the assignment node to a ParseTreeEvaluator.
+     *  @param node The specified node.
+     */
+    public void visitAssignmentNode(ASTPtAssignmentNode node) {
+        _compiled = _interpret(node);
+    }
+
+    /** Compile a bitwise operator on the children of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitBitwiseNode(ASTPtBitwiseNode node)
+            throws IllegalActionException {
+        _assert(node.jjtGetNumChildren() > 0, node,
+                "The number of child nodes must be greater than zero");
+        _assert(node.isBitwiseAnd() ^ node.isBitwiseOr() ^ node.isBitwiseXor(),
+                node, "Invalid operation");
+        _compiled = new BitwiseExpression(_compileAllChildren(node), node);
+    }
+
+    /** Compile the application of a function to the children of the
+     *  specified node, which also handles indexing into arrays and
+     *  matrices.  The special functions eval(), fold(), matlab() and
+     *  object() are delegated to a ParseTreeEvaluator.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitFunctionApplicationNode(ASTPtFunctionApplicationNode node)
+            throws IllegalActionException {
+        String functionName = node.getFunctionName();
+        if (functionName != null
+                && (functionName.equals("eval")
+                        || functionName.equals("fold")
+                        || functionName.equals("matlab") || functionName
+                        .equals("object"))) {
+            _compiled = _interpret(node);
+            return;
+        }
+        int argCount = node.jjtGetNumChildren() - 1;
+        CompiledExpression[] arguments = new CompiledExpression[argCount];
+        for (int i = 0; i < argCount; i++) {
+            arguments[i] = _compile((ASTPtRootNode) node.jjtGetChild(i + 1));
+        }
+        CompiledExpression function;
+        if (functionName == null) {
+            function = _compile((ASTPtRootNode) node.jjtGetChild(0));
+        } else {
+            function = _compileIdentifier(functionName);
+        }
+        _compiled = new FunctionApplicationExpression(node, function,
+                arguments, _evaluator);
+    }
+
+    /** Delegate the function definition node to a ParseTreeEvaluator.
+     *  @param node The specified node.
+     */
+    public void visitFunctionDefinitionNode(ASTPtFunctionDefinitionNode node) {
+        _compiled = _interpret(node);
+    }
+
+    /** Compile the functional if on the children of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitFunctionalIfNode(ASTPtFunctionalIfNode node)
+            throws IllegalActionException {
+        if (node.jjtGetNumChildren() != 3) {
+            // A functional-if node MUST have three children in the parse
+            // tree.
+            throw new InternalErrorException(
+                    "PtParser error: a functional-if node does not have "
+                            + "three children in the parse tree.");
+        }
+        // The type of a constant branch does not depend on the scope,
+        // so infer it once.
+        Type[] branchTypes = new Type[3];
+        for (int i = 1; i < 3; i++) {
+            ASTPtRootNode child = (ASTPtRootNode) node.jjtGetChild(i);
+            if (child.isConstant()) {
+                try {
+                    branchTypes[i] = new ParseTreeTypeInference()
+                            .inferTypes(child);
+                } catch (IllegalActionException ex) {
+                    // Infer the type when the expression is evaluated.
+                }
+            }
+        }
+        _compiled = new FunctionalIfExpression(node,
+                _compileAllChildren(node), branchTypes);
+    }
+
+    /** Compile a numeric constant or an identifier.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If the identifier cannot be
+     *   compiled.
+     */
+    public void visitLeafNode(ASTPtLeafNode node) throws IllegalActionException {
+        if (node.isConstant() && node.isEvaluated()) {
+            _compiled = new ConstantExpression(node.getToken());
+            return;
+        }
+        String name = node.getName();
+        _compiled = new IdentifierExpression(name, _compileIdentifier(name));
+    }
+
+    /** Compile a short-circuit logical AND or OR on the children of the
+     *  specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitLogicalNode(ASTPtLogicalNode node)
+            throws IllegalActionException {
+        _assert(node.jjtGetNumChildren() > 0, node,
+                "The number of child nodes must be greater than zero");
+        _assert(node.isLogicalAnd() ^ node.isLogicalOr(), node,
+                "Invalid operation");
+        _compiled = new LogicalExpression(_compileAllChildren(node),
+                node.isLogicalAnd());
+    }
+
+    /** Compile the construction of a matrix from the children of the
+     *  specified node.  Matrices that are given as ranges are delegated
+     *  to a ParseTreeEvaluator.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitMatrixConstructNode(ASTPtMatrixConstructNode node)
+            throws IllegalActionException {
+        if (node.getForm() != 1) {
+            _compiled = _interpret(node);
+            return;
+        }
+        _compiled = new MatrixConstructExpression(_compileAllChildren(node),
+                node.getRowCount(), node.getColumnCount());
+    }
+
+    /** Compile the application of a method to the children of the
+     *  specified node, which also handles indexing into a record.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitMethodCallNode(ASTPtMethodCallNode node)
+            throws IllegalActionException {
+        _compiled = new MethodCallExpression(node.getMethodName(),
+                _compileAllChildren(node), _evaluator);
+    }
+
+    /** Compile the power operator on the children of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitPowerNode(ASTPtPowerNode node)
+            throws IllegalActionException {
+        _assert(node.jjtGetNumChildren() > 0, node,
+                "The number of child nodes must be greater than zero");
+        _compiled = new PowerExpression(_compileAllChildren(node));
+    }
+
+    /** Compile the products of the children of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitProductNode(ASTPtProductNode node)
+            throws IllegalActionException {
+        _compiled = new ProductExpression(_compileAllChildren(node),
+                _operatorKinds(node, node.getLexicalTokenList()));
+    }
+
+    /** Compile the construction of a record from the children of the
+     *  specified node.
+     *  @param node The record constructor node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitRecordConstructNode(ASTPtRecordConstructNode node)
+            throws IllegalActionException {
+        int numChildren = node.jjtGetNumChildren();
+        _assert(node.getFieldNames().size() == numChildren, node,
+                "The number of labels and values does not "
+                        + "match in parsing a record expression.");
+        String[] labels = _labels(node.getFieldNames());
+        _compiled = new RecordConstructExpression(labels,
+                _compileAllChildren(node),
+                node instanceof ASTPtOrderedRecordConstructNode);
+    }
+
+    /** Compile a relational operator on the children of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitRelationalNode(ASTPtRelationalNode node)
+            throws IllegalActionException {
+        _assert(node.jjtGetNumChildren() == 2, node,
+                "The number of child nodes must be two");
+        _compiled = new RelationalExpression(_compileAllChildren(node),
+                node.getOperator());
+    }
+
+    /** Compile a shift operator on the children of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitShiftNode(ASTPtShiftNode node)
+            throws IllegalActionException {
+        _assert(node.jjtGetNumChildren() == 2, node,
+                "The number of child nodes must be two");
+        Token operator = node.getOperator();
+        _assert(operator.kind == PtParserConstants.SHL
+                || operator.kind == PtParserConstants.SHR
+                || operator.kind == PtParserConstants.LSHR, node,
+                "Invalid operation");
+        _compiled = new ShiftExpression(_compileAllChildren(node), operator);
+    }
+
+    /** Compile the sum of the children of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitSumNode(ASTPtSumNode node) throws IllegalActionException {
+        _compiled = new SumExpression(_compileAllChildren(node),
+                _operatorKinds(node, node.getLexicalTokenList()));
+    }
+
+    /** Compile a unary operator on the single child of the specified node.
+     *  @param node The specified node.
+     *  @exception IllegalActionException If the child cannot be compiled.
+     */
+    public void visitUnaryNode(ASTPtUnaryNode node)
+            throws IllegalActionException {
+        _assert(node.jjtGetNumChildren() == 1, node,
+                "Unary node must have exactly one child!");
+        int operator;
+        if (node.isMinus()) {
+            operator = _MINUS;
+        } else if (node.isNot()) {
+            operator = _NOT;
+        } else if (node.isBitwiseNot()) {
+            operator = _BITWISE_NOT;
+        } else {
+            _assert(false, node, "Unrecognized unary node");
+            return;
+        }
+        _compiled = new UnaryExpression(
+                _compile((ASTPtRootNode) node.jjtGetChild(0)), operator);
+    }
+
+    /** Compile the construction of a union from the children of the
+     *  specified node.
+     *  @param node The union constructor node.
+     *  @exception IllegalActionException If a child cannot be compiled.
+     */
+    public void visitUnionConstructNode(ASTPtUnionConstructNode node)
+            throws IllegalActionException {
+        int numChildren = node.jjtGetNumChildren();
+        _assert(node.getLabelNames().size() == numChildren, node,
+                "The number of labels and values does not "
+                        + "match in parsing a record expression.");
+        String[] labels = _labels(node.getLabelNames());
+        _compiled = new UnionConstructExpression(labels[0],
+                _compileAllChildren(node));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Assert that the given boolean value, which describes the given
+     *  parse tree node, is true.  If it is false, then throw a new
+     *  InternalErrorException that describes the node and includes
+     *  the given message.
+     *  @param flag The flag that is asserted to be true.
+     *  @param node The node on which the assertion is asserted.
+     *  @param message The message to include in the exception.
+     *  @exception InternalErrorException If the assertion is violated.
+     */
+    protected void _assert(boolean flag, ASTPtRootNode node, String message) {
+        if (!flag) {
+            throw new InternalErrorException(message + ": " + node.toString());
+        }
+    }
+
+    /** Compile the given node.  If the node is constant, then evaluate
+     *  it and return an expression that returns the result.
+     *  Function applications, method calls and function definitions are
+     *  not evaluated at compile time, because ParseTreeEvaluator does not
+     *  cache their values either.
+     *  @param node The node to compile.
+     *  @return The compiled expression.
+     *  @exception IllegalActionException If the node cannot be compiled.
+     */
+    protected CompiledExpression _compile(ASTPtRootNode node)
+            throws IllegalActionException {
+        if (node.isConstant()
+                && !(node instanceof ASTPtFunctionApplicationNode)
+                && !(node instanceof ASTPtFunctionDefinitionNode)
+                && !(node instanceof ASTPtMethodCallNode)) {
+            try {
+                return new ConstantExpression(_evaluator.evaluateParseTree(
+                        node, null));
+            } catch (IllegalActionException ex) {
+                // Compile the node, so that the error is reported
+                // when the expression is evaluated.
+            } catch (ArithmeticException ex) {
+                // Compile the node, as above.
+            }
+        }
+        CompiledExpression previous = _compiled;
+        try {
+            node.visit(this);
+            return _compiled;
+        } finally {
+            _compiled = previous;
+        }
+    }
+
+    /** Return an expression that evaluates to the value of the given
+     *  identifier in the scope, or null if the identifier is not defined
+     *  in the scope.  The expression that is returned is used both for
+     *  identifiers and for the names of applied functions.  The named
+     *  constants that are registered with the parser are handled by the
+     *  caller.  In this base class, the identifier is looked up in the
+     *  scope that is given to the compiled expression on each
+     *  evaluation. Derived classes may override this method to resolve
+     *  the identifier once, at compile time.
+     *  @param name The name of the identifier.
+     *  @return An expression that evaluates to the value of the given
+     *   identifier in the scope.
+     *  @exception IllegalActionException Not thrown in this base class.
+     */
+    protected CompiledExpression _compileIdentifier(String name)
+            throws IllegalActionException {
+        return new ScopeExpression(name);
+    }
+
+    /** Return an expression that evaluates the given node with a
+     *  ParseTreeEvaluator.
+     *  @param node The node to evaluate.
+     *  @return An expression that evaluates the given node.
+     */
+    protected CompiledExpression _interpret(ASTPtRootNode node) {
+        return new InterpretedExpression(node);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Compile the children of the given node.
+    private CompiledExpression[] _compileAllChildren(ASTPtRootNode node)
+            throws IllegalActionException {
+        int numChildren = node.jjtGetNumChildren();
+        CompiledExpression[] children = new CompiledExpression[numChildren];
+        for (int i = 0; i < numChildren; i++) {
+            children[i] = _compile((ASTPtRootNode) node.jjtGetChild(i));
+        }
+        return children;
+    }
+
+    // Evaluate all of the given expressions, in order.
+    private static ptolemy.data.Token[] _evaluateAll(
+            CompiledExpression[] expressions, ParserScope scope)
+            throws IllegalActionException {
+        ptolemy.data.Token[] tokens = new ptolemy.data.Token[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            tokens[i] = expressions[i].evaluate(scope);
+        }
+        return tokens;
+    }
+
+    // Return the labels in the given list as an array.
+    private static String[] _labels(List<?> labelList) {
+        String[] labels = new String[labelList.size()];
+        int i = 0;
+        for (Object label : labelList) {
+            labels[i++] = (String) label;
+        }
+        return labels;
+    }
+
+    // Return the kinds of the operators in the given list of lexical
+    // tokens, checking that there is one operator less than children.
+    private int[] _operatorKinds(ASTPtRootNode node, List<?> lexicalTokenList) {
+        int numChildren = node.jjtGetNumChildren();
+        _assert(numChildren > 0, node,
+                "The number of child nodes must be greater than zero");
+        _assert(numChildren == (lexicalTokenList.size() + 1), node,
+                "The number of child nodes is "
+                        + "not equal to number of operators plus one");
+        int[] kinds = new int[numChildren - 1];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = ((Token) lexicalTokenList.get(i)).kind;
+        }
+        return kinds;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // The codes of the bitwise and unary operators.
+    private static final int _AND = 0;
+
+    private static final int _BITWISE_NOT = 1;
+
+    private static final int _MINUS = 2;
+
+    private static final int _NOT = 3;
+
+    private static final int _OR = 4;
+
+    private static final int _XOR = 5;
+
+    // The result of compiling the most recently visited node.
+    private CompiledExpression _compiled;
+
+    // The evaluator used for constant subtrees and for the invocation
+    // of functions and methods.
+    private ParseTreeEvaluator _evaluator = new ParseTreeEvaluator();
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    // The construction of an array.
+    private static class ArrayConstructExpression implements
+            CompiledExpression {
+        public ArrayConstructExpression(CompiledExpression[] elements) {
+            _elements = elements;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            if (_elements.length == 0) {
+                return ArrayToken.NIL;
+            }
+            ptolemy.data.Token[] tokens = _evaluateAll(_elements, scope);
+
+            // Convert up to LUB.
+            Type elementType = tokens[0].getType();
+            for (int i = 1; i < tokens.length; i++) {
+                Type valueType = tokens[i].getType();
+                if (!elementType.equals(valueType)) {
+                    elementType = TypeLattice.leastUpperBound(elementType,
+                            valueType);
+                }
+            }
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = elementType.convert(tokens[i]);
+            }
+            return new ArrayToken(elementType, tokens);
+        }
+
+        private CompiledExpression[] _elements;
+    }
+
+    // A bitwise AND, OR or XOR.
+    private static class BitwiseExpression implements CompiledExpression {
+        public BitwiseExpression(CompiledExpression[] operands,
+                ASTPtBitwiseNode node) {
+            _operands = operands;
+            _operator = node.getOperator().image;
+            if (node.isBitwiseAnd()) {
+                _kind = _AND;
+            } else if (node.isBitwiseOr()) {
+                _kind = _OR;
+            } else {
+                _kind = _XOR;
+            }
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token[] tokens = _evaluateAll(_operands, scope);
+            ptolemy.data.Token result = tokens[0];
+            if (!(result instanceof BitwiseOperationToken)) {
+                throw new IllegalActionException("Operation " + _operator
+                        + " not defined on " + result
+                        + " which does not support bitwise operations.");
+            }
+            BitwiseOperationToken bitwiseResult = (BitwiseOperationToken) result;
+            for (int i = 1; i < tokens.length; i++) {
+                ptolemy.data.Token nextToken = tokens[i];
+                if (!(nextToken instanceof BitwiseOperationToken)) {
+                    throw new IllegalActionException("Operation "
+                            + _operator + " not defined on " + result
+                            + " which does not support bitwise operations.");
+                }
+                if (_kind == _AND) {
+                    bitwiseResult = bitwiseResult.bitwiseAnd(nextToken);
+                } else if (_kind == _OR) {
+                    bitwiseResult = bitwiseResult.bitwiseOr(nextToken);
+                } else {
+                    bitwiseResult = bitwiseResult.bitwiseXor(nextToken);
+                }
+            }
+            return (ptolemy.data.Token) bitwiseResult;
+        }
+
+        private int _kind;
+
+        private CompiledExpression[] _operands;
+
+        private String _operator;
+    }
+
+    // A constant.
+    private static class ConstantExpression implements CompiledExpression {
+        public ConstantExpression(ptolemy.data.Token value) {
+            _value = value;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope) {
+            return _value;
+        }
+
+        private ptolemy.data.Token _value;
+    }
+
+    // The application of a function, or the indexing of an array or
+    // a matrix.
+    private static class FunctionApplicationExpression implements
+            CompiledExpression {
+        public FunctionApplicationExpression(
+                ASTPtFunctionApplicationNode node,
+                CompiledExpression function, CompiledExpression[] arguments,
+                ParseTreeEvaluator evaluator) {
+            _node = node;
+            _functionName = node.getFunctionName();
+            _function = function;
+            _arguments = arguments;
+            _evaluator = evaluator;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token value = null;
+            ptolemy.data.Token scopedValue = null;
+            if (_functionName != null && scope != null) {
+                scopedValue = _function.evaluate(scope);
+                if (!(scopedValue instanceof ObjectToken)) {
+                    // Pretend that we cannot resolve the name if it is an
+                    // ObjectToken.
+                    value = scopedValue;
+                }
+            }
+
+            int argCount = _arguments.length;
+            ptolemy.data.Token[] argValues = _evaluateAll(_arguments, scope);
+
+            if (value != null || _functionName == null) {
+                if (value == null) {
+                    value = _function.evaluate(scope);
+                }
+                return _apply(value, argValues);
+            }
+
+            // Reflect the name of the function. The invocation may convert
+            // the arguments in place, so they are copied into an array of
+            // objects.
+            Type[] argTypes = new Type[argCount];
+            Object[] arguments = new Object[argCount];
+            for (int i = 0; i < argCount; i++) {
+                argTypes[i] = argValues[i].getType();
+                arguments[i] = argValues[i];
+            }
+            ptolemy.data.Token result = null;
+            try {
+                result = _evaluator._functionCall(_functionName, argTypes,
+                        arguments);
+            } catch (IllegalActionException ex) {
+                // Consider "expression" as "this.expression", as in
+                // ParseTreeEvaluator.
+                ptolemy.data.Token thisToken = null;
+                if (argCount == 0 && scope != null) {
+                    thisToken = scope.get("this");
+                }
+                if (thisToken == null) {
+                    throw ex;
+                }
+                result = _evaluator._methodCall(_functionName,
+                        new Type[] { thisToken.getType() },
+                        new Object[] { thisToken });
+            }
+            if (result == null && scopedValue instanceof ObjectToken) {
+                result = scopedValue;
+            }
+            return result;
+        }
+
+        // Apply the given value, which is a function, an array or a
+        // matrix, to the given arguments.
+        private ptolemy.data.Token _apply(ptolemy.data.Token value,
+                ptolemy.data.Token[] argValues) throws IllegalActionException {
+            int argCount = argValues.length;
+            if (value instanceof ArrayToken) {
+                if (argCount == 1) {
+                    return _evaluator._evaluateArrayIndex(_node, value,
+                            argValues[0]);
+                }
+                throw new IllegalActionException("Wrong number of indices "
+                        + "when referencing " + _functionName);
+            } else if (value instanceof MatrixToken) {
+                if (argCount == 2) {
+                    return _evaluator._evaluateMatrixIndex(_node, value,
+                            argValues[0], argValues[1]);
+                }
+                throw new IllegalActionException("Wrong number of indices "
+                        + "when referencing " + _functionName);
+            } else if (value instanceof FunctionToken) {
+                FunctionToken function = (FunctionToken) value;
+                if (function.getNumberOfArguments() != argCount) {
+                    throw new IllegalActionException("Wrong number of "
+                            + "arguments when applying function "
+                            + value.toString());
+                }
+                return function.apply(argValues);
+            } else if (argCount == 2) {
+                // Possible matrix promotion, where we allow
+                // scalar(0,0) to simply have value scalar.
+                if (argValues[0] instanceof IntToken
+                        && ((IntToken) argValues[0]).intValue() == 0
+                        && argValues[1] instanceof IntToken
+                        && ((IntToken) argValues[1]).intValue() == 0) {
+                    try {
+                        MatrixToken.arrayToMatrix(
+                                new ptolemy.data.Token[] { value }, 1, 1);
+                    } catch (IllegalActionException ex) {
+                        throw new IllegalActionException(
+                                "Cannot apply array indexing to "
+                                        + value.toString());
+                    }
+                    return value;
+                }
+                throw new IllegalActionException(
+                        "Invalid matrix indexing for " + value.toString());
+            } else if (argCount == 1) {
+                // Possible array promotion, where we allow
+                // scalar(0) to simply have value scalar.
+                if (argValues[0] instanceof IntToken
+                        && ((IntToken) argValues[0]).intValue() == 0) {
+                    return value;
+                }
+                throw new IllegalActionException(
+                        "Invalid array indexing for " + value.toString());
+            }
+            throw new IllegalActionException(
+                    "Cannot index or apply arguments to " + value.toString());
+        }
+
+        private CompiledExpression[] _arguments;
+
+        private ParseTreeEvaluator _evaluator;
+
+        private CompiledExpression _function;
+
+        private String _functionName;
+
+        private ASTPtFunctionApplicationNode _node;
+    }
+
+    // A functional if, which evaluates one branch and infers the type
+    // of the other.
+    private static class FunctionalIfExpression implements CompiledExpression {
+        public FunctionalIfExpression(ASTPtFunctionalIfNode node,
+                CompiledExpression[] children, Type[] branchTypes) {
+            _node = node;
+            _children = children;
+            _branchTypes = branchTypes;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token test = _children[0].evaluate(scope);
+            if (!(test instanceof BooleanToken)) {
+                throw new IllegalActionException(
+                        "Functional-if must branch on a boolean, but instead was "
+                                + test.toString() + " an instance of "
+                                + test.getClass().getName());
+            }
+            int tokenChild = ((BooleanToken) test).booleanValue() ? 1 : 2;
+            ptolemy.data.Token token = _children[tokenChild].evaluate(scope);
+
+            int typeChild = 3 - tokenChild;
+            Type type = _branchTypes[typeChild];
+            if (type == null) {
+                if (_typeInference == null) {
+                    _typeInference = new ParseTreeTypeInference();
+                }
+                type = _typeInference.inferTypes(
+                        (ASTPtRootNode) _node.jjtGetChild(typeChild), scope);
+            }
+            Type conversionType = type;
+            if (!type.equals(token.getType())) {
+                conversionType = (Type) TypeLattice.lattice()
+                        .leastUpperBound(type, token.getType());
+            }
+            return conversionType.convert(token);
+        }
+
+        private Type[] _branchTypes;
+
+        private CompiledExpression[] _children;
+
+        private ASTPtFunctionalIfNode _node;
+
+        private ParseTreeTypeInference _typeInference;
+    }
+
+    // An identifier, which is either in scope or a registered constant.
+    private static class IdentifierExpression implements CompiledExpression {
+        public IdentifierExpression(String name, CompiledExpression lookup) {
+            _name = name;
+            _lookup = lookup;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token value = _lookup.evaluate(scope);
+
+            // Pretend that we cannot resolve the name if it is an
+            // ObjectToken.
+            if (value == null || value instanceof ObjectToken) {
+                ptolemy.data.Token constant = Constants.get(_name);
+                if (constant != null) {
+                    value = constant;
+                }
+            }
+            if (value != null) {
+                return value;
+            }
+            throw new UndefinedConstantOrIdentifierException(_name);
+        }
+
+        private CompiledExpression _lookup;
+
+        private String _name;
+    }
+
+    // A node that is evaluated by a parse tree evaluator.
+    private static class InterpretedExpression implements CompiledExpression {
+        public InterpretedExpression(ASTPtRootNode node) {
+            _node = node;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            if (_evaluator == null) {
+                _evaluator = new ParseTreeEvaluator();
+            }
+            return _evaluator.evaluateParseTree(_node, scope);
+        }
+
+        private ParseTreeEvaluator _evaluator;
+
+        private ASTPtRootNode _node;
+    }
+
+    // A short-circuit logical AND or OR.
+    private static class LogicalExpression implements CompiledExpression {
+        public LogicalExpression(CompiledExpression[] operands, boolean isAnd) {
+            _operands = operands;
+            _isAnd = isAnd;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token result = null;
+            for (int i = 0; i < _operands.length; i++) {
+                ptolemy.data.Token nextToken = _operands[i].evaluate(scope);
+                if (result == null) {
+                    result = nextToken;
+                }
+                if (!(nextToken instanceof BooleanToken)) {
+                    throw new IllegalActionException("Cannot perform logical "
+                            + "operation on " + nextToken + " which is a "
+                            + result.getClass().getName());
+                }
+                if (_isAnd != ((BooleanToken) nextToken).booleanValue()) {
+                    // Note short-circuit eval.
+                    return BooleanToken.getInstance(!_isAnd);
+                }
+            }
+            return BooleanToken.getInstance(_isAnd);
+        }
+
+        private boolean _isAnd;
+
+        private CompiledExpression[] _operands;
+    }
+
+    // The construction of a matrix from its elements.
+    private static class MatrixConstructExpression implements
+            CompiledExpression {
+        public MatrixConstructExpression(CompiledExpression[] elements,
+                int rowCount, int columnCount) {
+            _elements = elements;
+            _rowCount = rowCount;
+            _columnCount = columnCount;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            return MatrixToken.arrayToMatrix(_evaluateAll(_elements, scope),
+                    _rowCount, _columnCount);
+        }
+
+        private int _columnCount;
+
+        private CompiledExpression[] _elements;
+
+        private int _rowCount;
+    }
+
+    // The application of a method, or the indexing of a record.
+    private static class MethodCallExpression implements CompiledExpression {
+        public MethodCallExpression(String methodName,
+                CompiledExpression[] arguments, ParseTreeEvaluator evaluator) {
+            _methodName = methodName;
+            _arguments = arguments;
+            _evaluator = evaluator;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token[] tokens = _evaluateAll(_arguments, scope);
+
+            // Handle indexing into a record.
+            if (tokens.length == 1 && tokens[0] instanceof RecordToken) {
+                RecordToken record = (RecordToken) tokens[0];
+                if (record.labelSet().contains(_methodName)) {
+                    return record.get(_methodName);
+                }
+            }
+
+            // The first argument is the object to invoke the method on.
+            // The invocation may convert the arguments in place, so they
+            // are copied into an array of objects.
+            Type[] argTypes = new Type[tokens.length];
+            Object[] argValues = new Object[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                argTypes[i] = tokens[i].getType();
+                argValues[i] = tokens[i];
+            }
+            return _evaluator._methodCall(_methodName, argTypes, argValues);
+        }
+
+        private CompiledExpression[] _arguments;
+
+        private ParseTreeEvaluator _evaluator;
+
+        private String _methodName;
+    }
+
+    // Exponentiation by integers.
+    private static class PowerExpression implements CompiledExpression {
+        public PowerExpression(CompiledExpression[] operands) {
+            _operands = operands;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token[] tokens = _evaluateAll(_operands, scope);
+            ptolemy.data.Token result = tokens[0];
+            for (int i = 1; i < tokens.length; i++) {
+                ptolemy.data.Token token = tokens[i];
+                if (!(token instanceof ScalarToken)) {
+                    throw new IllegalActionException(
+                            "Exponent must be ScalarToken and have a valid "
+                                    + "lossless conversion to integer. "
+                                    + "Integer, short or unsigned byte meet "
+                                    + "these criteria.\n"
+                                    + "Use pow(10, 3.5) for non-integer exponents");
+                }
+                int times;
+                try {
+                    times = ((ScalarToken) token).intValue();
+                } catch (IllegalActionException ex) {
+                    throw new IllegalActionException(
+                            "Exponent must have a valid "
+                                    + "lossless conversion to integer. "
+                                    + "Integer, short or unsigned byte meet "
+                                    + "these criteria.\n"
+                                    + "Use pow(10, 3.5) for non-integer exponents");
+                }
+                result = result.pow(times);
+            }
+            return result;
+        }
+
+        private CompiledExpression[] _operands;
+    }
+
+    // Multiplication, division and modulo.
+    private static class ProductExpression implements CompiledExpression {
+        public ProductExpression(CompiledExpression[] operands, int[] kinds) {
+            _operands = operands;
+            _kinds = kinds;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token[] tokens = _evaluateAll(_operands, scope);
+            ptolemy.data.Token result = tokens[0];
+            for (int i = 1; i < tokens.length; i++) {
+                int kind = _kinds[i - 1];
+                if (kind == PtParserConstants.MULTIPLY) {
+                    result = result.multiply(tokens[i]);
+                } else if (kind == PtParserConstants.DIVIDE) {
+                    result = result.divide(tokens[i]);
+                } else if (kind == PtParserConstants.MODULO) {
+                    result = result.modulo(tokens[i]);
+                } else {
+                    throw new InternalErrorException("Invalid operation");
+                }
+            }
+            return result;
+        }
+
+        private int[] _kinds;
+
+        private CompiledExpression[] _operands;
+    }
+
+    // The construction of a record.
+    private static class RecordConstructExpression implements
+            CompiledExpression {
+        public RecordConstructExpression(String[] labels,
+                CompiledExpression[] values, boolean isOrdered) {
+            _labels = labels;
+            _values = values;
+            _isOrdered = isOrdered;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token[] tokens = _evaluateAll(_values, scope);
+            if (_isOrdered) {
+                return new OrderedRecordToken(_labels, tokens);
+            }
+            return new RecordToken(_labels, tokens);
+        }
+
+        private boolean _isOrdered;
+
+        private String[] _labels;
+
+        private CompiledExpression[] _values;
+    }
+
+    // A comparison.
+    private static class RelationalExpression implements CompiledExpression {
+        public RelationalExpression(CompiledExpression[] operands,
+                Token operator) {
+            _left = operands[0];
+            _right = operands[1];
+            _operator = operator;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token leftToken = _left.evaluate(scope);
+            ptolemy.data.Token rightToken = _right.evaluate(scope);
+            int kind = _operator.kind;
+            if (kind == PtParserConstants.EQUALS) {
+                return leftToken.isEqualTo(rightToken);
+            } else if (kind == PtParserConstants.NOTEQUALS) {
+                return leftToken.isEqualTo(rightToken).not();
+            }
+            if (!((leftToken instanceof PartiallyOrderedToken) && (rightToken instanceof PartiallyOrderedToken))) {
+                throw new IllegalActionException("The " + _operator.image
+                        + " operator can only be applied on partial orders.");
+            }
+            PartiallyOrderedToken leftScalar = (PartiallyOrderedToken) leftToken;
+            PartiallyOrderedToken rightScalar = (PartiallyOrderedToken) rightToken;
+            if (kind == PtParserConstants.GTE) {
+                return rightScalar.isLessThan(leftScalar).or(
+                        leftToken.isEqualTo(rightToken));
+            } else if (kind == PtParserConstants.GT) {
+                return rightScalar.isLessThan(leftScalar);
+            } else if (kind == PtParserConstants.LTE) {
+                return leftScalar.isLessThan(rightScalar).or(
+                        leftToken.isEqualTo(rightToken));
+            } else if (kind == PtParserConstants.LT) {
+                return leftScalar.isLessThan(rightScalar);
+            }
+            throw new IllegalActionException("Invalid operation "
+                    + _operator.image + " between "
+                    + leftToken.getClass().getName() + " and "
+                    + rightToken.getClass().getName());
+        }
+
+        private CompiledExpression _left;
+
+        private Token _operator;
+
+        private CompiledExpression _right;
+    }
+
+    // The lookup of a name in the scope given to the evaluation.
+    private static class ScopeExpression implements CompiledExpression {
+        public ScopeExpression(String name) {
+            _name = name;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            if (scope == null) {
+                return null;
+            }
+            return scope.get(_name);
+        }
+
+        private String _name;
+    }
+
+    // A left shift or a right shift.
+    private static class ShiftExpression implements CompiledExpression {
+        public ShiftExpression(CompiledExpression[] operands, Token operator) {
+            _token = operands[0];
+            _bits = operands[1];
+            _operator = operator;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token token = _token.evaluate(scope);
+            ptolemy.data.Token bitsToken = _bits.evaluate(scope);
+            if (!(token instanceof ScalarToken)) {
+                throw new IllegalActionException("The " + _operator
+                        + " operator requires "
+                        + "the left operand to be a scalar.");
+            }
+            if (!(bitsToken instanceof ScalarToken)) {
+                throw new IllegalActionException("The " + _operator
+                        + " operator requires "
+                        + "the right operand to be a scalar.");
+            }
+            try {
+                int bits = ((ScalarToken) bitsToken).intValue();
+                if (_operator.kind == PtParserConstants.SHL) {
+                    return ((ScalarToken) token).leftShift(bits);
+                } else if (_operator.kind == PtParserConstants.SHR) {
+                    return ((ScalarToken) token).rightShift(bits);
+                } else {
+                    return ((ScalarToken) token).logicalRightShift(bits);
+                }
+            } catch (IllegalActionException ex) {
+                throw new IllegalActionException("The " + _operator
+                        + " operator requires "
+                        + "the right operand to have an integer value.");
+            }
+        }
+
+        private CompiledExpression _bits;
+
+        private Token _operator;
+
+        private CompiledExpression _token;
+    }
+
+    // Addition and subtraction.
+    private static class SumExpression implements CompiledExpression {
+        public SumExpression(CompiledExpression[] operands, int[] kinds) {
+            _operands = operands;
+            _kinds = kinds;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token[] tokens = _evaluateAll(_operands, scope);
+            ptolemy.data.Token result = tokens[0];
+            for (int i = 1; i < tokens.length; i++) {
+                int kind = _kinds[i - 1];
+                if (kind == PtParserConstants.PLUS) {
+                    result = result.add(tokens[i]);
+                } else if (kind == PtParserConstants.MINUS) {
+                    result = result.subtract(tokens[i]);
+                } else {
+                    throw new InternalErrorException("Invalid operation");
+                }
+            }
+            return result;
+        }
+
+        private int[] _kinds;
+
+        private CompiledExpression[] _operands;
+    }
+
+    // A negation, a logical not or a bitwise not.
+    private static class UnaryExpression implements CompiledExpression {
+        public UnaryExpression(CompiledExpression operand, int operator) {
+            _operand = operand;
+            _operator = operator;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token result = _operand.evaluate(scope);
+            if (_operator == _MINUS) {
+                return result.zero().subtract(result);
+            } else if (_operator == _NOT) {
+                if (result instanceof BooleanToken) {
+                    return ((BooleanToken) result).not();
+                }
+                throw new IllegalActionException(
+                        "Not operator not support for non-boolean token: "
+                                + result.toString());
+            }
+            if (!(result instanceof BitwiseOperationToken)) {
+                throw new IllegalActionException("Bitwise negation"
+                        + " not defined on " + result
+                        + " which does not support bitwise operations.");
+            }
+            return (ptolemy.data.Token) ((BitwiseOperationToken) result)
+                    .bitwiseNot();
+        }
+
+        private CompiledExpression _operand;
+
+        private int _operator;
+    }
+
+    // The construction of a union, whose value is the value of the
+    // first member.
+    private static class UnionConstructExpression implements
+            CompiledExpression {
+        public UnionConstructExpression(String label,
+                CompiledExpression[] values) {
+            _label = label;
+            _values = values;
+        }
+
+        public ptolemy.data.Token evaluate(ParserScope scope)
+                throws IllegalActionException {
+            ptolemy.data.Token[] tokens = _evaluateAll(_values, scope);
+            return new UnionToken(_label, tokens[0]);
+        }
+
+        private String _label;
+
+        private CompiledExpression[] _values;
+    }
+}
@@ -348,6 +348,8 @@ public class Variable extends AbstractSettableAttribute implements Typeable,
         }
 
         // _typeAtMost is preserved
+        newObject._compiledExpression = null;
+        newObject._evaluatedParseTree = null;
         newObject._parseTree = null;
         newObject._parseTreeValid = false;
 
@@ -1641,8 +1643,25 @@ public class Variable extends AbstractSettableAttribute implements Typeable,
                 _parserScope = new VariableScope();
             }
 
-            Token result = _parseTreeEvaluator.evaluateParseTree(_parseTree,
-                    _parserScope);
+            Token result;
+            if (_parseTree == _evaluatedParseTree
+                    && _parseTreeEvaluator.getClass() == ParseTreeEvaluator.class) {
+                // The expression is being evaluated again, for instance
+                // because a variable that it refers to has changed, so
+                // compile it. Most expressions are evaluated only once,
+                // so they are not compiled the first time.
+                if (_compiledExpression == null) {
+                    _compiledExpression = new ParseTreeCompiler()
+                            .compileParseTree(_parseTree);
+                }
+                result = _compiledExpression.evaluate(_parserScope);
+            } else {
+                _compiledExpression = null;
+                _evaluatedParseTree = null;
+                result = _parseTreeEvaluator.evaluateParseTree(_parseTree,
+                        _parserScope);
+                _evaluatedParseTree = _parseTree;
+            }
             _setTokenAndNotify(result);
         } catch (IllegalActionException ex) {
             _needsEvaluation = true;
@@ -2293,6 +2312,10 @@ public class Variable extends AbstractSettableAttribute implements Typeable,
     // Empty string token.
     private static StringToken _EMPTY_STRING_TOKEN = new StringToken("");
 
+    // The compiled expression of the parse tree that has been evaluated
+    // more than once, or null if there is none.
+    private CompiledExpression _compiledExpression;
+
     // Type constraints.
     private Set<Inequality> _constraints = new HashSet<Inequality>();
 
@@ -2303,6 +2326,10 @@ public class Variable extends AbstractSettableAttribute implements Typeable,
     // Used to check for dependency loops among variables.
     private transient boolean _dependencyLoop = false;
 
+    // The parse tree that was most recently evaluated, or null if there
+    // is none.
+    private ASTPtRootNode _evaluatedParseTree;
+
     // Stores the expression used to initialize this variable. It is null if
     // the first token placed in the variable is not the result of evaluating
     // an expression.
@@ -0,0 +1,142 @@
+# Tests for the ParseTreeCompiler class
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+# 
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+# 
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+# 
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+# 
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then { 
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+# Evaluate an expression with a ParseTreeEvaluator or with a
+# ParseTreeCompiler in the given scope, and return the result or
+# the error message.
+proc evaluateWith {expression compile scope} {
+    set parser [java::new ptolemy.data.expr.PtParser]
+    set root [$parser {generateParseTree String} $expression]
+    if {$compile} {
+        set compiler [java::new ptolemy.data.expr.ParseTreeCompiler]
+        set compiled [$compiler compileParseTree $root]
+        # Evaluate twice, so that values cached during the first
+        # evaluation are used.
+        catch {$compiled evaluate $scope}
+        if [catch {set value [$compiled evaluate $scope]} msg] {
+            return "Error: $msg"
+        }
+    } else {
+        set evaluator [java::new ptolemy.data.expr.ParseTreeEvaluator]
+        if [catch {set value [$evaluator evaluateParseTree $root $scope]} msg] {
+            return "Error: $msg"
+        }
+    }
+    return [$value toString]
+}
+
+# Return the compiled result of each expression whose result differs
+# from that of the ParseTreeEvaluator, or an empty list if there is none.
+proc compareAll {expressions {scope java0x0}} {
+    if {$scope == "java0x0"} {
+        set scope [java::null]
+    }
+    set results {}
+    foreach expression $expressions {
+        set interpreted [evaluateWith $expression 0 $scope]
+        set compiled [evaluateWith $expression 1 $scope]
+        if {$interpreted != $compiled} {
+            lappend results [list $expression $interpreted $compiled]
+        }
+    }
+    return $results
+}
+
+proc compile {expression} {
+    evaluateWith $expression 1 [java::null]
+}
+
+######################################################################
+####
+#
+test ParseTreeCompiler-1.1 {Test arithmetic} {
+    list [compile "2 + 3 * 4 - 6 / 2"] \
+	[compile "-(2 + (3) + 4*(3- 4 % 3)*(12/12))"] \
+	[compile "2.0 ^ 3"] \
+	[compile "(3 + 2i) ^ 3ub"] \
+	[compile "1 << 3"] \
+	[compile "true && !false || false"]
+} {11 -13 8.0 {-9.0 + 46.0i} 8 true}
+
+######################################################################
+####
+#
+test ParseTreeCompiler-1.2 {Compare with ParseTreeEvaluator} {
+    compareAll [list \
+	"2 + 3 + 4" "2 - 3 - 4" "7 % 5" "12 / 2 / 3" "2ub - 3ub - 4ub" \
+	"2.0 * 3.5 * 4.2" "7.1 % 5.5" "3.0 ^ -3" "(3 + 0i) ^ -3s" \
+	"1 + 2L" "1 + 0.5" "\"a\" + 1" "{1, 2} + {3, 4}" "{1, 2.5}" "{}" \
+	"\[1, 2; 3, 4\] * \[1; 1\]" "\[1:2:7\]" "{a = 1, b = 2.0}" \
+	"\[a = 1, b = 2\]" "{a = 1, b = 2}.b" "{|a = 1|}" \
+	"1 < 2" "2 <= 2" "3 > 4" "3 >= 4" "1 == 1.0" "1 != 2" \
+	"true && false" "false || true" "true && 1" "1 && true" \
+	"5 & 3" "5 | 3" "5 # 3" "~5" "-8 >> 1" "-8 >>> 1" "1 << 2.5" \
+	"true ? 1 : 2.0" "false ? 1 : 2.0" "1 ? 1 : 2" \
+	"sin(0.0)" "cos(PI)" "abs(-3)" "max({1, 5, 3})" "{1, 2, 3}(1)" \
+	"{1, 2, 3}(5)" "\[1, 2; 3, 4\](1, 0)" "1(0)" "1(0, 0)" "1(1)" \
+	"(function(x) x + 1)(2)" "function(x:int) x * 2" "eval(\"1 + 2\")" \
+	"fold(function(x, y) x + y, 0, {1, 2, 3})" "{1, 2}.length()" \
+	"\"abc\".length()" "!1" "undefinedIdentifier + 1" "1 / 0" \
+	"1.0 / 0.0" "PI * 2" "e" "i * i" "nosuchfunction(1)"]
+} {}
+
+######################################################################
+####
+#
+test ParseTreeCompiler-2.1 {Identifiers are looked up in the scope on each evaluation} {
+    set e [java::new ptolemy.kernel.util.NamedObj "e"]
+    set a [java::new ptolemy.data.expr.Parameter $e "a"]
+    $a setExpression "2"
+    set b [java::new ptolemy.data.expr.Parameter $e "b"]
+    $b setExpression "{1.5, 2.5}"
+    set c [java::new ptolemy.data.expr.Parameter $e "c"]
+    set scope [$c getParserScope]
+    set parser [java::new ptolemy.data.expr.PtParser]
+    set root [$parser {generateParseTree String} "a * b(1) + a"]
+    set compiler [java::new ptolemy.data.expr.ParseTreeCompiler]
+    set compiled [$compiler compileParseTree $root]
+    set r1 [[$compiled evaluate $scope] toString]
+    $a setExpression "3"
+    set r2 [[$compiled evaluate $scope] toString]
+    list $r1 $r2 [compareAll [list "a + b" "b(a - 2)" "a > 2 ? b : {0.0}" \
+	"c" "{a, a}" "\[a, 2\]" "-a"] $scope]
+} {7.0 10.5 {}}
@@ -0,0 +1,65 @@
+# Tests for the BooleanArrayToken class
+#
+# @Author: agent
+#
+# @Version $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+# 
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+# 
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+# 
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+# 
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then { 
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+######################################################################
+####
+# 
+test BooleanArrayToken-1.0 {Create an array of booleans} {
+    set values [java::new {boolean[]} 3 {true false true}]
+    set t1 [java::new {ptolemy.data.BooleanArrayToken boolean[]} $values]
+    set t2 [java::new {ptolemy.data.ArrayToken String} "{true, false, true}"]
+    list [$t1 toString] [[$t1 getType] toString] [$t1 getElementAt 1] \
+	[$t1 equals $t2] [$t2 equals $t1] [[$t1 isEqualTo $t2] toString]
+} {{{true, false, true}} arrayType(boolean,3) 0 1 1 true}
+
+######################################################################
+####
+# 
+test BooleanArrayToken-2.0 {Logical or and and} {
+    set values [java::new {boolean[]} 3 {false false true}]
+    set t3 [java::new {ptolemy.data.BooleanArrayToken boolean[]} $values]
+    set r1 [$t1 add $t3]
+    set r2 [$t1 multiply $t3]
+    set r3 [$t3 elementAdd [java::field ptolemy.data.BooleanToken TRUE]]
+    list [[$r1 getClass] getName] [$r1 toString] [$r2 toString] [$r3 toString]
+} {ptolemy.data.BooleanArrayToken {{true, false, true}} {{false, false, true}} {{true, true, true}}}
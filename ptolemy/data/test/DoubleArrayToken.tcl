@@ -0,0 +1,151 @@
+# Tests for the DoubleArrayToken class
+#
+# @Author: agent
+#
+# @Version $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+# 
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+# 
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+# 
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+# 
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then { 
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+######################################################################
+####
+# 
+test DoubleArrayToken-1.0 {Create an array of doubles} {
+    set values [java::new {double[]} 3 {1.0 2.5 -3.0}]
+    set t1 [java::new {ptolemy.data.DoubleArrayToken double[]} $values]
+    # Modifying the array does not modify the token.
+    $values set 0 100.0
+    list [$t1 toString] [[$t1 getType] toString] [$t1 length] \
+	[$t1 getElementAt 1] [[$t1 getElement 2] toString]
+} {{{1.0, 2.5, -3.0}} arrayType(double,3) 3 2.5 -3.0}
+
+######################################################################
+####
+# 
+test DoubleArrayToken-1.1 {Compare with an ArrayToken} {
+    set t2 [java::new {ptolemy.data.ArrayToken String} "{1.0, 2.5, -3.0}"]
+    set t3 [java::new {ptolemy.data.ArrayToken String} "{1.0, 2.5, -4.0}"]
+    list [$t1 equals $t2] [$t2 equals $t1] [$t1 equals $t3] \
+	[expr {[$t1 hashCode] == [$t2 hashCode]}] \
+	[[$t1 isEqualTo $t2] toString] [[$t2 isEqualTo $t1] toString] \
+	[[$t1 isCloseTo $t3 1.5] toString] [[$t1 getType] equals [$t2 getType]]
+} {1 1 0 1 true true true 1}
+
+######################################################################
+####
+# 
+test DoubleArrayToken-1.2 {ArrayToken.create} {
+    set elements [java::new {ptolemy.data.Token[]} 2 \
+	[list [java::new ptolemy.data.DoubleToken 1.0] \
+	     [java::new ptolemy.data.IntToken 2]]]
+    set t4 [java::call ptolemy.data.ArrayToken create \
+		[java::field ptolemy.data.type.BaseType DOUBLE] $elements]
+    set unit [java::new ptolemy.data.DoubleToken 1.0]
+    $unit setUnitCategory 0
+    $elements set 0 $unit
+    set t5 [java::call ptolemy.data.ArrayToken create \
+		[java::field ptolemy.data.type.BaseType DOUBLE] $elements]
+    list [[$t4 getClass] getName] [$t4 toString] [[$t5 getClass] getName]
+} {ptolemy.data.DoubleArrayToken {{1.0, 2.0}} ptolemy.data.ArrayToken}
+
+######################################################################
+####
+# 
+test DoubleArrayToken-2.0 {Arithmetic with arrays} {
+    set ints [java::new {int[]} 3 {1 2 3}]
+    set t6 [java::new {ptolemy.data.IntArrayToken int[]} $ints]
+    set r1 [$t1 add $t1]
+    set r2 [$t1 subtract $t6]
+    set r3 [$t1 multiply $t1]
+    set r4 [$t1 divide $t6]
+    set r5 [$t1 add $t2]
+    list [[$r1 getClass] getName] [$r1 toString] [$r2 toString] \
+	[$r3 toString] [$r4 toString] [[$r5 getClass] getName] [$r5 toString]
+} {ptolemy.data.DoubleArrayToken {{2.0, 5.0, -6.0}} {{0.0, 0.5, -6.0}} {{1.0, 6.25, 9.0}} {{1.0, 1.25, -1.0}} ptolemy.data.ArrayToken {{2.0, 5.0, -6.0}}}
+
+######################################################################
+####
+# 
+test DoubleArrayToken-2.1 {Arithmetic with scalars} {
+    set two [java::new ptolemy.data.DoubleToken 2.0]
+    set three [java::new ptolemy.data.IntToken 3]
+    set r1 [$t1 multiply $two]
+    set r2 [$two multiply $t1]
+    set r3 [$t1 subtract $three]
+    set r4 [$three subtract $t1]
+    set r5 [$t1 elementAdd $two]
+    set r6 [$two divide $t1]
+    list [[$r1 getClass] getName] [$r1 toString] [$r2 toString] \
+	[$r3 toString] [$r4 toString] [$r5 toString] [$r6 toString]
+} {ptolemy.data.DoubleArrayToken {{2.0, 5.0, -6.0}} {{2.0, 5.0, -6.0}} {{-2.0, -0.5, -6.0}} {{2.0, 0.5, 6.0}} {{3.0, 4.5, -1.0}} {{2.0, 0.8, -0.6666666666667}}}
+
+######################################################################
+####
+# 
+test DoubleArrayToken-2.2 {Arithmetic that is done by the base class} {
+    # The scalar has units, so the result has to be an ArrayToken.
+    set r1 [$t1 multiply $unit]
+    # Arrays of different lengths.
+    set one [java::new {ptolemy.data.ArrayToken String} "{2.0}"]
+    set r2 [$t1 multiply $one]
+    catch {$t1 add [$t1 subarray 1]} errMsg
+    list [[$r1 getClass] getName] [[$r2 getClass] getName] [$r2 toString] \
+	$errMsg
+} {ptolemy.data.ArrayToken ptolemy.data.ArrayToken {{2.0, 5.0, -6.0}} {ptolemy.kernel.util.IllegalActionException: add operation not supported between ptolemy.data.DoubleArrayToken '{1.0, 2.5, -3.0}' and ptolemy.data.DoubleArrayToken '{2.5, -3.0}'
+Because:
+The length of the argument (2) is not the same as the length of this token (3).}}
+
+######################################################################
+####
+# 
+test DoubleArrayToken-3.0 {append, reverse, subarray, zero, one} {
+    set r1 [$t1 append $t1]
+    set r2 [$t1 append $t2]
+    list [[$r1 getClass] getName] [$r1 toString] [[$r2 getClass] getName] \
+	[[$t1 reverse] toString] [[$t1 subarray 1 5] toString] \
+	[[$t1 subarray 4] toString] [[$t1 zero] toString] [[$t1 one] toString]
+} {ptolemy.data.DoubleArrayToken {{1.0, 2.5, -3.0, 1.0, 2.5, -3.0}} ptolemy.data.ArrayToken {{-3.0, 2.5, 1.0}} {{2.5, -3.0}} {{}} {{0.0, 0.0, 0.0}} {{1.0, 1.0, 1.0}}}
+
+######################################################################
+####
+# 
+test DoubleArrayToken-3.1 {convert an IntArrayToken} {
+    set type [java::new ptolemy.data.type.ArrayType \
+		  [java::field ptolemy.data.type.BaseType DOUBLE]]
+    set r1 [$type convert $t6]
+    list [[$r1 getClass] getName] [$r1 toString]
+} {ptolemy.data.DoubleArrayToken {{1.0, 2.0, 3.0}}}
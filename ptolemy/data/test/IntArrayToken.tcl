@@ -0,0 +1,78 @@
+# Tests for the IntArrayToken class
+#
+# @Author: agent
+#
+# @Version $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+# 
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+# 
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+# 
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+# 
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then { 
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+######################################################################
+####
+# 
+test IntArrayToken-1.0 {Create an array of ints} {
+    set values [java::new {int[]} 3 {4 -6 7}]
+    set t1 [java::new {ptolemy.data.IntArrayToken int[]} $values]
+    set t2 [java::new {ptolemy.data.ArrayToken String} "{4, -6, 7}"]
+    list [$t1 toString] [[$t1 getType] toString] [$t1 getElementAt 1] \
+	[$t1 equals $t2] [$t2 equals $t1] [[$t1 isEqualTo $t2] toString]
+} {{{4, -6, 7}} arrayType(int,3) -6 1 1 true}
+
+######################################################################
+####
+# 
+test IntArrayToken-2.0 {Arithmetic} {
+    set two [java::new ptolemy.data.IntToken 2]
+    set r1 [$t1 add $t1]
+    set r2 [$t1 divide $two]
+    set r3 [$t1 modulo $two]
+    set r4 [$two subtract $t1]
+    set r5 [$t1 elementMultiply $two]
+    list [[$r1 getClass] getName] [$r1 toString] [$r2 toString] \
+	[$r3 toString] [$r4 toString] [$r5 toString]
+} {ptolemy.data.IntArrayToken {{8, -12, 14}} {{2, -3, 3}} {{0, 0, 1}} {{-2, 8, -5}} {{8, -12, 14}}}
+
+######################################################################
+####
+# 
+test IntArrayToken-2.1 {Arithmetic that is done by the base class} {
+    set zero [java::new ptolemy.data.IntToken 0]
+    set half [java::new ptolemy.data.DoubleToken 0.5]
+    set r1 [$t1 multiply $half]
+    catch {$t1 divide $zero} errMsg
+    list [[$r1 getClass] getName] [$r1 toString] $errMsg
+} {ptolemy.data.ArrayToken {{2.0, -3.0, 3.5}} {java.lang.ArithmeticException: / by zero}}
@@ -0,0 +1,70 @@
+# Tests for the LongArrayToken class
+#
+# @Author: agent
+#
+# @Version $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+# 
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+# 
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+# 
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+# 
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then { 
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+######################################################################
+####
+# 
+test LongArrayToken-1.0 {Create an array of longs} {
+    set values [java::new {long[]} 3 {4 -6 7}]
+    set t1 [java::new {ptolemy.data.LongArrayToken long[]} $values]
+    set t2 [java::new {ptolemy.data.ArrayToken String} "{4L, -6L, 7L}"]
+    list [$t1 toString] [[$t1 getType] toString] \
+	[$t1 equals $t2] [$t2 equals $t1] [[$t1 isEqualTo $t2] toString]
+} {{{4L, -6L, 7L}} arrayType(long,3) 1 1 true}
+
+######################################################################
+####
+# 
+test LongArrayToken-2.0 {Arithmetic with longs and ints} {
+    set ints [java::new {int[]} 3 {1 2 3}]
+    set t3 [java::new {ptolemy.data.IntArrayToken int[]} $ints]
+    set three [java::new ptolemy.data.IntToken 3]
+    set r1 [$t1 subtract $t3]
+    set r2 [$t1 multiply $three]
+    set r3 [$t1 divide [java::new ptolemy.data.LongToken 2]]
+    set type [java::new ptolemy.data.type.ArrayType \
+		  [java::field ptolemy.data.type.BaseType LONG]]
+    set r4 [$type convert $t3]
+    list [[$r1 getClass] getName] [$r1 toString] [$r2 toString] \
+	[$r3 toString] [[$r4 getClass] getName] [$r4 toString]
+} {ptolemy.data.LongArrayToken {{3L, -8L, 4L}} {{12L, -18L, 21L}} {{2L, -3L, 3L}} ptolemy.data.LongArrayToken {{1L, 2L, 3L}}}
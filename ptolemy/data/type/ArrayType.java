@@ -30,6 +30,10 @@ package ptolemy.data.type;
 import java.io.Serializable;
 
 import ptolemy.data.ArrayToken;
+import ptolemy.data.DoubleArrayToken;
+import ptolemy.data.IntArrayToken;
+import ptolemy.data.LongArrayToken;
+import ptolemy.data.MatrixToken;
 import ptolemy.data.Token;
 import ptolemy.graph.InequalityTerm;
 import ptolemy.kernel.util.IllegalActionException;
@@ -189,6 +193,25 @@ public class ArrayType extends StructuredType implements Cloneable,
             return token;
         }
 
+        if (argumentArrayToken instanceof IntArrayToken
+                && argumentArrayToken.length() > 0) {
+            // Widen the ints directly rather than one token at a time.
+            IntArrayToken intArrayToken = (IntArrayToken) argumentArrayToken;
+            if (myElementType.equals(BaseType.DOUBLE)) {
+                double[] result = new double[intArrayToken.length()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = intArrayToken.getElementAt(i);
+                }
+                return new DoubleArrayToken(result, MatrixToken.DO_NOT_COPY);
+            } else if (myElementType.equals(BaseType.LONG)) {
+                long[] result = new long[intArrayToken.length()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = intArrayToken.getElementAt(i);
+                }
+                return new LongArrayToken(result, MatrixToken.DO_NOT_COPY);
+            }
+        }
+
         Token[] argumentArray = argumentArrayToken.arrayValue();
         Token[] resultArray = new Token[argumentArray.length];
 
@@ -256,93 +256,30 @@ public class TypeLattice {
          *   are not instances of Type.
          */
         public int compare(Object t1, Object t2) {
-            synchronized (TypeLattice.class) {
-                if (!(t1 instanceof Type) || !(t2 instanceof Type)) {
-                    throw new IllegalArgumentException(
-                            "TheTypeLattice.compare: "
-                                    + "Arguments are not instances of Type: "
-                                    + " type1 = " + t1 + ", type2 = " + t2);
-                }
-
-                Type ct1 = (Type) t1;
-                Type ct2 = (Type) t2;
-
-                Type t1Rep = _toRepresentative(ct1);
-                Type t2Rep = _toRepresentative(ct2);
-
-                if (t1Rep.equals(t2Rep) && t1Rep instanceof StructuredType) {
-                    return ((StructuredType) t1)._compare((StructuredType) t2);
-                } else if (t1Rep instanceof ArrayType
-                        && !(t2Rep instanceof ArrayType)
-                        && !t2.equals(BaseType.UNKNOWN)
-                        && !t2.equals(BaseType.GENERAL)
-                        && !t2.equals(BaseType.ARRAY_BOTTOM)) {
-                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
-                    ArrayType arrayType = (ArrayType) t1;
-                    if (arrayType.hasKnownLength() && arrayType.length() != 1
-                            && !t2.equals(BaseType.GENERAL)) {
-                        // If we have a Const with {1,2,3} -> Display
-                        // then we used to fail here.
-                        return INCOMPARABLE;
-                    }
-                    int elementComparison = compare(
-                            ((ArrayType) ct1).getElementType(), t2Rep);
-                    if (elementComparison == SAME
-                            || elementComparison == HIGHER) {
-                        return HIGHER;
-                    } else {
-                        if (t2Rep == BaseType.GENERAL) {
-                            return LOWER;
-                        } else {
-                            return INCOMPARABLE;
+            // The result of comparing two types that have a type hash
+            // is cached. The cache is read without synchronization so
+            // that type resolution in several threads does not contend
+            // for the lock. An entry that is not yet visible to this
+            // thread is computed again while holding the lock.
+            if ((t1 instanceof Type) && (t2 instanceof Type)) {
+                int i1 = ((Type) t1).getTypeHash();
+                int i2 = ((Type) t2).getTypeHash();
+
+                if ((i1 != Type.HASH_INVALID) && (i2 != Type.HASH_INVALID)) {
+                    int result = _getCachedTypeComparisonResult(i1, i2);
+
+                    if (result == Type.HASH_INVALID) {
+                        synchronized (TypeLattice.class) {
+                            result = _compare(t1, t2);
+                            _setCachedTypeComparisonResult(i1, i2, result);
                         }
                     }
-                } else if (t2Rep instanceof ArrayType
-                        && !(t1Rep instanceof ArrayType)
-                        && !t1.equals(BaseType.UNKNOWN)
-                        && !t1.equals(BaseType.GENERAL)
-                        && !t1.equals(BaseType.ARRAY_BOTTOM)) {
-                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
-                    ArrayType arrayType = (ArrayType) t2;
-                    if (arrayType.hasKnownLength() && arrayType.length() != 1
-                            && !t1.equals(BaseType.GENERAL)) {
-                        return INCOMPARABLE;
-                    }
-                    int elementComparison = compare(
-                            ((ArrayType) ct2).getElementType(), t1Rep);
-                    if (elementComparison == SAME
-                            || elementComparison == HIGHER) {
-                        return LOWER;
-                    } else {
-                        if (t1Rep == BaseType.GENERAL) {
-                            return HIGHER;
-                        } else {
-                            return INCOMPARABLE;
-                        }
-                    }
-                } else if (_basicLattice.containsNodeWeight(t1Rep)
-                        && _basicLattice.containsNodeWeight(t2Rep)) {
-                    // Both are neither the same structured type, nor an array
-                    // and non-array pair, so their type relation is defined
-                    // by the basic lattice.
-                    return _basicLattice.compare(t1Rep, t2Rep);
-                } else {
-                    // Both arguments are not the same structured type, and
-                    // at least one is user defined, so their relation is
-                    // rather simple.
-                    if (t1Rep.equals(t2Rep)) {
-                        return SAME;
-                    } else if ((t1Rep == BaseType.UNKNOWN)
-                            || (t2Rep == BaseType.GENERAL)) {
-                        return LOWER;
-                    } else if ((t2Rep == BaseType.UNKNOWN)
-                            || (t1Rep == BaseType.GENERAL)) {
-                        return HIGHER;
-                    } else {
-                        return INCOMPARABLE;
-                    }
+
+                    return result;
                 }
             }
+
+            return _compare(t1, t2);
         }
 
         /** Throw an exception. This operation is not supported since the
@@ -587,132 +524,34 @@ public class TypeLattice {
          *  @return an instance of Type.
          */
         public Object leastUpperBound(Object t1, Object t2) {
-            synchronized (TypeLattice.class) {
-                if (!(t1 instanceof Type) || !(t2 instanceof Type)) {
-                    throw new IllegalArgumentException(
-                            "TheTypeLattice.leastUpperBound: "
-                                    + "Arguments are not instances of Type.");
-                }
-
-                // System.out.println("LUB of " + t1 + " and " + t2);
-                Type ct1 = (Type) t1;
-                Type ct2 = (Type) t2;
-
-                Type t1Rep = _toRepresentative(ct1);
-                Type t2Rep = _toRepresentative(ct2);
-
-                if (t1Rep.equals(t2Rep) && t1Rep instanceof StructuredType) {
-                    return ((StructuredType) t1)
-                            ._leastUpperBound((StructuredType) t2);
-                } else if (t1Rep instanceof ArrayType
-                        && !(t2Rep instanceof ArrayType)
-                        && !t2.equals(BaseType.UNKNOWN)
-                        && !t2.equals(BaseType.GENERAL)
-                        && !t2.equals(BaseType.ARRAY_BOTTOM)) {
-                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
-                    ArrayType arrayType = (ArrayType) t1;
-                    Type elementType = ((ArrayType) ct1).getElementType();
-                    int elementComparison = compare(elementType, t2Rep);
-                    if (elementComparison == SAME
-                            || elementComparison == HIGHER) {
-                        if (arrayType.hasKnownLength()
-                                && arrayType.length() != 1) {
-                            // Least upper bound is unsized type.
-                            return new ArrayType(elementType);
-                        } else {
-                            return t1;
-                        }
-                    } else {
-                        if (t2Rep == BaseType.GENERAL) {
-                            return t2;
-                        } else {
-                            // INCOMPARABLE
-                            if (_basicLattice.containsNodeWeight(t2Rep)
-                                    && _basicLattice
-                                            .containsNodeWeight(elementType)) {
-                                // The least upper bound is an array of the LUB
-                                // of t2Rep and the element type of t1.
-                                return new ArrayType(
-                                        (Type) _basicLattice.leastUpperBound(
-                                                elementType, t2Rep));
-                            } else {
-                                // t2 is a user type (has no representative in the
-                                // basic lattice). Arrays of this type are not supported.
-                                return BaseType.GENERAL;
-                            }
-                        }
-                    }
-                } else if (t2Rep instanceof ArrayType
-                        && !(t1Rep instanceof ArrayType)
-                        && !t1.equals(BaseType.UNKNOWN)
-                        && !t1.equals(BaseType.GENERAL)
-                        && !t1.equals(BaseType.ARRAY_BOTTOM)) {
-                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
-                    ArrayType arrayType = (ArrayType) t2;
-                    Type elementType = ((ArrayType) ct2).getElementType();
-                    int elementComparison = compare(elementType, t1Rep);
-                    if (elementComparison == SAME
-                            || elementComparison == HIGHER) {
-                        if (arrayType.hasKnownLength()
-                                && arrayType.length() != 1) {
-                            // Least upper bound is unsized type.
-                            return new ArrayType(elementType);
-                        } else {
-                            return t2;
-                        }
-                    } else {
-                        if (t1Rep == BaseType.GENERAL) {
-                            return t1;
-                        } else {
-                            // INCOMPARABLE
-                            if (_basicLattice.containsNodeWeight(t1Rep)
-                                    && _basicLattice
-                                            .containsNodeWeight(elementType)) {
-                                // The least upper bound is an array of the LUB
-                                // of t2Rep and the element type of t1.
-                                return new ArrayType(
-                                        (Type) _basicLattice.leastUpperBound(
-                                                elementType, t1Rep));
-                            } else {
-                                // t1 is a user type (has no representative in the
-                                // basic lattice). Arrays of this type are not supported.
-                                return BaseType.GENERAL;
+            // As in compare(), the least upper bound of two types that
+            // have a type hash is cached and read without synchronization.
+            if ((t1 instanceof Type) && (t2 instanceof Type)) {
+                int i1 = ((Type) t1).getTypeHash();
+                int i2 = ((Type) t2).getTypeHash();
+
+                if ((i1 != Type.HASH_INVALID) && (i2 != Type.HASH_INVALID)) {
+                    Type result = _leastUpperBoundCache[i1][i2];
+
+                    if (result == null) {
+                        synchronized (TypeLattice.class) {
+                            result = (Type) _leastUpperBound(t1, t2);
+
+                            // Only types that have a type hash are shared,
+                            // other types may be modified by the caller.
+                            if (result.getTypeHash() == Type.HASH_INVALID) {
+                                return result;
                             }
+
+                            _leastUpperBoundCache[i1][i2] = result;
                         }
                     }
-                } else if (_basicLattice.containsNodeWeight(t1Rep)
-                        && _basicLattice.containsNodeWeight(t2Rep)) {
-                    // Both are neither the same structured type, nor an array
-                    // and non-array pair, so their type relation is defined
-                    // by the basic lattice.
-                    int relation = _basicLattice.compare(t1Rep, t2Rep);
 
-                    if (relation == SAME) {
-                        return t1;
-                    } else if (relation == LOWER) {
-                        return t2;
-                    } else if (relation == HIGHER) {
-                        return t1;
-                    } else { // INCOMPARABLE
-                        return _basicLattice.leastUpperBound(t1Rep, t2Rep);
-                    }
-                } else {
-                    // Both arguments are not the same structured type, and
-                    // at least one is user defined, so their relation is
-                    // rather simple.
-                    if (t1Rep.equals(t2Rep)) {
-                        return t1;
-                    } else if ((t1Rep == BaseType.UNKNOWN)
-                            || (t2Rep == BaseType.GENERAL)) {
-                        return t2;
-                    } else if ((t2Rep == BaseType.UNKNOWN)
-                            || (t1Rep == BaseType.GENERAL)) {
-                        return t1;
-                    } else {
-                        return top();
-                    }
+                    return result;
                 }
             }
+
+            return _leastUpperBound(t1, t2);
         }
 
         /** Return the least upper bound of a subset.
@@ -904,6 +743,227 @@ public class TypeLattice {
 
         ///////////////////////////////////////////////////////////////
         ////                      private methods                  ////
+        // Compare two types without using the cache.
+        private int _compare(Object t1, Object t2) {
+            synchronized (TypeLattice.class) {
+                if (!(t1 instanceof Type) || !(t2 instanceof Type)) {
+                    throw new IllegalArgumentException(
+                            "TheTypeLattice.compare: "
+                                    + "Arguments are not instances of Type: "
+                                    + " type1 = " + t1 + ", type2 = " + t2);
+                }
+
+                Type ct1 = (Type) t1;
+                Type ct2 = (Type) t2;
+
+                Type t1Rep = _toRepresentative(ct1);
+                Type t2Rep = _toRepresentative(ct2);
+
+                if (t1Rep.equals(t2Rep) && t1Rep instanceof StructuredType) {
+                    return ((StructuredType) t1)._compare((StructuredType) t2);
+                } else if (t1Rep instanceof ArrayType
+                        && !(t2Rep instanceof ArrayType)
+                        && !t2.equals(BaseType.UNKNOWN)
+                        && !t2.equals(BaseType.GENERAL)
+                        && !t2.equals(BaseType.ARRAY_BOTTOM)) {
+                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
+                    ArrayType arrayType = (ArrayType) t1;
+                    if (arrayType.hasKnownLength() && arrayType.length() != 1
+                            && !t2.equals(BaseType.GENERAL)) {
+                        // If we have a Const with {1,2,3} -> Display
+                        // then we used to fail here.
+                        return INCOMPARABLE;
+                    }
+                    int elementComparison = compare(
+                            ((ArrayType) ct1).getElementType(), t2Rep);
+                    if (elementComparison == SAME
+                            || elementComparison == HIGHER) {
+                        return HIGHER;
+                    } else {
+                        if (t2Rep == BaseType.GENERAL) {
+                            return LOWER;
+                        } else {
+                            return INCOMPARABLE;
+                        }
+                    }
+                } else if (t2Rep instanceof ArrayType
+                        && !(t1Rep instanceof ArrayType)
+                        && !t1.equals(BaseType.UNKNOWN)
+                        && !t1.equals(BaseType.GENERAL)
+                        && !t1.equals(BaseType.ARRAY_BOTTOM)) {
+                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
+                    ArrayType arrayType = (ArrayType) t2;
+                    if (arrayType.hasKnownLength() && arrayType.length() != 1
+                            && !t1.equals(BaseType.GENERAL)) {
+                        return INCOMPARABLE;
+                    }
+                    int elementComparison = compare(
+                            ((ArrayType) ct2).getElementType(), t1Rep);
+                    if (elementComparison == SAME
+                            || elementComparison == HIGHER) {
+                        return LOWER;
+                    } else {
+                        if (t1Rep == BaseType.GENERAL) {
+                            return HIGHER;
+                        } else {
+                            return INCOMPARABLE;
+                        }
+                    }
+                } else if (_basicLattice.containsNodeWeight(t1Rep)
+                        && _basicLattice.containsNodeWeight(t2Rep)) {
+                    // Both are neither the same structured type, nor an array
+                    // and non-array pair, so their type relation is defined
+                    // by the basic lattice.
+                    return _basicLattice.compare(t1Rep, t2Rep);
+                } else {
+                    // Both arguments are not the same structured type, and
+                    // at least one is user defined, so their relation is
+                    // rather simple.
+                    if (t1Rep.equals(t2Rep)) {
+                        return SAME;
+                    } else if ((t1Rep == BaseType.UNKNOWN)
+                            || (t2Rep == BaseType.GENERAL)) {
+                        return LOWER;
+                    } else if ((t2Rep == BaseType.UNKNOWN)
+                            || (t1Rep == BaseType.GENERAL)) {
+                        return HIGHER;
+                    } else {
+                        return INCOMPARABLE;
+                    }
+                }
+            }
+        }
+
+        // Return the least upper bound of two types without using the cache.
+        private Object _leastUpperBound(Object t1, Object t2) {
+            synchronized (TypeLattice.class) {
+                if (!(t1 instanceof Type) || !(t2 instanceof Type)) {
+                    throw new IllegalArgumentException(
+                            "TheTypeLattice.leastUpperBound: "
+                                    + "Arguments are not instances of Type.");
+                }
+
+                // System.out.println("LUB of " + t1 + " and " + t2);
+                Type ct1 = (Type) t1;
+                Type ct2 = (Type) t2;
+
+                Type t1Rep = _toRepresentative(ct1);
+                Type t2Rep = _toRepresentative(ct2);
+
+                if (t1Rep.equals(t2Rep) && t1Rep instanceof StructuredType) {
+                    return ((StructuredType) t1)
+                            ._leastUpperBound((StructuredType) t2);
+                } else if (t1Rep instanceof ArrayType
+                        && !(t2Rep instanceof ArrayType)
+                        && !t2.equals(BaseType.UNKNOWN)
+                        && !t2.equals(BaseType.GENERAL)
+                        && !t2.equals(BaseType.ARRAY_BOTTOM)) {
+                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
+                    ArrayType arrayType = (ArrayType) t1;
+                    Type elementType = ((ArrayType) ct1).getElementType();
+                    int elementComparison = compare(elementType, t2Rep);
+                    if (elementComparison == SAME
+                            || elementComparison == HIGHER) {
+                        if (arrayType.hasKnownLength()
+                                && arrayType.length() != 1) {
+                            // Least upper bound is unsized type.
+                            return new ArrayType(elementType);
+                        } else {
+                            return t1;
+                        }
+                    } else {
+                        if (t2Rep == BaseType.GENERAL) {
+                            return t2;
+                        } else {
+                            // INCOMPARABLE
+                            if (_basicLattice.containsNodeWeight(t2Rep)
+                                    && _basicLattice
+                                            .containsNodeWeight(elementType)) {
+                                // The least upper bound is an array of the LUB
+                                // of t2Rep and the element type of t1.
+                                return new ArrayType(
+                                        (Type) _basicLattice.leastUpperBound(
+                                                elementType, t2Rep));
+                            } else {
+                                // t2 is a user type (has no representative in the
+                                // basic lattice). Arrays of this type are not supported.
+                                return BaseType.GENERAL;
+                            }
+                        }
+                    }
+                } else if (t2Rep instanceof ArrayType
+                        && !(t1Rep instanceof ArrayType)
+                        && !t1.equals(BaseType.UNKNOWN)
+                        && !t1.equals(BaseType.GENERAL)
+                        && !t1.equals(BaseType.ARRAY_BOTTOM)) {
+                    // NOTE: Added by EAL, 7/16/06, to make scalar < {scalar}
+                    ArrayType arrayType = (ArrayType) t2;
+                    Type elementType = ((ArrayType) ct2).getElementType();
+                    int elementComparison = compare(elementType, t1Rep);
+                    if (elementComparison == SAME
+                            || elementComparison == HIGHER) {
+                        if (arrayType.hasKnownLength()
+                                && arrayType.length() != 1) {
+                            // Least upper bound is unsized type.
+                            return new ArrayType(elementType);
+                        } else {
+                            return t2;
+                        }
+                    } else {
+                        if (t1Rep == BaseType.GENERAL) {
+                            return t1;
+                        } else {
+                            // INCOMPARABLE
+                            if (_basicLattice.containsNodeWeight(t1Rep)
+                                    && _basicLattice
+                                            .containsNodeWeight(elementType)) {
+                                // The least upper bound is an array of the LUB
+                                // of t2Rep and the element type of t1.
+                                return new ArrayType(
+                                        (Type) _basicLattice.leastUpperBound(
+                                                elementType, t1Rep));
+                            } else {
+                                // t1 is a user type (has no representative in the
+                                // basic lattice). Arrays of this type are not supported.
+                                return BaseType.GENERAL;
+                            }
+                        }
+                    }
+                } else if (_basicLattice.containsNodeWeight(t1Rep)
+                        && _basicLattice.containsNodeWeight(t2Rep)) {
+                    // Both are neither the same structured type, nor an array
+                    // and non-array pair, so their type relation is defined
+                    // by the basic lattice.
+                    int relation = _basicLattice.compare(t1Rep, t2Rep);
+
+                    if (relation == SAME) {
+                        return t1;
+                    } else if (relation == LOWER) {
+                        return t2;
+                    } else if (relation == HIGHER) {
+                        return t1;
+                    } else { // INCOMPARABLE
+                        return _basicLattice.leastUpperBound(t1Rep, t2Rep);
+                    }
+                } else {
+                    // Both arguments are not the same structured type, and
+                    // at least one is user defined, so their relation is
+                    // rather simple.
+                    if (t1Rep.equals(t2Rep)) {
+                        return t1;
+                    } else if ((t1Rep == BaseType.UNKNOWN)
+                            || (t2Rep == BaseType.GENERAL)) {
+                        return t2;
+                    } else if ((t2Rep == BaseType.UNKNOWN)
+                            || (t1Rep == BaseType.GENERAL)) {
+                        return t1;
+                    } else {
+                        return top();
+                    }
+                }
+            }
+        }
+
         // If the argument is a structured type, return its representative;
         // otherwise, return the argument. In the latter case, the argument
         // is either a base type or a user defined type that is not a
@@ -930,9 +990,13 @@ public class TypeLattice {
     /** The result cache for parts of the type lattice. */
     private static int[][] _compareCache;
 
+    /** The cache of least upper bounds of types that have a type hash. */
+    private static Type[][] _leastUpperBoundCache;
+
     static {
         synchronized (TypeLattice.class) {
             _compareCache = new int[Type.HASH_MAX + 1][Type.HASH_MAX + 1];
+            _leastUpperBoundCache = new Type[Type.HASH_MAX + 1][Type.HASH_MAX + 1];
 
             for (int i = 0; i <= Type.HASH_MAX; i++) {
                 for (int j = 0; j <= Type.HASH_MAX; j++) {
@@ -44,6 +44,7 @@ import ptolemy.actor.util.GeneralComparator;
 import ptolemy.actor.util.SuperdenseTime;
 import ptolemy.actor.util.Time;
 import ptolemy.actor.util.TotallyOrderedSet;
+import ptolemy.data.BooleanToken;
 import ptolemy.data.DoubleToken;
 import ptolemy.data.IntToken;
 import ptolemy.data.expr.Parameter;
@@ -153,9 +154,11 @@ import ptolemy.kernel.util.Workspace;
  ODE solver can use to resolve the states of integrators.
  Implicit solvers, for example, iterate until they converge,
  and this parameter bounds the number of iterations.
- An example of an implicit solver is the BackwardsEuler solver.
- The default value is 20, and the type is int.
- FIXME: Currently, this package implements no implicit solvers.</li>
+ The linearly implicit ImplicitRosenbrock2Solver uses a round
+ for each group of states that it perturbs to estimate the Jacobian,
+ and it spreads that estimation over several integration steps
+ if this parameter does not allow it to be done in one.
+ The default value is 20, and the type is int.</li>
 
  <li> <i>ODESolver</i>:
  The class name of the ODE solver used for integration.
@@ -164,6 +167,9 @@ import ptolemy.kernel.util.Workspace;
  The "ExplicitRK45Solver" may be more efficient in that it can
  use larger step sizes, but the resulting signals when displayed
  may be more jagged in appearance.
+ The "ImplicitRosenbrock2Solver" is a linearly implicit solver for
+ stiff systems, where the explicit solvers are forced to take
+ step sizes much smaller than accuracy requires.
  Solvers are all required to be in package
  "ptolemy.domains.continuous.kernel.solver".
  If there is another ContinuousDirector above this one
@@ -192,6 +198,19 @@ import ptolemy.kernel.util.Workspace;
  execution. The fireAt method may also be requested by actors and the
  requested firing time will be inserted into the breakpoint table.</p>
  <p>
+ Breakpoints that cannot be predicted, such as level crossings and
+ guards of modal models that become enabled, are found by step size
+ control actors, which report that a step is not accurate and refine
+ the step size until the event is within <i>errorTolerance</i>.
+ By default, the step is rolled back and repeated with the refined
+ step size. If <i>denseOutputEventLocation</i> is true and the
+ integrators report that the step is accurate, then the step is not
+ repeated. Instead, the states of the integrators are set to the
+ dense output of the ODE solver at the refined step size, and the
+ model is evaluated once at that time. This repeats until the event
+ is located, so each refinement costs one round instead of a complete
+ integration step.</p>
+ <p>
  This director is designed to work with any other director that
  implements the strict actor semantics. As long as the other director does
  not commit state changes except in postfire(), that director
@@ -231,12 +250,25 @@ public class ContinuousDirector extends FixedPointDirector implements
         super(container, name);
         _initParameters();
         setScheduler(new ContinuousScheduler(this, "scheduler"));
-        _zeroTime = new Time(this, 0.0);
     }
 
     ///////////////////////////////////////////////////////////////////
     ////                         parameters                        ////
 
+    /** If true, then events that are detected within an accurate
+     *  integration step are located by evaluating the model at the
+     *  dense output of the ODE solver, rather than by repeating the
+     *  integration step with a smaller step size. The times at which
+     *  events are located may differ slightly, within
+     *  <i>errorTolerance</i>, and actors that react to every round of
+     *  the solver see fewer rounds. The default value is false, and
+     *  the type is boolean. If there is another ContinuousDirector
+     *  above this one in the hierarchy, then the value of this
+     *  parameter is ignored and the value given by the other
+     *  ContinuousDirector is used.
+     */
+    public Parameter denseOutputEventLocation;
+
     /** Error tolerance for data values, used with variable step
      *  size solvers to determine whether the current step size is accurate.
      *  The default value is 1e-4, and the type is double.
@@ -320,7 +352,10 @@ public class ContinuousDirector extends FixedPointDirector implements
             _debug("attributeChanged: Updating ContinuousDirector parameter: "
                     + attribute.getName());
         }
-        if (attribute == errorTolerance) {
+        if (attribute == denseOutputEventLocation) {
+            _denseOutputEventLocation = ((BooleanToken) denseOutputEventLocation
+                    .getToken()).booleanValue();
+        } else if (attribute == errorTolerance) {
             double value = ((DoubleToken) errorTolerance.getToken())
                     .doubleValue();
             if (value < 0.0) {
@@ -580,7 +615,11 @@ public class ContinuousDirector extends FixedPointDirector implements
             }
             // If the step size is accurate and we did not reach the
             // maximum number of iterations then we are done.
+            // If the integration is accurate, but an event was missed,
+            // then try to locate the event within the step, if this
+            // is enabled by denseOutputEventLocation.
             // Otherwise, we have to try again with a smaller step size.
+            _integrationIsAccurate = true;
             if (isStepSizeAccurate() && iterations <= _maxIterations) {
                 // All actors agree with the current step size,
                 // or we have reached the maximum allowed number of iterations.
@@ -591,6 +630,16 @@ public class ContinuousDirector extends FixedPointDirector implements
                     // If any step size control actor is unsatisfied with the
                     // current step size, refine the step size to a smaller one.
                     _setCurrentStepSize(_currentStepSize / 2);
+                } else if (_denseOutputEventLocation
+                        && _integrationIsAccurate
+                        && _ODESolver._isStepFinished()) {
+                    // The integrators are satisfied with the current step
+                    // size, so some actor has missed an event. Try to locate
+                    // it without repeating the integration. If this fails,
+                    // then it sets the step size to use for the next try.
+                    if (_locateEvent()) {
+                        break;
+                    }
                 } else {
                     // There is some step size control actor that is
                     // unsatisfied with the current step size, refine the
@@ -779,7 +828,7 @@ public class ContinuousDirector extends FixedPointDirector implements
                 _startTime = ((Actor) getContainer()).getExecutiveDirector()
                         .getModelTime();
             } else {
-                _startTime = new Time(this);
+                _startTime = _zeroTime;
             }
         } else {
             _startTime = new Time(this, startTimeValue.doubleValue());
@@ -869,6 +918,20 @@ public class ContinuousDirector extends FixedPointDirector implements
         _lastSuspendTime = null;
     }
 
+    /** Set the tentative states of the stateful components to the states
+     *  at the given fraction of the integration step that has just been
+     *  completed, as given by the dense output of the ODE solver.
+     *  @param fraction The fraction of the step, between 0.0 and 1.0.
+     */
+    public void interpolateTentativeState(double fraction) {
+        Iterator components = _statefulComponents().iterator();
+        while (components.hasNext()) {
+            ContinuousStatefulComponent component = (ContinuousStatefulComponent) components
+                    .next();
+            component.interpolateTentativeState(fraction);
+        }
+    }
+
     /** Return true if all step size control actors agree that the current
      *  step is accurate and if there are no breakpoints in the past.
      *  @return True if all step size control actors agree with the current
@@ -998,7 +1061,7 @@ public class ContinuousDirector extends FixedPointDirector implements
                 _startTime = ((Actor) getContainer()).getExecutiveDirector()
                         .getModelTime();
             } else {
-                _startTime = new Time(this);
+                _startTime = _zeroTime;
             }
         } else {
             _startTime = new Time(this, startTimeValue.doubleValue());
@@ -1144,7 +1207,7 @@ public class ContinuousDirector extends FixedPointDirector implements
                         ". Proposed new value is " + time);
             }
         /* Allow arbitrary offsets if the accumulated suspend time has never been set.
-        } else if (time.compareTo(new Time(this)) < 0) {
+        } else if (time.compareTo(_zeroTime) < 0) {
             throw new IllegalActionException(this, "Accumulated suspend time cannot be negative." +
                     ". Proposed new value is " + time);
         */
@@ -1436,6 +1499,21 @@ public class ContinuousDirector extends FixedPointDirector implements
         return _currentStepSize;
     }
 
+    /** Return the ODE solver of the enclosing continuous director, or
+     *  null if there is no enclosing continuous director. If there is
+     *  one, then its solver governs the rounds of the integration steps
+     *  that the solver of this director takes part in.
+     *  @return The ODE solver of the enclosing continuous director,
+     *   or null if there is none.
+     */
+    protected final ContinuousODESolver _getEnclosingODESolver() {
+        ContinuousDirector enclosingDirector = _enclosingContinuousDirector();
+        if (enclosingDirector == null) {
+            return null;
+        }
+        return enclosingDirector._ODESolver;
+    }
+
     /** Return the ODE solver used to resolve states by the director.
      *  @return The ODE solver used to resolve states by the director.
      */
@@ -1473,12 +1551,18 @@ public class ContinuousDirector extends FixedPointDirector implements
             errorTolerance.setExpression("1e-4");
             errorTolerance.setTypeEquals(BaseType.DOUBLE);
 
+            denseOutputEventLocation = new Parameter(this,
+                    "denseOutputEventLocation");
+            denseOutputEventLocation.setExpression("false");
+            denseOutputEventLocation.setTypeEquals(BaseType.BOOLEAN);
+
             iterations.setVisibility(Settable.NONE);
 
             ODESolver = new StringParameter(this, "ODESolver");
             ODESolver.setExpression("ExplicitRK23Solver");
             ODESolver.addChoice("ExplicitRK23Solver");
             ODESolver.addChoice("ExplicitRK45Solver");
+            ODESolver.addChoice("ImplicitRosenbrock2Solver");
             /* FIXME: These solvers are currently not implemented in this package.
              ODESolver.addChoice(new StringToken("BackwardEulerSolver")
              .toString());
@@ -1541,6 +1625,21 @@ public class ContinuousDirector extends FixedPointDirector implements
         return _debugging;
     }
 
+    /** Return true if events are located using the dense output of the
+     *  ODE solver. If there is an enclosing continuous director, this
+     *  method delegates to that director, because it governs the
+     *  integration step. Otherwise, it returns the value of the
+     *  <i>denseOutputEventLocation</i> parameter.
+     *  @return True if events are located using the dense output.
+     */
+    protected boolean _isDenseOutputEventLocation() {
+        ContinuousDirector enclosingContinuousDirector = _enclosingContinuousDirector();
+        if (enclosingContinuousDirector != null) {
+            return enclosingContinuousDirector._isDenseOutputEventLocation();
+        }
+        return _denseOutputEventLocation;
+    }
+
     /** Return true if the solver is at the first or intermediate steps
      *  of a multi-step solver. If there is an enclosing continuous
      *  director, this method delegates to that director. Otherwise,
@@ -1564,6 +1663,21 @@ public class ContinuousDirector extends FixedPointDirector implements
         _debug(message);
     }
 
+    /** Report that an integrator has found the current integration
+     *  step to be inaccurate. If there is an enclosing continuous director,
+     *  then report this to it, because it governs the integration step.
+     *  Otherwise, record that the step cannot be shortened by locating
+     *  an event using the dense output of the solver.
+     */
+    protected void _reportInaccurateIntegration() {
+        ContinuousDirector enclosingContinuousDirector = _enclosingContinuousDirector();
+        if (enclosingContinuousDirector != null) {
+            enclosingContinuousDirector._reportInaccurateIntegration();
+        } else {
+            _integrationIsAccurate = false;
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         protected variables               ////
 
@@ -1792,6 +1906,62 @@ public class ContinuousDirector extends FixedPointDirector implements
         _ODESolver = _instantiateODESolver(_solverClasspath + solverClassName);
     }
 
+    /** Locate an event that was missed in the integration step that
+     *  has just been completed, without repeating the integration.
+     *  This is called when some step size control actor reports that the
+     *  step is not accurate, but no integrator does. The step size is
+     *  refined as requested by the step size control actors, the
+     *  tentative states are set to the dense output of the solver at the
+     *  refined step size, and the model is evaluated once at the end of
+     *  the refined step. This repeats until all step size control actors
+     *  are satisfied, so each refinement costs one round instead of an
+     *  integration step.
+     *  @return True if the event was located. If false is returned, then
+     *   the current step size has been set to the refined step size with
+     *   which the integration step has to be repeated.
+     *  @exception IllegalActionException If the step size cannot be
+     *   refined, or if an actor throws it.
+     */
+    private boolean _locateEvent() throws IllegalActionException {
+        double stepSize = _currentStepSize;
+        int iterations = 0;
+        while (!_stopRequested) {
+            double refinedStep = refinedStepSize();
+            if (refinedStep >= _currentStepSize
+                    || iterations >= _maxIterations) {
+                // No progress can be made using the dense output.
+                _setCurrentStepSize(refinedStep);
+                return false;
+            }
+            // The integrators record the step size of the completed
+            // step the first time they interpolate, so this has to be
+            // done before the step size is changed.
+            interpolateTentativeState(refinedStep / stepSize);
+            _setCurrentStepSize(refinedStep);
+            _currentTime = _iterationBeginTime.add(refinedStep);
+            _index = 0;
+            if (_debugging) {
+                _debug("-- Locating an event at " + _currentTime
+                        + " using the interpolated states.");
+            }
+
+            _resetAllReceivers();
+            _assertAbsentInside();
+            super.fire();
+            iterations++;
+
+            _integrationIsAccurate = true;
+            if (isStepSizeAccurate()) {
+                return true;
+            }
+            if (!_integrationIsAccurate) {
+                _setCurrentStepSize(refinedStepSize());
+                return false;
+            }
+        }
+        return false;
+    }
+
     /** Postfire method when this director is at the top level.
      *  @return True if it is OK to fire again.
      */
@@ -2368,6 +2538,9 @@ public class ContinuousDirector extends FixedPointDirector implements
     /** Simulation step sizes. */
     private double _currentStepSize;
 
+    /** The value of the denseOutputEventLocation parameter. */
+    private boolean _denseOutputEventLocation;
+
     /** The enclosing continuous director. */
     private ContinuousDirector _enclosingContinuousDirector = null;
 
@@ -2383,6 +2556,11 @@ public class ContinuousDirector extends FixedPointDirector implements
     /** A cache of the value of initStepSize. */
     private double _initStepSize;
 
+    /** Flag indicating that no integrator has found the current
+     *  integration step to be inaccurate.
+     */
+    private boolean _integrationIsAccurate = true;
+
     /** Flag indicating that the solver is iterating through the first or
      *  intermediate steps in a multi-step solver.
      */
@@ -2436,7 +2614,4 @@ public class ContinuousDirector extends FixedPointDirector implements
     /** The local flag variable indicating whether the we have tried
      *  the time resolution as the integration step size. */
     private boolean _triedTheMinimumStepSize = false;
-
-    /** Time with value 0.0. */
-    private Time _zeroTime;
 }
@@ -291,9 +291,11 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
         if (!state.isKnown()) {
             double tentativeOutput = getTentativeState();
             // If the round has not updated since the last output, then
-            // just produce the same output as last time.
+            // just produce the same output as last time, unless the
+            // output is an interpolated state, which is not updated
+            // by the rounds.
             int currentRound = dir._getODESolver()._getRound();
-            if (_lastRound == currentRound) {
+            if (_lastRound == currentRound && !_interpolated) {
                 tentativeOutput = _lastOutput;
             }
 
@@ -328,7 +330,10 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
                             "The provided derivative input is invalid: "
                                     + currentDerivative);
                 }
-                if (stepSize > 0.0) {
+                // If the tentative state has been interpolated to locate
+                // an event, then the integration step is complete and
+                // this round only evaluates the model at the new state.
+                if (stepSize > 0.0 && !_interpolated) {
                     // The following method changes the tentative state.
                     dir._getODESolver().integratorIntegrate(this);
                 }
@@ -417,6 +422,7 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
 
         super.initialize();
         _lastRound = -1;
+        _interpolated = false;
         _tentativeState = ((DoubleToken) initialState.getToken()).doubleValue();
         _state = _tentativeState;
         _firstFiring = true;
@@ -433,15 +439,47 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
         }
     }
 
+    /** Set the tentative state to the state at the given fraction of
+     *  the integration step that has just been completed, as given by the
+     *  dense output of the ODE solver. The state and the step size at the
+     *  end of the step are recorded the first time this is called, so
+     *  that it can be called repeatedly with different fractions until
+     *  the state is committed or rolled back. Until then, firing this
+     *  actor does not integrate. If this integrator has not been fired
+     *  in the step, then do nothing.
+     *  @param fraction The fraction of the step, between 0.0 and 1.0.
+     */
+    public void interpolateTentativeState(double fraction) {
+        if (_lastRound < 0) {
+            return;
+        }
+        ContinuousDirector director = (ContinuousDirector) getDirector();
+        if (!_interpolated) {
+            _interpolated = true;
+            _stepEndState = _tentativeState;
+            _stepSize = director.getCurrentStepSize();
+        }
+        _tentativeState = director._getODESolver().integratorInterpolatedState(
+                this, _stepSize, _stepEndState, fraction);
+        if (_debugging) {
+            _debug("Interpolated state at fraction " + fraction
+                    + " of the step: " + _tentativeState);
+        }
+    }
+
     /** Return true if the state is resolved successfully.
      *  If the input is not available, or the input is a result of
      *  divide by zero, a NumericalNonconvergeException is thrown.
+     *  If the state is not resolved successfully, report this to the
+     *  director, so that it does not try to locate events within the step.
      *  @return True if the state is resolved successfully.
      */
     public boolean isStepSizeAccurate() {
-        ContinuousODESolver solver = ((ContinuousDirector) getDirector())
-                ._getODESolver();
-        _successful = solver.integratorIsAccurate(this);
+        ContinuousDirector director = (ContinuousDirector) getDirector();
+        _successful = director._getODESolver().integratorIsAccurate(this);
+        if (!_successful) {
+            director._reportInaccurateIntegration();
+        }
         return _successful;
     }
 
@@ -462,6 +500,7 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
     public boolean postfire() throws IllegalActionException {
         _lastRound = -1;
         _firstFiring = false;
+        _interpolated = false;
 
         if (_debugging) {
             _debug("Postfire called");
@@ -522,6 +561,7 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
             _debug("Rolling back to state: " + _state);
         }
         _lastRound = -1;
+        _interpolated = false;
         _tentativeState = _state;
     }
 
@@ -571,6 +611,9 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
     /** Indicator that this is the first firing after initialize(). */
     private boolean _firstFiring;
 
+    /** Indicator that the tentative state has been interpolated. */
+    private boolean _interpolated;
+
     /** The last output produced in the same round. */
     private double _lastOutput;
 
@@ -580,6 +623,14 @@ public class ContinuousIntegrator extends TypedAtomicActor implements
     /** The state of the integrator. */
     private double _state;
 
+    /** The tentative state at the end of the step, before it was
+     *  interpolated.
+     */
+    private double _stepEndState;
+
+    /** The size of the step whose tentative state was interpolated. */
+    private double _stepSize;
+
     /** Indicate whether the latest step is successful from this
      *  integrator's point of view.
      */
@@ -0,0 +1,70 @@
+/* An interface for actors that provide partial derivatives to ODE solvers.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.continuous.kernel;
+
+import ptolemy.kernel.util.IllegalActionException;
+
+///////////////////////////////////////////////////////////////////
+//// ContinuousJacobianProvider
+
+/**
+ Interface for actors that know how the derivative inputs of the
+ integrators they contain depend on the states of those integrators.
+ Implicit ODE solvers need these partial derivatives, the entries
+ of the Jacobian matrix of the ODE. A solver that finds such an actor
+ above an integrator in the hierarchy asks it for the partial
+ derivatives before it resorts to estimating them by finite
+ differences.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public interface ContinuousJacobianProvider {
+
+    /** Return the partial derivative of the derivative input of the
+     *  first integrator with respect to the state of the second, at the
+     *  current committed states, or NaN if this actor does not know it.
+     *  Both integrators are deeply contained by this actor, and only the
+     *  paths between them inside this actor need to be accounted for.
+     *  Solvers do not use the result if a path that leaves this actor
+     *  leads from the state of the second integrator to the derivative
+     *  input of the first.
+     *  @param derivative The integrator whose derivative input is
+     *   differentiated.
+     *  @param state The integrator whose state it is differentiated
+     *   with respect to.
+     *  @return The partial derivative, or NaN if it is not known.
+     *  @exception IllegalActionException If the partial derivative
+     *   cannot be evaluated.
+     */
+    public double getPartialDerivative(ContinuousIntegrator derivative,
+            ContinuousIntegrator state) throws IllegalActionException;
+}
@@ -87,6 +87,26 @@ public abstract class ContinuousODESolver {
     public abstract void integratorIntegrate(ContinuousIntegrator integrator)
             throws IllegalActionException;
 
+    /** Return the state of the given integrator at the given fraction
+     *  of an integration step that has been completed, as given by the
+     *  dense output of this solver. The interpolateTentativeState()
+     *  method of integrators delegates to this method. This base class
+     *  interpolates linearly between the committed state and the state
+     *  at the end of the step, which is first order accurate. Derived
+     *  classes should override this with an interpolant whose accuracy
+     *  matches that of the method.
+     *  @param integrator The integrator that calls this method.
+     *  @param stepSize The size of the completed step.
+     *  @param endState The state of the integrator at the end of the step.
+     *  @param fraction The fraction of the step, between 0.0 and 1.0.
+     *  @return The interpolated state.
+     */
+    public double integratorInterpolatedState(ContinuousIntegrator integrator,
+            double stepSize, double endState, double fraction) {
+        double state = integrator.getState();
+        return state + fraction * (endState - state);
+    }
+
     /** Return true if the current integration step is accurate from the
      *  argument integrator's point of view. The isStepSizeAccurate() method
      *  of integrators delegates to this method.
@@ -114,6 +134,16 @@ public abstract class ContinuousODESolver {
         _director._reportDebugMessage(message);
     }
 
+    /** Return the solver of the enclosing continuous director, or null
+     *  if the director of this solver is not enclosed by a continuous
+     *  director. If there is an enclosing solver, then it governs the
+     *  rounds of the integration steps that this solver takes part in.
+     *  @return The solver of the enclosing continuous director, or null.
+     */
+    protected final ContinuousODESolver _getEnclosingSolver() {
+        return _director._getEnclosingODESolver();
+    }
+
     /** Get the current round factor. If the rounds are
      *  finished, then return 1.0.
      *  @return The current round factor.
@@ -126,6 +156,30 @@ public abstract class ContinuousODESolver {
      */
     protected abstract int _getRound();
 
+    /** Return the value at the given fraction of a step of the cubic
+     *  Hermite polynomial that matches the given states and derivatives
+     *  at both ends of the step. This interpolant is third order accurate,
+     *  and can be used as the dense output of any method that evaluates
+     *  the derivative at the end of the step.
+     *  @param stepSize The size of the step.
+     *  @param state The state at the beginning of the step.
+     *  @param derivative The derivative at the beginning of the step.
+     *  @param endState The state at the end of the step.
+     *  @param endDerivative The derivative at the end of the step.
+     *  @param fraction The fraction of the step.
+     *  @return The interpolated state.
+     */
+    protected static double _hermiteInterpolation(double stepSize,
+            double state, double derivative, double endState,
+            double endDerivative, double fraction) {
+        double remainder = 1.0 - fraction;
+        return remainder * state + fraction * endState
+                + fraction * remainder
+                * ((fraction - remainder) * (endState - state)
+                        + stepSize * (remainder * derivative
+                                - fraction * endDerivative));
+    }
+
     /** Return true if debugging is turned on in the director.
      *  @return True if debugging is turned on.
      */
@@ -41,6 +41,17 @@ package ptolemy.domains.continuous.kernel;
  */
 public interface ContinuousStatefulComponent {
 
+    /** Set the tentative state to the state at the given fraction of
+     *  the integration step that has just been completed, as given by
+     *  the dense output of the ODE solver. This is used to locate an
+     *  event inside the step without repeating the integration.
+     *  The fraction is always relative to the completed step, so the
+     *  tentative state at the end of the step must be retained until
+     *  the state is committed or rolled back.
+     *  @param fraction The fraction of the step, between 0.0 and 1.0.
+     */
+    public void interpolateTentativeState(double fraction);
+
     /** Roll back to committed state.
      */
     public void rollBackToCommittedState();
@@ -180,13 +180,49 @@ public class HybridModalDirector extends FSMDirector implements
         return evaluator;
     }
 
+    /** Set the tentative state of the actors that were fired in the
+     *  current iteration to the state at the given fraction of the
+     *  integration step that has just been completed.
+     *  @param fraction The fraction of the step, between 0.0 and 1.0.
+     */
+    public void interpolateTentativeState(double fraction) {
+        Iterator actors = null;
+        try {
+            actors = new ActorsFiredIterator();
+        } catch (IllegalActionException e) {
+            throw new InternalErrorException(e);
+        }
+        while (actors.hasNext()) {
+            Actor actor = (Actor) actors.next();
+            if (actor instanceof ContinuousStatefulComponent) {
+                ((ContinuousStatefulComponent) actor)
+                        .interpolateTentativeState(fraction);
+            } else if (actor instanceof CompositeActor) {
+                // Delegate to the director.
+                Director director = actor.getDirector();
+                if (director instanceof ContinuousDirector) {
+                    ((ContinuousDirector) director)
+                            .interpolateTentativeState(fraction);
+                }
+            }
+        }
+    }
+
     /** Return true if all actors that were fired in the current iteration
      *  report that the step size is accurate and if no transition is enabled.
+     *  If the enclosing director locates events using the dense output
+     *  of the ODE solver, then all the actors are asked, even if one of
+     *  them reports that the step size is not accurate, so that
+     *  integrators can report an inaccurate step to the enclosing director.
      *  @return True if the current step is accurate.
      */
     public boolean isStepSizeAccurate() {
         _lastDistanceToBoundary = 0.0;
         _distanceToBoundary = 0.0;
+        boolean accurate = true;
+        ContinuousDirector enclosingDirector = _enclosingContinuousDirector();
+        boolean askAll = enclosingDirector != null
+                && enclosingDirector._isDenseOutputEventLocation();
 
         // Double iterator over two lists.
         Iterator actors = null;
@@ -200,7 +236,10 @@ public class HybridModalDirector extends FSMDirector implements
             if (actor instanceof ContinuousStepSizeController) {
                 if (!((ContinuousStepSizeController) actor)
                         .isStepSizeAccurate()) {
-                    return false;
+                    if (!askAll) {
+                        return false;
+                    }
+                    accurate = false;
                 }
             } else if (actor instanceof CompositeActor) {
                 // Delegate to the director.
@@ -208,11 +247,17 @@ public class HybridModalDirector extends FSMDirector implements
                 if (director instanceof ContinuousStepSizeController) {
                     if (!((ContinuousStepSizeController) director)
                             .isStepSizeAccurate()) {
-                        return false;
+                        if (!askAll) {
+                            return false;
+                        }
+                        accurate = false;
                     }
                 }
             }
         }
+        if (!accurate) {
+            return false;
+        }
         // Next check for enabled transitions.  Do this even if the above
         // result is false, because as a side effect we calculate the
         // data needed to suggest the next step size when refinedStepSize()
@@ -222,7 +267,6 @@ public class HybridModalDirector extends FSMDirector implements
         // transitions never even get a chance to be evaluated.
         // However, do this only if there is an enclosing
         // ContinuousDirector.
-        ContinuousDirector enclosingDirector = _enclosingContinuousDirector();
         if (enclosingDirector == null) {
             return true;
         }
@@ -60,7 +60,9 @@ import ptolemy.kernel.util.InvalidStateException;
  h' = 0.8*Math.pow((ErrorTolerance/LTE), 1.0/3.0)
  </pre>
  This is a second order method, but uses a third order procedure to estimate
- the local truncation error.
+ the local truncation error. The state within a completed step, which
+ is used to locate events, is given by the cubic Hermite interpolant
+ of x(n), K0, x(n+1) and K3.
 
  @author  Jie Liu, Haiyang Zheng, Edward A. Lee
  @version $Id$
@@ -121,6 +123,23 @@ public class ExplicitRK23Solver extends ContinuousODESolver {
         integrator.setTentativeState(outputValue);
     }
 
+    /** Return the state of the given integrator at the given fraction
+     *  of a completed integration step. This uses the cubic Hermite
+     *  interpolant that matches the states and the derivatives K0 and
+     *  K3 at both ends of the step, which are computed by every step.
+     *  @param integrator The integrator that calls this method.
+     *  @param stepSize The size of the completed step.
+     *  @param endState The state of the integrator at the end of the step.
+     *  @param fraction The fraction of the step, between 0.0 and 1.0.
+     *  @return The interpolated state.
+     */
+    public double integratorInterpolatedState(ContinuousIntegrator integrator,
+            double stepSize, double endState, double fraction) {
+        double[] k = integrator.getAuxVariables();
+        return _hermiteInterpolation(stepSize, integrator.getState(), k[0],
+                endState, k[_TIME_INCREMENTS.length - 1], fraction);
+    }
+
     /** Return true if the integration is accurate for the given
      *  integrator. This estimates the local truncation error for that
      *  integrator and compare it with the error tolerance.
@@ -70,7 +70,9 @@ import ptolemy.kernel.util.InvalidStateException;
  h' = h * Math.pow((ErrorTolerance/LTE), 1.0/5.0)
  </pre>
  This is a fourth order method, but uses a fifth order procedure to estimate
- the local truncation error.
+ the local truncation error. The state within a completed step, which
+ is used to locate events, is given by the cubic Hermite interpolant
+ of the states and derivatives at both ends of the step.
  <p>
  It takes 6 steps for this solver to resolve a state with an integration
  step size.
@@ -153,6 +155,24 @@ public class ExplicitRK45Solver extends ContinuousODESolver {
         integrator.setTentativeState(outputValue);
     }
 
+    /** Return the state of the given integrator at the given fraction
+     *  of a completed integration step. This uses the cubic Hermite
+     *  interpolant that matches the states and the derivatives K0 and
+     *  f(x(n+1), tn+h) at both ends of the step, which are evaluated
+     *  by every step.
+     *  @param integrator The integrator that calls this method.
+     *  @param stepSize The size of the completed step.
+     *  @param endState The state of the integrator at the end of the step.
+     *  @param fraction The fraction of the step, between 0.0 and 1.0.
+     *  @return The interpolated state.
+     */
+    public double integratorInterpolatedState(ContinuousIntegrator integrator,
+            double stepSize, double endState, double fraction) {
+        double[] k = integrator.getAuxVariables();
+        return _hermiteInterpolation(stepSize, integrator.getState(), k[0],
+                endState, k[_TIME_INCREMENTS.length - 1], fraction);
+    }
+
     /** Return true if the integration is accurate for the given
      *  integrator. This estimates the local truncation error for that
      *  integrator and compare it with the error tolerance.
@@ -0,0 +1,770 @@
+/* A second order linearly implicit Rosenbrock ODE solver for stiff systems.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.continuous.kernel.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import ptolemy.actor.Actor;
+import ptolemy.actor.CompositeActor;
+import ptolemy.actor.IOPort;
+import ptolemy.data.IntToken;
+import ptolemy.domains.continuous.kernel.ContinuousIntegrator;
+import ptolemy.domains.continuous.kernel.ContinuousJacobianProvider;
+import ptolemy.domains.continuous.kernel.ContinuousODESolver;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.InvalidStateException;
+import ptolemy.kernel.util.NamedObj;
+
+///////////////////////////////////////////////////////////////////
+//// ImplicitRosenbrock2Solver
+
+/**
+ This class implements ROS2, a second order linearly implicit
+ Rosenbrock method for stiff ODEs. For an ODE of the form:
+ <pre>
+ dx/dt = f(x, t), x(0) = x0
+ </pre>
+ it does the following, where J is an approximation of the Jacobian
+ matrix df/dx at x(n) and W = I - gamma*h*J:
+ <pre>
+ W*K0 = f(x(n), tn);
+ W*K1 = f(x(n)+h*K0, tn+h) - 2*K0;
+ x(n+1) = x(n)+(3/2)*h*K0+(1/2)*h*K1;
+ </pre>
+ with gamma = 1+1/sqrt(2), and error control:
+ <pre>
+ LTE = h*[(1/2)*K0 + (1/2)*K1]
+ </pre>
+ which is the difference to the embedded first order solution
+ x(n)+h*K0. If the LTE of every integrator is less than the error
+ tolerance, then the step is successful, and the next step size is
+ predicted as:
+ <pre>
+ h' = h*0.9*Math.pow((ErrorTolerance/LTE), 1.0/2.0)
+ </pre>
+ The method is stable for arbitrarily stiff linear systems, so the
+ step size is limited only by accuracy, whereas the step size of the
+ explicit solvers is limited by the fastest time constant of the model.
+ <p>
+ Unlike the explicit solvers, this solver couples the integrators:
+ the states of all integrators result from solving linear systems with
+ W. Hence the integrators only record their derivatives, and this solver
+ sets their tentative states between rounds, when the director advances
+ the round. Integrators under continuous directors that are embedded in
+ the director of this solver are handled by the solver of the outermost
+ director.
+ <p>
+ The method retains its order when J is only an approximation (it is
+ a W-method), so J is not estimated at every step. It is estimated on
+ the first step, after changes to the model, after a step is rejected
+ when J is not up to date, and every 20 steps. J is sparse: entry (i, j)
+ can be nonzero only if there is a path from the state output of
+ integrator j to the derivative input of integrator i in the model, and
+ the entries that cannot be nonzero are neither estimated nor used;
+ see {@link SparseJacobian}. The columns of J are taken from the
+ enclosing actors that implement {@link ContinuousJacobianProvider}
+ where they can provide all of the entries of a column, and are
+ otherwise estimated by finite differences, with an extra round at
+ the start of the step for each group of columns whose entries are in
+ disjoint rows. If the <i>maxIterations</i> parameter of the director
+ does not allow all the rounds in one step, then the estimation is
+ spread over several steps. The LU factorization of W is reused across
+ steps until J or the step size changes, and the step size is kept
+ unchanged rather than increased by less than half to favor reuse.
+ <p>
+ For details, see J. G. Verwer, E. J. Spee, J. G. Blom and
+ W. Hundsdorfer, "A second-order Rosenbrock method applied to
+ photochemical dispersion problems," SIAM Journal on Scientific
+ Computing, 20(4):1456-1480, 1999.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class ImplicitRosenbrock2Solver extends ContinuousODESolver {
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return one, to store the truncation error.
+     *  @return One.
+     */
+    public final int getIntegratorAuxVariableCount() {
+        return 1;
+    }
+
+    /** Record the derivative of the given integrator for the current
+     *  round. The tentative state of the integrator is set when the
+     *  round is advanced, after all integrators have recorded their
+     *  derivatives.
+     *  @param integrator The integrator of that calls this method.
+     *  @exception IllegalActionException If the derivative cannot
+     *   be read.
+     */
+    public void integratorIntegrate(ContinuousIntegrator integrator)
+            throws IllegalActionException {
+        ImplicitRosenbrock2Solver solver = _governingSolver();
+        if (solver != this) {
+            solver.integratorIntegrate(integrator);
+            return;
+        }
+        double derivative = integrator.getDerivative();
+        if (_round == 0) {
+            if (!_indices.containsKey(integrator)) {
+                _addIntegrator(integrator, derivative);
+            }
+        } else {
+            Integer index = _indices.get(integrator);
+            if (index != null) {
+                _f[index.intValue()] = derivative;
+                _reported[index.intValue()] = true;
+            }
+        }
+    }
+
+    /** Return true if the local truncation error estimated for the
+     *  given integrator is less than the error tolerance.
+     *  @param integrator The integrator of that calls this method.
+     *  @return True if the integration is successful.
+     */
+    public boolean integratorIsAccurate(ContinuousIntegrator integrator) {
+        double tolerance = _director.getErrorTolerance();
+        double error = (integrator.getAuxVariables())[_ERROR_INDEX];
+        if (_isDebugging()) {
+            _debug("Integrator: " + integrator.getName()
+                    + " local truncation error = " + error);
+        }
+        if (error < tolerance) {
+            return true;
+        }
+        if (_isDebugging()) {
+            _debug("Integrator: " + integrator.getName()
+                    + " reports a failure.");
+        }
+        _governingSolver()._rejected = true;
+        return false;
+    }
+
+    /** Return the next step size suggested by the local truncation
+     *  error of the given integrator, as described in the class comment.
+     *  If that step size is larger than the current step size by less
+     *  than half, then return the current step size, so that the
+     *  factorization of W can be reused.
+     *  @param integrator The integrator of that calls this method.
+     *  @return The next step size suggested by the given integrator.
+     */
+    public double integratorSuggestedStepSize(ContinuousIntegrator integrator) {
+        double error = (integrator.getAuxVariables())[_ERROR_INDEX];
+        double h = _director.getCurrentStepSize();
+        double tolerance = _director.getErrorTolerance();
+        double factor = _MAXIMUM_GROWTH;
+        if (error > 0.0) {
+            factor = Math.max(_MINIMUM_GROWTH, Math.min(_MAXIMUM_GROWTH,
+                    0.9 * Math.sqrt(tolerance / error)));
+        }
+        if (factor >= 1.0 && factor < _REUSE_GROWTH) {
+            factor = 1.0;
+        }
+        double newh = factor * h;
+        if (_isDebugging()) {
+            _debug("integrator: " + integrator.getName()
+                    + " suggests next step size = " + newh);
+        }
+        return newh;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Return the current round.
+     *  @return The current round.
+     */
+    protected int _getRound() {
+        return _round;
+    }
+
+    /** Return the time increment of the next round. The rounds that
+     *  estimate the Jacobian are at the start of the step, and the two
+     *  stages are at the end. This is called after the first round,
+     *  when all the integrators have recorded their derivatives, so
+     *  this is also where the rounds of the step are planned.
+     *  @return 0.0 if the next round estimates the Jacobian, and 1.0
+     *   otherwise.
+     */
+    protected final double _getRoundTimeIncrement() {
+        if (_round == 0 && !_planned) {
+            _planStep();
+        }
+        if (_round < _jacobianRounds) {
+            return 0.0;
+        }
+        return 1.0;
+    }
+
+    /** Return true if the current integration step is finished, that
+     *  is, if the round after the second stage has been executed.
+     *  @return True if the step is finished.
+     */
+    protected final boolean _isStepFinished() {
+        return _round > _jacobianRounds + 2;
+    }
+
+    /** Reset the solver, indicating to it that we are starting an
+     *  integration step. This method resets the round counter and
+     *  forgets the integrators of the previous step.
+     */
+    protected final void _reset() {
+        _round = 0;
+        _planned = false;
+        _jacobianRounds = 0;
+        _integrators.clear();
+        _indices.clear();
+    }
+
+    /** Set the round for the next integration step. If this solver
+     *  governs the integration step, then set the tentative states of
+     *  the integrators for the next round from the derivatives that
+     *  they recorded in the previous round.
+     *  @param round The round for the next integration step.
+     */
+    protected void _setRound(int round) {
+        _round = round;
+        if (round > 0 && _governingSolver() == this) {
+            _advance();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Add an integrator that has recorded its derivative in the first
+     *  round of the step.
+     */
+    private void _addIntegrator(ContinuousIntegrator integrator,
+            double derivative) {
+        int index = _integrators.size();
+        if (index == _x.length) {
+            int capacity = 2 * index + 1;
+            _x = _grow(_x, capacity);
+            _f0 = _grow(_f0, capacity);
+            _f = _grow(_f, capacity);
+            _k0 = _grow(_k0, capacity);
+            _k1 = _grow(_k1, capacity);
+            _delta = _grow(_delta, capacity);
+            boolean[] reported = new boolean[capacity];
+            System.arraycopy(_reported, 0, reported, 0, index);
+            _reported = reported;
+        }
+        _integrators.add(integrator);
+        _indices.put(integrator, Integer.valueOf(index));
+        _x[index] = integrator.getState();
+        _f0[index] = derivative;
+        integrator.setAuxVariables(_ERROR_INDEX, 0.0);
+    }
+
+    /** Add the ports in the given list, which is returned by the
+     *  kernel without a type, to the given list of ports.
+     */
+    private static void _addPorts(List<IOPort> ports, List portList) {
+        Iterator iterator = portList.iterator();
+        while (iterator.hasNext()) {
+            ports.add((IOPort) iterator.next());
+        }
+    }
+
+    /** Add to the given list the ports that receive data from the given
+     *  port within a round. This goes through atomic actors from any
+     *  input to every output and into and out of opaque composite
+     *  actors, and stops at integrators.
+     */
+    private static void _addSinks(IOPort port, List<IOPort> ports) {
+        NamedObj container = port.getContainer();
+        if (container instanceof ContinuousIntegrator) {
+            return;
+        } else if (port.isOutput()) {
+            // An output port of an opaque composite actor that
+            // is reached from the inside.
+            _addPorts(ports, port.sinkPortList());
+        } else if (container instanceof CompositeActor
+                && ((CompositeActor) container).isOpaque()) {
+            ports.addAll(port.insideSinkPortList());
+        } else if (container instanceof Actor) {
+            Iterator outputs = ((Actor) container).outputPortList()
+                    .iterator();
+            while (outputs.hasNext()) {
+                _addPorts(ports, ((IOPort) outputs.next()).sinkPortList());
+            }
+        }
+    }
+
+    /** Set the tentative states of the integrators for the round
+     *  given by _round from the derivatives of the previous round.
+     */
+    private void _advance() {
+        if (!_planned) {
+            _planStep();
+        }
+        if (_integrators.isEmpty()) {
+            return;
+        }
+        int previous = _round - 1;
+        if (previous > 0 && previous <= _jacobianRounds) {
+            _estimateColumns();
+        }
+        if (previous < _jacobianRounds) {
+            _perturbColumns();
+        } else if (previous == _jacobianRounds) {
+            _firstStage();
+        } else if (previous == _jacobianRounds + 1) {
+            _secondStage();
+        }
+    }
+
+    /** Create the Jacobian for the integrators of the current step,
+     *  finding its structure from the connections of the model.
+     */
+    private void _createJacobian(long version) {
+        int n = _integrators.size();
+        int[][] rows = new int[n][];
+        for (int j = 0; j < n; j++) {
+            rows[j] = _dependents(_integrators.get(j));
+        }
+        _jacobian = new SparseJacobian(rows);
+        _jacobianIntegrators = new ArrayList<ContinuousIntegrator>(
+                _integrators);
+        _jacobianVersion = version;
+        _factoredScale = Double.NaN;
+
+        _provided = new boolean[n];
+        boolean[] estimated = new boolean[n];
+        for (int j = 0; j < n; j++) {
+            _provided[j] = _provideColumn(j);
+            estimated[j] = !_provided[j];
+        }
+        _columnGroups = _jacobian.getColumnGroups(estimated);
+        _nextGroup = 0;
+        if (_columnGroups.length == 0) {
+            _age = 0;
+        }
+        if (_isDebugging()) {
+            _debug("Jacobian of " + n + " states has "
+                    + _jacobian.getBlockCount() + " diagonal blocks and "
+                    + _columnGroups.length
+                    + " groups of columns to estimate.");
+        }
+    }
+
+    /** Return the indices of the integrators whose derivative input
+     *  may depend on the state output of the given integrator within
+     *  a round.
+     */
+    private int[] _dependents(ContinuousIntegrator integrator) {
+        boolean[] dependent = new boolean[_integrators.size()];
+        int count = 0;
+        Set<IOPort> visited = new HashSet<IOPort>();
+        LinkedList<IOPort> ports = new LinkedList<IOPort>();
+        _addPorts(ports, integrator.state.sinkPortList());
+        while (!ports.isEmpty()) {
+            IOPort port = ports.removeFirst();
+            if (!visited.add(port)) {
+                continue;
+            }
+            NamedObj container = port.getContainer();
+            if (container instanceof ContinuousIntegrator
+                    && port == ((ContinuousIntegrator) container).derivative) {
+                Integer index = _indices.get(container);
+                if (index != null && !dependent[index.intValue()]) {
+                    dependent[index.intValue()] = true;
+                    count++;
+                }
+            }
+            _addSinks(port, ports);
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int i = 0; i < dependent.length; i++) {
+            if (dependent[i]) {
+                result[count++] = i;
+            }
+        }
+        return result;
+    }
+
+    /** Estimate the columns of the Jacobian of the group that was
+     *  perturbed in the previous round by finite differences.
+     */
+    private void _estimateColumns() {
+        int[] group = _columnGroups[_nextGroup];
+        for (int m = 0; m < group.length; m++) {
+            int j = group[m];
+            int[] rows = _jacobian.getRows(j);
+            for (int k = 0; k < rows.length; k++) {
+                int i = rows[k];
+                double derivative = _reported[i] ? _f[i] : _f0[i];
+                _jacobian.set(i, j, (derivative - _f0[i]) / _delta[j]);
+            }
+        }
+        _nextGroup++;
+        if (_nextGroup == _columnGroups.length) {
+            _age = 0;
+        }
+        _factoredScale = Double.NaN;
+    }
+
+    /** Set the tentative states for the first stage, at the end of
+     *  the step.
+     */
+    private void _firstStage() {
+        int n = _integrators.size();
+        double h = _director.getCurrentStepSize();
+        double scale = _GAMMA * h;
+        if (scale != _factoredScale) {
+            if (_jacobian.factor(scale)) {
+                _factoredScale = scale;
+            } else {
+                // W is singular. Take this step as if J were zero,
+                // which is an explicit method, and estimate J again.
+                _factoredScale = Double.NaN;
+                _age = _MAXIMUM_AGE;
+                if (_isDebugging()) {
+                    _debug("The matrix W is singular.");
+                }
+            }
+        }
+        System.arraycopy(_f0, 0, _k0, 0, n);
+        if (scale == _factoredScale) {
+            _jacobian.solve(_k0);
+        }
+        for (int i = 0; i < n; i++) {
+            _integrators.get(i).setTentativeState(_x[i] + h * _k0[i]);
+            _reported[i] = false;
+        }
+    }
+
+    /** Return the solver that governs the integration steps of this
+     *  solver, which is the solver of the outermost enclosing
+     *  continuous director, or this solver if there is none.
+     */
+    private ImplicitRosenbrock2Solver _governingSolver() {
+        ContinuousODESolver enclosingSolver = _getEnclosingSolver();
+        if (enclosingSolver instanceof ImplicitRosenbrock2Solver) {
+            return ((ImplicitRosenbrock2Solver) enclosingSolver)
+                    ._governingSolver();
+        }
+        return this;
+    }
+
+    /** Return a copy of the given array with the given length. */
+    private static double[] _grow(double[] array, int length) {
+        double[] result = new double[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /** Set the tentative states of the integrators to perturb the
+     *  states of the next group of columns of the Jacobian.
+     */
+    private void _perturbColumns() {
+        int n = _integrators.size();
+        for (int i = 0; i < n; i++) {
+            _integrators.get(i).setTentativeState(_x[i]);
+            _reported[i] = false;
+        }
+        int[] group = _columnGroups[_nextGroup];
+        for (int m = 0; m < group.length; m++) {
+            int j = group[m];
+            double x = _x[j];
+            double perturbed = x + _SQRT_EPSILON
+                    * Math.max(Math.abs(x), _director.getErrorTolerance());
+            // Use the difference that is actually represented.
+            _delta[j] = perturbed - x;
+            _integrators.get(j).setTentativeState(perturbed);
+        }
+    }
+
+    /** Decide whether the Jacobian is to be estimated in this step,
+     *  and how many rounds to spend on it.
+     */
+    private void _planStep() {
+        _planned = true;
+        _jacobianRounds = 0;
+        if (_integrators.isEmpty()) {
+            return;
+        }
+        // Unless the last step was rejected, the states have changed
+        // since the Jacobian was estimated.
+        if (!_rejected) {
+            _age++;
+        }
+        long version = _director.workspace().getVersion();
+        if (!_integrators.equals(_jacobianIntegrators)
+                || version != _jacobianVersion) {
+            _createJacobian(version);
+        } else if (_nextGroup == _columnGroups.length
+                && (_age >= _MAXIMUM_AGE || (_rejected && _age > 0))) {
+            for (int j = 0; j < _provided.length; j++) {
+                if (_provided[j]) {
+                    _provideColumn(j);
+                }
+            }
+            _factoredScale = Double.NaN;
+            _nextGroup = 0;
+            if (_columnGroups.length == 0) {
+                _age = 0;
+            }
+        }
+        _rejected = false;
+        int maximumIterations;
+        try {
+            maximumIterations = ((IntToken) _director.maxIterations
+                    .getToken()).intValue();
+        } catch (IllegalActionException ex) {
+            throw new InvalidStateException(_director, ex,
+                    "Cannot read maxIterations.");
+        }
+        // Three rounds are needed for the first round and the stages.
+        _jacobianRounds = Math.max(0, Math.min(_columnGroups.length
+                - _nextGroup, maximumIterations - 3));
+    }
+
+    /** Set the entries of the given column of the Jacobian from the
+     *  enclosing actors that implement ContinuousJacobianProvider, and
+     *  return true if all of them are provided. Otherwise, leave the
+     *  column unchanged and return false.
+     */
+    private boolean _provideColumn(int column) {
+        ContinuousIntegrator state = _integrators.get(column);
+        int[] rows = _jacobian.getRows(column);
+        double[] values = new double[rows.length];
+        HashMap<NamedObj, Boolean> reentered = new HashMap<NamedObj, Boolean>();
+        for (int k = 0; k < rows.length; k++) {
+            ContinuousIntegrator derivative = _integrators.get(rows[k]);
+            values[k] = Double.NaN;
+            NamedObj container = derivative.getContainer();
+            while (container != null && Double.isNaN(values[k])) {
+                if (container instanceof ContinuousJacobianProvider
+                        && container.deepContains(state)) {
+                    Boolean reenters = reentered.get(container);
+                    if (reenters == null) {
+                        reenters = Boolean.valueOf(_reenters(state,
+                                container));
+                        reentered.put(container, reenters);
+                    }
+                    if (!reenters.booleanValue()) {
+                        try {
+                            values[k] = ((ContinuousJacobianProvider) container)
+                                    .getPartialDerivative(derivative, state);
+                        } catch (IllegalActionException ex) {
+                            throw new InvalidStateException(container, ex,
+                                    "Cannot evaluate a partial derivative.");
+                        }
+                    }
+                }
+                container = container.getContainer();
+            }
+            if (Double.isNaN(values[k])) {
+                return false;
+            }
+        }
+        for (int k = 0; k < rows.length; k++) {
+            _jacobian.set(rows[k], column, values[k]);
+        }
+        return true;
+    }
+
+    /** Return true if a path from the state output of the given
+     *  integrator that leaves the given actor leads to the derivative
+     *  input of an integrator of the current step inside that actor.
+     */
+    private boolean _reenters(ContinuousIntegrator integrator,
+            NamedObj actor) {
+        Set<IOPort> visited = new HashSet<IOPort>();
+        LinkedList<IOPort> inside = new LinkedList<IOPort>();
+        LinkedList<IOPort> outside = new LinkedList<IOPort>();
+        _addPorts(inside, integrator.state.sinkPortList());
+        while (!inside.isEmpty()) {
+            IOPort port = inside.removeFirst();
+            if (!visited.add(port)) {
+                continue;
+            }
+            if (actor.deepContains(port)) {
+                _addSinks(port, inside);
+            } else {
+                outside.add(port);
+            }
+        }
+        visited.clear();
+        while (!outside.isEmpty()) {
+            IOPort port = outside.removeFirst();
+            if (!visited.add(port)) {
+                continue;
+            }
+            NamedObj container = port.getContainer();
+            if (container instanceof ContinuousIntegrator
+                    && port == ((ContinuousIntegrator) container).derivative
+                    && actor.deepContains(container)
+                    && _indices.containsKey(container)) {
+                return true;
+            }
+            _addSinks(port, outside);
+        }
+        return false;
+    }
+
+    /** Set the tentative states for the second stage, which are the
+     *  results of the step, and record the local truncation errors.
+     */
+    private void _secondStage() {
+        int n = _integrators.size();
+        double h = _director.getCurrentStepSize();
+        for (int i = 0; i < n; i++) {
+            double derivative = _reported[i] ? _f[i] : _f0[i];
+            _k1[i] = derivative - 2.0 * _k0[i];
+        }
+        if (h * _GAMMA == _factoredScale) {
+            _jacobian.solve(_k1);
+        }
+        for (int i = 0; i < n; i++) {
+            ContinuousIntegrator integrator = _integrators.get(i);
+            integrator.setTentativeState(_x[i] + h
+                    * (1.5 * _k0[i] + 0.5 * _k1[i]));
+            integrator.setAuxVariables(_ERROR_INDEX, Math.abs(0.5 * h
+                    * (_k0[i] + _k1[i])));
+            _reported[i] = false;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The index of the error stored in the auxiliary variables. */
+    private static final int _ERROR_INDEX = 0;
+
+    /** The gamma coefficient of the method. */
+    private static final double _GAMMA = 1.0 + 1.0 / Math.sqrt(2.0);
+
+    /** The number of steps after which the Jacobian is estimated again. */
+    private static final int _MAXIMUM_AGE = 20;
+
+    /** The largest factor by which the step size is increased. */
+    private static final double _MAXIMUM_GROWTH = 5.0;
+
+    /** The smallest factor by which the step size is decreased. */
+    private static final double _MINIMUM_GROWTH = 0.2;
+
+    /** Step size increases by less than this factor are not made. */
+    private static final double _REUSE_GROWTH = 1.5;
+
+    /** The relative perturbation of finite differences. */
+    private static final double _SQRT_EPSILON = Math.sqrt(Math.ulp(1.0));
+
+    /** The number of steps since the Jacobian was last estimated. */
+    private int _age = _MAXIMUM_AGE;
+
+    /** The groups of columns of the Jacobian that are estimated by
+     *  finite differences.
+     */
+    private int[][] _columnGroups = new int[0][];
+
+    /** The differences of the perturbed states. */
+    private double[] _delta = new double[0];
+
+    /** The derivatives recorded in the current round. */
+    private double[] _f = new double[0];
+
+    /** The derivatives recorded in the first round. */
+    private double[] _f0 = new double[0];
+
+    /** The value of gamma times the step size of the factorization
+     *  of W, or NaN if W is not factored.
+     */
+    private double _factoredScale = Double.NaN;
+
+    /** The indices of the integrators of the current step. */
+    private HashMap<ContinuousIntegrator, Integer> _indices = new HashMap<ContinuousIntegrator, Integer>();
+
+    /** The integrators of the current step. */
+    private List<ContinuousIntegrator> _integrators = new ArrayList<ContinuousIntegrator>();
+
+    /** The Jacobian, or null if it has not been created. */
+    private SparseJacobian _jacobian;
+
+    /** The integrators of the Jacobian, or null if it has not been
+     *  created.
+     */
+    private List<ContinuousIntegrator> _jacobianIntegrators;
+
+    /** The number of rounds of the current step that estimate the
+     *  Jacobian.
+     */
+    private int _jacobianRounds;
+
+    /** The workspace version when the Jacobian was created. */
+    private long _jacobianVersion = -1;
+
+    /** The first stage. */
+    private double[] _k0 = new double[0];
+
+    /** The second stage. */
+    private double[] _k1 = new double[0];
+
+    /** The next group of columns to estimate. */
+    private int _nextGroup;
+
+    /** Whether the rounds of the current step are planned. */
+    private boolean _planned;
+
+    /** For each column of the Jacobian, whether it is provided by
+     *  actors rather than estimated.
+     */
+    private boolean[] _provided = new boolean[0];
+
+    /** Whether a step has been rejected since the last step was
+     *  planned.
+     */
+    private boolean _rejected;
+
+    /** Whether each integrator recorded a derivative in the current
+     *  round.
+     */
+    private boolean[] _reported = new boolean[0];
+
+    /** The round counter. */
+    private int _round = 0;
+
+    /** The committed states of the integrators of the current step. */
+    private double[] _x = new double[0];
+}
@@ -0,0 +1,525 @@
+/* A sparse Jacobian and the factorization used by linearly implicit solvers.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.continuous.kernel.solver;
+
+import java.util.Arrays;
+
+///////////////////////////////////////////////////////////////////
+//// SparseJacobian
+
+/**
+ A sparse Jacobian matrix <i>J</i> of an ODE together with the LU
+ factorization of the matrix <i>W</i> = <i>I</i> - <i>scale</i>*<i>J</i>
+ that linearly implicit ODE solvers solve linear systems with.
+ Column <i>j</i> of <i>J</i> holds the partial derivatives of the
+ derivatives of the states with respect to state <i>j</i>, and the
+ structure of the matrix is given to the constructor as the rows of
+ the entries of each column that may be nonzero. Entries outside of
+ that structure are zero.
+ <p>
+ The structure is used in two ways. First, columns whose entries are in
+ disjoint rows can be estimated by finite differences together, by
+ perturbing all of their states at once. The getColumnGroups() method
+ groups the columns this way. Second, the rows and columns of <i>W</i>
+ are permuted to block triangular form, where the diagonal blocks are
+ the strongly connected components of the graph in which state
+ <i>i</i> depends on state <i>j</i> if entry (<i>i</i>, <i>j</i>)
+ is in the structure. Only the diagonal blocks are factored, each
+ densely with partial pivoting, and the entries outside of them are
+ used during substitution. Factoring a model made of loosely coupled
+ subsystems therefore costs in proportion to the sum of the cubes of
+ the sizes of the subsystems rather than the cube of the number of
+ states.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class SparseJacobian {
+
+    /** Construct a Jacobian with the given structure and all entries
+     *  equal to zero.
+     *  @param rows For each column, the rows of the entries of that
+     *   column that may be nonzero.
+     *  @exception IllegalArgumentException If a row is out of range.
+     */
+    public SparseJacobian(int[][] rows) {
+        _size = rows.length;
+        _columnStart = new int[_size + 1];
+        for (int j = 0; j < _size; j++) {
+            _columnStart[j + 1] = _columnStart[j] + rows[j].length;
+        }
+        _rowIndex = new int[_columnStart[_size]];
+        _values = new double[_rowIndex.length];
+        for (int j = 0; j < _size; j++) {
+            int[] column = rows[j].clone();
+            Arrays.sort(column);
+            for (int k = 0; k < column.length; k++) {
+                if (column[k] < 0 || column[k] >= _size) {
+                    throw new IllegalArgumentException("Row " + column[k]
+                            + " of column " + j + " is out of range.");
+                }
+                _rowIndex[_columnStart[j] + k] = column[k];
+            }
+        }
+        _transpose();
+        _findBlocks();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Factor the matrix <i>W</i> = <i>I</i> - <i>scale</i>*<i>J</i>
+     *  for subsequent calls to solve().
+     *  @param scale The factor that multiplies the Jacobian.
+     *  @return True if <i>W</i> is nonsingular, false otherwise,
+     *   in which case solve() cannot be called until factor()
+     *   succeeds.
+     *  @see #solve(double[])
+     */
+    public boolean factor(double scale) {
+        _scale = scale;
+        _factored = false;
+        for (int block = 0; block < _blockCount; block++) {
+            int first = _blockStart[block];
+            int size = _blockStart[block + 1] - first;
+            double[] lu = _lu[block];
+            int[] pivots = _pivots[block];
+            Arrays.fill(lu, 0.0);
+            for (int q = 0; q < size; q++) {
+                lu[q * size + q] = 1.0;
+                int j = _blockStates[first + q];
+                for (int k = _columnStart[j]; k < _columnStart[j + 1]; k++) {
+                    int i = _rowIndex[k];
+                    if (_block[i] == block) {
+                        lu[_position[i] * size + q] -= scale * _values[k];
+                    }
+                }
+            }
+            for (int c = 0; c < size; c++) {
+                int pivot = c;
+                double maximum = Math.abs(lu[c * size + c]);
+                for (int r = c + 1; r < size; r++) {
+                    double magnitude = Math.abs(lu[r * size + c]);
+                    if (magnitude > maximum) {
+                        maximum = magnitude;
+                        pivot = r;
+                    }
+                }
+                // The negation also catches NaN.
+                if (!(maximum > 0.0)) {
+                    return false;
+                }
+                pivots[c] = pivot;
+                if (pivot != c) {
+                    for (int cc = 0; cc < size; cc++) {
+                        double swap = lu[c * size + cc];
+                        lu[c * size + cc] = lu[pivot * size + cc];
+                        lu[pivot * size + cc] = swap;
+                    }
+                }
+                double diagonal = lu[c * size + c];
+                for (int r = c + 1; r < size; r++) {
+                    double multiplier = lu[r * size + c] / diagonal;
+                    lu[r * size + c] = multiplier;
+                    if (multiplier != 0.0) {
+                        for (int cc = c + 1; cc < size; cc++) {
+                            lu[r * size + cc] -= multiplier
+                                    * lu[c * size + cc];
+                        }
+                    }
+                }
+            }
+        }
+        _factored = true;
+        return true;
+    }
+
+    /** Return the entry at the given row and column.
+     *  @param row The row.
+     *  @param column The column.
+     *  @return The entry, which is zero if it is not in the structure.
+     */
+    public double get(int row, int column) {
+        int k = _find(row, column);
+        if (k < 0) {
+            return 0.0;
+        }
+        return _values[k];
+    }
+
+    /** Return the number of diagonal blocks of the block triangular
+     *  form of <i>W</i>.
+     *  @return The number of diagonal blocks.
+     */
+    public int getBlockCount() {
+        return _blockCount;
+    }
+
+    /** Return the selected columns that have at least one entry in
+     *  the structure, partitioned into groups of columns whose entries
+     *  are in disjoint rows. The columns of a group can be estimated by
+     *  finite differences together. The groups are formed greedily,
+     *  in the order of the columns.
+     *  @param selected For each column, whether to include it.
+     *  @return The groups of columns.
+     */
+    public int[][] getColumnGroups(boolean[] selected) {
+        int[] group = new int[_size];
+        int[] groupSizes = new int[_size];
+        int[] forbidden = new int[_size];
+        Arrays.fill(group, -1);
+        int groupCount = 0;
+        for (int j = 0; j < _size; j++) {
+            if (!selected[j] || _columnStart[j] == _columnStart[j + 1]) {
+                continue;
+            }
+            // Mark the groups of the columns that share a row with j.
+            for (int k = _columnStart[j]; k < _columnStart[j + 1]; k++) {
+                int i = _rowIndex[k];
+                for (int m = _rowStart[i]; m < _rowStart[i + 1]; m++) {
+                    int other = group[_columnIndex[m]];
+                    if (other >= 0) {
+                        forbidden[other] = j + 1;
+                    }
+                }
+            }
+            int chosen = 0;
+            while (chosen < groupCount && forbidden[chosen] == j + 1) {
+                chosen++;
+            }
+            group[j] = chosen;
+            groupSizes[chosen]++;
+            if (chosen == groupCount) {
+                groupCount++;
+            }
+        }
+        int[][] result = new int[groupCount][];
+        for (int g = 0; g < groupCount; g++) {
+            result[g] = new int[groupSizes[g]];
+            groupSizes[g] = 0;
+        }
+        for (int j = 0; j < _size; j++) {
+            if (group[j] >= 0) {
+                result[group[j]][groupSizes[group[j]]++] = j;
+            }
+        }
+        return result;
+    }
+
+    /** Return the rows of the entries of the given column that are in
+     *  the structure, in increasing order.
+     *  @param column The column.
+     *  @return The rows of the column.
+     */
+    public int[] getRows(int column) {
+        int[] result = new int[_columnStart[column + 1]
+                - _columnStart[column]];
+        System.arraycopy(_rowIndex, _columnStart[column], result, 0,
+                result.length);
+        return result;
+    }
+
+    /** Return the number of rows and columns of the matrix.
+     *  @return The number of states.
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /** Set the entry at the given row and column. This does not affect
+     *  the factorization until factor() is called again.
+     *  @param row The row.
+     *  @param column The column.
+     *  @param value The new value of the entry.
+     *  @exception IllegalArgumentException If the entry is not in the
+     *   structure of the matrix.
+     */
+    public void set(int row, int column, double value) {
+        int k = _find(row, column);
+        if (k < 0) {
+            throw new IllegalArgumentException("Entry (" + row + ", "
+                    + column + ") is not in the structure of the matrix.");
+        }
+        _values[k] = value;
+    }
+
+    /** Solve <i>W</i>*<i>x</i> = <i>b</i> using the factorization
+     *  computed by the last call to factor().
+     *  @param vector The vector <i>b</i> on entry and <i>x</i> on
+     *   return. Only its first getSize() elements are used.
+     *  @exception IllegalStateException If there is no factorization.
+     *  @see #factor(double)
+     */
+    public void solve(double[] vector) {
+        if (!_factored) {
+            throw new IllegalStateException("The matrix is not factored.");
+        }
+        // The blocks are in an order where each block depends only on
+        // the blocks before it.
+        for (int block = 0; block < _blockCount; block++) {
+            int first = _blockStart[block];
+            int size = _blockStart[block + 1] - first;
+            double[] lu = _lu[block];
+            int[] pivots = _pivots[block];
+            for (int p = 0; p < size; p++) {
+                _work[p] = vector[_blockStates[first + p]];
+            }
+            for (int c = 0; c < size; c++) {
+                int pivot = pivots[c];
+                if (pivot != c) {
+                    double swap = _work[c];
+                    _work[c] = _work[pivot];
+                    _work[pivot] = swap;
+                }
+            }
+            for (int r = 1; r < size; r++) {
+                double sum = _work[r];
+                for (int c = 0; c < r; c++) {
+                    sum -= lu[r * size + c] * _work[c];
+                }
+                _work[r] = sum;
+            }
+            for (int r = size - 1; r >= 0; r--) {
+                double sum = _work[r];
+                for (int c = r + 1; c < size; c++) {
+                    sum -= lu[r * size + c] * _work[c];
+                }
+                _work[r] = sum / lu[r * size + r];
+            }
+            // Move the entries of this block to the right-hand side of
+            // the blocks that depend on it.
+            for (int p = 0; p < size; p++) {
+                int j = _blockStates[first + p];
+                double x = _work[p];
+                vector[j] = x;
+                if (x != 0.0) {
+                    for (int k = _columnStart[j]; k < _columnStart[j + 1]; k++) {
+                        int i = _rowIndex[k];
+                        if (_block[i] != block) {
+                            vector[i] += _scale * _values[k] * x;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return the index of the given entry in the values array, or -1
+     *  if it is not in the structure.
+     */
+    private int _find(int row, int column) {
+        int low = _columnStart[column];
+        int high = _columnStart[column + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (_rowIndex[middle] < row) {
+                low = middle + 1;
+            } else if (_rowIndex[middle] > row) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /** Find the strongly connected components of the dependency graph
+     *  with Tarjan's algorithm, without recursion. A component is
+     *  completed only after all the components that it depends on, so
+     *  the components are found in an order in which they can be solved.
+     */
+    private void _findBlocks() {
+        int[] index = new int[_size];
+        int[] low = new int[_size];
+        int[] stack = new int[_size];
+        int[] calls = new int[_size];
+        int[] edges = new int[_size];
+        boolean[] onStack = new boolean[_size];
+        Arrays.fill(index, -1);
+
+        _block = new int[_size];
+        _position = new int[_size];
+        _blockStates = new int[_size];
+        int[] blockStart = new int[_size + 1];
+        int counter = 0;
+        int stackSize = 0;
+        int found = 0;
+        _blockCount = 0;
+        int largest = 0;
+
+        for (int start = 0; start < _size; start++) {
+            if (index[start] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            index[start] = counter;
+            low[start] = counter++;
+            stack[stackSize++] = start;
+            onStack[start] = true;
+            calls[depth] = start;
+            edges[depth++] = _rowStart[start];
+            while (depth > 0) {
+                int v = calls[depth - 1];
+                if (edges[depth - 1] < _rowStart[v + 1]) {
+                    int w = _columnIndex[edges[depth - 1]++];
+                    if (index[w] < 0) {
+                        index[w] = counter;
+                        low[w] = counter++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        calls[depth] = w;
+                        edges[depth++] = _rowStart[w];
+                    } else if (onStack[w] && index[w] < low[v]) {
+                        low[v] = index[w];
+                    }
+                } else {
+                    depth--;
+                    if (depth > 0) {
+                        int u = calls[depth - 1];
+                        if (low[v] < low[u]) {
+                            low[u] = low[v];
+                        }
+                    }
+                    if (low[v] == index[v]) {
+                        blockStart[_blockCount] = found;
+                        int w;
+                        do {
+                            w = stack[--stackSize];
+                            onStack[w] = false;
+                            _block[w] = _blockCount;
+                            _blockStates[found++] = w;
+                        } while (w != v);
+                        largest = Math.max(largest, found
+                                - blockStart[_blockCount]);
+                        _blockCount++;
+                    }
+                }
+            }
+        }
+        blockStart[_blockCount] = found;
+        _blockStart = new int[_blockCount + 1];
+        System.arraycopy(blockStart, 0, _blockStart, 0, _blockCount + 1);
+
+        _lu = new double[_blockCount][];
+        _pivots = new int[_blockCount][];
+        for (int block = 0; block < _blockCount; block++) {
+            int first = _blockStart[block];
+            int size = _blockStart[block + 1] - first;
+            for (int p = 0; p < size; p++) {
+                _position[_blockStates[first + p]] = p;
+            }
+            _lu[block] = new double[size * size];
+            _pivots[block] = new int[size];
+        }
+        _work = new double[largest];
+    }
+
+    /** Build the row-wise copy of the structure, which gives for each
+     *  state the states that its derivative depends on.
+     */
+    private void _transpose() {
+        _rowStart = new int[_size + 1];
+        for (int k = 0; k < _rowIndex.length; k++) {
+            _rowStart[_rowIndex[k] + 1]++;
+        }
+        for (int i = 0; i < _size; i++) {
+            _rowStart[i + 1] += _rowStart[i];
+        }
+        _columnIndex = new int[_rowIndex.length];
+        int[] next = new int[_size];
+        System.arraycopy(_rowStart, 0, next, 0, _size);
+        for (int j = 0; j < _size; j++) {
+            for (int k = _columnStart[j]; k < _columnStart[j + 1]; k++) {
+                _columnIndex[next[_rowIndex[k]]++] = j;
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The diagonal block of each state. */
+    private int[] _block;
+
+    /** The number of diagonal blocks. */
+    private int _blockCount;
+
+    /** The index in _blockStates of the first state of each block,
+     *  followed by the number of states.
+     */
+    private int[] _blockStart;
+
+    /** The states of the diagonal blocks, block after block. */
+    private int[] _blockStates;
+
+    /** The column of each entry, in row order. */
+    private int[] _columnIndex;
+
+    /** The index in _rowIndex of the first entry of each column,
+     *  followed by the number of entries.
+     */
+    private int[] _columnStart;
+
+    /** Whether the diagonal blocks are factored. */
+    private boolean _factored;
+
+    /** The LU factors of each diagonal block, stored by rows. */
+    private double[][] _lu;
+
+    /** The row swaps of the factorization of each diagonal block. */
+    private int[][] _pivots;
+
+    /** The position of each state in its diagonal block. */
+    private int[] _position;
+
+    /** The row of each entry, in column order. */
+    private int[] _rowIndex;
+
+    /** The index in _columnIndex of the first entry of each row,
+     *  followed by the number of entries.
+     */
+    private int[] _rowStart;
+
+    /** The factor that multiplies the Jacobian in the factorization. */
+    private double _scale;
+
+    /** The number of states. */
+    private int _size;
+
+    /** The values of the entries, in column order. */
+    private double[] _values;
+
+    /** Work space for a diagonal block during solve(). */
+    private double[] _work;
+}
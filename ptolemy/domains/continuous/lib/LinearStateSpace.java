@@ -40,6 +40,8 @@ import ptolemy.actor.lib.Scale;
 import ptolemy.data.DoubleMatrixToken;
 import ptolemy.data.expr.Parameter;
 import ptolemy.data.type.BaseType;
+import ptolemy.domains.continuous.kernel.ContinuousIntegrator;
+import ptolemy.domains.continuous.kernel.ContinuousJacobianProvider;
 import ptolemy.kernel.CompositeEntity;
 import ptolemy.kernel.util.Attribute;
 import ptolemy.kernel.util.IllegalActionException;
@@ -77,6 +79,8 @@ import ptolemy.kernel.util.Workspace;
  the actor will create a subsystem using integrators, adders, and
  scales. After that, the actor becomes transparent, and the director
  takes over the control of the actors contained by this actor.
+ The actor provides the <i>A</i> matrix to implicit ODE solvers
+ as the partial derivatives of the integrators that it creates.
  <P>
  This actor is based on the
  ptolemy.domains.ct.lib.LinearStateSpace actor by Jie Liu.
@@ -87,7 +91,8 @@ import ptolemy.kernel.util.Workspace;
  @Pt.ProposedRating Red (liuj)
  @Pt.AcceptedRating Red (cxh)
  */
-public class LinearStateSpace extends TypedCompositeActor {
+public class LinearStateSpace extends TypedCompositeActor implements
+        ContinuousJacobianProvider {
     /** Construct the composite actor with a name and a container.
      *  This constructor creates the ports, parameters, and the icon.
      * @param container The container.
@@ -238,6 +243,30 @@ public class LinearStateSpace extends TypedCompositeActor {
         }
     }
 
+    /** Return the element of the <i>A</i> matrix that is the partial
+     *  derivative of the derivative input of the first integrator with
+     *  respect to the state of the second, if both are integrators
+     *  created by this actor. Otherwise, return NaN.
+     *  @param derivative The integrator whose derivative input is
+     *   differentiated.
+     *  @param state The integrator whose state it is differentiated
+     *   with respect to.
+     *  @return The element of the <i>A</i> matrix, or NaN.
+     *  @exception IllegalActionException If the <i>A</i> matrix
+     *   cannot be evaluated.
+     */
+    public double getPartialDerivative(ContinuousIntegrator derivative,
+            ContinuousIntegrator state) throws IllegalActionException {
+        int row = _stateIndex(derivative);
+        int column = _stateIndex(state);
+        DoubleMatrixToken a = (DoubleMatrixToken) A.getToken();
+        if (row < 0 || column < 0 || row >= a.getRowCount()
+                || column >= a.getColumnCount()) {
+            return Double.NaN;
+        }
+        return a.getElementAt(row, column);
+    }
+
     /** Return the executive director, regardless what isOpaque() returns.
      *  //FIXME: this is not what this method does!!!
      *  @return the executive director.
@@ -559,6 +588,21 @@ public class LinearStateSpace extends TypedCompositeActor {
         _opaque = true;
     }
 
+    /** Return the index of the given integrator if it is one of the
+     *  integrators created by preinitialize(), and -1 otherwise.
+     */
+    private int _stateIndex(ContinuousIntegrator integrator) {
+        String name = integrator.getName();
+        if (integrator.getContainer() != this || !name.startsWith("state_")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(6));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
     // opaqueness.
@@ -0,0 +1,284 @@
+/* Measure the actor firings per discrete event in hybrid models.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.continuous.test;
+
+import java.io.File;
+import java.util.Iterator;
+
+import ptolemy.actor.CompositeActor;
+import ptolemy.actor.Director;
+import ptolemy.actor.Executable;
+import ptolemy.actor.Initializable;
+import ptolemy.actor.Manager;
+import ptolemy.actor.SuperdenseTimeDirector;
+import ptolemy.actor.lib.NonStrictTest;
+import ptolemy.actor.util.Time;
+import ptolemy.data.BooleanToken;
+import ptolemy.domains.continuous.kernel.ContinuousDirector;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.Workspace;
+import ptolemy.moml.MoMLParser;
+import ptolemy.moml.filter.BackwardCompatibility;
+
+///////////////////////////////////////////////////////////////////
+//// EventLocationBenchmark
+
+/**
+ Measure the cost of locating the discrete events of hybrid models
+ under the Continuous director. For each model, the benchmark counts
+ the firings of the actors, as recorded by the execution metrics of
+ the manager, and the discrete events, which are the model times at
+ which the top-level director iterates with a nonzero microstep.
+ The number of firings per event includes the firings in the steps
+ that were tried and rolled back while the times of the events were
+ being located. Each model is run twice, once with the
+ denseOutputEventLocation parameter of its top-level Continuous
+ director set to false, which repeats the steps that overshoot an
+ event, and once with it set to true, which locates the events on the
+ dense output of the solver. In the second run, the test actors of
+ the model are put in training mode, because their reference values
+ were recorded with the default event location.
+ <p>
+ To run:
+ <pre>
+ cd $PTII/ptolemy/domains/continuous/test
+ java -classpath $PTII ptolemy.domains.continuous.test.EventLocationBenchmark [model.xml ...]
+ </pre>
+ The default models are hybrid models in the auto directory.
+ For each model and each value of the parameter, the benchmark reports the number of firings, the
+ number of events, the firings per event and the average time to
+ execute the model.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class EventLocationBenchmark implements Executable {
+    /** Create a benchmark that counts the events of the model with
+     *  the given director.
+     *  @param director The top-level director of the model.
+     */
+    public EventLocationBenchmark(Director director) {
+        _director = director;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Do nothing.
+     *  @param initializable Ignored.
+     */
+    public void addInitializable(Initializable initializable) {
+    }
+
+    /** Do nothing.
+     */
+    public void fire() {
+    }
+
+    /** Do nothing.
+     */
+    public void initialize() {
+    }
+
+    /** Return true.
+     *  @return True.
+     */
+    public boolean isFireFunctional() {
+        return true;
+    }
+
+    /** Return false.
+     *  @return False.
+     */
+    public boolean isStrict() {
+        return false;
+    }
+
+    /** Return COMPLETED.
+     *  @param count The number of iterations.
+     *  @return COMPLETED.
+     */
+    public int iterate(int count) {
+        return Executable.COMPLETED;
+    }
+
+    /** Run the benchmark and print the results to standard out.
+     *  @param args The names of MoML files, or no arguments to use
+     *   the default models.
+     *  @exception Exception If a model cannot be loaded or executed.
+     */
+    public static void main(String[] args) throws Exception {
+        MoMLParser.setMoMLFilters(BackwardCompatibility.allFilters());
+        if (args.length == 0) {
+            args = _DEFAULT_MODELS;
+        }
+        for (int i = 0; i < args.length; i++) {
+            run(args[i], false);
+            run(args[i], true);
+        }
+    }
+
+    /** Count an event if the top-level director is at a nonzero
+     *  microstep at a model time at which no event has been counted.
+     *  This is invoked before the postfire() method of the model.
+     *  @return True.
+     *  @exception IllegalActionException Not thrown in this class.
+     */
+    public boolean postfire() throws IllegalActionException {
+        if (_director instanceof SuperdenseTimeDirector
+                && ((SuperdenseTimeDirector) _director).getIndex() > 0) {
+            Time time = _director.getModelTime();
+            if (!time.equals(_lastEventTime)) {
+                _events++;
+                _lastEventTime = time;
+            }
+        }
+        return true;
+    }
+
+    /** Return true.
+     *  @return True.
+     */
+    public boolean prefire() {
+        return true;
+    }
+
+    /** Do nothing.
+     */
+    public void preinitialize() {
+    }
+
+    /** Do nothing.
+     *  @param initializable Ignored.
+     */
+    public void removeInitializable(Initializable initializable) {
+    }
+
+    /** Load and execute the specified model a number of times and
+     *  print the counts of the last execution and the average time.
+     *  @param fileName The name of the MoML file.
+     *  @param denseOutputEventLocation The value of the
+     *   denseOutputEventLocation parameter of the top-level director,
+     *   if it is a ContinuousDirector.
+     *  @exception Exception If the model cannot be loaded or executed.
+     */
+    public static void run(String fileName, boolean denseOutputEventLocation)
+            throws Exception {
+        long time = 0L;
+        long firings = 0L;
+        int events = 0;
+        for (int run = 0; run < _WARMUP_RUNS + _RUNS; run++) {
+            MoMLParser parser = new MoMLParser(new Workspace());
+            CompositeActor model = (CompositeActor) parser.parse(null,
+                    new File(fileName).toURI().toURL());
+            if (model.getDirector() instanceof ContinuousDirector) {
+                ((ContinuousDirector) model.getDirector()).denseOutputEventLocation
+                        .setToken(new BooleanToken(denseOutputEventLocation));
+            }
+            if (denseOutputEventLocation) {
+                // The reference values of the test actors were recorded
+                // with the step-repeating event location, so only
+                // collect the values.
+                Iterator actors = model.allAtomicEntityList().iterator();
+                while (actors.hasNext()) {
+                    Object actor = actors.next();
+                    if (actor instanceof NonStrictTest) {
+                        ((NonStrictTest) actor).trainingMode
+                                .setToken(BooleanToken.TRUE);
+                    }
+                }
+            }
+            Manager manager = new Manager(model.workspace(), "manager");
+            model.setManager(manager);
+            manager.enableExecutionMetrics(true);
+            EventLocationBenchmark benchmark = new EventLocationBenchmark(
+                    model.getDirector());
+            model.addPiggyback(benchmark);
+            long start = System.nanoTime();
+            manager.execute();
+            if (run >= _WARMUP_RUNS) {
+                time += System.nanoTime() - start;
+            }
+            firings = manager.getExecutionMetrics().getTotalFirings();
+            events = benchmark._events;
+            manager.enableExecutionMetrics(false);
+        }
+        double perEvent = events == 0 ? 0.0 : (double) firings / events;
+        System.out.println(fileName + " (denseOutputEventLocation "
+                + denseOutputEventLocation + "): " + firings + " firings, " + events
+                + " events, " + Math.round(perEvent * 10.0) / 10.0
+                + " firings/event, " + (time / _RUNS / 1000000L) + " ms");
+    }
+
+    /** Do nothing.
+     */
+    public void stop() {
+    }
+
+    /** Do nothing.
+     */
+    public void stopFire() {
+    }
+
+    /** Do nothing.
+     */
+    public void terminate() {
+    }
+
+    /** Do nothing.
+     */
+    public void wrapup() {
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The models that are run if no models are given. */
+    private static final String[] _DEFAULT_MODELS = {
+            "auto/BouncingBall.xml", "auto/Hysteresis.xml",
+            "auto/NewtonsCradle.xml", "auto/SinuBouncingBall.xml",
+            "auto/Thermostat.xml" };
+
+    /** The number of measured runs. */
+    private static final int _RUNS = 5;
+
+    /** The number of runs to warm up the JIT compiler. */
+    private static final int _WARMUP_RUNS = 2;
+
+    /** The top-level director of the model. */
+    private Director _director;
+
+    /** The number of events. */
+    private int _events;
+
+    /** The model time of the last event. */
+    private Time _lastEventTime;
+}
@@ -482,7 +482,7 @@ public class DDEDirector extends CompositeProcessDirector implements
      */
     protected ProcessThread _newProcessThread(Actor actor,
             ProcessDirector director) throws IllegalActionException {
-        return new DDEThread(actor, director);
+        return new DDEThread(actor, director, _getThreadStackSize());
     }
 
     /**
@@ -73,7 +73,22 @@ public class DDEThread extends ProcessThread {
      */
     public DDEThread(Actor actor, ProcessDirector director)
             throws IllegalActionException {
-        super(actor, director);
+        this(actor, director, 0L);
+    }
+
+    /** Construct a thread with the specified stack size to be used
+     *  to execute the iteration methods of a DDEActor. This increases
+     *  the count of active actors in the director.
+     * @param actor The DDEActor that will be executed.
+     * @param director The director of this actor.
+     * @param stackSize The requested stack size in bytes, or 0 to use
+     *  the default stack size.
+     * @exception IllegalActionException If thrown while create a new
+     * TimeKeeper.
+     */
+    public DDEThread(Actor actor, ProcessDirector director, long stackSize)
+            throws IllegalActionException {
+        super(actor, director, stackSize);
         _timeKeeper = new TimeKeeper(actor);
     }
 
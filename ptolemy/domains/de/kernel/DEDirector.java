@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.Set;
 
 import ptolemy.actor.Actor;
+import ptolemy.actor.ActorMetrics;
 import ptolemy.actor.CompositeActor;
 import ptolemy.actor.Director;
 import ptolemy.actor.FiringEvent;
@@ -50,6 +51,7 @@ import ptolemy.data.DoubleToken;
 import ptolemy.data.IntToken;
 import ptolemy.data.Token;
 import ptolemy.data.expr.Parameter;
+import ptolemy.data.expr.StringParameter;
 import ptolemy.data.type.BaseType;
 import ptolemy.domains.modal.kernel.Suspendable;
 import ptolemy.kernel.CompositeEntity;
@@ -194,8 +196,14 @@ import ptolemy.kernel.util.Workspace;
  execution when there are no more events, set the
  <i>stopWhenQueueIsEmpty</i> parameter to <code>false</code>.
  </p><p>
- Parameters <i>isCQAdaptive</i>, <i>minBinCount</i>, and
- <i>binCountFactor</i>, are used to configure the calendar queue.
+ The <i>eventQueue</i> parameter selects the implementation of the
+ event queue. The default, "DECQEventQueue", is a calendar queue
+ (see {@link DECQEventQueue}). Parameters <i>isCQAdaptive</i>,
+ <i>minBinCount</i>, and <i>binCountFactor</i>, are used to configure
+ the calendar queue. The alternative, "DEHeapEventQueue", is an
+ array-backed heap that compares events by primitive sort keys and
+ does not allocate per event (see {@link DEHeapEventQueue}).
+ It is usually faster for models that process many events.
  Changes to these parameters are ignored when the model is running.
  </p><p>
  If the parameter <i>synchronizeToRealTime</i> is set to <code>true</code>,
@@ -297,6 +305,14 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
      */
     public Parameter enforceMicrostepSemantics;
 
+    /** The implementation of the event queue, which is one of
+     *  "DECQEventQueue" (a calendar queue) or "DEHeapEventQueue"
+     *  (an array-backed heap that does not allocate per event).
+     *  Changes to this parameter are ignored when the model is running.
+     *  The value defaults to "DECQEventQueue".
+     */
+    public StringParameter eventQueue;
+
     /** Specify whether the calendar queue adjusts its bin number
      *  at run time. This parameter must contain a BooleanToken.
      *  If this parameter is true, the calendar queue will adapt
@@ -1254,10 +1270,18 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
      */
     public void preinitialize() throws IllegalActionException {
         // Initialize an event queue.
-        _eventQueue = new DECQEventQueue(
-                ((IntToken) minBinCount.getToken()).intValue(),
-                ((IntToken) binCountFactor.getToken()).intValue(),
-                ((BooleanToken) isCQAdaptive.getToken()).booleanValue());
+        String eventQueueClassName = eventQueue.stringValue().trim();
+        if (eventQueueClassName.equals("DEHeapEventQueue")) {
+            _eventQueue = new DEHeapEventQueue();
+        } else if (eventQueueClassName.equals("DECQEventQueue")) {
+            _eventQueue = new DECQEventQueue(
+                    ((IntToken) minBinCount.getToken()).intValue(),
+                    ((IntToken) binCountFactor.getToken()).intValue(),
+                    ((BooleanToken) isCQAdaptive.getToken()).booleanValue());
+        } else {
+            throw new IllegalActionException(this, "Unrecognized event "
+                    + "queue: " + eventQueueClassName);
+        }
         
         // There is no accumulated suspend time.
         _accumulatedSuspendTime = null;
@@ -1822,10 +1846,25 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
             _debug("****** Actor to fire: " + actorToFire.getFullName());
         }
 
+        _fireActor(actorToFire);
+        return 0;
+    }
+
+    /** Fire the specified actor repeatedly (prefire(), fire() and postfire())
+     *  until either it has no more input tokens, or its prefire() method
+     *  returns false. If the actor is no longer contained by the container
+     *  of this director, or if its postfire() method returns false, then
+     *  disable the actor. This method is called by _fire() after the
+     *  model tag has been advanced to that of the events for the actor.
+     *  @param actorToFire The actor to fire.
+     *  @exception IllegalActionException If the actor throws it.
+     */
+    protected void _fireActor(Actor actorToFire) throws IllegalActionException {
         // Keep firing the actor to be fired until there are no more input
         // tokens available in any of its input ports with the same tag, or its prefire()
         // method returns false.
         boolean refire;
+        ActorMetrics metrics = _getActorMetrics(actorToFire);
 
         do {
             refire = false;
@@ -1848,7 +1887,13 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
                 _debug(new FiringEvent(this, actorToFire,
                         FiringEvent.BEFORE_PREFIRE));
 
-                if (!actorToFire.prefire()) {
+                long time = metrics == null ? 0L : metrics.startFiring();
+                boolean prefireReturns = actorToFire.prefire();
+                if (metrics != null) {
+                    metrics.recordPrefire(time);
+                }
+
+                if (!prefireReturns) {
                     _debug("*** Prefire returned false.");
                     break;
                 }
@@ -1858,14 +1903,28 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
 
                 _debug(new FiringEvent(this, actorToFire,
                         FiringEvent.BEFORE_FIRE));
+                if (metrics != null) {
+                    time = metrics.resumeTiming(time);
+                }
                 actorToFire.fire();
+                if (metrics != null) {
+                    metrics.recordFire(time);
+                }
                 _debug(new FiringEvent(this, actorToFire,
                         FiringEvent.AFTER_FIRE));
 
                 _debug(new FiringEvent(this, actorToFire,
                         FiringEvent.BEFORE_POSTFIRE));
 
-                if (!actorToFire.postfire()) {
+                if (metrics != null) {
+                    time = metrics.resumeTiming(time);
+                }
+                boolean postfireReturns = actorToFire.postfire();
+                if (metrics != null) {
+                    metrics.recordPostfire(time);
+                }
+
+                if (!postfireReturns) {
                     _debug("*** Postfire returned false:",
                             ((Nameable) actorToFire).getName());
 
@@ -1887,18 +1946,32 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
                     break;
                 }
 
-                if (!actorToFire.prefire()) {
+                long time = metrics == null ? 0L : metrics.startFiring();
+                boolean prefireReturns = actorToFire.prefire();
+                if (metrics != null) {
+                    time = metrics.recordPrefire(time);
+                }
+
+                if (!prefireReturns) {
                     break;
                 }
 
                 actorToFire.fire();
+                if (metrics != null) {
+                    time = metrics.recordFire(time);
+                }
 
                 // NOTE: It is the fact that we postfire actors now that makes
                 // this director not comply with the actor abstract semantics.
                 // However, it's quite a redesign to make it comply, and the
                 // semantics would not be backward compatible. It really needs
                 // to be a new director to comply.
-                if (!actorToFire.postfire()) {
+                boolean postfireReturns = actorToFire.postfire();
+                if (metrics != null) {
+                    metrics.recordPostfire(time);
+                }
+
+                if (!postfireReturns) {
                     // This actor requests not to be fired again.
                     _disableActor(actorToFire);
                     break;
@@ -1938,7 +2011,6 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
         // for example if the actor makes a change request, as for example
         // an FSM actor will do.  This will prevent subsequent firings,
         // incorrectly.
-        return 0;
     }
 
     /** Request a firing of the container of this director at the specified time
@@ -2452,8 +2524,6 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
     private void _initParameters() {
         _verbose = true;
         try {
-            
-            _zeroTime = new Time(this, 0.0);
 
             startTime = new Parameter(this, "startTime");
             startTime.setTypeEquals(BaseType.DOUBLE);
@@ -2485,6 +2555,12 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
             binCountFactor.setTypeEquals(BaseType.INT);
             binCountFactor.setVisibility(Settable.EXPERT);
 
+            eventQueue = new StringParameter(this, "eventQueue");
+            eventQueue.setExpression("DECQEventQueue");
+            eventQueue.addChoice("DECQEventQueue");
+            eventQueue.addChoice("DEHeapEventQueue");
+            eventQueue.setVisibility(Settable.EXPERT);
+
             timeResolution.setVisibility(Settable.FULL);
             timeResolution.moveToLast();
             
@@ -2573,9 +2649,6 @@ public class DEDirector extends Director implements SuperdenseTimeDirector,
      *  catch up with model time.
      */
     private boolean _synchronizeToRealTime;
-    
-    /** Time with value 0.0. */
-    private Time _zeroTime;
 
     ///////////////////////////////////////////////////////////////////
     ////                         inner classes                     ////
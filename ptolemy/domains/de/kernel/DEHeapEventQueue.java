@@ -0,0 +1,561 @@
+/* An array-backed binary heap implementation of the DE event queue.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.de.kernel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import ptolemy.actor.util.Time;
+import ptolemy.kernel.util.DebugListener;
+import ptolemy.kernel.util.InvalidStateException;
+
+///////////////////////////////////////////////////////////////////
+//// DEHeapEventQueue
+
+/**
+ An array-backed binary heap implementation of the DE event queue.
+ This queue stores DE events in the order of their timestamps,
+ microsteps, depths and priorities. See
+ {@link DEEventQueue} for more explanation of the order of DE events.
+ <p>
+ Unlike {@link DECQEventQueue}, this queue does not allocate a cell
+ per event and does not compare events through
+ {@link Time#compareTo(Object)}. When an event is put into the queue,
+ its sort key is copied into parallel primitive arrays: the time stamp
+ as a long multiple of the time resolution, and the microstep, depth
+ and priority as ints. The events are stored in a pool of slots that
+ are recycled when events are taken from the queue, and the heap and
+ the index used to reject duplicate events refer to the slots by their
+ int index. Once the arrays have grown to accommodate the largest number
+ of pending events, putting and taking events does not allocate.
+ <p>
+ Time stamps whose multiple of the time resolution is not
+ represented exactly by a long (see {@link Time#isLongValueExact()})
+ are compared by falling back to
+ {@link Time#compareTo(Object)}, so the order of events is the same as
+ the order given by {@link DEEvent#compareTo(DEEvent)}.
+ <p>
+ The complexity of put() and take() is O(log n), and the complexity
+ of get() is O(1).
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see DECQEventQueue
+ */
+public class DEHeapEventQueue implements DEEventQueue {
+    /** Construct an empty event queue.
+     */
+    public DEHeapEventQueue() {
+        this(_DEFAULT_CAPACITY);
+    }
+
+    /** Construct an empty event queue with the specified initial capacity.
+     *  The queue grows as needed beyond this capacity.
+     *  @param initialCapacity The number of events that can be held
+     *   before the internal arrays are grown.
+     */
+    public DEHeapEventQueue(int initialCapacity) {
+        if (initialCapacity < 1) {
+            initialCapacity = 1;
+        }
+        _allocate(initialCapacity);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Append a listener to the current set of debug listeners.
+     *  If the listener is already in the set, do not add it again.
+     *  @param listener A listener to which to send debug messages.
+     *  @see #removeDebugListener(DebugListener)
+     */
+    public void addDebugListener(DebugListener listener) {
+        if (_debugListeners == null) {
+            _debugListeners = new LinkedList<DebugListener>();
+        } else if (_debugListeners.contains(listener)) {
+            return;
+        }
+        _debugListeners.add(listener);
+        _debugging = true;
+    }
+
+    /** Empty the event queue. The arrays that have been allocated
+     *  are kept so that they can be reused.
+     */
+    public synchronized void clear() {
+        Arrays.fill(_events, 0, _slotCount, null);
+        Arrays.fill(_buckets, -1);
+        _size = 0;
+        _slotCount = 0;
+        _freeCount = 0;
+    }
+
+    /** Return the earliest DE event in the queue without removing it
+     *  from the queue.
+     *  @return The earliest DE event in the queue.
+     *  @exception InvalidStateException If the queue is empty.
+     */
+    public final DEEvent get() {
+        if (_size == 0) {
+            throw new InvalidStateException("Queue is empty.");
+        }
+        return _events[_heap[0]];
+    }
+
+    /** Return true if this event queue is empty.
+     *  @return True if there are no event in the queue.
+     */
+    public final boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /** Put an event into the event queue.
+     *  If the given DE event is not in the event queue, enqueue it
+     *  into the event queue and notify all threads
+     *  that are stalled waiting for a DE event to be put in the queue.
+     *  This method is synchronized since there
+     *  may be actors running under different threads in the DE domain.
+     *  @param event The event to enqueue.
+     */
+    public synchronized final void put(DEEvent event) {
+        Time timeStamp = event.timeStamp();
+        boolean exact = _isExact(timeStamp);
+        long time = exact ? timeStamp.getLongValue() : 0L;
+        int microstep = event.microstep();
+        int depth = event.depth();
+        int priority = event._priority;
+        Object actor = event.actor();
+
+        int hash = _hash(time, microstep, depth, priority, actor);
+        int bucket = hash & (_buckets.length - 1);
+
+        // Reject the event if an equal event is already in the queue.
+        for (int slot = _buckets[bucket]; slot >= 0; slot = _nextInBucket[slot]) {
+            if (_hashes[slot] == hash && _microsteps[slot] == microstep
+                    && _depths[slot] == depth
+                    && _priorities[slot] == priority
+                    && _events[slot].actor() == actor
+                    && _exact[slot] == exact
+                    && (exact ? _times[slot] == time : _events[slot]
+                            .timeStamp().compareTo(timeStamp) == 0)) {
+                return;
+            }
+        }
+
+        if (_size == _heap.length) {
+            _grow();
+            bucket = hash & (_buckets.length - 1);
+        }
+
+        int slot;
+        if (_freeCount > 0) {
+            slot = _freeSlots[--_freeCount];
+        } else {
+            slot = _slotCount++;
+        }
+        _events[slot] = event;
+        _times[slot] = time;
+        _exact[slot] = exact;
+        _microsteps[slot] = microstep;
+        _depths[slot] = depth;
+        _priorities[slot] = priority;
+        _hashes[slot] = hash;
+        _nextInBucket[slot] = _buckets[bucket];
+        _buckets[bucket] = slot;
+
+        _siftUp(_size++, slot);
+
+        if (_debugging) {
+            _debug("+++ putting in queue: " + event);
+        }
+        notifyAll();
+    }
+
+    /** Unregister a debug listener.  If the specified listener has not
+     *  been previously registered, then do nothing.
+     *  @param listener The listener to remove from the list of listeners
+     *   to which debug messages are sent.
+     *  @see #addDebugListener(DebugListener)
+     */
+    public void removeDebugListener(DebugListener listener) {
+        if (_debugListeners == null) {
+            return;
+        }
+        _debugListeners.remove(listener);
+        if (_debugListeners.size() == 0) {
+            _debugging = false;
+        }
+    }
+
+    /** Return the size of the event queue.
+     *  @return The size of the event queue.
+     */
+    public final int size() {
+        return _size;
+    }
+
+    /** Dequeue the earliest DE event in this event queue.
+     *  @return The earliest DE event in the queue.
+     *  @exception InvalidStateException If the queue is empty.
+     */
+    public synchronized final DEEvent take() {
+        if (_size == 0) {
+            throw new InvalidStateException("Queue is empty.");
+        }
+        int slot = _heap[0];
+        DEEvent result = _events[slot];
+
+        _size--;
+        if (_size > 0) {
+            _siftDown(0, _heap[_size]);
+        }
+
+        // Remove the slot from its bucket.
+        int bucket = _hashes[slot] & (_buckets.length - 1);
+        int previous = -1;
+        for (int current = _buckets[bucket]; current != slot; current = _nextInBucket[current]) {
+            previous = current;
+        }
+        if (previous < 0) {
+            _buckets[bucket] = _nextInBucket[slot];
+        } else {
+            _nextInBucket[previous] = _nextInBucket[slot];
+        }
+
+        // Return the slot to the pool.
+        _events[slot] = null;
+        _freeSlots[_freeCount++] = slot;
+
+        if (_debugging) {
+            _debug("--- taking from queue: " + result);
+        }
+        return result;
+    }
+
+    /** Return the events currently in the queue as an array,
+     *  sorted from the earliest to the latest.
+     *  @return The events currently in the queue.
+     */
+    public synchronized final Object[] toArray() {
+        DEEvent[] result = new DEEvent[_size];
+        for (int i = 0; i < _size; i++) {
+            result[i] = _events[_heap[i]];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** Describe the contents of the queue as a string.
+     *  @return A string with a comma-separated list of events.
+     */
+    public String toString() {
+        Object[] array = toArray();
+        StringBuffer buffer = new StringBuffer("{");
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(array[i]);
+        }
+        buffer.append("}");
+        return buffer.toString();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Allocate the arrays to hold the given number of events.
+     *  @param capacity The number of events.
+     */
+    private void _allocate(int capacity) {
+        _heap = new int[capacity];
+        _events = new DEEvent[capacity];
+        _times = new long[capacity];
+        _exact = new boolean[capacity];
+        _microsteps = new int[capacity];
+        _depths = new int[capacity];
+        _priorities = new int[capacity];
+        _hashes = new int[capacity];
+        _nextInBucket = new int[capacity];
+        _freeSlots = new int[capacity];
+
+        int bucketCount = 1;
+        while (bucketCount < capacity) {
+            bucketCount <<= 1;
+        }
+        _buckets = new int[bucketCount];
+        Arrays.fill(_buckets, -1);
+    }
+
+    /** Compare the events in the two specified slots.
+     *  @param slot1 The slot of the first event.
+     *  @param slot2 The slot of the second event.
+     *  @return A negative integer, zero, or a positive integer if the
+     *   first event is earlier than, the same as, or later than the second.
+     */
+    private int _compare(int slot1, int slot2) {
+        if (_exact[slot1] && _exact[slot2]) {
+            long time1 = _times[slot1];
+            long time2 = _times[slot2];
+            if (time1 < time2) {
+                return -1;
+            } else if (time1 > time2) {
+                return 1;
+            }
+        } else {
+            int result = _events[slot1].timeStamp().compareTo(
+                    _events[slot2].timeStamp());
+            if (result != 0) {
+                return result;
+            }
+        }
+        if (_microsteps[slot1] != _microsteps[slot2]) {
+            return _microsteps[slot1] < _microsteps[slot2] ? -1 : 1;
+        }
+        if (_depths[slot1] != _depths[slot2]) {
+            return _depths[slot1] < _depths[slot2] ? -1 : 1;
+        }
+        if (_priorities[slot1] != _priorities[slot2]) {
+            return _priorities[slot1] < _priorities[slot2] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /** Send a debug message to all debug listeners that have registered.
+     *  @param message The message.
+     */
+    private void _debug(String message) {
+        if (_debugListeners == null || !_debugging) {
+            return;
+        }
+        Iterator<DebugListener> listeners = _debugListeners.iterator();
+        while (listeners.hasNext()) {
+            listeners.next().message(message);
+        }
+    }
+
+    /** Double the capacity of the arrays and rehash the slots
+     *  into the larger index.
+     */
+    private void _grow() {
+        int capacity = _heap.length * 2;
+        _heap = _copyOf(_heap, capacity);
+        _times = _copyOf(_times, capacity);
+        _microsteps = _copyOf(_microsteps, capacity);
+        _depths = _copyOf(_depths, capacity);
+        _priorities = _copyOf(_priorities, capacity);
+        _hashes = _copyOf(_hashes, capacity);
+        _nextInBucket = _copyOf(_nextInBucket, capacity);
+        _freeSlots = _copyOf(_freeSlots, capacity);
+
+        boolean[] exact = new boolean[capacity];
+        System.arraycopy(_exact, 0, exact, 0, _exact.length);
+        _exact = exact;
+
+        DEEvent[] events = new DEEvent[capacity];
+        System.arraycopy(_events, 0, events, 0, _events.length);
+        _events = events;
+
+        int bucketCount = _buckets.length;
+        while (bucketCount < capacity) {
+            bucketCount <<= 1;
+        }
+        if (bucketCount != _buckets.length) {
+            _buckets = new int[bucketCount];
+            Arrays.fill(_buckets, -1);
+            for (int i = 0; i < _size; i++) {
+                int slot = _heap[i];
+                int bucket = _hashes[slot] & (bucketCount - 1);
+                _nextInBucket[slot] = _buckets[bucket];
+                _buckets[bucket] = slot;
+            }
+        }
+    }
+
+    /** Return true if the specified time stamp can be compared by
+     *  its long multiple of the time resolution. Infinite time stamps
+     *  are represented by Long.MAX_VALUE and Long.MIN_VALUE, so finite
+     *  time stamps with those multiples are not compared as longs.
+     *  @param timeStamp The time stamp.
+     *  @return True if the time stamp is represented exactly by
+     *   {@link Time#getLongValue()}.
+     */
+    private static boolean _isExact(Time timeStamp) {
+        if (timeStamp == null) {
+            return false;
+        }
+        if (timeStamp.isInfinite()) {
+            return true;
+        }
+        if (!timeStamp.isLongValueExact()) {
+            return false;
+        }
+        long value = timeStamp.getLongValue();
+        return value != Long.MAX_VALUE && value != Long.MIN_VALUE;
+    }
+
+    /** Restore the heap order by moving the given slot down the heap
+     *  from the given position.
+     *  @param position The position in the heap that is vacant.
+     *  @param slot The slot to be placed.
+     */
+    private void _siftDown(int position, int slot) {
+        int half = _size >>> 1;
+        while (position < half) {
+            int child = (position << 1) + 1;
+            int right = child + 1;
+            if (right < _size && _compare(_heap[right], _heap[child]) < 0) {
+                child = right;
+            }
+            if (_compare(slot, _heap[child]) <= 0) {
+                break;
+            }
+            _heap[position] = _heap[child];
+            position = child;
+        }
+        _heap[position] = slot;
+    }
+
+    /** Restore the heap order by moving the given slot up the heap
+     *  from the given position.
+     *  @param position The position in the heap that is vacant.
+     *  @param slot The slot to be placed.
+     */
+    private void _siftUp(int position, int slot) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (_compare(slot, _heap[parent]) >= 0) {
+                break;
+            }
+            _heap[position] = _heap[parent];
+            position = parent;
+        }
+        _heap[position] = slot;
+    }
+
+    /** Return a copy of the array with the given length.
+     *  @param array The array to copy.
+     *  @param length The length of the copy.
+     *  @return The copy.
+     */
+    private static int[] _copyOf(int[] array, int length) {
+        int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /** Return a copy of the array with the given length.
+     *  @param array The array to copy.
+     *  @param length The length of the copy.
+     *  @return The copy.
+     */
+    private static long[] _copyOf(long[] array, int length) {
+        long[] result = new long[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /** Return the hash of the sort key and the destination actor.
+     *  Events that are equal according to {@link DEEvent#equals(Object)}
+     *  have the same hash.
+     */
+    private static int _hash(long time, int microstep, int depth,
+            int priority, Object actor) {
+        int hash = (int) (time ^ (time >>> 32));
+        hash = 31 * hash + microstep;
+        hash = 31 * hash + depth;
+        hash = 31 * hash + priority;
+        hash = 31 * hash + System.identityHashCode(actor);
+        // Spread the high bits, since the hash is masked.
+        return hash ^ (hash >>> 16);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The default initial capacity. */
+    private static final int _DEFAULT_CAPACITY = 64;
+
+    /** The head of the chain of slots for each bucket of the index,
+     *  or -1 if the bucket is empty.
+     */
+    private int[] _buckets;
+
+    /** The list of DebugListeners registered with this object. */
+    private LinkedList<DebugListener> _debugListeners = null;
+
+    /** A flag indicating whether there are debug listeners. */
+    private boolean _debugging;
+
+    /** The depth of the event in each slot. */
+    private int[] _depths;
+
+    /** The event in each slot, or null if the slot is free. */
+    private DEEvent[] _events;
+
+    /** True if the time stamp of the event in the slot is represented
+     *  exactly by the long in _times.
+     */
+    private boolean[] _exact;
+
+    /** The number of slots in _freeSlots. */
+    private int _freeCount;
+
+    /** The slots that have been released by take() and can be reused. */
+    private int[] _freeSlots;
+
+    /** The hash of the event in each slot. */
+    private int[] _hashes;
+
+    /** The slots of the queued events, in heap order. */
+    private int[] _heap;
+
+    /** The microstep of the event in each slot. */
+    private int[] _microsteps;
+
+    /** The next slot in the same bucket of the index, or -1. */
+    private int[] _nextInBucket;
+
+    /** The priority of the event in each slot. */
+    private int[] _priorities;
+
+    /** The number of events in the queue. */
+    private int _size;
+
+    /** The number of slots that have ever been used. */
+    private int _slotCount;
+
+    /** The time stamp of the event in each slot, as a multiple of
+     *  the time resolution.
+     */
+    private long[] _times;
+}
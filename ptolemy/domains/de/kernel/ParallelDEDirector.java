@@ -0,0 +1,561 @@
+/* A DE director that fires independent actors in parallel.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.de.kernel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import ptolemy.actor.Actor;
+import ptolemy.actor.IOPort;
+import ptolemy.actor.util.Time;
+import ptolemy.data.IntToken;
+import ptolemy.data.expr.Parameter;
+import ptolemy.data.type.BaseType;
+import ptolemy.kernel.CompositeEntity;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.InternalErrorException;
+import ptolemy.kernel.util.KernelException;
+import ptolemy.kernel.util.NameDuplicationException;
+import ptolemy.kernel.util.Settable;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// ParallelDEDirector
+
+/**
+ A discrete-event director that fires independent actors in parallel.
+ This director has the same semantics as its base class, {@link DEDirector},
+ but when several actors have events with the same tag, it fires
+ those actors concurrently in a pool of threads whenever it can
+ determine that doing so gives the same result as firing them
+ one at a time in the order given by the event queue.
+ <p>
+ When the director finds an actor to fire, it also takes from the
+ event queue the events that immediately follow, have the same tag,
+ and are destined for other actors that are independent of
+ the actors found so far. It stops at the first event that does not
+ satisfy these conditions. An actor B is independent of an actor A
+ if no output of A can reach an input of B with zero delay, vice
+ versa, and no output of A or B can reach, with zero delay, an input
+ of an actor that an output of the other can also reach. The last
+ condition ensures that events from A and B arrive at a common
+ downstream actor in the same order as with DEDirector. Independence
+ is determined using the
+ {@link ptolemy.actor.util.CausalityInterface} of each actor along
+ the path, in the same way as the depths that sort simultaneous events
+ are computed. Since a firing of A cannot produce an input for B
+ at the current tag, it does not matter whether A or B fires first,
+ and the results are the same as those of DEDirector. The first actor
+ is fired in the calling thread, and the others are fired in the pool.
+ The director waits for all of the firings to complete before
+ processing the next event.
+ <p>
+ Firing actors in parallel requires that the actors do not share state
+ other than through their ports. Actors that, for example, write to the
+ same file, set the same parameter, or display in the same window
+ may interleave their side effects differently from one run to the next.
+ For such models, use DEDirector.
+ <p>
+ The <i>numberOfThreads</i> parameter gives the size of the pool.
+ The default value, 0, means to use as many threads as there are
+ processors available to the Java virtual machine. A value of 1
+ fires the actors one at a time, exactly as DEDirector does.
+ When debug listeners are attached to this director,
+ actors are also fired one at a time, so that the debug
+ messages appear in a deterministic order.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class ParallelDEDirector extends DEDirector {
+    /** Construct a director in the default workspace with an empty string
+     *  as its name. The director is added to the list of objects in
+     *  the workspace. Increment the version number of the workspace.
+     */
+    public ParallelDEDirector() {
+        super();
+        _initParameters();
+    }
+
+    /** Construct a director in the workspace with an empty name.
+     *  The director is added to the list of objects in the workspace.
+     *  Increment the version number of the workspace.
+     *  @param workspace The workspace of this object.
+     */
+    public ParallelDEDirector(Workspace workspace) {
+        super(workspace);
+        _initParameters();
+    }
+
+    /** Construct a director in the given container with the given name.
+     *  The container argument must not be null, or a
+     *  NullPointerException will be thrown.
+     *  If the name argument is null, then the name is set to the
+     *  empty string. Increment the version number of the workspace.
+     *  @param container Container of the director.
+     *  @param name Name of this director.
+     *  @exception IllegalActionException If the
+     *   director is not compatible with the specified container.
+     *  @exception NameDuplicationException If the container not a
+     *   CompositeActor and the name collides with an entity in the container.
+     */
+    public ParallelDEDirector(CompositeEntity container, String name)
+            throws IllegalActionException, NameDuplicationException {
+        super(container, name);
+        _initParameters();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         parameters                        ////
+
+    /** The number of threads used to fire actors. This parameter
+     *  must contain a non-negative IntToken. The value 0, which is the
+     *  default, means to use the number of available processors.
+     *  Changes to this parameter are ignored when the model is running.
+     */
+    public Parameter numberOfThreads;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Clone the object into the specified workspace. The new object is
+     *  <i>not</i> added to the directory of that workspace (you must do this
+     *  yourself if you want it there).
+     *  The result is an attribute with no container.
+     *  @param workspace The workspace for the cloned object.
+     *  @exception CloneNotSupportedException Not thrown in this base class
+     *  @return The new Attribute.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        ParallelDEDirector newObject = (ParallelDEDirector) super
+                .clone(workspace);
+        newObject._downstream = null;
+        newObject._downstreamVersion = -1;
+        newObject._executor = null;
+        newObject._fireAtLock = new Object();
+        return newObject;
+    }
+
+    /** Request a firing of the given actor at the given model
+     *  time with the given microstep. This overrides the base class
+     *  to ensure that requests made by actors that are being fired
+     *  in parallel are handled one at a time.
+     *  @param actor The actor scheduled to be fired.
+     *  @param time The requested time.
+     *  @param index The microstep.
+     *  @return An instance of Time with value NEGATIVE_INFINITY, or
+     *   if there is an executive director, the time at which the
+     *   container of this director will next be fired
+     *   in response to this request.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    public Time fireAt(Actor actor, Time time, int index)
+            throws IllegalActionException {
+        synchronized (_fireAtLock) {
+            return super.fireAt(actor, time, index);
+        }
+    }
+
+    /** Create the pool of threads that fire actors, unless
+     *  <i>numberOfThreads</i> is 1, and then invoke the initialize()
+     *  method of the base class.
+     *  @exception IllegalActionException If <i>numberOfThreads</i>
+     *   is negative, or if the base class throws it.
+     */
+    public void initialize() throws IllegalActionException {
+        _shutdownExecutor();
+        int threads = ((IntToken) numberOfThreads.getToken()).intValue();
+        if (threads < 0) {
+            throw new IllegalActionException(this,
+                    "numberOfThreads is required to be non-negative. Got "
+                            + threads);
+        }
+        if (threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (threads > 1) {
+            final String name = getFullName();
+            // The calling thread fires one of the actors,
+            // so the pool needs one thread less.
+            _executor = Executors.newFixedThreadPool(threads - 1,
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, name);
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        super.initialize();
+    }
+
+    /** Invoke the wrapup() method of the base class and stop the
+     *  threads that fire actors.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    public void wrapup() throws IllegalActionException {
+        try {
+            super.wrapup();
+        } finally {
+            _shutdownExecutor();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Disable the specified actor. This overrides the base class
+     *  to ensure that the set of disabled actors is not modified
+     *  while it is read by another thread.
+     *  @param actor The actor to disable.
+     */
+    protected void _disableActor(Actor actor) {
+        if (_eventQueue == null) {
+            super._disableActor(actor);
+            return;
+        }
+        synchronized (_eventQueue) {
+            super._disableActor(actor);
+        }
+    }
+
+    /** Put a pure event into the event queue. This overrides the base
+     *  class to ensure that events posted by actors that are being fired
+     *  in parallel are handled one at a time.
+     *  @param actor The actor to be fired.
+     *  @param time The timestamp of the event.
+     *  @param defaultMicrostep If the requested firing time is in the future,
+     *   then use this defaultMicrostep for the microstep.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    protected void _enqueueEvent(Actor actor, Time time, int defaultMicrostep)
+            throws IllegalActionException {
+        if (_eventQueue == null) {
+            return;
+        }
+        synchronized (_eventQueue) {
+            super._enqueueEvent(actor, time, defaultMicrostep);
+        }
+    }
+
+    /** Put a trigger event into the event queue. This overrides the base
+     *  class to ensure that events posted by actors that are being fired
+     *  in parallel are handled one at a time.
+     *  @param ioPort The destination IO port.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    protected void _enqueueTriggerEvent(IOPort ioPort)
+            throws IllegalActionException {
+        if (_eventQueue == null) {
+            return;
+        }
+        synchronized (_eventQueue) {
+            super._enqueueTriggerEvent(ioPort);
+        }
+    }
+
+    /** Fire the specified actor together with the actors of the
+     *  events that immediately follow in the event queue, have the
+     *  current tag, and are destined for actors that are independent
+     *  of the actors already selected. The specified actor is fired in
+     *  the calling thread, and the others are fired in the pool of
+     *  threads. This method returns when all the firings are complete.
+     *  If there is no pool of threads, or if there are debug listeners,
+     *  then just fire the specified actor as in the base class.
+     *  @param actorToFire The actor to fire.
+     *  @exception IllegalActionException If any of the actors throws it,
+     *   or if a firing is interrupted.
+     */
+    protected void _fireActor(Actor actorToFire) throws IllegalActionException {
+        if (_executor == null || _debugging) {
+            super._fireActor(actorToFire);
+            return;
+        }
+        List<Actor> actors = _takeIndependentActors(actorToFire);
+        if (actors.isEmpty()) {
+            super._fireActor(actorToFire);
+            return;
+        }
+        List<Future<Object>> firings = new LinkedList<Future<Object>>();
+        for (Actor actor : actors) {
+            firings.add(_executor.submit(new ActorFiring(actor)));
+        }
+        Throwable failure = null;
+        try {
+            super._fireActor(actorToFire);
+        } catch (Throwable throwable) {
+            failure = throwable;
+        }
+        // Release the read access held by this thread while
+        // waiting, because the actors that are being fired need
+        // read access, which they do not get if another thread is
+        // waiting for write access.
+        int depth = _workspace.releaseReadPermission();
+        try {
+            for (Future<Object> firing : firings) {
+                try {
+                    firing.get();
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                } catch (InterruptedException ex) {
+                    if (failure == null) {
+                        failure = ex;
+                    }
+                }
+            }
+        } finally {
+            if (depth > 0) {
+                _workspace.reacquireReadPermission(depth);
+            }
+        }
+        if (failure instanceof IllegalActionException) {
+            throw (IllegalActionException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalActionException(this, failure,
+                    "Failed to fire actors in parallel.");
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return the set of actors that may receive an event with the
+     *  current tag as a consequence of firing the specified actor.
+     *  These are the actors with an input port connected to an output
+     *  port of the specified actor, and, recursively, the actors that
+     *  receive events from the outputs of those actors that depend on
+     *  those inputs with zero delay. The set includes the container
+     *  of this director if any of those outputs is connected to an
+     *  output port of the container.
+     *  @param actor The actor.
+     *  @return The actors downstream of the specified actor.
+     *  @exception IllegalActionException If the causality interface
+     *   of an actor throws it.
+     */
+    private Set<Actor> _downstreamActors(Actor actor)
+            throws IllegalActionException {
+        long version = _workspace.getVersion();
+        if (_downstream == null || _downstreamVersion != version) {
+            _downstream = new HashMap<Actor, Set<Actor>>();
+            _downstreamVersion = version;
+        }
+        Set<Actor> result = _downstream.get(actor);
+        if (result != null) {
+            return result;
+        }
+        result = new HashSet<Actor>();
+        Set<IOPort> visitedInputs = new HashSet<IOPort>();
+        LinkedList<IOPort> outputs = new LinkedList<IOPort>();
+        for (Object port : actor.outputPortList()) {
+            outputs.add((IOPort) port);
+        }
+        while (!outputs.isEmpty()) {
+            IOPort output = outputs.removeFirst();
+            for (Object sink : output.sinkPortList()) {
+                IOPort input = (IOPort) sink;
+                Actor sinkActor = (Actor) input.getContainer();
+                if (!visitedInputs.add(input)) {
+                    continue;
+                }
+                result.add(sinkActor);
+                if (sinkActor == getContainer()) {
+                    // An output of the container, which is not traversed.
+                    continue;
+                }
+                outputs.addAll(sinkActor.getCausalityInterface()
+                        .dependentPorts(input));
+            }
+        }
+        _downstream.put(actor, result);
+        return result;
+    }
+
+    /** Initialize the parameters. */
+    private void _initParameters() {
+        try {
+            numberOfThreads = new Parameter(this, "numberOfThreads");
+            numberOfThreads.setExpression("0");
+            numberOfThreads.setTypeEquals(BaseType.INT);
+            numberOfThreads.setVisibility(Settable.EXPERT);
+        } catch (KernelException e) {
+            throw new InternalErrorException("Cannot set parameter:\n"
+                    + e.getMessage());
+        }
+    }
+
+    /** Stop the threads of the pool, if there is one. */
+    private void _shutdownExecutor() {
+        if (_executor != null) {
+            _executor.shutdown();
+            _executor = null;
+        }
+    }
+
+    /** Take from the event queue the events that immediately follow,
+     *  have the current tag, and are destined for actors that are
+     *  independent of the specified actor and of each other, and
+     *  return the destination actors. Two actors are independent if
+     *  neither is downstream of the other and they have no
+     *  downstream actor in common. Events for the container of
+     *  this director, and events for disabled actors, end the search.
+     *  @param actorToFire The actor that is about to be fired.
+     *  @return A list of other actors to fire, which may be empty.
+     *  @exception IllegalActionException If the causality interface
+     *   of an actor throws it.
+     */
+    private List<Actor> _takeIndependentActors(Actor actorToFire)
+            throws IllegalActionException {
+        List<Actor> result = new ArrayList<Actor>();
+        Set<Actor> selected = new HashSet<Actor>();
+        Set<Actor> reachable = new HashSet<Actor>();
+        selected.add(actorToFire);
+        reachable.addAll(_downstreamActors(actorToFire));
+        Actor lastActor = actorToFire;
+        synchronized (_eventQueue) {
+            while (!_eventQueue.isEmpty() && !_stopRequested
+                    && !_stopFireRequested) {
+                DEEvent next = _eventQueue.get();
+                if (next.timeStamp().compareTo(getModelTime()) != 0
+                        || next.microstep() != _microstep) {
+                    break;
+                }
+                Actor actor = next.actor();
+                if (actor == lastActor) {
+                    // Another event for the actor that was selected last,
+                    // as in _getNextActorToFire() of the base class.
+                    _eventQueue.take();
+                    continue;
+                }
+                if (actor == getContainer()
+                        || selected.contains(actor)
+                        || reachable.contains(actor)
+                        || (_disabledActors != null && _disabledActors
+                                .contains(actor))) {
+                    break;
+                }
+                Set<Actor> downstream = _downstreamActors(actor);
+                boolean independent = true;
+                for (Actor other : selected) {
+                    if (downstream.contains(other)) {
+                        independent = false;
+                        break;
+                    }
+                }
+                if (independent) {
+                    // Actors that send events to the same actor are not
+                    // fired in parallel, because the order in which those
+                    // events arrive would depend on the thread schedule.
+                    for (Actor other : downstream) {
+                        if (reachable.contains(other)) {
+                            independent = false;
+                            break;
+                        }
+                    }
+                }
+                if (!independent) {
+                    break;
+                }
+                _eventQueue.take();
+                selected.add(actor);
+                reachable.addAll(downstream);
+                result.add(actor);
+                lastActor = actor;
+            }
+        }
+        return result;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The actors downstream of each actor, computed on demand. */
+    private Map<Actor, Set<Actor>> _downstream;
+
+    /** The workspace version for which _downstream is valid. */
+    private long _downstreamVersion = -1;
+
+    /** The pool of threads that fire actors, or null to fire actors
+     *  one at a time.
+     */
+    private ExecutorService _executor;
+
+    /** The lock that serializes calls to fireAt(). */
+    private Object _fireAtLock = new Object();
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** A task that fires an actor while holding read access to
+     *  the workspace.
+     */
+    private class ActorFiring implements Callable<Object> {
+        /** Create a task that fires the specified actor.
+         *  @param actor The actor.
+         */
+        public ActorFiring(Actor actor) {
+            _actor = actor;
+        }
+
+        /** Fire the actor as in the base class.
+         *  @return Null.
+         *  @exception IllegalActionException If the actor throws it.
+         */
+        public Object call() throws IllegalActionException {
+            try {
+                workspace().getReadAccess();
+                ParallelDEDirector.super._fireActor(_actor);
+            } finally {
+                workspace().doneReading();
+            }
+            return null;
+        }
+
+        /** The actor to fire. */
+        private Actor _actor;
+    }
+}
@@ -0,0 +1,205 @@
+/* Compare the performance of the DE event queue implementations.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.de.kernel.test;
+
+import java.util.Random;
+
+import ptolemy.actor.Actor;
+import ptolemy.actor.Director;
+import ptolemy.actor.util.Time;
+import ptolemy.domains.de.kernel.DECQEventQueue;
+import ptolemy.domains.de.kernel.DEEvent;
+import ptolemy.domains.de.kernel.DEEventQueue;
+import ptolemy.domains.de.kernel.DEHeapEventQueue;
+import ptolemy.kernel.util.IllegalActionException;
+
+///////////////////////////////////////////////////////////////////
+//// DEEventQueueBenchmark
+
+/**
+ Compare the performance of the DE event queue implementations using
+ the classic "hold" model: the queue is filled with a number of
+ pending events, and then each operation takes the earliest event
+ and puts a new event whose time stamp is the time stamp of the taken
+ event plus an exponentially distributed increment. The increments,
+ microsteps and depths are drawn before the measurement, so that the
+ same sequence of operations is applied to each queue.
+ <p>
+ Each operation creates a new event, as DEDirector does, so the time
+ to create the events is also reported. The difference between that
+ time and the time of a queue is the cost of the queue operations.
+ <p>
+ To run:
+ <pre>
+ java -classpath $PTII ptolemy.domains.de.kernel.test.DEEventQueueBenchmark [pending [operations]]
+ </pre>
+ The defaults are 1000 pending events and 1000000 operations.
+ Each queue is measured several times, and the first runs are
+ discarded to allow the JIT compiler to warm up.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class DEEventQueueBenchmark {
+    /** Create a benchmark with the given number of pending events and
+     *  hold operations.
+     *  @param pending The number of events in the queue.
+     *  @param operations The number of hold operations.
+     */
+    public DEEventQueueBenchmark(int pending, int operations) {
+        _director = new Director();
+        Random random = new Random(1L);
+        int count = pending + operations;
+        _increments = new double[count];
+        _microsteps = new int[count];
+        _depths = new int[count];
+        for (int i = 0; i < count; i++) {
+            // Quantize the increment so that some events are simultaneous
+            // and their order is decided by the microsteps and depths.
+            _increments[i] = Math.floor(-Math.log(1.0 - random.nextDouble())
+                    * 10.0) / 10.0;
+            _microsteps[i] = random.nextInt(3);
+            _depths[i] = random.nextInt(8);
+        }
+        _pending = pending;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Run the hold operations without a queue and return the elapsed
+     *  time. Each operation creates an event as in
+     *  {@link #hold(DEEventQueue)}.
+     *  @return The elapsed time, in nanoseconds.
+     *  @exception IllegalActionException If an event cannot be created.
+     */
+    public long baseline() throws IllegalActionException {
+        long start = System.nanoTime();
+        Time time = new Time(_director);
+        for (int i = _pending; i < _increments.length; i++) {
+            DEEvent event = _createEvent(time, i);
+            time = event.timeStamp();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Run the hold model on the given queue and return the elapsed time.
+     *  @param queue The queue, which is cleared when this method returns.
+     *  @return The elapsed time of the hold operations, in nanoseconds.
+     *  @exception IllegalActionException If an event cannot be created
+     *   or enqueued.
+     */
+    public long hold(DEEventQueue queue) throws IllegalActionException {
+        Time zero = new Time(_director);
+        for (int i = 0; i < _pending; i++) {
+            queue.put(_createEvent(zero, i));
+        }
+        long start = System.nanoTime();
+        for (int i = _pending; i < _increments.length; i++) {
+            DEEvent earliest = queue.take();
+            queue.put(_createEvent(earliest.timeStamp(), i));
+        }
+        long elapsed = System.nanoTime() - start;
+        queue.clear();
+        return elapsed;
+    }
+
+    /** Run the benchmark and print the results to standard out.
+     *  @param args An optional number of pending events followed by
+     *   an optional number of operations.
+     *  @exception IllegalActionException If the events cannot be created.
+     */
+    public static void main(String[] args) throws IllegalActionException {
+        int pending = 1000;
+        int operations = 1000000;
+        if (args.length > 0) {
+            pending = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            operations = Integer.parseInt(args[1]);
+        }
+        DEEventQueueBenchmark benchmark = new DEEventQueueBenchmark(pending,
+                operations);
+        for (int run = 0; run < _RUNS; run++) {
+            long baseline = benchmark.baseline();
+            long calendarQueue = benchmark.hold(new DECQEventQueue(2, 2,
+                    true));
+            long heapQueue = benchmark.hold(new DEHeapEventQueue());
+            if (run >= _WARMUP_RUNS) {
+                System.out.println("pending: " + pending + " operations: "
+                        + operations + " events only: "
+                        + (baseline / operations) + " ns/op"
+                        + " DECQEventQueue: " + (calendarQueue / operations)
+                        + " ns/op DEHeapEventQueue: "
+                        + (heapQueue / operations) + " ns/op");
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Create the pure event for the given operation.
+     *  @param time The time to which the increment is added.
+     *  @param index The index of the operation.
+     *  @return A new event.
+     *  @exception IllegalActionException If the event cannot be created.
+     */
+    private DEEvent _createEvent(Time time, int index)
+            throws IllegalActionException {
+        return new DEEvent((Actor) null, time.add(_increments[index]),
+                _microsteps[index], _depths[index]);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The number of times each queue is measured. */
+    private static final int _RUNS = 8;
+
+    /** The number of initial runs that are not reported. */
+    private static final int _WARMUP_RUNS = 3;
+
+    /** The depths of the events. */
+    private int[] _depths;
+
+    /** The director that provides the time resolution. */
+    private Director _director;
+
+    /** The time increments of the events. */
+    private double[] _increments;
+
+    /** The microsteps of the events. */
+    private int[] _microsteps;
+
+    /** The number of events in the queue. */
+    private int _pending;
+}
@@ -0,0 +1,215 @@
+# Tests for the DEHeapEventQueue class
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+#
+#
+
+######################################################################
+#### Create events with the given time, microstep and depth
+#
+proc makeEvent {director actor time microstep depth} {
+    set t [java::new \
+	       {ptolemy.actor.util.Time ptolemy.actor.Director double} \
+	       $director $time]
+    return [java::new {ptolemy.domains.de.kernel.DEEvent \
+			   ptolemy.actor.Actor ptolemy.actor.util.Time \
+			   int int} \
+		$actor $t $microstep $depth]
+}
+
+######################################################################
+#### Take all the events from the queue and describe them
+#
+proc drain {queue} {
+    set result {}
+    while {![$queue isEmpty]} {
+	set event [$queue take]
+	lappend result [list [[$event timeStamp] toString] \
+			    [$event microstep] [$event depth]]
+    }
+    return $result
+}
+
+set e0 [java::new ptolemy.actor.CompositeActor]
+set actor1 [java::new ptolemy.actor.AtomicActor $e0 actor1]
+set actor2 [java::new ptolemy.actor.AtomicActor $e0 actor2]
+set director [java::new ptolemy.actor.Director]
+$e0 setDirector $director
+
+######################################################################
+####
+#
+test DEHeapEventQueue-1.1 {Empty queue} {
+    set queue [java::new ptolemy.domains.de.kernel.DEHeapEventQueue]
+    catch {$queue get} errMsg1
+    catch {$queue take} errMsg2
+    list [$queue isEmpty] [$queue size] [$queue toString] $errMsg1 $errMsg2
+} {1 0 {{}} {ptolemy.kernel.util.InvalidStateException: Queue is empty.} {ptolemy.kernel.util.InvalidStateException: Queue is empty.}}
+
+######################################################################
+####
+#
+test DEHeapEventQueue-2.1 {Events are ordered by time, microstep and depth} {
+    set queue [java::new ptolemy.domains.de.kernel.DEHeapEventQueue]
+    $queue put [makeEvent $director $actor1 2.0 0 0]
+    $queue put [makeEvent $director $actor1 1.0 1 3]
+    $queue put [makeEvent $director $actor1 1.0 1 1]
+    $queue put [makeEvent $director $actor1 1.0 0 5]
+    $queue put [makeEvent $director $actor1 0.5 7 7]
+    $queue put [makeEvent $director $actor1 -1.0 0 0]
+    list [$queue size] [[[$queue get] timeStamp] toString] [drain $queue]
+} {6 -1.0 {{-1.0 0 0} {0.5 7 7} {1.0 0 5} {1.0 1 1} {1.0 1 3} {2.0 0 0}}}
+
+######################################################################
+####
+#
+test DEHeapEventQueue-2.2 {Infinite time stamps} {
+    set queue [java::new ptolemy.domains.de.kernel.DEHeapEventQueue]
+    $queue put [makeEvent $director $actor1 \
+		    [java::field java.lang.Double POSITIVE_INFINITY] 0 0]
+    $queue put [makeEvent $director $actor1 1.0E6 0 0]
+    $queue put [makeEvent $director $actor1 \
+		    [java::field java.lang.Double NEGATIVE_INFINITY] 0 0]
+    $queue put [makeEvent $director $actor1 0.0 0 0]
+    drain $queue
+} {{-Infinity 0 0} {0.0 0 0} {1000000.0 0 0} {Infinity 0 0}}
+
+######################################################################
+####
+#
+test DEHeapEventQueue-3.1 {Duplicate events are not added} {
+    set queue [java::new ptolemy.domains.de.kernel.DEHeapEventQueue]
+    $queue put [makeEvent $director $actor1 1.0 0 0]
+    $queue put [makeEvent $director $actor1 1.0 0 0]
+    # A different actor makes a different event.
+    $queue put [makeEvent $director $actor2 1.0 0 0]
+    $queue put [makeEvent $director $actor1 1.0 1 0]
+    set size [$queue size]
+    $queue take
+    # Once taken, the same event can be put again.
+    $queue put [makeEvent $director $actor1 1.0 0 0]
+    list $size [$queue size]
+} {3 3}
+
+######################################################################
+####
+#
+test DEHeapEventQueue-4.1 {Grow the queue and compare with DECQEventQueue} {
+    set heap [java::new {ptolemy.domains.de.kernel.DEHeapEventQueue int} 2]
+    set cq [java::new ptolemy.domains.de.kernel.DECQEventQueue]
+    set random [java::new {java.util.Random long} 3]
+    for {set i 0} {$i < 500} {incr i} {
+	set event [makeEvent $director $actor1 \
+		       [expr {[$random nextInt 50] / 4.0}] \
+		       [$random nextInt 3] [$random nextInt 4]]
+	$heap put $event
+	$cq put $event
+	if {$i % 3 == 0} {
+	    # Interleave takes with puts.
+	    $heap take
+	    $cq take
+	}
+    }
+    set heapSize [$heap size]
+    list [expr {$heapSize == [$cq size]}] [expr {[drain $heap] == [drain $cq]}]
+} {1 1}
+
+######################################################################
+####
+#
+test DEHeapEventQueue-4.2 {toArray is sorted and clear empties the queue} {
+    set queue [java::new ptolemy.domains.de.kernel.DEHeapEventQueue]
+    $queue put [makeEvent $director $actor1 3.0 0 0]
+    $queue put [makeEvent $director $actor1 1.0 0 0]
+    $queue put [makeEvent $director $actor1 2.0 0 0]
+    set array [$queue toArray]
+    set result {}
+    for {set i 0} {$i < [$array length]} {incr i} {
+	set event [java::cast ptolemy.domains.de.kernel.DEEvent [$array get $i]]
+	lappend result [[$event timeStamp] toString]
+    }
+    $queue clear
+    $queue put [makeEvent $director $actor1 4.0 0 0]
+    list $result [$queue size] [[[$queue take] timeStamp] toString]
+} {{1.0 2.0 3.0} 1 4.0}
+
+######################################################################
+####
+#
+test DEHeapEventQueue-5.1 {Run DE models with the heap queue} {
+    set result {}
+    foreach model {PeriodicSampler.xml TimeDelayZeroDelay.xml \
+		       VariableDelay.xml ResettableTimer1.xml} {
+	set parser [java::new ptolemy.moml.MoMLParser]
+	$parser resetAll
+	set toplevel [java::cast ptolemy.actor.CompositeActor \
+			  [$parser parseFile [file join .. .. test auto $model]]]
+	set deDirector [java::cast ptolemy.domains.de.kernel.DEDirector \
+			    [$toplevel getDirector]]
+	[java::field $deDirector eventQueue] setExpression DEHeapEventQueue
+	set manager [java::new ptolemy.actor.Manager [$toplevel workspace] \
+			 manager]
+	$toplevel setManager $manager
+	$manager execute
+	lappend result [java::instanceof [$deDirector getEventQueue] \
+			    ptolemy.domains.de.kernel.DEHeapEventQueue]
+    }
+    list $result
+} {{1 1 1 1}}
+
+######################################################################
+####
+#
+test DEHeapEventQueue-5.2 {An unrecognized event queue is an error} {
+    set parser [java::new ptolemy.moml.MoMLParser]
+    $parser resetAll
+    set toplevel [java::cast ptolemy.actor.CompositeActor \
+		      [$parser parseFile [file join .. .. test auto PeriodicSampler.xml]]]
+    set deDirector [java::cast ptolemy.domains.de.kernel.DEDirector \
+			[$toplevel getDirector]]
+    [java::field $deDirector eventQueue] setExpression NoSuchQueue
+    set manager [java::new ptolemy.actor.Manager [$toplevel workspace] \
+		     manager]
+    $toplevel setManager $manager
+    catch {$manager execute} errMsg
+    list [lindex [split $errMsg "\n"] 0]
+} {{ptolemy.kernel.util.IllegalActionException: Unrecognized event queue: NoSuchQueue}}
@@ -0,0 +1,182 @@
+# Tests for the ParallelDEDirector class
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+#
+#
+
+######################################################################
+#### Parse a model from ../../test/auto, replacing its DEDirector
+#    with a ParallelDEDirector
+#
+proc parseParallel {model} {
+    set file [file join .. .. test auto $model]
+    set fd [open $file]
+    set moml [read $fd]
+    close $fd
+    regsub -all {de.kernel.DEDirector"} $moml \
+	{de.kernel.ParallelDEDirector"} moml
+    set parser [java::new ptolemy.moml.MoMLParser]
+    $parser resetAll
+    set base [[java::new java.io.File $file] toURL]
+    return [java::cast ptolemy.actor.CompositeActor \
+		[$parser {parse java.net.URL String} $base $moml]]
+}
+
+######################################################################
+####
+#
+test ParallelDEDirector-1.1 {Default parameter values} {
+    set e0 [java::new ptolemy.actor.TypedCompositeActor]
+    set director [java::new ptolemy.domains.de.kernel.ParallelDEDirector \
+		      $e0 director]
+    set deDirector [java::cast ptolemy.domains.de.kernel.DEDirector $director]
+    list [[java::field $director numberOfThreads] getExpression] \
+	[[java::field $deDirector eventQueue] getExpression]
+} {0 DECQEventQueue}
+
+######################################################################
+####
+#
+test ParallelDEDirector-1.2 {Clone} {
+    set director2 [java::cast ptolemy.domains.de.kernel.ParallelDEDirector \
+		       [$director clone [java::new ptolemy.kernel.util.Workspace]]]
+    [java::field $director2 numberOfThreads] getExpression
+} {0}
+
+######################################################################
+####
+#
+test ParallelDEDirector-2.1 {Run DE models with a pool of threads} {
+    set result {}
+    foreach model {CQBug1.xml DepthTest4.xml DepthTest5.xml Modal1.xml \
+		       PeriodicSampler.xml TimeDelayZeroDelay.xml} {
+	set toplevel [parseParallel $model]
+	set deDirector [java::cast ptolemy.domains.de.kernel.ParallelDEDirector \
+			    [$toplevel getDirector]]
+	# Use more than one thread even on a single processor.
+	[java::field $deDirector numberOfThreads] setExpression 4
+	set manager [java::new ptolemy.actor.Manager [$toplevel workspace] \
+			 manager]
+	$toplevel setManager $manager
+	$manager execute
+	lappend result [$toplevel getName]
+    }
+    list $result
+} {{CQBug1 DepthTest4 DepthTest5 Modal1 PeriodicSampler TimeDelayZeroDelay}}
+
+######################################################################
+####
+#
+test ParallelDEDirector-2.2 {One thread fires the actors one at a time} {
+    set toplevel [parseParallel DepthTest5.xml]
+    set deDirector [java::cast ptolemy.domains.de.kernel.ParallelDEDirector \
+			[$toplevel getDirector]]
+    [java::field $deDirector numberOfThreads] setExpression 1
+    set manager [java::new ptolemy.actor.Manager [$toplevel workspace] \
+		     manager]
+    $toplevel setManager $manager
+    $manager execute
+    $toplevel getName
+} {DepthTest5}
+
+######################################################################
+####
+#
+test ParallelDEDirector-2.3 {A negative number of threads is an error} {
+    [java::field $deDirector numberOfThreads] setExpression -1
+    catch {$manager execute} errMsg
+    list [lindex [split $errMsg "\n"] 0]
+} {{ptolemy.kernel.util.IllegalActionException: numberOfThreads is required to be non-negative. Got -1}}
+
+######################################################################
+#### Build and run a model in which a DiscreteClock drives eight Scale
+#    actors whose outputs all go to the same input of a Recorder, and
+#    return the recorded values.
+#
+proc sharedSinkModel {directorClass threads} {
+    set e0 [java::new ptolemy.actor.TypedCompositeActor]
+    $e0 setName sharedSink
+    set director [java::new $directorClass $e0 director]
+    set deDirector [java::cast ptolemy.domains.de.kernel.DEDirector $director]
+    [java::field $deDirector stopTime] setExpression 20.0
+    if {$threads > 0} {
+	[java::field [java::cast ptolemy.domains.de.kernel.ParallelDEDirector \
+			  $director] numberOfThreads] setExpression $threads
+    }
+    set clock [java::new ptolemy.actor.lib.DiscreteClock $e0 clock]
+    set recorder [java::new ptolemy.actor.lib.Recorder $e0 recorder]
+    set fanout [java::new ptolemy.actor.TypedIORelation $e0 fanout]
+    set shared [java::new ptolemy.actor.TypedIORelation $e0 shared]
+    [java::field [java::cast ptolemy.actor.lib.Source $clock] output] \
+	link $fanout
+    [java::field [java::cast ptolemy.actor.lib.Sink $recorder] input] \
+	link $shared
+    for {set i 1} {$i <= 8} {incr i} {
+	set scale [java::new ptolemy.actor.lib.Scale $e0 scale$i]
+	[java::field $scale factor] setExpression $i
+	[java::field [java::cast ptolemy.actor.lib.Transformer $scale] input] \
+	    link $fanout
+	[java::field [java::cast ptolemy.actor.lib.Transformer $scale] output] \
+	    link $shared
+    }
+    set manager [java::new ptolemy.actor.Manager [$e0 workspace] manager]
+    $e0 setManager $manager
+    $manager execute
+    return [listToStrings [$recorder getHistory 0]]
+}
+
+######################################################################
+####
+#
+test ParallelDEDirector-3.1 {Actors that send to the same input are \
+	fired in the order given by DEDirector} {
+    set expected [sharedSinkModel ptolemy.domains.de.kernel.DEDirector 0]
+    set differences 0
+    for {set run 0} {$run < 20} {incr run} {
+	set result [sharedSinkModel \
+			ptolemy.domains.de.kernel.ParallelDEDirector 4]
+	if {$result != $expected} {
+	    incr differences
+	}
+    }
+    list $differences [lrange $expected 0 15]
+} {0 {1 2 3 4 5 6 7 8 1 2 3 4 5 6 7 8}}
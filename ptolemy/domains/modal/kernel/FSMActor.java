@@ -370,6 +370,8 @@ public class FSMActor extends CompositeEntity implements TypedActor,
         newObject._stateRefinementsToPostfire = new LinkedList<Actor>();
         newObject._transitionsPreviouslyChosenInIteration = new HashSet<Transition>();
         newObject._transitionRefinementsToPostfire = new LinkedList<Actor>();
+        newObject._transitionIndex = null;
+        newObject._transitionIndexVersion = -1;
 
         if (_initialState != null) {
             newObject._initialState = (State) newObject.getEntity(_initialState
@@ -437,6 +439,8 @@ public class FSMActor extends CompositeEntity implements TypedActor,
 
         Iterator transitionRelations = transitionList.iterator();
 
+        // The inputs may have changed since the guards were last evaluated.
+        _getTransitionIndex().startEvaluation();
         _foundUnknown = false;
         while (transitionRelations.hasNext() && !_stopRequested) {
             Transition transition = (Transition) transitionRelations.next();
@@ -1004,6 +1008,10 @@ public class FSMActor extends CompositeEntity implements TypedActor,
         _reachedFinalState = false;
         _newIteration = true;
 
+        // Compile the guards of the transitions before they are
+        // first evaluated.
+        _getTransitionIndex();
+
         // Even though reset() is called in preinitialize(),
         // we have to call it again because if a reset transition is
         // taken, preinitialize() is not called.
@@ -1700,6 +1708,7 @@ public class FSMActor extends CompositeEntity implements TypedActor,
     protected boolean _areAllImmediateTransitionsDisabled(State state) throws IllegalActionException {
         List<Transition> transitionList = state.outgoingPort
                 .linkedRelationList();
+        _getTransitionIndex().startEvaluation();
         for (Transition transition : transitionList) {
             if (transition.isImmediate()) {
                 if (!_referencedInputPortsByGuardKnown(transition)) {
@@ -2167,6 +2176,22 @@ public class FSMActor extends CompositeEntity implements TypedActor,
         return _stateRefinementsToPostfire;
     }
 
+    /** Return the index of the guards of the transitions of this actor,
+     *  which is built when this actor is initialized and rebuilt if the
+     *  workspace has changed since then.
+     *  @return The transition index.
+     *  @exception IllegalActionException If the index cannot be built.
+     */
+    protected TransitionIndex _getTransitionIndex()
+            throws IllegalActionException {
+        if (_transitionIndex == null
+                || _transitionIndexVersion != workspace().getVersion()) {
+            _transitionIndex = new TransitionIndex(this);
+            _transitionIndexVersion = workspace().getVersion();
+        }
+        return _transitionIndex;
+    }
+
     /** Return the list used to keep track of refinements that have been
      *  fired. This is protected so that FSMDirector can mirror it with
      *  its own protected method so that subclasses of FSMDirector can
@@ -2832,7 +2857,7 @@ public class FSMActor extends CompositeEntity implements TypedActor,
      */
     private boolean _isTransitionEnabled(Transition transition) throws IllegalActionException {
         try {
-            return transition.isEnabled();
+            return _getTransitionIndex().isEnabled(transition);
         } catch (UndefinedConstantOrIdentifierException ex) {
             // If the node refers to a port, then it may be that the
             // port is absent.  Check that it matches a port name.
@@ -2982,13 +3007,17 @@ public class FSMActor extends CompositeEntity implements TypedActor,
         if (string.trim().equals("")) {
             return true;
         }
-        PtParser parser = new PtParser();
-        ASTPtRootNode parseTree = parser.generateParseTree(string);
-        ParseTreeFreeVariableCollector variableCollector = new ParseTreeFreeVariableCollector();
-        ParserScope scope = getPortScope();
-        // Get a set of free variable names.
-        Set<String> nameSet = variableCollector.collectFreeVariables(parseTree,
-                scope);
+        // Get a set of free variable names, which the transition index
+        // found when it compiled the guard.
+        Set<String> nameSet = _getTransitionIndex().getGuardVariables(
+                transition);
+        if (nameSet == null) {
+            PtParser parser = new PtParser();
+            ASTPtRootNode parseTree = parser.generateParseTree(string);
+            ParseTreeFreeVariableCollector variableCollector = new ParseTreeFreeVariableCollector();
+            ParserScope scope = getPortScope();
+            nameSet = variableCollector.collectFreeVariables(parseTree, scope);
+        }
 
         for (String name : nameSet) {
             Port port = _getPortForIdentifier(name);
@@ -3281,6 +3310,12 @@ public class FSMActor extends CompositeEntity implements TypedActor,
     private Set<Transition> _transitionsPreviouslyChosenInIteration
             = new HashSet<Transition>();
     
+    /** The index of the guards of the transitions. */
+    private TransitionIndex _transitionIndex;
+
+    /** The workspace version when the transition index was built. */
+    private long _transitionIndexVersion = -1;
+
     /** Transition refinements to postfire(), as determined by the fire() method. */
     private List<Actor> _transitionRefinementsToPostfire = new LinkedList<Actor>();
     
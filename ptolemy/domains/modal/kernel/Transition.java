@@ -38,7 +38,9 @@ import ptolemy.actor.TypedCompositeActor;
 import ptolemy.data.BooleanToken;
 import ptolemy.data.Token;
 import ptolemy.data.expr.ASTPtRootNode;
+import ptolemy.data.expr.CompiledExpression;
 import ptolemy.data.expr.Parameter;
+import ptolemy.data.expr.ParseTreeCompiler;
 import ptolemy.data.expr.ParseTreeEvaluator;
 import ptolemy.data.expr.ParserScope;
 import ptolemy.data.expr.PtParser;
@@ -256,6 +258,7 @@ public class Transition extends ComponentRelation {
             // at run time. The guardExpression is a string
             // attribute used to convey expressions without being evaluated.
             // _guard is the variable that does the evaluation.
+            _compiledGuard = null;
             _guardParseTree = null;
             _guardParseTreeVersion = -1;
             _parseTreeEvaluatorVersion = -1;
@@ -303,6 +306,7 @@ public class Transition extends ComponentRelation {
         newObject.refinementName = (StringAttribute) newObject
                 .getAttribute("refinementName");
         newObject._destinationState = null;
+        newObject._compiledGuard = null;
         newObject._guardParseTree = null;
         newObject._guardParseTreeVersion = -1;
         newObject._actionListsVersion = -1;
@@ -538,9 +542,23 @@ public class Transition extends ComponentRelation {
                 throw new IllegalActionException(this, ex,
                         "Failed to parse guard expression \"" + expr + "\"");
             }
+            _compiledGuard = null;
+        }
+        Token token;
+        if (parseTreeEvaluator.getClass() == ParseTreeEvaluator.class) {
+            // The guard is evaluated on every firing of the FSM, so
+            // compile it. Derived evaluators, such as the one that
+            // detects level crossings of the guard, visit the parse tree
+            // themselves, so they are not bypassed.
+            if (_compiledGuard == null) {
+                _compiledGuard = new ParseTreeCompiler()
+                        .compileParseTree(_guardParseTree);
+            }
+            token = _compiledGuard.evaluate(scope);
+        } else {
+            token = parseTreeEvaluator.evaluateParseTree(_guardParseTree,
+                    scope);
         }
-        Token token = parseTreeEvaluator.evaluateParseTree(_guardParseTree,
-                scope);
         if (!(token instanceof BooleanToken)) {
             throw new IllegalActionException(this,
                     "Guard expression does not evaluate to a boolean!"
@@ -945,6 +963,9 @@ public class Transition extends ComponentRelation {
     // Cached list of commit actions contained by this Transition.
     private List _commitActionList = new LinkedList();
 
+    // The compiled guard expression, or null if it has not been compiled.
+    private CompiledExpression _compiledGuard;
+
     // Cached destination state of this transition.
     private State _destinationState = null;
 
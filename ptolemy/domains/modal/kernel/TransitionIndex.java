@@ -0,0 +1,548 @@
+/* An index of the guards of the transitions of an FSMActor.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.modal.kernel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ptolemy.actor.IOPort;
+import ptolemy.data.BooleanToken;
+import ptolemy.data.Token;
+import ptolemy.data.expr.ASTPtAssignmentNode;
+import ptolemy.data.expr.ASTPtBitwiseNode;
+import ptolemy.data.expr.ASTPtFunctionApplicationNode;
+import ptolemy.data.expr.ASTPtFunctionDefinitionNode;
+import ptolemy.data.expr.ASTPtFunctionalIfNode;
+import ptolemy.data.expr.ASTPtLeafNode;
+import ptolemy.data.expr.ASTPtLogicalNode;
+import ptolemy.data.expr.ASTPtMethodCallNode;
+import ptolemy.data.expr.ASTPtPowerNode;
+import ptolemy.data.expr.ASTPtProductNode;
+import ptolemy.data.expr.ASTPtRelationalNode;
+import ptolemy.data.expr.ASTPtRootNode;
+import ptolemy.data.expr.ASTPtShiftNode;
+import ptolemy.data.expr.ASTPtSumNode;
+import ptolemy.data.expr.ASTPtUnaryNode;
+import ptolemy.data.expr.CompiledExpression;
+import ptolemy.data.expr.Constants;
+import ptolemy.data.expr.ModelScope;
+import ptolemy.data.expr.ParseTreeCompiler;
+import ptolemy.data.expr.ParseTreeEvaluator;
+import ptolemy.data.expr.ParseTreeFreeVariableCollector;
+import ptolemy.data.expr.ParseTreeWriter;
+import ptolemy.data.expr.ParserScope;
+import ptolemy.data.expr.PtParser;
+import ptolemy.kernel.Port;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.NamedObj;
+
+//////////////////////////////////////////////////////////////////////////
+//// TransitionIndex
+
+/**
+ An index of the guards of the transitions of an FSMActor, which is
+ built from the parse trees of the guards when the FSMActor is
+ initialized and is used to choose among the outgoing transitions of
+ a state without parsing or visiting the guards on each firing.
+ <p>
+ For each guard, the index records the free variables, which give the
+ input ports that must be known before the guard can be evaluated,
+ and the input presence tests that must succeed for the guard to be
+ true. A guard such as "in_isPresent &amp;&amp; in &gt; 0" can only be
+ true if <i>in</i> is present, and so can a guard that reads the value
+ of <i>in</i> outside of the branches of a conditional, since the value
+ of an absent input is undefined. The guards that depend on the same
+ input are grouped, so that the presence of that input is tested once
+ in each evaluation, and a guard whose input is absent is false without
+ being evaluated.
+ <p>
+ The guards are compiled with {@link ParseTreeCompiler}. Subexpressions
+ that occur in more than one guard are compiled once, and their values
+ are kept until the next call to {@link #startEvaluation()}, so that
+ the guards of the outgoing transitions of a state evaluate each shared
+ subexpression at most once. Subexpressions that apply functions or
+ call methods are not shared, since they may have side effects or,
+ like random(), return different values each time.
+ <p>
+ Guards that are evaluated by a derived class of ParseTreeEvaluator,
+ such as the one that detects level crossings in the continuous domain,
+ are not compiled, and neither are guards that cannot be parsed. These
+ are evaluated by {@link Transition#isEnabled()}, which also reports
+ any errors.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see FSMActor#enabledTransitions(java.util.List, boolean)
+ */
+public class TransitionIndex {
+    /** Construct an index of the guards of the transitions of the
+     *  specified FSMActor. The index is valid until the workspace
+     *  version changes.
+     *  @param controller The FSMActor.
+     *  @exception IllegalActionException If the input ports of the
+     *   FSMActor cannot be resolved.
+     */
+    public TransitionIndex(FSMActor controller) throws IllegalActionException {
+        _controller = controller;
+        _scope = controller.getPortScope();
+
+        // Parse the guards and count the occurrences of each
+        // subexpression that could be shared.
+        Map<Transition, ASTPtRootNode> parseTrees = new HashMap<Transition, ASTPtRootNode>();
+        Map<String, Integer> occurrences = new HashMap<String, Integer>();
+        PtParser parser = new PtParser();
+        Iterator relations = controller.relationList().iterator();
+        while (relations.hasNext()) {
+            Object relation = relations.next();
+            if (!(relation instanceof Transition)) {
+                continue;
+            }
+            Transition transition = (Transition) relation;
+            String guard = transition.getGuardExpression();
+            if (guard.trim().equals("")) {
+                continue;
+            }
+            try {
+                ASTPtRootNode parseTree = parser.generateParseTree(guard);
+                parseTrees.put(transition, parseTree);
+                _countSubexpressions(parseTree, occurrences);
+            } catch (IllegalActionException ex) {
+                // Leave the guard to the transition, which reports the
+                // error when the guard is evaluated.
+            }
+        }
+
+        Set<String> shared = new HashSet<String>();
+        for (Map.Entry<String, Integer> entry : occurrences.entrySet()) {
+            if (entry.getValue().intValue() > 1) {
+                shared.add(entry.getKey());
+            }
+        }
+        GuardCompiler compiler = new GuardCompiler(shared);
+        ParseTreeFreeVariableCollector collector = new ParseTreeFreeVariableCollector();
+
+        for (Map.Entry<Transition, ASTPtRootNode> entry : parseTrees
+                .entrySet()) {
+            ASTPtRootNode parseTree = entry.getValue();
+            Guard guard = new Guard();
+            guard.variables = new HashSet<String>();
+            for (Object name : collector.collectFreeVariables(parseTree,
+                    _scope)) {
+                guard.variables.add((String) name);
+            }
+            Set<String> required = _requiredPresent(parseTree, false);
+            guard.requiredPresent = new int[required.size()];
+            int i = 0;
+            for (String name : required) {
+                Integer index = _presenceIndex.get(name);
+                if (index == null) {
+                    index = Integer.valueOf(_presenceNames.size());
+                    _presenceIndex.put(name, index);
+                    _presenceNames.add(name);
+                }
+                guard.requiredPresent[i++] = index.intValue();
+            }
+            try {
+                guard.compiled = compiler.compileParseTree(parseTree);
+            } catch (IllegalActionException ex) {
+                // Leave the guard to the transition.
+                guard.compiled = null;
+            }
+            _guards.put(entry.getKey(), guard);
+        }
+        _absent = new boolean[_presenceNames.size()];
+        _absentEvaluation = new int[_presenceNames.size()];
+        _sharedCount = compiler.getSharedCount();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the names of the free variables of the guard of the
+     *  specified transition, or null if the guard is empty, cannot be
+     *  parsed or the transition is not in this index.
+     *  @param transition The transition.
+     *  @return The free variables of the guard, or null.
+     */
+    public Set<String> getGuardVariables(Transition transition) {
+        Guard guard = _guards.get(transition);
+        if (guard == null) {
+            return null;
+        }
+        return guard.variables;
+    }
+
+    /** Return the number of subexpressions that are shared between
+     *  guards.
+     *  @return The number of shared subexpressions.
+     */
+    public int getSharedSubexpressionCount() {
+        return _sharedCount;
+    }
+
+    /** Return true if the guard of the specified transition is true
+     *  in the current scope of the FSMActor. If the guard tests the
+     *  presence of an input, or reads the value of an input, in a way
+     *  that requires the input to be present for the guard to be true,
+     *  and that input is absent, then return false without evaluating
+     *  the guard.
+     *  @param transition The transition.
+     *  @return True if the transition is enabled.
+     *  @exception IllegalActionException If the guard cannot be
+     *   evaluated or does not evaluate to a boolean.
+     */
+    public boolean isEnabled(Transition transition)
+            throws IllegalActionException {
+        Guard guard = _guards.get(transition);
+        if (guard == null || guard.compiled == null
+                || transition.getParseTreeEvaluator().getClass() != ParseTreeEvaluator.class) {
+            return transition.isEnabled();
+        }
+        int[] requiredPresent = guard.requiredPresent;
+        for (int i = 0; i < requiredPresent.length; i++) {
+            if (_isAbsent(requiredPresent[i])) {
+                return false;
+            }
+        }
+        Token token = guard.compiled.evaluate(_scope);
+        if (!(token instanceof BooleanToken)) {
+            throw new IllegalActionException(transition,
+                    "Guard expression does not evaluate to a boolean!"
+                            + " The gaurd expression is: \""
+                            + transition.getGuardExpression()
+                            + "\", which evaluates to " + token);
+        }
+        return ((BooleanToken) token).booleanValue();
+    }
+
+    /** Start a new evaluation of guards. The presence of inputs and the
+     *  values of shared subexpressions that were found in the previous
+     *  evaluation are discarded. This should be called whenever the
+     *  inputs or the variables of the FSMActor may have changed, such
+     *  as before the outgoing transitions of a state are examined.
+     */
+    public void startEvaluation() {
+        _evaluation++;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Add the subexpressions of the specified parse tree that could be
+     *  shared to the specified map of occurrences. Leaves are not
+     *  counted, nor are constant subexpressions, which are evaluated
+     *  when they are compiled.
+     *  @param node The root of the parse tree.
+     *  @param occurrences The number of occurrences of each subexpression.
+     *  @return True if the subexpression can be shared.
+     */
+    private static boolean _countSubexpressions(ASTPtRootNode node,
+            Map<String, Integer> occurrences) {
+        boolean cacheable = !(node instanceof ASTPtFunctionApplicationNode)
+                && !(node instanceof ASTPtFunctionDefinitionNode)
+                && !(node instanceof ASTPtMethodCallNode)
+                && !(node instanceof ASTPtAssignmentNode);
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            cacheable &= _countSubexpressions((ASTPtRootNode) node
+                    .jjtGetChild(i), occurrences);
+        }
+        if (cacheable && !(node instanceof ASTPtLeafNode) && !node.isConstant()) {
+            String key = _WRITER.printParseTree(node);
+            Integer count = occurrences.get(key);
+            occurrences.put(key, Integer.valueOf(count == null ? 1 : count
+                    .intValue() + 1));
+        }
+        return cacheable;
+    }
+
+    /** Return true if the presence variable with the specified index
+     *  is false in the current evaluation.
+     *  @param index The index of the presence variable.
+     *  @return True if the input is known to be absent.
+     */
+    private boolean _isAbsent(int index) {
+        if (_absentEvaluation[index] != _evaluation) {
+            Object token = _controller._inputTokenMap.get(_presenceNames
+                    .get(index));
+            _absent[index] = token instanceof BooleanToken
+                    && !((BooleanToken) token).booleanValue();
+            _absentEvaluation[index] = _evaluation;
+        }
+        return _absent[index];
+    }
+
+    /** Return the name of the presence variable of the input that the
+     *  specified identifier refers to, or null if the identifier does
+     *  not refer to the presence or the value of an input. An
+     *  identifier that refers to the value of an input is ignored if
+     *  it could also be resolved in the scope of the FSMActor when the
+     *  input is absent.
+     *  @param name The identifier.
+     *  @return The name of the presence variable, or null.
+     *  @exception IllegalActionException If the input ports of the
+     *   FSMActor cannot be resolved.
+     */
+    private String _presenceName(String name) throws IllegalActionException {
+        Port port = _controller._getPortForIdentifier(name);
+        if (!(port instanceof IOPort) || name.endsWith("Array")) {
+            return null;
+        }
+        if (name.endsWith("_isPresent")) {
+            return name;
+        }
+        if (ModelScope.getScopedVariable(null, _controller, name) != null
+                || Constants.get(name) != null) {
+            return null;
+        }
+        NamedObj object = ModelScope.getScopedObject(_controller, name);
+        if (object != null && object != port) {
+            return null;
+        }
+        return name + "_isPresent";
+    }
+
+    /** Return the names of the presence variables of the inputs that
+     *  must be present for the specified subexpression to be true, or
+     *  to be evaluated without an error if <i>strict</i> is true.
+     *  The value of an absent input is undefined, so an error occurs
+     *  whenever an operator, other than a logical operator or a
+     *  conditional, is applied to it. The error is reported as false
+     *  by FSMActor. The analysis is conservative: function applications,
+     *  method calls and constructors of arrays, matrices and records
+     *  require no inputs.
+     *  @param node The root of the subexpression.
+     *  @param strict True to return only the inputs without which the
+     *   evaluation would fail, or false to also include the inputs
+     *   without which the subexpression would be false.
+     *  @return The names of presence variables.
+     *  @exception IllegalActionException If the input ports of the
+     *   FSMActor cannot be resolved.
+     */
+    private Set<String> _requiredPresent(ASTPtRootNode node, boolean strict)
+            throws IllegalActionException {
+        Set<String> result = new HashSet<String>();
+        int numChildren = node.jjtGetNumChildren();
+        if (node instanceof ASTPtLeafNode) {
+            ASTPtLeafNode leaf = (ASTPtLeafNode) node;
+            if (!(leaf.isConstant() && leaf.isEvaluated())) {
+                String name = leaf.getName();
+                String presenceName = _presenceName(name);
+                if (presenceName != null
+                        && (!strict || !name.endsWith("_isPresent"))) {
+                    result.add(presenceName);
+                }
+            }
+        } else if (node instanceof ASTPtLogicalNode) {
+            // Only the first operand is always evaluated. The
+            // conjunction is false if any operand is false, and the
+            // disjunction is false only if all the operands are false.
+            ASTPtRootNode first = (ASTPtRootNode) node.jjtGetChild(0);
+            result.addAll(_requiredPresent(first, strict));
+            if (!strict) {
+                boolean isAnd = ((ASTPtLogicalNode) node).isLogicalAnd();
+                for (int i = 1; i < numChildren; i++) {
+                    Set<String> operand = _requiredPresent(
+                            (ASTPtRootNode) node.jjtGetChild(i), false);
+                    if (isAnd) {
+                        result.addAll(operand);
+                    } else {
+                        result.retainAll(operand);
+                    }
+                }
+                if (!isAnd) {
+                    result.addAll(_requiredPresent(first, true));
+                }
+            }
+        } else if (node instanceof ASTPtFunctionalIfNode) {
+            result.addAll(_requiredPresent((ASTPtRootNode) node
+                    .jjtGetChild(0), true));
+            if (!strict) {
+                Set<String> branches = _requiredPresent((ASTPtRootNode) node
+                        .jjtGetChild(1), false);
+                branches.retainAll(_requiredPresent((ASTPtRootNode) node
+                        .jjtGetChild(2), false));
+                result.addAll(branches);
+            }
+        } else if (node instanceof ASTPtRelationalNode
+                || node instanceof ASTPtSumNode
+                || node instanceof ASTPtProductNode
+                || node instanceof ASTPtPowerNode
+                || node instanceof ASTPtBitwiseNode
+                || node instanceof ASTPtShiftNode
+                || node instanceof ASTPtUnaryNode) {
+            // All the operands are evaluated.
+            for (int i = 0; i < numChildren; i++) {
+                result.addAll(_requiredPresent((ASTPtRootNode) node
+                        .jjtGetChild(i), true));
+            }
+        }
+        return result;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The absence of the inputs, indexed by presence variable. */
+    private boolean[] _absent;
+
+    /** The evaluations in which the absence of the inputs was found. */
+    private int[] _absentEvaluation;
+
+    /** The FSMActor. */
+    private FSMActor _controller;
+
+    /** The current evaluation. */
+    private int _evaluation = 1;
+
+    /** The guards, indexed by transition. */
+    private Map<Transition, Guard> _guards = new HashMap<Transition, Guard>();
+
+    /** The indexes of the presence variables. */
+    private Map<String, Integer> _presenceIndex = new HashMap<String, Integer>();
+
+    /** The presence variables, by index. */
+    private List<String> _presenceNames = new ArrayList<String>();
+
+    /** The scope in which the guards are evaluated. */
+    private ParserScope _scope;
+
+    /** The number of shared subexpressions. */
+    private int _sharedCount;
+
+    /** The writer that gives the keys of subexpressions. */
+    private static final ParseTreeWriter _WRITER = new ParseTreeWriter();
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** The information about the guard of a transition. */
+    private static class Guard {
+        /** The compiled guard, or null if the guard is evaluated by the
+         *  transition.
+         */
+        public CompiledExpression compiled;
+
+        /** The indexes of the presence variables that must be true for
+         *  the guard to be true.
+         */
+        public int[] requiredPresent;
+
+        /** The free variables of the guard. */
+        public Set<String> variables;
+    }
+
+    /** A compiler that compiles each shared subexpression once. */
+    private class GuardCompiler extends ParseTreeCompiler {
+        /** Construct a compiler for the given shared subexpressions.
+         *  @param shared The keys of the shared subexpressions.
+         */
+        public GuardCompiler(Set<String> shared) {
+            _shared = shared;
+        }
+
+        /** Return the number of shared subexpressions that have been
+         *  compiled.
+         *  @return The number of shared subexpressions.
+         */
+        public int getSharedCount() {
+            return _compiledShared.size();
+        }
+
+        /** Compile the given node, or return the expression that was
+         *  compiled for an identical subexpression of another guard.
+         *  @param node The node to compile.
+         *  @return The compiled expression.
+         *  @exception IllegalActionException If the node cannot be
+         *   compiled.
+         */
+        protected CompiledExpression _compile(ASTPtRootNode node)
+                throws IllegalActionException {
+            if (_shared.isEmpty() || node instanceof ASTPtLeafNode) {
+                return super._compile(node);
+            }
+            String key = _WRITER.printParseTree(node);
+            if (!_shared.contains(key)) {
+                return super._compile(node);
+            }
+            SharedExpression result = _compiledShared.get(key);
+            if (result == null) {
+                result = new SharedExpression(super._compile(node));
+                _compiledShared.put(key, result);
+            }
+            return result;
+        }
+
+        private Map<String, SharedExpression> _compiledShared = new HashMap<String, SharedExpression>();
+
+        private Set<String> _shared;
+    }
+
+    /** A subexpression whose value is kept until the next evaluation
+     *  of guards is started.
+     */
+    private class SharedExpression implements CompiledExpression {
+        /** Construct a subexpression that evaluates the given expression.
+         *  @param expression The compiled subexpression.
+         */
+        public SharedExpression(CompiledExpression expression) {
+            _expression = expression;
+        }
+
+        /** Return the value of the subexpression in the current
+         *  evaluation of guards, evaluating it if it has not been
+         *  evaluated.
+         *  @param scope The scope.
+         *  @return The value of the subexpression.
+         *  @exception IllegalActionException If an evaluation error occurs.
+         */
+        public Token evaluate(ParserScope scope) throws IllegalActionException {
+            if (_valueEvaluation != _evaluation || scope != _valueScope) {
+                _value = _expression.evaluate(scope);
+                _valueEvaluation = _evaluation;
+                _valueScope = scope;
+            }
+            return _value;
+        }
+
+        private CompiledExpression _expression;
+
+        private Token _value;
+
+        private int _valueEvaluation;
+
+        private ParserScope _valueScope;
+    }
+}
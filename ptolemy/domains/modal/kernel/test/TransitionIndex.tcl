@@ -0,0 +1,136 @@
+# Tests for the TransitionIndex class
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+# 
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+# 
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+# 
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+# 
+# 						PT_COPYRIGHT_VERSION_2
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+# Add a transition with the given guard from s0 to s1.
+proc addTransition {fsm name guard} {
+    set t [java::new ptolemy.domains.modal.kernel.Transition $fsm $name]
+    [java::field [java::cast ptolemy.domains.modal.kernel.State \
+	    [$fsm getEntity s0]] outgoingPort] link $t
+    [java::field [java::cast ptolemy.domains.modal.kernel.State \
+	    [$fsm getEntity s1]] incomingPort] link $t
+    $t setGuardExpression $guard
+    return $t
+}
+
+# Return the names of the transitions that are enabled according to
+# the given index.
+proc enabledNames {index transitions} {
+    $index startEvaluation
+    set result {}
+    foreach t $transitions {
+	if [catch {set enabled [$index isEnabled $t]} msg] {
+	    lappend result "[$t getName]: $msg"
+	} elseif {$enabled} {
+	    lappend result [$t getName]
+	}
+    }
+    return $result
+}
+
+######################################################################
+####
+#
+test TransitionIndex-1.1 {test free variables and shared subexpressions} {
+    set e0 [java::new ptolemy.actor.TypedCompositeActor]
+    $e0 setManager [java::new ptolemy.actor.Manager]
+    set dir [java::new ptolemy.actor.Director $e0 dir]
+    set fsm [java::new ptolemy.domains.modal.kernel.FSMActor $e0 fsm]
+    set s0 [java::new ptolemy.domains.modal.kernel.State $fsm s0]
+    set s1 [java::new ptolemy.domains.modal.kernel.State $fsm s1]
+    [java::field $fsm initialStateName] setExpression s0
+    set p0 [java::new ptolemy.actor.TypedIOPort $fsm p0]
+    $p0 setInput true
+    set p1 [java::new ptolemy.actor.TypedIOPort $fsm p1]
+    $p1 setInput true
+    set e2 [java::new ptolemy.actor.TypedAtomicActor $e0 e2]
+    set p2 [java::new ptolemy.actor.TypedIOPort $e2 p2]
+    $p2 setOutput true
+    $p2 setMultiport true
+    set r0 [java::new ptolemy.actor.TypedIORelation $e0 r0]
+    set r1 [java::new ptolemy.actor.TypedIORelation $e0 r1]
+    $p0 link $r0
+    $p1 link $r1
+    $p2 link $r0
+    $p2 link $r1
+    set t0 [addTransition $fsm t0 "p0 > 0 && p0 < 10"]
+    set t1 [addTransition $fsm t1 "p0 > 0 && p0 < 5"]
+    set t2 [addTransition $fsm t2 "!p0_isPresent || p0 > 0"]
+    set t3 [addTransition $fsm t3 "p1_isPresent && p1 == 1"]
+    set t4 [addTransition $fsm t4 "p1_isPresent ? p1 == 1 : true"]
+    set t5 [addTransition $fsm t5 "p1 + 1 > 2 || p0 < 10"]
+    set t6 [addTransition $fsm t6 ""]
+    set transitions [list $t0 $t1 $t2 $t3 $t4 $t5 $t6]
+    $dir preinitialize
+    set index [java::new ptolemy.domains.modal.kernel.TransitionIndex $fsm]
+    list [lsort [listToStrings [$index getGuardVariables $t4]]] \
+	    [java::isnull [$index getGuardVariables $t6]] \
+	    [$index getSharedSubexpressionCount]
+} {{p1 p1_isPresent} 1 3}
+
+test TransitionIndex-1.2 {guards on absent inputs are false} {
+    # Uses the model and index from 1.1.
+    $fsm readInputs
+    enabledNames $index $transitions
+} {t2 t4 t6}
+
+test TransitionIndex-1.3 {guards on present inputs are evaluated} {
+    # Uses the model and index from 1.2.
+    set receiver [[$p0 getReceivers] get {0 0}]
+    $receiver put [java::new ptolemy.data.IntToken 3]
+    $fsm readInputs
+    enabledNames $index $transitions
+} {t0 t1 t2 t4 t6}
+
+test TransitionIndex-1.4 {the index gives the same result as the transitions} {
+    # Uses the model and index from 1.3.
+    set receiver [[$p1 getReceivers] get {0 0}]
+    $receiver put [java::new ptolemy.data.IntToken 1]
+    set receiver [[$p0 getReceivers] get {0 0}]
+    $receiver put [java::new ptolemy.data.IntToken 7]
+    $fsm readInputs
+    set expected {}
+    foreach t $transitions {
+	if [$t isEnabled] {
+	    lappend expected [$t getName]
+	}
+    }
+    list [enabledNames $index $transitions] $expected
+} {{t0 t2 t3 t4 t5 t6} {t0 t2 t3 t4 t5 t6}}
@@ -543,6 +543,48 @@ public class NondeterministicMerge extends TypedCompositeActor {
         public void wrapup() {
         }
 
+        /** Override the base class to delegate to the executive director.
+         *  This director does not keep track of threads.
+         *  @param thread The thread.
+         *  @param receiver The receiver.
+         *  @param readOrWrite Either READ_BLOCKED or WRITE_BLOCKED
+         *   to indicate whether the thread is blocked on read or write.
+         */
+        protected void _lockFreeThreadBlocked(Thread thread,
+                PNRingReceiver receiver, boolean readOrWrite) {
+            Director director = getExecutiveDirector();
+
+            if (director instanceof PNDirector) {
+                ((PNDirector) director)._lockFreeThreadBlocked(thread,
+                        receiver, readOrWrite);
+            } else {
+                throw new InternalErrorException(
+                        "NondeterministicMerge actor can only execute"
+                                + " under the control of a PNDirector!");
+            }
+        }
+
+        /** Override the base class to delegate to the executive director.
+         *  This director does not keep track of threads.
+         *  @param thread The thread.
+         *  @param receiver The receiver.
+         *  @param readOrWrite Either READ_BLOCKED or WRITE_BLOCKED
+         *   to indicate whether the thread is blocked on read or write.
+         */
+        protected void _lockFreeThreadUnblocked(Thread thread,
+                PNRingReceiver receiver, boolean readOrWrite) {
+            Director director = getExecutiveDirector();
+
+            if (director instanceof PNDirector) {
+                ((PNDirector) director)._lockFreeThreadUnblocked(thread,
+                        receiver, readOrWrite);
+            } else {
+                throw new InternalErrorException(
+                        "NondeterministicMerge actor can only execute"
+                                + " under the control of a PNDirector!");
+            }
+        }
+
         // Override since deadlock cannot ever occur internally.
         protected boolean _resolveDeadlock() {
             if (_debugging) {
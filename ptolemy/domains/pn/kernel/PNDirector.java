@@ -32,12 +32,16 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ptolemy.actor.CompositeActor;
 import ptolemy.actor.IORelation;
 import ptolemy.actor.Receiver;
 import ptolemy.actor.process.CompositeProcessDirector;
 import ptolemy.actor.process.ProcessReceiver;
+import ptolemy.data.BooleanToken;
 import ptolemy.data.IntToken;
 import ptolemy.data.expr.Parameter;
 import ptolemy.data.type.BaseType;
@@ -183,6 +187,14 @@ public class PNDirector extends CompositeProcessDirector {
      */
     public Parameter initialQueueCapacity;
 
+    /** If true, then the receivers created by this director are
+     *  instances of {@link PNRingReceiver}, which transfer tokens
+     *  between processes without locks and inform this director only
+     *  when a process blocks. This is a boolean that defaults to false,
+     *  in which case the receivers are instances of PNQueueReceiver.
+     */
+    public Parameter lockFreeQueues;
+
     /** The maximum size of the queues for each communication channel.
      *  This is an integer that defaults to 65536.  To specify unbounded
      *  queues, set this to 0.
@@ -216,6 +228,10 @@ public class PNDirector extends CompositeProcessDirector {
         PNDirector newObject = (PNDirector) super.clone(workspace);
         newObject._readBlockedQueues = new HashMap();
         newObject._writeBlockedQueues = new HashMap();
+        newObject._lockFreeReadBlocked = new ConcurrentHashMap<PNRingReceiver, Thread>();
+        newObject._lockFreeReadBlockedCount = new AtomicInteger();
+        newObject._lockFreeWriteBlocked = new ConcurrentHashMap<PNRingReceiver, Thread>();
+        newObject._lockFreeWriteBlockedCount = new AtomicInteger();
         return newObject;
     }
 
@@ -230,19 +246,33 @@ public class PNDirector extends CompositeProcessDirector {
         // Initialize these counts BEFORE creating threads.
         _readBlockedQueues.clear();
         _writeBlockedQueues.clear();
+        _lockFreeReadBlocked.clear();
+        _lockFreeReadBlockedCount.set(0);
+        _lockFreeWriteBlocked.clear();
+        _lockFreeWriteBlockedCount.set(0);
 
         super.initialize();
     }
 
     /** Return a new receiver compatible with this director. The receiver
-     *  is an instance of PNQueueReceiver. Set the initial capacity
+     *  is an instance of PNQueueReceiver, or of PNRingReceiver if
+     *  the <i>lockFreeQueues</i> parameter is true. Set the initial capacity
      *  of the FIFO queue in the receiver to the value specified by the
      *  director parameter "initialQueueCapacity". The default value
      *  of the parameter is 1.
      *  @return A new PNQueueReceiver.
      */
     public Receiver newReceiver() {
-        PNQueueReceiver receiver = new PNQueueReceiver();
+        PNQueueReceiver receiver;
+        try {
+            if (((BooleanToken) lockFreeQueues.getToken()).booleanValue()) {
+                receiver = new PNRingReceiver();
+            } else {
+                receiver = new PNQueueReceiver();
+            }
+        } catch (IllegalActionException e) {
+            throw new InternalErrorException(e);
+        }
         _receivers.add(new WeakReference(receiver));
 
         // Set the capacity to the default. Note that it will also
@@ -421,6 +451,71 @@ public class PNDirector extends CompositeProcessDirector {
     ///////////////////////////////////////////////////////////////////
     ////                         protected methods                 ////
 
+    /** Return true if the count of active processes equals the number
+     *  of paused and blocked threads, including the threads that are
+     *  blocked on receivers that are instances of PNRingReceiver.
+     *  Otherwise return false.
+     *  @return True if all the processes are paused or blocked.
+     */
+    protected synchronized boolean _areAllThreadsStopped() {
+        return _getActiveThreadsCount() == _getStoppedThreadsCount()
+                + _getBlockedThreadsCount() + _getLockFreeBlockedCount();
+    }
+
+    /** Return true if the number of blocked processes, including the
+     *  processes that are blocked on receivers that are instances of
+     *  PNRingReceiver, is at least the number of active processes.
+     *  @return True if the processes are deadlocked.
+     */
+    protected synchronized boolean _areThreadsDeadlocked() {
+        int lockFreeBlocked = _getLockFreeBlockedCount();
+        if (_debugging) {
+            _debug("Checking for deadlock:");
+            _debug("There are " + _getBlockedThreadsCount()
+                    + " Blocked actors, " + lockFreeBlocked
+                    + " actors blocked on lock-free queues, "
+                    + _getStoppedThreadsCount() + " Stopped actors, and "
+                    + _getActiveThreadsCount() + " active threads.");
+        }
+
+        return _getBlockedThreadsCount() + lockFreeBlocked >= _getActiveThreadsCount();
+    }
+
+    /** Return the number of threads that are blocked on receivers that
+     *  are instances of PNRingReceiver. A thread records itself as
+     *  blocked before it checks a last time whether it can proceed,
+     *  so a thread is counted only if its receiver confirms that it
+     *  cannot proceed. If any of the recorded threads can proceed, or
+     *  if a thread is in the middle of being recorded or removed, then
+     *  return zero, which prevents the detection of a deadlock until
+     *  that thread has proceeded.
+     *  @return The number of threads blocked on lock-free receivers.
+     */
+    protected int _getLockFreeBlockedCount() {
+        int count = _lockFreeReadBlockedCount.get()
+                + _lockFreeWriteBlockedCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        int readBlocked = _countBlocked(_lockFreeReadBlocked, READ_BLOCKED);
+        int writeBlocked = _countBlocked(_lockFreeWriteBlocked,
+                WRITE_BLOCKED);
+        if (readBlocked < 0 || writeBlocked < 0
+                || readBlocked + writeBlocked != count) {
+            return 0;
+        }
+        return count;
+    }
+
+    /** Return the number of threads that are recorded as blocked
+     *  writing to receivers that are instances of PNRingReceiver.
+     *  @return The number of threads blocked writing to lock-free
+     *   receivers.
+     */
+    protected int _getLockFreeWriteBlockedCount() {
+        return _lockFreeWriteBlockedCount.get();
+    }
+
     /** Double the capacity of one of the queues with the smallest
      *  capacity belonging to a receiver on which a process is blocked
      *  while attempting to write. <p>Traverse through the list of receivers
@@ -443,7 +538,13 @@ public class PNDirector extends CompositeProcessDirector {
         // because of the notifyAll() call at the end.
         PNQueueReceiver smallestCapacityQueue = null;
         int smallestCapacity = -1;
-        Iterator receivers = _writeBlockedQueues.keySet().iterator();
+        LinkedList<PNQueueReceiver> writeBlocked = new LinkedList<PNQueueReceiver>();
+        Iterator queues = _writeBlockedQueues.keySet().iterator();
+        while (queues.hasNext()) {
+            writeBlocked.add((PNQueueReceiver) queues.next());
+        }
+        writeBlocked.addAll(_lockFreeWriteBlocked.keySet());
+        Iterator receivers = writeBlocked.iterator();
 
         if (!receivers.hasNext()) {
             return;
@@ -494,6 +595,12 @@ public class PNDirector extends CompositeProcessDirector {
                     + smallestCapacityQueue.getCapacity());
         }
 
+        // A PNRingReceiver has already unblocked its writer
+        // in setCapacity().
+        if (smallestCapacityQueue instanceof PNRingReceiver) {
+            return;
+        }
+
         // Need to mark any thread that is blocked on
         // this receiver unblocked now, before the notification,
         // or we will detect deadlock all over again and
@@ -505,6 +612,53 @@ public class PNDirector extends CompositeProcessDirector {
         return;
     }
 
+    /** Record that the specified thread is blocked on the specified
+     *  receiver, which is an instance of PNRingReceiver, and notify
+     *  the directing thread so that it checks for deadlock. This is
+     *  called only by the blocked thread.
+     *  @param thread The thread.
+     *  @param receiver The receiver.
+     *  @param readOrWrite Either READ_BLOCKED or WRITE_BLOCKED
+     *   to indicate whether the thread is blocked on read or write.
+     *  @see #_lockFreeThreadUnblocked(Thread, PNRingReceiver, boolean)
+     */
+    protected void _lockFreeThreadBlocked(Thread thread,
+            PNRingReceiver receiver, boolean readOrWrite) {
+        if (readOrWrite == READ_BLOCKED) {
+            _lockFreeReadBlocked.put(receiver, thread);
+            _lockFreeReadBlockedCount.incrementAndGet();
+        } else {
+            _lockFreeWriteBlocked.put(receiver, thread);
+            _lockFreeWriteBlockedCount.incrementAndGet();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /** Record that the specified thread is no longer blocked on the
+     *  specified receiver, which is an instance of PNRingReceiver.
+     *  This is called only by the formerly blocked thread, and it does
+     *  not synchronize on the director.
+     *  @param thread The thread.
+     *  @param receiver The receiver.
+     *  @param readOrWrite Either READ_BLOCKED or WRITE_BLOCKED
+     *   to indicate whether the thread is blocked on read or write.
+     *  @see #_lockFreeThreadBlocked(Thread, PNRingReceiver, boolean)
+     */
+    protected void _lockFreeThreadUnblocked(Thread thread,
+            PNRingReceiver receiver, boolean readOrWrite) {
+        if (readOrWrite == READ_BLOCKED) {
+            if (_lockFreeReadBlocked.remove(receiver) != null) {
+                _lockFreeReadBlockedCount.decrementAndGet();
+            }
+        } else {
+            if (_lockFreeWriteBlocked.remove(receiver) != null) {
+                _lockFreeWriteBlockedCount.decrementAndGet();
+            }
+        }
+    }
+
     /** Resolve an artificial deadlock and return true. If the
      *  deadlock is not an artificial deadlock (it is a real deadlock),
      *  then return false.
@@ -527,7 +681,9 @@ public class PNDirector extends CompositeProcessDirector {
      *  This might be thrown by derived classes.
      */
     protected boolean _resolveInternalDeadlock() throws IllegalActionException {
-        if ((_writeBlockedQueues.isEmpty()) && (!_readBlockedQueues.isEmpty())) {
+        if (_writeBlockedQueues.isEmpty() && _lockFreeWriteBlocked.isEmpty()
+                && (!_readBlockedQueues.isEmpty() || !_lockFreeReadBlocked
+                        .isEmpty())) {
             // There is a real deadlock.
             if (_debugging) {
                 _debug("Deadlock detected: no processes blocked on write, but some are blocked on read.");
@@ -565,12 +721,37 @@ public class PNDirector extends CompositeProcessDirector {
 
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
+
+    /** Return the number of receivers in the specified map, or -1
+     *  if any of them does not confirm that the thread recorded in it
+     *  is blocked.
+     *  @param blocked The map of receivers to blocked threads.
+     *  @param readOrWrite Either READ_BLOCKED or WRITE_BLOCKED.
+     *  @return The number of blocked threads, or -1.
+     */
+    private int _countBlocked(Map<PNRingReceiver, Thread> blocked,
+            boolean readOrWrite) {
+        int count = 0;
+        Iterator<PNRingReceiver> receivers = blocked.keySet().iterator();
+        while (receivers.hasNext()) {
+            if (!receivers.next()._isBlocked(readOrWrite)) {
+                return -1;
+            }
+            count++;
+        }
+        return count;
+    }
+
     private void _init() throws IllegalActionException,
             NameDuplicationException {
         initialQueueCapacity = new Parameter(this, "initialQueueCapacity",
                 new IntToken(1));
         initialQueueCapacity.setTypeEquals(BaseType.INT);
 
+        lockFreeQueues = new Parameter(this, "lockFreeQueues");
+        lockFreeQueues.setTypeEquals(BaseType.BOOLEAN);
+        lockFreeQueues.setExpression("false");
+
         maximumQueueCapacity = new Parameter(this, "maximumQueueCapacity",
                 new IntToken(65536));
         maximumQueueCapacity.setTypeEquals(BaseType.INT);
@@ -579,6 +760,26 @@ public class PNDirector extends CompositeProcessDirector {
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
+    /** The receivers that are instances of PNRingReceiver on which
+     *  a process is blocked reading, and the blocked threads.
+     */
+    private Map<PNRingReceiver, Thread> _lockFreeReadBlocked = new ConcurrentHashMap<PNRingReceiver, Thread>();
+
+    /** The number of processes blocked reading from receivers that
+     *  are instances of PNRingReceiver.
+     */
+    private AtomicInteger _lockFreeReadBlockedCount = new AtomicInteger();
+
+    /** The receivers that are instances of PNRingReceiver on which
+     *  a process is blocked writing, and the blocked threads.
+     */
+    private Map<PNRingReceiver, Thread> _lockFreeWriteBlocked = new ConcurrentHashMap<PNRingReceiver, Thread>();
+
+    /** The number of processes blocked writing to receivers that
+     *  are instances of PNRingReceiver.
+     */
+    private AtomicInteger _lockFreeWriteBlockedCount = new AtomicInteger();
+
     /** List of process listeners. */
     private LinkedList _processListeners = new LinkedList();
 
@@ -0,0 +1,511 @@
+/* A PN receiver with a lock-free ring buffer.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.pn.kernel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import ptolemy.actor.IOPort;
+import ptolemy.actor.NoTokenException;
+import ptolemy.actor.process.TerminateProcessException;
+import ptolemy.data.Token;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// PNRingReceiver
+
+/**
+ A PN receiver that stores tokens in a bounded ring buffer that
+ the producing and the consuming process access without locks.
+ Like {@link PNQueueReceiver}, this receiver blocks the calling process
+ on a read if it is empty and on a write if it is full, but
+ a get() or put() that does not block does not synchronize on the
+ director or on the receiver. Only a process that blocks informs
+ the director, which needs to know about blocked processes
+ to detect deadlock.
+ <p>
+ The receiver assumes that there is one process that puts tokens
+ and one process that gets tokens, which is the case for the channels
+ of a PN model (PNDirector does not allow a relation to have more
+ than one source). The positions of the oldest token and of the
+ next free slot are volatile counters, each of which is written only
+ by one of the two processes. A process that blocks records itself in
+ the receiver, checks again whether it can proceed, and then parks.
+ The other process unparks it after it takes or puts a token.
+ <p>
+ The capacity is bounded. Increasing the capacity may allocate a
+ larger buffer, which the director does only when it has detected
+ an artificial deadlock, and hence when neither process is
+ accessing the buffer.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see PNDirector
+ */
+public class PNRingReceiver extends PNQueueReceiver {
+    /** Construct an empty receiver with no container.
+     */
+    public PNRingReceiver() {
+        super();
+    }
+
+    /** Construct an empty receiver with the specified container.
+     *  @param container The container of the receiver.
+     *  @exception IllegalActionException If the container does
+     *   not accept this receiver.
+     */
+    public PNRingReceiver(IOPort container) throws IllegalActionException {
+        super(container);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Clear this receiver of any contained tokens. This should
+     *  be called only when no process is accessing the receiver.
+     */
+    public void clear() {
+        for (int i = 0; i < _buffer.length; i++) {
+            _buffer[i] = null;
+        }
+        _head = 0L;
+        _tail = 0L;
+    }
+
+    /** List the tokens in the receiver, beginning with the oldest.
+     *  @return A list of tokens.
+     */
+    public List<Token> elementList() {
+        List<Token> result = new ArrayList<Token>();
+        Token[] buffer = _buffer;
+        long tail = _tail;
+        for (long i = _head; i < tail; i++) {
+            result.add(buffer[(int) i & (buffer.length - 1)]);
+        }
+        return result;
+    }
+
+    /** Enumerate the tokens in the receiver, beginning with the oldest.
+     *  @deprecated Used elementList() instead.
+     *  @return An enumeration of tokens.
+     */
+    public Enumeration elements() {
+        return Collections.enumeration(elementList());
+    }
+
+    /** Get a token from this receiver. If the receiver is empty,
+     *  block until a token is available. If this receiver is
+     *  terminated during the execution of this method, then throw
+     *  a TerminateProcessException.
+     *  @return The oldest token in this receiver.
+     */
+    public Token get() {
+        while (true) {
+            long head = _head;
+            if (head < _tail) {
+                Token[] buffer = _buffer;
+                int index = (int) head & (buffer.length - 1);
+                Token result = buffer[index];
+                buffer[index] = null;
+                _head = head + 1;
+                _unblock(_writer);
+                return result;
+            }
+            if (_terminate) {
+                throw new TerminateProcessException("");
+            }
+            _block(_reader, PNDirector.READ_BLOCKED);
+        }
+    }
+
+    /** Return a token in the receiver without removing it. If the
+     *  offset argument is zero, return the oldest token in the receiver.
+     *  If the offset is 1, return the second oldest token, etc.
+     *  This receiver does not keep a history, so a negative offset
+     *  is out of range.
+     *  @param offset The offset from the oldest token in the receiver.
+     *  @return The token at the desired offset in the receiver.
+     *  @exception NoTokenException If the offset is out of range.
+     */
+    public Token get(int offset) {
+        long head = _head;
+        if (offset < 0 || head + offset >= _tail) {
+            throw new NoTokenException(getContainer(), "Offset " + offset
+                    + " out of range with " + size()
+                    + " tokens in the receiver.");
+        }
+        Token[] buffer = _buffer;
+        return buffer[(int) (head + offset) & (buffer.length - 1)];
+    }
+
+    /** Return the capacity of the receiver.
+     *  @return The capacity of the receiver.
+     *  @see #setCapacity(int)
+     */
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /** Return true if a process is blocked reading from this receiver.
+     *  @return True if a process is blocked reading from this receiver.
+     */
+    public boolean isReadBlocked() {
+        return _reader.get() != null;
+    }
+
+    /** Return true if a process is blocked writing to this receiver.
+     *  @return True if a process is blocked writing to this receiver.
+     */
+    public boolean isWriteBlocked() {
+        return _writer.get() != null;
+    }
+
+    /** Put a token into this receiver. If the receiver is full,
+     *  block until there is room. If the argument is null, do nothing.
+     *  If this receiver is terminated during the execution of this
+     *  method, then throw a TerminateProcessException.
+     *  @param token The token to be put in the receiver.
+     */
+    public void put(Token token) {
+        if (token == null) {
+            return;
+        }
+        while (true) {
+            long tail = _tail;
+            if (tail - _head < _capacity) {
+                Token[] buffer = _buffer;
+                buffer[(int) tail & (buffer.length - 1)] = token;
+                _tail = tail + 1;
+                _unblock(_reader);
+                return;
+            }
+            if (_terminate) {
+                throw new TerminateProcessException("Process terminated.");
+            }
+            _block(_writer, PNDirector.WRITE_BLOCKED);
+        }
+    }
+
+    /** Reset the state variables in the receiver and unblock
+     *  the processes that are blocked on it, if any.
+     */
+    public void reset() {
+        super.reset();
+        _terminate = false;
+        _unblock(_reader);
+        _unblock(_writer);
+    }
+
+    /** Set a local flag requesting that execution of the process
+     *  using this receiver be terminated, and wake up the processes
+     *  that are blocked on it, if any.
+     */
+    public void requestFinish() {
+        _terminate = true;
+        Thread reader = _reader.get();
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+        Thread writer = _writer.get();
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+        PNDirector director = getDirector();
+        synchronized (director) {
+            director.notifyAll();
+        }
+    }
+
+    /** Set the capacity of the receiver. If the capacity exceeds the
+     *  size of the buffer, then allocate a larger buffer. If a process
+     *  is blocked writing to this receiver and the new capacity leaves
+     *  room for a token, then unblock that process. This should be
+     *  called only when no process is accessing the buffer.
+     *  @param capacity The desired capacity.
+     *  @exception IllegalActionException If the capacity is negative,
+     *   or if the receiver has more tokens than the capacity.
+     *  @see #getCapacity()
+     */
+    public void setCapacity(int capacity) throws IllegalActionException {
+        if (capacity < 0) {
+            throw new IllegalActionException(getContainer(),
+                    "A PNRingReceiver requires a bounded capacity. Got "
+                            + capacity);
+        }
+        long head = _head;
+        long tail = _tail;
+        if (tail - head > capacity) {
+            throw new IllegalActionException(getContainer(),
+                    "Failed to set capacity to " + capacity + " with "
+                            + (tail - head) + " tokens in the receiver.");
+        }
+        if (capacity > _buffer.length) {
+            int length = _buffer.length;
+            while (length < capacity) {
+                length <<= 1;
+            }
+            Token[] buffer = new Token[length];
+            for (long i = head; i < tail; i++) {
+                buffer[(int) i & (length - 1)] = _buffer[(int) i
+                        & (_buffer.length - 1)];
+            }
+            _buffer = buffer;
+        }
+        _capacity = capacity;
+        if (tail - head < capacity) {
+            _unblock(_writer);
+        }
+    }
+
+    /** Return the number of tokens in the receiver.
+     *  @return The number of tokens in the receiver.
+     */
+    public int size() {
+        return (int) (_tail - _head);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Return true if the process that is recorded as blocked
+     *  on this receiver with the specified kind of block cannot
+     *  proceed. The director uses this to confirm a deadlock.
+     *  @param readOrWrite PNDirector.READ_BLOCKED or
+     *   PNDirector.WRITE_BLOCKED.
+     *  @return True if a process is recorded as blocked, the receiver
+     *   is empty and the block is a read, or the receiver is full and
+     *   the block is a write, and termination has not been requested.
+     */
+    protected boolean _isBlocked(boolean readOrWrite) {
+        AtomicReference<Thread> waiter = _writer;
+        if (readOrWrite == PNDirector.READ_BLOCKED) {
+            waiter = _reader;
+        }
+        return waiter.get() != null && !_terminate
+                && !_canProceed(readOrWrite);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Block the calling thread until the specified reference no longer
+     *  refers to it, or until it can proceed or is terminated.
+     *  The thread records itself in the reference before it informs
+     *  the director that it is blocked, so that the director, which
+     *  confirms each blocked thread with {@link #_isBlocked(boolean)},
+     *  does not detect a deadlock before the thread is recorded.
+     *  Only the blocked thread informs the director that it is blocked
+     *  or unblocked, so the records of the director cannot be updated
+     *  out of order by the other process.
+     *  <p>
+     *  If the calling thread holds the lock on the director, then it
+     *  is not the only process that accesses this end of the receiver.
+     *  NondeterministicMerge, for example, has one process per input
+     *  channel, and these processes write to the same receiver while
+     *  holding the lock. Such a thread waits on the director instead,
+     *  as in PNQueueReceiver.</p>
+     *  @param waiter The reference for blocked readers or writers.
+     *  @param readOrWrite PNDirector.READ_BLOCKED or
+     *   PNDirector.WRITE_BLOCKED.
+     */
+    private void _block(AtomicReference<Thread> waiter, boolean readOrWrite) {
+        PNDirector director = getDirector();
+        Thread current = Thread.currentThread();
+        // NOTE: Release the read access held by this thread so that
+        // mutations are not blocked while this thread waits.
+        Workspace workspace = getContainer().workspace();
+        if (Thread.holdsLock(director)) {
+            int depth = workspace.releaseReadPermission();
+            try {
+                _waitOnDirector(director, readOrWrite);
+            } finally {
+                if (depth > 0) {
+                    workspace.reacquireReadPermission(depth);
+                }
+            }
+            return;
+        }
+        waiter.set(current);
+        director._lockFreeThreadBlocked(current, this, readOrWrite);
+        int depth = workspace.releaseReadPermission();
+        try {
+            while (waiter.get() == current) {
+                // Check again after recording this thread, since the
+                // other process may have taken or put a token before
+                // it could see the record.
+                if (_terminate || _canProceed(readOrWrite)) {
+                    waiter.compareAndSet(current, null);
+                    break;
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    _terminate = true;
+                }
+            }
+        } finally {
+            director._lockFreeThreadUnblocked(current, this, readOrWrite);
+            if (depth > 0) {
+                workspace.reacquireReadPermission(depth);
+            }
+        }
+    }
+
+    /** Return true if a get() (if the argument is READ_BLOCKED) or a put()
+     *  (if the argument is WRITE_BLOCKED) would not block.
+     *  @param readOrWrite PNDirector.READ_BLOCKED or
+     *   PNDirector.WRITE_BLOCKED.
+     *  @return True if the operation can proceed.
+     */
+    private boolean _canProceed(boolean readOrWrite) {
+        if (readOrWrite == PNDirector.READ_BLOCKED) {
+            return _head < _tail;
+        } else {
+            return _tail - _head < _capacity;
+        }
+    }
+
+    /** Inform the director that the threads that are waiting on it
+     *  are unblocked and notify them. They block again if they still
+     *  cannot proceed. This synchronizes on the director, and it
+     *  should be called only if there are such threads.
+     */
+    private void _notifyWaitingOnDirector() {
+        PNDirector director = getDirector();
+        synchronized (director) {
+            Iterator<Map.Entry<Thread, Boolean>> threads = _waitingOnDirector
+                    .entrySet().iterator();
+            while (threads.hasNext()) {
+                Map.Entry<Thread, Boolean> entry = threads.next();
+                director.threadUnblocked(entry.getKey(), this, entry
+                        .getValue().booleanValue());
+            }
+            _waitingOnDirector.clear();
+            _waitingOnDirectorCount = 0;
+            director.notifyAll();
+        }
+    }
+
+    /** If a thread is recorded in the specified reference, remove it
+     *  and wake it up. Also notify the threads that are waiting on the
+     *  director, if any. The thread that is woken up informs the director
+     *  that it is no longer blocked.
+     *  @param waiter The reference for blocked readers or writers.
+     */
+    private void _unblock(AtomicReference<Thread> waiter) {
+        Thread thread = waiter.get();
+        if (thread != null && waiter.compareAndSet(thread, null)) {
+            LockSupport.unpark(thread);
+        }
+        if (_waitingOnDirectorCount > 0) {
+            _notifyWaitingOnDirector();
+        }
+    }
+
+    /** Wait on the director until the calling thread can proceed or
+     *  termination is requested. The calling thread is required
+     *  to hold the lock on the director.
+     *  @param director The director.
+     *  @param readOrWrite PNDirector.READ_BLOCKED or
+     *   PNDirector.WRITE_BLOCKED.
+     */
+    private void _waitOnDirector(PNDirector director, boolean readOrWrite) {
+        Thread current = Thread.currentThread();
+        try {
+            while (true) {
+                // Record this thread before checking whether it can
+                // proceed, so that the other process either sees
+                // the record or has already taken or put the token.
+                if (!_waitingOnDirector.containsKey(current)) {
+                    _waitingOnDirector.put(current, Boolean
+                            .valueOf(readOrWrite));
+                    _waitingOnDirectorCount = _waitingOnDirector.size();
+                    director.threadBlocked(current, this, readOrWrite);
+                }
+                if (_terminate || _canProceed(readOrWrite)) {
+                    break;
+                }
+                director.wait();
+            }
+        } catch (InterruptedException e) {
+            _terminate = true;
+        } finally {
+            if (_waitingOnDirector.remove(current) != null) {
+                _waitingOnDirectorCount = _waitingOnDirector.size();
+                director.threadUnblocked(current, this, readOrWrite);
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The buffer, the length of which is a power of two. */
+    private volatile Token[] _buffer = new Token[1];
+
+    /** The capacity. */
+    private volatile int _capacity = 1;
+
+    /** The number of tokens that have been taken, which is written
+     *  only by the consuming process.
+     */
+    private volatile long _head = 0L;
+
+    /** The thread that is blocked reading, if any. */
+    private AtomicReference<Thread> _reader = new AtomicReference<Thread>();
+
+    /** The number of tokens that have been put, which is written
+     *  only by the producing process.
+     */
+    private volatile long _tail = 0L;
+
+    /** Flag indicating that termination has been requested. */
+    private volatile boolean _terminate = false;
+
+    /** The threads that hold the lock on the director and wait on it,
+     *  and whether each is blocked reading or writing. This is accessed
+     *  only while holding the lock on the director.
+     */
+    private Map<Thread, Boolean> _waitingOnDirector = new HashMap<Thread, Boolean>();
+
+    /** The number of threads that wait on the director. */
+    private volatile int _waitingOnDirectorCount = 0;
+
+    /** The thread that is blocked writing, if any. */
+    private AtomicReference<Thread> _writer = new AtomicReference<Thread>();
+}
@@ -270,7 +270,8 @@ public class TimedPNDirector extends PNDirector implements TimedDirector {
      *  @return true if a deadlock is detected.
      */
     protected synchronized boolean _areThreadsDeadlocked() {
-        if ((_readBlockedQueues.size() + _writeBlockedQueues.size() + _delayBlockCount) >= _getActiveThreadsCount()) {
+        if ((_readBlockedQueues.size() + _writeBlockedQueues.size()
+                + _getLockFreeBlockedCount() + _delayBlockCount) >= _getActiveThreadsCount()) {
             return true;
         } else {
             return false;
@@ -305,7 +306,8 @@ public class TimedPNDirector extends PNDirector implements TimedDirector {
      *  This might be thrown by derived classes.
      */
     protected boolean _resolveDeadlock() throws IllegalActionException {
-        if (_writeBlockedQueues.size() != 0) {
+        if (_writeBlockedQueues.size() != 0
+                || _getLockFreeWriteBlockedCount() != 0) {
             // Artificial deadlock based on write blocks.
             _incrementLowestWriteCapacityPort();
             return true;
@@ -0,0 +1,168 @@
+# Tests for the PNRingReceiver class
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+set toplevel [java::new ptolemy.actor.CompositeActor]
+set dir [java::new ptolemy.domains.pn.kernel.PNDirector]
+$toplevel setDirector $dir
+set sink [java::new ptolemy.domains.pn.kernel.test.TestSink $toplevel "sink"]
+set port [$sink getPort "input"]
+
+# Return the int values of the tokens in the receiver.
+proc ringContents {receiver} {
+    set result {}
+    set tokens [$receiver elementList]
+    for {set i 0} {$i < [$tokens size]} {incr i} {
+	lappend result [[java::cast ptolemy.data.IntToken [$tokens get $i]] \
+			    intValue]
+    }
+    return $result
+}
+
+######################################################################
+####
+#
+test PNRingReceiver-1.1 {lockFreeQueues selects the receiver class} {
+    set r1 [$dir newReceiver]
+    [java::field $dir lockFreeQueues] setExpression true
+    set r2 [$dir newReceiver]
+    [java::field $dir lockFreeQueues] setExpression false
+    list [java::instanceof $r1 ptolemy.domains.pn.kernel.PNRingReceiver] \
+	[java::instanceof $r2 ptolemy.domains.pn.kernel.PNRingReceiver] \
+	[[java::cast ptolemy.domains.pn.kernel.PNRingReceiver $r2] \
+	     getCapacity]
+} {0 1 1}
+
+######################################################################
+####
+#
+test PNRingReceiver-2.1 {Check hasRoom and hasToken} {
+    set rec [java::new ptolemy.domains.pn.kernel.PNRingReceiver $port]
+    # As in PNQueueReceiver, these always return true.
+    list [$rec hasRoom] [$rec hasRoom 10] [$rec hasToken] [$rec hasToken 10] \
+	[$rec isReadBlocked] [$rec isWriteBlocked]
+} {1 1 1 1 0 0}
+
+######################################################################
+####
+#
+test PNRingReceiver-2.2 {Put and get tokens around the end of the buffer} {
+    # The buffer has 8 slots.
+    $rec setCapacity 6
+    set result {}
+    for {set i 1} {$i <= 10} {incr i} {
+	$rec put [java::new {ptolemy.data.IntToken int} $i]
+	if {$i % 2 == 0} {
+	    lappend result [[java::cast ptolemy.data.IntToken [$rec get]] \
+				intValue]
+	}
+    }
+    list $result [ringContents $rec] [$rec size] \
+	[[java::cast ptolemy.data.IntToken [$rec get 1]] intValue]
+} {{1 2 3 4 5} {6 7 8 9 10} 5 7}
+
+######################################################################
+####
+#
+test PNRingReceiver-2.3 {Increasing the capacity preserves the order} {
+    $rec clear
+    $rec setCapacity 2
+    $rec put [java::new {ptolemy.data.IntToken int} 1]
+    $rec put [java::new {ptolemy.data.IntToken int} 2]
+    $rec get
+    $rec put [java::new {ptolemy.data.IntToken int} 3]
+    $rec setCapacity 5
+    $rec put [java::new {ptolemy.data.IntToken int} 4]
+    $rec put [java::new {ptolemy.data.IntToken int} 5]
+    $rec put [java::new {ptolemy.data.IntToken int} 6]
+    list [ringContents $rec] [$rec getCapacity]
+} {{2 3 4 5 6} 5}
+
+######################################################################
+####
+#
+test PNRingReceiver-2.4 {The capacity cannot be less than the size} {
+    catch {$rec setCapacity 4} errMsg1
+    catch {$rec setCapacity -1} errMsg2
+    list [lindex [split $errMsg1 "\n"] 0] [lindex [split $errMsg2 "\n"] 0] \
+	[$rec getCapacity]
+} {{ptolemy.kernel.util.IllegalActionException: Failed to set capacity to 4 with 5 tokens in the receiver.} {ptolemy.kernel.util.IllegalActionException: A PNRingReceiver requires a bounded capacity. Got -1} 5}
+
+######################################################################
+####
+#
+test PNRingReceiver-2.5 {Get with an offset out of range} {
+    catch {$rec get 5} errMsg
+    list [lindex [split $errMsg "\n"] 0]
+} {{ptolemy.actor.NoTokenException: Offset 5 out of range with 5 tokens in the receiver.}}
+
+######################################################################
+####
+#
+test PNRingReceiver-2.6 {Test for reset} {
+    $rec requestFinish
+    $rec reset
+    list [ringContents $rec] [$rec isReadBlocked] [$rec isWriteBlocked]
+} {{2 3 4 5 6} 0 0}
+
+######################################################################
+####
+#
+test PNRingReceiver-3.1 {Run PN models with lock-free queues} {
+    set result {}
+    foreach model {Identity.xml IdentityWithFeedback.xml FourExpressions.xml \
+		       BrockAckermanTest.xml Branching-switch-PN-ptolemy.xml} {
+	set parser [java::new ptolemy.moml.MoMLParser]
+	$parser resetAll
+	set toplevel [java::cast ptolemy.actor.CompositeActor \
+			  [$parser parseFile [file join .. .. test auto $model]]]
+	set pnDirector [java::cast ptolemy.domains.pn.kernel.PNDirector \
+			    [$toplevel getDirector]]
+	[java::field $pnDirector lockFreeQueues] setExpression true
+	set manager [java::new ptolemy.actor.Manager [$toplevel workspace] \
+			 manager]
+	$toplevel setManager $manager
+	$manager execute
+	lappend result [java::instanceof [$pnDirector newReceiver] \
+			    ptolemy.domains.pn.kernel.PNRingReceiver]
+    }
+    list $result
+} {{1 1 1 1 1}}
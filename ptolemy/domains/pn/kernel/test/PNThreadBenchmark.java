@@ -0,0 +1,192 @@
+/* Measure how the execution of PN models scales with the number of actors.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.pn.kernel.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import ptolemy.actor.Manager;
+import ptolemy.actor.TypedCompositeActor;
+import ptolemy.actor.TypedIOPort;
+import ptolemy.actor.lib.Discard;
+import ptolemy.actor.lib.Ramp;
+import ptolemy.actor.lib.Scale;
+import ptolemy.domains.pn.kernel.PNDirector;
+import ptolemy.kernel.util.KernelException;
+
+///////////////////////////////////////////////////////////////////
+//// PNThreadBenchmark
+
+/**
+ Measure how the execution time of a PN model, in which each actor
+ has its own thread, scales with the number of actors, and how it
+ depends on the <i>threadStackSize</i> and <i>lockFreeQueues</i>
+ parameters of the director.
+ <p>
+ The model is a chain of actors: a Ramp that produces a few tokens,
+ a number of Scale actors, and a Discard. Since the Ramp produces few
+ tokens, the execution time is dominated by the creation, starting and
+ termination of the threads. For each number of actors, the benchmark
+ reports the elapsed time, the peak number of live threads, and the
+ stack memory that the threads would reserve with the default stack size
+ and with the requested stack size. The stack memory is reserved outside
+ of the Java heap, so it is computed from the number of threads rather
+ than measured.
+ <p>
+ To run:
+ <pre>
+ java -classpath $PTII ptolemy.domains.pn.kernel.test.PNThreadBenchmark [maximumActors [stackSize [tokens]]]
+ </pre>
+ The defaults are 2000 actors, a stack size of 131072 bytes and 10
+ tokens. The number of actors starts at 10 and is multiplied by 10 up
+ to the maximum. The default stack size of the Java virtual machine
+ can be set with -Xss, which this benchmark assumes to be 1 MB when it
+ reports the reserved memory.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class PNThreadBenchmark {
+    /** Create a benchmark for the given number of tokens.
+     *  @param tokens The number of tokens produced by the source.
+     */
+    public PNThreadBenchmark(int tokens) {
+        _tokens = tokens;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Run the benchmark and print the results to standard out.
+     *  @param args An optional maximum number of actors, followed by
+     *   an optional stack size in bytes and an optional number of tokens.
+     *  @exception KernelException If the model cannot be constructed
+     *   or executed.
+     */
+    public static void main(String[] args) throws KernelException {
+        int maximumActors = 2000;
+        long stackSize = 131072L;
+        int tokens = 10;
+        if (args.length > 0) {
+            maximumActors = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            stackSize = Long.parseLong(args[1]);
+        }
+        if (args.length > 2) {
+            tokens = Integer.parseInt(args[2]);
+        }
+        PNThreadBenchmark benchmark = new PNThreadBenchmark(tokens);
+
+        // Warm up the JIT compiler.
+        for (int run = 0; run < _WARMUP_RUNS; run++) {
+            benchmark.run(10, 0L, false);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (int actors = 10; actors <= maximumActors; actors *= 10) {
+            long[] stackSizes = { 0L, stackSize };
+            for (int i = 0; i < stackSizes.length; i++) {
+                for (int lockFree = 0; lockFree < 2; lockFree++) {
+                    threads.resetPeakThreadCount();
+                    int before = threads.getThreadCount();
+                    long elapsed = benchmark.run(actors, stackSizes[i],
+                            lockFree == 1);
+                    int peak = threads.getPeakThreadCount() - before;
+                    long reserved = stackSizes[i];
+                    if (reserved == 0L) {
+                        reserved = _DEFAULT_STACK_SIZE;
+                    }
+                    System.out.println("actors: " + actors
+                            + " threadStackSize: " + stackSizes[i]
+                            + " lockFreeQueues: " + (lockFree == 1)
+                            + " time: " + (elapsed / 1000000L) + " ms"
+                            + " peak threads: " + peak
+                            + " reserved stacks: "
+                            + ((peak * reserved) >> 20) + " MB");
+                }
+            }
+        }
+    }
+
+    /** Construct and execute the model and return the elapsed time
+     *  of the execution.
+     *  @param actors The number of actors in the chain, including the
+     *   source and the sink, which is at least 2.
+     *  @param stackSize The stack size of the threads, or 0 for the
+     *   default.
+     *  @param lockFreeQueues True to use lock-free receivers.
+     *  @return The elapsed time of the execution, in nanoseconds.
+     *  @exception KernelException If the model cannot be constructed
+     *   or executed.
+     */
+    public long run(int actors, long stackSize, boolean lockFreeQueues)
+            throws KernelException {
+        TypedCompositeActor toplevel = new TypedCompositeActor();
+        toplevel.setName("benchmark");
+        PNDirector director = new PNDirector(toplevel, "director");
+        director.threadStackSize.setExpression(Long.toString(stackSize));
+        director.lockFreeQueues.setExpression(Boolean
+                .toString(lockFreeQueues));
+        Manager manager = new Manager(toplevel.workspace(), "manager");
+        toplevel.setManager(manager);
+
+        Ramp ramp = new Ramp(toplevel, "ramp");
+        ramp.firingCountLimit.setExpression(Integer.toString(_tokens));
+        TypedIOPort output = ramp.output;
+        for (int i = 0; i < actors - 2; i++) {
+            Scale scale = new Scale(toplevel, "scale" + i);
+            toplevel.connect(output, scale.input);
+            output = scale.output;
+        }
+        Discard discard = new Discard(toplevel, "discard");
+        toplevel.connect(output, discard.input);
+
+        long start = System.nanoTime();
+        manager.execute();
+        return System.nanoTime() - start;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The stack size assumed for threads with the default stack size,
+     *  which is the default of the HotSpot virtual machine on
+     *  64-bit platforms.
+     */
+    private static final long _DEFAULT_STACK_SIZE = 1L << 20;
+
+    /** The number of runs to warm up the JIT compiler. */
+    private static final int _WARMUP_RUNS = 5;
+
+    /** The number of tokens produced by the source. */
+    private int _tokens;
+}
@@ -53,7 +53,12 @@ import ptolemy.kernel.util.Nameable;
  capacity is zero.
  <p>
  This queue is implemented as a circular array.  When the array becomes full,
- it is transparently doubled in size.
+ it is transparently doubled in size.  If the capacity is finite, then the
+ array is not enlarged when the capacity is set, but when an object is put
+ into the queue and does not fit, and it is then allocated with the full
+ capacity.  Thus, increasing the capacity step by step, as the
+ SDFScheduler does while it computes the buffer sizes of a schedule,
+ allocates the array only once.
 
  @author Steve Neuendorffer, contributor: Brian Hudson
  @version $Id$
@@ -152,7 +157,7 @@ public final class ArrayFIFOQueue implements Cloneable {
         LinkedList l = new LinkedList();
         int i;
 
-        if ((_queueFront < _queueBack) || isFull()) {
+        if ((_queueFront < _queueBack) || (_queueSize >= _queueArray.length)) {
             for (i = _queueBack; (i < _queueArray.length); i++) {
                 l.addLast(_queueArray[i]);
             }
@@ -297,7 +302,10 @@ public final class ArrayFIFOQueue implements Cloneable {
      *  @return A boolean indicating whether the queue is full.
      */
     public boolean isFull() {
-        return (_queueSize >= _queueArray.length);
+        if (_queueMaxCapacity == INFINITE_CAPACITY) {
+            return (_queueSize >= _queueArray.length);
+        }
+        return (_queueSize >= _queueMaxCapacity);
     }
 
     /** Put an object in the queue and return true if this will not
@@ -319,7 +327,11 @@ public final class ArrayFIFOQueue implements Cloneable {
             return true;
         } else {
             if (_queueMaxCapacity == INFINITE_CAPACITY) {
-                _resizeArray(_queueArray.length * 2);
+                _resizeArray(Math.max(STARTING_ARRAYSIZE,
+                        _queueArray.length * 2));
+                return put(element);
+            } else if (_queueArray.length < _queueMaxCapacity) {
+                _resizeArray(_queueMaxCapacity);
                 return put(element);
             } else {
                 return false;
@@ -378,11 +390,16 @@ public final class ArrayFIFOQueue implements Cloneable {
         } else {
             if (_queueMaxCapacity == INFINITE_CAPACITY) {
                 try {
-                    _resizeArray(_queueArray.length * 2);
+                    _resizeArray(Math.max(STARTING_ARRAYSIZE,
+                            _queueArray.length * 2));
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
 
+                return putArray(element, count);
+            } else if ((_queueArray.length < _queueMaxCapacity)
+                    && ((_queueSize + count) <= _queueMaxCapacity)) {
+                _resizeArray(_queueMaxCapacity);
                 return putArray(element, count);
             } else {
                 return false;
@@ -416,7 +433,11 @@ public final class ArrayFIFOQueue implements Cloneable {
         }
 
         _queueMaxCapacity = capacity;
-        _resizeArray(capacity);
+
+        // Enlarging the array is deferred to put() and putArray().
+        if (_queueArray.length > capacity) {
+            _resizeArray(capacity);
+        }
     }
 
     /** Set the container of the queue. The container is only used
@@ -634,7 +655,8 @@ public final class ArrayFIFOQueue implements Cloneable {
 
         if (newSize == 0) {
             _queueFront = 0;
-        } else if ((_queueFront < _queueBack) || isFull()) {
+        } else if ((_queueFront < _queueBack)
+                || (_queueSize >= _queueArray.length)) {
             System.arraycopy(_queueArray, _queueBack, newArray, 0,
                     _queueArray.length - _queueBack);
             System.arraycopy(_queueArray, 0, newArray, _queueArray.length
@@ -0,0 +1,728 @@
+/* A director for synchronous dataflow that fires actors in parallel.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.sdf.kernel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ptolemy.actor.Actor;
+import ptolemy.actor.ExecutionMetrics;
+import ptolemy.actor.FiringEvent;
+import ptolemy.actor.IOPort;
+import ptolemy.actor.Receiver;
+import ptolemy.actor.process.TerminateProcessException;
+import ptolemy.actor.sched.Firing;
+import ptolemy.actor.sched.Schedule;
+import ptolemy.actor.util.DFUtilities;
+import ptolemy.data.BooleanToken;
+import ptolemy.data.IntToken;
+import ptolemy.data.expr.Parameter;
+import ptolemy.data.type.BaseType;
+import ptolemy.graph.DirectedGraph;
+import ptolemy.graph.Node;
+import ptolemy.kernel.CompositeEntity;
+import ptolemy.kernel.util.Attribute;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.NameDuplicationException;
+import ptolemy.kernel.util.PtolemyThread;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// ParallelSDFDirector
+
+/**
+ A director for the synchronous dataflow (SDF) model of computation that
+ fires the actors of each iteration of the schedule in several threads.
+ The schedule is computed by the {@link SDFScheduler}, as for the
+ {@link SDFDirector}, and the actors are then partitioned into
+ <i>stages</i>, each of which is executed by its own thread. Each stage
+ fires its actors in the order in which they appear in the schedule,
+ and each actor is fired by only one stage, so every actor sees the same
+ sequence of input tokens as with the SDFDirector.
+ <p>
+ The actors are partitioned as follows. The strongly connected
+ components of the graph of actors are computed by
+ {@link DirectedGraph#sccDecomposition()}, which uses the transitive
+ closure analysis of the ptolemy.graph.analysis package, so that each
+ feedback loop is executed by a single stage. The components are sorted
+ topologically, and the sorted sequence is cut into at most
+ <i>numberOfThreads</i> contiguous stages such that the number of
+ firings per iteration in each stage is about the same. Thus, tokens
+ only flow from a stage to a later stage, and a model with a long chain
+ of actors becomes a pipeline.
+ <p>
+ The receivers of the connections between stages are bounded buffers
+ between the threads (see {@link ParallelSDFReceiver}). A stage that
+ needs tokens from an earlier stage waits for them, so the firings of
+ the stages overlap within an iteration. The fire() method returns when
+ all the stages have completed the current iteration, and no stage
+ starts the next iteration before fire() is called again, so change
+ requests and parameter changes made between iterations are seen by
+ all the firings of the following iterations, as with the SDFDirector.
+ <p>
+ If the <i>pipelined</i> parameter is true, and this director is at the
+ top level and its <i>period</i> is 0.0, then the stages are also allowed
+ to run ahead by as many iterations as there are stages after the first,
+ so the sources of the model can work on the next iterations while the
+ sinks finish the current one. The iterations that a stage has started
+ ahead do not see the changes made before the next call to fire(), so
+ the results differ from those of the SDFDirector if, for example, a
+ change request or a user sets a parameter while the model is running.
+ If an actor returns false from postfire() while the stages are running
+ ahead, then the actors of the earlier stages may have been fired in the
+ following iterations, up to the number of stages after the first. When
+ the number of iterations is given by the <i>iterations</i> parameter,
+ the stages never run past it. If the director is not at the top level,
+ the stages do not run ahead, because the inputs of the next iteration
+ are not yet available, and the model time does not advance between the
+ iterations of the stages.
+ <p>
+ The results are identical to those of the SDFDirector provided that
+ actors communicate only through their ports and, if <i>pipelined</i>
+ is true, that the model does not change while it runs. Actors that
+ share state in other ways, for example through a variable that one
+ of them sets, may be fired in a different order relative to each other.
+ If the workspace changes between iterations, for example because of a
+ mutation, then the stages complete the iterations they have started
+ and the actors are partitioned again.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see ParallelSDFReceiver
+ */
+public class ParallelSDFDirector extends SDFDirector {
+    /** Construct a director in the default workspace with an empty string
+     *  as its name.
+     *  @exception IllegalActionException If the name has a period in it, or
+     *   the director is not compatible with the specified container.
+     *  @exception NameDuplicationException If the container already contains
+     *   an entity with the specified name.
+     */
+    public ParallelSDFDirector() throws IllegalActionException,
+            NameDuplicationException {
+        super();
+        _initParallel();
+    }
+
+    /** Construct a director in the given workspace with an empty name.
+     *  @param workspace The workspace for this object.
+     *  @exception IllegalActionException If the name has a period in it, or
+     *   the director is not compatible with the specified container.
+     *  @exception NameDuplicationException If the container already contains
+     *   an entity with the specified name.
+     */
+    public ParallelSDFDirector(Workspace workspace)
+            throws IllegalActionException, NameDuplicationException {
+        super(workspace);
+        _initParallel();
+    }
+
+    /** Construct a director in the given container with the given name.
+     *  @param container Container of the director.
+     *  @param name Name of this director.
+     *  @exception IllegalActionException If the director is not compatible
+     *   with the specified container.
+     *  @exception NameDuplicationException If the name collides with an
+     *   attribute in the container.
+     */
+    public ParallelSDFDirector(CompositeEntity container, String name)
+            throws IllegalActionException, NameDuplicationException {
+        super(container, name);
+        _initParallel();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         parameters                        ////
+
+    /** The maximum number of threads that fire actors. This is an
+     *  integer that defaults to 0, which means the number of available
+     *  processors. If the value is 1, then the actors are fired by the
+     *  calling thread, as by the SDFDirector.
+     */
+    public Parameter numberOfThreads;
+
+    /** If true, then the stages may run ahead of the current iteration
+     *  when this director is at the top level and its period is 0.0.
+     *  The iterations that are started ahead do not see changes made
+     *  to the model between iterations, so this should only be set
+     *  when the model does not change while it runs.
+     *  This is a boolean that defaults to false.
+     */
+    public Parameter pipelined;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** If the attribute is <i>numberOfThreads</i> or <i>pipelined</i>,
+     *  partition the actors again before the next iteration. Then
+     *  defer to the base class.
+     *  @param attribute The changed attribute.
+     *  @exception IllegalActionException If the number of threads is
+     *   negative, or the base class throws it.
+     */
+    public void attributeChanged(Attribute attribute)
+            throws IllegalActionException {
+        if (attribute == numberOfThreads) {
+            int threads = ((IntToken) numberOfThreads.getToken()).intValue();
+            if (threads < 0) {
+                throw new IllegalActionException(this,
+                        "The number of threads cannot be negative: "
+                                + threads);
+            }
+            _partitionVersion = -1L;
+        } else if (attribute == pipelined) {
+            _partitionVersion = -1L;
+        }
+        super.attributeChanged(attribute);
+    }
+
+    /** Clone the director into the specified workspace.
+     *  @param workspace The workspace for the new object.
+     *  @return A new director.
+     *  @exception CloneNotSupportedException If a derived class has
+     *   an attribute that cannot be cloned.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        ParallelSDFDirector newObject = (ParallelSDFDirector) super
+                .clone(workspace);
+        newObject._blockingReceivers = new ArrayList<ParallelSDFReceiver>();
+        newObject._failure = null;
+        newObject._partitionVersion = -1L;
+        newObject._stages = new ArrayList<Stage>();
+        newObject._terminated = false;
+        return newObject;
+    }
+
+    /** Fire the actors of one iteration of the schedule. If the actors
+     *  are partitioned into more than one stage, then allow the stages
+     *  to start the iteration, and the following iterations if they
+     *  may run ahead, and wait until all the stages have completed the
+     *  iteration. Otherwise, fire the actors in the calling thread.
+     *  @exception IllegalActionException If an actor throws it, or is
+     *   not ready to fire, or the actors cannot be partitioned.
+     */
+    public void fire() throws IllegalActionException {
+        if (_partitionVersion != workspace().getVersion()) {
+            _stopStages(true);
+            _partition();
+        }
+        if (_stages.size() < 2) {
+            super.fire();
+            return;
+        }
+        if (_stages.get(0).thread == null) {
+            _startStages();
+        }
+
+        int iterationsValue = ((IntToken) iterations.getToken()).intValue();
+        int depth = 0;
+        try {
+            synchronized (this) {
+                int permitted = _fireCount + 1 + _lookahead;
+                if (iterationsValue > 0) {
+                    permitted = Math.min(permitted, _fireCount
+                            + iterationsValue - _iterationCount);
+                }
+                if (_stopIteration < permitted) {
+                    permitted = _stopIteration + 1;
+                }
+                if (permitted > _permitted) {
+                    _permitted = permitted;
+                    notifyAll();
+                }
+                // The read access to the workspace is released while
+                // waiting, as in SDFDirector.prefire().
+                depth = _workspace.releaseReadPermission();
+                while (!_terminated && _failure == null
+                        && _completed() <= _fireCount) {
+                    wait();
+                }
+            }
+        } catch (InterruptedException ex) {
+            _stopStages(false);
+            throw new IllegalActionException(this, ex,
+                    "Interrupted while waiting for the stages.");
+        } finally {
+            if (depth > 0) {
+                _workspace.reacquireReadPermission(depth);
+            }
+        }
+
+        _fireCount++;
+        if (_failure != null) {
+            Throwable failure = _failure;
+            _stopStages(false);
+            if (failure instanceof IllegalActionException) {
+                throw (IllegalActionException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalActionException(this, failure,
+                    "Failed to fire the actors.");
+        }
+        if (_stopIteration < _fireCount) {
+            _postfireReturns = false;
+        }
+    }
+
+    /** Initialize the actors, as in the base class, and partition them
+     *  into stages.
+     *  @exception IllegalActionException If the base class throws it,
+     *   or the actors cannot be partitioned.
+     */
+    public void initialize() throws IllegalActionException {
+        _stopStages(false);
+        super.initialize();
+        _fireCount = 0;
+        _permitted = 0;
+        _stopIteration = Integer.MAX_VALUE;
+        _partition();
+    }
+
+    /** Return a new receiver that becomes a bounded buffer between
+     *  threads if the actors that it connects are in different stages.
+     *  @return A new ParallelSDFReceiver.
+     */
+    public Receiver newReceiver() {
+        return new ParallelSDFReceiver();
+    }
+
+    /** Request that execution stop, as in the base class, and terminate
+     *  the threads that fire the actors.
+     */
+    public void stop() {
+        super.stop();
+        _terminateStages();
+    }
+
+    /** Terminate the threads that fire the actors, and then terminate
+     *  the actors, as in the base class.
+     */
+    public void terminate() {
+        _terminateStages();
+        super.terminate();
+    }
+
+    /** Terminate the threads that fire the actors, and then wrap up
+     *  the actors, as in the base class.
+     *  @exception IllegalActionException If the base class throws it.
+     */
+    public void wrapup() throws IllegalActionException {
+        _stopStages(false);
+        super.wrapup();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Return the number of iterations that all the stages have completed.
+    // This must be called while holding the lock on this director.
+    private int _completed() {
+        int result = Integer.MAX_VALUE;
+        for (Stage stage : _stages) {
+            result = Math.min(result, stage.completed);
+        }
+        return result;
+    }
+
+    // Create the parameters.
+    private void _initParallel() throws IllegalActionException,
+            NameDuplicationException {
+        numberOfThreads = new Parameter(this, "numberOfThreads");
+        numberOfThreads.setTypeEquals(BaseType.INT);
+        numberOfThreads.setExpression("0");
+
+        pipelined = new Parameter(this, "pipelined");
+        pipelined.setTypeEquals(BaseType.BOOLEAN);
+        pipelined.setExpression("false");
+    }
+
+    // Partition the actors of the schedule into stages and find the
+    // receivers between the stages, which are blocking while the
+    // threads of the stages run. The stages are created with no thread.
+    private void _partition() throws IllegalActionException {
+        for (ParallelSDFReceiver receiver : _blockingReceivers) {
+            receiver.setBlocking(false);
+        }
+        _blockingReceivers.clear();
+        _stages.clear();
+
+        Schedule schedule = getScheduler().getSchedule();
+        _partitionVersion = workspace().getVersion();
+
+        // The actors in the order of their first firing, and the number
+        // of times that each is fired in an iteration.
+        Map<Actor, int[]> repetitions = new LinkedHashMap<Actor, int[]>();
+        Iterator firings = schedule.firingIterator();
+        while (firings.hasNext()) {
+            Firing firing = (Firing) firings.next();
+            int[] count = repetitions.get(firing.getActor());
+            if (count == null) {
+                count = new int[1];
+                repetitions.put(firing.getActor(), count);
+            }
+            count[0] += firing.getIterationCount();
+        }
+
+        int threads = ((IntToken) numberOfThreads.getToken()).intValue();
+        if (threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (threads < 2 || repetitions.size() < 2) {
+            return;
+        }
+
+        DirectedGraph graph = new DirectedGraph();
+        for (Actor actor : repetitions.keySet()) {
+            graph.addNodeWeight(actor);
+        }
+        for (Actor actor : repetitions.keySet()) {
+            for (Object port : actor.outputPortList()) {
+                Receiver[][] receivers = ((IOPort) port).getRemoteReceivers();
+                for (int i = 0; i < receivers.length; i++) {
+                    if (receivers[i] == null) {
+                        continue;
+                    }
+                    for (int j = 0; j < receivers[i].length; j++) {
+                        Object sink = receivers[i][j].getContainer()
+                                .getContainer();
+                        if (sink != actor && repetitions.containsKey(sink)
+                                && !graph.edgeExists(actor, sink)) {
+                            graph.addEdge(actor, sink);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Cut the components, which are in topological order, into
+        // stages with about the same number of firings.
+        DirectedGraph[] components = graph.sccDecomposition();
+        int stages = Math.min(threads, components.length);
+        if (stages < 2) {
+            return;
+        }
+        long total = 0L;
+        long[] loads = new long[components.length];
+        for (int i = 0; i < components.length; i++) {
+            for (Object node : components[i].nodes()) {
+                Actor actor = (Actor) ((Node) node).getWeight();
+                loads[i] += repetitions.get(actor)[0];
+            }
+            total += loads[i];
+        }
+        Map<Actor, Stage> stageOf = new HashMap<Actor, Stage>();
+        long cumulative = 0L;
+        int previousIndex = -1;
+        Stage stage = null;
+        for (int i = 0; i < components.length; i++) {
+            // Assign the component to the stage that contains the
+            // middle of its load.
+            int index = (int) Math.min(stages - 1,
+                    ((2L * cumulative + loads[i]) * stages) / (2L * total));
+            if (index != previousIndex) {
+                stage = new Stage();
+                _stages.add(stage);
+                previousIndex = index;
+            }
+            for (Object node : components[i].nodes()) {
+                stageOf.put((Actor) ((Node) node).getWeight(),
+                        stage);
+            }
+            cumulative += loads[i];
+        }
+        if (_stages.size() < 2) {
+            _stages.clear();
+            return;
+        }
+
+        firings = schedule.firingIterator();
+        while (firings.hasNext()) {
+            Firing firing = (Firing) firings.next();
+            Stage firingStage = stageOf.get(firing.getActor());
+            firingStage.actors.add(firing.getActor());
+            firingStage.counts.add(Integer.valueOf(firing.getIterationCount()));
+        }
+        for (Stage next : _stages) {
+            next.completed = _permitted;
+        }
+
+        _lookahead = 0;
+        if (((BooleanToken) pipelined.getToken()).booleanValue()
+                && _isTopLevel() && periodValue() == 0.0) {
+            _lookahead = _stages.size() - 1;
+        }
+
+        // Make the receivers between stages bounded buffers that can
+        // hold the tokens of the iterations that a stage may run ahead.
+        for (Actor actor : repetitions.keySet()) {
+            for (Object port : actor.outputPortList()) {
+                Receiver[][] receivers = ((IOPort) port).getRemoteReceivers();
+                for (int i = 0; i < receivers.length; i++) {
+                    if (receivers[i] == null) {
+                        continue;
+                    }
+                    for (int j = 0; j < receivers[i].length; j++) {
+                        IOPort sinkPort = receivers[i][j].getContainer();
+                        Stage sinkStage = stageOf.get(sinkPort.getContainer());
+                        if (sinkStage == null
+                                || sinkStage == stageOf.get(actor)
+                                || !(receivers[i][j] instanceof ParallelSDFReceiver)) {
+                            continue;
+                        }
+                        ParallelSDFReceiver receiver = (ParallelSDFReceiver) receivers[i][j];
+                        int perIteration = repetitions.get(sinkPort
+                                .getContainer())[0]
+                                * DFUtilities.getTokenConsumptionRate(sinkPort);
+                        int capacity = (_lookahead + 1) * perIteration
+                                + receiver.size();
+                        int oldCapacity = receiver.getCapacity();
+                        if (oldCapacity == SDFReceiver.INFINITE_CAPACITY
+                                || oldCapacity < capacity) {
+                            receiver.setCapacity(capacity);
+                        }
+                        Stage sourceStage = stageOf.get(actor);
+                        receiver.setStages(sourceStage, sinkStage);
+                        sourceStage.receivers.add(receiver);
+                        sinkStage.receivers.add(receiver);
+                        _blockingReceivers.add(receiver);
+                    }
+                }
+            }
+        }
+
+        if (_debugging) {
+            for (int i = 0; i < _stages.size(); i++) {
+                _debug("Stage " + i + ": " + _stages.get(i).actors);
+            }
+        }
+    }
+
+    // Start a thread for each stage.
+    private void _startStages() {
+        synchronized (this) {
+            _failure = null;
+            _terminated = false;
+        }
+        for (ParallelSDFReceiver receiver : _blockingReceivers) {
+            receiver.setBlocking(true);
+        }
+        for (int i = 0; i < _stages.size(); i++) {
+            Stage stage = _stages.get(i);
+            stage.thread = new PtolemyThread(stage, getFullName() + ".stage"
+                    + i);
+            stage.thread.setDaemon(true);
+            stage.thread.start();
+        }
+    }
+
+    // Stop the threads of the stages, if they are running, wait for
+    // them to finish, and make the receivers between stages behave like
+    // SDF receivers. If drain is true, then first wait until the stages
+    // have completed the iterations that they are permitted to start.
+    private void _stopStages(boolean drain) {
+        if (_stages.isEmpty() || _stages.get(0).thread == null) {
+            return;
+        }
+        int depth = _workspace.releaseReadPermission();
+        try {
+            if (drain) {
+                synchronized (this) {
+                    while (!_terminated && _failure == null
+                            && _completed() < _permitted) {
+                        wait();
+                    }
+                }
+            }
+            _terminateStages();
+            for (Stage stage : _stages) {
+                stage.thread.join();
+            }
+        } catch (InterruptedException ex) {
+            // Give up waiting.
+        } finally {
+            if (depth > 0) {
+                _workspace.reacquireReadPermission(depth);
+            }
+        }
+        for (Stage stage : _stages) {
+            stage.thread = null;
+        }
+        for (ParallelSDFReceiver receiver : _blockingReceivers) {
+            receiver.setBlocking(false);
+        }
+        synchronized (this) {
+            _terminated = false;
+        }
+    }
+
+    // Request that the threads of the stages terminate.
+    private void _terminateStages() {
+        synchronized (this) {
+            _terminated = true;
+            notifyAll();
+        }
+        for (ParallelSDFReceiver receiver : _blockingReceivers) {
+            receiver.terminate();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // The receivers that are bounded buffers between stages.
+    private List<ParallelSDFReceiver> _blockingReceivers = new ArrayList<ParallelSDFReceiver>();
+
+    // The exception thrown by the first stage that failed, if any.
+    private Throwable _failure;
+
+    // The number of times fire() has been called since initialize().
+    private int _fireCount;
+
+    // The number of iterations that the stages may run ahead.
+    private int _lookahead;
+
+    // The workspace version when the actors were partitioned.
+    private long _partitionVersion = -1L;
+
+    // The number of iterations that the stages may start.
+    private int _permitted;
+
+    // The stages, in the order in which tokens flow.
+    private List<Stage> _stages = new ArrayList<Stage>();
+
+    // The first iteration in which an actor returned false from
+    // postfire().
+    private int _stopIteration = Integer.MAX_VALUE;
+
+    // True if the stages have been requested to terminate.
+    private boolean _terminated;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** The actors that are fired by one thread. */
+    class Stage implements Runnable {
+
+        // Fire the actors of each iteration that is permitted until
+        // the stage is terminated.
+        public void run() {
+            ParallelSDFDirector director = ParallelSDFDirector.this;
+            try {
+                while (true) {
+                    int iteration;
+                    synchronized (director) {
+                        while (!_terminated && completed >= _permitted) {
+                            director.wait();
+                        }
+                        if (_terminated) {
+                            return;
+                        }
+                        iteration = completed;
+                    }
+                    boolean stop = false;
+                    ExecutionMetrics metrics = _getExecutionMetrics();
+                    for (int i = 0; i < actors.size() && !_stopRequested; i++) {
+                        Actor actor = actors.get(i);
+                        int count = counts.get(i).intValue();
+                        if (_debugging) {
+                            _debug(new FiringEvent(director, actor,
+                                    FiringEvent.BEFORE_ITERATE, count));
+                        }
+                        int returnValue;
+                        if (metrics == null) {
+                            returnValue = actor.iterate(count);
+                        } else {
+                            returnValue = _iterate(metrics, actor, count);
+                        }
+                        if (returnValue == STOP_ITERATING) {
+                            stop = true;
+                        } else if (returnValue == NOT_READY) {
+                            throw new IllegalActionException(director, actor,
+                                    "Actor is not ready to fire.  Perhaps "
+                                            + actor.getName()
+                                            + ".prefire() returned false?");
+                        }
+                        if (_debugging) {
+                            _debug(new FiringEvent(director, actor,
+                                    FiringEvent.AFTER_ITERATE, count));
+                        }
+                    }
+                    synchronized (director) {
+                        completed = iteration + 1;
+                        if (stop && iteration < _stopIteration) {
+                            _stopIteration = iteration;
+                            _permitted = Math.min(_permitted, iteration + 1);
+                        }
+                        director.notifyAll();
+                    }
+                    for (ParallelSDFReceiver receiver : receivers) {
+                        receiver.stageCompleted();
+                    }
+                }
+            } catch (TerminateProcessException ex) {
+                // Terminated by the director.
+            } catch (Throwable throwable) {
+                synchronized (director) {
+                    if (_failure == null) {
+                        _failure = throwable;
+                    }
+                    director.notifyAll();
+                }
+                _terminateStages();
+            }
+        }
+
+        // The actors in the order in which they are fired.
+        public List<Actor> actors = new ArrayList<Actor>();
+
+        // The number of iterations that the stage has completed, which
+        // is also the iteration that it executes while it is running.
+        public volatile int completed;
+
+        // The iteration count of each firing of the actors.
+        public List<Integer> counts = new ArrayList<Integer>();
+
+        // The receivers between stages that the actors of the stage
+        // get tokens from or put tokens into.
+        public List<ParallelSDFReceiver> receivers
+                = new ArrayList<ParallelSDFReceiver>();
+
+        // The thread that fires the actors, or null if it is not running.
+        public PtolemyThread thread;
+    }
+}
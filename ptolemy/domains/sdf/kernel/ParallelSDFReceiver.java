@@ -0,0 +1,421 @@
+/* A receiver for the parallel synchronous dataflow director.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.domains.sdf.kernel;
+
+import java.util.List;
+
+import ptolemy.actor.IOPort;
+import ptolemy.actor.NoRoomException;
+import ptolemy.actor.process.TerminateProcessException;
+import ptolemy.data.Token;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.Workspace;
+
+///////////////////////////////////////////////////////////////////
+//// ParallelSDFReceiver
+
+/**
+ A receiver for the {@link ParallelSDFDirector}. By default, this
+ receiver behaves exactly like an {@link SDFReceiver}. If the actor
+ that puts tokens into the receiver and the actor that gets tokens
+ from it are fired by different threads, then the director makes
+ the receiver <i>blocking</i> by calling {@link #setBlocking(boolean)}.
+ A blocking receiver is a bounded buffer between the two threads:
+ the methods that get tokens, and the hasToken() methods, wait until
+ the receiver has enough tokens, and the methods that put tokens, and
+ the hasRoom() methods, wait until the receiver has enough room.
+ While a thread waits, it releases its read access to the workspace.
+ If {@link #terminate()} is called, then the waiting threads and the
+ threads that subsequently access the receiver throw a
+ {@link TerminateProcessException}.
+ <p>
+ A blocking receiver assumes that only one thread puts tokens into it
+ and only one thread gets tokens from it, which is always the case
+ for the receivers of a dataflow model.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see ParallelSDFDirector
+ */
+public class ParallelSDFReceiver extends SDFReceiver {
+    /** Construct an empty receiver with no container.
+     */
+    public ParallelSDFReceiver() {
+        super();
+    }
+
+    /** Construct an empty receiver with the specified container.
+     *  @param container The container of the receiver.
+     *  @exception IllegalActionException If the container does
+     *   not accept this receiver.
+     */
+    public ParallelSDFReceiver(IOPort container) throws IllegalActionException {
+        super(container);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Clear this receiver of any contained tokens.
+     */
+    public synchronized void clear() {
+        super.clear();
+        _notifyWaitingThread();
+    }
+
+    /** Return a list with the tokens currently in the receiver, or
+     *  an empty list if there are no such tokens.
+     *  @return A list of instances of Token.
+     */
+    public synchronized List<Token> elementList() {
+        return super.elementList();
+    }
+
+    /** Remove the oldest token from the receiver and return it. If the
+     *  receiver is blocking, then wait until it has a token.
+     *  @return The oldest token in the receiver.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public Token get() {
+        if (!_blocking) {
+            return super.get();
+        }
+        _waitUntil(1, false);
+        synchronized (this) {
+            // If the producer produced fewer tokens than it declared,
+            // then this throws NoTokenException, as in SDFReceiver.
+            Token result = super.get();
+            _notifyWaitingThread();
+            return result;
+        }
+    }
+
+    /** Return the token at the specified offset in the receiver or its
+     *  history without removing it. This method does not wait.
+     *  @param offset The offset from the oldest token in the receiver.
+     *  @return The token at the desired offset in the receiver or its
+     *   history.
+     */
+    public synchronized Token get(int offset) {
+        return super.get(offset);
+    }
+
+    /** Remove the specified number of tokens from the receiver and
+     *  return them. If the receiver is blocking, then wait until it has
+     *  enough tokens.
+     *  @param count The number of tokens to get.
+     *  @return An array containing <i>count</i> tokens from the
+     *   receiver.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public Token[] getArray(int count) {
+        if (!_blocking) {
+            return super.getArray(count);
+        }
+        _waitUntil(count, false);
+        synchronized (this) {
+            Token[] result = super.getArray(count);
+            _notifyWaitingThread();
+            return result;
+        }
+    }
+
+    /** Return true if put() will succeed in accepting a token. If the
+     *  receiver is blocking, then wait until it has room and return true.
+     *  @return True if the receiver has room for a token.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public boolean hasRoom() {
+        if (!_blocking) {
+            return super.hasRoom();
+        }
+        return _waitUntil(1, true) || super.hasRoom();
+    }
+
+    /** Return true if put() will succeed in accepting the specified
+     *  number of tokens. If the receiver is blocking, then wait until it
+     *  has room and return true. If the number of tokens exceeds the
+     *  capacity, then return false.
+     *  @param tokens The number of tokens.
+     *  @return True if the receiver has room for the tokens.
+     *  @exception IllegalArgumentException If the argument is not positive.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public boolean hasRoom(int tokens) throws IllegalArgumentException {
+        if (!_blocking) {
+            return super.hasRoom(tokens);
+        }
+        if (tokens < 1) {
+            throw new IllegalArgumentException("The argument "
+                    + "must not be negative. It was: " + tokens);
+        }
+        int capacity = getCapacity();
+        if (capacity != INFINITE_CAPACITY && tokens > capacity) {
+            // Waiting would never succeed.
+            return false;
+        }
+        return _waitUntil(tokens, true) || super.hasRoom(tokens);
+    }
+
+    /** Return true if get() will succeed in returning a token. If the
+     *  receiver is blocking, then wait until it has a token and return
+     *  true.
+     *  @return True if the receiver has a token.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public boolean hasToken() {
+        if (!_blocking) {
+            return super.hasToken();
+        }
+        return _waitUntil(1, false) || super.hasToken();
+    }
+
+    /** Return true if get() will succeed in returning the specified
+     *  number of tokens. If the receiver is blocking, then wait until
+     *  it has the tokens and return true.
+     *  @param tokens The number of tokens.
+     *  @return True if the receiver has the tokens.
+     *  @exception IllegalArgumentException If the argument is negative.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public boolean hasToken(int tokens) throws IllegalArgumentException {
+        if (!_blocking) {
+            return super.hasToken(tokens);
+        }
+        if (tokens < 0) {
+            throw new IllegalArgumentException("The argument "
+                    + "must not be negative. It was: " + tokens);
+        }
+        return _waitUntil(tokens, false) || super.hasToken(tokens);
+    }
+
+    /** Return true if this receiver is blocking.
+     *  @return True if this receiver is blocking.
+     *  @see #setBlocking(boolean)
+     */
+    public boolean isBlocking() {
+        return _blocking;
+    }
+
+    /** Put a token into the receiver. If the receiver is blocking,
+     *  then wait until it has room.
+     *  @param token The token to put, or null to put no token.
+     *  @exception NoRoomException If the receiver is not blocking and
+     *   it is full.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public void put(Token token) {
+        if (!_blocking) {
+            super.put(token);
+            return;
+        }
+        if (token == null) {
+            return;
+        }
+        boolean hasRoom = _waitUntil(1, true);
+        synchronized (this) {
+            if (!hasRoom && !super.hasRoom()) {
+                // The consumer consumed fewer tokens than it declared,
+                // so make room, as an unbounded SDFReceiver would.
+                try {
+                    setCapacity(super.size() + 1);
+                } catch (IllegalActionException ex) {
+                    throw new NoRoomException(getContainer(), ex.getMessage());
+                }
+            }
+            super.put(token);
+            _notifyWaitingThread();
+        }
+    }
+
+    /** Put a portion of the specified token array into the receiver.
+     *  If the receiver is blocking, then put the tokens one at a time,
+     *  waiting for room for each of them, because the consumer may need
+     *  some of them before there is room for all of them.
+     *  @param tokenArray The array containing tokens to put into the
+     *   receiver.
+     *  @param numberOfTokens The number of elements of the token
+     *   array to put into the receiver.
+     *  @exception NoRoomException If the receiver is not blocking and
+     *   it does not have room for the tokens.
+     *  @exception IllegalActionException If one of the tokens cannot be
+     *   converted to the type of the container.
+     *  @exception TerminateProcessException If the receiver is
+     *   terminated.
+     */
+    public void putArray(Token[] tokenArray, int numberOfTokens)
+            throws NoRoomException, IllegalActionException {
+        if (!_blocking) {
+            super.putArray(tokenArray, numberOfTokens);
+            return;
+        }
+        for (int i = 0; i < numberOfTokens; i++) {
+            put(_convert(tokenArray[i]));
+        }
+    }
+
+    /** Specify whether this receiver is blocking, and clear the request
+     *  to terminate, if there is one.
+     *  @param blocking True to make the receiver blocking.
+     *  @see #isBlocking()
+     */
+    public synchronized void setBlocking(boolean blocking) {
+        _blocking = blocking;
+        _terminate = false;
+    }
+
+    /** Specify the stages of the director that put tokens into this
+     *  receiver and get tokens from it. If the producer completes the
+     *  iteration that the consumer is executing without putting enough
+     *  tokens into the receiver, then the methods that get tokens no
+     *  longer wait. Similarly, the methods that put tokens no longer
+     *  wait for room if the consumer has completed the iteration that
+     *  the producer is executing. Thus, actors that produce or consume
+     *  fewer tokens than they declare do not cause a deadlock.
+     *  @param producer The stage that puts tokens into the receiver.
+     *  @param consumer The stage that gets tokens from the receiver.
+     */
+    void setStages(ParallelSDFDirector.Stage producer,
+            ParallelSDFDirector.Stage consumer) {
+        _producer = producer;
+        _consumer = consumer;
+    }
+
+    /** Return the number of tokens in the receiver.
+     *  @return The number of tokens in the receiver.
+     */
+    public synchronized int size() {
+        return super.size();
+    }
+
+    /** Notify the threads that wait on this receiver that the producer
+     *  or the consumer has completed an iteration.
+     */
+    synchronized void stageCompleted() {
+        _notifyWaitingThread();
+    }
+
+    /** Request that the threads that wait on this receiver, and that
+     *  subsequently access the receiver while it is blocking, throw a
+     *  {@link TerminateProcessException}.
+     */
+    public synchronized void terminate() {
+        _terminate = true;
+        notifyAll();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Notify the thread that waits for tokens or room, if any.
+    // This must be called while holding the lock on this receiver.
+    private void _notifyWaitingThread() {
+        if (_waiting) {
+            _waiting = false;
+            notifyAll();
+        }
+    }
+
+    // Wait until the receiver has the specified number of tokens,
+    // or room for them if room is true, and return true, or return false
+    // if the other stage has completed the iteration of this stage
+    // without providing the tokens or the room. Since only one thread
+    // gets tokens and only one thread puts them, the condition remains
+    // true until the calling thread acts on it.
+    private boolean _waitUntil(int tokens, boolean room) {
+        Workspace workspace = null;
+        IOPort container = getContainer();
+        if (container != null) {
+            workspace = container.workspace();
+        }
+        while (true) {
+            int depth = 0;
+            try {
+                synchronized (this) {
+                    if (_terminate) {
+                        throw new TerminateProcessException(container,
+                                "Receiver terminated.");
+                    }
+                    if (room ? super.hasRoom(tokens) : super.hasToken(tokens)) {
+                        return true;
+                    }
+                    if (_producer != null) {
+                        if (room ? _consumer.completed > _producer.completed
+                                : _producer.completed > _consumer.completed) {
+                            return false;
+                        }
+                    }
+                    _waiting = true;
+                    // NOTE: As in PNQueueReceiver, we cannot use
+                    // workspace.wait(Object) here, because the lock on
+                    // this receiver has to be held while the read access
+                    // is released and the thread waits.
+                    if (workspace != null) {
+                        depth = workspace.releaseReadPermission();
+                    }
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                throw new TerminateProcessException(container,
+                        "Thread interrupted.");
+            } finally {
+                if (depth > 0) {
+                    workspace.reacquireReadPermission(depth);
+                }
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // True if the receiver is a bounded buffer between two threads.
+    private volatile boolean _blocking;
+
+    // The stage that gets tokens from the receiver.
+    private ParallelSDFDirector.Stage _consumer;
+
+    // The stage that puts tokens into the receiver.
+    private ParallelSDFDirector.Stage _producer;
+
+    // True if termination has been requested.
+    private boolean _terminate;
+
+    // True if a thread waits for tokens or room.
+    private boolean _waiting;
+}
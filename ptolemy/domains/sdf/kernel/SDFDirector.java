@@ -31,6 +31,7 @@ import java.util.Iterator;
 import ptolemy.actor.Actor;
 import ptolemy.actor.CompositeActor;
 import ptolemy.actor.IOPort;
+import ptolemy.actor.Manager;
 import ptolemy.actor.NoTokenException;
 import ptolemy.actor.Receiver;
 import ptolemy.actor.TypedCompositeActor;
@@ -452,6 +453,9 @@ public class SDFDirector extends StaticSchedulingDirector implements
      *  scheduler.
      */
     public void initialize() throws IllegalActionException {
+        // The types have been resolved, and actors may send tokens
+        // in their initialize() methods.
+        _cacheReceiverTypes();
 
         super.initialize();
         _iterationCount = 0;
@@ -531,6 +535,13 @@ public class SDFDirector extends StaticSchedulingDirector implements
         // Set current time based on the enclosing model.
         super.prefire();
 
+        if (_receiverTypesVersion != workspace().getVersion()
+                || _receiverTypesResolution != _typeResolutionCount()) {
+            // A mutation or a new type resolution may have changed
+            // the types.
+            _cacheReceiverTypes();
+        }
+
         double periodValue = periodValue();
         boolean synchronizeValue = ((BooleanToken) synchronizeToRealTime
                 .getToken()).booleanValue();
@@ -856,6 +867,53 @@ public class SDFDirector extends StaticSchedulingDirector implements
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
 
+    /** Record the types of the containers of the receivers of this
+     *  director, which are the receivers of the input ports of the
+     *  contained actors and the inside receivers of the output ports
+     *  of the container, so that tokens are not converted by the ports
+     *  when they already have the right type.
+     */
+    private void _cacheReceiverTypes() {
+        _receiverTypesVersion = workspace().getVersion();
+        _receiverTypesResolution = _typeResolutionCount();
+        CompositeActor container = (CompositeActor) getContainer();
+        if (container == null) {
+            return;
+        }
+        for (Iterator actors = container.deepEntityList().iterator(); actors
+                .hasNext();) {
+            Actor actor = (Actor) actors.next();
+            for (Iterator ports = actor.inputPortList().iterator(); ports
+                    .hasNext();) {
+                _cacheReceiverTypes(((IOPort) ports.next()).getReceivers());
+            }
+        }
+        for (Iterator ports = container.outputPortList().iterator(); ports
+                .hasNext();) {
+            _cacheReceiverTypes(((IOPort) ports.next()).getInsideReceivers());
+        }
+    }
+
+    /** Record the types of the containers of the specified receivers
+     *  that are instances of SDFReceiver.
+     *  @param receivers The receivers.
+     */
+    private void _cacheReceiverTypes(Receiver[][] receivers) {
+        if (receivers == null) {
+            return;
+        }
+        for (int i = 0; i < receivers.length; i++) {
+            if (receivers[i] == null) {
+                continue;
+            }
+            for (int j = 0; j < receivers[i].length; j++) {
+                if (receivers[i][j] instanceof SDFReceiver) {
+                    ((SDFReceiver) receivers[i][j]).cacheType();
+                }
+            }
+        }
+    }
+
     /** Initialize the object.   In this case, we give the SDFDirector a
      *  default scheduler of the class SDFScheduler, an iterations
      *  parameter and a vectorizationFactor parameter.
@@ -901,6 +959,22 @@ public class SDFDirector extends StaticSchedulingDirector implements
         _periodicDirectorHelper = new PeriodicDirectorHelper(this);
     }
 
+    /** Return the number of type resolutions done by the manager of
+     *  the model, or 0 if there is no manager.
+     *  @return The number of type resolutions.
+     */
+    private long _typeResolutionCount() {
+        CompositeActor container = (CompositeActor) getContainer();
+        if (container == null) {
+            return 0L;
+        }
+        Manager manager = container.getManager();
+        if (manager == null) {
+            return 0L;
+        }
+        return manager.getTypeResolutionCount();
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                package friendly variables                 ////
 
@@ -913,6 +987,16 @@ public class SDFDirector extends StaticSchedulingDirector implements
     /** The real time at which the model begins executing. */
     private long _realStartTime = 0L;
 
+    /** The number of type resolutions by the manager when the types
+     *  of the receivers were recorded.
+     */
+    private long _receiverTypesResolution = -1L;
+
+    /** The workspace version when the types of the receivers were
+     *  recorded.
+     */
+    private long _receiverTypesVersion = -1L;
+
     /** Cache of the most recent value of vectorizationFactor. */
     private int _vectorizationFactor = 1;
 }
@@ -28,6 +28,7 @@
  */
 package ptolemy.domains.sdf.kernel;
 
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -36,7 +37,10 @@ import ptolemy.actor.AbstractReceiver;
 import ptolemy.actor.IOPort;
 import ptolemy.actor.NoRoomException;
 import ptolemy.actor.NoTokenException;
+import ptolemy.actor.Receiver;
+import ptolemy.actor.TypedIOPort;
 import ptolemy.data.Token;
+import ptolemy.data.type.Type;
 import ptolemy.kernel.util.IllegalActionException;
 
 ///////////////////////////////////////////////////////////////////
@@ -53,6 +57,13 @@ import ptolemy.kernel.util.IllegalActionException;
  than zero (or infinite, indicated by a capacity of INFINITE_CAPACITY),
  then tokens removed from the receiver are stored in a history queue rather
  than simply removed. By default, the history capacity is zero.
+ <p>
+ Arrays of tokens are put into the receiver with a single block transfer.
+ The SDFDirector records the resolved type of the container of each of its
+ receivers before the execution, and again whenever the workspace changes
+ or the types are resolved again (see {@link #cacheType()}), so that tokens that already have that type are put
+ into the receiver without calling the convert() method of the container,
+ which needs read access to the workspace for each token.
 
  @author Steve Neuendorffer
  @version $Id$
@@ -102,6 +113,29 @@ public class SDFReceiver extends AbstractReceiver {
     ///////////////////////////////////////////////////////////////////
     ////                         public methods                    ////
 
+    /** Record the type of the container, so that the tokens that are put
+     *  into this receiver are compared with that type rather than being
+     *  passed to the convert() method of the container. The SDFDirector
+     *  calls this method after the types have been resolved, and again
+     *  whenever the workspace changes or the types are resolved again. If the container is not a TypedIOPort, or it
+     *  overrides the convert() method, then no type is recorded and the
+     *  convert() method of the container is used.
+     */
+    public void cacheType() {
+        _type = null;
+        IOPort container = getContainer();
+        if (container instanceof TypedIOPort) {
+            try {
+                if (container.getClass().getMethod("convert", Token.class)
+                        .getDeclaringClass() == TypedIOPort.class) {
+                    _type = ((TypedIOPort) container).getType();
+                }
+            } catch (NoSuchMethodException ex) {
+                // Cannot happen, since IOPort defines convert().
+            }
+        }
+    }
+
     /** Clear this receiver of any contained tokens.
      */
     public void clear() {
@@ -311,6 +345,75 @@ public class SDFReceiver extends AbstractReceiver {
         }
     }
 
+    /** Put a portion of the specified token array into this receiver.
+     *  The tokens are converted to the type of the container, if
+     *  necessary, and are then put into the queue with one block transfer,
+     *  so either all of them are put or none of them is.
+     *  @param tokenArray The array containing tokens to put into this
+     *   receiver.
+     *  @param numberOfTokens The number of elements of the token
+     *   array to put into this receiver.
+     *  @exception NoRoomException If the receiver does not have room
+     *   for all the tokens.
+     *  @exception IllegalActionException If one of the tokens cannot be
+     *   converted to the type of the container.
+     */
+    public void putArray(Token[] tokenArray, int numberOfTokens)
+            throws NoRoomException, IllegalActionException {
+        Token[] tokens = tokenArray;
+        for (int i = 0; i < numberOfTokens; i++) {
+            Token token = _convert(tokenArray[i]);
+            if (token != tokenArray[i] && tokens == tokenArray) {
+                // Do not modify the array of the caller, which may
+                // be put into other receivers as well.
+                if ((_putArray == null)
+                        || (_putArray.length < numberOfTokens)) {
+                    _putArray = new Token[numberOfTokens];
+                }
+                System.arraycopy(tokenArray, 0, _putArray, 0, i);
+                tokens = _putArray;
+            }
+            if (tokens != tokenArray) {
+                tokens[i] = token;
+            }
+        }
+        boolean success = _queue.putArray(tokens, numberOfTokens);
+        if (tokens != tokenArray) {
+            Arrays.fill(tokens, 0, numberOfTokens, null);
+        }
+        if (!success) {
+            throw new NoRoomException(getContainer(),
+                    "Queue is at capacity of " + _queue.getCapacity()
+                            + ". Cannot put a token.");
+        }
+    }
+
+    /** Put the specified token into all the receivers in the specified
+     *  array, converting it to the type of the container of each receiver
+     *  if necessary.
+     *  @param token The token to put, or null to put no token.
+     *  @param receivers The receivers.
+     *  @exception NoRoomException If there is no room for the token.
+     *  @exception IllegalActionException If the token cannot be
+     *   converted to the type of the container of one of the receivers.
+     */
+    public void putToAll(Token token, Receiver[] receivers)
+            throws NoRoomException, IllegalActionException {
+        for (int j = 0; j < receivers.length; j++) {
+            Receiver receiver = receivers[j];
+            if (receiver instanceof SDFReceiver) {
+                receiver.put(((SDFReceiver) receiver)._convert(token));
+            } else {
+                IOPort container = receiver.getContainer();
+                if (container == null || token == null) {
+                    receiver.put(token);
+                } else {
+                    receiver.put(container.convert(token));
+                }
+            }
+        }
+    }
+
     /** Set receiver capacity. Use INFINITE_CAPACITY to indicate unbounded
      *  capacity (which is the default). If the number of tokens currently
      *  in the receiver exceeds the desired capacity, throw an exception.
@@ -370,12 +473,48 @@ public class SDFReceiver extends AbstractReceiver {
     /** The number of tokens waiting to be consumed during scheduling. */
     public int _waitingTokens = 0;
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         protected methods                 ////
+
+    /** Convert the specified token to the type of the container.
+     *  If a type has been recorded by cacheType(), then the token is
+     *  returned if it has that type and is otherwise converted to it.
+     *  If no type has been recorded, then the convert() method of the
+     *  container is used.
+     *  @param token The token to convert, or null.
+     *  @return The converted token, or null if the argument is null.
+     *  @exception IllegalActionException If the conversion is invalid.
+     */
+    protected Token _convert(Token token) throws IllegalActionException {
+        if (token == null) {
+            return null;
+        }
+        Type type = _type;
+        if (type != null) {
+            if (type.equals(token.getType())) {
+                return token;
+            }
+            return type.convert(token);
+        }
+        IOPort container = getContainer();
+        if (container == null) {
+            return token;
+        }
+        return container.convert(token);
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
+    // The array used to convert tokens in putArray().
+    private Token[] _putArray;
+
     // The queue containing the receiver data.
     private ArrayFIFOQueue _queue;
 
     // The token array used by this receiver to return
     // data.
     private Token[] _tokenArray;
+
+    // The type of the container recorded by cacheType(), or null.
+    private Type _type;
 }
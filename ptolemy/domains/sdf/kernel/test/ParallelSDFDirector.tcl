@@ -0,0 +1,236 @@
+# Tests for the ParallelSDFDirector class
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+if {[info procs enumToObjects] == "" } then {
+     source enums.tcl
+}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+# Return a model with a feedback loop, multirate actors and two
+# branches that is executed by the specified director.
+proc parallelModel {director extra} {
+    set parser [java::new ptolemy.moml.MoMLParser]
+    set moml "<entity name=\"top\" class=\"ptolemy.actor.TypedCompositeActor\">
+  <property name=\"director\" class=\"$director\">
+    <property name=\"iterations\" value=\"12\"/>
+    $extra
+  </property>
+  <entity name=\"ramp\" class=\"ptolemy.actor.lib.Ramp\"/>
+  <entity name=\"scale\" class=\"ptolemy.actor.lib.Scale\">
+    <property name=\"factor\" value=\"2\"/>
+  </entity>
+  <entity name=\"add\" class=\"ptolemy.actor.lib.AddSubtract\"/>
+  <entity name=\"delay\" class=\"ptolemy.domains.sdf.lib.SampleDelay\"/>
+  <entity name=\"down\" class=\"ptolemy.domains.sdf.lib.DownSample\">
+    <property name=\"factor\" value=\"2\"/>
+  </entity>
+  <entity name=\"scale2\" class=\"ptolemy.actor.lib.Scale\">
+    <property name=\"factor\" value=\"3\"/>
+  </entity>
+  <entity name=\"rec1\" class=\"ptolemy.actor.lib.Recorder\"/>
+  <entity name=\"up\" class=\"ptolemy.domains.sdf.lib.UpSample\">
+    <property name=\"factor\" value=\"3\"/>
+  </entity>
+  <entity name=\"rec2\" class=\"ptolemy.actor.lib.Recorder\"/>
+  <relation name=\"r1\" class=\"ptolemy.actor.TypedIORelation\"/>
+  <relation name=\"r2\" class=\"ptolemy.actor.TypedIORelation\"/>
+  <relation name=\"r3\" class=\"ptolemy.actor.TypedIORelation\"/>
+  <relation name=\"r4\" class=\"ptolemy.actor.TypedIORelation\"/>
+  <relation name=\"r5\" class=\"ptolemy.actor.TypedIORelation\"/>
+  <relation name=\"r6\" class=\"ptolemy.actor.TypedIORelation\"/>
+  <relation name=\"r7\" class=\"ptolemy.actor.TypedIORelation\"/>
+  <link port=\"ramp.output\" relation=\"r1\"/>
+  <link port=\"scale.input\" relation=\"r1\"/>
+  <link port=\"up.input\" relation=\"r1\"/>
+  <link port=\"scale.output\" relation=\"r2\"/>
+  <link port=\"add.plus\" relation=\"r2\"/>
+  <link port=\"add.output\" relation=\"r3\"/>
+  <link port=\"delay.input\" relation=\"r3\"/>
+  <link port=\"down.input\" relation=\"r3\"/>
+  <link port=\"delay.output\" relation=\"r4\"/>
+  <link port=\"add.plus\" relation=\"r4\"/>
+  <link port=\"down.output\" relation=\"r5\"/>
+  <link port=\"scale2.input\" relation=\"r5\"/>
+  <link port=\"scale2.output\" relation=\"r6\"/>
+  <link port=\"rec1.input\" relation=\"r6\"/>
+  <link port=\"up.output\" relation=\"r7\"/>
+  <link port=\"rec2.input\" relation=\"r7\"/>
+</entity>"
+    set toplevel [java::cast ptolemy.actor.CompositeActor [$parser parse $moml]]
+    set manager [java::new ptolemy.actor.Manager [$toplevel workspace] manager]
+    $toplevel setManager $manager
+    return $toplevel
+}
+
+# Execute the model and return the records of the recorders.
+proc parallelRecords {toplevel} {
+    [$toplevel getManager] execute
+    set rec1 [java::cast ptolemy.actor.lib.Recorder [$toplevel getEntity rec1]]
+    set rec2 [java::cast ptolemy.actor.lib.Recorder [$toplevel getEntity rec2]]
+    list [enumToTokenValues [$rec1 getRecord 0]] \
+	[enumToTokenValues [$rec2 getRecord 0]]
+}
+
+######################################################################
+####
+#
+test ParallelSDFDirector-1.1 {Compare with the SDFDirector} {
+    set sequential [parallelRecords \
+	[parallelModel ptolemy.domains.sdf.kernel.SDFDirector {}]]
+    set e0 [parallelModel ptolemy.domains.sdf.kernel.ParallelSDFDirector \
+		{<property name="numberOfThreads" value="3"/>}]
+    set parallel [parallelRecords $e0]
+    list [string compare $sequential $parallel] [lindex $parallel 0]
+} {0 {6 36 90 168 270 396 546 720 918 1140 1386 1656}}
+
+######################################################################
+####
+#
+test ParallelSDFDirector-1.2 {The actors are partitioned into stages} {
+    # Uses 1.1 above
+    set director [java::cast ptolemy.domains.sdf.kernel.ParallelSDFDirector \
+		      [$e0 getDirector]]
+    set listener [java::new ptolemy.kernel.util.RecorderListener]
+    $director addDebugListener $listener
+    [$e0 getManager] initialize
+    [$e0 getManager] wrapup
+    $director removeDebugListener $listener
+    set stages {}
+    foreach line [split [$listener getMessages] "\n"] {
+	if {[string first "Stage " $line] == 0} {
+	    lappend stages $line
+	}
+    }
+    list [llength $stages] [string compare $sequential [parallelRecords $e0]]
+} {3 0}
+
+######################################################################
+####
+#
+test ParallelSDFDirector-1.3 {With pipelining, and with more threads than actors} {
+    # Uses 1.1 above
+    [java::field $director pipelined] setExpression true
+    set r1 [string compare $sequential [parallelRecords $e0]]
+    [java::field $director numberOfThreads] setExpression 20
+    set r2 [string compare $sequential [parallelRecords $e0]]
+    [java::field $director numberOfThreads] setExpression 1
+    set r3 [string compare $sequential [parallelRecords $e0]]
+    list $r1 $r2 $r3
+} {0 0 0}
+
+######################################################################
+####
+#
+test ParallelSDFDirector-1.4 {A parameter changed between iterations} {
+    set result {}
+    foreach {directorClass extra} {
+	ptolemy.domains.sdf.kernel.SDFDirector {}
+	ptolemy.domains.sdf.kernel.ParallelSDFDirector
+	{<property name="numberOfThreads" value="3"/>}
+    } {
+	set toplevel [parallelModel $directorClass $extra]
+	set manager [$toplevel getManager]
+	$manager initialize
+	for {set i 0} {$i < 6} {incr i} {
+	    if {$i == 3} {
+		$toplevel requestChange [java::new \
+		    ptolemy.moml.MoMLChangeRequest $toplevel $toplevel \
+		    {<entity name="ramp"><property name="step" value="-1"/></entity>}]
+	    }
+	    $manager iterate
+	}
+	$manager wrapup
+	set rec1 [java::cast ptolemy.actor.lib.Recorder \
+		      [$toplevel getEntity rec1]]
+	lappend result [enumToTokenValues [$rec1 getRecord 0]]
+    }
+    list [string compare [lindex $result 0] [lindex $result 1]] \
+	[lindex $result 1]
+} {0 {6 36 90 156 198 216}}
+
+######################################################################
+####
+#
+test ParallelSDFDirector-2.1 {An actor returns false from postfire} {
+    set e1 [parallelModel ptolemy.domains.sdf.kernel.SDFDirector {}]
+    [java::cast ptolemy.data.expr.Parameter \
+	 [[$e1 getEntity ramp] getAttribute firingCountLimit]] setExpression 5
+    set sequential [parallelRecords $e1]
+    set e2 [parallelModel ptolemy.domains.sdf.kernel.ParallelSDFDirector \
+		{<property name="numberOfThreads" value="3"/>}]
+    [java::cast ptolemy.data.expr.Parameter \
+	 [[$e2 getEntity ramp] getAttribute firingCountLimit]] setExpression 5
+    set parallel [parallelRecords $e2]
+    list [string compare $sequential $parallel] $parallel
+} {0 {{6 36 90} {0 0 0 0 0 1 0 0 2 0 0 3 0 0 4 0 0 5}}}
+
+######################################################################
+####
+#
+test ParallelSDFDirector-2.2 {An exception in a stage is reported} {
+    set e3 [parallelModel ptolemy.domains.sdf.kernel.ParallelSDFDirector \
+		{<property name="numberOfThreads" value="3"/>}]
+    set test [java::new ptolemy.actor.lib.Test $e3 test]
+    [java::cast ptolemy.data.expr.Parameter \
+	 [$test getAttribute correctValues]] setExpression {{6, 36, 91}}
+    [java::field [java::cast ptolemy.actor.lib.Sink $test] input] link \
+	[$e3 getRelation r6]
+    catch {[$e3 getManager] execute} msg
+    list $msg
+} {{ptolemy.kernel.util.IllegalActionException: Test fails in iteration 2.
+Value was: 90. Should have been: 91
+  in .top.test}}
+
+######################################################################
+####
+#
+test ParallelSDFDirector-3.1 {numberOfThreads cannot be negative} {
+    set threads [java::field $director numberOfThreads]
+    $threads setExpression -1
+    catch {$threads validate} msg
+    $threads setExpression 3
+    list $msg
+} {{ptolemy.kernel.util.IllegalActionException: Error evaluating expression: -1
+  in .top.director.numberOfThreads
+Because:
+The number of threads cannot be negative: -1
+  in .top.director}}
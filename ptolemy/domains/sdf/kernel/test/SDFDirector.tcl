@@ -551,3 +551,36 @@ test SDFDirector-9.3 {SynchronizeToRealTimeConstructor test} {
 48
 49
 }}
+
+######################################################################
+####
+#
+test SDFDirector-10.1 {A parameter change that changes the resolved types} {
+    set w [java::new ptolemy.kernel.util.Workspace W]
+    set manager [java::new ptolemy.actor.Manager $w Manager]
+    set e0 [java::new ptolemy.actor.TypedCompositeActor $w]
+    $e0 setName E0
+    $e0 setManager $manager
+    set d0 [java::new ptolemy.domains.sdf.kernel.SDFDirector $e0 D0]
+    set ramp [java::new ptolemy.actor.lib.Ramp $e0 Ramp]
+    set scale [java::new ptolemy.actor.lib.Scale $e0 Scale]
+    [java::field $scale factor] setExpression 2
+    set add [java::new ptolemy.actor.lib.AddSubtract $e0 Add]
+    set recorder [java::new ptolemy.actor.lib.Recorder $e0 Recorder]
+    $e0 connect [java::field [java::cast ptolemy.actor.lib.Source $ramp] output] \
+	[java::field [java::cast ptolemy.actor.lib.Transformer $scale] input]
+    $e0 connect [java::field [java::cast ptolemy.actor.lib.Transformer $scale] output] \
+	[java::field $add plus]
+    $e0 connect [java::field $add output] \
+	[java::field [java::cast ptolemy.actor.lib.Sink $recorder] input]
+    $manager initialize
+    $manager iterate
+    set type0 [[java::field $add output] getType]
+    [java::field $scale factor] setExpression 2.5
+    [java::field $scale factor] validate
+    $manager iterate
+    $manager iterate
+    $manager wrapup
+    list [$type0 toString] [[[java::field $add output] getType] toString] \
+	[listToStrings [$recorder getHistory 0]]
+} {int double {0 2.5 5.0}}
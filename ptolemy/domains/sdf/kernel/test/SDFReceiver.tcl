@@ -433,3 +433,34 @@ test SDFReceiver-6.3 {try to get historyElements} {
 	    [list $results4 $results5 $results6] \
 	    [list $results7 $results8 $results9] \
 } {{3 {{"foo"}} 1} {3 {{"foo"} {"bar"}} 2} {3 {{"bar"} {"bif"} {"baz"}} 3}}
+
+######################################################################
+####
+#
+test SDFReceiver-7.1 {putArray converts to the recorded type of the container} {
+    set e0 [java::new ptolemy.actor.TypedAtomicActor]
+    $e0 setName E0
+    set port [java::new ptolemy.actor.TypedIOPort $e0 input true false]
+    $port setTypeEquals [java::field ptolemy.data.type.BaseType DOUBLE]
+    set receiver [java::new ptolemy.domains.sdf.kernel.SDFReceiver $port]
+    $receiver cacheType
+    set tokenArray [java::new {ptolemy.data.Token[]} 3 [list \
+	    [java::new ptolemy.data.DoubleToken 1.5] \
+	    [java::new ptolemy.data.IntToken 2] \
+	    [java::new ptolemy.data.DoubleToken 3.5]]]
+    $receiver {putArray ptolemy.data.Token[] int} $tokenArray 3
+    list [listToStrings [$receiver elementList]] \
+	    [[$tokenArray get 1] toString]
+} {{1.5 2.0 3.5} 2}
+
+######################################################################
+####
+#
+test SDFReceiver-7.2 {putArray puts all the tokens or none of them} {
+    set receiver [java::new ptolemy.domains.sdf.kernel.SDFReceiver $port]
+    $receiver setCapacity 4
+    $receiver {putArray ptolemy.data.Token[] int} $tokenArray 3
+    catch {$receiver {putArray ptolemy.data.Token[] int} $tokenArray 2} result
+    list $result [$receiver size]
+} {{ptolemy.actor.NoRoomException: Queue is at capacity of 4. Cannot put a token.
+  in .E0.input} 3}
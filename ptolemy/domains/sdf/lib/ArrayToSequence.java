@@ -32,7 +32,6 @@ import java.util.Set;
 import ptolemy.data.ArrayToken;
 import ptolemy.data.BooleanToken;
 import ptolemy.data.IntToken;
-import ptolemy.data.Token;
 import ptolemy.data.expr.Parameter;
 import ptolemy.data.type.ArrayType;
 import ptolemy.data.type.BaseType;
@@ -172,14 +171,14 @@ public class ArrayToSequence extends SDFTransformer {
                     + "parameter (" + rate + ").");
         }
 
-        Token[] elements = token.arrayValue();
-
         // We no longer send the complete array all at once, since this might in
         // for example PN lead to larger buffer sizes than strictly necessary.
-        // output.send(0, elements, elements.length);
-
-        for (Token newToken : elements) {
-            output.send(0, newToken);
+        // Get the elements one at a time rather than copying the array, so
+        // that an array that stores its elements as primitives creates only
+        // the tokens that are sent.
+        int length = token.length();
+        for (int i = 0; i < length; i++) {
+            output.send(0, token.getElement(i));
         }
     }
 
@@ -27,11 +27,14 @@
  */
 package ptolemy.domains.sdf.lib;
 
+import java.util.Arrays;
+
 import ptolemy.actor.TypedIOPort;
 import ptolemy.actor.util.ConstVariableModelAnalysis;
 import ptolemy.data.ArrayToken;
 import ptolemy.data.BooleanToken;
 import ptolemy.data.ComplexToken;
+import ptolemy.data.DoubleToken;
 import ptolemy.data.IntToken;
 import ptolemy.data.Token;
 import ptolemy.data.expr.Parameter;
@@ -45,6 +48,8 @@ import ptolemy.kernel.util.Attribute;
 import ptolemy.kernel.util.IllegalActionException;
 import ptolemy.kernel.util.NameDuplicationException;
 import ptolemy.kernel.util.Workspace;
+import ptolemy.math.Complex;
+import ptolemy.math.FFTPlan;
 
 ///////////////////////////////////////////////////////////////////
 //// Autocorrelation
@@ -102,6 +107,13 @@ import ptolemy.kernel.util.Workspace;
  which will be almost symmetric (insert the last
  sample into the first position to get the symmetric output that you
  would get with the <i>symmetricOutput</i> being true).
+ <p>
+ If the input is of type double or complex and the number of lags is
+ less than the number of inputs, then the sums are computed on arrays
+ of doubles rather than on tokens. If it is less expensive, they are
+ computed as the inverse FFT of the squared magnitude of the FFT of
+ the zero-padded input, in which case the results may differ from those
+ of the direct computation by rounding errors.
 
  @author Edward A. Lee and Yuhong Xiong
  @version $Id$
@@ -229,6 +241,10 @@ public class Autocorrelation extends SDFTransformer {
         newObject.output.setTypeAtLeast(newObject.new OutputTypeTerm());
 
         newObject._outputs = new Token[newObject._lengthOfOutput];
+        newObject._samples = null;
+        newObject._spectrum = null;
+        newObject._sums = null;
+        newObject._values = null;
         System.arraycopy(_outputs, 0, newObject._outputs, 0, _outputs.length);
 
         return newObject;
@@ -251,17 +267,38 @@ public class Autocorrelation extends SDFTransformer {
         // is complex?
         boolean complex = inputValues[0] instanceof ComplexToken;
 
+        // Compute the sums on doubles if the input is double or complex.
+        double[] sums = null;
+        Type inputType = input.getType();
+        if ((_numberOfLags < _numberOfInputs)
+                && (inputType.equals(BaseType.DOUBLE) || inputType
+                        .equals(BaseType.COMPLEX))) {
+            sums = _sums(inputValues, complex);
+        }
+
         for (int i = _numberOfLags; i >= 0; i--) {
-            Token sum = inputValues[0].zero();
+            Token sum;
 
-            for (int j = 0; j < (_numberOfInputs - i); j++) {
+            if (sums != null) {
                 if (complex) {
-                    ComplexToken conjugate = new ComplexToken(
-                            ((ComplexToken) inputValues[j]).complexValue()
-                                    .conjugate());
-                    sum = sum.add(conjugate.multiply(inputValues[j + i]));
+                    sum = new ComplexToken(new Complex(sums[2 * i],
+                            sums[(2 * i) + 1]));
                 } else {
-                    sum = sum.add(inputValues[j].multiply(inputValues[j + i]));
+                    sum = new DoubleToken(sums[2 * i]);
+                }
+            } else {
+                sum = inputValues[0].zero();
+
+                for (int j = 0; j < (_numberOfInputs - i); j++) {
+                    if (complex) {
+                        ComplexToken conjugate = new ComplexToken(
+                                ((ComplexToken) inputValues[j]).complexValue()
+                                        .conjugate());
+                        sum = sum.add(conjugate.multiply(inputValues[j + i]));
+                    } else {
+                        sum = sum.add(inputValues[j]
+                                .multiply(inputValues[j + i]));
+                    }
                 }
             }
 
@@ -308,6 +345,116 @@ public class Autocorrelation extends SDFTransformer {
         }
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return the sums of the products for the lags from 0 to
+     *  the number of lags, with the real and imaginary parts interleaved,
+     *  for input tokens that are DoubleTokens or ComplexTokens.
+     *  The sums are computed directly, in the same order as with tokens,
+     *  or, if it is less expensive, using the FFT.
+     */
+    private double[] _sums(Token[] inputValues, boolean complex) {
+        int size = 2 * (_numberOfLags + 1);
+        if ((_sums == null) || (_sums.length != size)) {
+            _sums = new double[size];
+        }
+        if ((_values == null) || (_values.length != 2 * _numberOfInputs)) {
+            _values = new double[2 * _numberOfInputs];
+        }
+        for (int j = 0; j < _numberOfInputs; j++) {
+            if (complex) {
+                Complex value = ((ComplexToken) inputValues[j]).complexValue();
+                _values[2 * j] = value.real;
+                _values[(2 * j) + 1] = value.imag;
+            } else {
+                _values[2 * j] = ((DoubleToken) inputValues[j]).doubleValue();
+                _values[(2 * j) + 1] = 0.0;
+            }
+        }
+
+        // With a transform of at least numberOfInputs + numberOfLags
+        // points, the circular correlation does not wrap around.
+        int order = 0;
+        while ((1L << order) < ((long) _numberOfInputs + _numberOfLags)) {
+            order++;
+        }
+        long directCost = ((_numberOfLags + 1L) * ((2L * _numberOfInputs)
+                - _numberOfLags)) / 2;
+        long transformCost = (4L * order) << order;
+        if ((order > FFTPlan.MAXIMUM_ORDER) || (directCost <= transformCost)) {
+            for (int i = 0; i <= _numberOfLags; i++) {
+                double real = 0.0;
+                double imag = 0.0;
+                for (int j = 0; j < (_numberOfInputs - i); j++) {
+                    double a = _values[2 * j];
+                    double b = _values[(2 * j) + 1];
+                    double c = _values[2 * (j + i)];
+                    double d = _values[(2 * (j + i)) + 1];
+                    if (complex) {
+                        // Multiply the conjugate of a + bi by c + di,
+                        // as Complex does.
+                        double conjugate = (b != 0.0) ? -b : b;
+                        real += (c * a) - (d * conjugate);
+                        imag += (c * conjugate) + (d * a);
+                    } else {
+                        real += a * c;
+                    }
+                }
+                _sums[2 * i] = real;
+                _sums[(2 * i) + 1] = imag;
+            }
+            return _sums;
+        }
+
+        FFTPlan plan = FFTPlan.getPlan(order);
+        int transformSize = 1 << order;
+        if ((_spectrum == null) || (_spectrum.length != 2 * transformSize)) {
+            _spectrum = new double[2 * transformSize];
+        }
+        if (complex) {
+            System.arraycopy(_values, 0, _spectrum, 0, 2 * _numberOfInputs);
+            Arrays.fill(_spectrum, 2 * _numberOfInputs, 2 * transformSize, 0.0);
+            plan.transform(_spectrum);
+            for (int k = 0; k < transformSize; k++) {
+                double real = _spectrum[2 * k];
+                double imag = _spectrum[(2 * k) + 1];
+                _spectrum[2 * k] = (real * real) + (imag * imag);
+                _spectrum[(2 * k) + 1] = 0.0;
+            }
+            plan.inverseTransform(_spectrum);
+            System.arraycopy(_spectrum, 0, _sums, 0, size);
+        } else {
+            if ((_samples == null) || (_samples.length != transformSize)) {
+                _samples = new double[transformSize];
+            }
+            for (int j = 0; j < _numberOfInputs; j++) {
+                _samples[j] = _values[2 * j];
+            }
+            Arrays.fill(_samples, _numberOfInputs, transformSize, 0.0);
+            plan.realTransform(_samples, _spectrum);
+
+            // The power spectrum is real and even, so its inverse
+            // transform is its transform divided by the size.
+            int halfSize = transformSize >> 1;
+            for (int k = 0; k <= halfSize; k++) {
+                double real = _spectrum[2 * k];
+                double imag = _spectrum[(2 * k) + 1];
+                _samples[k] = (real * real) + (imag * imag);
+                if (k > 0) {
+                    _samples[transformSize - k] = _samples[k];
+                }
+            }
+            plan.realTransform(_samples, _spectrum);
+            double scale = 1.0 / transformSize;
+            for (int i = 0; i <= _numberOfLags; i++) {
+                _sums[2 * i] = _spectrum[2 * i] * scale;
+                _sums[(2 * i) + 1] = 0.0;
+            }
+        }
+        return _sums;
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
     private int _numberOfInputs;
@@ -320,6 +467,18 @@ public class Autocorrelation extends SDFTransformer {
 
     private Token[] _outputs;
 
+    // The real input padded with zeros, and then its power spectrum.
+    private double[] _samples;
+
+    // The transform of the input.
+    private double[] _spectrum;
+
+    // The sums of products for each lag, interleaved.
+    private double[] _sums;
+
+    // The input values, interleaved.
+    private double[] _values;
+
     ///////////////////////////////////////////////////////////////////
     ////                         inner classes                     ////
     // This class implements a monotonic function of the input port
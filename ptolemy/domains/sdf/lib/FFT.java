@@ -37,8 +37,9 @@ import ptolemy.kernel.CompositeEntity;
 import ptolemy.kernel.util.Attribute;
 import ptolemy.kernel.util.IllegalActionException;
 import ptolemy.kernel.util.NameDuplicationException;
+import ptolemy.kernel.util.Workspace;
 import ptolemy.math.Complex;
-import ptolemy.math.SignalProcessing;
+import ptolemy.math.FFTPlan;
 
 ///////////////////////////////////////////////////////////////////
 //// FFT
@@ -56,7 +57,7 @@ import ptolemy.math.SignalProcessing;
  @since Ptolemy II 0.4
  @Pt.ProposedRating Green (neuendor)
  @Pt.AcceptedRating Yellow (neuendor)
- @see ptolemy.math.SignalProcessing#FFTComplexOut
+ @see ptolemy.math.FFTPlan
  */
 public class FFT extends SDFTransformer {
     /** Construct an actor with the given container and name.
@@ -109,15 +110,36 @@ public class FFT extends SDFTransformer {
                         + _orderValue + " but must be greater than zero.");
             }
 
+            if (_orderValue > FFTPlan.MAXIMUM_ORDER) {
+                throw new IllegalActionException(this, "Order was "
+                        + _orderValue + " but must be at most "
+                        + FFTPlan.MAXIMUM_ORDER + ".");
+            }
+
             _transformSize = (int) Math.pow(2, _orderValue);
 
-            _inComplexArray = new Complex[_transformSize];
+            _plan = FFTPlan.getPlan(_orderValue);
+            _data = new double[2 * _transformSize];
             _outTokenArray = new ComplexToken[_transformSize];
         } else {
             super.attributeChanged(attribute);
         }
     }
 
+    /** Clone the actor into the specified workspace. This calls the
+     *  base class and then allocates the buffers of the new actor.
+     *  @param workspace The workspace for the new object.
+     *  @return A new actor.
+     *  @exception CloneNotSupportedException If a derived class has
+     *   an attribute that cannot be cloned.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        FFT newObject = (FFT) super.clone(workspace);
+        newObject._data = new double[2 * _transformSize];
+        newObject._outTokenArray = new ComplexToken[_transformSize];
+        return newObject;
+    }
+
     /** Consume the inputs and produce the outputs of the FFT filter.
      *  @exception IllegalActionException If a runtime type error occurs.
      */
@@ -127,14 +149,16 @@ public class FFT extends SDFTransformer {
         Token[] inTokenArray = input.get(0, _transformSize);
 
         for (int i = 0; i < _transformSize; i++) {
-            _inComplexArray[i] = ((ScalarToken) inTokenArray[i]).complexValue();
+            Complex value = ((ScalarToken) inTokenArray[i]).complexValue();
+            _data[2 * i] = value.real;
+            _data[(2 * i) + 1] = value.imag;
         }
 
-        Complex[] outComplexArray = SignalProcessing.FFTComplexOut(
-                _inComplexArray, _orderValue);
+        _plan.transform(_data);
 
         for (int i = 0; i < _transformSize; i++) {
-            _outTokenArray[i] = new ComplexToken(outComplexArray[i]);
+            _outTokenArray[i] = new ComplexToken(new Complex(_data[2 * i],
+                    _data[(2 * i) + 1]));
         }
 
         output.send(0, _outTokenArray, _transformSize);
@@ -146,7 +170,11 @@ public class FFT extends SDFTransformer {
 
     private int _orderValue;
 
-    private Complex[] _inComplexArray;
+    // The interleaved real and imaginary parts of the data.
+    private double[] _data;
+
+    // The plan for transforms of the current order.
+    private FFTPlan _plan;
 
     private ComplexToken[] _outTokenArray;
 }
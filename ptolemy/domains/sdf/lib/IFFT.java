@@ -36,8 +36,9 @@ import ptolemy.kernel.CompositeEntity;
 import ptolemy.kernel.util.Attribute;
 import ptolemy.kernel.util.IllegalActionException;
 import ptolemy.kernel.util.NameDuplicationException;
+import ptolemy.kernel.util.Workspace;
 import ptolemy.math.Complex;
-import ptolemy.math.SignalProcessing;
+import ptolemy.math.FFTPlan;
 
 ///////////////////////////////////////////////////////////////////
 //// IFFT
@@ -56,7 +57,7 @@ import ptolemy.math.SignalProcessing;
  @since Ptolemy II 1.0
  @Pt.ProposedRating Yellow (neuendor)
  @Pt.AcceptedRating Yellow (eal)
- @see ptolemy.math.SignalProcessing#IFFTComplexOut
+ @see ptolemy.math.FFTPlan
  */
 public class IFFT extends SDFTransformer {
     /** Construct an actor with the given container and name.
@@ -109,15 +110,36 @@ public class IFFT extends SDFTransformer {
                         + _orderValue + " but must be greater than zero.");
             }
 
+            if (_orderValue > FFTPlan.MAXIMUM_ORDER) {
+                throw new IllegalActionException(this, "Order was "
+                        + _orderValue + " but must be at most "
+                        + FFTPlan.MAXIMUM_ORDER + ".");
+            }
+
             _transformSize = (int) Math.pow(2, _orderValue);
 
-            _inComplexArray = new Complex[_transformSize];
+            _plan = FFTPlan.getPlan(_orderValue);
+            _data = new double[2 * _transformSize];
             _outTokenArray = new ComplexToken[_transformSize];
         } else {
             super.attributeChanged(attribute);
         }
     }
 
+    /** Clone the actor into the specified workspace. This calls the
+     *  base class and then allocates the buffers of the new actor.
+     *  @param workspace The workspace for the new object.
+     *  @return A new actor.
+     *  @exception CloneNotSupportedException If a derived class has
+     *   an attribute that cannot be cloned.
+     */
+    public Object clone(Workspace workspace) throws CloneNotSupportedException {
+        IFFT newObject = (IFFT) super.clone(workspace);
+        newObject._data = new double[2 * _transformSize];
+        newObject._outTokenArray = new ComplexToken[_transformSize];
+        return newObject;
+    }
+
     /** Consume the inputs and produce the outputs of the IFFT filter.
      *  @exception IllegalActionException If a runtime type error occurs.
      */
@@ -127,15 +149,17 @@ public class IFFT extends SDFTransformer {
         Token[] inTokenArray = input.get(0, _transformSize);
 
         for (int i = 0; i < _transformSize; i++) {
-            _inComplexArray[i] = ((ComplexToken) inTokenArray[i])
+            Complex value = ((ComplexToken) inTokenArray[i])
                     .complexValue();
+            _data[2 * i] = value.real;
+            _data[(2 * i) + 1] = value.imag;
         }
 
-        Complex[] outComplexArray = SignalProcessing.IFFTComplexOut(
-                _inComplexArray, _orderValue);
+        _plan.inverseTransform(_data);
 
         for (int i = 0; i < _transformSize; i++) {
-            _outTokenArray[i] = new ComplexToken(outComplexArray[i]);
+            _outTokenArray[i] = new ComplexToken(new Complex(_data[2 * i],
+                    _data[(2 * i) + 1]));
         }
 
         output.send(0, _outTokenArray, _transformSize);
@@ -149,5 +173,9 @@ public class IFFT extends SDFTransformer {
 
     private ComplexToken[] _outTokenArray;
 
-    private Complex[] _inComplexArray;
+    // The interleaved real and imaginary parts of the data.
+    private double[] _data;
+
+    // The plan for transforms of the current order.
+    private FFTPlan _plan;
 }
@@ -0,0 +1,114 @@
+# Test Autocorrelation.
+#
+# @Author: agent
+#
+# $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Run a model of a ramp that starts at init and feeds an Autocorrelation
+# actor, and return the output of the actor.
+proc autocorrelation {init numberOfInputs numberOfLags biased} {
+    set e0 [sdfModel 1]
+    set ramp [java::new ptolemy.actor.lib.Ramp $e0 ramp]
+    [getParameter $ramp init] setExpression $init
+    set autocorrelation [java::new ptolemy.domains.sdf.lib.Autocorrelation \
+	    $e0 autocorrelation]
+    [getParameter $autocorrelation numberOfInputs] setExpression \
+	    $numberOfInputs
+    [getParameter $autocorrelation numberOfLags] setExpression $numberOfLags
+    [getParameter $autocorrelation biased] setExpression $biased
+    [getParameter $autocorrelation symmetricOutput] setExpression true
+    set rec [java::new ptolemy.actor.lib.Recorder $e0 rec]
+    $e0 connect \
+	[java::field [java::cast ptolemy.actor.lib.Source $ramp] output] \
+	[java::field [java::cast ptolemy.domains.sdf.lib.SDFTransformer \
+	$autocorrelation] input]
+    $e0 connect \
+	[java::field [java::cast ptolemy.domains.sdf.lib.SDFTransformer \
+	$autocorrelation] output] \
+	[java::field [java::cast ptolemy.actor.lib.Sink $rec] input]
+    [$e0 getManager] execute
+    return [java::cast ptolemy.data.ArrayToken [$rec getLatest 0]]
+}
+
+# Return 1 if the output for the specified lag is the autocorrelation
+# of a ramp from 0 or from 0i, computed directly.
+proc checkLag {output numberOfInputs numberOfLags lag biased} {
+    set sum 0.0
+    for {set j 0} {$j < $numberOfInputs - $lag} {incr j} {
+	set sum [expr {$sum + $j * ($j + $lag)}]
+    }
+    if {$biased} {
+	set expected [expr {$sum / $numberOfInputs}]
+    } else {
+	set expected [expr {$sum / ($numberOfInputs - $lag)}]
+    }
+    set token [java::cast ptolemy.data.ScalarToken \
+	    [$output getElement [expr {$numberOfLags + $lag}]]]
+    set real [java::field [$token complexValue] real]
+    set imag [java::field [$token complexValue] imag]
+    expr {abs($real - $expected) < 1e-9 * $expected + 1e-9 \
+	    && abs($imag) < 1e-9 * $expected + 1e-9}
+}
+
+######################################################################
+####
+#
+test Autocorrelation-1.1 {Double input computed with the FFT} {
+    set output [autocorrelation 0.0 256 200 false]
+    set result [list [$output length]]
+    foreach lag {0 1 100 199 200} {
+	lappend result [checkLag $output 256 200 $lag false]
+    }
+    set result
+} {401 1 1 1 1 1}
+
+######################################################################
+####
+#
+test Autocorrelation-1.2 {Complex input computed with the FFT} {
+    set output [autocorrelation 0.0i 256 200 true]
+    set result [list [[[$output getElement 0] getType] toString]]
+    foreach lag {0 1 100 199 200} {
+	lappend result [checkLag $output 256 200 $lag true]
+    }
+    set result
+} {complex 1 1 1 1 1}
+
+######################################################################
+####
+#
+test Autocorrelation-1.3 {Direct computation on doubles} {
+    set output [autocorrelation 0.0 10 3 false]
+    $output toString
+} {{22.0, 24.5, 26.6666666666667, 28.5, 26.6666666666667, 24.5, 22.0}}
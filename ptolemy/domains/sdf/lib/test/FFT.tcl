@@ -72,3 +72,36 @@ test FFT-1.1 {Test FFT} {
     enumToTokenValues [$rec getRecord 0]
 
 } {{1.0 + 0.0i} {1.0 + 0.0i} {1.0 + 0.0i} {1.0 + 0.0i} {1.0 + 0.0i} {1.0 + 0.0i} {1.0 + 0.0i} {1.0 + 0.0i}}
+
+######################################################################
+#### Test IFFT of FFT in an SDF model
+#
+
+test FFT-2.1 {Test that IFFT inverts FFT} {
+    set e0 [sdfModel 1 ]
+    set ramp [java::new ptolemy.actor.lib.Ramp $e0 ramp]
+    set fft [java::new ptolemy.domains.sdf.lib.FFT $e0 FFT]
+    set ifft [java::new ptolemy.domains.sdf.lib.IFFT $e0 IFFT]
+    set rec [java::new ptolemy.actor.lib.Recorder $e0 rec]
+    [getParameter $fft order] setExpression 4
+    [getParameter $ifft order] setExpression 4
+
+    $e0 connect \
+      [java::field [java::cast ptolemy.actor.lib.Source $ramp] output] \
+      [java::field [java::cast ptolemy.domains.sdf.lib.SDFTransformer $fft] input]
+    $e0 connect \
+      [java::field [java::cast ptolemy.domains.sdf.lib.SDFTransformer $fft] output] \
+      [java::field [java::cast ptolemy.domains.sdf.lib.SDFTransformer $ifft] input]
+    $e0 connect \
+     [java::field [java::cast ptolemy.domains.sdf.lib.SDFTransformer $ifft] output] \
+     [java::field [java::cast ptolemy.actor.lib.Sink $rec] input]
+
+    [$e0 getManager] execute
+    set result {}
+    set k 0
+    foreach value [enumToTokenValues [$rec getRecord 0]] {
+	lappend result [expr {abs([lindex [split $value " "] 0] - $k) < 1e-12}]
+	incr k
+    }
+    set result
+} {1 1 1 1 1 1 1 1 1 1 1 1 1 1 1 1}
@@ -395,10 +395,15 @@ public class InequalitySolver {
         // initialize _NS(not satisfied) list; set _inCvar and _inserted flags.
         // Not Satisfied list.  Each entry is an Integer storing index to
         // _Ilist.
-        // Note: removal in jdk1.2 LinkedList is not an O(1) operation, but
-        // an O(n) operation, where n is the number of elements in list.
-        // If the size of _NS is large, writing our own linked list class
-        // with a Cell class might be better.
+        // Note: removal from the middle of a LinkedList is an O(n)
+        // operation, where n is the number of elements in list, which
+        // made this solver quadratic for large models. Instead, an
+        // inequality that becomes satisfied is only marked as not
+        // inserted, and its entry is skipped when it reaches the head
+        // of the list. Since inequalities are reinserted at the head,
+        // an inserted inequality is always reached through its most
+        // recent entry, so the order in which the inequalities are
+        // processed is the same as with removal.
         LinkedList _NS = new LinkedList();
 
         for (int i = 0; i < _Ilist.size(); i++) {
@@ -430,6 +435,13 @@ public class InequalitySolver {
                 int index = ((Integer) (_NS.removeFirst())).intValue();
 
                 Info info = (Info) (_Ilist.get(index));
+
+                if (!info._inserted) {
+                    // The inequality was dropped after this entry
+                    // was added.
+                    continue;
+                }
+
                 info._inserted = false;
 
                 Object value = null;
@@ -467,14 +479,12 @@ public class InequalitySolver {
 
                     if ((index1 != index) && affectedInfo._inCvar) {
                         if (affectedInfo._ineq.isSatisfied(_cpo)) { // drop
-
-                            if (affectedInfo._inserted) {
-                                _NS.remove(index1Wrap);
-                            }
+                            affectedInfo._inserted = false;
                         } else { // insert
 
                             if (!affectedInfo._inserted) {
                                 _NS.addFirst(index1Wrap);
+                                affectedInfo._inserted = true;
                             }
                         }
                     }
@@ -108,6 +108,22 @@ public class PtolemyThread extends Thread implements Debuggable {
         super(group, target, name);
     }
 
+    /** Construct a new PtolemyThread object so that it has target as
+     *  its run object, has the specified name as its name, belongs
+     *  to the thread group referred to by group, and has the specified
+     *  stack size.
+     *  @param group The thread group.
+     *  @param target The object whose run method is called.
+     *  @param name The name of the new thread.
+     *  @param stackSize The requested stack size in bytes, or zero to
+     *   use the default stack size. Some platforms ignore this value.
+     *  @exception SecurityException If the superclass constructor throws it.
+     */
+    public PtolemyThread(ThreadGroup group, Runnable target, String name,
+            long stackSize) {
+        super(group, target, name, stackSize);
+    }
+
     /** Construct a new PtolemyThread object. This constructor has the same
      *  effect as PtolemyThread(group, null, name).
      *  @param group The thread group.
@@ -130,6 +130,37 @@ import java.util.List;
   to avoid invoking them within blocks that hold read access. Note that
   there is no difficulty acquiring read access from within a block
   holding write access.
+  <p>
+  Getting read access synchronizes on the workspace, so threads that
+  read the workspace frequently, such as the threads of a process network
+  that send and get tokens, contend for it even though none of them
+  writes. Short reads of values that are cached for a version of the
+  workspace can therefore be done optimistically, without getting read
+  access, as follows:
+  <pre>
+     long stamp = _workspace.tryOptimisticRead();
+     if (stamp != 0L && _cacheVersion == _workspace.getVersion()) {
+         Object result = _cache;
+         if (_workspace.validate(stamp)) {
+             return result;
+         }
+     }
+     try {
+         _workspace.getReadAccess();
+         ... read as usual ...
+     } finally {
+         _workspace.doneReading();
+     }
+  </pre>
+  The stamp returned by tryOptimisticRead() is zero if a thread has
+  write access, and validate() returns false if a thread has got write
+  access since the stamp was returned, so the value that is read is one
+  that was valid when no thread was writing. The version of the cache
+  should be volatile and set after the cache, so that a thread that
+  reads the version also sees the cache. Optimistic reads do not
+  change the semantics of write access, and they never delay a writer.
+  They can be disabled with setOptimisticReads(), in which case
+  tryOptimisticRead() always returns zero.
 
  @author Edward A. Lee, Mudit Goel, Lukito Muliadi, Xiaojun Liu
  @version $Id$
@@ -455,7 +486,9 @@ public final class Workspace implements Nameable, Serializable {
      *  It is meant to track changes to the objects in the workspace.
      *  @return A non-negative long integer.
      */
-    public synchronized final long getVersion() {
+    public final long getVersion() {
+        // The version is volatile, so no synchronization is needed
+        // to read it.
         return _version;
     }
 
@@ -518,6 +551,8 @@ public final class Workspace implements Nameable, Serializable {
                     // or the only reader is the current thread
                     _writer = current;
                     _writeDepth = 1;
+                    // Invalidate the optimistic reads.
+                    _writeStamp++;
                     record.failedWriteAttempts--;
                     return;
                 }
@@ -663,6 +698,16 @@ public final class Workspace implements Nameable, Serializable {
         incrVersion();
     }
 
+    /** Enable or disable optimistic reads. If they are disabled, then
+     *  tryOptimisticRead() returns zero, so every read gets read access.
+     *  Optimistic reads are enabled by default.
+     *  @param enabled False to disable optimistic reads.
+     *  @see #tryOptimisticRead()
+     */
+    public void setOptimisticReads(boolean enabled) {
+        _optimisticReads = enabled;
+    }
+
     /** Return a concise description of the object.
      *  @return The class name and name.
      */
@@ -670,6 +715,38 @@ public final class Workspace implements Nameable, Serializable {
         return getClass().getName() + " {" + getFullName() + "}";
     }
 
+    /** Return a stamp for an optimistic read of the workspace, or zero if
+     *  a thread, possibly the calling one, has write access or optimistic
+     *  reads are disabled. This method does not synchronize on the
+     *  workspace. A nonzero stamp should be passed to validate() after
+     *  the values have been read and before they are used. If the stamp
+     *  is zero or is not valid, then the values should be read again
+     *  with read access.
+     *  @return A stamp, or zero if optimistic reads are not possible.
+     *  @see #validate(long)
+     */
+    public long tryOptimisticRead() {
+        if (!_optimisticReads) {
+            return 0L;
+        }
+        long stamp = _writeStamp;
+        if ((stamp & 1L) != 0L) {
+            // A thread has write access.
+            return 0L;
+        }
+        return stamp;
+    }
+
+    /** Return true if no thread has got write access to the workspace
+     *  since the specified stamp was returned by tryOptimisticRead().
+     *  @param stamp A stamp returned by tryOptimisticRead().
+     *  @return True if the stamp is nonzero and still valid.
+     *  @see #tryOptimisticRead()
+     */
+    public boolean validate(long stamp) {
+        return (stamp != 0L) && (stamp == _writeStamp);
+    }
+
     /** Release all the read accesses held by the current thread and suspend
      *  the thread by calling Object.wait() on the specified object. When the
      *  call returns, re-acquire all the read accesses held earlier by the
@@ -891,6 +968,7 @@ public final class Workspace implements Nameable, Serializable {
 
                 if (_writeDepth == 0) {
                     _writer = null;
+                    _writeStamp++;
                     notifyAll();
                 }
             } else {
@@ -1053,7 +1131,16 @@ public final class Workspace implements Nameable, Serializable {
     private String _name;
 
     /** @serial Version number. */
-    private long _version = 0;
+    private volatile long _version = 0;
+
+    /** True if optimistic reads are enabled. */
+    private volatile boolean _optimisticReads = true;
+
+    /** The stamp of optimistic reads, which is incremented when a
+     *  thread gets write access and when it is done writing, so it is
+     *  odd while a thread has write access.
+     */
+    private transient volatile long _writeStamp = 2L;
 
     /** @serial The currently writing thread (if any). */
     private transient Thread _writer;
@@ -399,3 +399,27 @@ test Workspace-9.1 {Test handleModelError} {
     list $errMsg
 } {{ptolemy.kernel.util.IllegalActionException: myException
   in .n1 and .n2}}
+
+######################################################################
+#### 
+test Workspace-10.1 {Test optimistic reads} {
+    set w [java::new ptolemy.kernel.util.Workspace W]
+    set s1 [$w tryOptimisticRead]
+    set v1 [$w validate $s1]
+    $w getWriteAccess
+    # A thread has write access, so no optimistic reads are possible.
+    set s2 [$w tryOptimisticRead]
+    set v2 [$w validate $s1]
+    $w doneWriting
+    # The stamp obtained before the write access is no longer valid.
+    set v3 [$w validate $s1]
+    set s3 [$w tryOptimisticRead]
+    $w getReadAccess
+    # Read access does not invalidate the stamp.
+    set v4 [$w validate $s3]
+    $w doneReading
+    $w setOptimisticReads false
+    set s4 [$w tryOptimisticRead]
+    list [expr {$s1 != 0}] $v1 $s2 $v2 $v3 [expr {$s3 != 0}] $v4 $s4 \
+	[$w validate 0]
+} {1 1 0 0 0 1 1 0 0}
@@ -0,0 +1,522 @@
+/* A plan for fast Fourier transforms on arrays of doubles.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+///////////////////////////////////////////////////////////////////
+//// FFTPlan
+
+/**
+ A plan for computing fast Fourier transforms of size 2<sup><i>order</i></sup>
+ on arrays of doubles. A complex sequence is represented by an array that
+ interleaves the real and imaginary parts, so that the real part of the
+ <i>k</i>-th element is at index 2<i>k</i> and the imaginary part at index
+ 2<i>k</i>+1. The transforms are computed in place by a radix-2 algorithm,
+ and no objects are allocated while transforming.
+ <p>
+ A plan holds the bit-reversal permutation and the twiddle factors for its
+ order. Plans are created once per order and shared, so use
+ {@link #getPlan(int)} to obtain one. A plan is immutable and may be used
+ by several threads at once.
+ <p>
+ The transform of a real sequence is computed by transforming it as a
+ complex sequence of half the size, which takes about half the time of a
+ complex transform. Transforms of order {@link #PARALLEL_ORDER} or more
+ are split among the available processors.
+ <p>
+ The results are the same as those of
+ {@link SignalProcessing#FFTComplexOut(Complex[], int)} and
+ {@link SignalProcessing#IFFTComplexOut(Complex[], int)}, up to rounding
+ errors.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class FFTPlan {
+
+    /** Construct a plan for transforms of the specified order.
+     *  @param order The base-2 logarithm of the size of the transform.
+     */
+    private FFTPlan(int order) {
+        _order = order;
+        _size = 1 << order;
+
+        int halfSize = _size >> 1;
+        _cos = new double[halfSize];
+        _sin = new double[halfSize];
+        // Compute the first eighth of the circle and use symmetry for the
+        // rest, which is more accurate and makes the twiddle factors at
+        // multiples of a quarter circle exact.
+        int quarterSize = _size >> 2;
+        for (int k = 0; k < halfSize; k++) {
+            if (k <= (_size >> 3)) {
+                double angle = (2.0 * Math.PI * k) / _size;
+                _cos[k] = Math.cos(angle);
+                _sin[k] = Math.sin(angle);
+            } else if (k <= quarterSize) {
+                _cos[k] = _sin[quarterSize - k];
+                _sin[k] = _cos[quarterSize - k];
+            } else {
+                _cos[k] = -_cos[halfSize - k];
+                _sin[k] = _sin[halfSize - k];
+            }
+        }
+
+        int swaps = 0;
+        int[] reversed = new int[_size];
+        for (int i = 1; i < _size; i++) {
+            reversed[i] = (reversed[i >> 1] >> 1) | ((i & 1) << (order - 1));
+            if (i < reversed[i]) {
+                swaps++;
+            }
+        }
+        _swaps = new int[2 * swaps];
+        for (int i = 1, j = 0; i < _size; i++) {
+            if (i < reversed[i]) {
+                _swaps[j++] = i << 1;
+                _swaps[j++] = reversed[i] << 1;
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public variables                  ////
+
+    /** The largest order of a transform. The interleaved array for
+     *  a transform of this order has 2<sup>30</sup> elements.
+     */
+    public static final int MAXIMUM_ORDER = 29;
+
+    /** The smallest order of the transforms that are split among the
+     *  available processors by {@link #transform(double[])},
+     *  {@link #inverseTransform(double[])} and
+     *  {@link #realTransform(double[], double[])}.
+     */
+    public static final int PARALLEL_ORDER = 16;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the order of the transforms of this plan.
+     *  @return The base-2 logarithm of the size of the transforms.
+     */
+    public int getOrder() {
+        return _order;
+    }
+
+    /** Return the plan for transforms of the specified order,
+     *  creating it if necessary.
+     *  @param order The base-2 logarithm of the size of the transform.
+     *  @return The plan.
+     *  @exception IllegalArgumentException If the order is negative or
+     *   greater than {@link #MAXIMUM_ORDER}.
+     */
+    public static FFTPlan getPlan(int order) {
+        if (order < 0 || order > MAXIMUM_ORDER) {
+            throw new IllegalArgumentException(
+                    "ptolemy.math.FFTPlan : order of transform must be "
+                            + "between 0 and " + MAXIMUM_ORDER + ". Got "
+                            + order + ".");
+        }
+        synchronized (_PLANS) {
+            if (_PLANS[order] == null) {
+                _PLANS[order] = new FFTPlan(order);
+            }
+            return _PLANS[order];
+        }
+    }
+
+    /** Return the size of the transforms of this plan.
+     *  @return The number of complex elements transformed.
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /** Replace the first 2<sup><i>order</i></sup> complex elements of
+     *  the specified interleaved array with their inverse transform,
+     *  including the scaling by 2<sup>-<i>order</i></sup>. The transform
+     *  is split among the available processors if the order is at least
+     *  {@link #PARALLEL_ORDER}.
+     *  @param data An interleaved array of at least
+     *   2<sup><i>order</i>+1</sup> doubles.
+     *  @exception IllegalArgumentException If the array is too short.
+     */
+    public void inverseTransform(double[] data) {
+        inverseTransform(data, _defaultThreads());
+    }
+
+    /** Replace the first 2<sup><i>order</i></sup> complex elements of
+     *  the specified interleaved array with their inverse transform,
+     *  including the scaling by 2<sup>-<i>order</i></sup>, using at most
+     *  the specified number of threads.
+     *  @param data An interleaved array of at least
+     *   2<sup><i>order</i>+1</sup> doubles.
+     *  @param numberOfThreads The maximum number of threads to use.
+     *  @exception IllegalArgumentException If the array is too short.
+     */
+    public void inverseTransform(double[] data, int numberOfThreads) {
+        _checkLength(data, 2 * _size);
+        _transform(data, true, numberOfThreads);
+        double scale = 1.0 / _size;
+        for (int i = 0; i < 2 * _size; i++) {
+            data[i] *= scale;
+        }
+    }
+
+    /** Compute the transform of the first 2<sup><i>order</i></sup>
+     *  elements of the specified real array and store the elements
+     *  0 through 2<sup><i>order</i>-1</sup> of the transform, interleaved,
+     *  in the output array. The other elements are the complex conjugates
+     *  of these. If the input is shorter than 2<sup><i>order</i></sup>,
+     *  it is padded with zeros. The input array is not modified.
+     *  The transform is split among the available processors if the
+     *  order is at least {@link #PARALLEL_ORDER}.
+     *  @param input An array of doubles.
+     *  @param output An array of at least 2<sup><i>order</i></sup>+2
+     *   doubles, distinct from the input array.
+     *  @exception IllegalArgumentException If the output array is too short.
+     */
+    public void realTransform(double[] input, double[] output) {
+        realTransform(input, output, _defaultThreads());
+    }
+
+    /** Compute the transform of the first 2<sup><i>order</i></sup>
+     *  elements of the specified real array and store the elements
+     *  0 through 2<sup><i>order</i>-1</sup> of the transform, interleaved,
+     *  in the output array, using at most the specified number of threads.
+     *  The other elements are the complex conjugates of these.
+     *  If the input is shorter than 2<sup><i>order</i></sup>,
+     *  it is padded with zeros. The input array is not modified.
+     *  @param input An array of doubles.
+     *  @param output An array of at least 2<sup><i>order</i></sup>+2
+     *   doubles, distinct from the input array.
+     *  @param numberOfThreads The maximum number of threads to use.
+     *  @exception IllegalArgumentException If the output array is too short.
+     */
+    public void realTransform(double[] input, double[] output,
+            int numberOfThreads) {
+        _checkLength(output, _size + 2);
+        int length = Math.min(input.length, _size);
+        System.arraycopy(input, 0, output, 0, length);
+        for (int i = length; i < _size; i++) {
+            output[i] = 0.0;
+        }
+        if (_order == 0) {
+            output[1] = 0.0;
+            return;
+        }
+
+        // The even and odd samples are the real and imaginary parts
+        // of a complex sequence of half the size. Transform it and
+        // separate the transforms of the even and odd samples.
+        getPlan(_order - 1)._transform(output, false, numberOfThreads);
+
+        int halfSize = _size >> 1;
+        double real0 = output[0];
+        double imag0 = output[1];
+        output[0] = real0 + imag0;
+        output[1] = 0.0;
+        output[_size] = real0 - imag0;
+        output[_size + 1] = 0.0;
+        for (int k = 1, m = halfSize - 1; k <= m; k++, m--) {
+            int a = k << 1;
+            int b = m << 1;
+            double evenReal = 0.5 * (output[a] + output[b]);
+            double evenImag = 0.5 * (output[a + 1] - output[b + 1]);
+            double oddReal = 0.5 * (output[a + 1] + output[b + 1]);
+            double oddImag = 0.5 * (output[b] - output[a]);
+            double twiddledReal = (_cos[k] * oddReal) + (_sin[k] * oddImag);
+            double twiddledImag = (_cos[k] * oddImag) - (_sin[k] * oddReal);
+            output[a] = evenReal + twiddledReal;
+            output[a + 1] = evenImag + twiddledImag;
+            output[b] = evenReal - twiddledReal;
+            output[b + 1] = twiddledImag - evenImag;
+        }
+    }
+
+    /** Replace the first 2<sup><i>order</i></sup> complex elements of
+     *  the specified interleaved array with their transform. The transform
+     *  is split among the available processors if the order is at least
+     *  {@link #PARALLEL_ORDER}.
+     *  @param data An interleaved array of at least
+     *   2<sup><i>order</i>+1</sup> doubles.
+     *  @exception IllegalArgumentException If the array is too short.
+     */
+    public void transform(double[] data) {
+        transform(data, _defaultThreads());
+    }
+
+    /** Replace the first 2<sup><i>order</i></sup> complex elements of
+     *  the specified interleaved array with their transform, using at
+     *  most the specified number of threads.
+     *  @param data An interleaved array of at least
+     *   2<sup><i>order</i>+1</sup> doubles.
+     *  @param numberOfThreads The maximum number of threads to use.
+     *  @exception IllegalArgumentException If the array is too short.
+     */
+    public void transform(double[] data, int numberOfThreads) {
+        _checkLength(data, 2 * _size);
+        _transform(data, false, numberOfThreads);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Compute the butterflies of the stages whose half spans range
+     *  from firstHalf to lastHalf, for the blocks of the complex elements
+     *  from begin to end, and, within each block, for the specified part
+     *  of the butterflies, where the butterflies are divided into the
+     *  specified number of parts.
+     */
+    private void _butterflies(double[] data, boolean inverse, int firstHalf,
+            int lastHalf, int begin, int end, int part, int parts) {
+        double sign = inverse ? 1.0 : -1.0;
+        for (int half = firstHalf; half <= lastHalf; half <<= 1) {
+            int step = (_size >> 1) / half;
+            int first = (int) (((long) half * part) / parts);
+            int last = (int) (((long) half * (part + 1)) / parts);
+            for (int start = begin; start < end; start += 2 * half) {
+                for (int j = first; j < last; j++) {
+                    double twiddleReal = _cos[j * step];
+                    double twiddleImag = sign * _sin[j * step];
+                    int a = (start + j) << 1;
+                    int b = a + (half << 1);
+                    double real = (twiddleReal * data[b])
+                            - (twiddleImag * data[b + 1]);
+                    double imag = (twiddleReal * data[b + 1])
+                            + (twiddleImag * data[b]);
+                    data[b] = data[a] - real;
+                    data[b + 1] = data[a + 1] - imag;
+                    data[a] += real;
+                    data[a + 1] += imag;
+                }
+            }
+        }
+    }
+
+    /** Throw an exception if the array is shorter than the length. */
+    private static void _checkLength(double[] data, int length) {
+        if (data.length < length) {
+            throw new IllegalArgumentException(
+                    "ptolemy.math.FFTPlan : array of length " + data.length
+                            + " is too short. Expected at least " + length
+                            + ".");
+        }
+    }
+
+    /** Return the number of threads to use by default. */
+    private int _defaultThreads() {
+        if (_order < PARALLEL_ORDER) {
+            return 1;
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Return the executor of the threads that compute parts of the
+     *  transforms, creating it if necessary.
+     */
+    private static synchronized ExecutorService _executor() {
+        if (_executor == null) {
+            _executor = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FFTPlan-"
+                            + (++_threadCount));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return _executor;
+    }
+
+    /** Run the specified tasks, the first one in the calling thread,
+     *  and wait until all of them are done.
+     */
+    private static void _runAll(List<FutureTask<Object>> tasks) {
+        for (int i = 1; i < tasks.size(); i++) {
+            _executor().execute(tasks.get(i));
+        }
+        boolean interrupted = false;
+        try {
+            for (FutureTask<Object> task : tasks) {
+                // Running a task that has started in another thread
+                // does nothing.
+                task.run();
+                while (true) {
+                    try {
+                        task.get();
+                        break;
+                    } catch (InterruptedException ex) {
+                        // The tasks are short, so wait for them rather
+                        // than leave the data half transformed.
+                        interrupted = true;
+                    } catch (ExecutionException ex) {
+                        Throwable cause = ex.getCause();
+                        if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        } else if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Transform the data in place, without scaling the inverse
+     *  transform, using at most the specified number of threads.
+     */
+    private void _transform(double[] data, boolean inverse,
+            int numberOfThreads) {
+        for (int i = 0; i < _swaps.length; i += 2) {
+            int a = _swaps[i];
+            int b = _swaps[i + 1];
+            double real = data[a];
+            double imag = data[a + 1];
+            data[a] = data[b];
+            data[a + 1] = data[b + 1];
+            data[b] = real;
+            data[b + 1] = imag;
+        }
+
+        // Use a power of two threads, each of which first computes the
+        // stages within a segment of the data and then a part of each of
+        // the remaining stages.
+        int threads = 1;
+        while (threads * 2 <= numberOfThreads && threads * 4 <= _size) {
+            threads *= 2;
+        }
+        if (threads == 1) {
+            _butterflies(data, inverse, 1, _size >> 1, 0, _size, 0, 1);
+            return;
+        }
+        int segment = _size / threads;
+        List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(
+                threads);
+        for (int i = 0; i < threads; i++) {
+            tasks.add(new FutureTask<Object>(new Butterflies(data, inverse,
+                    1, segment >> 1, i * segment, (i + 1) * segment, 0, 1),
+                    null));
+        }
+        _runAll(tasks);
+        for (int half = segment; half < _size; half <<= 1) {
+            tasks.clear();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(new FutureTask<Object>(new Butterflies(data,
+                        inverse, half, half, 0, _size, i, threads), null));
+            }
+            _runAll(tasks);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The cosines of the twiddle factors. */
+    private final double[] _cos;
+
+    /** The executor that runs parts of the transforms. */
+    private static ExecutorService _executor;
+
+    /** The order of the transforms. */
+    private final int _order;
+
+    /** The plans that have been created, indexed by order. */
+    private static final FFTPlan[] _PLANS = new FFTPlan[MAXIMUM_ORDER + 1];
+
+    /** The sines of the twiddle factors. */
+    private final double[] _sin;
+
+    /** The size of the transforms. */
+    private final int _size;
+
+    /** Pairs of indices into the interleaved array of the elements
+     *  that are swapped by the bit-reversal permutation.
+     */
+    private final int[] _swaps;
+
+    /** The number of threads that have been created. */
+    private static int _threadCount;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** A part of a transform that is computed by one thread. */
+    private class Butterflies implements Runnable {
+        // Construct a task that calls _butterflies() with the
+        // specified arguments.
+        private Butterflies(double[] data, boolean inverse, int firstHalf,
+                int lastHalf, int begin, int end, int part, int parts) {
+            _data = data;
+            _inverse = inverse;
+            _firstHalf = firstHalf;
+            _lastHalf = lastHalf;
+            _begin = begin;
+            _end = end;
+            _part = part;
+            _parts = parts;
+        }
+
+        public void run() {
+            _butterflies(_data, _inverse, _firstHalf, _lastHalf, _begin,
+                    _end, _part, _parts);
+        }
+
+        private final int _begin;
+
+        private final double[] _data;
+
+        private final int _end;
+
+        private final int _firstHalf;
+
+        private final boolean _inverse;
+
+        private final int _lastHalf;
+
+        private final int _part;
+
+        private final int _parts;
+    }
+}
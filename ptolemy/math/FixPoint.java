@@ -75,6 +75,16 @@ import java.math.BigInteger;
  finite value and so this implementation is truly platform independent.
  Note that the FixPoint does not put any restrictions on the maximum number
  of bits in the representation of a value.
+ <p>
+ A value whose Precision has no more than 63 bits is held in a long
+ instead, and construction from a double or an int, requantization,
+ addition, subtraction and multiplication of such values use long
+ arithmetic as long as the result also fits in 63 bits. The results,
+ including the effects of the Overflow and Rounding strategies, are
+ the same as with BigInteger arithmetic, which is used for wider
+ formats. A BigInteger is only created for such a value if
+ {@link #getUnscaledValue()} or one of the operations that are not
+ optimized, such as divide, requires it.
 
  @author Bart Kienhuis, Ed Willink, Contributor: Edward A. Lee, Mike Wirthlin
  @version $Id$
@@ -99,19 +109,26 @@ public class FixPoint implements Cloneable, Serializable {
     /** Construct a new FixPoint object by requantizing the
      *  given FixPoint object with a new quantization specification.
      *
-     *  TODO: This isn't the most efficient way of requantizing
-     *  a value. Need to look into more efficient techniques for
-     *  doing simple requantizations rather than converting into
-     *  a BigDecimal. Proposal:
-     *  - Create methods in Rounding to support Rounding
-     *    of "shifted" BigInteger values
-     *  - Perform rounding using shifting rather than
-     *    conversion to BigDecimal
+     *  If the value fits in a long, it is rounded by shifting, using
+     *  {@link Rounding#round(long, int)}. Otherwise, it is converted
+     *  into a BigDecimal.
      *
      *  @param fix The existing FixPoint value
      *  @param quant The quantization specification.
      */
     public FixPoint(FixPoint fix, Quantization quant) {
+        int exponent = fix._precision.getExponent();
+        if (fix._isLong) {
+            if (_initFromLong(fix._longValue, exponent, quant)) {
+                return;
+            }
+        } else if (fix._value.bitLength() <= 62) {
+            // A value with a wide precision, such as the product of
+            // two 32 bit values, may still fit in a long.
+            if (_initFromLong(fix._value.longValue(), exponent, quant)) {
+                return;
+            }
+        }
         _initFromBigDecimal(fix.bigDecimalValue(), quant);
     }
 
@@ -126,6 +143,32 @@ public class FixPoint implements Cloneable, Serializable {
      *   or Double.NaN.
      */
     public FixPoint(double doubleValue, Quantization quant) {
+        if (!Double.isNaN(doubleValue) && !Double.isInfinite(doubleValue)) {
+            // A double is exactly mantissa * 2^exponent, so if the
+            // mantissa and the quantized value fit in a long, there is
+            // no need to convert it to a BigDecimal.
+            long bits = Double.doubleToLongBits(doubleValue);
+            int exponent = (int) ((bits >> 52) & 0x7ffL);
+            long mantissa = bits & 0xfffffffffffffL;
+            if (exponent == 0) {
+                // A subnormal number.
+                exponent = 1;
+            } else {
+                mantissa |= 1L << 52;
+            }
+            exponent -= 1075;
+            if (mantissa != 0L) {
+                int zeros = Long.numberOfTrailingZeros(mantissa);
+                mantissa >>= zeros;
+                exponent += zeros;
+            }
+            if (bits < 0L) {
+                mantissa = -mantissa;
+            }
+            if (_initFromLong(mantissa, exponent, quant)) {
+                return;
+            }
+        }
         try {
             BigDecimal bigDecimal = new BigDecimal(doubleValue);
             _initFromBigDecimal(bigDecimal, quant);
@@ -144,8 +187,10 @@ public class FixPoint implements Cloneable, Serializable {
      *  @param quant The quantization specification.
      */
     public FixPoint(int intValue, Quantization quant) {
-        BigInteger bigInt = new BigInteger(Integer.toString(intValue));
-        _initFromBigInteger(bigInt, quant);
+        if (!_initFromLong(intValue, 0, quant)) {
+            BigInteger bigInt = new BigInteger(Integer.toString(intValue));
+            _initFromBigInteger(bigInt, quant);
+        }
     }
 
     /** Construct a FixPoint from an integer.
@@ -279,6 +324,9 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return A non-negative fixed point.
      */
     public FixPoint abs() {
+        if (_isLong) {
+            return new FixPoint(Math.abs(_longValue), _precision);
+        }
         return new FixPoint(_value.abs(), _precision);
     }
 
@@ -300,6 +348,15 @@ public class FixPoint implements Cloneable, Serializable {
         // Align the two arguments
         int minExponent = Math.min(_precision.getExponent(),
                 arg._precision.getExponent());
+        if (_isLong && arg._isLong) {
+            Precision newPrecision = addPrecision(_precision, arg._precision);
+            if (_fitsInLong(newPrecision)) {
+                // The aligned arguments fit in one bit less than the
+                // result, so neither the shifts nor the sum overflow.
+                return new FixPoint(_alignToExponentLong(minExponent)
+                        + arg._alignToExponentLong(minExponent), newPrecision);
+            }
+        }
         BigInteger thisValue = _alignToExponent(minExponent);
         BigInteger thatValue = arg._alignToExponent(minExponent);
 
@@ -331,6 +388,10 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return The FixPoint sum.
      */
     public FixPoint add(FixPoint arg, Quantization quant) {
+        FixPoint result = _addLong(arg, false, quant);
+        if (result != null) {
+            return result;
+        }
         return add(arg).quantize(quant);
     }
 
@@ -341,7 +402,7 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return The BigDecimal value of this FixPoint.
      */
     public BigDecimal bigDecimalValue() {
-        return Precision.shiftBigDecimal(new BigDecimal(_value),
+        return Precision.shiftBigDecimal(new BigDecimal(getUnscaledValue()),
                 _precision.getExponent());
     }
 
@@ -399,8 +460,8 @@ public class FixPoint implements Cloneable, Serializable {
 
         try {
 
-            BigDecimal numerator = new BigDecimal(this._value);
-            BigDecimal denominator = new BigDecimal(arg._value);
+            BigDecimal numerator = new BigDecimal(getUnscaledValue());
+            BigDecimal denominator = new BigDecimal(arg.getUnscaledValue());
 
             // Perform the division using the BigDecimal.divide
             // method. When calling this method, we need to know
@@ -425,8 +486,9 @@ public class FixPoint implements Cloneable, Serializable {
 
         } catch (ArithmeticException e) {
             Overflow anOverflow = quant.getOverflow();
-            BigInteger infinity = (_value.signum() >= 0) ? anOverflow
-                    .plusInfinity(quant) : anOverflow.minusInfinity(quant);
+            BigInteger infinity = (getUnscaledValue().signum() >= 0)
+                    ? anOverflow.plusInfinity(quant)
+                    : anOverflow.minusInfinity(quant);
 
             if (infinity != null) {
                 return new FixPoint(infinity, quant.getPrecision());
@@ -444,6 +506,9 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return The double value of this FixPoint.
      */
     public double doubleValue() {
+        if (_isLong) {
+            return _longValue * Math.pow(2.0, _precision.getExponent());
+        }
         return _value.doubleValue() * Math.pow(2.0, _precision.getExponent());
     }
 
@@ -459,11 +524,16 @@ public class FixPoint implements Cloneable, Serializable {
      */
     public boolean equals(Object arg) {
         if (arg instanceof FixPoint) {
+            FixPoint fixArg = (FixPoint) arg;
+            if (_isLong && fixArg._isLong
+                    && _precision.getExponent() == fixArg._precision
+                            .getExponent()) {
+                return _longValue == fixArg._longValue;
+            }
             int exponentBits = Math.min(_precision.getExponent(),
-                    ((FixPoint) arg)._precision.getExponent());
+                    fixArg._precision.getExponent());
             BigInteger thisValue = _alignToExponent(exponentBits);
-            BigInteger thatValue = ((FixPoint) arg)
-                    ._alignToExponent(exponentBits);
+            BigInteger thatValue = fixArg._alignToExponent(exponentBits);
             return thisValue.equals(thatValue);
         }
         return false;
@@ -495,6 +565,9 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return The BigInteger unscaled value of this number.
      */
     public BigInteger getUnscaledValue() {
+        if (_value == null) {
+            _value = BigInteger.valueOf(_longValue);
+        }
         return _value;
     }
 
@@ -503,6 +576,9 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return A hash code value for this value.
      */
     public int hashCode() {
+        if (_isLong) {
+            return (int) _longValue;
+        }
         return _value.intValue();
     }
 
@@ -524,8 +600,9 @@ public class FixPoint implements Cloneable, Serializable {
         int new_sign = _precision.getSign();
 
         // determine wasted bits in LSB locations & update exponent
-        int shiftVal = _value.getLowestSetBit();
-        BigInteger newVal = _value.shiftRight(shiftVal);
+        BigInteger value = getUnscaledValue();
+        int shiftVal = value.getLowestSetBit();
+        BigInteger newVal = value.shiftRight(shiftVal);
         int new_exponent = _precision.getExponent() + shiftVal;
 
         // determine minimum length of "new value"
@@ -551,8 +628,20 @@ public class FixPoint implements Cloneable, Serializable {
      */
     public FixPoint multiply(FixPoint arg) {
 
+        if (_isLong && arg._isLong) {
+            Precision newPrecision = multiplyPrecision(_precision,
+                    arg._precision);
+            if (_fitsInLong(newPrecision)) {
+                // The result has as many bits as the two arguments
+                // together, so the product does not overflow, and
+                // requantizing it as below would not change it.
+                return new FixPoint(_longValue * arg._longValue, newPrecision);
+            }
+        }
+
         // 1. Create FixPoint value with "worst case" precision
-        BigInteger newValue = _value.multiply(arg._value);
+        BigInteger newValue = getUnscaledValue().multiply(
+                arg.getUnscaledValue());
 
         /*
          int new_sign = _determineSign(_precision, arg._precision);
@@ -594,6 +683,18 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return The FixPoint product.
      */
     public FixPoint multiply(FixPoint arg, Quantization quant) {
+        // The quantized product depends only on the value of the
+        // product, so if the product fits in a long, quantize it
+        // directly rather than creating a FixPoint for it.
+        if (_isLong && arg._isLong
+                && _bitLength(_longValue) + _bitLength(arg._longValue) <= 62) {
+            FixPoint result = _quantizeLong(_longValue * arg._longValue,
+                    _precision.getExponent() + arg._precision.getExponent(),
+                    quant);
+            if (result != null) {
+                return result;
+            }
+        }
         return multiply(arg).quantize(quant);
     }
 
@@ -601,14 +702,15 @@ public class FixPoint implements Cloneable, Serializable {
      *  out. This is used for debugging.
      */
     public void printFix() {
-        System.out.println(" unscale Value  (2) " + _value.toString(2));
-        System.out.println(" unscaled Value (10) " + _value.toString(10));
+        BigInteger value = getUnscaledValue();
+        System.out.println(" unscale Value  (2) " + value.toString(2));
+        System.out.println(" unscaled Value (10) " + value.toString(10));
         System.out.println(" scale Value (10) " + doubleValue()
                 + " Precision: " + getPrecision().toString());
-        System.out.println(" BitCount:   " + _value.bitCount());
-        System.out.println(" BitLength   " + _value.bitLength());
+        System.out.println(" BitCount:   " + value.bitCount());
+        System.out.println(" BitLength   " + value.bitLength());
 
-        BigInteger j = _value.abs();
+        BigInteger j = value.abs();
         System.out.println(" ABS value   " + j.toString(2));
         System.out.println(" ABS bit count:  " + j.bitCount());
         System.out.println(" ABD bitLength:  " + j.bitLength());
@@ -649,6 +751,14 @@ public class FixPoint implements Cloneable, Serializable {
         // Align the two arguments
         int minExponent = Math.min(_precision.getExponent(),
                 arg._precision.getExponent());
+        if (_isLong && arg._isLong) {
+            Precision newPrecision = subtractPrecision(_precision,
+                    arg._precision);
+            if (_fitsInLong(newPrecision)) {
+                return new FixPoint(_alignToExponentLong(minExponent)
+                        - arg._alignToExponentLong(minExponent), newPrecision);
+            }
+        }
         BigInteger thisValue = _alignToExponent(minExponent);
         BigInteger thatValue = arg._alignToExponent(minExponent);
 
@@ -685,6 +795,10 @@ public class FixPoint implements Cloneable, Serializable {
      *  @return The FixPoint sum.
      */
     public FixPoint subtract(FixPoint arg, Quantization quant) {
+        FixPoint result = _addLong(arg, true, quant);
+        if (result != null) {
+            return result;
+        }
         return subtract(arg).quantize(quant);
     }
 
@@ -702,8 +816,9 @@ public class FixPoint implements Cloneable, Serializable {
 
         // This simple line used to preserve as much of code as possible
         int _frac_bits = -_precision.getExponent();
+        BigInteger value = getUnscaledValue();
 
-        BigInteger integerPart = _value.shiftRight(_frac_bits);
+        BigInteger integerPart = value.shiftRight(_frac_bits);
         StringBuffer ln = new StringBuffer(integerPart.toString(2));
 
         if (_frac_bits > 0) {
@@ -714,7 +829,7 @@ public class FixPoint implements Cloneable, Serializable {
 
             BigInteger fractionModulus = BigInteger.ZERO.setBit(_frac_bits);
             BigInteger fractionMask = fractionModulus.subtract(BigInteger.ONE);
-            BigInteger fractionPart = _value.and(fractionMask);
+            BigInteger fractionPart = value.and(fractionMask);
             int minFracBits = fractionPart.bitLength();
             int extraLeadingFracBits = _frac_bits - minFracBits;
             ln.append(".");
@@ -806,7 +921,8 @@ public class FixPoint implements Cloneable, Serializable {
      *  precision.
      */
     public String toStringValuePrecision() {
-        return toString() + " [" + _precision.toString() + "=" + _value + "]";
+        return toString() + " [" + _precision.toString() + "="
+                + getUnscaledValue() + "]";
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -832,14 +948,89 @@ public class FixPoint implements Cloneable, Serializable {
         }
         _precision = precision;
         _value = unscaledIntegerValue;
+        if (_fitsInLong(precision)) {
+            _isLong = true;
+            _longValue = unscaledIntegerValue.longValue();
+        }
+    }
+
+    /** Construct a FixPoint from an unscaled long value with a
+     *  given Precision constraint. This method will throw an exception
+     *  if the precision is not sufficient to represent the given value.
+     *
+     *  @param unscaledIntegerValue The integer value of the scaled
+     *  floating point value.
+     *  @param precision The precision to represent the new unscaled value.
+     *  @exception ArithmeticException when precision is not sufficient
+     *  to represent integerValue.
+     *
+     *  Note that this is package scope
+     */
+    FixPoint(long unscaledIntegerValue, Precision precision) {
+        if (Overflow.isOutOfRange(unscaledIntegerValue, precision)) {
+            throw new ArithmeticException("Precision " + precision
+                    + " not sufficient to represent " + unscaledIntegerValue);
+        }
+        _precision = precision;
+        if (_fitsInLong(precision)) {
+            _isLong = true;
+            _longValue = unscaledIntegerValue;
+        } else {
+            _value = BigInteger.valueOf(unscaledIntegerValue);
+        }
+    }
+
+    /** Return true if values with the given precision are held in
+     *  a long, that is, if the precision has between 1 and 63 bits.
+     *  @param precision The precision.
+     *  @return True if values with the precision are held in a long.
+     */
+    static boolean _fitsInLong(Precision precision) {
+        int bits = precision.getNumberOfBits();
+        return bits > 0 && bits <= 63;
     }
 
     ///////////////////////////////////////////////////////////////////
     ////                       private constructor                 ////
 
+    /** Construct a FixPoint that is initialized by
+     *  {@link #_quantizeLong(long, int, Quantization)}.
+     */
+    private FixPoint() {
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
 
+    /** Return the sum or the difference of this FixPoint and the
+     *  argument quantized with the given quantization, if the
+     *  operands are held in a long and the sum or difference of
+     *  the aligned operands also fits in a long.
+     *  @param arg The FixPoint addend or subtrahend.
+     *  @param subtract True to subtract the argument.
+     *  @param quant The quantization specification.
+     *  @return The result, or null if it cannot be computed with long
+     *  arithmetic.
+     */
+    private FixPoint _addLong(FixPoint arg, boolean subtract,
+            Quantization quant) {
+        if (!_isLong || !arg._isLong) {
+            return null;
+        }
+        int thisExponent = _precision.getExponent();
+        int thatExponent = arg._precision.getExponent();
+        int minExponent = Math.min(thisExponent, thatExponent);
+        // The aligned operands must have no more than 61 bits.
+        if (_bitLength(_longValue) + thisExponent - minExponent > 61
+                || _bitLength(arg._longValue) + thatExponent - minExponent > 61) {
+            return null;
+        }
+        long thisValue = _alignToExponentLong(minExponent);
+        long thatValue = arg._alignToExponentLong(minExponent);
+        return _quantizeLong(subtract ? thisValue - thatValue : thisValue
+                + thatValue, minExponent, quant);
+    }
+
     /** Return the BigInteger whose fractional part is aligned with the
      *  provided precision. This never involves rounding, but only
      *  padding the fractional part with zeros
@@ -851,12 +1042,32 @@ public class FixPoint implements Cloneable, Serializable {
         int exponentChange = exponent - _precision.getExponent();
 
         if (exponentChange < 0) {
-            return _value.shiftLeft(-exponentChange);
+            return getUnscaledValue().shiftLeft(-exponentChange);
         } else { // This is a private method so we know that extraBits is +ve
-            return _value;
+            return getUnscaledValue();
         }
     }
 
+    /** Return the long value of a FixPoint that is held in a long
+     *  with its fractional part aligned with the provided precision.
+     *  The caller must ensure that the result fits in a long.
+     *  @param exponent The precision with which to align
+     *  @return A long with aligned precision
+     */
+    private long _alignToExponentLong(int exponent) {
+        return _longValue << (_precision.getExponent() - exponent);
+    }
+
+    /** Return the number of bits of the two's complement
+     *  representation of a value, excluding the sign bit, as
+     *  BigInteger.bitLength() does.
+     *  @param value The value.
+     *  @return The number of bits.
+     */
+    private static int _bitLength(long value) {
+        return 64 - Long.numberOfLeadingZeros(value < 0L ? ~value : value);
+    }
+
     /** Initialize the _value and _precision of this object from
      *  a BigDecimal value.
      *
@@ -898,8 +1109,7 @@ public class FixPoint implements Cloneable, Serializable {
         FixPoint newFix = quant.getOverflow().quantize(roundedInteger,
                 quant.getPrecision());
 
-        this._value = newFix._value;
-        this._precision = newFix._precision;
+        _initFromFixPoint(newFix);
     }
 
     /** Initialize the _value and _precision of this object from
@@ -951,15 +1161,98 @@ public class FixPoint implements Cloneable, Serializable {
         FixPoint newFix = quant.getOverflow().quantize(bigInteger,
                 quant.getPrecision());
 
-        this._value = newFix._value;
-        this._precision = newFix._precision;
+        _initFromFixPoint(newFix);
+    }
+
+    /** Initialize the value and _precision of this object from
+     *  another FixPoint.
+     *  @param fix The FixPoint whose value and precision are copied.
+     */
+    private void _initFromFixPoint(FixPoint fix) {
+        _isLong = fix._isLong;
+        _longValue = fix._longValue;
+        _precision = fix._precision;
+        _value = fix._value;
+    }
+
+    /** Initialize the value and _precision of this object from
+     *  the value <i>value</i> * 2^<i>exponent</i> using long arithmetic,
+     *  if possible. This performs the same steps as
+     *  {@link #_initFromBigDecimal(BigDecimal, Quantization)}, but using
+     *  {@link Rounding#round(long, int)} and
+     *  {@link Overflow#quantize(long, Precision)}.
+     *
+     *  @param value The unscaled value.
+     *  @param exponent The exponent of the value.
+     *  @param quant The quantization specification.
+     *  @return False if the value could not be quantized with long
+     *  arithmetic, in which case this object is not initialized and
+     *  the caller should use BigInteger arithmetic instead, which
+     *  also reports negative values for unsigned precisions.
+     */
+    private boolean _initFromLong(long value, int exponent,
+            Quantization quant) {
+        Precision precision = quant.getPrecision();
+        if (value < 0L && !precision.isSigned()) {
+            return false;
+        }
+
+        // Shift the value to match the desired Precision and round it.
+        int shift = precision.getExponent() - exponent;
+        if (shift < 0) {
+            if (shift <= -63) {
+                return false;
+            }
+            long shiftedValue = value << -shift;
+            if ((shiftedValue >> -shift) != value) {
+                return false;
+            }
+            value = shiftedValue;
+        } else if (shift > 0) {
+            if (shift >= 63) {
+                return false;
+            }
+            value = quant.getRounding().round(value, shift);
+        }
+
+        // Handle any overflow associated with this precision
+        _initFromFixPoint(quant.getOverflow().quantize(value, precision));
+        return true;
+    }
+
+    /** Return a FixPoint with the value <i>value</i> * 2^<i>exponent</i>
+     *  quantized using long arithmetic, if possible.
+     *  @param value The unscaled value.
+     *  @param exponent The exponent of the value.
+     *  @param quant The quantization specification.
+     *  @return The FixPoint, or null if the value could not be
+     *  quantized with long arithmetic.
+     */
+    private static FixPoint _quantizeLong(long value, int exponent,
+            Quantization quant) {
+        FixPoint result = new FixPoint();
+        if (result._initFromLong(value, exponent, quant)) {
+            return result;
+        }
+        return null;
     }
 
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
+    /** True if the value is held in _longValue, which is the case
+     *  if the precision has between 1 and 63 bits.
+     */
+    private boolean _isLong;
+
+    /** The long comprising the logical floating point value multiplied
+     *  by 2^exponent, if _isLong is true.
+     */
+    private long _longValue;
+
     /** The BigInteger comprising the logical floating point value
-     *  multiplied by 2^exponent.
+     *  multiplied by 2^exponent. If _isLong is true, this is null
+     *  until getUnscaledValue() creates it.
      */
     private BigInteger _value;
 
@@ -212,6 +212,24 @@ public abstract class Overflow implements Cloneable, Serializable {
         return false;
     }
 
+    /**
+     * Determines whether the given long unscaled value is considered
+     * an "underflow" or an "overflow" under the given Precision constraint.
+     * (@see #isOutOfRange(BigInteger, Precision))
+     *
+     * @param value The value to test for underflow.
+     * @param precision The Precision constraint to use for the test.
+     * @return true if the value is considered an "underflow" or "overflow,
+     * false otherwise.
+     */
+    public static boolean isOutOfRange(long value, Precision precision) {
+        if (!FixPoint._fitsInLong(precision)) {
+            return isOutOfRange(BigInteger.valueOf(value), precision);
+        }
+        return value > _maximumLong(precision)
+                || value < _minimumLong(precision);
+    }
+
     /**
      * Determines whether the given BigInteger unscaled value is considered
      * an "overflow" under the given Precision constraint. This will occur
@@ -231,6 +249,23 @@ public abstract class Overflow implements Cloneable, Serializable {
         return false;
     }
 
+    /**
+     * Determines whether the given long unscaled value is considered
+     * an "overflow" under the given Precision constraint.
+     * (@see #isOverflow(BigInteger, Precision))
+     *
+     * @param value The value to test for overflow.
+     * @param precision The Precision constraint to use for the test.
+     * @return true if the value is considered an "overflow", false if
+     * it is not an "overflow".
+     */
+    public static boolean isOverflow(long value, Precision precision) {
+        if (!FixPoint._fitsInLong(precision)) {
+            return isOverflow(BigInteger.valueOf(value), precision);
+        }
+        return value > _maximumLong(precision);
+    }
+
     /**
      * Determines whether the given BigInteger unscaled value is considered
      * an "underflow" under the given Precision constraint. This will occur
@@ -250,6 +285,23 @@ public abstract class Overflow implements Cloneable, Serializable {
         return false;
     }
 
+    /**
+     * Determines whether the given long unscaled value is considered
+     * an "underflow" under the given Precision constraint.
+     * (@see #isUnderflow(BigInteger, Precision))
+     *
+     * @param value The value to test for underflow.
+     * @param precision The Precision constraint to use for the test.
+     * @return true if the value is considered an "underflow", false if
+     * it is not an "underflow".
+     */
+    public static boolean isUnderflow(long value, Precision precision) {
+        if (!FixPoint._fitsInLong(precision)) {
+            return isUnderflow(BigInteger.valueOf(value), precision);
+        }
+        return value < _minimumLong(precision);
+    }
+
     /**
      * Return an iterator for the names of all overflow types.
      * @return An iterator for the names of all overflow types.
@@ -296,6 +348,23 @@ public abstract class Overflow implements Cloneable, Serializable {
     abstract public FixPoint quantize(BigInteger integerValue,
             Precision precision);
 
+    /** Return a new FixPoint object based on the given long
+     *  value and Precision constraint. This is used by {@link FixPoint}
+     *  to quantize values that fit in a long without creating a
+     *  BigInteger. This base class calls
+     *  {@link #quantize(BigInteger, Precision)}. The overflow
+     *  strategies in this class override it to check the range of
+     *  the value with long arithmetic.
+     *
+     *  @param integerValue The unbounded integer value.
+     *  @param precision The Precision constraint of the quantization.
+     *  @return A valid FixPoint value that conforms to the overflow
+     *  strategy.
+     */
+    public FixPoint quantize(long integerValue, Precision precision) {
+        return quantize(BigInteger.valueOf(integerValue), precision);
+    }
+
     /**
      * Quantize a FixPoint value using a "grow" overflow strategy.
      * If the Precision format does not provide sufficient dynamic range
@@ -316,6 +385,22 @@ public abstract class Overflow implements Cloneable, Serializable {
         return new FixPoint(integerValue, precision);
     }
 
+    /**
+     * Quantize a long value using a "grow" overflow strategy.
+     * (@see #quantizeGrow(BigInteger, Precision))
+     *
+     * @param integerValue unscaled integer value to check for overflow
+     * @param precision the precision constraint used for the overflow check
+     * @return Valid FixPoint data object
+     */
+    public static FixPoint quantizeGrow(long integerValue,
+            Precision precision) {
+        if (isOutOfRange(integerValue, precision)) {
+            return quantizeMinimum(integerValue, precision);
+        }
+        return new FixPoint(integerValue, precision);
+    }
+
     /**
      * Generates a new FixPoint data value based on the unscaled
      * value bigInt using as few bits as possible. The sign and
@@ -339,6 +424,29 @@ public abstract class Overflow implements Cloneable, Serializable {
 
     }
 
+    /**
+     * Generates a new FixPoint data value based on the unscaled
+     * long value using as few bits as possible.
+     * (@see #quantizeMinimum(BigInteger, Precision))
+     *
+     * @param value Unscaled value to use for the FixPoint result
+     * @param p Used to obtain the sign and exponent of the new FixPoint value.
+     * @return FixPoint value with as few bits as necessary.
+     */
+    public static FixPoint quantizeMinimum(long value, Precision p) {
+        int sign = (p.isSigned() ? 1 : 0);
+        // This is BigInteger.bitLength() for a long.
+        int int_bits = 64 - Long.numberOfLeadingZeros(value < 0L ? ~value
+                : value);
+        if (int_bits == 0) {
+            int_bits++;
+        }
+        int new_bits = int_bits + sign;
+
+        Precision newPrecision = new Precision(sign, new_bits, p.getExponent());
+        return new FixPoint(value, newPrecision);
+    }
+
     /**
      * Quantize a FixPoint value using a "modulo" overflow strategy.
      * If the unscaled integer value is outside of the dynamic range
@@ -384,6 +492,48 @@ public abstract class Overflow implements Cloneable, Serializable {
         return new FixPoint(moduloInteger, precision);
     }
 
+    /**
+     * Quantize a long value using a "modulo" overflow strategy.
+     * (@see #quantizeModulo(BigInteger, Precision))
+     *
+     * @param integerValue unscaled integer value to check for overflow
+     * @param precision the precision constraint used for the overflow check
+     * @return Valid FixPoint data object
+     */
+    public static FixPoint quantizeModulo(long integerValue,
+            Precision precision) {
+        if (!isOutOfRange(integerValue, precision)) {
+            return new FixPoint(integerValue, precision);
+        }
+
+        // The arithmetic below cannot overflow a long if the number of
+        // levels and the distance of the value from the minimum value
+        // are less than 2^63.
+        if (!FixPoint._fitsInLong(precision)
+                || precision.getNumberOfBits() > 62
+                || integerValue > _LONG_MODULO_LIMIT
+                || integerValue < -_LONG_MODULO_LIMIT) {
+            return quantizeModulo(BigInteger.valueOf(integerValue), precision);
+        }
+
+        long modValue = 1L << precision.getNumberOfBits();
+        long moduloInteger;
+
+        if (!precision.isSigned()) {
+            moduloInteger = integerValue % modValue;
+        } else {
+            long minValue = _minimumLong(precision);
+            moduloInteger = (integerValue - minValue) % modValue;
+
+            if (integerValue < 0L) {
+                moduloInteger += modValue;
+            }
+            moduloInteger += minValue;
+        }
+
+        return new FixPoint(moduloInteger, precision);
+    }
+
     /**
      * Quantize a FixPoint value using a "saturate" overflow strategy.
      * If the unscaled integer value is outside of the dynamic range
@@ -408,6 +558,31 @@ public abstract class Overflow implements Cloneable, Serializable {
         return new FixPoint(integerValue, precision);
     }
 
+    /**
+     * Quantize a long value using a "saturate" overflow strategy.
+     * (@see #quantizeSaturate(BigInteger, Precision))
+     *
+     * @param integerValue unscaled integer value to check for overflow
+     * @param precision the precision constraint used for the overflow check
+     * @return Valid FixPoint data object
+     */
+    public static FixPoint quantizeSaturate(long integerValue,
+            Precision precision) {
+        if (!FixPoint._fitsInLong(precision)) {
+            return quantizeSaturate(BigInteger.valueOf(integerValue),
+                    precision);
+        }
+        long minValue = _minimumLong(precision);
+        if (integerValue < minValue) {
+            return new FixPoint(minValue, precision);
+        }
+        long maxValue = _maximumLong(precision);
+        if (integerValue > maxValue) {
+            return new FixPoint(maxValue, precision);
+        }
+        return new FixPoint(integerValue, precision);
+    }
+
     /**
      * Quantize a FixPoint value using a "to Zero" overflow strategy.
      * If the unscaled integer value is outside of the dynamic range
@@ -427,6 +602,22 @@ public abstract class Overflow implements Cloneable, Serializable {
         return new FixPoint(integerValue, precision);
     }
 
+    /**
+     * Quantize a long value using a "to Zero" overflow strategy.
+     * (@see #quantizeToZero(BigInteger, Precision))
+     *
+     * @param integerValue unscaled integer value to check for overflow
+     * @param precision the precision constraint used for the overflow check
+     * @return Valid FixPoint data object
+     */
+    public static FixPoint quantizeToZero(long integerValue,
+            Precision precision) {
+        if (isOutOfRange(integerValue, precision)) {
+            return new FixPoint(0L, precision);
+        }
+        return new FixPoint(integerValue, precision);
+    }
+
     /** Return the string representation of this overflow.
      *  @return A String.
      */
@@ -485,6 +676,10 @@ public abstract class Overflow implements Cloneable, Serializable {
             return quantizeGrow(integerValue, precision);
         }
 
+        public FixPoint quantize(long integerValue, Precision precision) {
+            return quantizeGrow(integerValue, precision);
+        }
+
     }
 
     /** The minimize overflow strategy. */
@@ -498,6 +693,10 @@ public abstract class Overflow implements Cloneable, Serializable {
             return quantizeMinimum(integerValue, precision);
         }
 
+        public FixPoint quantize(long integerValue, Precision precision) {
+            return quantizeMinimum(integerValue, precision);
+        }
+
     }
 
     /** The modulo overflow strategy. */
@@ -511,6 +710,10 @@ public abstract class Overflow implements Cloneable, Serializable {
             return quantizeModulo(integerValue, precision);
         }
 
+        public FixPoint quantize(long integerValue, Precision precision) {
+            return quantizeModulo(integerValue, precision);
+        }
+
     }
 
     /** The saturate overflows strategy. */
@@ -531,6 +734,10 @@ public abstract class Overflow implements Cloneable, Serializable {
         public FixPoint quantize(BigInteger integerValue, Precision precision) {
             return quantizeSaturate(integerValue, precision);
         }
+
+        public FixPoint quantize(long integerValue, Precision precision) {
+            return quantizeSaturate(integerValue, precision);
+        }
     }
 
     /** The overflow to zero strategy. */
@@ -551,6 +758,10 @@ public abstract class Overflow implements Cloneable, Serializable {
         public FixPoint quantize(BigInteger integerValue, Precision precision) {
             return quantizeToZero(integerValue, precision);
         }
+
+        public FixPoint quantize(long integerValue, Precision precision) {
+            return quantizeToZero(integerValue, precision);
+        }
     }
 
     /** The trap overflows strategy. */
@@ -573,6 +784,14 @@ public abstract class Overflow implements Cloneable, Serializable {
             }
             return new FixPoint(integerValue, precision);
         }
+
+        public FixPoint quantize(long integerValue, Precision precision) {
+            if (isOutOfRange(integerValue, precision)) {
+                // Report the overflow as for BigInteger values.
+                return quantize(BigInteger.valueOf(integerValue), precision);
+            }
+            return new FixPoint(integerValue, precision);
+        }
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -608,8 +827,31 @@ public abstract class Overflow implements Cloneable, Serializable {
         _nameToOverflow.put(name, type);
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Return the maximum unscaled value of a precision for which
+    // FixPoint._fitsInLong() returns true.
+    private static long _maximumLong(Precision precision) {
+        return (1L << (precision.getNumberOfBits() - precision.getSign())) - 1L;
+    }
+
+    // Return the minimum unscaled value of a precision for which
+    // FixPoint._fitsInLong() returns true.
+    private static long _minimumLong(Precision precision) {
+        if (precision.isSigned()) {
+            return -(1L << (precision.getNumberOfBits() - 1));
+        }
+        return 0L;
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
+
+    // The largest magnitude of a value that quantizeModulo(long, Precision)
+    // wraps with long arithmetic.
+    private static final long _LONG_MODULO_LIMIT = 1L << 62;
+
     private String _name;
 
     // A map from overflow type name to the overflow type for all
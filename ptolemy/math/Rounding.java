@@ -248,6 +248,25 @@ public abstract class Rounding implements Cloneable, Serializable {
      */
     public abstract BigInteger round(BigDecimal decimal);
 
+    /**
+     * Round the value obtained by shifting the given unscaled value
+     * right by the given number of bits, that is, round
+     * <i>value</i>/2<sup><i>shift</i></sup> to an integer using this
+     * rounding strategy. This is used by {@link FixPoint} to requantize
+     * values that fit in a long without converting them to BigDecimal.
+     * This base class converts the value to a BigDecimal and calls
+     * {@link #round(BigDecimal)}. The rounding strategies in this class
+     * override it to round with shifts and masks.
+     *
+     * @param value The unscaled value to be rounded.
+     * @param shift The number of bits to shift right, between 1 and 62.
+     * @return The rounded value.
+     */
+    public long round(long value, int shift) {
+        return round(Precision.shiftBigDecimal(new BigDecimal(value), -shift))
+                .longValue();
+    }
+
     /** Rounding mode to round towards positive infinity.
      * If decimal is positive, behave as {@link #roundUp};
      * if decimal is negative, behave as {@link #roundDown}.
@@ -470,6 +489,13 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundCeiling(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            if (_discardedBits(value, shift) == 0L) {
+                return value >> shift;
+            }
+            return (value >> shift) + 1L;
+        }
     }
 
     /** Rounding class implementing the round down strategy. */
@@ -481,6 +507,13 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundDown(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            if (value >= 0L || _discardedBits(value, shift) == 0L) {
+                return value >> shift;
+            }
+            return (value >> shift) + 1L;
+        }
     }
 
     /** Rounding class implementing the round floor strategy. */
@@ -493,6 +526,10 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundFloor(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            return value >> shift;
+        }
     }
 
     /** Rounding class implementing the round half ceiling strategy. */
@@ -506,6 +543,13 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundHalfCeiling(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            if (_compareDiscardedBitsToHalf(value, shift) < 0) {
+                return value >> shift;
+            }
+            return (value >> shift) + 1L;
+        }
     }
 
     /** Rounding class implementing the round half down strategy. */
@@ -517,6 +561,14 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundHalfDown(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            int comparison = _compareDiscardedBitsToHalf(value, shift);
+            if (comparison < 0 || (comparison == 0 && value >= 0L)) {
+                return value >> shift;
+            }
+            return (value >> shift) + 1L;
+        }
     }
 
     /** Rounding class implementing the round half even strategy. */
@@ -529,6 +581,15 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundHalfEven(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            long floor = value >> shift;
+            int comparison = _compareDiscardedBitsToHalf(value, shift);
+            if (comparison < 0 || (comparison == 0 && (floor & 1L) == 0L)) {
+                return floor;
+            }
+            return floor + 1L;
+        }
     }
 
     /** Rounding class implementing the round half floor strategy. */
@@ -540,6 +601,13 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundHalfFloor(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            if (_compareDiscardedBitsToHalf(value, shift) <= 0) {
+                return value >> shift;
+            }
+            return (value >> shift) + 1L;
+        }
     }
 
     /** Rounding class implementing the round half up strategy. */
@@ -552,6 +620,14 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundHalfUp(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            int comparison = _compareDiscardedBitsToHalf(value, shift);
+            if (comparison < 0 || (comparison == 0 && value < 0L)) {
+                return value >> shift;
+            }
+            return (value >> shift) + 1L;
+        }
     }
 
     /** Rounding class implementing the round up strategy. */
@@ -565,6 +641,13 @@ public abstract class Rounding implements Cloneable, Serializable {
         public BigInteger round(BigDecimal dec) {
             return roundUp(dec).toBigInteger();
         }
+
+        public long round(long value, int shift) {
+            if (value <= 0L || _discardedBits(value, shift) == 0L) {
+                return value >> shift;
+            }
+            return (value >> shift) + 1L;
+        }
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -602,6 +685,31 @@ public abstract class Rounding implements Cloneable, Serializable {
         _nameToRounding.put(name, type);
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Compare the bits that are discarded when shifting the value
+    // right by the given number of bits with one half of the least
+    // significant bit that remains. Return a negative number, zero or
+    // a positive number if they are less than, equal to or more than
+    // one half.
+    private static int _compareDiscardedBitsToHalf(long value, int shift) {
+        long discarded = _discardedBits(value, shift);
+        long half = 1L << (shift - 1);
+        if (discarded < half) {
+            return -1;
+        } else if (discarded == half) {
+            return 0;
+        }
+        return 1;
+    }
+
+    // Return the bits that are discarded when shifting the value right
+    // by the given number of bits. The result is not negative.
+    private static long _discardedBits(long value, int shift) {
+        return value & ((1L << shift) - 1L);
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
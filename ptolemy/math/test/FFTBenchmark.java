@@ -0,0 +1,123 @@
+/* Measure the time to compute fast Fourier transforms.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.math.test;
+
+import ptolemy.math.Complex;
+import ptolemy.math.FFTPlan;
+import ptolemy.math.SignalProcessing;
+
+///////////////////////////////////////////////////////////////////
+//// FFTBenchmark
+
+/**
+ Compare the time to compute fast Fourier transforms with
+ {@link SignalProcessing}, which operates on arrays of Complex, and with
+ {@link FFTPlan}, which operates on interleaved arrays of doubles.
+ For each order, report the average time of a complex transform with each,
+ and of a transform of a real sequence with FFTPlan.
+ <p>
+ To run:
+ <pre>
+ java -Xmx1g -classpath $PTII ptolemy.math.test.FFTBenchmark [minimumOrder [maximumOrder [seconds]]]
+ </pre>
+ By default, the orders are 4 through 20, and each transform is repeated
+ for about one second after being repeated for as long to warm up the
+ just-in-time compiler.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class FFTBenchmark {
+
+    /** Run the benchmark.
+     *  @param args The minimum and maximum orders and the number of
+     *   seconds to run each transform, all optional.
+     */
+    public static void main(String[] args) {
+        int minimumOrder = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int maximumOrder = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+
+        System.out.println("order\tComplex[] (us)\tdouble[] (us)"
+                + "\treal (us)\tspeedup");
+        for (int order = minimumOrder; order <= maximumOrder; order++) {
+            int size = 1 << order;
+            Complex[] complexInput = new Complex[size];
+            double[] data = new double[2 * size];
+            double[] realInput = new double[size];
+            for (int i = 0; i < size; i++) {
+                complexInput[i] = new Complex(Math.sin(i), Math.cos(2.0 * i));
+                realInput[i] = Math.sin(i);
+            }
+            double[] output = new double[size + 2];
+            FFTPlan plan = FFTPlan.getPlan(order);
+
+            double[] times = new double[3];
+            for (int pass = 0; pass < 2; pass++) {
+                for (int method = 0; method < 3; method++) {
+                    long runs = 0;
+                    long start = System.nanoTime();
+                    long elapsed;
+                    do {
+                        switch (method) {
+                        case 0:
+                            SignalProcessing.FFTComplexOut(complexInput, order);
+                            break;
+                        case 1:
+                            for (int i = 0; i < size; i++) {
+                                data[2 * i] = complexInput[i].real;
+                                data[(2 * i) + 1] = complexInput[i].imag;
+                            }
+                            plan.transform(data);
+                            break;
+                        default:
+                            plan.realTransform(realInput, output);
+                        }
+                        runs++;
+                        elapsed = System.nanoTime() - start;
+                    } while (elapsed < seconds * 1.0e9);
+                    times[method] = elapsed / 1000.0 / runs;
+                }
+            }
+            System.out.println(order + "\t" + _format(times[0]) + "\t"
+                    + _format(times[1]) + "\t" + _format(times[2]) + "\t"
+                    + _format(times[0] / times[1]));
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Format a number with two decimal places.
+    private static String _format(double value) {
+        return String.valueOf(Math.round(value * 100.0) / 100.0);
+    }
+}
@@ -0,0 +1,166 @@
+# Tests for the FFTPlan class
+#
+# @Author: agent
+#
+# $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+# Return an interleaved array of 2^order complex values.
+proc complexData {order} {
+    set values {}
+    for {set k 0} {$k < (1 << $order)} {incr k} {
+	lappend values [expr {sin($k)}] [expr {cos(2.0 * $k)}]
+    }
+    return [java::new {double[]} [llength $values] $values]
+}
+
+# Return the largest difference between an interleaved array and
+# an array of Complex.
+proc maxDifference {data complexArray} {
+    set result 0.0
+    for {set k 0} {$k < [$complexArray length]} {incr k} {
+	set z [$complexArray get $k]
+	set d [expr {abs([$data get [expr {2 * $k}]] - [java::field $z real]) \
+		+ abs([$data get [expr {2 * $k + 1}]] - [java::field $z imag])}]
+	if {$d > $result} {
+	    set result $d
+	}
+    }
+    return $result
+}
+
+######################################################################
+####
+#
+test FFTPlan-1.1 {transform and inverseTransform} {
+    set plan [java::call ptolemy.math.FFTPlan getPlan 2]
+    set data [java::new {double[]} 8 {1 0 2 0 3 0 4 0}]
+    $plan transform $data
+    set r1 [$data getrange 0]
+    $plan inverseTransform $data
+    list [$plan getOrder] [$plan getSize] $r1 [$data getrange 0]
+} {2 4 {10.0 0.0 -2.0 2.0 -2.0 0.0 -2.0 -2.0} {1.0 0.0 2.0 0.0 3.0 0.0 4.0 0.0}}
+
+######################################################################
+####
+#
+test FFTPlan-1.2 {Plans are shared} {
+    java::call ptolemy.math.FFTPlan getPlan 5
+    [java::call ptolemy.math.FFTPlan getPlan 5] equals \
+	[java::call ptolemy.math.FFTPlan getPlan 5]
+} {1}
+
+######################################################################
+####
+#
+test FFTPlan-2.1 {Compare with SignalProcessing} {
+    set results {}
+    foreach order {0 1 3 8} {
+	set data [complexData $order]
+	set input [java::new {ptolemy.math.Complex[]} [expr {1 << $order}]]
+	for {set k 0} {$k < [$input length]} {incr k} {
+	    $input set $k [java::new ptolemy.math.Complex \
+		    [$data get [expr {2 * $k}]] [$data get [expr {2 * $k + 1}]]]
+	}
+	set plan [java::call ptolemy.math.FFTPlan getPlan $order]
+	$plan transform $data
+	set forward [maxDifference $data [java::call \
+		ptolemy.math.SignalProcessing \
+		{FFTComplexOut ptolemy.math.Complex[] int} $input $order]]
+	set data [complexData $order]
+	$plan inverseTransform $data
+	set inverse [maxDifference $data [java::call \
+		ptolemy.math.SignalProcessing \
+		{IFFTComplexOut ptolemy.math.Complex[] int} $input $order]]
+	lappend results [expr {$forward < 1e-12 && $inverse < 1e-12}]
+    }
+    set results
+} {1 1 1 1}
+
+######################################################################
+####
+#
+test FFTPlan-2.2 {Threads give the same result} {
+    set plan [java::call ptolemy.math.FFTPlan getPlan 10]
+    set data1 [complexData 10]
+    set data2 [complexData 10]
+    $plan {transform double[] int} $data1 1
+    $plan {transform double[] int} $data2 4
+    set r1 [java::call java.util.Arrays {equals double[] double[]} $data1 $data2]
+    $plan {inverseTransform double[] int} $data1 1
+    $plan {inverseTransform double[] int} $data2 8
+    list $r1 [java::call java.util.Arrays {equals double[] double[]} \
+	    $data1 $data2]
+} {1 1}
+
+######################################################################
+####
+#
+test FFTPlan-3.1 {realTransform pads with zeros} {
+    set plan [java::call ptolemy.math.FFTPlan getPlan 3]
+    set output [java::new {double[]} 10]
+    $plan realTransform [java::new {double[]} 3 {1 2 3}] $output
+    set data [java::new {double[]} 16 {1 0 2 0 3 0 0 0 0 0 0 0 0 0 0 0}]
+    $plan transform $data
+    set result {}
+    for {set i 0} {$i < 10} {incr i} {
+	lappend result [expr {abs([$output get $i] - [$data get $i]) < 1e-12}]
+    }
+    set result
+} {1 1 1 1 1 1 1 1 1 1}
+
+######################################################################
+####
+#
+test FFTPlan-3.2 {realTransform of small orders} {
+    set output [java::new {double[]} 4]
+    [java::call ptolemy.math.FFTPlan getPlan 0] realTransform \
+	    [java::new {double[]} 1 {5}] $output
+    set r1 [$output getrange 0]
+    [java::call ptolemy.math.FFTPlan getPlan 1] realTransform \
+	    [java::new {double[]} 2 {5 3}] $output
+    list $r1 [$output getrange 0]
+} {{5.0 0.0 0.0 0.0} {8.0 0.0 2.0 0.0}}
+
+######################################################################
+####
+#
+test FFTPlan-4.1 {Errors} {
+    catch {java::call ptolemy.math.FFTPlan getPlan 30} msg1
+    catch {[java::call ptolemy.math.FFTPlan getPlan 2] transform \
+	    [java::new {double[]} 7]} msg2
+    list $msg1 $msg2
+} {{java.lang.IllegalArgumentException: ptolemy.math.FFTPlan : order of transform must be between 0 and 29. Got 30.} {java.lang.IllegalArgumentException: ptolemy.math.FFTPlan : array of length 7 is too short. Expected at least 8.}}
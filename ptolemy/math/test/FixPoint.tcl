@@ -921,3 +921,54 @@ test FixPoint-9.1 {bigDecimalValue} {
 
 ####################################################################
 
+
+####################################################################
+test FixPoint-10.1 {Values held in a long agree with BigInteger arithmetic} {
+    # FixPointDifferential returns the number of operations compared
+    # or a description of the first that differs.
+    set results {}
+    foreach seed {1 2 3} {
+	set result [java::call ptolemy.math.test.FixPointDifferential \
+			compare 20000 $seed]
+	lappend results [regexp {^[0-9]+$} $result]
+    }
+    list $results
+} {{1 1 1}}
+
+####################################################################
+test FixPoint-10.2 {Rounding of ties with values held in a long} {
+    set results {}
+    foreach rounding {ceiling down floor half_ceiling half_down \
+			  half_even half_floor half_up up} {
+	set q [java::new ptolemy.math.FixPointQuantization "8.0,saturate,$rounding"]
+	set row $rounding
+	foreach value {-2.5 -1.5 1.5 2.5} {
+	    lappend row [[java::new $ctor_double $value $q] toString]
+	}
+	lappend results $row
+    }
+    join $results \n
+} {ceiling -2 -1 2 3
+down -2 -1 1 2
+floor -3 -2 1 2
+half_ceiling -2 -1 2 3
+half_down -2 -1 1 2
+half_even -2 -2 2 2
+half_floor -3 -2 1 2
+half_up -3 -2 2 3
+up -3 -2 2 3}
+
+####################################################################
+test FixPoint-10.3 {Values held in a long and in a BigInteger} {
+    set q_32_31 [java::new ptolemy.math.FixPointQuantization "32.31,modulo,half_even"]
+    set q_32_48 [java::new ptolemy.math.FixPointQuantization "32.48,modulo,half_even"]
+    set narrow [java::new $ctor_double -12345.671875 $q_32_31]
+    set wide [java::new $ctor_double -12345.671875 $q_32_48]
+    set sum [$narrow add $wide]
+    set product [$narrow multiply $narrow]
+    list [[$narrow getPrecision] toString] [[$wide getPrecision] toString] \
+	[$narrow equals $wide] [$wide equals $narrow] \
+	[$sum toStringPrecision] [$product toStringPrecision] \
+	[[$product quantize $q_32_31] toStringPrecision] \
+	[[$narrow getUnscaledValue] toString]
+} {(32.31) (32.48) 1 1 -24691.34375(33.48) 152415614.045166015625(64.62) 152415614.045166015625(32.31) -26512128475136}
@@ -0,0 +1,463 @@
+/* Compare the long and BigInteger arithmetic of FixPoint.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.math.test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import ptolemy.math.FixPoint;
+import ptolemy.math.FixPointQuantization;
+import ptolemy.math.Overflow;
+import ptolemy.math.Precision;
+import ptolemy.math.Quantization;
+import ptolemy.math.Rounding;
+
+///////////////////////////////////////////////////////////////////
+//// FixPointDifferential
+
+/**
+ Compare the results of FixPoint operations on values that are held in
+ a long with results computed with BigDecimal and BigInteger arithmetic,
+ as FixPoint does for values of more than 63 bits. Random values are
+ quantized with random precisions of up to 70 bits and every overflow
+ and rounding strategy, and random pairs of the results are added,
+ subtracted and multiplied, with and without quantizing the result. The values are exact binary fractions with
+ few significant bits, so that rounding often has to break ties.
+ <p>
+ The constructors that take a BigDecimal always use BigDecimal
+ arithmetic, so they serve as the reference for the constructors that
+ take a double, an int or a FixPoint.
+ <p>
+ To run:
+ <pre>
+ java -classpath $PTII ptolemy.math.test.FixPointDifferential [trials [seed]]
+ </pre>
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class FixPointDifferential {
+
+    /** Compare the results of the given number of random trials.
+     *  @param trials The number of trials.
+     *  @param seed The seed of the random number generator.
+     *  @return The number of operations compared if all of the results
+     *   agree, or a description of the first result that does not.
+     */
+    public static String compare(int trials, long seed) {
+        Random random = new Random(seed);
+        int comparisons = 0;
+        FixPoint previous = new FixPoint(0);
+        try {
+            for (int trial = 0; trial < trials; trial++) {
+                Quantization quantization = _randomQuantization(random);
+                double doubleValue = _randomDouble(random);
+                int intValue = (int) _randomDouble(random);
+
+                String context = "trial " + trial + ": " + doubleValue + " "
+                        + quantization;
+                _compare(context, new _DoubleConstructor(doubleValue,
+                        quantization), new _BigDecimalConstructor(
+                        new BigDecimal(doubleValue), quantization), true);
+                context = "trial " + trial + ": " + intValue + " "
+                        + quantization;
+                _compare(context,
+                        new _IntConstructor(intValue, quantization),
+                        new _BigDecimalConstructor(new BigDecimal(intValue),
+                                quantization), false);
+                comparisons += 2;
+
+                // Use the value constructed from the double, which is
+                // held in a long if its precision permits.
+                FixPoint value;
+                try {
+                    value = new FixPoint(doubleValue, quantization);
+                } catch (ArithmeticException ex) {
+                    continue;
+                }
+
+                // Requantize with another precision.
+                Quantization requantization = _randomQuantization(random);
+                context = "trial " + trial + ": " + value.toStringPrecision()
+                        + " " + requantization;
+                _compare(context, new _Requantize(value, requantization),
+                        new _BigDecimalConstructor(value.bigDecimalValue(),
+                                requantization), true);
+                if (random.nextBoolean()) {
+                    try {
+                        value = value.quantize(requantization);
+                    } catch (ArithmeticException ex) {
+                        continue;
+                    }
+                }
+
+                // Combine with the value of a previous trial.
+                context = "trial " + trial + ": " + value.toStringPrecision()
+                        + " and " + previous.toStringPrecision();
+                _compareArithmetic(context, value, previous);
+                _compareArithmetic(context, previous, value);
+
+                // Combine and quantize the result.
+                Quantization resultQuantization = _randomQuantization(random);
+                context += " " + resultQuantization;
+                _compare(context + " add", new _Arithmetic(_copy(value),
+                        _ADD, _copy(previous), resultQuantization),
+                        new _BigDecimalConstructor(value.add(previous)
+                                .bigDecimalValue(), resultQuantization), true);
+                _compare(context + " subtract", new _Arithmetic(_copy(value),
+                        _SUBTRACT, _copy(previous), resultQuantization),
+                        new _BigDecimalConstructor(value.subtract(previous)
+                                .bigDecimalValue(), resultQuantization), true);
+                _compare(context + " multiply", new _Arithmetic(_copy(value),
+                        _MULTIPLY, _copy(previous), resultQuantization),
+                        new _BigDecimalConstructor(value.multiply(previous)
+                                .bigDecimalValue(), resultQuantization), true);
+                comparisons += 11;
+                previous = value;
+            }
+        } catch (IllegalStateException ex) {
+            return ex.getMessage();
+        }
+        return Integer.toString(comparisons);
+    }
+
+    /** Compare the results of random trials.
+     *  @param args The number of trials and the seed, both optional.
+     */
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        System.out.println(compare(trials, seed));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Compare the result of an operation with that of a reference
+     *  operation, and throw an exception if they differ.
+     *  @param context A description of the operands.
+     *  @param operation The operation.
+     *  @param reference The reference operation.
+     *  @param compareMessages True if the messages of exceptions
+     *   should be compared.
+     */
+    private static void _compare(String context, _Operation operation,
+            _Operation reference, boolean compareMessages) {
+        String result = _result(operation, compareMessages);
+        String expected = _result(reference, compareMessages);
+        if (!result.equals(expected)) {
+            throw new IllegalStateException(context + ": "
+                    + operation.getClass().getName() + " returned " + result
+                    + " instead of " + expected);
+        }
+    }
+
+    /** Compare the sum, difference and product of two values and some
+     *  of their other properties with results computed with BigInteger
+     *  arithmetic.
+     *  @param context A description of the operands.
+     *  @param left The left operand.
+     *  @param right The right operand.
+     */
+    private static void _compareArithmetic(String context, FixPoint left,
+            FixPoint right) {
+        // Perform the operations before getUnscaledValue() creates
+        // BigIntegers for the operands.
+        left = _copy(left);
+        right = _copy(right);
+        FixPoint sum = left.add(right);
+        FixPoint difference = left.subtract(right);
+        FixPoint product = left.multiply(right);
+        boolean equals = left.equals(right);
+        int hashCode = left.hashCode();
+        double doubleValue = left.doubleValue();
+        FixPoint absoluteValue = null;
+        try {
+            absoluteValue = left.abs();
+        } catch (ArithmeticException ex) {
+            // The absolute value of the most negative value is out
+            // of range, which is checked below.
+        }
+
+        int leftExponent = left.getPrecision().getExponent();
+        int rightExponent = right.getPrecision().getExponent();
+        int minExponent = Math.min(leftExponent, rightExponent);
+        BigInteger leftValue = left.getUnscaledValue().shiftLeft(
+                leftExponent - minExponent);
+        BigInteger rightValue = right.getUnscaledValue().shiftLeft(
+                rightExponent - minExponent);
+
+        _compareValue(context + " add", sum, leftValue.add(rightValue),
+                FixPoint.addPrecision(left.getPrecision(), right
+                        .getPrecision()));
+        _compareValue(context + " subtract", difference, leftValue
+                .subtract(rightValue), FixPoint.subtractPrecision(left
+                .getPrecision(), right.getPrecision()));
+        _compareValue(context + " multiply", product, left
+                .getUnscaledValue().multiply(right.getUnscaledValue()),
+                FixPoint.multiplyPrecision(left.getPrecision(), right
+                        .getPrecision()));
+
+        if (equals != leftValue.equals(rightValue)
+                || hashCode != left.getUnscaledValue().intValue()
+                || doubleValue != left.getUnscaledValue().doubleValue()
+                        * Math.pow(2.0, leftExponent)) {
+            throw new IllegalStateException(context
+                    + ": equals, hashCode or doubleValue differ");
+        }
+
+        BigInteger expectedAbsoluteValue = left.getUnscaledValue().abs();
+        if (absoluteValue != null) {
+            _compareValue(context + " abs", absoluteValue,
+                    expectedAbsoluteValue, left.getPrecision());
+        } else if (!Overflow.isOutOfRange(expectedAbsoluteValue, left
+                .getPrecision())) {
+            throw new IllegalStateException(context + ": abs failed");
+        }
+    }
+
+    /** Return a new FixPoint with the same value and precision as the
+     *  argument.
+     *  @param value The FixPoint to copy.
+     *  @return A copy of the FixPoint.
+     */
+    private static FixPoint _copy(FixPoint value) {
+        return value.quantize(new FixPointQuantization(value.getPrecision(),
+                Overflow.TRAP, Rounding.HALF_EVEN));
+    }
+
+    /** Throw an exception if the value or the precision of a result
+     *  are not as expected.
+     *  @param context A description of the operation.
+     *  @param result The result.
+     *  @param value The expected unscaled value.
+     *  @param precision The expected precision.
+     */
+    private static void _compareValue(String context, FixPoint result,
+            BigInteger value, Precision precision) {
+        if (!result.getUnscaledValue().equals(value)
+                || !result.getPrecision().equals(precision)) {
+            throw new IllegalStateException(context + " returned "
+                    + result.toStringValuePrecision() + " instead of "
+                    + value + " " + precision);
+        }
+    }
+
+    /** Return a random exact binary fraction with up to 53 significant
+     *  bits, most of them with only a few significant bits.
+     *  @param random The random number generator.
+     *  @return A random double.
+     */
+    private static double _randomDouble(Random random) {
+        int bits = random.nextBoolean() ? 1 + random.nextInt(8)
+                : 1 + random.nextInt(53);
+        long mantissa = random.nextLong() >> (64 - bits);
+        return mantissa * Math.pow(2.0, random.nextInt(80) - 50);
+    }
+
+    /** Return a random quantization with up to 70 bits.
+     *  @param random The random number generator.
+     *  @return A random quantization.
+     */
+    private static Quantization _randomQuantization(Random random) {
+        // Favor precisions that are held in a long, including those
+        // that are one bit short of or over the limit.
+        int bits;
+        switch (random.nextInt(4)) {
+        case 0:
+            bits = 1 + random.nextInt(70);
+            break;
+        case 1:
+            bits = 60 + random.nextInt(6);
+            break;
+        default:
+            bits = 1 + random.nextInt(32);
+        }
+        int sign = random.nextInt(4) == 0 ? 0 : 1;
+        if (bits == 1 && sign == 1 && random.nextBoolean()) {
+            bits = 2;
+        }
+        Precision precision = new Precision(sign, bits,
+                random.nextInt(60) - 45);
+        return new FixPointQuantization(precision,
+                _OVERFLOWS[random.nextInt(_OVERFLOWS.length)],
+                _ROUNDINGS[random.nextInt(_ROUNDINGS.length)]);
+    }
+
+    /** Return a description of the result of an operation.
+     *  @param operation The operation.
+     *  @param includeMessage True if the message of an exception
+     *   should be included in the description.
+     *  @return The unscaled value and precision of the result or the
+     *   exception thrown.
+     */
+    private static String _result(_Operation operation,
+            boolean includeMessage) {
+        try {
+            FixPoint result = operation.run();
+            return result.getUnscaledValue() + " "
+                    + result.getPrecision().toString(Precision.LENGTH_EXPONENT);
+        } catch (RuntimeException ex) {
+            if (includeMessage) {
+                return ex.toString();
+            }
+            return ex.getClass().getName();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The operations of _Arithmetic. */
+    private static final int _ADD = 0;
+
+    private static final int _MULTIPLY = 1;
+
+    private static final int _SUBTRACT = 2;
+
+    /** The overflow strategies. */
+    private static final Overflow[] _OVERFLOWS = { Overflow.GROW,
+            Overflow.MINIMIZE, Overflow.MODULO, Overflow.SATURATE,
+            Overflow.TO_ZERO, Overflow.TRAP };
+
+    /** The rounding strategies. */
+    private static final Rounding[] _ROUNDINGS = { Rounding.CEILING,
+            Rounding.DOWN, Rounding.FLOOR, Rounding.HALF_CEILING,
+            Rounding.HALF_DOWN, Rounding.HALF_EVEN, Rounding.HALF_FLOOR,
+            Rounding.HALF_UP, Rounding.UP };
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** Add, subtract or multiply two FixPoints and quantize the result. */
+    private static class _Arithmetic extends _Operation {
+        public _Arithmetic(FixPoint left, int operation, FixPoint right,
+                Quantization quantization) {
+            _left = left;
+            _operation = operation;
+            _right = right;
+            _quantization = quantization;
+        }
+
+        public FixPoint run() {
+            switch (_operation) {
+            case _ADD:
+                return _left.add(_right, _quantization);
+            case _MULTIPLY:
+                return _left.multiply(_right, _quantization);
+            default:
+                return _left.subtract(_right, _quantization);
+            }
+        }
+
+        private FixPoint _left;
+
+        private int _operation;
+
+        private Quantization _quantization;
+
+        private FixPoint _right;
+    }
+
+    /** Construct a FixPoint from a BigDecimal. */
+    private static class _BigDecimalConstructor extends _Operation {
+        public _BigDecimalConstructor(BigDecimal value,
+                Quantization quantization) {
+            _value = value;
+            _quantization = quantization;
+        }
+
+        public FixPoint run() {
+            return new FixPoint(_value, _quantization);
+        }
+
+        private Quantization _quantization;
+
+        private BigDecimal _value;
+    }
+
+    /** Construct a FixPoint from a double. */
+    private static class _DoubleConstructor extends _Operation {
+        public _DoubleConstructor(double value, Quantization quantization) {
+            _value = value;
+            _quantization = quantization;
+        }
+
+        public FixPoint run() {
+            return new FixPoint(_value, _quantization);
+        }
+
+        private Quantization _quantization;
+
+        private double _value;
+    }
+
+    /** Construct a FixPoint from an int. */
+    private static class _IntConstructor extends _Operation {
+        public _IntConstructor(int value, Quantization quantization) {
+            _value = value;
+            _quantization = quantization;
+        }
+
+        public FixPoint run() {
+            return new FixPoint(_value, _quantization);
+        }
+
+        private Quantization _quantization;
+
+        private int _value;
+    }
+
+    /** An operation that returns a FixPoint. */
+    private abstract static class _Operation {
+        /** Perform the operation.
+         *  @return The result.
+         */
+        public abstract FixPoint run();
+    }
+
+    /** Requantize a FixPoint. */
+    private static class _Requantize extends _Operation {
+        public _Requantize(FixPoint value, Quantization quantization) {
+            _value = value;
+            _quantization = quantization;
+        }
+
+        public FixPoint run() {
+            return _value.quantize(_quantization);
+        }
+
+        private Quantization _quantization;
+
+        private FixPoint _value;
+    }
+}
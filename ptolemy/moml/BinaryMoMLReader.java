@@ -0,0 +1,196 @@
+/* Read the compact binary form of MoML.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.moml;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.microstar.xml.XmlHandler;
+
+///////////////////////////////////////////////////////////////////
+//// BinaryMoMLReader
+
+/**
+ Read the compact binary form of MoML written by {@link BinaryMoMLWriter}
+ and report its contents to an XML handler, in the same order
+ as an XML parser would report the contents of the corresponding MoML.
+ This is used by {@link MoMLParser#parseBinary(java.net.URL, InputStream)}.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see BinaryMoMLWriter
+ */
+public class BinaryMoMLReader {
+    /** Construct a reader that reads from the specified stream.
+     *  @param input The stream.
+     */
+    public BinaryMoMLReader(InputStream input) {
+        _input = new DataInputStream(new BufferedInputStream(input));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the name of the current element, which is the element
+     *  whose attributes are being reported while attributes are reported,
+     *  or null if there is none.
+     *  @return The name of the current element.
+     */
+    public String getCurrentElement() {
+        if (_elements.isEmpty()) {
+            return null;
+        }
+        return _elements.get(_elements.size() - 1);
+    }
+
+    /** Read the binary form and report its contents to the specified
+     *  handler.
+     *  @param handler The handler.
+     *  @exception IOException If the stream cannot be read or does not
+     *   contain the binary form of MoML.
+     *  @exception Exception If the handler throws it.
+     */
+    public void read(XmlHandler handler) throws Exception {
+        if (_input.readInt() != BinaryMoMLWriter.MAGIC) {
+            throw new IOException("Not binary MoML.");
+        }
+        int version = _input.readUnsignedByte();
+        if (version != BinaryMoMLWriter.VERSION) {
+            throw new IOException("Unsupported version of binary MoML: "
+                    + version);
+        }
+        _elements.clear();
+        _strings.clear();
+        handler.startDocument();
+        while (true) {
+            int code = _input.readUnsignedByte();
+            switch (code) {
+            case BinaryMoMLWriter.START_ELEMENT:
+                String name = _readString(true);
+                _elements.add(name);
+                int count = _readInt();
+                for (int i = 0; i < count; i++) {
+                    String attributeName = _readString(true);
+                    String value = _readString(true);
+                    handler.attribute(attributeName, value, _input
+                            .readBoolean());
+                }
+                handler.startElement(name);
+                break;
+            case BinaryMoMLWriter.END_ELEMENT:
+                handler.endElement(getCurrentElement());
+                _elements.remove(_elements.size() - 1);
+                break;
+            case BinaryMoMLWriter.CHAR_DATA:
+                char[] characters = _readString(false).toCharArray();
+                handler.charData(characters, 0, characters.length);
+                break;
+            case BinaryMoMLWriter.PROCESSING_INSTRUCTION:
+                String target = _readString(true);
+                handler.processingInstruction(target, _readString(false));
+                break;
+            case BinaryMoMLWriter.DOCTYPE:
+                String doctype = _readString(true);
+                String publicID = _readString(true);
+                handler.doctypeDecl(doctype, publicID, _readString(true));
+                break;
+            case BinaryMoMLWriter.START_EXTERNAL_ENTITY:
+                handler.startExternalEntity(_readString(true));
+                break;
+            case BinaryMoMLWriter.END_EXTERNAL_ENTITY:
+                handler.endExternalEntity(_readString(true));
+                break;
+            case BinaryMoMLWriter.END_DOCUMENT:
+                handler.endDocument();
+                return;
+            default:
+                throw new IOException("Invalid binary MoML record: " + code);
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Read a non-negative integer written with seven bits per byte.
+    private int _readInt() throws IOException {
+        int result = 0;
+        int shift = 0;
+        while (true) {
+            int next = _input.readUnsignedByte();
+            result |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+
+    // Read a string written by BinaryMoMLWriter._writeString().
+    private String _readString(boolean shared) throws IOException {
+        int code = _readInt();
+        if (code == 0) {
+            return null;
+        }
+        if (code > 1) {
+            return _strings.get(code - 2);
+        }
+        int length = _readInt();
+        if (_bytes.length < length) {
+            _bytes = new byte[Math.max(length, 2 * _bytes.length)];
+        }
+        _input.readFully(_bytes, 0, length);
+        String result = new String(_bytes, 0, length, "UTF-8");
+        if (shared) {
+            _strings.add(result);
+        }
+        return result;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // Buffer for reading strings.
+    private byte[] _bytes = new byte[256];
+
+    // The names of the open elements.
+    private List<String> _elements = new ArrayList<String>();
+
+    // The stream to read from.
+    private DataInputStream _input;
+
+    // The strings that have been read, indexed by their order.
+    private List<String> _strings = new ArrayList<String>();
+}
@@ -0,0 +1,386 @@
+/* Write a model in a compact binary form of MoML.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.moml;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ptolemy.kernel.util.NamedObj;
+import ptolemy.moml.filter.BackwardCompatibility;
+
+import com.microstar.xml.HandlerBase;
+import com.microstar.xml.XmlException;
+import com.microstar.xml.XmlParser;
+
+///////////////////////////////////////////////////////////////////
+//// BinaryMoMLWriter
+
+/**
+ Write a model in a compact binary form of MoML that can be loaded by
+ {@link MoMLParser#parseBinary(java.net.URL, java.io.InputStream)}
+ without XML parsing and without applying MoML filters.
+ <p>
+ The binary form records the sequence of events that the XML parser
+ reports to the MoML parser when it parses the MoML exported by the
+ model: the start and end of each element, its attributes, and the
+ character data of <i>doc</i> and <i>configure</i> elements. Loading
+ the binary form replays these events directly into a MoMLParser,
+ so it constructs exactly the same model as parsing the exported MoML,
+ including class definitions, instances of classes, links and
+ configurations. In particular, exporting MoML from a model that is
+ loaded from the binary form gives the same MoML as exporting it from
+ the original model.
+ <p>
+ Each string is written once, the first time it occurs, and is
+ subsequently referred to by its index, so the binary form is usually
+ considerably smaller than the MoML. Character data outside of
+ <i>doc</i> and <i>configure</i> elements, which the MoML parser
+ ignores, is not written.
+ <p>
+ Since MoML filters are not applied when loading the binary form,
+ the model should be written after it has been loaded with the filters
+ that it needs. The main() method of this class converts MoML files
+ after parsing them with the backward compatibility filters.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see MoMLParser#parseBinary(java.net.URL, java.io.InputStream)
+ */
+public class BinaryMoMLWriter extends HandlerBase {
+    /** Construct a writer that writes to the specified stream.
+     *  @param output The stream.
+     */
+    public BinaryMoMLWriter(OutputStream output) {
+        _output = new DataOutputStream(new BufferedOutputStream(output));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Record an attribute of the next element.
+     *  @param name The name of the attribute.
+     *  @param value The value of the attribute, or null if it is not
+     *   specified.
+     *  @param specified True if the value is specified in the MoML.
+     */
+    public void attribute(String name, String value, boolean specified) {
+        _attributeNames.add(name);
+        _attributeValues.add(value);
+        _attributeSpecified.add(Boolean.valueOf(specified));
+    }
+
+    /** Write character data if it is within a <i>doc</i> or
+     *  <i>configure</i> element.
+     *  @param characters The character data.
+     *  @param start The start of the data in the array.
+     *  @param length The length of the data.
+     *  @exception IOException If the data cannot be written.
+     */
+    public void charData(char[] characters, int start, int length)
+            throws IOException {
+        if (_charDataDepth > 0) {
+            _output.writeByte(CHAR_DATA);
+            _writeString(new String(characters, start, length), false);
+        }
+    }
+
+    /** Write a document type declaration.
+     *  @param name The document type name.
+     *  @param publicID The public identifier, or null.
+     *  @param systemID The system identifier, or null.
+     *  @exception IOException If the declaration cannot be written.
+     */
+    public void doctypeDecl(String name, String publicID, String systemID)
+            throws IOException {
+        _output.writeByte(DOCTYPE);
+        _writeString(name, true);
+        _writeString(publicID, true);
+        _writeString(systemID, true);
+    }
+
+    /** Write the end of the document and flush the stream.
+     *  @exception IOException If the stream cannot be written.
+     */
+    public void endDocument() throws IOException {
+        _output.writeByte(END_DOCUMENT);
+        _output.flush();
+    }
+
+    /** Write the end of an element.
+     *  @param name The name of the element.
+     *  @exception IOException If the element cannot be written.
+     */
+    public void endElement(String name) throws IOException {
+        if (name.equals("doc") || name.equals("configure")) {
+            _charDataDepth--;
+        }
+        _output.writeByte(END_ELEMENT);
+    }
+
+    /** Write the end of an external entity.
+     *  @param systemID The system identifier of the entity.
+     *  @exception IOException If the entity cannot be written.
+     */
+    public void endExternalEntity(String systemID) throws IOException {
+        _output.writeByte(END_EXTERNAL_ENTITY);
+        _writeString(systemID, true);
+    }
+
+    /** Throw an exception that reports an XML error.
+     *  @param message The error message.
+     *  @param systemID The system identifier of the entity with the error.
+     *  @param line The line number of the error.
+     *  @param column The column number of the error.
+     *  @exception XmlException Always thrown.
+     */
+    public void error(String message, String systemID, int line, int column)
+            throws XmlException {
+        throw new XmlException(message, systemID, line, column);
+    }
+
+    /** Convert MoML files to the binary form. Each file is parsed
+     *  with the backward compatibility filters and written to a file
+     *  with the same name and the extension ".ptb".
+     *  @param args The names of the MoML files.
+     *  @exception Exception If a file cannot be parsed or written.
+     */
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < args.length; i++) {
+            MoMLParser parser = new MoMLParser();
+            MoMLParser.setMoMLFilters(BackwardCompatibility.allFilters());
+            File file = new File(args[i]);
+            NamedObj model = parser.parse(null, file.toURI().toURL());
+            String name = file.getPath();
+            int period = name.lastIndexOf('.');
+            if (period > name.lastIndexOf(File.separatorChar)) {
+                name = name.substring(0, period);
+            }
+            OutputStream output = new FileOutputStream(name + ".ptb");
+            try {
+                new BinaryMoMLWriter(output).write(model);
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /** Write a processing instruction if it is within a <i>doc</i> or
+     *  <i>configure</i> element.
+     *  @param target The target of the instruction.
+     *  @param data The data of the instruction.
+     *  @exception IOException If the instruction cannot be written.
+     */
+    public void processingInstruction(String target, String data)
+            throws IOException {
+        if (_charDataDepth > 0) {
+            _output.writeByte(PROCESSING_INSTRUCTION);
+            _writeString(target, true);
+            _writeString(data, false);
+        }
+    }
+
+    /** Return a reader for the MoML DTD if the public identifier is
+     *  that of MoML, and otherwise return null.
+     *  @param publicID The public identifier, or null.
+     *  @param systemID The system identifier.
+     *  @return A reader for the DTD, or null.
+     */
+    public Object resolveEntity(String publicID, String systemID) {
+        if (MoMLParser.MoML_PUBLIC_ID_1.equals(publicID)) {
+            return new StringReader(MoMLParser.MoML_DTD_1);
+        }
+        return null;
+    }
+
+    /** Write the start of the document.
+     *  @exception IOException If the stream cannot be written.
+     */
+    public void startDocument() throws IOException {
+        _output.writeInt(MAGIC);
+        _output.writeByte(VERSION);
+        _strings.clear();
+        _charDataDepth = 0;
+    }
+
+    /** Write the start of an element together with the attributes
+     *  that have been recorded since the previous element.
+     *  @param name The name of the element.
+     *  @exception IOException If the element cannot be written.
+     */
+    public void startElement(String name) throws IOException {
+        _output.writeByte(START_ELEMENT);
+        _writeString(name, true);
+        int count = _attributeNames.size();
+        _writeInt(count);
+        for (int i = 0; i < count; i++) {
+            _writeString(_attributeNames.get(i), true);
+            _writeString(_attributeValues.get(i), true);
+            _output.writeBoolean(_attributeSpecified.get(i).booleanValue());
+        }
+        _attributeNames.clear();
+        _attributeValues.clear();
+        _attributeSpecified.clear();
+        if (name.equals("doc") || name.equals("configure")) {
+            _charDataDepth++;
+        }
+    }
+
+    /** Write the start of an external entity.
+     *  @param systemID The system identifier of the entity.
+     *  @exception IOException If the entity cannot be written.
+     */
+    public void startExternalEntity(String systemID) throws IOException {
+        _output.writeByte(START_EXTERNAL_ENTITY);
+        _writeString(systemID, true);
+    }
+
+    /** Write the specified model.
+     *  @param model The model.
+     *  @exception Exception If the MoML of the model cannot be parsed,
+     *   or the stream cannot be written.
+     */
+    public void write(NamedObj model) throws Exception {
+        write(model.exportMoML());
+    }
+
+    /** Write the specified MoML. Note that no MoML filters are applied.
+     *  @param moml The MoML.
+     *  @exception Exception If the MoML cannot be parsed,
+     *   or the stream cannot be written.
+     */
+    public void write(String moml) throws Exception {
+        XmlParser parser = new XmlParser();
+        parser.setHandler(this);
+        parser.parse(null, null, new StringReader(moml));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         package friendly variables        ////
+
+    // The codes of the records of the binary form.
+
+    /** Code for character data. */
+    static final int CHAR_DATA = 1;
+
+    /** Code for a document type declaration. */
+    static final int DOCTYPE = 2;
+
+    /** Code for the end of the document. */
+    static final int END_DOCUMENT = 3;
+
+    /** Code for the end of an element. */
+    static final int END_ELEMENT = 4;
+
+    /** Code for the end of an external entity. */
+    static final int END_EXTERNAL_ENTITY = 5;
+
+    /** The first four bytes of the binary form, "PTMB". */
+    static final int MAGIC = 0x50544D42;
+
+    /** Code for a processing instruction. */
+    static final int PROCESSING_INSTRUCTION = 6;
+
+    /** Code for the start of an element. */
+    static final int START_ELEMENT = 7;
+
+    /** Code for the start of an external entity. */
+    static final int START_EXTERNAL_ENTITY = 8;
+
+    /** The version of the binary form. */
+    static final int VERSION = 1;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    // Write a non-negative integer using seven bits per byte.
+    private void _writeInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            _output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        _output.writeByte(value);
+    }
+
+    // Write a string, which may be null. If shared is true, then the
+    // string is written only the first time, and is subsequently
+    // referred to by its index. Null is written as 0, a reference
+    // to the string with index i as i + 2, and a new string as 1
+    // followed by the length and the UTF-8 bytes of the string.
+    private void _writeString(String value, boolean shared)
+            throws IOException {
+        if (value == null) {
+            _writeInt(0);
+            return;
+        }
+        if (shared) {
+            Integer index = _strings.get(value);
+            if (index != null) {
+                _writeInt(index.intValue() + 2);
+                return;
+            }
+            _strings.put(value, Integer.valueOf(_strings.size()));
+        }
+        _writeInt(1);
+        byte[] bytes = value.getBytes("UTF-8");
+        _writeInt(bytes.length);
+        _output.write(bytes);
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    // The names of the attributes of the next element.
+    private List<String> _attributeNames = new ArrayList<String>();
+
+    // Whether the attributes of the next element are specified.
+    private List<Boolean> _attributeSpecified = new ArrayList<Boolean>();
+
+    // The values of the attributes of the next element.
+    private List<String> _attributeValues = new ArrayList<String>();
+
+    // The number of open doc and configure elements.
+    private int _charDataDepth;
+
+    // The stream to write to.
+    private DataOutputStream _output;
+
+    // The indexes of the strings that have been written.
+    private Map<String, Integer> _strings = new HashMap<String, Integer>();
+}
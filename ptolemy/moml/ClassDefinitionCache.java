@@ -0,0 +1,252 @@
+/* A process-wide cache of class definitions read by the MoML parser.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.moml;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ptolemy.kernel.ComponentEntity;
+
+///////////////////////////////////////////////////////////////////
+//// ClassDefinitionCache
+
+/**
+ A process-wide cache of the class definitions that the MoMLParser
+ has read from external files in order to instantiate them.
+ <p>
+ The parser keeps only weak references to the files that it has
+ parsed, so a class definition is read again once no model that uses
+ it remains loaded, for example each time a model is opened again
+ after it was closed. This cache keeps strong references to the most
+ recently used class definitions, up to the capacity of the cache,
+ so that they can be instantiated again without parsing. Each entry
+ records the time at which its file was last modified, and an entry
+ whose file has been modified since is discarded. Only files given
+ by "file:" URLs are checked; other resources, such as those in jar
+ files, are assumed not to change.
+ <p>
+ The parser looks up a class definition in this cache each time it
+ instantiates a class defined in an external file. If the cache does
+ not have the definition, the parser uses the definition held by a
+ model that is still loaded, if there is one, and otherwise reads
+ the file.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class ClassDefinitionCache {
+
+    /** Do not construct instances of this class. */
+    private ClassDefinitionCache() {
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Remove all the class definitions from the cache.
+     *  The statistics are not reset.
+     *  @see #resetStatistics()
+     */
+    public static synchronized void clear() {
+        _entries.clear();
+    }
+
+    /** Return the class definition with the specified name read from
+     *  the specified URL, or null if it is not in the cache or if the
+     *  file has been modified since the definition was read.
+     *  @param url The URL from which the class definition was read.
+     *  @param className The name of the class.
+     *  @return The class definition, or null.
+     */
+    public static synchronized ComponentEntity get(URL url, String className) {
+        _Entry entry = _entries.get(url);
+        if (entry != null && entry.className.equals(className)) {
+            if (entry.lastModified == _lastModified(url)) {
+                _hits++;
+                return entry.definition;
+            }
+            _entries.remove(url);
+        }
+        _misses++;
+        return null;
+    }
+
+    /** Return the maximum number of class definitions in the cache.
+     *  @return The capacity.
+     *  @see #setCapacity(int)
+     */
+    public static synchronized int getCapacity() {
+        return _capacity;
+    }
+
+    /** Return the number of lookups that found a class definition
+     *  since the statistics were last reset.
+     *  @return The number of hits.
+     */
+    public static synchronized long getHits() {
+        return _hits;
+    }
+
+    /** Return the number of lookups that did not find a class
+     *  definition since the statistics were last reset.
+     *  @return The number of misses.
+     */
+    public static synchronized long getMisses() {
+        return _misses;
+    }
+
+    /** Record a class definition read from the specified URL,
+     *  replacing any previous definition read from that URL.
+     *  If the cache is full, the least recently used definition
+     *  is removed.
+     *  @param url The URL from which the class definition was read.
+     *  @param className The name of the class.
+     *  @param definition The class definition.
+     */
+    public static synchronized void put(URL url, String className,
+            ComponentEntity definition) {
+        _entries.put(url, new _Entry(className, definition,
+                _lastModified(url)));
+    }
+
+    /** Remove the class definition read from the specified URL,
+     *  if there is one.
+     *  @param url The URL.
+     */
+    public static synchronized void remove(URL url) {
+        _entries.remove(url);
+    }
+
+    /** Reset the numbers of hits and misses to zero. */
+    public static synchronized void resetStatistics() {
+        _hits = 0L;
+        _misses = 0L;
+    }
+
+    /** Set the maximum number of class definitions in the cache,
+     *  removing the least recently used definitions if there are
+     *  more than that.
+     *  @param capacity The capacity, which must not be negative.
+     *  @see #getCapacity()
+     */
+    public static synchronized void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: "
+                    + capacity);
+        }
+        _capacity = capacity;
+        Iterator<URL> urls = _entries.keySet().iterator();
+        while (_entries.size() > _capacity) {
+            urls.next();
+            urls.remove();
+        }
+    }
+
+    /** Return the number of class definitions in the cache.
+     *  @return The number of class definitions.
+     */
+    public static synchronized int size() {
+        return _entries.size();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return the time at which the file given by the URL was last
+     *  modified, or 0 if the URL does not refer to a file or if the
+     *  time cannot be determined.
+     *  @param url The URL.
+     *  @return The modification time.
+     */
+    private static long _lastModified(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return 0L;
+        }
+        try {
+            return new File(url.toURI()).lastModified();
+        } catch (URISyntaxException ex) {
+            return new File(url.getPath()).lastModified();
+        } catch (IllegalArgumentException ex) {
+            return 0L;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The maximum number of class definitions in the cache. */
+    private static int _capacity = 256;
+
+    /** The entries indexed by URL in order of last use. */
+    private static Map<URL, _Entry> _entries = new LinkedHashMap<URL, _Entry>(
+            16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<URL, _Entry> eldest) {
+            return size() > _capacity;
+        }
+    };
+
+    /** The number of lookups that found a class definition. */
+    private static long _hits;
+
+    /** The number of lookups that did not find a class definition. */
+    private static long _misses;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** A class definition and the modification time of its file. */
+    private static class _Entry {
+        /** Construct an entry.
+         *  @param className The name of the class.
+         *  @param definition The class definition.
+         *  @param lastModified The modification time of the file.
+         */
+        public _Entry(String className, ComponentEntity definition,
+                long lastModified) {
+            this.className = className;
+            this.definition = definition;
+            this.lastModified = lastModified;
+        }
+
+        /** The name of the class. */
+        public final String className;
+
+        /** The class definition. */
+        public final ComponentEntity definition;
+
+        /** The modification time of the file. */
+        public final long lastModified;
+    }
+}
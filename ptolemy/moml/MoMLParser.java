@@ -522,8 +522,7 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
                         }
                         if (!value.equals(oldValue) || masterAttribute != null) {
                             // There already is something with that name, so we skip.
-                            String currentElement = _xmlParser
-                                    .getCurrentElement();
+                            String currentElement = _getCurrentElementName();
 
                             // FIXME: increment _skipElement or set it to 1?
                             _skipElement++;
@@ -550,7 +549,9 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
         // Apply MoMLFilters here.
         // Filters can filter out graphical classes, or change
         // the names of ports to handle backward compatibility.
-        if (_filterList != null) {
+        // Filters are not applied to binary MoML, which is written
+        // from models that have already been filtered.
+        if (_filterList != null && _binaryReader == null) {
             // FIXME: There is a slight risk of xmlParser being null here.
             if (_xmlParser == null) {
                 throw new InternalErrorException(
@@ -560,7 +561,7 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
                                 + " sets _xmlParser to null while exiting. "
                                 + "name: " + name + " value: " + value);
             }
-            String currentElement = _xmlParser.getCurrentElement();
+            String currentElement = _getCurrentElementName();
             Iterator filters = _filterList.iterator();
             String filteredValue = value;
 
@@ -850,7 +851,7 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
         // Apply MoMLFilters here.
         // FIXME: Why is this done first?  Perhaps it should be
         // done last?
-        if (_filterList != null) {
+        if (_filterList != null && _binaryReader == null) {
             Iterator filters = _filterList.iterator();
 
             while (filters.hasNext()) {
@@ -1532,6 +1533,11 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
 
         Reader buffered = new BufferedReader(reader);
 
+        // This parse may be nested in the parse of binary MoML, in
+        // which case filters have to be applied to this parse.
+        BinaryMoMLReader previousBinaryReader = _binaryReader;
+        _binaryReader = null;
+
         try {
             // We allocate a new XmlParser each time so as to avoid leaks.
             _xmlParser = new XmlParser();
@@ -1564,73 +1570,16 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
             // Parse operation cancelled.
             return null;
         } catch (Exception ex) {
-            // If you change this code, try running
-            // ptolemy.moml.test.MoMLParserLeak with the heap profiler
-            // and look for leaks.
-            if (_toplevel != null && _toplevel instanceof ComponentEntity) {
-                try {
-                    ((ComponentEntity) _toplevel).setContainer(null);
-                } catch (Throwable throwable2) {
-                    // Ignore.  setContainer(null) might throw an exception
-                    // if there are deferrables, but we don't want to hide
-                    // the original exception.
-                    // This problem comes up with tests in
-                    // actor/gui/test/UserActorLibrary.tcl.
-                }
-                // Since the container is probably already null, then
-                // the setContainer(null) call probably did not do anything.
-                // so, we remove the object from the workspace so it
-                // can get gc'd.
-                // FIXME: perhaps we should do more of what
-                // ComponentEntity.setContainer() does and remove the ports?
-                try {
-                    _workspace.getWriteAccess();
-                    _workspace.remove(_toplevel);
-                } finally {
-                    _workspace.doneWriting();
-                }
-                _toplevel = null;
-            }
-
-            _paramsToParse.clear();
-            reset();
-            if (base != null) {
-                purgeModelRecord(base);
-            }
+            _cleanUpAfterFailedParse(base);
             throw ex;
         } finally {
             // Avoid memory leaks
             _xmlParser = null;
+            _binaryReader = previousBinaryReader;
             buffered.close();
         }
 
-        if (_toplevel == null) {
-            // If we try to read a HSIF file but Ptolemy is not properly
-            // configured, then we may end up here.
-            throw new Exception(
-                    "Toplevel was null?  Perhaps the xml does not contain "
-                            + "a Ptolemy model?\n base ='" + base
-                            + "',\n reader = '" + reader + "'");
-        }
-
-        // Add a parser attribute to the toplevel to indicate a parser
-        // responsible for handling changes, unless there already is a
-        // parser, in which case we just set the parser to this one.
-        MoMLParser parser = ParserAttribute.getParser(_toplevel);
-
-        if (parser != this) {
-            // Force the parser to be this one.
-            ParserAttribute parserAttribute = (ParserAttribute) _toplevel
-                    .getAttribute("_parser", ParserAttribute.class);
-
-            if (parserAttribute == null) {
-                parserAttribute = new ParserAttribute(_toplevel, "_parser");
-            }
-
-            parserAttribute.setParser(this);
-        }
-
-        return _toplevel;
+        return _finishParse(base, "reader = '" + reader + "'");
     }
 
     /** Parse the given string, which contains MoML.
@@ -1668,6 +1617,51 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
         return parse(base, new StringReader(text));
     }
 
+    /** Parse the given stream, which contains the compact binary form
+     *  of MoML written by {@link BinaryMoMLWriter}, using the specified
+     *  url as the base to expand any external references. The binary
+     *  form is not XML, so no XML parsing is performed, and MoML filters
+     *  are not applied to it, but it is otherwise handled exactly as
+     *  the MoML from which it was written.
+     *  Note that this bypasses the mechanism of parse(URL, URL) that
+     *  returns a previously parsed model.
+     *  @param base The base URL for relative references, or null if
+     *   not known.
+     *  @param input The stream from which to read binary MoML.
+     *  @return The top-level composite entity of the Ptolemy II model, or
+     *   null if the parse is cancelled.
+     *  @exception Exception If the parser fails.
+     *  @see BinaryMoMLWriter
+     */
+    public NamedObj parseBinary(URL base, InputStream input) throws Exception {
+        _base = base;
+
+        BinaryMoMLReader previousBinaryReader = _binaryReader;
+        _binaryReader = new BinaryMoMLReader(input);
+        boolean xmlFileWasNull = false;
+        if (base != null && _xmlFile == null) {
+            xmlFileWasNull = true;
+            _setXmlFile(new URL(base.toExternalForm()));
+        }
+
+        try {
+            _binaryReader.read(this);
+        } catch (CancelException ex) {
+            // Parse operation cancelled.
+            return null;
+        } catch (Exception ex) {
+            _cleanUpAfterFailedParse(base);
+            throw ex;
+        } finally {
+            _binaryReader = previousBinaryReader;
+            if (xmlFileWasNull) {
+                _setXmlFile(null);
+            }
+        }
+
+        return _finishParse(base, "binary input = '" + input + "'");
+    }
+
     /** Parse the file with the given name, which contains MoML.
      *  If there are external references in the MoML, they are interpreted
      *  relative to the current working directory.
@@ -1743,6 +1737,7 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
      */
     public static void purgeAllModelRecords() {
         _imports = null;
+        ClassDefinitionCache.clear();
     }
 
     /** Purge any record of a model opened from the specified
@@ -1785,6 +1780,9 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
 
             _imports.remove(url);
         }
+        if (url != null) {
+            ClassDefinitionCache.remove(url);
+        }
     }
 
     /** Purge any record of a model opened from the specified
@@ -3817,23 +3815,9 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
         URL url = null;
         try {
             url = fileNameToURL(classAsFile, _base);
-            if (_imports != null) {
-                WeakReference possiblePrevious = (WeakReference) _imports
-                        .get(url);
-                NamedObj previous = null;
-                if (possiblePrevious != null) {
-                    previous = (NamedObj) possiblePrevious.get();
-                    if (previous == null) {
-                        _imports.remove(url);
-                    }
-                }
-                if (previous instanceof ComponentEntity) {
-                    // NOTE: In theory, we should not even have to
-                    // check whether the file has been updated, because
-                    // if changes were made to model since it was loaded,
-                    // they should have been propagated.
-                    return (ComponentEntity) previous;
-                }
+            ComponentEntity previous = _findPreviousClass(url, className);
+            if (previous != null) {
+                return previous;
             }
         } catch (Exception ex) {
             // An exception will be thrown if the class is not
@@ -3879,23 +3863,9 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
                     throw ex2;
                 }
                 // First check to see whether the object has been previously loaded.
-                if (_imports != null) {
-                    WeakReference possiblePrevious = (WeakReference) _imports
-                            .get(url);
-                    NamedObj previous = null;
-                    if (possiblePrevious != null) {
-                        previous = (NamedObj) possiblePrevious.get();
-                        if (previous == null) {
-                            _imports.remove(url);
-                        }
-                    }
-                    if (previous instanceof ComponentEntity) {
-                        // NOTE: In theory, we should not even have to
-                        // check whether the file has been updated, because
-                        // if changes were made to model since it was loaded,
-                        // they should have been propagated.
-                        return (ComponentEntity) previous;
-                    }
+                ComponentEntity previous = _findPreviousClass(url, className);
+                if (previous != null) {
+                    return previous;
                 }
                 try {
                     candidateReference = _findOrParse(newParser, _base,
@@ -3972,6 +3942,9 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
             // references to the model other than the one in
             // _imports, it can be garbage collected.
             _imports.put(url, new WeakReference(reference));
+            if (url != null) {
+                ClassDefinitionCache.put(url, className, reference);
+            }
         }
 
         return reference;
@@ -3996,6 +3969,43 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
         }
     }
 
+    // Remove the partially constructed top level after a failed parse.
+    private void _cleanUpAfterFailedParse(URL base) {
+        // If you change this code, try running
+        // ptolemy.moml.test.MoMLParserLeak with the heap profiler
+        // and look for leaks.
+        if (_toplevel != null && _toplevel instanceof ComponentEntity) {
+            try {
+                ((ComponentEntity) _toplevel).setContainer(null);
+            } catch (Throwable throwable2) {
+                // Ignore.  setContainer(null) might throw an exception
+                // if there are deferrables, but we don't want to hide
+                // the original exception.
+                // This problem comes up with tests in
+                // actor/gui/test/UserActorLibrary.tcl.
+            }
+            // Since the container is probably already null, then
+            // the setContainer(null) call probably did not do anything.
+            // so, we remove the object from the workspace so it
+            // can get gc'd.
+            // FIXME: perhaps we should do more of what
+            // ComponentEntity.setContainer() does and remove the ports?
+            try {
+                _workspace.getWriteAccess();
+                _workspace.remove(_toplevel);
+            } finally {
+                _workspace.doneWriting();
+            }
+            _toplevel = null;
+        }
+
+        _paramsToParse.clear();
+        reset();
+        if (base != null) {
+            purgeModelRecord(base);
+        }
+    }
+
     /** Create a new entity from the specified class name, give
      *  it the specified entity name, and specify that its container
      *  is the current container object.  If the current container
@@ -5017,6 +5027,80 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
         }
     }
 
+    /** Return a class definition previously read from the specified
+     *  URL, or null if there is none. The class definition is looked
+     *  up in the {@link ClassDefinitionCache}. A class definition
+     *  held by a model that is still loaded is preferred, however,
+     *  so that instances share the definition, which may have been
+     *  changed since it was read.
+     *  @param url The URL of the class definition.
+     *  @param className The name of the class.
+     *  @return The class definition, or null.
+     */
+    private ComponentEntity _findPreviousClass(URL url, String className) {
+        ComponentEntity cached = ClassDefinitionCache.get(url, className);
+        NamedObj previous = null;
+        if (_imports != null) {
+            WeakReference possiblePrevious = (WeakReference) _imports.get(url);
+            if (possiblePrevious != null) {
+                previous = (NamedObj) possiblePrevious.get();
+                if (previous == null) {
+                    _imports.remove(url);
+                }
+            }
+        }
+        if (previous instanceof ComponentEntity) {
+            // NOTE: In theory, we should not even have to
+            // check whether the file has been updated, because
+            // if changes were made to model since it was loaded,
+            // they should have been propagated.
+            if (previous != cached) {
+                ClassDefinitionCache.put(url, className,
+                        (ComponentEntity) previous);
+            }
+            return (ComponentEntity) previous;
+        }
+        if (cached != null) {
+            if (_imports == null) {
+                _imports = new HashMap();
+            }
+            _imports.put(url, new WeakReference(cached));
+        }
+        return cached;
+    }
+
+    // Check that the parse constructed a top level and add a parser
+    // attribute to it, and return it.
+    private NamedObj _finishParse(URL base, String source) throws Exception {
+        if (_toplevel == null) {
+            // If we try to read a HSIF file but Ptolemy is not properly
+            // configured, then we may end up here.
+            throw new Exception(
+                    "Toplevel was null?  Perhaps the xml does not contain "
+                            + "a Ptolemy model?\n base ='" + base
+                            + "',\n " + source);
+        }
+
+        // Add a parser attribute to the toplevel to indicate a parser
+        // responsible for handling changes, unless there already is a
+        // parser, in which case we just set the parser to this one.
+        MoMLParser parser = ParserAttribute.getParser(_toplevel);
+
+        if (parser != this) {
+            // Force the parser to be this one.
+            ParserAttribute parserAttribute = (ParserAttribute) _toplevel
+                    .getAttribute("_parser", ParserAttribute.class);
+
+            if (parserAttribute == null) {
+                parserAttribute = new ParserAttribute(_toplevel, "_parser");
+            }
+
+            parserAttribute.setParser(this);
+        }
+
+        return _toplevel;
+    }
+
     /** Return the column number from the XmlParser.
      *  @return the column number from the XmlParser.  Return -1 if
      *  _xmlParser is null.
@@ -5058,6 +5142,14 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
         return result.toString();
     }
 
+    // Return the name of the element that is being parsed.
+    private String _getCurrentElementName() {
+        if (_binaryReader != null) {
+            return _binaryReader.getCurrentElement();
+        }
+        return _xmlParser.getCurrentElement();
+    }
+
     /** Return the line number from the XmlParser.
      *  @return the line number from the XmlParser.  Return -1 if
      *  _xmlParser is null.
@@ -7227,6 +7319,10 @@ public class MoMLParser extends HandlerBase implements ChangeListener {
     // Base for relative URLs.
     private URL _base;
 
+    // The reader of the binary MoML being parsed, or null if XML is
+    // being parsed.
+    private BinaryMoMLReader _binaryReader;
+
     // The class loader that will be used to instantiate objects.
     private ClassLoader _classLoader = getClass().getClassLoader();
 
@@ -0,0 +1,490 @@
+/* Run a model many times with different parameter values in several threads.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.moml;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ptolemy.actor.CompositeActor;
+import ptolemy.actor.Manager;
+import ptolemy.actor.injection.ActorModuleInitializer;
+import ptolemy.data.expr.Variable;
+import ptolemy.data.type.Type;
+import ptolemy.kernel.util.Attribute;
+import ptolemy.kernel.util.BasicModelErrorHandler;
+import ptolemy.kernel.util.IllegalActionException;
+import ptolemy.kernel.util.NamedObj;
+import ptolemy.kernel.util.Settable;
+import ptolemy.kernel.util.Workspace;
+import ptolemy.moml.filter.BackwardCompatibility;
+import ptolemy.moml.filter.RemoveGraphicalClasses;
+
+///////////////////////////////////////////////////////////////////
+//// ModelSweep
+
+/**
+ Run a model many times with different values of its parameters,
+ as in a parameter sweep or a Monte Carlo simulation, using several
+ threads.
+
+ <p>The model is parsed once. Each thread runs its own clone of the
+ model, created with {@link NamedObj#clone(Workspace)} in a new
+ workspace, and runs it for one variant after another. A variant is a
+ map from names of parameters, relative to the model, to the
+ expressions to give them, for example "Ramp.init" to "2.0", or "seed"
+ to "17". Before each run, the parameters that were changed by the
+ previous variant or by the previous run itself are given back their
+ original expression, so the result of a run does not depend on the
+ runs that preceded it in the same thread, except through the state of
+ actors that is not reset by their initialize() method.</p>
+
+ <p>Since the same clone is run repeatedly, the director keeps the
+ schedule it computed unless a parameter it depends on changes.
+ In addition, if the types of the variables of the model after the
+ parameters have been set are the same as at the end of the previous
+ run, the resolved types are reused rather than resolved again.
+ See {@link Manager#reuseResolvedTypes()}. This can be disabled with
+ {@link #setReuseResolvedTypes(boolean)} for models containing actors
+ whose type constraints depend on values of parameters in other ways.</p>
+
+ <p>The results of the runs are passed to a {@link SweepResultSink}
+ as soon as each run completes. If a run fails, then the clone is
+ discarded and the next run of the thread uses a new clone.</p>
+
+ <p>To run a sweep from the command line, use for example:</p>
+ <pre>
+ java -classpath $PTII ptolemy.moml.ModelSweep -threads 4 -result result model.xml x=1.0 x=2.0 y=1 y=2
+ </pre>
+ <p>This runs model.xml with each combination of the values given for
+ each parameter, four runs in this case, and prints the value of the
+ variable named "result" at the end of each run.</p>
+
+ <p>Actors that share static state, or that use the graphical user
+ interface, cannot safely run concurrently and should not be used in
+ models that are swept with more than one thread.</p>
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ @see SweepResultCollector
+ */
+public class ModelSweep {
+
+    /** Construct a sweep of the specified model.  The model itself is
+     *  not run, it is cloned for each thread.
+     *  @param model The model.
+     */
+    public ModelSweep(CompositeActor model) {
+        _model = model;
+        _threadCount = Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Construct a sweep of the model in the specified MoML file.
+     *  Backward compatibility filters are applied and graphical
+     *  classes are removed, as in {@link MoMLSimpleApplication}.
+     *  @param url The URL of the MoML file.
+     *  @exception Exception If the model cannot be parsed.
+     */
+    public ModelSweep(URL url) throws Exception {
+        this(_parse(url));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return true if the resolved types of a run are reused by the
+     *  next run when the types of the variables did not change.
+     *  @return True if resolved types are reused.
+     *  @see #setReuseResolvedTypes(boolean)
+     */
+    public boolean getReuseResolvedTypes() {
+        return _reuseResolvedTypes;
+    }
+
+    /** Return the number of threads used to run the model.
+     *  @return The number of threads.
+     *  @see #setThreadCount(int)
+     */
+    public int getThreadCount() {
+        return _threadCount;
+    }
+
+    /** Run a sweep of a model specified on the command line.
+     *  The arguments are the optional "-threads <i>count</i>" and any
+     *  number of "-result <i>variableName</i>", followed by the name
+     *  of the MoML file and any number of <i>name</i>=<i>expression</i>.
+     *  The model is run for each combination of the expressions
+     *  given for each name, and the values of the result variables
+     *  at the end of each run are printed.
+     *  @param args The command-line arguments.
+     */
+    public static void main(String[] args) {
+        try {
+            int threadCount = 0;
+            List<String> resultNames = new LinkedList<String>();
+            int i = 0;
+            while (i < args.length - 1 && args[i].startsWith("-")) {
+                if (args[i].equals("-threads")) {
+                    threadCount = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("-result")) {
+                    resultNames.add(args[i + 1]);
+                } else {
+                    throw new IllegalArgumentException("Unrecognized option: "
+                            + args[i]);
+                }
+                i += 2;
+            }
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Usage: ModelSweep "
+                        + "[-threads count] [-result variableName]... "
+                        + "model.xml [name=expression]...");
+            }
+            ModelSweep sweep = new ModelSweep(new File(args[i]).toURI()
+                    .toURL());
+            if (threadCount > 0) {
+                sweep.setThreadCount(threadCount);
+            }
+
+            Map<String, List<String>> expressions = new LinkedHashMap<String, List<String>>();
+            for (i++; i < args.length; i++) {
+                int equals = args[i].indexOf('=');
+                if (equals <= 0) {
+                    throw new IllegalArgumentException(
+                            "Expected name=expression, got: " + args[i]);
+                }
+                String name = args[i].substring(0, equals);
+                List<String> values = expressions.get(name);
+                if (values == null) {
+                    values = new LinkedList<String>();
+                    expressions.put(name, values);
+                }
+                values.add(args[i].substring(equals + 1));
+            }
+
+            SweepResultCollector collector = new SweepResultCollector(
+                    resultNames.toArray(new String[resultNames.size()]));
+            sweep.run(product(expressions), collector);
+            System.out.print(collector.toString());
+        } catch (Throwable throwable) {
+            throwable.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /** Return the variants given by each combination of the expressions
+     *  of the parameters.  The first parameter varies the slowest.
+     *  @param expressions A map from the names of parameters to the list
+     *   of expressions to give them.
+     *  @return The list of variants.
+     */
+    public static List<Map<String, String>> product(
+            Map<String, List<String>> expressions) {
+        List<Map<String, String>> result = new ArrayList<Map<String, String>>();
+        result.add(new LinkedHashMap<String, String>());
+        for (Map.Entry<String, List<String>> entry : expressions.entrySet()) {
+            List<Map<String, String>> extended = new ArrayList<Map<String, String>>();
+            for (Map<String, String> variant : result) {
+                for (String expression : entry.getValue()) {
+                    Map<String, String> newVariant = new LinkedHashMap<String, String>(
+                            variant);
+                    newVariant.put(entry.getKey(), expression);
+                    extended.add(newVariant);
+                }
+            }
+            result = extended;
+        }
+        return result;
+    }
+
+    /** Run the model once for each variant and pass the results to the
+     *  sink. This method returns when all the runs have completed.
+     *  The failure of a run is reported to the sink and does not stop
+     *  the sweep.
+     *  @param variants The list of variants, each of which maps names of
+     *   parameters relative to the model to expressions.
+     *  @param sink The sink for the results.
+     *  @exception IllegalActionException If the sink throws an exception
+     *   while reporting a failed run, or if the sweep is interrupted.
+     */
+    public void run(List<Map<String, String>> variants, SweepResultSink sink)
+            throws IllegalActionException {
+        int threadCount = Math.max(1, Math.min(_threadCount, variants.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        AtomicInteger nextRun = new AtomicInteger();
+        List<Future<?>> futures = new LinkedList<Future<?>>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(new _Worker(variants, nextRun, sink)));
+        }
+        executor.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            throw new IllegalActionException(_model, ex,
+                    "Interrupted while running the sweep.");
+        } catch (ExecutionException ex) {
+            executor.shutdownNow();
+            throw new IllegalActionException(_model, ex.getCause(),
+                    "Failed to report the result of a run.");
+        }
+    }
+
+    /** Specify whether the resolved types of a run are reused by the
+     *  next run when the types of the variables did not change.
+     *  The default is true.
+     *  @param reuse True to reuse resolved types.
+     *  @see #getReuseResolvedTypes()
+     */
+    public void setReuseResolvedTypes(boolean reuse) {
+        _reuseResolvedTypes = reuse;
+    }
+
+    /** Set the number of threads used to run the model.  The default is
+     *  the number of available processors.
+     *  @param threadCount The number of threads.
+     *  @see #getThreadCount()
+     */
+    public void setThreadCount(int threadCount) {
+        _threadCount = threadCount;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return a clone of the model with a manager in a new workspace.
+     *  @return The clone.
+     *  @exception Exception If the model cannot be cloned.
+     */
+    private CompositeActor _cloneModel() throws Exception {
+        CompositeActor model;
+        // Cloning an instance of a class registers the clone with the
+        // class, so clones are not created concurrently.
+        synchronized (_model) {
+            model = (CompositeActor) _model.clone(new Workspace(_model
+                    .workspace().getName()));
+        }
+        if (model.getModelErrorHandler() == null) {
+            model.setModelErrorHandler(new BasicModelErrorHandler());
+        }
+        Manager manager = new Manager(model.workspace(), "ModelSweep");
+        manager.enablePrintTimeAndMemory(false);
+        model.setManager(manager);
+        return model;
+    }
+
+    /** Parse the model in the specified MoML file.
+     *  @param url The URL of the MoML file.
+     *  @return The model.
+     *  @exception Exception If the model cannot be parsed.
+     */
+    private static CompositeActor _parse(URL url) throws Exception {
+        ActorModuleInitializer.initializeInjector();
+        Workspace workspace = new Workspace("ModelSweep");
+        MoMLParser parser = new MoMLParser(workspace);
+        MoMLParser.setMoMLFilters(BackwardCompatibility.allFilters(),
+                workspace);
+        MoMLParser.addMoMLFilter(new RemoveGraphicalClasses());
+        return (CompositeActor) parser.parse(null, url);
+    }
+
+    /** Add the variables contained by the object and by the objects it
+     *  contains, at any depth, to the list.
+     *  @param object The object.
+     *  @param variables The list of variables.
+     */
+    private static void _variables(NamedObj object, List<Variable> variables) {
+        Iterator<?> objects = object.containedObjectsIterator();
+        while (objects.hasNext()) {
+            NamedObj contained = (NamedObj) objects.next();
+            if (contained instanceof Variable) {
+                variables.add((Variable) contained);
+            }
+            _variables(contained, variables);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The model that is cloned for each thread. */
+    private CompositeActor _model;
+
+    /** True if resolved types are reused. */
+    private boolean _reuseResolvedTypes = true;
+
+    /** The number of threads. */
+    private int _threadCount;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** A task that runs a clone of the model for variants until there
+     *  are none left.
+     */
+    private class _Worker implements Runnable {
+
+        /** Construct a task.
+         *  @param variants The list of variants.
+         *  @param nextRun The index of the next variant to run, shared
+         *   by the tasks.
+         *  @param sink The sink for the results.
+         */
+        public _Worker(List<Map<String, String>> variants,
+                AtomicInteger nextRun, SweepResultSink sink) {
+            _variants = variants;
+            _nextRun = nextRun;
+            _sink = sink;
+        }
+
+        /** Run the variants. */
+        public void run() {
+            int run;
+            while ((run = _nextRun.getAndIncrement()) < _variants.size()) {
+                Map<String, String> values = _variants.get(run);
+                try {
+                    if (_clone == null) {
+                        _initialize();
+                    }
+                    _setValues(values);
+                    Manager manager = _clone.getManager();
+                    // Compare the types before execution because the
+                    // model may change the types of its variables as
+                    // it runs.
+                    Type[] types = _currentTypes();
+                    if (_reuseResolvedTypes && _types != null
+                            && Arrays.equals(types, _types)) {
+                        manager.reuseResolvedTypes();
+                    }
+                    _types = types;
+                    manager.execute();
+                    _sink.runFinished(run, values, _clone);
+                } catch (Throwable throwable) {
+                    // The state of the clone is not known after a failure.
+                    _clone = null;
+                    _sink.runFailed(run, values, throwable);
+                }
+            }
+        }
+
+        /** Return the types of the variables of the clone.
+         *  @return The types.
+         */
+        private Type[] _currentTypes() {
+            Type[] types = new Type[_cloneVariables.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = _cloneVariables.get(i).getType();
+            }
+            return types;
+        }
+
+        /** Create a new clone of the model and record the expressions
+         *  of its variables.
+         *  @exception Exception If the model cannot be cloned.
+         */
+        private void _initialize() throws Exception {
+            _clone = _cloneModel();
+            _cloneVariables = new ArrayList<Variable>();
+            _variables(_clone, _cloneVariables);
+            _expressions = new String[_cloneVariables.size()];
+            for (int i = 0; i < _expressions.length; i++) {
+                _expressions[i] = _cloneVariables.get(i).getExpression();
+            }
+            _types = null;
+        }
+
+        /** Give back their original expressions to the variables that
+         *  were changed, then set the parameters of the variant.
+         *  @param values The map from names of parameters to expressions.
+         *  @exception IllegalActionException If a parameter does not exist
+         *   or its expression cannot be evaluated.
+         */
+        private void _setValues(Map<String, String> values)
+                throws IllegalActionException {
+            List<Settable> changed = new LinkedList<Settable>();
+            for (int i = 0; i < _expressions.length; i++) {
+                Variable variable = _cloneVariables.get(i);
+                if (!_expressions[i].equals(variable.getExpression())) {
+                    variable.setExpression(_expressions[i]);
+                    changed.add(variable);
+                }
+            }
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                Attribute attribute = _clone.getAttribute(entry.getKey());
+                if (!(attribute instanceof Settable)) {
+                    throw new IllegalActionException(_clone,
+                            "No parameter named \"" + entry.getKey() + "\".");
+                }
+                ((Settable) attribute).setExpression(entry.getValue());
+                changed.add((Settable) attribute);
+            }
+            for (Settable settable : changed) {
+                settable.validate();
+            }
+        }
+
+        /** The clone of the model, or null if a new one is needed. */
+        private CompositeActor _clone;
+
+        /** The variables of the clone. */
+        private List<Variable> _cloneVariables;
+
+        /** The original expressions of the variables of the clone. */
+        private String[] _expressions;
+
+        /** The index of the next variant to run. */
+        private AtomicInteger _nextRun;
+
+        /** The sink for the results. */
+        private SweepResultSink _sink;
+
+        /** The types of the variables at the start of the previous run,
+         *  or null if there was no previous run.
+         */
+        private Type[] _types;
+
+        /** The list of variants. */
+        private List<Map<String, String>> _variants;
+    }
+}
@@ -0,0 +1,181 @@
+/* A sink that collects the values of variables after each run of a model sweep.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.moml;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ptolemy.actor.CompositeActor;
+import ptolemy.data.Token;
+import ptolemy.data.expr.Variable;
+import ptolemy.kernel.util.Attribute;
+import ptolemy.kernel.util.IllegalActionException;
+
+///////////////////////////////////////////////////////////////////
+//// SweepResultCollector
+
+/**
+ A sink for the results of a {@link ModelSweep} that collects the
+ values of specified variables of the model at the end of each run.
+ The variables are typically set by the model during the run, for
+ example by SetVariable actors.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class SweepResultCollector implements SweepResultSink {
+
+    /** Construct a collector for the values of the specified variables.
+     *  @param variableNames The names of the variables relative to the
+     *   model, such as "result" or "Ramp.init".
+     */
+    public SweepResultCollector(String[] variableNames) {
+        _variableNames = variableNames.clone();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Return the exception or error that caused the specified run to
+     *  fail, or null if the run has not failed.
+     *  @param run The index of the run.
+     *  @return The cause of the failure, or null.
+     */
+    public synchronized Throwable getFailure(int run) {
+        return _failures.get(run);
+    }
+
+    /** Return the values of the variables at the end of the specified
+     *  run in the order in which the variables were given to the
+     *  constructor, or null if the run has not finished.
+     *  @param run The index of the run.
+     *  @return The values of the variables, or null.
+     */
+    public synchronized Token[] getResults(int run) {
+        Token[] results = _results.get(run);
+        if (results == null) {
+            return null;
+        }
+        return results.clone();
+    }
+
+    /** Record the failure of the run.
+     *  @param run The index of the run in the list of variants.
+     *  @param values The map from parameter names to expressions that
+     *   was used for the run.
+     *  @param throwable The exception or error that caused the failure.
+     */
+    public synchronized void runFailed(int run, Map<String, String> values,
+            Throwable throwable) {
+        _values.put(run, values);
+        _failures.put(run, throwable);
+    }
+
+    /** Record the values of the variables at the end of the run.
+     *  @param run The index of the run in the list of variants.
+     *  @param values The map from parameter names to expressions that
+     *   was used for the run.
+     *  @param model The model that was run.
+     *  @exception IllegalActionException If one of the variables does
+     *   not exist or cannot be evaluated.
+     */
+    public void runFinished(int run, Map<String, String> values,
+            CompositeActor model) throws IllegalActionException {
+        Token[] results = new Token[_variableNames.length];
+        for (int i = 0; i < _variableNames.length; i++) {
+            Attribute attribute = model.getAttribute(_variableNames[i]);
+            if (!(attribute instanceof Variable)) {
+                throw new IllegalActionException(model, "No variable named \""
+                        + _variableNames[i] + "\".");
+            }
+            results[i] = ((Variable) attribute).getToken();
+        }
+        synchronized (this) {
+            _values.put(run, values);
+            _results.put(run, results);
+        }
+    }
+
+    /** Return a description of the runs reported so far, one line per
+     *  run in the order of the runs.  Each line gives the index of the
+     *  run, the values of the parameters and either the values of the
+     *  variables or the failure.
+     *  @return A description of the runs.
+     */
+    public synchronized String toString() {
+        StringBuffer result = new StringBuffer();
+        Iterator<Map.Entry<Integer, Map<String, String>>> runs = _values
+                .entrySet().iterator();
+        while (runs.hasNext()) {
+            Map.Entry<Integer, Map<String, String>> entry = runs.next();
+            int run = entry.getKey();
+            result.append(run);
+            result.append(":");
+            for (Map.Entry<String, String> value : entry.getValue()
+                    .entrySet()) {
+                result.append(" " + value.getKey() + "=" + value.getValue());
+            }
+            result.append(" ->");
+            Token[] results = _results.get(run);
+            if (results != null) {
+                for (int i = 0; i < results.length; i++) {
+                    result.append(" " + _variableNames[i] + "=" + results[i]);
+                }
+            } else {
+                // Only the first line of the message of the failure.
+                String message = _failures.get(run).toString();
+                int newline = message.indexOf('\n');
+                if (newline >= 0) {
+                    message = message.substring(0, newline);
+                }
+                result.append(" failed: " + message);
+            }
+            result.append("\n");
+        }
+        return result.toString();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The failures of the runs indexed by run. */
+    private TreeMap<Integer, Throwable> _failures = new TreeMap<Integer, Throwable>();
+
+    /** The values of the variables indexed by run. */
+    private TreeMap<Integer, Token[]> _results = new TreeMap<Integer, Token[]>();
+
+    /** The values of the parameters indexed by run. */
+    private TreeMap<Integer, Map<String, String>> _values = new TreeMap<Integer, Map<String, String>>();
+
+    /** The names of the variables. */
+    private String[] _variableNames;
+}
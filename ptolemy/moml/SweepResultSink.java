@@ -0,0 +1,73 @@
+/* An interface for objects that receive the results of a model sweep.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.moml;
+
+import java.util.Map;
+
+import ptolemy.actor.CompositeActor;
+import ptolemy.kernel.util.IllegalActionException;
+
+///////////////////////////////////////////////////////////////////
+//// SweepResultSink
+
+/**
+ An interface for objects that receive the results of the runs of a
+ {@link ModelSweep}. The methods are called by the threads that run the
+ model, possibly concurrently, so implementations must be thread safe.
+ The runs are not necessarily reported in order.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public interface SweepResultSink {
+
+    /** React to a run that failed.
+     *  @param run The index of the run in the list of variants.
+     *  @param values The map from parameter names to expressions that
+     *   was used for the run.
+     *  @param throwable The exception or error that caused the failure.
+     */
+    public void runFailed(int run, Map<String, String> values,
+            Throwable throwable);
+
+    /** React to a run that completed.  The results are to be read from
+     *  the model before this method returns, since the model is used
+     *  for another run afterwards.
+     *  @param run The index of the run in the list of variants.
+     *  @param values The map from parameter names to expressions that
+     *   was used for the run.
+     *  @param model The model that was run.
+     *  @exception IllegalActionException If the results cannot be read
+     *   from the model, in which case the run is reported as failed.
+     */
+    public void runFinished(int run, Map<String, String> values,
+            CompositeActor model) throws IllegalActionException;
+}
@@ -0,0 +1,87 @@
+# Tests for the BinaryMoMLWriter and BinaryMoMLReader classes
+#
+# @Author: agent
+#
+# @Version: $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Ptolemy II test bed, see $PTII/doc/coding/testing.html for more information.
+
+# Load the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Parse a MoML file, write the model as binary MoML, parse the binary
+# MoML, and return 1 if the two models export the same MoML, followed
+# by the sizes of the MoML and of the binary form.
+proc binaryRoundTrip {fileName} {
+    set parser [java::new ptolemy.moml.MoMLParser [java::new ptolemy.kernel.util.Workspace]]
+    $parser purgeAllModelRecords
+    set model [$parser {parse java.net.URL java.net.URL} [java::null] \
+	    [[java::new java.io.File $fileName] toURL]]
+    set moml [$model exportMoML]
+
+    set output [java::new java.io.ByteArrayOutputStream]
+    set writer [java::new ptolemy.moml.BinaryMoMLWriter $output]
+    $writer {write ptolemy.kernel.util.NamedObj} $model
+    set binary [$output toByteArray]
+
+    set input [java::new java.io.ByteArrayInputStream $binary]
+    set binaryParser [java::new ptolemy.moml.MoMLParser [java::new ptolemy.kernel.util.Workspace]]
+    set binaryModel [$binaryParser parseBinary [java::null] $input]
+    return [list [expr {[string compare $moml [$binaryModel exportMoML]] == 0}] \
+	    [expr {[$binary length] < [string length $moml]}]]
+}
+
+######################################################################
+####
+#
+test BinaryMoML-1.1 {Round trip a class definition} {
+    binaryRoundTrip testClass.xml
+} {1 1}
+
+######################################################################
+####
+#
+test BinaryMoML-1.2 {Round trip models with configure and doc elements} {
+    list [binaryRoundTrip ConstClassDefinition.xml] \
+	    [binaryRoundTrip CompositeCopyAndPasteTest.xml] \
+	    [binaryRoundTrip UndoDeleteEntityComposite.xml]
+} {{1 1} {1 1} {1 1}}
+
+######################################################################
+####
+#
+test BinaryMoML-2.1 {Reject input that is not binary MoML} {
+    set input [java::new java.io.ByteArrayInputStream \
+	    [[java::new String "<entity name=\"a\"/>"] getBytes]]
+    set parser [java::new ptolemy.moml.MoMLParser]
+    catch {$parser parseBinary [java::null] $input} msg
+    list $msg
+} {{java.io.IOException: Not binary MoML.}}
@@ -0,0 +1,158 @@
+/* Compare the time to load models from MoML and from binary MoML.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.moml.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import ptolemy.actor.TypedCompositeActor;
+import ptolemy.actor.TypedIOPort;
+import ptolemy.actor.lib.Discard;
+import ptolemy.actor.lib.Ramp;
+import ptolemy.actor.lib.Scale;
+import ptolemy.domains.sdf.kernel.SDFDirector;
+import ptolemy.kernel.util.NamedObj;
+import ptolemy.kernel.util.Workspace;
+import ptolemy.moml.BinaryMoMLWriter;
+import ptolemy.moml.MoMLParser;
+import ptolemy.moml.filter.BackwardCompatibility;
+
+///////////////////////////////////////////////////////////////////
+//// BinaryMoMLBenchmark
+
+/**
+ Compare the time to load models from MoML with the time to load the
+ same models from the binary form written by {@link BinaryMoMLWriter}.
+ MoML is parsed with the backward compatibility filters, as is done
+ by the applications.
+ <p>
+ To run:
+ <pre>
+ java -classpath $PTII ptolemy.moml.test.BinaryMoMLBenchmark [actors | model.xml ...]
+ </pre>
+ If the argument is a number, then the benchmark generates a model
+ with that many actors, which is 20000 by default. Otherwise, the
+ arguments are the names of MoML files to be loaded. For each model,
+ the benchmark reports the sizes of the MoML and the binary form and
+ the average time to load each of them.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class BinaryMoMLBenchmark {
+    /** Run the benchmark and print the results to standard out.
+     *  @param args Either the number of actors in a generated model,
+     *   or the names of MoML files.
+     *  @exception Exception If a model cannot be constructed, written
+     *   or loaded.
+     */
+    public static void main(String[] args) throws Exception {
+        MoMLParser.setMoMLFilters(BackwardCompatibility.allFilters());
+        if (args.length == 0 || args[0].matches("[0-9]+")) {
+            int actors = 20000;
+            if (args.length > 0) {
+                actors = Integer.parseInt(args[0]);
+            }
+            run(actors + " actors", generate(actors).exportMoML());
+        } else {
+            for (int i = 0; i < args.length; i++) {
+                MoMLParser parser = new MoMLParser(new Workspace());
+                NamedObj model = parser.parse(null, new File(args[i]).toURI()
+                        .toURL());
+                run(args[i], model.exportMoML());
+            }
+        }
+    }
+
+    /** Generate a model with a chain of the specified number of actors.
+     *  @param actors The number of actors, which is at least 2.
+     *  @return The model.
+     *  @exception Exception If the model cannot be constructed.
+     */
+    public static NamedObj generate(int actors) throws Exception {
+        TypedCompositeActor toplevel = new TypedCompositeActor(
+                new Workspace());
+        toplevel.setName("benchmark");
+        new SDFDirector(toplevel, "director");
+        Ramp ramp = new Ramp(toplevel, "ramp");
+        TypedIOPort output = ramp.output;
+        for (int i = 0; i < actors - 2; i++) {
+            Scale scale = new Scale(toplevel, "scale" + i);
+            scale.factor.setExpression(Integer.toString(i));
+            toplevel.connect(output, scale.input);
+            output = scale.output;
+        }
+        Discard discard = new Discard(toplevel, "discard");
+        toplevel.connect(output, discard.input);
+        return toplevel;
+    }
+
+    /** Load the specified MoML and its binary form a number of times
+     *  and print the average times.
+     *  @param name The name of the model to print.
+     *  @param moml The MoML of the model.
+     *  @exception Exception If the model cannot be written or loaded.
+     */
+    public static void run(String name, String moml) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new BinaryMoMLWriter(output).write(moml);
+        byte[] binary = output.toByteArray();
+
+        long xmlTime = 0L;
+        long binaryTime = 0L;
+        for (int run = 0; run < _WARMUP_RUNS + _RUNS; run++) {
+            long start = System.nanoTime();
+            new MoMLParser(new Workspace()).parse(moml);
+            long middle = System.nanoTime();
+            new MoMLParser(new Workspace()).parseBinary(null,
+                    new ByteArrayInputStream(binary));
+            long end = System.nanoTime();
+            if (run >= _WARMUP_RUNS) {
+                xmlTime += middle - start;
+                binaryTime += end - middle;
+            }
+        }
+        System.out.println(name + ": MoML " + moml.length() + " chars, "
+                + (xmlTime / _RUNS / 1000000L) + " ms; binary "
+                + binary.length + " bytes, "
+                + (binaryTime / _RUNS / 1000000L) + " ms");
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The number of measured runs. */
+    private static final int _RUNS = 5;
+
+    /** The number of runs to warm up the JIT compiler. */
+    private static final int _WARMUP_RUNS = 2;
+}
@@ -0,0 +1,173 @@
+# Tests for the ClassDefinitionCache class
+#
+# @Author: agent
+#
+# $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+# Return the hits, misses and size of the cache.
+proc statistics {} {
+    list [java::call ptolemy.moml.ClassDefinitionCache getHits] \
+	[java::call ptolemy.moml.ClassDefinitionCache getMisses] \
+	[java::call ptolemy.moml.ClassDefinitionCache size]
+}
+
+set header {<?xml version="1.0" standalone="no"?>
+<!DOCTYPE entity PUBLIC "-//UC Berkeley//DTD MoML 1//EN"
+    "http://ptolemy.eecs.berkeley.edu/xml/dtd/MoML_1.dtd">}
+
+set moml "$header
+<entity name=\"top\" class=\"ptolemy.kernel.CompositeEntity\">
+    <entity name=\"a\" class=\"ptolemy.moml.test.testClass\"/>
+    <entity name=\"b\" class=\"ptolemy.moml.test.testClass\"/>
+</entity>
+"
+
+######################################################################
+####
+#
+test ClassDefinitionCache-1.1 {The parser records the class definitions it reads} {
+    set parser [java::new ptolemy.moml.MoMLParser]
+    $parser resetAll
+    java::call ptolemy.moml.ClassDefinitionCache resetStatistics
+    set toplevel [java::cast ptolemy.kernel.CompositeEntity \
+	    [$parser parse $moml]]
+    # The second instance uses the definition read for the first.
+    set statistics [statistics]
+    set url [$parser fileNameToURL ptolemy/moml/test/testClass.xml \
+	    [java::null]]
+    set definition [java::call ptolemy.moml.ClassDefinitionCache get \
+	    $url ptolemy.moml.test.testClass]
+    list $statistics \
+	[[java::cast java.lang.Object [[$toplevel getEntity a] getParent]] \
+	     equals $definition] \
+	[[java::cast java.lang.Object [[$toplevel getEntity b] getParent]] \
+	     equals $definition]
+} {{1 1 1} 1 1}
+
+######################################################################
+####
+#
+test ClassDefinitionCache-1.2 {A class definition with instances is not purged} {
+    # Uses 1.1 above
+    $parser reset
+    java::call ptolemy.moml.MoMLParser purgeModelRecord $url
+    set toplevel [java::cast ptolemy.kernel.CompositeEntity \
+	    [$parser parse $moml]]
+    list [[java::cast java.lang.Object [[$toplevel getEntity a] getParent]] \
+	     equals $definition] \
+	[java::call ptolemy.moml.ClassDefinitionCache size]
+} {1 1}
+
+######################################################################
+####
+#
+test ClassDefinitionCache-1.3 {Purging the model records clears the cache} {
+    # Uses 1.1 above
+    java::call ptolemy.moml.MoMLParser purgeAllModelRecords
+    java::call ptolemy.moml.ClassDefinitionCache resetStatistics
+    $parser reset
+    set toplevel [java::cast ptolemy.kernel.CompositeEntity \
+	    [$parser parse $moml]]
+    list [statistics] \
+	[[java::cast java.lang.Object [[$toplevel getEntity a] getParent]] \
+	     equals $definition]
+} {{1 1 1} 0}
+
+######################################################################
+####
+#
+test ClassDefinitionCache-1.4 {Another parser uses the cached definition} {
+    # Uses 1.3 above
+    set definition [[$toplevel getEntity a] getParent]
+    java::call ptolemy.moml.ClassDefinitionCache resetStatistics
+    set parser2 [java::new ptolemy.moml.MoMLParser]
+    set toplevel2 [java::cast ptolemy.kernel.CompositeEntity \
+	    [$parser2 parse $moml]]
+    list [statistics] \
+	[[java::cast java.lang.Object [[$toplevel2 getEntity a] getParent]] \
+	     equals $definition]
+} {{2 0 1} 1}
+
+######################################################################
+####
+#
+test ClassDefinitionCache-2.1 {A definition whose file is modified is discarded} {
+    java::call ptolemy.moml.ClassDefinitionCache clear
+    java::call ptolemy.moml.ClassDefinitionCache resetStatistics
+    set file [java::call java.io.File createTempFile ClassDefinitionCache .xml]
+    $file deleteOnExit
+    set fileURL [[$file toURI] toURL]
+    set entity [java::new ptolemy.kernel.ComponentEntity]
+    java::call ptolemy.moml.ClassDefinitionCache put $fileURL Foo $entity
+    set r1 [[java::call ptolemy.moml.ClassDefinitionCache get $fileURL Foo] \
+		equals $entity]
+    set r2 [java::isnull \
+		[java::call ptolemy.moml.ClassDefinitionCache get $fileURL Bar]]
+    $file setLastModified [expr {[$file lastModified] - 10000}]
+    set r3 [java::isnull \
+		[java::call ptolemy.moml.ClassDefinitionCache get $fileURL Foo]]
+    list $r1 $r2 $r3 [statistics]
+} {1 1 1 {1 2 0}}
+
+######################################################################
+####
+#
+test ClassDefinitionCache-2.2 {The least recently used definitions are removed} {
+    java::call ptolemy.moml.ClassDefinitionCache clear
+    set capacity [java::call ptolemy.moml.ClassDefinitionCache getCapacity]
+    java::call ptolemy.moml.ClassDefinitionCache setCapacity 2
+    foreach name {a b c} {
+	set u($name) [java::new java.net.URL http://example.com/$name.xml]
+    }
+    java::call ptolemy.moml.ClassDefinitionCache put $u(a) a $entity
+    java::call ptolemy.moml.ClassDefinitionCache put $u(b) b $entity
+    # Use a so that b is the least recently used.
+    java::call ptolemy.moml.ClassDefinitionCache get $u(a) a
+    java::call ptolemy.moml.ClassDefinitionCache put $u(c) c $entity
+    set result [list \
+	    [java::isnull [java::call ptolemy.moml.ClassDefinitionCache get \
+				$u(a) a]] \
+	    [java::isnull [java::call ptolemy.moml.ClassDefinitionCache get \
+				$u(b) b]] \
+	    [java::isnull [java::call ptolemy.moml.ClassDefinitionCache get \
+				$u(c) c]]]
+    java::call ptolemy.moml.ClassDefinitionCache setCapacity 0
+    lappend result [java::call ptolemy.moml.ClassDefinitionCache size]
+    catch {java::call ptolemy.moml.ClassDefinitionCache setCapacity -1} msg
+    java::call ptolemy.moml.ClassDefinitionCache setCapacity $capacity
+    list $result $msg
+} {{0 1 0 0} {java.lang.IllegalArgumentException: Invalid capacity: -1}}
@@ -0,0 +1,127 @@
+# Tests for the ModelSweep class
+#
+# @Author: agent
+#
+# $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+# Return a list of variants, each of which gives one of the values
+# to the parameter with the given name.
+proc variants {name values} {
+    set variants [java::new java.util.ArrayList]
+    foreach value $values {
+	set variant [java::new java.util.LinkedHashMap]
+	$variant put $name $value
+	$variants add $variant
+    }
+    return $variants
+}
+
+set url [[java::new java.io.File ModelSweepTest.xml] toURL]
+set resultNames [java::new {String[]} 1 {result}]
+
+######################################################################
+####
+#
+test ModelSweep-1.1 {Sweep a parameter, with a change of type and a failure} {
+    set sweep [java::new {ptolemy.moml.ModelSweep java.net.URL} $url]
+    $sweep setThreadCount 2
+    set collector [java::new ptolemy.moml.SweepResultCollector $resultNames]
+    $sweep run [variants x {1.0 2.0 3.0 1 nonexistent 5.0}] $collector
+    list [$sweep getThreadCount] [$collector toString]
+} {2 {0: x=1.0 -> result=10.0
+1: x=2.0 -> result=14.0
+2: x=3.0 -> result=18.0
+3: x=1 -> result=10
+4: x=nonexistent -> failed: ptolemy.kernel.util.IllegalActionException: Error evaluating expression: nonexistent
+5: x=5.0 -> result=26.0
+}}
+
+######################################################################
+####
+#
+test ModelSweep-1.2 {Parameters not in a variant get back their values} {
+    set sweep [java::new {ptolemy.moml.ModelSweep java.net.URL} $url]
+    $sweep setThreadCount 1
+    set variants [variants x {2.0 2.0}]
+    [java::cast java.util.Map [$variants get 0]] put \
+	    {SDF Director.iterations} 2
+    set collector [java::new ptolemy.moml.SweepResultCollector $resultNames]
+    $sweep run $variants $collector
+    $collector toString
+} {0: x=2.0 SDF Director.iterations=2 -> result=5.0
+1: x=2.0 -> result=14.0
+}
+
+######################################################################
+####
+#
+test ModelSweep-1.3 {Resolving types again gives the same results} {
+    set sweep [java::new {ptolemy.moml.ModelSweep java.net.URL} $url]
+    $sweep setReuseResolvedTypes false
+    $sweep setThreadCount 1
+    set collector [java::new ptolemy.moml.SweepResultCollector $resultNames]
+    $sweep run [variants x {1.0 2.0 1}] $collector
+    list [$sweep getReuseResolvedTypes] [$collector toString]
+} {0 {0: x=1.0 -> result=10.0
+1: x=2.0 -> result=14.0
+2: x=1 -> result=10
+}}
+
+######################################################################
+####
+#
+test ModelSweep-2.1 {product} {
+    set expressions [java::new java.util.LinkedHashMap]
+    $expressions put a [java::call java.util.Arrays asList \
+	    [java::new {Object[]} 2 {1 2}]]
+    $expressions put b [java::call java.util.Arrays asList \
+	    [java::new {Object[]} 3 {x y z}]]
+    java::call String valueOf \
+	    [java::call ptolemy.moml.ModelSweep product $expressions]
+} {[{a=1, b=x}, {a=1, b=y}, {a=1, b=z}, {a=2, b=x}, {a=2, b=y}, {a=2, b=z}]}
+
+######################################################################
+####
+#
+test ModelSweep-2.2 {A missing result variable is reported as a failure} {
+    set sweep [java::new {ptolemy.moml.ModelSweep java.net.URL} $url]
+    set names [java::new {String[]} 1 {noSuchVariable}]
+    set collector [java::new ptolemy.moml.SweepResultCollector $names]
+    $sweep run [variants x {1.0}] $collector
+    $collector toString
+} {0: x=1.0 -> failed: ptolemy.kernel.util.IllegalActionException: No variable named "noSuchVariable".
+}
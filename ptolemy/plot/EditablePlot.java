@@ -35,7 +35,6 @@ import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Stack;
 import java.util.Vector;
@@ -120,14 +119,13 @@ public class EditablePlot extends Plot {
     public double[][] getData(int dataset) {
         _checkDatasetIndex(dataset);
 
-        ArrayList<PlotPoint> pts = _points.get(dataset);
+        PlotPointBuffer pts = _points.get(dataset);
         int size = pts.size();
         double[][] result = new double[2][size];
 
         for (int i = 0; i < size; i++) {
-            PlotPoint pt = pts.get(i);
-            result[0][i] = pt.x;
-            result[1][i] = pt.y;
+            result[0][i] = pts.getX(i);
+            result[1][i] = pts.getY(i);
         }
 
         return result;
@@ -246,27 +244,29 @@ public class EditablePlot extends Plot {
         _editPoint(x, y);
 
         // Edit the points in the signal.
-        ArrayList<PlotPoint> pts = _points.get(_dataset);
+        PlotPointBuffer pts = _points.get(_dataset);
 
         for (int i = 0; i < pts.size(); i++) {
-            PlotPoint pt = pts.get(i);
+            double pointX = pts.getX(i);
 
             // Only bother with points in visual range
-            if ((pt.x >= _xMin) && (pt.x <= _xMax)) {
-                int index = (int) ((pt.x - _xMin) * _xscale)
+            if ((pointX >= _xMin) && (pointX <= _xMax)) {
+                int index = (int) ((pointX - _xMin) * _xscale)
                         - (_lrx - _ulx - _editSpecX.length);
 
                 if ((index >= 0) && (index < _editSpecX.length)) {
                     if (_editSpecSet[index]) {
-                        pt.y = _yMax - ((_editSpecY[index] - _uly) / _yscale);
+                        double pointY = _yMax
+                                - ((_editSpecY[index] - _uly) / _yscale);
+                        pts.setY(i, pointY);
 
                         // For auto-ranging, keep track of min and max.
-                        if (pt.y < _yBottom) {
-                            _yBottom = pt.y;
+                        if (pointY < _yBottom) {
+                            _yBottom = pointY;
                         }
 
-                        if (pt.y > _yTop) {
-                            _yTop = pt.y;
+                        if (pointY > _yTop) {
+                            _yTop = pointY;
                         }
                     }
                 }
@@ -409,7 +409,7 @@ public class EditablePlot extends Plot {
     private void _setData(int dataset, double[][] data) {
         _checkDatasetIndex(dataset);
 
-        ArrayList<PlotPoint> pts = _points.get(dataset);
+        PlotPointBuffer pts = _points.get(dataset);
         int size = pts.size();
 
         if (data[0].length < size) {
@@ -417,9 +417,8 @@ public class EditablePlot extends Plot {
         }
 
         for (int i = 0; i < size; i++) {
-            PlotPoint pt = pts.get(i);
-            pt.x = data[0][i];
-            pt.y = data[1][i];
+            pts.setX(i, data[0][i]);
+            pts.setY(i, data[1][i]);
         }
     }
 
@@ -892,7 +892,8 @@ public class Plot extends PlotBox implements PlotInterface {
         _lastPointWithExtraDot.clear();
 
         for (int i = 0; i < numSets; i++) {
-            _points.add(new ArrayList<PlotPoint>());
+            _points.add(new PlotPointBuffer());
+            _bins.add(new ArrayList<Bin>());
             _formats.add(new Format());
             _prevxpos.add(_INITIAL_PREVIOUS_VALUE);
             _prevypos.add(_INITIAL_PREVIOUS_VALUE);
@@ -1005,22 +1006,22 @@ public class Plot extends PlotBox implements PlotInterface {
             output.println("<dataset" + options.toString() + ">");
 
             // Write the data
-            ArrayList<PlotPoint> pts = _points.get(dataset);
+            PlotPointBuffer pts = _points.get(dataset);
 
             for (int pointnum = 0; pointnum < pts.size(); pointnum++) {
-                PlotPoint pt = pts.get(pointnum);
-
-                if (!pt.connected) {
+                if (!pts.isConnected(pointnum)) {
                     output.print("<m ");
                 } else {
                     output.print("<p ");
                 }
 
-                output.print("x=\"" + pt.x + "\" y=\"" + pt.y + "\"");
+                output.print("x=\"" + pts.getX(pointnum) + "\" y=\""
+                        + pts.getY(pointnum) + "\"");
 
-                if (pt.errorBar) {
-                    output.print(" lowErrorBar=\"" + pt.yLowEB
-                            + "\" highErrorBar=\"" + pt.yHighEB + "\"");
+                if (pts.hasErrorBar(pointnum)) {
+                    output.print(" lowErrorBar=\"" + pts.getYLowEB(pointnum)
+                            + "\" highErrorBar=\"" + pts.getYHighEB(pointnum)
+                            + "\"");
                 }
 
                 output.println("/>");
@@ -1109,9 +1110,8 @@ public class Plot extends PlotBox implements PlotInterface {
         }
 
         while (dataset >= _points.size()) {
-            _points.add(new ArrayList<PlotPoint>());
+            _points.add(new PlotPointBuffer());
             _bins.add(new ArrayList<Bin>());
-            _pointInBinOffset.add(0);
             _formats.add(new Format());
             _prevxpos.add(_INITIAL_PREVIOUS_VALUE);
             _prevypos.add(_INITIAL_PREVIOUS_VALUE);
@@ -1412,8 +1412,14 @@ public class Plot extends PlotBox implements PlotInterface {
         super._drawPlot(graphics, clearfirst, drawRectangle);
 
         // Divide the points into different Bins. This should be done each time
-        // _xscale and _yscale are set
-        _dividePointsIntoBins();
+        // _xscale and _yscale are changed.  Otherwise, the bins are still
+        // valid and only need to be drawn again, which does not require
+        // visiting every point.
+        if (_binsAreValid()) {
+            _resetBinsForReplot();
+        } else {
+            _dividePointsIntoBins();
+        }
 
         // Plot the points in reverse order so that the first colors
         // appear on top.
@@ -1438,22 +1444,23 @@ public class Plot extends PlotBox implements PlotInterface {
                 // case the mark has to be removed again.
 
                 boolean connectedFlag = getConnected();
-                ArrayList<PlotPoint> points = _points.get(dataset);
+                PlotPointBuffer points = _points.get(dataset);
 
                 int currentPointPosition = points.size() - 1;
-                PlotPoint lastPoint = points.get(currentPointPosition);
-                if (connectedFlag && lastPoint.connected) {
+                if (connectedFlag && points.isConnected(currentPointPosition)) {
                     // In case the point is not connected there is already a dot.
                     _setColorForDrawing(graphics, dataset, false);
                     long xpos = bin.xpos;
-                    long ypos = _lry - (long) ((lastPoint.y - _yMin) * _yscale);
+                    long ypos = _lry
+                            - (long) ((points.getY(currentPointPosition) - _yMin) * _yscale);
                     // BRDebug System.out.println("_drawPlot");
                     _drawPoint(graphics, dataset, xpos, ypos, true, 2 /*dots*/);
                     _resetColorForDrawing(graphics, false);
 
                     // We keep track of the last dot that has been add to be able to
                     // remove the dot again in case an extra point was added afterwards.
-                    _lastPointWithExtraDot.put(dataset, lastPoint);
+                    _lastPointWithExtraDot.put(dataset,
+                            points.getFirstSequence() + currentPointPosition);
                 }
             }
         }
@@ -1496,21 +1503,20 @@ public class Plot extends PlotBox implements PlotInterface {
 
         for (int i = 0; i < _points.size(); i++) {
             result.append("\\pscurve[showpoints=true]{-}");
-            ArrayList<PlotPoint> pts = _points.get(i);
+            PlotPointBuffer pts = _points.get(i);
             for (int pointnum = 0; pointnum < pts.size(); pointnum++) {
-                PlotPoint pt = pts.get(pointnum);
-                if (!pt.connected) {
+                if (!pts.isConnected(pointnum)) {
                     // FIXME: Break connection.
                 }
-                if (pt.errorBar) {
+                if (pts.hasErrorBar(pointnum)) {
                     // FIXME: Support error bars.
                 } else {
                     // NOTE: Latex doesn't understand scientific notation,
                     // so we can't just use pt.x and pt.y.
                     result.append("(");
-                    formatter.format("%f", pt.x);
+                    formatter.format("%f", pts.getX(pointnum));
                     result.append(",");
-                    formatter.format("%f", pt.y);
+                    formatter.format("%f", pts.getY(pointnum));
                     result.append(")");
                 }
             }
@@ -1994,20 +2000,21 @@ public class Plot extends PlotBox implements PlotInterface {
             }
 
             // Write the data
-            ArrayList<PlotPoint> pts = _points.get(dataset);
+            PlotPointBuffer pts = _points.get(dataset);
 
             for (int pointnum = 0; pointnum < pts.size(); pointnum++) {
-                PlotPoint pt = pts.get(pointnum);
-
-                if (!pt.connected) {
+                if (!pts.isConnected(pointnum)) {
                     output.print("move: ");
                 }
 
-                if (pt.errorBar) {
-                    output.println(pt.x + ", " + pt.y + ", " + pt.yLowEB + ", "
-                            + pt.yHighEB);
+                if (pts.hasErrorBar(pointnum)) {
+                    output.println(pts.getX(pointnum) + ", "
+                            + pts.getY(pointnum) + ", "
+                            + pts.getYLowEB(pointnum) + ", "
+                            + pts.getYHighEB(pointnum));
                 } else {
-                    output.println(pt.x + ", " + pt.y);
+                    output.println(pts.getX(pointnum) + ", "
+                            + pts.getY(pointnum));
                 }
             }
         }
@@ -2024,8 +2031,8 @@ public class Plot extends PlotBox implements PlotInterface {
      */
     protected volatile int _marks;
 
-    /** A vector of datasets. */
-    protected ArrayList<ArrayList<PlotPoint>> _points = new ArrayList<ArrayList<PlotPoint>>();
+    /** The points of each dataset. */
+    protected ArrayList<PlotPointBuffer> _points = new ArrayList<PlotPointBuffer>();
 
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
@@ -2117,7 +2124,7 @@ public class Plot extends PlotBox implements PlotInterface {
         }
 
         ArrayList<Bin> bins = _bins.get(dataset);
-        ArrayList<PlotPoint> points = _points.get(dataset);
+        PlotPointBuffer points = _points.get(dataset);
 
         // If X persistence has been set, then delete any old points.
         if (_xPersistence > 0.0) {
@@ -2127,7 +2134,7 @@ public class Plot extends PlotBox implements PlotInterface {
             while (numToDelete < nbrOfBins) {
                 Bin old = bins.get(numToDelete);
 
-                if ((x - points.get(old.firstPointIndex()).originalx) <= _xPersistence) {
+                if ((x - points.getOriginalX(old.firstPointIndex())) <= _xPersistence) {
                     break;
                 }
 
@@ -2150,10 +2157,8 @@ public class Plot extends PlotBox implements PlotInterface {
         // Get the new size after deletions.
         int size = points.size();
 
-        PlotPoint pt = new PlotPoint();
-
         // Original value of x before wrapping.
-        pt.originalx = x;
+        double originalx = x;
 
         // Modify x if wrapping.
         if (_wrap) {
@@ -2215,9 +2220,7 @@ public class Plot extends PlotBox implements PlotInterface {
             }
         }
 
-        pt.x = x;
-        pt.y = y;
-        pt.connected = connected && _isConnected(dataset);
+        boolean pointConnected = connected && _isConnected(dataset);
 
         if (errorBar) {
             if (yLowEB < _yBottom) {
@@ -2235,28 +2238,26 @@ public class Plot extends PlotBox implements PlotInterface {
             if (yHighEB > _yTop) {
                 _yTop = yHighEB;
             }
-
-            pt.yLowEB = yLowEB;
-            pt.yHighEB = yHighEB;
-            pt.errorBar = true;
         }
 
         // If this is the first point in the dataset, clear the connected bit.
         if (size == 0) {
-            pt.connected = false;
+            pointConnected = false;
         } else if (_wrap) {
             // Do not connect points if wrapping...
-            PlotPoint old = points.get(size - 1);
-
-            if (old.x > x) {
-                pt.connected = false;
+            if (points.getX(size - 1) > x) {
+                pointConnected = false;
             }
         }
 
-        points.add(pt);
+        if (errorBar) {
+            points.add(x, y, originalx, yLowEB, yHighEB, pointConnected);
+        } else {
+            points.add(x, y, originalx, pointConnected);
+        }
 
         int nbrOfBins = dataset < _bins.size() ? _bins.get(dataset).size() : 0;
-        _addPointToBin(dataset, pt, size);
+        _addPointToBin(dataset, x, y, pointConnected, errorBar, size);
 
         boolean binAdded = _bins.get(dataset).size() != nbrOfBins;
 
@@ -2355,7 +2356,8 @@ public class Plot extends PlotBox implements PlotInterface {
      * (the same xpos) it will be added to this one, otherwise a new bin will
      * be created
      */
-    private void _addPointToBin(int dataset, PlotPoint point, int pointIndex) {
+    private void _addPointToBin(int dataset, double x, double y,
+            boolean connected, boolean errorBar, int pointIndex) {
         ArrayList<Bin> bins = _bins.get(dataset); //we could move this out of this function (for performance)
 
         // Use long for positions because these numbers can be quite large
@@ -2363,8 +2365,12 @@ public class Plot extends PlotBox implements PlotInterface {
 
         // _drawPlot should have been called to fill in _xscale and _yscale
 
-        long xpos = _ulx + (long) ((point.x - _xMin) * _xscale);
-        long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+        if (!_binsMatchScale()) {
+            // The bins now mix positions computed with different scales.
+            _binsValid = false;
+        }
+        long xpos = _ulx + (long) ((x - _xMin) * _xscale);
+        long ypos = _lry - (long) ((y - _yMin) * _yscale);
         int nbrOfBins = bins.size();
         //Cached since it came out in JProfiler (everything becomes costly if you
         //  do it a lot of times)
@@ -2379,7 +2385,43 @@ public class Plot extends PlotBox implements PlotInterface {
             lastBin = new Bin(xpos, dataset);
             bins.add(lastBin);
         }
-        lastBin.addPoint(point, pointIndex, ypos);
+        lastBin.addPoint(connected, errorBar, pointIndex, ypos);
+    }
+
+    /* Return true if the bins were computed with the current scale and
+     * hold exactly the current points, in which case they do not need
+     * to be computed again.
+     */
+    private boolean _binsAreValid() {
+        if (!_binsValid || !_binsMatchScale()
+                || _bins.size() != _points.size()) {
+            return false;
+        }
+        long modifications = 0L;
+        for (int dataset = 0; dataset < _points.size(); dataset++) {
+            PlotPointBuffer points = _points.get(dataset);
+            ArrayList<Bin> bins = _bins.get(dataset);
+            modifications += points.getModificationCount();
+            if (bins.size() == 0) {
+                if (points.size() != 0) {
+                    return false;
+                }
+            } else if (bins.get(0).firstPointIndex() != 0
+                    || bins.get(bins.size() - 1).afterLastPointIndex() != points
+                            .size()) {
+                return false;
+            }
+        }
+        return modifications == _binnedModifications;
+    }
+
+    /* Return true if the scale that the bins were computed with is the
+     * current scale.
+     */
+    private boolean _binsMatchScale() {
+        return _binnedXMin == _xMin && _binnedYMin == _yMin
+                && _binnedXScale == _xscale && _binnedYScale == _yscale
+                && _binnedUlx == _ulx && _binnedLry == _lry;
     }
 
     /* Clear the plot of all data points.  If the argument is true, then
@@ -2401,10 +2443,12 @@ public class Plot extends PlotBox implements PlotInterface {
             data.clear();
         }
         _bins.clear();
+        _binsValid = false;
         _prevxpos.clear();
         _prevypos.clear();
         _prevErasedxpos.clear();
         _prevErasedypos.clear();
+        _lastPointWithExtraDot.clear();
         _maxDataset = -1;
         _firstInSet = true;
         _sawFirstDataSet = false;
@@ -2441,7 +2485,7 @@ public class Plot extends PlotBox implements PlotInterface {
         _checkDatasetIndex(dataset);
         _xyInvalid = true;
 
-        ArrayList<PlotPoint> points = _points.get(dataset);
+        PlotPointBuffer points = _points.get(dataset);
 
         points.clear();
 
@@ -2452,11 +2496,10 @@ public class Plot extends PlotBox implements PlotInterface {
         repaint();
     }
 
-    /** Subdivide all points into different bins. A bin is represents a number of
-     * points that are all displayed on the same x position. When calling this function
-     * all existing bins will first be cleared.
+    /* Cancel the drawing and erasing of bins scheduled for the next
+     * timed repaint, because the plot is about to be drawn entirely.
      */
-    private void _dividePointsIntoBins() {
+    private void _clearScheduledBinRedraws() {
         for (int i = 0; i < _scheduledBinsToAdd.size(); ++i) {
             _scheduledBinsToAdd.set(i, 0);
         }
@@ -2464,20 +2507,39 @@ public class Plot extends PlotBox implements PlotInterface {
             _scheduledBinsToErase.set(i, 0);
         }
         _needBinRedraw = false;
+    }
+
+    /** Subdivide all points into different bins. A bin is represents a number of
+     * points that are all displayed on the same x position. When calling this function
+     * all existing bins will first be cleared.
+     */
+    private void _dividePointsIntoBins() {
+        _clearScheduledBinRedraws();
+
+        _binnedXMin = _xMin;
+        _binnedYMin = _yMin;
+        _binnedXScale = _xscale;
+        _binnedYScale = _yscale;
+        _binnedUlx = _ulx;
+        _binnedLry = _lry;
+        _binnedModifications = 0L;
+        _binsValid = true;
 
         _bins.clear();
-        _pointInBinOffset.clear();
         int nbrOfDataSets = _points.size();
         for (int i = 0; i < nbrOfDataSets; ++i) {
             _bins.add(new ArrayList<Bin>());
-            _pointInBinOffset.add(0);
         }
 
         for (int dataset = 0; dataset < nbrOfDataSets; ++dataset) {
-            ArrayList<PlotPoint> points = _points.get(dataset);
+            PlotPointBuffer points = _points.get(dataset);
+            _binnedModifications += points.getModificationCount();
             int numberOfPoints = points.size();
             for (int pointIndex = 0; pointIndex < numberOfPoints; ++pointIndex) {
-                _addPointToBin(dataset, points.get(pointIndex), pointIndex);
+                _addPointToBin(dataset, points.getX(pointIndex),
+                        points.getY(pointIndex),
+                        points.isConnected(pointIndex),
+                        points.hasErrorBar(pointIndex), pointIndex);
             }
         }
     }
@@ -2517,7 +2579,7 @@ public class Plot extends PlotBox implements PlotInterface {
         int startPosition = bin.nextPointToPlot();
         int endPosition = bin.afterLastPointIndex();
 
-        ArrayList<PlotPoint> points = _points.get(dataset);
+        PlotPointBuffer points = _points.get(dataset);
 
         // Check to see whether the dataset has a marks directive
         int marks = _marks;
@@ -2531,16 +2593,18 @@ public class Plot extends PlotBox implements PlotInterface {
 
         if (_markDisconnections && marks == 0 && endPosition > startPosition
                 && startPosition > 0) {
-            PlotPoint previousPoint = points.get(startPosition - 1);
-            if (!(connectedFlag && points.get(startPosition).connected)) {
+            Long previousPoint = Long.valueOf(points.getFirstSequence()
+                    + startPosition - 1);
+            if (!(connectedFlag && points.isConnected(startPosition))) {
 
                 // This point is not connected with the previous one.
                 // We want to put a dot each end of the at each segment.
                 // If the previous one was connected no dot was drawn.
                 // We will now add this extra dot for the previous point.
 
-                if (connectedFlag && previousPoint.connected) {
-                    if (_lastPointWithExtraDot.get(dataset) != previousPoint) {
+                if (connectedFlag && points.isConnected(startPosition - 1)) {
+                    if (!previousPoint.equals(_lastPointWithExtraDot
+                            .get(dataset))) {
                         long prevypos = _prevypos.get(dataset);
                         long prevxpos = _prevxpos.get(dataset);
                         // BRDebug System.out.println("Plotting point:" + prevxpos + ", " + prevypos +  ", position :" + (startPosition-1) + ", previous");
@@ -2556,7 +2620,7 @@ public class Plot extends PlotBox implements PlotInterface {
                     }
                 }
             } else {
-                if (_lastPointWithExtraDot.get(dataset) == previousPoint) {
+                if (previousPoint.equals(_lastPointWithExtraDot.get(dataset))) {
                     long prevypos = _prevypos.get(dataset);
                     long prevxpos = _prevxpos.get(dataset);
                     // BRDebug System.err.println("Erasing point:" + prevxpos + ", " + prevypos +  ", position :" + (startPosition-1) + ", previous");
@@ -2592,8 +2656,7 @@ public class Plot extends PlotBox implements PlotInterface {
             long prevxpos = _prevxpos.get(dataset);
 
             for (int i = startPosition; i < endPosition; ++i) {
-                PlotPoint point = points.get(i);
-                long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                long ypos = _lry - (long) ((points.getY(i) - _yMin) * _yscale);
                 if (prevypos != ypos || prevxpos != xpos) {
                     _drawImpulse(graphics, xpos, ypos, true);
                     prevypos = ypos;
@@ -2602,20 +2665,23 @@ public class Plot extends PlotBox implements PlotInterface {
             }
         }
 
-        {
+        // Without marks, only the bin itself is drawn, so there is no
+        // need to visit its points.
+        if (_marks != 0 || _markDisconnections) {
             long prevypos = _prevypos.get(dataset);
             long prevxpos = _prevxpos.get(dataset);
 
             for (int i = startPosition; i < endPosition; ++i) {
-                PlotPoint point = points.get(i);
+                boolean pointConnected = points.isConnected(i);
 
                 // I a point is not connected, we mark it with a dot.
                 if (_marks != 0
-                        || (_markDisconnections && !(connectedFlag && point.connected))) {
-                    long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                        || (_markDisconnections && !(connectedFlag && pointConnected))) {
+                    long ypos = _lry
+                            - (long) ((points.getY(i) - _yMin) * _yscale);
                     if (prevypos != ypos || prevxpos != xpos) {
                         int updatedMarks = marks;
-                        if (!(connectedFlag && point.connected) && marks == 0) {
+                        if (!(connectedFlag && pointConnected) && marks == 0) {
                             updatedMarks = 2; // marking style: dots
                         }
                         // BRDebug System.out.println("Plotting point:" + xpos + ", " + ypos +  ", position :" + (i) + ", current");
@@ -2632,8 +2698,7 @@ public class Plot extends PlotBox implements PlotInterface {
             long prevypos = _prevypos.get(dataset);
             long prevxpos = _prevxpos.get(dataset);
             for (int i = startPosition; i < endPosition; ++i) {
-                PlotPoint point = points.get(i);
-                long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                long ypos = _lry - (long) ((points.getY(i) - _yMin) * _yscale);
                 if (prevypos != ypos || prevxpos != xpos) {
                     _drawBar(graphics, dataset, xpos, ypos, true);
                     prevypos = ypos;
@@ -2646,18 +2711,18 @@ public class Plot extends PlotBox implements PlotInterface {
             long prevypos = _prevypos.get(dataset);
             long prevxpos = _prevxpos.get(dataset);
             for (int i = startPosition; i < endPosition; ++i) {
-                PlotPoint point = points.get(i);
-                if (point.errorBar) {
-                    long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                if (points.hasErrorBar(i)) {
+                    long ypos = _lry
+                            - (long) ((points.getY(i) - _yMin) * _yscale);
                     if (prevypos != ypos || prevxpos != xpos) {
                         _drawErrorBar(
                                 graphics,
                                 dataset,
                                 xpos,
                                 _lry
-                                        - (long) ((point.yLowEB - _yMin) * _yscale),
+                                        - (long) ((points.getYLowEB(i) - _yMin) * _yscale),
                                 _lry
-                                        - (long) ((point.yHighEB - _yMin) * _yscale),
+                                        - (long) ((points.getYHighEB(i) - _yMin) * _yscale),
                                 true);
                         prevypos = ypos;
                         prevxpos = xpos;
@@ -2918,7 +2983,7 @@ public class Plot extends PlotBox implements PlotInterface {
         // Plot has probably been dismissed.  Return.
         Graphics graphics = getGraphics();
 
-        ArrayList<PlotPoint> points = _points.get(dataset);
+        PlotPointBuffer points = _points.get(dataset);
         ArrayList<Bin> bins = _bins.get(dataset);
         Bin bin = bins.get(0);
         int nbrOfBins = bins.size();
@@ -2964,8 +3029,8 @@ public class Plot extends PlotBox implements PlotInterface {
                 long prevypos = _prevErasedypos.get(dataset);
                 long prevxpos = _prevErasedxpos.get(dataset);
                 for (int i = startPosition; i < endPosition; ++i) {
-                    PlotPoint point = points.get(i);
-                    long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                    long ypos = _lry
+                            - (long) ((points.getY(i) - _yMin) * _yscale);
                     if (prevypos != ypos || prevxpos != xpos) {
                         _drawImpulse(graphics, xpos, ypos, true);
                         prevypos = ypos;
@@ -2985,12 +3050,13 @@ public class Plot extends PlotBox implements PlotInterface {
                 long prevxpos = _prevErasedxpos.get(dataset);
 
                 for (int i = startPosition; i < endPosition; ++i) {
-                    PlotPoint point = points.get(i);
-                    if (marks != 0 || !(connectedFlag && point.connected)) {
-                        long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                    boolean pointConnected = points.isConnected(i);
+                    if (marks != 0 || !(connectedFlag && pointConnected)) {
+                        long ypos = _lry
+                                - (long) ((points.getY(i) - _yMin) * _yscale);
                         if (prevypos != ypos || prevxpos != xpos) {
                             int updatedMarks = marks;
-                            if (!(connectedFlag && point.connected)
+                            if (!(connectedFlag && pointConnected)
                                     && marks == 0) {
                                 updatedMarks = 2; // marking style: dots
                             }
@@ -3008,16 +3074,15 @@ public class Plot extends PlotBox implements PlotInterface {
             if (_markDisconnections && marks == 0
                     && endPosition > startPosition
                     && endPosition < points.size()) {
-                PlotPoint point = points.get(endPosition - 1);
-                if ((connectedFlag && point.connected)) {
+                if ((connectedFlag && points.isConnected(endPosition - 1))) {
 
                     // This point is not connected with the previous one.
                     // We want to put a dot each end of the at each segment.
                     // If the previous one was connected no dot was drawn.
                     // We will now add this extra dot for the previous point.
-                    PlotPoint nextPoint = points.get(endPosition);
-                    if (!(connectedFlag && nextPoint.connected)) {
-                        long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                    if (!(connectedFlag && points.isConnected(endPosition))) {
+                        long ypos = _lry
+                                - (long) ((points.getY(endPosition - 1) - _yMin) * _yscale);
                         // BRDebug System.out.println("Erasing point:" + xpos + ", " + ypos +  ", position :" + (endPosition-1) + ", previous");
                         _drawPoint(graphics, dataset, xpos, ypos, true, 2 /*dots*/);
                     }
@@ -3029,8 +3094,8 @@ public class Plot extends PlotBox implements PlotInterface {
                 long prevxpos = _prevErasedxpos.get(dataset);
 
                 for (int i = startPosition; i < endPosition; ++i) {
-                    PlotPoint point = points.get(i);
-                    long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                    long ypos = _lry
+                            - (long) ((points.getY(i) - _yMin) * _yscale);
                     if (prevypos != ypos || prevxpos != xpos) {
                         _drawBar(graphics, dataset, xpos, ypos, true);
                         prevypos = ypos;
@@ -3044,18 +3109,18 @@ public class Plot extends PlotBox implements PlotInterface {
                 long prevxpos = _prevErasedxpos.get(dataset);
 
                 for (int i = startPosition; i < endPosition; ++i) {
-                    PlotPoint point = points.get(i);
-                    if (point.errorBar) {
-                        long ypos = _lry - (long) ((point.y - _yMin) * _yscale);
+                    if (points.hasErrorBar(i)) {
+                        long ypos = _lry
+                                - (long) ((points.getY(i) - _yMin) * _yscale);
                         if (prevypos != ypos || prevxpos != xpos) {
                             _drawErrorBar(
                                     graphics,
                                     dataset,
                                     xpos,
                                     _lry
-                                            - (long) ((point.yLowEB - _yMin) * _yscale),
+                                            - (long) ((points.getYLowEB(i) - _yMin) * _yscale),
                                     _lry
-                                            - (long) ((point.yHighEB - _yMin) * _yscale),
+                                            - (long) ((points.getYHighEB(i) - _yMin) * _yscale),
                                     true);
                             prevypos = ypos;
                             prevxpos = xpos;
@@ -3091,18 +3156,10 @@ public class Plot extends PlotBox implements PlotInterface {
 
         //Delete points and bin
         assert startPosition == 0; //No actually necessary in this code, but it should be valid
-        for (int i = startPosition; i < endPosition; ++i) {
-            points.remove(startPosition);
-        }
-        assert bin.firstPointIndex() >= 0;
-
-        _pointInBinOffset.set(dataset,
-                _pointInBinOffset.get(dataset) + bin.afterLastPointIndex()
-                        - bin.firstPointIndex());
-        //FIXME? Warning: Could overflow for scopes with a really large history...
-        //  (the points aren't kept in memory, since it is only here where it goes wrong.
-        //  We could check for overflow and in this case reset the _pointInBinOffset to
-        //  zero, recalculate all bins, and repaint everything.
+        // The bins refer to points by their sequence numbers, which do not
+        // change when points are removed from the front of the buffer,
+        // so this takes constant time.
+        points.removeFirst(endPosition - startPosition);
 
         //This code is actually only checking some invariants. Not revelant in
         //      production code
@@ -3153,25 +3210,26 @@ public class Plot extends PlotBox implements PlotInterface {
             _yTop = -Double.MAX_VALUE;
 
             for (int dataset = 0; dataset < _points.size(); dataset++) {
-                ArrayList<PlotPoint> points = _points.get(dataset);
+                PlotPointBuffer points = _points.get(dataset);
 
                 for (int index = 0; index < points.size(); index++) {
-                    PlotPoint pt = points.get(index);
+                    double x = points.getX(index);
+                    double y = points.getY(index);
 
-                    if (pt.x < _xBottom) {
-                        _xBottom = pt.x;
+                    if (x < _xBottom) {
+                        _xBottom = x;
                     }
 
-                    if (pt.x > _xTop) {
-                        _xTop = pt.x;
+                    if (x > _xTop) {
+                        _xTop = x;
                     }
 
-                    if (pt.y < _yBottom) {
-                        _yBottom = pt.y;
+                    if (y < _yBottom) {
+                        _yBottom = y;
                     }
 
-                    if (pt.y > _yTop) {
-                        _yTop = pt.y;
+                    if (y > _yTop) {
+                        _yTop = y;
                     }
                 }
             }
@@ -3210,6 +3268,19 @@ public class Plot extends PlotBox implements PlotInterface {
         }
     }
 
+    /* Prepare the bins, which are valid, to be drawn entirely again.
+     * This takes time proportional to the number of bins rather than
+     * to the number of points.
+     */
+    private void _resetBinsForReplot() {
+        _clearScheduledBinRedraws();
+        for (ArrayList<Bin> bins : _bins) {
+            for (Bin bin : bins) {
+                bin.resetDisplayStateForReplot();
+            }
+        }
+    }
+
     /** Reset the color for drawing. This typically needs to happen after having drawn
      *  a bin or erasing one.
      *  @param graphics The graphics context.
@@ -3306,6 +3377,21 @@ public class Plot extends PlotBox implements PlotInterface {
      */
     private ArrayList<ArrayList<Bin>> _bins = new ArrayList<ArrayList<Bin>>();
 
+    // The scale with which the bins were computed.
+    private int _binnedLry;
+    private double _binnedXMin = Double.NaN;
+    private double _binnedXScale = Double.NaN;
+    private int _binnedUlx;
+    private double _binnedYMin = Double.NaN;
+    private double _binnedYScale = Double.NaN;
+
+    // The sum of the modification counts of the points when the bins
+    // were computed.  See PlotPointBuffer.getModificationCount().
+    private long _binnedModifications;
+
+    // False if the bins have to be computed again before they are drawn.
+    private boolean _binsValid = false;
+
     /** @serial True if the points are connected. */
     private boolean _connected = true;
 
@@ -3340,7 +3426,8 @@ public class Plot extends PlotBox implements PlotInterface {
 
     // We keep track of the last dot that has been add to be able to
     // remove the dot again in case an extra point was added afterwards.
-    private HashMap<Integer, PlotPoint> _lastPointWithExtraDot = new HashMap<Integer, PlotPoint>();
+    // The point is identified by its sequence number in its PlotPointBuffer.
+    private HashMap<Integer, Long> _lastPointWithExtraDot = new HashMap<Integer, Long>();
 
     // A stroke of width 1.
     private static final BasicStroke _LINE_STROKE1 = new BasicStroke(1f,
@@ -3373,16 +3460,6 @@ public class Plot extends PlotBox implements PlotInterface {
     // by the next scheduled repaint.
     private boolean _needPlotRefill = false;
 
-    /**
-     * Points in bins have an absolute index within the virtual array
-     *  of all points that once existed in Plot. This is done to avoid
-     *  having to change all bins when points in the beginning are removed.
-     *  The offset _pointInBinOffset is a positive number that denotes the
-     *  difference between the index of the point in the current point arraylist
-     *  and the virtual one containing all points.
-     */
-    private ArrayList<Integer> _pointInBinOffset = new ArrayList<Integer>();
-
     /** @serial Number of points to persist for. */
     private int _pointsPersistence = 0;
 
@@ -3452,11 +3529,12 @@ public class Plot extends PlotBox implements PlotInterface {
          *      and a certain ypos.
          * Precondition: The xpos of the point should be same as other points already within the bin
          */
-        public void addPoint(PlotPoint point, int pointIndex, long ypos) {
-            int absolutePointIndex = pointIndex
-                    + _pointInBinOffset.get(_dataset);
-            //The absolute point index is a index in the list of
-            //  all points that once existed in the plot
+        public void addPoint(boolean connected, boolean errorBar,
+                int pointIndex, long ypos) {
+            long absolutePointIndex = pointIndex + _firstSequence();
+            //The absolute point index is the sequence number of the point,
+            //  its index in the list of all points that once existed in the
+            //  plot, so it does not change when points before it are removed
 
             if (_maxYPos < ypos) {
                 _maxYPos = ypos;
@@ -3468,12 +3546,12 @@ public class Plot extends PlotBox implements PlotInterface {
             }
 
             if (_firstPointIndex == -1) {
-                _needConnectionWithPreviousBin = point.connected;
+                _needConnectionWithPreviousBin = connected;
                 _firstYPos = ypos;
                 _firstPointIndex = absolutePointIndex;
                 _nextPointToPlot = _firstPointIndex;
             } else {
-                _isConnected |= point.connected;
+                _isConnected |= connected;
                 // if one point is connected within the bin, all points will be (it is difficult to do this otherwise)
 
                 assert _afterLastPointIndex == absolutePointIndex; //Bin intervals should be contiguous intervals
@@ -3482,7 +3560,7 @@ public class Plot extends PlotBox implements PlotInterface {
             _afterLastPointIndex = absolutePointIndex + 1;
             _lastYPos = ypos;
 
-            _errorBar |= point.errorBar;
+            _errorBar |= errorBar;
         }
 
         /**
@@ -3491,7 +3569,7 @@ public class Plot extends PlotBox implements PlotInterface {
          */
         public int afterLastPointIndex() {
             assert _firstPointIndex != -1;
-            return _afterLastPointIndex - _pointInBinOffset.get(_dataset);
+            return (int) (_afterLastPointIndex - _firstSequence());
         }
 
         /**
@@ -3507,7 +3585,7 @@ public class Plot extends PlotBox implements PlotInterface {
          */
         public int firstPointIndex() {
             assert _firstPointIndex != -1;
-            return _firstPointIndex - _pointInBinOffset.get(_dataset);
+            return (int) (_firstPointIndex - _firstSequence());
         }
 
         /**
@@ -3578,7 +3656,7 @@ public class Plot extends PlotBox implements PlotInterface {
          * This index is the index within the current points of the plot.
          */
         public int nextPointToPlot() {
-            return _nextPointToPlot - _pointInBinOffset.get(_dataset);
+            return (int) (_nextPointToPlot - _firstSequence());
         }
 
         /**
@@ -3588,6 +3666,18 @@ public class Plot extends PlotBox implements PlotInterface {
             return _rangeChanged;
         }
 
+        /**
+         * Reset the plot state for this bin so that it is plotted
+         * entirely again, as if its points had just been added.
+         */
+        public void resetDisplayStateForReplot() {
+            _needConnectionWithPreviousBin = _points.get(_dataset)
+                    .isConnected(firstPointIndex());
+            _isConnectedWithPreviousBin = false;
+            _rangeChanged = true;
+            _nextPointToPlot = _firstPointIndex;
+        }
+
         /**
          * Reset the plot state for this bin when you have
          * plotted this bin/
@@ -3607,20 +3697,27 @@ public class Plot extends PlotBox implements PlotInterface {
         public void setNotConnectedWithPreviousBin() {
             _needConnectionWithPreviousBin = false;
             _isConnectedWithPreviousBin = false;
-            _points.get(_dataset).get(
-                    _firstPointIndex - _pointInBinOffset.get(_dataset)).connected = false;
+            // This changes the point to match the bins, so it does not
+            // make the bins invalid.
+            _points.get(_dataset).setConnected(firstPointIndex(), false);
+            _binnedModifications++;
         }
 
         public final long xpos;
 
-        private int _afterLastPointIndex = 0;
+        // Return the sequence number of the first point in the dataset.
+        private long _firstSequence() {
+            return _points.get(_dataset).getFirstSequence();
+        }
+
+        private long _afterLastPointIndex = 0;
 
         private int _dataset = 0;
 
         // _errorBar is true in case there is one point that needs an error bar, otherwise false
         private boolean _errorBar = false;
 
-        private int _firstPointIndex = -1;
+        private long _firstPointIndex = -1;
 
         private long _firstYPos = java.lang.Long.MIN_VALUE;
 
@@ -3637,7 +3734,7 @@ public class Plot extends PlotBox implements PlotInterface {
         private boolean _needConnectionWithPreviousBin = false;
 
         private boolean _rangeChanged = false;
-        private int _nextPointToPlot = 0;
+        private long _nextPointToPlot = 0;
     }
 
     private static class Format implements Serializable {
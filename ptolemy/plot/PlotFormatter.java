@@ -404,19 +404,19 @@ public class PlotFormatter extends JPanel {
     // the Plot class, taking advantage of the fact that this class is
     // in the same package.
     private void _saveConnected() {
-        ArrayList<ArrayList<PlotPoint>> points = ((Plot) _plot)._points;
+        ArrayList<PlotPointBuffer> points = ((Plot) _plot)._points;
         _originalConnected = new boolean[points.size()][];
-        _originalPoints = new PlotPoint[points.size()][];
+        _originalPoints = new PlotPointBuffer[points.size()];
+        _originalFirstSequences = new long[points.size()];
 
         for (int dataset = 0; dataset < points.size(); dataset++) {
-            ArrayList<PlotPoint> pts = points.get(dataset);
+            PlotPointBuffer pts = points.get(dataset);
             _originalConnected[dataset] = new boolean[pts.size()];
-            _originalPoints[dataset] = new PlotPoint[pts.size()];
+            _originalPoints[dataset] = pts;
+            _originalFirstSequences[dataset] = pts.getFirstSequence();
 
             for (int i = 0; i < pts.size(); i++) {
-                PlotPoint pt = pts.get(i);
-                _originalConnected[dataset][i] = pt.connected;
-                _originalPoints[dataset][i] = pt;
+                _originalConnected[dataset][i] = pts.isConnected(i);
             }
         }
     }
@@ -426,7 +426,7 @@ public class PlotFormatter extends JPanel {
     // the Plot class, taking advantage of the fact that this class is
     // in the same package.
     private void _setConnected(boolean value) {
-        //ArrayList<ArrayList<PlotPoint>> points = ((Plot) _plot)._points;
+        //ArrayList<PlotPointBuffer> points = ((Plot) _plot)._points;
 
         // Make sure the default matches.
         ((Plot) _plot).setConnected(value);
@@ -459,9 +459,19 @@ public class PlotFormatter extends JPanel {
     // in the same package.
     private void _restoreConnected() {
         for (int dataset = 0; dataset < _originalPoints.length; dataset++) {
-            for (int i = 0; i < _originalPoints[dataset].length; i++) {
-                PlotPoint pt = _originalPoints[dataset][i];
-                pt.connected = _originalConnected[dataset][i];
+            PlotPointBuffer pts = _originalPoints[dataset];
+
+            // Points may have been removed from the front of the buffer
+            // since the connected state was saved.
+            long removed = pts.getFirstSequence()
+                    - _originalFirstSequences[dataset];
+
+            for (int i = 0; i < _originalConnected[dataset].length; i++) {
+                long index = i - removed;
+                if (index >= 0 && index < pts.size()) {
+                    pts.setConnected((int) index,
+                            _originalConnected[dataset][i]);
+                }
             }
         }
     }
@@ -515,5 +525,7 @@ public class PlotFormatter extends JPanel {
 
     private boolean[][] _originalConnected;
 
-    private PlotPoint[][] _originalPoints;
+    private long[] _originalFirstSequences;
+
+    private PlotPointBuffer[] _originalPoints;
 }
@@ -0,0 +1,551 @@
+/* A columnar ring buffer of plot points.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.plot;
+
+import java.io.Serializable;
+
+///////////////////////////////////////////////////////////////////
+//// PlotPointBuffer
+
+/**
+ The points of one data set of a plot, stored by column in arrays of
+ primitives rather than as one {@link PlotPoint} object per point.
+ A point without error bars that is not wrapped takes 17 bytes, about
+ a quarter of the memory of a PlotPoint and its reference. The columns
+ for the original x values and for the error bars are allocated only
+ when a point first needs them.
+ <p>
+ The arrays are used as a ring buffer, so removing points from the
+ front, as a plot with persistence does as new points arrive, takes
+ constant time and does not move the remaining points. Once the number
+ of points stops growing, the buffer stops allocating memory.
+ <p>
+ Each point is identified by its index, which is its position among
+ the points currently in the buffer, and by its sequence number, which
+ is the number of points that were added to the buffer before it.
+ Unlike the index, the sequence number of a point does not change when
+ points before it are removed.
+ <p>
+ The buffer counts modifications other than adding points to the end
+ and removing points from the front, so that a client that keeps
+ information about the points, such as the bins of a {@link Plot},
+ can tell whether it is still valid.
+ <p>
+ This class is not synchronized. A Plot accesses it only from the
+ event dispatch thread.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class PlotPointBuffer implements Serializable {
+
+    /** Construct an empty buffer.
+     */
+    public PlotPointBuffer() {
+        this(_DEFAULT_CAPACITY);
+    }
+
+    /** Construct an empty buffer with room for at least the specified
+     *  number of points.
+     *  @param capacity The number of points to allocate room for.
+     *  @exception IllegalArgumentException If the capacity is negative
+     *   or larger than {@link #MAXIMUM_CAPACITY}.
+     */
+    public PlotPointBuffer(int capacity) {
+        if (capacity < 0 || capacity > MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: "
+                    + capacity);
+        }
+        _allocate(_powerOfTwo(capacity));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public variables                  ////
+
+    /** The largest number of points that a buffer can hold. */
+    public static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Add a point without error bars to the end of the buffer.
+     *  @param x The x value, after wrapping, if any.
+     *  @param y The y value.
+     *  @param originalX The x value before wrapping.
+     *  @param connected True if the point is connected to the previous
+     *   point by a line.
+     */
+    public void add(double x, double y, double originalX, boolean connected) {
+        int position = _reserve();
+        _x[position] = x;
+        _y[position] = y;
+        _flags[position] = connected ? _CONNECTED : 0;
+        if (originalX != x || _originalX != null) {
+            _setOriginalX(position, x, originalX);
+        }
+        if (_yLowEB != null) {
+            _yLowEB[position] = 0.0;
+            _yHighEB[position] = 0.0;
+        }
+        _size++;
+    }
+
+    /** Add a point with error bars to the end of the buffer.
+     *  @param x The x value, after wrapping, if any.
+     *  @param y The y value.
+     *  @param originalX The x value before wrapping.
+     *  @param yLowEB The low end of the error bar.
+     *  @param yHighEB The high end of the error bar.
+     *  @param connected True if the point is connected to the previous
+     *   point by a line.
+     */
+    public void add(double x, double y, double originalX, double yLowEB,
+            double yHighEB, boolean connected) {
+        add(x, y, originalX, connected);
+        int position = _position(_size - 1);
+        if (_yLowEB == null) {
+            _yLowEB = new double[_x.length];
+            _yHighEB = new double[_x.length];
+        }
+        _yLowEB[position] = yLowEB;
+        _yHighEB[position] = yHighEB;
+        _flags[position] |= _ERROR_BAR;
+    }
+
+    /** Add a copy of the specified point to the end of the buffer.
+     *  @param point The point.
+     */
+    public void add(PlotPoint point) {
+        if (point.errorBar) {
+            add(point.x, point.y, point.originalx, point.yLowEB,
+                    point.yHighEB, point.connected);
+        } else {
+            add(point.x, point.y, point.originalx, point.connected);
+        }
+    }
+
+    /** Remove all the points and release the memory they used.
+     *  The sequence numbers of points added later continue from
+     *  those of the removed points.
+     */
+    public void clear() {
+        _firstSequence += _size;
+        _size = 0;
+        _head = 0;
+        _allocate(_DEFAULT_CAPACITY);
+        _modifications++;
+    }
+
+    /** Return a new point with the values of the point at the
+     *  specified index. Changing the returned point does not
+     *  change the buffer.
+     *  @param index The index of the point.
+     *  @return A copy of the point.
+     *  @see #set(int, PlotPoint)
+     */
+    public PlotPoint get(int index) {
+        _checkIndex(index);
+        int position = _position(index);
+        PlotPoint result = new PlotPoint();
+        result.x = _x[position];
+        result.y = _y[position];
+        result.originalx = _originalX == null ? _x[position]
+                : _originalX[position];
+        result.connected = (_flags[position] & _CONNECTED) != 0;
+        result.errorBar = (_flags[position] & _ERROR_BAR) != 0;
+        if (result.errorBar) {
+            result.yLowEB = _yLowEB[position];
+            result.yHighEB = _yHighEB[position];
+        }
+        return result;
+    }
+
+    /** Return the number of points the buffer can hold before it has
+     *  to allocate more memory.
+     *  @return The capacity of the buffer.
+     */
+    public int getCapacity() {
+        return _x.length;
+    }
+
+    /** Return the sequence number of the point at index 0, which is the
+     *  number of points that have been removed from the front of the
+     *  buffer or cleared. The sequence number of the point at index
+     *  <i>i</i> is this number plus <i>i</i>.
+     *  @return The sequence number of the first point.
+     */
+    public long getFirstSequence() {
+        return _firstSequence;
+    }
+
+    /** Return the number of modifications to the buffer other than
+     *  adding points to the end and removing points from the front.
+     *  @return The number of modifications.
+     */
+    public long getModificationCount() {
+        return _modifications;
+    }
+
+    /** Return the x value of the specified point before wrapping.
+     *  @param index The index of the point.
+     *  @return The original x value.
+     */
+    public double getOriginalX(int index) {
+        _checkIndex(index);
+        if (_originalX == null) {
+            return _x[_position(index)];
+        }
+        return _originalX[_position(index)];
+    }
+
+    /** Return the x value of the specified point.
+     *  @param index The index of the point.
+     *  @return The x value.
+     */
+    public double getX(int index) {
+        _checkIndex(index);
+        return _x[_position(index)];
+    }
+
+    /** Return the y value of the specified point.
+     *  @param index The index of the point.
+     *  @return The y value.
+     */
+    public double getY(int index) {
+        _checkIndex(index);
+        return _y[_position(index)];
+    }
+
+    /** Return the high end of the error bar of the specified point, or
+     *  0.0 if the point has no error bar.
+     *  @param index The index of the point.
+     *  @return The high end of the error bar.
+     */
+    public double getYHighEB(int index) {
+        _checkIndex(index);
+        if (_yHighEB == null) {
+            return 0.0;
+        }
+        return _yHighEB[_position(index)];
+    }
+
+    /** Return the low end of the error bar of the specified point, or
+     *  0.0 if the point has no error bar.
+     *  @param index The index of the point.
+     *  @return The low end of the error bar.
+     */
+    public double getYLowEB(int index) {
+        _checkIndex(index);
+        if (_yLowEB == null) {
+            return 0.0;
+        }
+        return _yLowEB[_position(index)];
+    }
+
+    /** Return true if the specified point has an error bar.
+     *  @param index The index of the point.
+     *  @return True if the point has an error bar.
+     */
+    public boolean hasErrorBar(int index) {
+        _checkIndex(index);
+        return (_flags[_position(index)] & _ERROR_BAR) != 0;
+    }
+
+    /** Return true if the specified point is connected to the previous
+     *  point by a line.
+     *  @param index The index of the point.
+     *  @return True if the point is connected.
+     */
+    public boolean isConnected(int index) {
+        _checkIndex(index);
+        return (_flags[_position(index)] & _CONNECTED) != 0;
+    }
+
+    /** Remove the point at the specified index. Removing the first
+     *  point takes constant time, and removing any other point moves
+     *  the points after it.
+     *  @param index The index of the point.
+     */
+    public void remove(int index) {
+        _checkIndex(index);
+        if (index == 0) {
+            removeFirst(1);
+            return;
+        }
+        for (int i = index + 1; i < _size; i++) {
+            int from = _position(i);
+            int to = _position(i - 1);
+            _x[to] = _x[from];
+            _y[to] = _y[from];
+            _flags[to] = _flags[from];
+            if (_originalX != null) {
+                _originalX[to] = _originalX[from];
+            }
+            if (_yLowEB != null) {
+                _yLowEB[to] = _yLowEB[from];
+                _yHighEB[to] = _yHighEB[from];
+            }
+        }
+        _size--;
+        _modifications++;
+    }
+
+    /** Remove the specified number of points from the front of the
+     *  buffer in constant time.
+     *  @param count The number of points to remove.
+     *  @exception IndexOutOfBoundsException If the count is negative
+     *   or greater than the number of points.
+     */
+    public void removeFirst(int count) {
+        if (count < 0 || count > _size) {
+            throw new IndexOutOfBoundsException("Cannot remove " + count
+                    + " points from a buffer with " + _size + " points.");
+        }
+        _head = _position(count);
+        _size -= count;
+        _firstSequence += count;
+    }
+
+    /** Set the values of the point at the specified index to those of
+     *  the specified point.
+     *  @param index The index of the point.
+     *  @param point The new values.
+     *  @see #get(int)
+     */
+    public void set(int index, PlotPoint point) {
+        _checkIndex(index);
+        int position = _position(index);
+        _x[position] = point.x;
+        _y[position] = point.y;
+        if (point.originalx != point.x || _originalX != null) {
+            _setOriginalX(position, point.x, point.originalx);
+        }
+        byte flags = point.connected ? _CONNECTED : 0;
+        if (point.errorBar) {
+            if (_yLowEB == null) {
+                _yLowEB = new double[_x.length];
+                _yHighEB = new double[_x.length];
+            }
+            _yLowEB[position] = point.yLowEB;
+            _yHighEB[position] = point.yHighEB;
+            flags |= _ERROR_BAR;
+        }
+        _flags[position] = flags;
+        _modifications++;
+    }
+
+    /** Specify whether the point at the specified index is connected
+     *  to the previous point by a line.
+     *  @param index The index of the point.
+     *  @param connected True if the point is connected.
+     */
+    public void setConnected(int index, boolean connected) {
+        _checkIndex(index);
+        int position = _position(index);
+        if (connected) {
+            _flags[position] |= _CONNECTED;
+        } else {
+            _flags[position] &= ~_CONNECTED;
+        }
+        _modifications++;
+    }
+
+    /** Set the x value of the specified point. The original x value
+     *  of the point is not changed.
+     *  @param index The index of the point.
+     *  @param x The x value.
+     */
+    public void setX(int index, double x) {
+        _checkIndex(index);
+        int position = _position(index);
+        if (_originalX == null) {
+            _setOriginalX(position, _x[position], _x[position]);
+        }
+        _x[position] = x;
+        _modifications++;
+    }
+
+    /** Set the y value of the specified point.
+     *  @param index The index of the point.
+     *  @param y The y value.
+     */
+    public void setY(int index, double y) {
+        _checkIndex(index);
+        _y[_position(index)] = y;
+        _modifications++;
+    }
+
+    /** Return the number of points in the buffer.
+     *  @return The number of points.
+     */
+    public int size() {
+        return _size;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Allocate empty columns of the specified length, which is a power
+     *  of two.
+     */
+    private void _allocate(int capacity) {
+        _x = new double[capacity];
+        _y = new double[capacity];
+        _flags = new byte[capacity];
+        _originalX = null;
+        _yLowEB = null;
+        _yHighEB = null;
+    }
+
+    /** Throw an exception if the index does not refer to a point. */
+    private void _checkIndex(int index) {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index
+                    + ", Size: " + _size);
+        }
+    }
+
+    /** Return a copy of the column with its points starting at 0. */
+    private double[] _copy(double[] column, int capacity) {
+        double[] result = new double[capacity];
+        int firstPart = Math.min(_size, column.length - _head);
+        System.arraycopy(column, _head, result, 0, firstPart);
+        System.arraycopy(column, 0, result, firstPart, _size - firstPart);
+        return result;
+    }
+
+    /** Return the position in the columns of the point at the index. */
+    private int _position(int index) {
+        return (_head + index) & (_x.length - 1);
+    }
+
+    /** Return the smallest power of two that is at least the argument
+     *  and at least 2.
+     */
+    private static int _powerOfTwo(int capacity) {
+        int result = 2;
+        while (result < capacity) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    /** Return the position at which to store a point added to the end,
+     *  doubling the size of the columns if they are full.
+     */
+    private int _reserve() {
+        int capacity = _x.length;
+        if (_size == capacity) {
+            if (capacity >= MAXIMUM_CAPACITY) {
+                throw new IllegalStateException("Cannot store more than "
+                        + MAXIMUM_CAPACITY + " points in a data set.");
+            }
+            int newCapacity = capacity << 1;
+            _x = _copy(_x, newCapacity);
+            _y = _copy(_y, newCapacity);
+            byte[] flags = new byte[newCapacity];
+            int firstPart = Math.min(_size, capacity - _head);
+            System.arraycopy(_flags, _head, flags, 0, firstPart);
+            System.arraycopy(_flags, 0, flags, firstPart, _size - firstPart);
+            _flags = flags;
+            if (_originalX != null) {
+                _originalX = _copy(_originalX, newCapacity);
+            }
+            if (_yLowEB != null) {
+                _yLowEB = _copy(_yLowEB, newCapacity);
+                _yHighEB = _copy(_yHighEB, newCapacity);
+            }
+            _head = 0;
+        }
+        return _position(_size);
+    }
+
+    /** Set the original x value at the position, allocating the column
+     *  of original x values if necessary.  Until it is allocated, the
+     *  original x value of each point is its x value.
+     */
+    private void _setOriginalX(int position, double x, double originalX) {
+        if (_originalX == null) {
+            _originalX = new double[_x.length];
+            for (int i = 0; i < _size; i++) {
+                int other = _position(i);
+                _originalX[other] = _x[other];
+            }
+        }
+        _originalX[position] = originalX;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The flag of points connected to the previous point. */
+    private static final byte _CONNECTED = 1;
+
+    /** The initial capacity. */
+    private static final int _DEFAULT_CAPACITY = 16;
+
+    /** The flag of points with error bars. */
+    private static final byte _ERROR_BAR = 2;
+
+    /** The sequence number of the point at index 0. */
+    private long _firstSequence;
+
+    /** The flags of the points. */
+    private byte[] _flags;
+
+    /** The position in the columns of the point at index 0. */
+    private int _head;
+
+    /** The number of modifications other than adding and removing
+     *  from the front.
+     */
+    private long _modifications;
+
+    /** The x values before wrapping, or null if they are the same as
+     *  the x values.
+     */
+    private double[] _originalX;
+
+    /** The number of points. */
+    private int _size;
+
+    /** The x values. */
+    private double[] _x;
+
+    /** The y values. */
+    private double[] _y;
+
+    /** The high ends of the error bars, or null if no point has one. */
+    private double[] _yHighEB;
+
+    /** The low ends of the error bars, or null if no point has one. */
+    private double[] _yLowEB;
+}
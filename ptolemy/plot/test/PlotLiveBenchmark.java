@@ -0,0 +1,119 @@
+/* Measure the time to stream points into a live plot.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+
+ */
+package ptolemy.plot.test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import javax.swing.SwingUtilities;
+
+import ptolemy.plot.Plot;
+
+///////////////////////////////////////////////////////////////////
+//// PlotLiveBenchmark
+
+/**
+ Stream points into a plot that keeps only the most recent points, as
+ the plotters do when their persistence is set, and draw the plot at
+ regular intervals, as a timed repaint does. Report the rate at which
+ points are added, the time to draw the plot and the memory used.
+ <p>
+ To run:
+ <pre>
+ java -Djava.awt.headless=true -Xmx1g -classpath $PTII ptolemy.plot.test.PlotLiveBenchmark [points [persistence [drawInterval]]]
+ </pre>
+ By default, 100,000,000 points are streamed into a plot that keeps the
+ last 1,000,000 points, and the plot is drawn after every 1,000,000
+ points. The points are added in the event dispatch thread, so the
+ time measured is that of storing and drawing the points rather than
+ that of handing them over to the event dispatch thread.
+
+ @author agent
+ @version $Id$
+ @since Ptolemy II 8.1
+ @Pt.ProposedRating Red (agent)
+ @Pt.AcceptedRating Red (agent)
+ */
+public class PlotLiveBenchmark {
+
+    /** Run the benchmark.
+     *  @param args The number of points, the persistence, and the number
+     *   of points between drawings of the plot, all optional.
+     *  @exception Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        final long points = args.length > 0 ? Long.parseLong(args[0])
+                : 100000000L;
+        final int persistence = args.length > 1 ? Integer.parseInt(args[1])
+                : 1000000;
+        final int drawInterval = args.length > 2 ? Integer.parseInt(args[2])
+                : 1000000;
+
+        final Plot plot = new Plot();
+        plot.setPointsPersistence(persistence);
+        plot.setXRange(0.0, points);
+        plot.setYRange(-1.0, 1.0);
+        final Rectangle rectangle = new Rectangle(800, 400);
+        final BufferedImage image = new BufferedImage(rectangle.width,
+                rectangle.height, BufferedImage.TYPE_INT_ARGB);
+
+        final long[] drawTime = new long[2];
+        long start = System.nanoTime();
+        for (long first = 0L; first < points; first += drawInterval) {
+            final long batchStart = first;
+            final long batchEnd = Math.min(points, first + drawInterval);
+            SwingUtilities.invokeAndWait(new Runnable() {
+                public void run() {
+                    for (long i = batchStart; i < batchEnd; i++) {
+                        plot.addPoint(0, i, Math.sin(i * 0.001), true);
+                    }
+                    long drawStart = System.nanoTime();
+                    plot.exportImage(image, rectangle, null, false);
+                    drawTime[0] += System.nanoTime() - drawStart;
+                    drawTime[1]++;
+                }
+            });
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+
+        System.out.println("Streamed " + points + " points keeping "
+                + persistence + " in " + (elapsed / 1000000L) + " ms: "
+                + (long) (points * 1.0e9 / elapsed) + " points/s.");
+        System.out.println("Drew the plot " + drawTime[1]
+                + " times in an average of "
+                + (drawTime[0] / Math.max(1L, drawTime[1]) / 1000L)
+                + " us.");
+        System.out.println("Heap in use: " + (used / (1024 * 1024))
+                + " MB.");
+        System.exit(0);
+    }
+}
@@ -0,0 +1,179 @@
+# Tests for the PlotPointBuffer class
+#
+# @Author: agent
+#
+# $Id$
+#
+# @Copyright (c) 2011 The Regents of the University of California.
+# All rights reserved.
+#
+# Permission is hereby granted, without written agreement and without
+# license or royalty fees, to use, copy, modify, and distribute this
+# software and its documentation for any purpose, provided that the
+# above copyright notice and the following two paragraphs appear in all
+# copies of this software.
+#
+# IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+# FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+# ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+# THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+# SUCH DAMAGE.
+#
+# THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+# INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+# PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+# CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+# ENHANCEMENTS, OR MODIFICATIONS.
+#
+# 						PT_COPYRIGHT_VERSION_2
+# 						COPYRIGHTENDKEY
+#######################################################################
+
+# Load up the test definitions.
+if {[string compare test [info procs test]] == 1} then {
+    source testDefs.tcl
+} {}
+
+# Uncomment this to get a full report, or set in your Tcl shell window.
+# set VERBOSE 1
+
+# Return the x values of the points in the buffer.
+proc xValues {buffer} {
+    set result {}
+    for {set i 0} {$i < [$buffer size]} {incr i} {
+	lappend result [$buffer getX $i]
+    }
+    return $result
+}
+
+# Wait until the actions deferred to the event dispatch thread are done.
+proc waitForEventThread {} {
+    java::call javax.swing.SwingUtilities invokeAndWait [java::new Thread]
+}
+
+######################################################################
+####
+#
+test PlotPointBuffer-1.1 {add and get} {
+    set buffer [java::new ptolemy.plot.PlotPointBuffer]
+    $buffer {add double double double boolean} 1.0 2.0 1.0 false
+    $buffer {add double double double boolean} 3.0 4.0 5.0 true
+    set point [$buffer get 1]
+    list [$buffer size] [$buffer getY 0] [$buffer isConnected 0] \
+	[$buffer getOriginalX 0] [$buffer getOriginalX 1] \
+	[java::field $point x] [java::field $point originalx] \
+	[java::field $point connected] \
+	[$buffer hasErrorBar 1] [$buffer getYLowEB 1]
+} {2 2.0 0 1.0 5.0 3.0 5.0 1 0 0.0}
+
+######################################################################
+####
+#
+test PlotPointBuffer-1.2 {error bars} {
+    # Uses 1.1 above
+    $buffer {add double double double double double boolean} \
+	6.0 7.0 6.0 6.5 7.5 true
+    list [$buffer hasErrorBar 1] [$buffer hasErrorBar 2] \
+	[$buffer getYLowEB 2] [$buffer getYHighEB 2] \
+	[java::field [$buffer get 2] errorBar]
+} {0 1 6.5 7.5 1}
+
+######################################################################
+####
+#
+test PlotPointBuffer-2.1 {Remove from the front and wrap around while growing} {
+    set buffer [java::new ptolemy.plot.PlotPointBuffer 4]
+    for {set i 0} {$i < 4} {incr i} {
+	$buffer {add double double double boolean} $i $i $i true
+    }
+    $buffer removeFirst 3
+    # These wrap around to the start of the arrays.
+    for {set i 4} {$i < 7} {incr i} {
+	$buffer {add double double double boolean} $i $i $i true
+    }
+    set r1 [list [xValues $buffer] [$buffer getCapacity] \
+		[$buffer getFirstSequence]]
+    # This doubles the capacity.
+    $buffer {add double double double boolean} 7 7 7 true
+    list $r1 [xValues $buffer] [$buffer getCapacity] \
+	[$buffer getFirstSequence] [$buffer getModificationCount]
+} {{{3.0 4.0 5.0 6.0} 4 3} {3.0 4.0 5.0 6.0 7.0} 8 3 0}
+
+######################################################################
+####
+#
+test PlotPointBuffer-2.2 {A ring buffer does not grow} {
+    set buffer [java::new ptolemy.plot.PlotPointBuffer 8]
+    for {set i 0} {$i < 1000} {incr i} {
+	$buffer {add double double double boolean} $i $i $i true
+	if {[$buffer size] > 7} {
+	    $buffer removeFirst 1
+	}
+    }
+    list [xValues $buffer] [$buffer getCapacity] [$buffer getFirstSequence]
+} {{993.0 994.0 995.0 996.0 997.0 998.0 999.0} 8 993}
+
+######################################################################
+####
+#
+test PlotPointBuffer-2.3 {remove, set and clear are counted as modifications} {
+    # Uses 2.2 above
+    $buffer remove 2
+    $buffer setY 0 -1.0
+    $buffer setX 1 -2.0
+    $buffer setConnected 2 false
+    set r1 [list [xValues $buffer] [$buffer getY 0] \
+		[$buffer getOriginalX 1] [$buffer isConnected 2] \
+		[$buffer getModificationCount]]
+    $buffer clear
+    list $r1 [$buffer size] [$buffer getFirstSequence] \
+	[$buffer getModificationCount]
+} {{{993.0 -2.0 996.0 997.0 998.0 999.0} -1.0 994.0 0 4} 0 999 5}
+
+######################################################################
+####
+#
+test PlotPointBuffer-2.4 {Index checking} {
+    catch {$buffer getX 0} msg1
+    catch {$buffer removeFirst 1} msg2
+    catch {java::new ptolemy.plot.PlotPointBuffer -1} msg3
+    list $msg1 $msg2 $msg3
+} {{java.lang.IndexOutOfBoundsException: Index: 0, Size: 0} {java.lang.IndexOutOfBoundsException: Cannot remove 1 points from a buffer with 0 points.} {java.lang.IllegalArgumentException: Invalid capacity: -1}}
+
+######################################################################
+####
+#
+test PlotPointBuffer-3.1 {A plot with persistence keeps a bounded number of points} {
+    set plot [java::new ptolemy.plot.EditablePlot]
+    $plot setPointsPersistence 100
+    for {set i 0} {$i < 1000} {incr i} {
+	$plot addPoint 0 $i [expr {$i % 7}] true
+    }
+    waitForEventThread
+    set data [$plot getData 0]
+    set xs [$data get 0]
+    set size [$xs length]
+    # Points are erased a pixel column at a time, so a few more
+    # than 100 may remain.
+    list [expr {$size >= 100 && $size < 120}] [$xs get [expr {$size - 1}]]
+} {1 999.0}
+
+######################################################################
+####
+#
+test PlotPointBuffer-3.2 {Drawing again without a change of scale reuses the bins} {
+    set plot [java::new ptolemy.plot.Plot]
+    $plot setMarksStyle dots
+    for {set i 0} {$i < 5000} {incr i} {
+	$plot addPoint 0 $i [expr {sin($i / 100.0)}] true
+	$plot addPoint 1 $i [expr {cos($i / 30.0)}] [expr {$i % 500 != 0}]
+    }
+    waitForEventThread
+    set rectangle [java::new {java.awt.Rectangle int int} 400 300]
+    set image1 [$plot exportImage $rectangle]
+    set image2 [$plot exportImage $rectangle]
+    set pixels1 [$image1 getRGB 0 0 400 300 [java::null] 0 400]
+    set pixels2 [$image2 getRGB 0 0 400 300 [java::null] 0 400]
+    java::call java.util.Arrays equals $pixels1 $pixels2
+} {1}
@@ -0,0 +1,162 @@
+/*
+ Transport batches of converted tokens to a peer in the same virtual machine.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+ */
+package ptserver.communication;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+///////////////////////////////////////////////////////////////////
+//// InProcessTokenTransport
+
+/** InProcessTokenTransport hands the published batches directly to a
+ *  peer transport in the same Java virtual machine.
+ *
+ *  <p>Two instances are connected with {@link #connect(InProcessTokenTransport)},
+ *  after which the batches published by one of them are delivered to the
+ *  listener of the other one.  The batches are delivered in order by a
+ *  thread of the receiving transport, so publishing never waits for the
+ *  listener.  Batches that arrive before the listener is set are held until
+ *  it is set.</p>
+ *
+ *  @author agent
+ *  @version $Id$
+ *  @since Ptolemy II 8.1
+ *  @Pt.ProposedRating Red (agent)
+ *  @Pt.AcceptedRating Red (agent)
+ */
+public class InProcessTokenTransport implements TokenTransport {
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Stop delivering batches to the listener and disconnect from the peer.
+     */
+    public void close() {
+        synchronized (this) {
+            _closed = true;
+            _pendingBatches.clear();
+            _executor.shutdown();
+        }
+        InProcessTokenTransport peer = _peer;
+        if (peer != null) {
+            peer._peer = null;
+            _peer = null;
+        }
+    }
+
+    /** Connect this transport and the peer so that the batches published
+     *  by either of them are received by the other one.
+     *  @param peer The peer transport.
+     */
+    public void connect(InProcessTokenTransport peer) {
+        _peer = peer;
+        peer._peer = this;
+    }
+
+    /** Deliver the batch to the listener of the peer.
+     *  @param batch The batch of converted tokens.
+     *  @exception IOException If the transport is not connected to a peer.
+     */
+    public void publish(byte[] batch) throws IOException {
+        InProcessTokenTransport peer = _peer;
+        if (peer == null) {
+            throw new IOException("The transport is not connected to a peer.");
+        }
+        peer._deliver(batch);
+    }
+
+    /** Set the listener that receives the batches published by the peer
+     *  and deliver the batches that were held until now.
+     *  @param listener The listener.
+     */
+    public synchronized void setBatchListener(BatchListener listener) {
+        _listener = listener;
+        for (byte[] batch : _pendingBatches) {
+            _executeDelivery(batch);
+        }
+        _pendingBatches.clear();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Deliver the batch to the listener, or hold it if the listener is
+     *  not yet set.
+     *  @param batch The batch of converted tokens.
+     */
+    private synchronized void _deliver(byte[] batch) {
+        if (_closed) {
+            return;
+        }
+        if (_listener == null) {
+            _pendingBatches.add(batch);
+        } else {
+            _executeDelivery(batch);
+        }
+    }
+
+    /** Deliver the batch to the listener in the thread of the executor.
+     *  This must be called while holding the lock on this transport so that
+     *  the batches are delivered in the order in which they were published.
+     *  @param batch The batch of converted tokens.
+     */
+    private void _executeDelivery(final byte[] batch) {
+        final BatchListener listener = _listener;
+        _executor.execute(new Runnable() {
+            public void run() {
+                listener.batchArrived(batch);
+            }
+        });
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** True if the transport was closed.
+     */
+    private boolean _closed;
+
+    /** The executor that delivers the batches to the listener.
+     */
+    private final ExecutorService _executor = Executors
+            .newSingleThreadExecutor();
+
+    /** The listener that receives the batches.
+     */
+    private BatchListener _listener;
+
+    /** The batches that arrived before the listener was set.
+     */
+    private final ArrayList<byte[]> _pendingBatches = new ArrayList<byte[]>();
+
+    /** The transport that receives the published batches.
+     */
+    private volatile InProcessTokenTransport _peer;
+}
@@ -0,0 +1,168 @@
+/*
+ Transport batches of converted tokens through an MQTT broker.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+ */
+package ptserver.communication;
+
+import java.io.IOException;
+
+import com.ibm.mqtt.IMqttClient;
+import com.ibm.mqtt.MqttException;
+import com.ibm.mqtt.MqttSimpleCallback;
+
+///////////////////////////////////////////////////////////////////
+//// MqttTokenTransport
+
+/** MqttTokenTransport publishes batches to an MQTT topic and receives
+ *  the batches published to another topic through an MQTT broker.
+ *
+ *  @author agent
+ *  @version $Id$
+ *  @since Ptolemy II 8.1
+ *  @Pt.ProposedRating Red (agent)
+ *  @Pt.AcceptedRating Red (agent)
+ */
+public class MqttTokenTransport implements TokenTransport {
+
+    /** Create a transport over a connected MQTT client.
+     *  @param mqttClient The connected MQTT client.
+     *  @param publishingTopic The topic where the batches are published.
+     *  @param subscriptionTopic The topic from which the batches are received.
+     */
+    public MqttTokenTransport(IMqttClient mqttClient, String publishingTopic,
+            String subscriptionTopic) {
+        _mqttClient = mqttClient;
+        _publishingTopic = publishingTopic;
+        _subscriptionTopic = subscriptionTopic;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Disconnect from the broker and terminate the MQTT client.
+     *  @exception IOException If there is a problem disconnecting from the broker.
+     */
+    public void close() throws IOException {
+        try {
+            _mqttClient.disconnect();
+        } catch (MqttException e) {
+            throw _toIOException("Failed to disconnect from the broker", e);
+        } finally {
+            _mqttClient.terminate();
+        }
+    }
+
+    /** Return the MQTT client that is used to send out MQTT messages.
+     *  @return the mqttClient instance
+     */
+    public IMqttClient getMqttClient() {
+        return _mqttClient;
+    }
+
+    /** Return the topic where the batches are published.
+     *  @return the topic where the batches are published
+     */
+    public String getPublishingTopic() {
+        return _publishingTopic;
+    }
+
+    /** Return the topic from which the batches are received.
+     *  @return the topic from which the batches are received
+     */
+    public String getSubscriptionTopic() {
+        return _subscriptionTopic;
+    }
+
+    /** Publish the batch to the publishing topic.
+     *  @param batch The batch of converted tokens.
+     *  @exception IOException If there is a problem with the MQTT broker.
+     */
+    public void publish(byte[] batch) throws IOException {
+        try {
+            _mqttClient.publish(_publishingTopic, batch,
+                    ProxyModelInfrastructure.QOS_LEVEL, false);
+        } catch (MqttException e) {
+            throw _toIOException("Failed to publish to topic \""
+                    + _publishingTopic + "\"", e);
+        }
+    }
+
+    /** Register the listener with the MQTT client and subscribe to
+     *  the subscription topic.
+     *  @param listener The listener.
+     *  @exception IOException If there is a problem subscribing to the topic.
+     */
+    public void setBatchListener(final BatchListener listener)
+            throws IOException {
+        _mqttClient.registerSimpleHandler(new MqttSimpleCallback() {
+
+            public void connectionLost() {
+                listener.connectionLost();
+            }
+
+            public void publishArrived(String topicName, byte[] payload,
+                    int qos, boolean retained) {
+                listener.batchArrived(payload);
+            }
+        });
+        try {
+            _mqttClient.subscribe(new String[] { _subscriptionTopic },
+                    new int[] { ProxyModelInfrastructure.QOS_LEVEL });
+        } catch (MqttException e) {
+            throw _toIOException("Failed to subscribe to topic \""
+                    + _subscriptionTopic + "\"", e);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Wrap an MQTT exception in an IOException.
+     *  @param message The message of the IOException.
+     *  @param cause The MQTT exception.
+     *  @return The IOException.
+     */
+    private IOException _toIOException(String message, MqttException cause) {
+        IOException exception = new IOException(message);
+        exception.initCause(cause);
+        return exception;
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The MQTT client used to send and receive messages.
+     */
+    private final IMqttClient _mqttClient;
+
+    /** The topic where the batches are published.
+     */
+    private final String _publishingTopic;
+
+    /** The topic from which the batches are received.
+     */
+    private final String _subscriptionTopic;
+}
@@ -28,6 +28,7 @@
  */
 package ptserver.communication;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ResourceBundle;
@@ -189,13 +190,11 @@ public class ProxyModelInfrastructure {
         }
         _executor.shutdownNow();
         _tokenPublisher.cancel();
-        if (_mqttClient != null) {
+        if (_transport != null) {
             try {
-                _mqttClient.disconnect();
-            } catch (MqttException e) {
+                _transport.close();
+            } catch (IOException e) {
                 fireModelException(null, e);
-            } finally {
-                _mqttClient.terminate();
             }
         }
     }
@@ -331,6 +330,13 @@ public class ProxyModelInfrastructure {
         return _tokenPublisher;
     }
 
+    /** Return the transport used to exchange tokens with the remote model.
+     *  @return The transport, or null if the infrastructure is not set up.
+     */
+    public TokenTransport getTransport() {
+        return _transport;
+    }
+
     /** Return the top level actor used for running distributed simulation.
      *  @return the topLevelActor of the model.
      */
@@ -400,7 +406,8 @@ public class ProxyModelInfrastructure {
         _timeoutPeriod = timeoutPeriod;
     }
 
-    /** Set up the communication infrastructure.
+    /** Set up the communication infrastructure that exchanges tokens with
+     *  the remote model through an MQTT broker.
      *  @param ticket The ticket associated with this remote model.
      *  @param brokerHostname The hostname of the MQTT broker.
      *  @return The manager of the model
@@ -409,23 +416,36 @@ public class ProxyModelInfrastructure {
      */
     public Manager setUpInfrastructure(Ticket ticket, String brokerHostname)
             throws MqttException, IllegalActionException {
-        _ticket = ticket;
-        switch (_modelType) {
-        case CLIENT:
-            _subscriptionTopic = ticket.getTicketID() + ProxyModelType.SERVER;
-            _publishingTopic = ticket.getTicketID() + ProxyModelType.CLIENT;
-            break;
-        case SERVER:
-            _subscriptionTopic = ticket.getTicketID() + ProxyModelType.CLIENT;
-            _publishingTopic = ticket.getTicketID() + ProxyModelType.SERVER;
-            break;
-        default:
-            // This should never happen.
-            throw new IllegalStateException("Unhandled model type");
+        _setUpTopics(ticket);
+        IMqttClient mqttClient = _connectToBroker(brokerHostname);
+        try {
+            return setUpInfrastructure(ticket, new MqttTokenTransport(
+                    mqttClient, _publishingTopic, _subscriptionTopic));
+        } catch (IOException e) {
+            if (e.getCause() instanceof MqttException) {
+                throw (MqttException) e.getCause();
+            }
+            throw new IllegalActionException(null, e,
+                    "Failed to set up the MQTT transport.");
         }
+    }
 
+    /** Set up the communication infrastructure that exchanges tokens with
+     *  the remote model through the specified transport.  The transport is
+     *  closed when the model is closed.
+     *  @param ticket The ticket associated with this remote model.
+     *  @param transport The transport connected to the remote model.
+     *  @return The manager of the model
+     *  @exception IOException If there is a problem receiving tokens from the transport.
+     *  @exception IllegalActionException If there is problem creating the manager.
+     */
+    public Manager setUpInfrastructure(Ticket ticket, TokenTransport transport)
+            throws IOException, IllegalActionException {
+        _setUpTopics(ticket);
+        _transport = transport;
+        _tokenPublisher.setTransport(transport);
         _tokenPublisher.startTimer(ticket);
-        _setUpMQTT(brokerHostname);
+        transport.setBatchListener(new TokenListener(this));
         _setUpRemoteAttributes();
         _setUpMonitoring();
         _setUpManager();
@@ -448,6 +468,26 @@ public class ProxyModelInfrastructure {
     ///////////////////////////////////////////////////////////////////
     ////                         private methods                   ////
 
+    /** Connect to the MQTT broker.
+     *  @param address Address of the MQTT broker.
+     *  @return The connected MQTT client.
+     *  @exception MqttException if there is a problem connecting to the broker.
+     */
+    private IMqttClient _connectToBroker(String address) throws MqttException {
+        IMqttClient mqttClient = MqttClient.createMqttClient(address, null);
+        String topic = getTicket().getTicketID() + _modelType;
+        try {
+            mqttClient.connect(topic, true, (short) 10);
+        } catch (MqttException ex) {
+            MqttException exception = new MqttException("Failed to connect to topic \""
+                    + topic + "\".  Perhaps the mosquitto daemon is not running? "
+                    + "See $PTII/ptserver/control/PtolemyServer.java.");
+            exception.initCause(ex);
+            throw exception;
+        }
+        return mqttClient;
+    }
+
     /** Return the last pong token.
      *  @return the last pong token.
      */
@@ -548,29 +588,6 @@ public class ProxyModelInfrastructure {
                 _remoteAttributesMap);
     }
 
-    /** Set up MQTT connection.
-     *  @param address Address of the MQTT broker.
-     *  @exception MqttException if there is a problem subscribing to topic.
-     */
-    private void _setUpMQTT(String address) throws MqttException {
-        _mqttClient = MqttClient.createMqttClient(address, null);
-        String topic = getTicket().getTicketID() + _modelType;
-        try {
-            _mqttClient.connect(topic, true, (short) 10);
-        } catch (MqttException ex) {
-            MqttException exception = new MqttException("Failed to connect to topic \""
-                    + topic + "\".  Perhaps the mosquitto daemon is not running? "
-                    + "See $PTII/ptserver/control/PtolemyServer.java.");
-            exception.initCause(ex);
-            throw exception;
-        }
-        _tokenPublisher.setMqttClient(_mqttClient);
-        _tokenPublisher.setTopic(_publishingTopic);
-        _mqttClient.registerSimpleHandler(new TokenListener(this));
-        _mqttClient.subscribe(new String[] { getSubscriptionTopic() },
-                new int[] { QOS_LEVEL });
-    }
-
     /** Initialize the manager of the model.
      *  @exception IllegalActionException If there is a problem setting the
      *  manager of the top level actor.
@@ -687,6 +704,26 @@ public class ProxyModelInfrastructure {
         }
     }
 
+    /** Set the ticket and the topics of the model.
+     *  @param ticket The ticket associated with this remote model.
+     */
+    private void _setUpTopics(Ticket ticket) {
+        _ticket = ticket;
+        switch (_modelType) {
+        case CLIENT:
+            _subscriptionTopic = ticket.getTicketID() + ProxyModelType.SERVER;
+            _publishingTopic = ticket.getTicketID() + ProxyModelType.CLIENT;
+            break;
+        case SERVER:
+            _subscriptionTopic = ticket.getTicketID() + ProxyModelType.CLIENT;
+            _publishingTopic = ticket.getTicketID() + ProxyModelType.SERVER;
+            break;
+        default:
+            // This should never happen.
+            throw new IllegalStateException("Unhandled model type");
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
@@ -729,9 +766,9 @@ public class ProxyModelInfrastructure {
      */
     private final CompositeActor _topLevelActor;
 
-    /** The mqtt client connection.
+    /** The transport used to exchange tokens with the remote model.
      */
-    private IMqttClient _mqttClient;
+    private TokenTransport _transport;
 
     /** The topic used to listen for incoming mqtt messages.
      */
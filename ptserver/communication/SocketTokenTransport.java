@@ -0,0 +1,187 @@
+/*
+ Transport batches of converted tokens over a TCP connection.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+ */
+package ptserver.communication;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+///////////////////////////////////////////////////////////////////
+//// SocketTokenTransport
+
+/** SocketTokenTransport sends the published batches to its remote
+ *  counterpart over a TCP connection without an intermediate broker.
+ *
+ *  <p>Each batch is written to the socket channel as its length (4 bytes)
+ *  followed by its bytes.  The batches received from the channel are read
+ *  by a thread of the transport and delivered in order to the listener.
+ *  The channel may be created by connecting to the counterpart with
+ *  {@link #SocketTokenTransport(String, int)} or by accepting its
+ *  connection with a {@link java.nio.channels.ServerSocketChannel}.</p>
+ *
+ *  @author agent
+ *  @version $Id$
+ *  @since Ptolemy II 8.1
+ *  @Pt.ProposedRating Red (agent)
+ *  @Pt.AcceptedRating Red (agent)
+ */
+public class SocketTokenTransport implements TokenTransport {
+
+    /** Create a transport over a connected socket channel.
+     *  @param channel The socket channel in blocking mode.
+     *  @exception IOException If the options of the socket cannot be set.
+     */
+    public SocketTokenTransport(SocketChannel channel) throws IOException {
+        _channel = channel;
+        // The batches are already collected by the TokenPublisher,
+        // so they should be sent out right away.
+        _channel.socket().setTcpNoDelay(true);
+    }
+
+    /** Create a transport by connecting to the counterpart.
+     *  @param hostname The hostname of the counterpart.
+     *  @param port The port on which the counterpart accepts connections.
+     *  @exception IOException If the connection cannot be established.
+     */
+    public SocketTokenTransport(String hostname, int port) throws IOException {
+        this(SocketChannel.open(new InetSocketAddress(hostname, port)));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Close the socket channel, which also stops the thread reading
+     *  the batches.
+     *  @exception IOException If there is a problem closing the channel.
+     */
+    public void close() throws IOException {
+        _closed = true;
+        _channel.close();
+    }
+
+    /** Write the length of the batch and the batch to the socket channel.
+     *  @param batch The batch of converted tokens.
+     *  @exception IOException If the batch cannot be written.
+     */
+    public void publish(byte[] batch) throws IOException {
+        synchronized (_header) {
+            _header.clear();
+            _header.putInt(batch.length);
+            _header.flip();
+            ByteBuffer[] buffers = new ByteBuffer[] { _header,
+                    ByteBuffer.wrap(batch) };
+            while (_header.hasRemaining() || buffers[1].hasRemaining()) {
+                _channel.write(buffers);
+            }
+        }
+    }
+
+    /** Set the listener and start the thread that reads the batches from
+     *  the socket channel.
+     *  @param listener The listener.
+     *  @exception IOException If the listener was already set.
+     */
+    public synchronized void setBatchListener(final BatchListener listener)
+            throws IOException {
+        if (_reader != null) {
+            throw new IOException("The listener of the transport is already set.");
+        }
+        _reader = new Thread(new Runnable() {
+            public void run() {
+                _readBatches(listener);
+            }
+        }, "SocketTokenTransport reader");
+        _reader.setDaemon(true);
+        _reader.start();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Read the batches from the channel and deliver them to the listener
+     *  until the channel is closed.
+     *  @param listener The listener.
+     */
+    private void _readBatches(BatchListener listener) {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        try {
+            while (true) {
+                header.clear();
+                _readFully(header);
+                header.flip();
+                ByteBuffer batch = ByteBuffer.allocate(header.getInt());
+                _readFully(batch);
+                listener.batchArrived(batch.array());
+            }
+        } catch (IOException e) {
+            if (!_closed) {
+                _LOGGER.log(Level.INFO, "Connection was lost", e);
+                listener.connectionLost();
+            }
+        }
+    }
+
+    /** Read from the channel until the buffer is full.
+     *  @param buffer The buffer to fill.
+     *  @exception IOException If the channel reaches its end or cannot be read.
+     */
+    private void _readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (_channel.read(buffer) < 0) {
+                throw new EOFException("The connection was closed.");
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         private variables                 ////
+
+    /** The socket channel connected to the counterpart.
+     */
+    private final SocketChannel _channel;
+
+    /** True if the transport was closed.
+     */
+    private volatile boolean _closed;
+
+    /** The buffer holding the length of the batch being written.
+     */
+    private final ByteBuffer _header = ByteBuffer.allocate(4);
+
+    /** The thread reading the batches from the channel.
+     */
+    private Thread _reader;
+
+    /** The logger used by the ptserver.
+     */
+    private static final Logger _LOGGER = Logger.getLogger("PtolemyServer");
+}
@@ -39,13 +39,11 @@ import ptserver.data.PongToken;
 import ptserver.data.RemoteEventToken;
 import ptserver.data.Tokenizer;
 
-import com.ibm.mqtt.MqttSimpleCallback;
-
 ///////////////////////////////////////////////////////////////////
 //// TokenListener
 
-/** TokenListener is responsible for processing MQTT messages received,
- *  converting back to tokens and putting those tokens into appropriate queues.
+/** TokenListener is responsible for processing the batches received by the
+ *  TokenTransport, converting back to tokens and putting those tokens into appropriate queues.
  *
  *  @author Anar Huseynov
  *  @version $Id: TokenListener.java 61629 2011-07-28 02:17:45Z ahuseyno $
@@ -53,7 +51,7 @@ import com.ibm.mqtt.MqttSimpleCallback;
  *  @Pt.ProposedRating Red (ahuseyno)
  *  @Pt.AcceptedRating Red (ahuseyno)
  */
-public class TokenListener implements MqttSimpleCallback {
+public class TokenListener implements TokenTransport.BatchListener {
 
     ///////////////////////////////////////////////////////////////////
     ////                         constructor                       ////
@@ -68,25 +66,34 @@ public class TokenListener implements MqttSimpleCallback {
     ///////////////////////////////////////////////////////////////////
     ////                         public methods                    ////
 
-    /** Callback method when the connection with the broker is lost.
-     *  @exception Exception If the connection was lost.
-     *  @see com.ibm.mqtt.MqttSimpleCallback#connectionLost()
+    /** Convert the batch back to tokens and process them.  Exceptions
+     *  are reported to the listeners of the infrastructure.
+     *  @param batch The batch of converted tokens.
      */
-    public void connectionLost() throws Exception {
+    public void batchArrived(byte[] batch) {
+        try {
+            _processBatch(batch);
+        } catch (Throwable e) {
+            _proxyModelInfrastructure.fireModelException(
+                    "Unhandled exception in the TokenListener", e);
+        }
+    }
+
+    /** Callback method when the connection of the transport is lost.
+     */
+    public void connectionLost() {
         //TODO: handle connection lost case
         _LOGGER.info("Connection was lost");
     }
 
-    /** Callback method when a message from the topic is received.
-     *  @param topicName The name of the topic from which the message was received.
-     *  @param payload The MQTT message.
-     *  @param qos The Quality of Service at which the message was delivered by the broker.
-     *  @param retained indicates if this message is retained by the broker.
-     *  @see com.ibm.mqtt.MqttSimpleCallback#publishArrived(java.lang.String, byte[], int, boolean)
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Convert the batch back to tokens and process them.
+     *  @param payload The batch of converted tokens.
      *  @exception Exception if there is a problem reading next token or setting attribute value
      */
-    public void publishArrived(String topicName, byte[] payload, int qos,
-            boolean retained) throws Exception {
+    private void _processBatch(byte[] payload) throws Exception {
         Tokenizer tokenizer = new Tokenizer(payload);
         Token token = null;
         // TODO remove this or change to proper logging
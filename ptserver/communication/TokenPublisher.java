@@ -1,5 +1,5 @@
 /*
- TokenPublisher batches tokens, converts to them binary and then publishes the result to the MQTT topic
+ TokenPublisher batches tokens, converts to them binary and then publishes the result through a transport
 
  Copyright (c) 2011 The Regents of the University of California.
  All rights reserved.
@@ -28,6 +28,8 @@
 package ptserver.communication;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -40,16 +42,17 @@ import ptserver.actor.ProxySink;
 import ptserver.control.Ticket;
 import ptserver.data.TokenParser;
 
-import com.ibm.mqtt.IMqttClient;
-import com.ibm.mqtt.MqttException;
-import com.ibm.mqtt.MqttNotConnectedException;
-import com.ibm.mqtt.MqttPersistenceException;
-
 ///////////////////////////////////////////////////////////////////
 //// TokenPublisher
 
-/** TokenPublisher batches tokens, converts to them binary and then publishes the result to the MQTT topic.
- * <p>The batch is sent it out periodically according to the period parameter.
+/** TokenPublisher batches tokens, converts to them binary and then publishes the result
+ * through the {@link TokenTransport}.
+ * <p>The batch is sent it out periodically according to the period parameter, and also
+ * within the period whenever it reaches 64 kilobytes.  Sinks that send more tokens within a period than the
+ * transport is expected to handle are throttled.  The number of tokens allowed per period
+ * adapts to the transport: it is doubled when sinks were throttled during a period
+ * in which publishing took less than half of the period, and halved when publishing
+ * took longer than the period.  It never drops below 1000 tokens.</p>
  *
  * @author Anar Huseynov
  * @version $Id$
@@ -78,7 +81,7 @@ public class TokenPublisher {
 
             public void run() {
                 try {
-                    _sendBatch();
+                    _endPeriod();
                 } catch (Throwable e) {
                     _proxyModelInfrastructure.fireModelException(
                             "Unhandled exception in the TokenPublisher", e);
@@ -89,11 +92,23 @@ public class TokenPublisher {
 
     /** Cancel the publisher's timer used for sending batch of tokens.
      */
-    public synchronized void cancel() {
+    public void cancel() {
+        if (_executor != null) {
+            if (_publisherFuture != null) {
+                _publisherFuture.cancel(false);
+            }
+            // Let the batch being published, if any, go out before
+            // sending the last one.
+            _executor.shutdown();
+            try {
+                _executor.awaitTermination(_period, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         // Send the last batch before closing
         try {
-            if (_tokenCount != 0) {
-                _sendBatch();
+            if (_sendBatch()) {
                 // NOTE: for some reason, the last batch is not send out, 
                 // if the mqtt connection is closed right after the publish method.
                 // By forcing the thread sleep, we give MQTT some time to send the last message.
@@ -103,55 +118,53 @@ public class TokenPublisher {
             _proxyModelInfrastructure.fireModelException(
                     "Unhandled exception in the TokenPublisher", e);
         }
-        if (_executor != null) {
-            _executor.shutdownNow();
-            if (_publisherFuture != null) {
-                _publisherFuture.cancel(true);
-            }
-        }
     }
 
     ///////////////////////////////////////////////////////////////////
     ////                         public methods                    ////
 
-    /** Return MQTT client that is used to send out MQTT messages.
-     *  @return the mqttClient instance
-     *  @see #setMqttClient(IMqttClient)
+    /** Return the number of tokens that sinks may send within a period
+     *  before they are throttled.
+     *  @return The current number of tokens allowed per period.
      */
-    public IMqttClient getMqttClient() {
-        return _mqttClient;
+    public synchronized int getTokensPerPeriod() {
+        return _tokensPerPeriod;
     }
 
-    /** Return the topic where the messages are published.
-     *  @return the topic where the messages are published
-     *  @see #setTopic(String)
+    /** Return the transport through which the batches are published.
+     *  @return the transport
+     *  @see #setTransport(TokenTransport)
      */
-    public String getTopic() {
-        return _topic;
+    public TokenTransport getTransport() {
+        return _transport;
     }
 
-    /** Send the token via MQTT protocol.
+    /** Send the token through the transport.
      *  <p>The token will not be sent out immediately but would be batched for the specified period.</p>
      *  @param token The token to send
      * @param sender The sink that produced the token.  If the parameter is null, 
      * then the token was not produced by the model but programmatically i.e. for monitoring purposes.
-     *  @exception IllegalActionException if there is a problem with MQTT broker.
+     *  @exception IllegalActionException if there is a problem converting the token.
      */
     public void sendToken(Token token, ProxySink sender)
             throws IllegalActionException {
         try {
-            final int currentTokenCount;
+            final boolean throttle;
             synchronized (this) {
-                TokenParser.getInstance().convertToBytes(token, _outputStream);
+                TokenParser.getInstance().convertToBytes(token,
+                        _dataOutputStream);
                 _tokenCount++;
-                currentTokenCount = _tokenCount;
+                _periodTokenCount++;
+                throttle = _periodTokenCount > _tokensPerPeriod;
+                if (_outputStream.size() >= _MAX_BATCH_SIZE
+                        && !_flushScheduled && _executor != null
+                        && !_executor.isShutdown()) {
+                    _flushScheduled = true;
+                    _executor.execute(_flushTask);
+                }
             }
             if (sender != null) {
-                if (currentTokenCount > _MAX_TOKENS_PER_PERIOD) {
-                    sender.throttle(true);
-                } else {
-                    sender.throttle(false);
-                }
+                sender.throttle(throttle);
             }
         } catch (Throwable e) {
             throw new IllegalActionException(null, e,
@@ -159,33 +172,64 @@ public class TokenPublisher {
         }
     }
 
-    /** Set the mqttClient to be used to publish the tokens.
-     *  @param mqttClient the mqttClient to be used to publish the tokens.
-     *  @see #getMqttClient()
+    /** Set the transport through which the batches are published.
+     *  @param transport the transport.
+     *  @see #getTransport()
      */
-    public void setMqttClient(IMqttClient mqttClient) {
-        _mqttClient = mqttClient;
+    public void setTransport(TokenTransport transport) {
+        _transport = transport;
     }
 
-    /** Set the topic for the message to publish.
-     *  @param topic the topic to publish the MQTT messages.
-     *  @see #getTopic()
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Publish the batch collected during the period and adapt the
+     *  number of tokens allowed per period to the time spent publishing.
+     *  @exception IOException If the batch cannot be published.
      */
-    public void setTopic(String topic) {
-        _topic = topic;
+    private void _endPeriod() throws IOException {
+        _sendBatch();
+        synchronized (this) {
+            long periodNanoseconds = _period * 1000000L;
+            if (_publishingTime > periodNanoseconds) {
+                _tokensPerPeriod = Math.max(_MIN_TOKENS_PER_PERIOD,
+                        _tokensPerPeriod / 2);
+            } else if (_periodTokenCount > _tokensPerPeriod
+                    && _publishingTime < periodNanoseconds / 2) {
+                _tokensPerPeriod = Math.min(_MAX_TOKENS_PER_PERIOD,
+                        _tokensPerPeriod * 2);
+            }
+            _periodTokenCount = 0;
+            _publishingTime = 0;
+        }
     }
 
-    private synchronized void _sendBatch() throws MqttNotConnectedException,
-            MqttPersistenceException, IllegalArgumentException, MqttException {
-        if (_tokenCount > 0) {
-            byte[] batch = _outputStream.toByteArray();
-            _mqttClient.publish(getTopic(), batch,
-                    ProxyModelInfrastructure.QOS_LEVEL, false);
-            _LOGGER.fine("publishing batch " + _batchCount++ + " batch size "
-                    + batch.length + " token count " + _tokenCount);
+    /** Publish the tokens collected so far, if any.  The batch is published
+     *  without holding the lock so that sinks can keep sending tokens.
+     *  @return True if a batch was published.
+     *  @exception IOException If the batch cannot be published.
+     */
+    private boolean _sendBatch() throws IOException {
+        byte[] batch;
+        int tokenCount;
+        synchronized (this) {
+            if (_tokenCount == 0) {
+                return false;
+            }
+            batch = _outputStream.toByteArray();
+            tokenCount = _tokenCount;
             _outputStream.reset();
             _tokenCount = 0;
         }
+        long start = System.nanoTime();
+        _transport.publish(batch);
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            _publishingTime += elapsed;
+        }
+        _LOGGER.fine("publishing batch " + _batchCount++ + " batch size "
+                + batch.length + " token count " + tokenCount);
+        return true;
     }
 
     ///////////////////////////////////////////////////////////////////
@@ -197,47 +241,91 @@ public class TokenPublisher {
      */
     private int _batchCount;
 
-    /** The mqtt client instance used to send messages.
-     */
-    private IMqttClient _mqttClient;
-
     /** The output stream holding the batch.
      */
     private final ByteArrayOutputStream _outputStream = new ByteArrayOutputStream(
             10000);
 
+    /** The stream used to convert tokens into the batch.
+     */
+    private final DataOutputStream _dataOutputStream = new DataOutputStream(
+            _outputStream);
+
+    /** The executor used for sending batch of tokens.
+     */
+    private ScheduledExecutorService _executor;
+
+    /** True if the batch is to be published before the end of the period
+     *  because it is full.
+     */
+    private boolean _flushScheduled;
+
+    /** The task that publishes a full batch before the end of the period.
+     */
+    private final Runnable _flushTask = new Runnable() {
+        public void run() {
+            try {
+                synchronized (TokenPublisher.this) {
+                    _flushScheduled = false;
+                }
+                _sendBatch();
+            } catch (Throwable e) {
+                _proxyModelInfrastructure.fireModelException(
+                        "Unhandled exception in the TokenPublisher", e);
+            }
+        }
+    };
+
     /** The period in millisecond between batches.
      */
     private final long _period;
 
-    /** The infrastructure that created the listener.
+    /** The count of tokens sent within the current period.
      */
-    private final ProxyModelInfrastructure _proxyModelInfrastructure;
+    private int _periodTokenCount;
 
-    /** The executor used for sending batch of tokens.
+    /** The infrastructure that created the listener.
      */
-    private ScheduledExecutorService _executor;
+    private final ProxyModelInfrastructure _proxyModelInfrastructure;
 
     /**
      * The publisher's future that sends out token batches.
      */
     private ScheduledFuture<?> _publisherFuture;
 
+    /** The time in nanoseconds spent publishing within the current period.
+     */
+    private long _publishingTime;
+
     /** The count of tokens in the batch.
      */
     private int _tokenCount;
 
-    /** The topic where messages are published.
+    /** The number of tokens sinks may send within a period before they are throttled.
      */
-    private String _topic;
+    private int _tokensPerPeriod = _MIN_TOKENS_PER_PERIOD;
 
-    /**
-     * Maximum tokens per period before the publisher starts forcing the throttling.
+    /** The transport through which the batches are published.
      */
-    private static final int _MAX_TOKENS_PER_PERIOD = 1000;
+    private TokenTransport _transport;
 
     /**
      * The logger used by the ptserver. 
      */
     private static final Logger _LOGGER = Logger.getLogger("PtolemyServer");
+
+    /** The size in bytes at which a batch is published before the end of the period.
+     */
+    private static final int _MAX_BATCH_SIZE = 65536;
+
+    /**
+     * Maximum tokens per period that the adaptation may allow before the publisher
+     * starts forcing the throttling.
+     */
+    private static final int _MAX_TOKENS_PER_PERIOD = 1000000;
+
+    /**
+     * Minimum tokens per period before the publisher starts forcing the throttling.
+     */
+    private static final int _MIN_TOKENS_PER_PERIOD = 1000;
 }
@@ -0,0 +1,93 @@
+/*
+ Carry batches of converted tokens between a model and its remote counterpart.
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+ */
+package ptserver.communication;
+
+import java.io.IOException;
+
+///////////////////////////////////////////////////////////////////
+//// TokenTransport
+
+/** A TokenTransport carries the batches of tokens published by the
+ *  {@link TokenPublisher} of a model to the {@link TokenListener} of
+ *  its remote counterpart.
+ *
+ *  <p>The batches are opaque byte arrays produced by the
+ *  {@link ptserver.data.TokenParser}.  A transport must deliver the
+ *  batches in the order in which they were published.  The MQTT
+ *  transport relies on a broker, while the in-process and the socket
+ *  transports connect the two models directly, which is preferable
+ *  for high-rate streams.</p>
+ *
+ *  @author agent
+ *  @version $Id$
+ *  @since Ptolemy II 8.1
+ *  @Pt.ProposedRating Red (agent)
+ *  @Pt.AcceptedRating Red (agent)
+ *  @see MqttTokenTransport
+ *  @see InProcessTokenTransport
+ *  @see SocketTokenTransport
+ */
+public interface TokenTransport {
+
+    /** A listener for the batches received by a transport.
+     */
+    public interface BatchListener {
+
+        /** Process a batch received by the transport.
+         *  @param batch The batch of converted tokens.
+         */
+        void batchArrived(byte[] batch);
+
+        /** Notify the listener that the connection of the transport
+         *  was lost.
+         */
+        void connectionLost();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         public methods                    ////
+
+    /** Close the transport and release its resources.  Batches
+     *  published after the transport is closed are not delivered.
+     *  @exception IOException If there is a problem closing the connection.
+     */
+    void close() throws IOException;
+
+    /** Publish a batch to the remote counterpart.
+     *  @param batch The batch of converted tokens.
+     *  @exception IOException If the batch cannot be sent.
+     */
+    void publish(byte[] batch) throws IOException;
+
+    /** Set the listener that receives the batches published by the remote
+     *  counterpart and start receiving them.
+     *  @param listener The listener.
+     *  @exception IOException If there is a problem subscribing to the batches.
+     */
+    void setBatchListener(BatchListener listener) throws IOException;
+}
@@ -89,6 +89,44 @@ public final class TokenParser {
     ///////////////////////////////////////////////////////////////////
     ////                         public methods                    ////
 
+    /** Convert the tokens to a byte stream.  If all the tokens are of
+     *  the same type, the position of their TokenHandler is written once
+     *  (first 2 bytes) followed by the conversions produced by the TokenHandler,
+     *  so that homogeneous sequences of tokens do not repeat their type.
+     *  Otherwise, -1 is written (first 2 bytes) followed by each token as
+     *  converted by {@link #convertToBytes(Token, DataOutputStream)}.
+     *  Nothing is written for an empty array.
+     *  @param tokens Tokens to be converted
+     *  @param outputStream outputStream used for the resulting byte stream
+     *  @exception IOException if there is a problem with the outputStream
+     *  @exception IllegalActionException if the state becomes inconsistent
+     *  @see #convertToTokenArray(DataInputStream, int)
+     */
+    public void convertArrayToBytes(Token[] tokens,
+            DataOutputStream outputStream) throws IOException,
+            IllegalActionException {
+        if (tokens.length == 0) {
+            return;
+        }
+        Class<?> type = tokens[0].getClass();
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].getClass() != type) {
+                outputStream.writeShort(_HETEROGENEOUS);
+                for (Token token : tokens) {
+                    convertToBytes(token, outputStream);
+                }
+                return;
+            }
+        }
+
+        HandlerData<Token> handlerData = _getHandlerData(tokens[0]);
+        TokenHandler<Token> tokenHandler = handlerData.getTokenHandler();
+        outputStream.writeShort(handlerData._position);
+        for (Token token : tokens) {
+            tokenHandler.convertToBytes(token, outputStream);
+        }
+    }
+
     /** Convert the token to a byte stream by first finding its TokenHandler and
      *  writing its position to the stream (first 2 bytes) followed by the conversion 
      *  produced TokenHandler.
@@ -101,13 +139,7 @@ public final class TokenParser {
     public <T extends Token> void convertToBytes(T token,
             DataOutputStream outputStream) throws IOException,
             IllegalActionException {
-        HandlerData<T> handlerData = (HandlerData<T>) _handlerMap.get(token
-                .getClass());
-        if (handlerData == null) {
-            throw new NullPointerException("No handler found for type "
-                    + token.getClass());
-        }
-
+        HandlerData<T> handlerData = _getHandlerData(token);
         outputStream.writeShort(handlerData._position);
         handlerData.getTokenHandler().convertToBytes(token, outputStream);
     }
@@ -137,14 +169,8 @@ public final class TokenParser {
      */
     public <T extends Token> T convertToToken(DataInputStream inputStream)
             throws IOException, IllegalActionException {
-        short position = inputStream.readShort();
-        HandlerData<T> data = (HandlerData<T>) getHandlerList().get(position);
-
-        if (data == null) {
-            throw new NullPointerException("No handler found for position "
-                    + position);
-        }
-
+        HandlerData<T> data = this.<T> _getHandlerData(inputStream
+                .readShort());
         return data.getTokenHandler().convertToToken(inputStream,
                 data.getTokenType());
     }
@@ -163,6 +189,36 @@ public final class TokenParser {
         return this.<T> convertToToken(new DataInputStream(inputStream));
     }
 
+    /** Read and parse the inputStream in order to recreate the specified number of
+     *  tokens converted by {@link #convertArrayToBytes(Token[], DataOutputStream)}.
+     *  @param inputStream InputStream containing byteStream of the tokens data
+     *  @param length The number of tokens to read.
+     *  @return The tokens read from the inputStream
+     *  @exception IOException is thrown in case of a problem with the outputStream
+     *  @exception IllegalActionException is thrown if the state becomes inconsistent
+     */
+    public Token[] convertToTokenArray(DataInputStream inputStream, int length)
+            throws IOException, IllegalActionException {
+        Token[] tokens = new Token[length];
+        if (length == 0) {
+            return tokens;
+        }
+        short position = inputStream.readShort();
+        if (position == _HETEROGENEOUS) {
+            for (int i = 0; i < length; i++) {
+                tokens[i] = convertToToken(inputStream);
+            }
+        } else {
+            HandlerData<Token> data = _getHandlerData(position);
+            TokenHandler<Token> tokenHandler = data.getTokenHandler();
+            for (int i = 0; i < length; i++) {
+                tokens[i] = tokenHandler.convertToToken(inputStream,
+                        data.getTokenType());
+            }
+        }
+        return tokens;
+    }
+
     /** Get the list of token handlers.
      *  @return The list of loaded token handlers.
      */
@@ -221,6 +277,40 @@ public final class TokenParser {
         }
     }
 
+    ///////////////////////////////////////////////////////////////////
+    ////                         private methods                   ////
+
+    /** Return the handler data at the specified position.
+     *  @param <T> Type of the token
+     *  @param position The position of the handler read from the byte stream.
+     *  @return The handler data at the position.
+     *  @exception NullPointerException If there is no handler at the position.
+     */
+    private <T extends Token> HandlerData<T> _getHandlerData(short position) {
+        if (position < 0 || position >= _handlerList.size()) {
+            throw new NullPointerException("No handler found for position "
+                    + position);
+        }
+        return (HandlerData<T>) _handlerList.get(position);
+    }
+
+    /** Return the handler data of the token type.
+     *  @param <T> Type of the token
+     *  @param token The token.
+     *  @return The handler data mapped to the class of the token.
+     *  @exception NullPointerException If there is no handler for the type
+     *  of the token.
+     */
+    private <T extends Token> HandlerData<T> _getHandlerData(T token) {
+        HandlerData<T> handlerData = (HandlerData<T>) _handlerMap.get(token
+                .getClass());
+        if (handlerData == null) {
+            throw new NullPointerException("No handler found for type "
+                    + token.getClass());
+        }
+        return handlerData;
+    }
+
     ///////////////////////////////////////////////////////////////////
     ////                         private variables                 ////
 
@@ -233,6 +323,10 @@ public final class TokenParser {
      */
     private final HashMap<Class<? extends Token>, HandlerData<?>> _handlerMap = new HashMap<Class<? extends Token>, HandlerData<?>>();
 
+    /** The position written for a sequence of tokens that are not all of the same type.
+     */
+    private static final short _HETEROGENEOUS = -1;
+
     /** Singleton instance of the parser.
      */
     private static volatile TokenParser _instance;
@@ -31,7 +31,6 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import ptolemy.data.ArrayToken;
-import ptolemy.data.Token;
 import ptolemy.kernel.util.IllegalActionException;
 import ptserver.data.TokenParser;
 
@@ -60,14 +59,9 @@ public class ArrayTokenHandler implements TokenHandler<ArrayToken> {
     public void convertToBytes(ArrayToken token, DataOutputStream outputStream)
             throws IOException, IllegalActionException {
 
-        int size = token.length();
-        outputStream.writeInt(size);
-
-        for (int index = 0; index < size; index++) {
-            Token elementToken = token.getElement(index);
-            TokenParser.getInstance()
-                    .convertToBytes(elementToken, outputStream);
-        }
+        outputStream.writeInt(token.length());
+        TokenParser.getInstance().convertArrayToBytes(token.arrayValue(),
+                outputStream);
     }
 
     /** Read an ArrayToken from the input stream.
@@ -83,13 +77,7 @@ public class ArrayTokenHandler implements TokenHandler<ArrayToken> {
             IllegalActionException {
 
         int size = inputStream.readInt();
-        Token[] tokens = new Token[size];
-
-        for (int index = 0; index < size; index++) {
-            tokens[index] = TokenParser.getInstance().convertToToken(
-                    inputStream);
-        }
-
-        return new ArrayToken(tokens);
+        return new ArrayToken(TokenParser.getInstance().convertToTokenArray(
+                inputStream, size));
     }
 }
@@ -47,8 +47,9 @@ import ptserver.data.TokenParser;
  *  CommunicationTokenValueField = TargetActorName, PortCount(2), PortData... 
  *  (PortData is repeated PortCount times)<br />
  *  PortData = PortName, ChannelCount(2), ChannelData... (ChannelData is repeated ChannelCount times)<br />
- *  ChannelData = ChannelTokenCount(2), Token... (Token is repeated ChannelTokenCount times;
- *  Its serialized using TokenHandler defined for its data type)</p>
+ *  ChannelData = ChannelTokenCount(2), Tokens (Tokens are serialized using
+ *  {@link TokenParser#convertArrayToBytes(Token[], DataOutputStream)}, which writes
+ *  the type of the tokens once if they are all of the same type)</p>
  *  @author Anar Huseynov
  *  @version $Id$
  *  @since Ptolemy II 8.1
@@ -82,11 +83,8 @@ public class CommunicationTokenHandler implements
 
             for (Token[] tokens : channelTokens) {
                 outputStream.writeShort(tokens.length);
-
-                for (Token innerToken : tokens) {
-                    TokenParser.getInstance().convertToBytes(innerToken,
-                            outputStream);
-                }
+                TokenParser.getInstance().convertArrayToBytes(tokens,
+                        outputStream);
             }
         }
     }
@@ -113,13 +111,8 @@ public class CommunicationTokenHandler implements
 
             for (int channelIndex = 0; channelIndex < channelCount; channelIndex++) {
                 short tokenCount = inputStream.readShort();
-                Token[] tokens = new Token[tokenCount];
-
-                for (int j = 0; j < tokenCount; j++) {
-                    Token innerToken = TokenParser.getInstance()
-                            .convertToToken(inputStream);
-                    tokens[j] = innerToken;
-                }
+                Token[] tokens = TokenParser.getInstance().convertToTokenArray(
+                        inputStream, tokenCount);
 
                 token.putTokens(portName, channelIndex, tokens);
             }
@@ -50,9 +50,9 @@ import ptserver.control.PtolemyServer;
  * @Pt.AcceptedRating Red (ahuseyno)
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ TokenParserTest.class, ServletTest.class,
-        RemoteModelTest.class, FileDownloadTest.class, TypeParserTest.class,
-        RESTGetHandlerTest.class })
+@Suite.SuiteClasses({ TokenParserTest.class, TokenTransportTest.class,
+        ServletTest.class, RemoteModelTest.class, FileDownloadTest.class,
+        TypeParserTest.class, RESTGetHandlerTest.class })
 public class AllTests {
 
     /** Start the mosquitto process. */
@@ -28,6 +28,8 @@ package ptserver.test.junit;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
@@ -42,6 +44,7 @@ import ptolemy.data.DoubleMatrixToken;
 import ptolemy.data.DoubleToken;
 import ptolemy.data.FloatToken;
 import ptolemy.data.IntMatrixToken;
+import ptolemy.data.IntToken;
 import ptolemy.data.LongMatrixToken;
 import ptolemy.data.LongToken;
 import ptolemy.data.RecordToken;
@@ -334,6 +337,51 @@ public class TokenParserTest {
                 .iterator().next().get(0)[0]);
     }
 
+    @Test
+    public void testHomogeneousCommunicationToken() throws IOException,
+            IllegalActionException {
+        CommunicationToken token = new CommunicationToken();
+        token.setTargetActorName("actor");
+        token.addPort("port", 1);
+        Token[] tokens = new Token[100];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = new DoubleToken(i);
+        }
+        token.putTokens("port", 0, tokens);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        TokenParser.getInstance().convertToBytes(token, outputStream);
+        // The type of the double tokens is written once: type(2),
+        // actor(7), port count(2), port(6), channel count(2),
+        // token count(2), double type(2), doubles(100 * 8).
+        assertEquals(823, outputStream.size());
+        assertEquals(token,
+                TokenParser.getInstance().convertToToken(
+                        new ByteArrayInputStream(outputStream.toByteArray())));
+    }
+
+    @Test
+    public void testHeterogeneousCommunicationToken() throws IOException,
+            IllegalActionException {
+        CommunicationToken token = new CommunicationToken();
+        token.setTargetActorName("actor");
+        token.addPort("port", 2);
+        Token[] tokens = new Token[3];
+        tokens[0] = new DoubleToken(1.5);
+        tokens[1] = new IntToken(2);
+        tokens[2] = new StringToken("three");
+        token.putTokens("port", 0, tokens);
+        token.putTokens("port", 1, new Token[0]);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        TokenParser.getInstance().convertToBytes(token, outputStream);
+        CommunicationToken convertedToken = TokenParser.getInstance()
+                .convertToToken(
+                        new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(token, convertedToken);
+        assertEquals(IntToken.class, convertedToken.getTokens("port", 0)[1]
+                .getClass());
+        assertEquals(0, convertedToken.getTokens("port", 1).length);
+    }
+
     @Test
     public void testAttributeChangeToken() throws IOException,
             IllegalActionException {
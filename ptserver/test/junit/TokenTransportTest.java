@@ -0,0 +1,178 @@
+/*
+
+ Copyright (c) 2011 The Regents of the University of California.
+ All rights reserved.
+ Permission is hereby granted, without written agreement and without
+ license or royalty fees, to use, copy, modify, and distribute this
+ software and its documentation for any purpose, provided that the above
+ copyright notice and the following two paragraphs appear in all copies
+ of this software.
+
+ IN NO EVENT SHALL THE UNIVERSITY OF CALIFORNIA BE LIABLE TO ANY PARTY
+ FOR DIRECT, INDIRECT, SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES
+ ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ THE UNIVERSITY OF CALIFORNIA HAS BEEN ADVISED OF THE POSSIBILITY OF
+ SUCH DAMAGE.
+
+ THE UNIVERSITY OF CALIFORNIA SPECIFICALLY DISCLAIMS ANY WARRANTIES,
+ INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE. THE SOFTWARE
+ PROVIDED HEREUNDER IS ON AN "AS IS" BASIS, AND THE UNIVERSITY OF
+ CALIFORNIA HAS NO OBLIGATION TO PROVIDE MAINTENANCE, SUPPORT, UPDATES,
+ ENHANCEMENTS, OR MODIFICATIONS.
+
+ PT_COPYRIGHT_VERSION_2
+ COPYRIGHTENDKEY
+ */
+package ptserver.test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ptolemy.data.DoubleToken;
+import ptolemy.data.Token;
+import ptserver.communication.InProcessTokenTransport;
+import ptserver.communication.SocketTokenTransport;
+import ptserver.communication.TokenPublisher;
+import ptserver.communication.TokenTransport;
+import ptserver.communication.TokenTransport.BatchListener;
+import ptserver.data.Tokenizer;
+
+//////////////////////////////////////////////////////////////////////////
+//// TokenTransportTest
+/**
+ * Test the transports that carry batches of tokens between remote models
+ * without an MQTT broker.
+ *
+ * @author agent
+ * @version $Id$
+ * @since Ptolemy II 8.1
+ * @Pt.ProposedRating Red (agent)
+ * @Pt.AcceptedRating Red (agent)
+ */
+public class TokenTransportTest {
+
+    @Test(timeout = 5000)
+    public void testInProcessTransport() throws Exception {
+        InProcessTokenTransport client = new InProcessTokenTransport();
+        InProcessTokenTransport server = new InProcessTokenTransport();
+        client.connect(server);
+        _BatchQueue clientQueue = new _BatchQueue();
+        _BatchQueue serverQueue = new _BatchQueue();
+        client.setBatchListener(clientQueue);
+
+        // The batches published before the listener is set are held.
+        client.publish(new byte[] { 1, 2 });
+        client.publish(new byte[] { 3 });
+        server.setBatchListener(serverQueue);
+        server.publish(new byte[] { 4 });
+
+        assertArrayEquals(new byte[] { 1, 2 }, serverQueue.take());
+        assertArrayEquals(new byte[] { 3 }, serverQueue.take());
+        assertArrayEquals(new byte[] { 4 }, clientQueue.take());
+        client.close();
+        server.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testSocketTransport() throws Exception {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress("localhost", 0));
+        SocketTokenTransport client = new SocketTokenTransport("localhost",
+                serverChannel.socket().getLocalPort());
+        SocketTokenTransport server = new SocketTokenTransport(serverChannel
+                .accept());
+        serverChannel.close();
+        _BatchQueue clientQueue = new _BatchQueue();
+        _BatchQueue serverQueue = new _BatchQueue();
+        client.setBatchListener(clientQueue);
+        server.setBatchListener(serverQueue);
+
+        byte[] large = new byte[1000000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        client.publish(new byte[] { 1, 2 });
+        client.publish(new byte[0]);
+        client.publish(large);
+        server.publish(new byte[] { 4 });
+
+        assertArrayEquals(new byte[] { 1, 2 }, serverQueue.take());
+        assertArrayEquals(new byte[0], serverQueue.take());
+        assertArrayEquals(large, serverQueue.take());
+        assertArrayEquals(new byte[] { 4 }, clientQueue.take());
+
+        // Closing one end is seen as a lost connection by the other one.
+        client.close();
+        assertTrue(serverQueue.connectionLost.poll(1, TimeUnit.SECONDS));
+        server.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testTokenPublisher() throws Exception {
+        InProcessTokenTransport client = new InProcessTokenTransport();
+        InProcessTokenTransport server = new InProcessTokenTransport();
+        client.connect(server);
+        _BatchQueue serverQueue = new _BatchQueue();
+        server.setBatchListener(serverQueue);
+
+        TokenPublisher publisher = new TokenPublisher(10, null);
+        publisher.setTransport(client);
+        publisher.startTimer(null);
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            publisher.sendToken(new DoubleToken(i), null);
+        }
+        publisher.cancel();
+
+        // The tokens are received in order, and the batches are published
+        // before the end of the period once they are full.
+        int received = 0;
+        int batches = 0;
+        while (received < count) {
+            byte[] batch = serverQueue.take();
+            batches++;
+            Tokenizer tokenizer = new Tokenizer(batch);
+            Token token;
+            while ((token = tokenizer.getNextToken()) != null) {
+                assertEquals(new DoubleToken(received++), token);
+            }
+        }
+        assertEquals(count, received);
+        assertTrue(batches > 1);
+        client.close();
+        server.close();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    ////                         inner classes                     ////
+
+    /** A listener that queues the batches it receives.
+     */
+    private static class _BatchQueue implements BatchListener {
+
+        public void batchArrived(byte[] batch) {
+            _batches.add(batch);
+        }
+
+        public void connectionLost() {
+            connectionLost.add(Boolean.TRUE);
+        }
+
+        public byte[] take() throws InterruptedException {
+            return _batches.take();
+        }
+
+        public final LinkedBlockingQueue<Boolean> connectionLost = new LinkedBlockingQueue<Boolean>();
+
+        private final LinkedBlockingQueue<byte[]> _batches = new LinkedBlockingQueue<byte[]>();
+    }
+}